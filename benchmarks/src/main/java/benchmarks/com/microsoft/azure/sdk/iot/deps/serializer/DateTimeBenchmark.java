@@ -0,0 +1,115 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceArrayParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.ParserUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse and format throughput of the ISO-8601 timestamps on a query page of 1,000 devices, with 3 timestamps
+ * per device. The page is parsed as a whole, and the timestamps alone, from one and from four threads, to
+ * show that the parser does not contend on any shared formatter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateTimeBenchmark
+{
+    private static final int DEVICES_IN_PAGE = 1000;
+    private static final long FIRST_TIMESTAMP = 1505407283123L;
+
+    private String page;
+    private String[] timestamps;
+    private Date[] dates;
+
+    @Setup
+    public void setup()
+    {
+        this.timestamps = new String[DEVICES_IN_PAGE * 3];
+        this.dates = new Date[this.timestamps.length];
+        StringBuilder pageBuilder = new StringBuilder("[");
+        for (int i = 0; i < DEVICES_IN_PAGE; i++)
+        {
+            for (int j = 0; j < 3; j++)
+            {
+                int index = (i * 3) + j;
+                this.dates[index] = new Date(FIRST_TIMESTAMP + (index * 7919L));
+                this.timestamps[index] = ParserUtility.dateTimeUtcToString(this.dates[index]).replace("Z", "4883Z");
+            }
+            if (i > 0)
+            {
+                pageBuilder.append(',');
+            }
+            pageBuilder.append("{\"deviceId\":\"device").append(i).append("\",\"generationId\":\"636418617617581226\",")
+                    .append("\"etag\":\"MA==\",\"connectionState\":\"Connected\",\"status\":\"enabled\",\"statusReason\":null,")
+                    .append("\"connectionStateUpdatedTime\":\"").append(this.timestamps[i * 3]).append("\",")
+                    .append("\"statusUpdatedTime\":\"").append(this.timestamps[(i * 3) + 1]).append("\",")
+                    .append("\"lastActivityTime\":\"").append(this.timestamps[(i * 3) + 2]).append("\",")
+                    .append("\"cloudToDeviceMessageCount\":0,")
+                    .append("\"authentication\":{\"symmetricKey\":{\"primaryKey\":\"AAECAwQFBgcICQoLDA0ODw==\",")
+                    .append("\"secondaryKey\":\"EBESExQVFhcYGRobHB0eHw==\"},\"x509Thumbprint\":{\"primaryThumbprint\":null,")
+                    .append("\"secondaryThumbprint\":null},\"type\":\"sas\"}}");
+        }
+        this.page = pageBuilder.append(']').toString();
+    }
+
+    @Benchmark
+    public void parseDeviceQueryPage(Blackhole blackhole) throws IOException
+    {
+        DeviceArrayParser parser = new DeviceArrayParser(new StringReader(this.page));
+        while (parser.hasNext())
+        {
+            blackhole.consume(parser.next());
+        }
+        parser.close();
+    }
+
+    @Benchmark
+    public void parseTimestampsOfQueryPage(Blackhole blackhole)
+    {
+        for (String timestamp : this.timestamps)
+        {
+            blackhole.consume(ParserUtility.getDateTimeUtc(timestamp));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void parseTimestampsOfQueryPageConcurrently(Blackhole blackhole)
+    {
+        for (String timestamp : this.timestamps)
+        {
+            blackhole.consume(ParserUtility.getDateTimeUtc(timestamp));
+        }
+    }
+
+    @Benchmark
+    public void formatTimestampsOfQueryPage(Blackhole blackhole)
+    {
+        for (Date date : this.dates)
+        {
+            blackhole.consume(ParserUtility.dateTimeUtcToString(date));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.JobsResponseParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.TwinParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse and serialize throughput of the hot serializer types: device records, twin documents, method payloads,
+ * and job responses. Run with the {@code -prof gc} profiler, as the ci profile does, to also track the
+ * allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark
+{
+    private static final String DEVICE_JSON =
+            "{\"deviceId\":\"device1\",\"generationId\":\"636418617617581226\",\"etag\":\"MA==\"," +
+            "\"connectionState\":\"Disconnected\",\"status\":\"enabled\",\"statusReason\":null," +
+            "\"connectionStateUpdatedTime\":\"0001-01-01T00:00:00\",\"statusUpdatedTime\":\"0001-01-01T00:00:00\"," +
+            "\"lastActivityTime\":\"0001-01-01T00:00:00\",\"cloudToDeviceMessageCount\":0," +
+            "\"authentication\":{\"symmetricKey\":{\"primaryKey\":\"AAECAwQFBgcICQoLDA0ODw==\"," +
+            "\"secondaryKey\":\"EBESExQVFhcYGRobHB0eHw==\"},\"x509Thumbprint\":{\"primaryThumbprint\":null," +
+            "\"secondaryThumbprint\":null},\"type\":\"sas\"}}";
+
+    private static final String TWIN_JSON =
+            "{\"deviceId\":\"device1\",\"etag\":\"AAAAAAAAAAE=\",\"version\":3," +
+            "\"tags\":{\"location\":{\"region\":\"US\",\"plant\":\"Redmond43\"}}," +
+            "\"properties\":{" +
+            "\"desired\":{\"telemetryInterval\":30,\"mode\":\"normal\",\"thresholds\":{\"min\":-10.5,\"max\":85.25},\"$version\":5}," +
+            "\"reported\":{\"firmware\":\"1.2.3\",\"uptime\":123456,\"sensors\":[\"t1\",\"t2\",\"t3\"],\"$version\":12}}}";
+
+    private static final String METHOD_JSON =
+            "{\"methodName\":\"reboot\",\"responseTimeoutInSeconds\":200,\"connectTimeoutInSeconds\":5," +
+            "\"payload\":{\"input1\":\"someInput\",\"input2\":\"anotherInput\",\"delay\":10}}";
+
+    private static final String JOB_RESPONSE_JSON =
+            "{\"jobId\":\"jobName\",\"status\":\"completed\",\"type\":\"scheduleDeviceMethod\"," +
+            "\"queryCondition\":\"DeviceId IN ['new_device']\",\"createdTime\":\"2017-09-14T16:41:23.000Z\"," +
+            "\"startTime\":\"2017-09-14T16:41:24.000Z\",\"endTime\":\"2017-09-14T16:41:25.000Z\"," +
+            "\"maxExecutionTimeInSeconds\":120," +
+            "\"cloudToDeviceMethod\":{\"methodName\":\"reboot\",\"responseTimeoutInSeconds\":200,\"connectTimeoutInSeconds\":5,\"payload\":{\"delay\":10}}," +
+            "\"deviceJobStatistics\":{\"deviceCount\":1,\"failedCount\":0,\"succeededCount\":1,\"runningCount\":0,\"pendingCount\":0}}";
+
+    private DeviceParser deviceParser;
+    private MethodParser methodParser;
+
+    @Setup
+    public void setup()
+    {
+        this.deviceParser = new DeviceParser(DEVICE_JSON);
+        this.methodParser = new MethodParser();
+        this.methodParser.fromJson(METHOD_JSON);
+    }
+
+    @Benchmark
+    public DeviceParser parseDevice()
+    {
+        return new DeviceParser(DEVICE_JSON);
+    }
+
+    @Benchmark
+    public String serializeDevice()
+    {
+        return this.deviceParser.toJson();
+    }
+
+    @Benchmark
+    public TwinParser parseTwin()
+    {
+        TwinParser twinParser = new TwinParser();
+        twinParser.enableTags();
+        twinParser.updateTwin(TWIN_JSON);
+        return twinParser;
+    }
+
+    @Benchmark
+    public String serializeTwin()
+    {
+        TwinParser twinParser = new TwinParser();
+        twinParser.enableTags();
+        twinParser.updateTwin(TWIN_JSON);
+        return twinParser.toJson();
+    }
+
+    @Benchmark
+    public MethodParser parseMethod()
+    {
+        MethodParser parser = new MethodParser();
+        parser.fromJson(METHOD_JSON);
+        return parser;
+    }
+
+    @Benchmark
+    public String serializeMethod()
+    {
+        return this.methodParser.toJson();
+    }
+
+    @Benchmark
+    public JobsResponseParser parseJobResponse()
+    {
+        return JobsResponseParser.createFromJson(JOB_RESPONSE_JSON);
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.TwinChangedCallback;
+import com.microsoft.azure.sdk.iot.deps.serializer.TwinParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Update throughput of a twin kept by the device: a desired property patch received from the service, a full
+ * twin received on start, and the reported properties delta sent by the device. Each operation alternates
+ * between two versions of the same properties, so every update changes all of them and reaches the callbacks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TwinParserBenchmark
+{
+    private static final int PROPERTIES_IN_UPDATE = 10;
+
+    private final String[] desiredPatches = new String[2];
+    private final String[] fullTwins = new String[2];
+    private final Map<String, Object>[] reportedUpdates = new Map[2];
+    private TwinParser twinParser;
+    private int updates;
+
+    @Setup
+    public void setup()
+    {
+        for (int version = 0; version < 2; version++)
+        {
+            StringBuilder desired = new StringBuilder("{");
+            this.reportedUpdates[version] = new HashMap<>();
+            for (int i = 0; i < PROPERTIES_IN_UPDATE; i++)
+            {
+                desired.append("\"telemetryInterval").append(i).append("\":").append((version * 100) + i).append(',');
+                this.reportedUpdates[version].put("firmwareVersion" + i, "1." + version + "." + i);
+            }
+            desired.append("\"thresholds\":{\"min\":").append(-10.5 - version).append(",\"max\":").append(85.25 + version).append("},");
+            desired.append("\"$version\":").append(version + 5).append('}');
+
+            this.desiredPatches[version] = desired.toString();
+            this.fullTwins[version] = "{\"deviceId\":\"device1\",\"etag\":\"AAAAAAAAAAE=\",\"version\":3," +
+                    "\"properties\":{\"desired\":" + this.desiredPatches[version] + "," +
+                    "\"reported\":{\"firmware\":\"1.2." + version + "\",\"uptime\":" + (123456 + version) + ",\"$version\":12}}}";
+        }
+
+        TwinChangedCallback onChanged = new TwinChangedCallback()
+        {
+            @Override
+            public void execute(Map<String, Object> changes)
+            {
+                // The benchmark only measures the update, the changes are dropped.
+            }
+        };
+        this.twinParser = new TwinParser(onChanged, onChanged);
+    }
+
+    @Benchmark
+    public TwinParser applyDesiredPropertyPatch()
+    {
+        this.twinParser.updateDesiredProperty(this.desiredPatches[this.updates++ & 1]);
+        return this.twinParser;
+    }
+
+    @Benchmark
+    public TwinParser applyFullTwin()
+    {
+        this.twinParser.updateTwin(this.fullTwins[this.updates++ & 1]);
+        return this.twinParser;
+    }
+
+    @Benchmark
+    public String updateReportedProperties()
+    {
+        return this.twinParser.updateReportedProperty(this.reportedUpdates[this.updates++ & 1]);
+    }
+}
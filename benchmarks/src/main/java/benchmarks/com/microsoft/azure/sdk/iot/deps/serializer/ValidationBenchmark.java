@@ -0,0 +1,77 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.ParserUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation throughput of a twin update with 20 reported properties, some of them in sub-maps, and of the
+ * device and module IDs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark
+{
+    private static final int PROPERTIES_IN_UPDATE = 20;
+
+    private Map<String, Object> reportedProperties;
+
+    @Setup
+    public void setup()
+    {
+        this.reportedProperties = new HashMap<>();
+        for (int i = 0; i < PROPERTIES_IN_UPDATE; i += 4)
+        {
+            this.reportedProperties.put("temperatureSensor" + i, 21.5 + i);
+            this.reportedProperties.put("firmwareVersion" + i, "1.2." + i);
+            this.reportedProperties.put("isConnected" + i, true);
+
+            Map<String, Object> location = new HashMap<>();
+            location.put("latitude", 47.6);
+            location.put("longitude", -122.1);
+            this.reportedProperties.put("location" + i, location);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> validateReportedProperties()
+    {
+        ParserUtility.validateMap(this.reportedProperties, 5, false);
+        return this.reportedProperties;
+    }
+
+    @Benchmark
+    public String validateKey()
+    {
+        String key = "temperatureSensor12";
+        ParserUtility.validateKey(key, false);
+        return key;
+    }
+
+    @Benchmark
+    public String validateDeviceId()
+    {
+        String deviceId = "building43-floor2-thermostat-0042";
+        ParserUtility.validateId(deviceId);
+        return deviceId;
+    }
+}
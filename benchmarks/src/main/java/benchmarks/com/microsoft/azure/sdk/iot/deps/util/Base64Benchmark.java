@@ -0,0 +1,120 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.deps.util;
+
+import com.microsoft.azure.sdk.iot.deps.util.Base64;
+import com.microsoft.azure.sdk.iot.deps.util.Base64OutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base64 throughput of the array APIs, the APIs that write in a caller supplied array, the streaming encoder, and
+ * {@code java.util.Base64} as the reference. The sizes cover a SAS key or signature, a telemetry body, and a
+ * large batch body. Run with the {@code -prof gc} profiler, as the ci profile does, to compare the
+ * allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base64Benchmark
+{
+    private static final OutputStream DISCARD = new OutputStream()
+    {
+        @Override
+        public void write(int b)
+        {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+        }
+    };
+
+    @Param({"32", "1024", "262144"})
+    public int size;
+
+    private byte[] data;
+    private byte[] base64;
+    private byte[] encodeDestination;
+    private byte[] decodeDestination;
+
+    @Setup
+    public void setup()
+    {
+        this.data = new byte[this.size];
+        new Random(this.size).nextBytes(this.data);
+        this.base64 = Base64.encodeBase64Local(this.data);
+        this.encodeDestination = new byte[Base64.getEncodedLength(this.size)];
+        this.decodeDestination = new byte[this.size];
+    }
+
+    @Benchmark
+    public byte[] encodeArray()
+    {
+        return Base64.encodeBase64Local(this.data);
+    }
+
+    @Benchmark
+    public String encodeString()
+    {
+        return Base64.encodeBase64StringLocal(this.data);
+    }
+
+    @Benchmark
+    public int encodeInDestination()
+    {
+        return Base64.encodeBase64Local(this.data, 0, this.data.length, this.encodeDestination, 0);
+    }
+
+    @Benchmark
+    public int encodeStream() throws IOException
+    {
+        Base64OutputStream base64OutputStream = new Base64OutputStream(DISCARD);
+        base64OutputStream.write(this.data);
+        base64OutputStream.finish();
+        return this.data.length;
+    }
+
+    @Benchmark
+    public byte[] encodeJdk()
+    {
+        return java.util.Base64.getEncoder().encode(this.data);
+    }
+
+    @Benchmark
+    public byte[] decodeArray()
+    {
+        return Base64.decodeBase64Local(this.base64);
+    }
+
+    @Benchmark
+    public int decodeInDestination()
+    {
+        return Base64.decodeBase64Local(this.base64, 0, this.base64.length, this.decodeDestination, 0);
+    }
+
+    @Benchmark
+    public byte[] decodeJdk()
+    {
+        return java.util.Base64.getDecoder().decode(this.base64);
+    }
+}
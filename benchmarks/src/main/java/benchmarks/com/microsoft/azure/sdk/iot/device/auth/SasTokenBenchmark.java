@@ -0,0 +1,76 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.device.auth;
+
+import com.microsoft.azure.sdk.iot.device.auth.IotHubSasToken;
+import com.microsoft.azure.sdk.iot.device.auth.SasTokenSigner;
+import com.microsoft.azure.sdk.iot.device.auth.Signature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the device SAS token generation: the signature with the reusable per-key signer, the same
+ * signature with the one shot {@link Signature} that decodes the key and creates the Mac on every call, and the
+ * complete token string that the transports send on connect and on renewal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SasTokenBenchmark
+{
+    private static final String HOSTNAME = "contoso-hub.azure-devices.net";
+    private static final String DEVICE_ID = "building43-floor2-thermostat-0042";
+    private static final String DEVICE_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+    private static final String RESOURCE_URI = HOSTNAME + "%2Fdevices%2F" + DEVICE_ID;
+
+    private SasTokenSigner signer;
+    private MethodHandle newSasToken;
+    private long expiryTime;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        this.signer = new SasTokenSigner(DEVICE_KEY);
+        this.expiryTime = (System.currentTimeMillis() / 1000) + 3600;
+
+        Constructor<IotHubSasToken> sasTokenConstructor = IotHubSasToken.class.getDeclaredConstructor(
+                String.class, String.class, SasTokenSigner.class, long.class);
+        sasTokenConstructor.setAccessible(true);
+        this.newSasToken = MethodHandles.lookup().unreflectConstructor(sasTokenConstructor);
+    }
+
+    @Benchmark
+    public String signWithSigner()
+    {
+        return this.signer.sign(RESOURCE_URI, this.expiryTime);
+    }
+
+    @Benchmark
+    public String signWithSignature()
+    {
+        return new Signature(RESOURCE_URI, this.expiryTime, DEVICE_KEY).toString();
+    }
+
+    @Benchmark
+    public String generateSasToken() throws Throwable
+    {
+        return this.newSasToken.invoke(HOSTNAME, DEVICE_ID, this.signer, this.expiryTime).toString();
+    }
+}
@@ -0,0 +1,113 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.device.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsDeviceTelemetry;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.BufferOverflowException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the AMQP encoding of a telemetry message, as done by {@code AmqpsIotHubConnection.sendMessage}:
+ * the Proton message is encoded in a 1 KB buffer, doubled every time the encoder overflows. The payload sizes
+ * cover a message that fits the first buffer and messages that need one and three doublings. The conversion
+ * from the IoT Hub message to the Proton message is measured together with the encoding in a second benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmqpsMessageEncodeBenchmark
+{
+    private static final int FIRST_BUFFER_SIZE = 1024;
+
+    @Param({"256", "1500", "6000"})
+    private int payloadSize;
+
+    private Message message;
+    private MessageImpl protonMessage;
+    private AmqpsDeviceTelemetry deviceTelemetry;
+    private MethodHandle convertToProton;
+    private MethodHandle getMessageImpl;
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        byte[] payload = new byte[this.payloadSize];
+        Arrays.fill(payload, (byte)'a');
+        this.message = new Message(payload);
+        this.message.setMessageId("b6b1b3f6-2ad7-4b65-a4a7-5e9a31d53d4a");
+        this.message.setCorrelationId("c0ffee");
+        this.message.setProperty("temperatureAlert", "true");
+        this.message.setProperty("sensorLocation", "building43-floor2");
+
+        Constructor<AmqpsDeviceTelemetry> telemetryConstructor = AmqpsDeviceTelemetry.class.getDeclaredConstructor(String.class);
+        telemetryConstructor.setAccessible(true);
+        this.deviceTelemetry = telemetryConstructor.newInstance("device1");
+
+        Method convert = AmqpsDeviceTelemetry.class.getDeclaredMethod("convertToProton", Message.class);
+        convert.setAccessible(true);
+        this.convertToProton = MethodHandles.lookup().unreflect(convert);
+
+        Method messageImpl = convert.getReturnType().getDeclaredMethod("getMessageImpl");
+        messageImpl.setAccessible(true);
+        this.getMessageImpl = MethodHandles.lookup().unreflect(messageImpl);
+
+        this.protonMessage = toProtonMessage(this.message);
+    }
+
+    private MessageImpl toProtonMessage(Message message) throws Throwable
+    {
+        Object convertToProtonReturnValue = this.convertToProton.invoke(this.deviceTelemetry, message);
+        return (MessageImpl)this.getMessageImpl.invoke(convertToProtonReturnValue);
+    }
+
+    private static int encode(MessageImpl protonMessage)
+    {
+        byte[] msgData = new byte[FIRST_BUFFER_SIZE];
+        while (true)
+        {
+            try
+            {
+                return protonMessage.encode(msgData, 0, msgData.length);
+            }
+            catch (BufferOverflowException e)
+            {
+                msgData = new byte[msgData.length * 2];
+            }
+        }
+    }
+
+    @Benchmark
+    public int encodeMessage()
+    {
+        return encode(this.protonMessage);
+    }
+
+    @Benchmark
+    public int convertAndEncodeMessage() throws Throwable
+    {
+        return encode(toProtonMessage(this.message));
+    }
+}
@@ -0,0 +1,68 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.device.transport.https;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsBatchMessage;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsSingleMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of building the body of a batch of telemetry messages sent over HTTPS, from the IoT Hub messages
+ * waiting in the transport queue to the bytes of the request body.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpsBatchMessageBenchmark
+{
+    @Param({"10", "100"})
+    private int messagesInBatch;
+
+    private Message[] messages;
+
+    @Setup
+    public void setup()
+    {
+        this.messages = new Message[this.messagesInBatch];
+        for (int i = 0; i < this.messagesInBatch; i++)
+        {
+            Message message = new Message(("{\"deviceId\":\"device1\",\"temperature\":" + (20 + i) + ",\"humidity\":" + (40 + i) + "}")
+                    .getBytes(StandardCharsets.UTF_8));
+            message.setMessageId("message" + i);
+            message.setCorrelationId("correlation" + i);
+            message.setProperty("temperatureAlert", (i % 2 == 0) ? "true" : "false");
+            message.setProperty("sensorLocation", "building43-floor2");
+            this.messages[i] = message;
+        }
+    }
+
+    @Benchmark
+    public byte[] buildBatchBody() throws IotHubSizeExceededException
+    {
+        HttpsBatchMessage batch = new HttpsBatchMessage();
+        for (Message message : this.messages)
+        {
+            batch.addMessage(HttpsSingleMessage.parseHttpsMessage(message));
+        }
+        return batch.getBody();
+    }
+}
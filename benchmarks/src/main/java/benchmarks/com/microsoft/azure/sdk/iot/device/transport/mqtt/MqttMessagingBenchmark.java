@@ -0,0 +1,107 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.Mqtt;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttConnection;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttMessaging;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the MQTT topic handling of telemetry messages: building the publish topic with the message
+ * properties in {@code MqttMessaging.send}, and assigning the properties of a received topic to the message in
+ * {@code Mqtt.assignPropertiesToMessage}. The connection is never opened, the publish only keeps the topic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MqttMessagingBenchmark
+{
+    private static final String DEVICE_ID = "device1";
+    private static final String RECEIVED_PROPERTIES =
+            "%24.mid=b6b1b3f6-2ad7-4b65-a4a7-5e9a31d53d4a&%24.cid=c0ffee&%24.to=%2Fdevices%2Fdevice1%2Fmessages%2FdeviceBound&" +
+            "iothub-ack=full&temperatureAlert=true&sensorLocation=building43-floor2&command=set%20interval%3D30";
+
+    private PublishTopicMessaging messaging;
+    private MethodHandle assignPropertiesToMessage;
+    private Message message;
+
+    /**
+     * Keeps the topic of the last publish instead of sending it to the broker.
+     */
+    private static final class PublishTopicMessaging extends MqttMessaging
+    {
+        private String lastPublishTopic;
+
+        private PublishTopicMessaging(MqttConnection mqttConnection) throws IOException
+        {
+            super(mqttConnection, DEVICE_ID);
+        }
+
+        @Override
+        protected void publish(String publishTopic, byte[] payload)
+        {
+            this.lastPublishTopic = publishTopic;
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception
+    {
+        Constructor<MqttConnection> connectionConstructor = MqttConnection.class.getDeclaredConstructor(
+                String.class, String.class, String.class, String.class, SSLContext.class);
+        connectionConstructor.setAccessible(true);
+        MqttConnection connection = connectionConstructor.newInstance(
+                "ssl://localhost:8883", DEVICE_ID, "localhost/" + DEVICE_ID, null, SSLContext.getDefault());
+        this.messaging = new PublishTopicMessaging(connection);
+
+        Method assignProperties = Mqtt.class.getDeclaredMethod("assignPropertiesToMessage", Message.class, String.class);
+        assignProperties.setAccessible(true);
+        this.assignPropertiesToMessage = MethodHandles.lookup().unreflect(assignProperties);
+
+        this.message = new Message("{\"temperature\":21.5,\"humidity\":40}".getBytes(StandardCharsets.UTF_8));
+        this.message.setMessageId("b6b1b3f6-2ad7-4b65-a4a7-5e9a31d53d4a");
+        this.message.setCorrelationId("c0ffee");
+        this.message.setProperty("temperatureAlert", "true");
+        this.message.setProperty("sensorLocation", "building43-floor2");
+        this.message.setProperty("firmwareVersion", "1.2.3");
+    }
+
+    @Benchmark
+    public String sendTopic() throws IOException
+    {
+        this.messaging.send(this.message);
+        return this.messaging.lastPublishTopic;
+    }
+
+    @Benchmark
+    public Message assignPropertiesToMessage() throws Throwable
+    {
+        Message received = new Message(new byte[0]);
+        this.assignPropertiesToMessage.invoke((Mqtt)this.messaging, received, RECEIVED_PROPERTIES);
+        return received;
+    }
+}
@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.service.auth;
+
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the service SAS token that every service client request carries: the token reused from the
+ * token cache, as the requests do, and the signature of a new token, as done once per hour for each key.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceSasTokenBenchmark
+{
+    private static final String CONNECTION_STRING = "HostName=contoso-hub.azure-devices.net;" +
+            "SharedAccessKeyName=iothubowner;SharedAccessKey=AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    private IotHubConnectionString connectionString;
+    private IotHubServiceSasToken sasToken;
+    private MethodHandle buildToken;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        this.connectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+        this.sasToken = new IotHubServiceSasToken(this.connectionString);
+
+        Method hashKeyMethod = IotHubServiceSasToken.class.getDeclaredMethod("hashKey", String.class);
+        hashKeyMethod.setAccessible(true);
+        String keyHash = (String)hashKeyMethod.invoke(null, this.connectionString.getSharedAccessKey());
+
+        Method buildTokenMethod = IotHubServiceSasToken.class.getDeclaredMethod("buildToken", String.class);
+        buildTokenMethod.setAccessible(true);
+        this.buildToken = MethodHandles.lookup().unreflect(buildTokenMethod).bindTo(this.sasToken).bindTo(keyHash);
+    }
+
+    @Benchmark
+    public String cachedSasToken()
+    {
+        return new IotHubServiceSasToken(this.connectionString).toString();
+    }
+
+    @Benchmark
+    public String signNewSasToken() throws Throwable
+    {
+        return (String)this.buildToken.invoke();
+    }
+}
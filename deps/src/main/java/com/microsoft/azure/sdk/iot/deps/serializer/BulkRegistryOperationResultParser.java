@@ -0,0 +1,120 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Representation of the result of a bulk registry operation, with a Json deserializer.
+ *
+ * <p>
+ *     IoT Hub reports the result of the bulk create, update, and delete of devices with the format:
+ * </p>
+ * <pre>
+ * {@code
+ * {
+ *     "isSuccessful":false,
+ *     "errors":[
+ *         {
+ *             "deviceId":"device1",
+ *             "errorCode":"DeviceAlreadyExists",
+ *             "errorStatus":"A device with ID 'device1' is already registered."
+ *         }
+ *     ]
+ * }
+ * }
+ * </pre>
+ */
+public class BulkRegistryOperationResultParser
+{
+    private static final String IS_SUCCESSFUL_TAG = "isSuccessful";
+    @SerializedName(IS_SUCCESSFUL_TAG)
+    private Boolean isSuccessful;
+
+    private static final String ERRORS_TAG = "errors";
+    @SerializedName(ERRORS_TAG)
+    private List<DeviceRegistryOperationErrorParser> errors;
+
+    /**
+     * Empty constructor: Used only to keep GSON happy.
+     */
+    @SuppressWarnings("unused")
+    BulkRegistryOperationResultParser()
+    {
+    }
+
+    /**
+     * Constructor for a bulk registry operation result built from the provided json.
+     *
+     * @param json the json with the result of the bulk registry operation.
+     * @throws IllegalArgumentException if the provided json is null, empty, not valid, or does not contain the
+     *                                  isSuccessful field.
+     */
+    public BulkRegistryOperationResultParser(String json) throws IllegalArgumentException
+    {
+        /* Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_001: [If the provided json is null or empty, the constructor shall throw IllegalArgumentException.] */
+        if ((json == null) || json.isEmpty())
+        {
+            throw new IllegalArgumentException("The provided json cannot be null or empty");
+        }
+
+        BulkRegistryOperationResultParser resultParser;
+        try
+        {
+            /* Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_002: [The constructor shall parse the provided json and store the isSuccessful and the per-device errors.] */
+            resultParser = GsonRegistry.getDefault().fromJson(json, BulkRegistryOperationResultParser.class);
+        }
+        catch (JsonSyntaxException e)
+        {
+            /* Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_003: [If the provided json is not valid, the constructor shall throw IllegalArgumentException.] */
+            throw new IllegalArgumentException("The provided json could not be parsed");
+        }
+
+        /* Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_004: [If the provided json does not contain the isSuccessful field, the constructor shall throw IllegalArgumentException.] */
+        if ((resultParser == null) || (resultParser.isSuccessful == null))
+        {
+            throw new IllegalArgumentException("The provided json must contain the field " + IS_SUCCESSFUL_TAG);
+        }
+
+        this.isSuccessful = resultParser.isSuccessful;
+        this.errors = new ArrayList<>();
+        if (resultParser.errors != null)
+        {
+            for (DeviceRegistryOperationErrorParser error : resultParser.errors)
+            {
+                if (error != null)
+                {
+                    this.errors.add(error);
+                }
+            }
+        }
+    }
+
+    /**
+     * Getter for the isSuccessful
+     *
+     * @return {@code true} if the operation succeeded for all devices, {@code false} otherwise.
+     */
+    public boolean isSuccessful()
+    {
+        /* Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_005: [The isSuccessful shall return the value of the isSuccessful.] */
+        return this.isSuccessful;
+    }
+
+    /**
+     * Getter for the errors
+     *
+     * @return the unmodifiable list with the error of each device that failed. It is empty if no device failed.
+     */
+    public List<DeviceRegistryOperationErrorParser> getErrors()
+    {
+        /* Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_006: [The getErrors shall return the unmodifiable list of the per-device errors, or an empty list if there are no errors.] */
+        return Collections.unmodifiableList(this.errors);
+    }
+}
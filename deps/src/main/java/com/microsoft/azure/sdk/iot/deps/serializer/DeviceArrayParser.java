@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming parser for a json array of device records, like the response of the device list.
+ *
+ * <p>
+ *     The json is read from the provided reader one device at a time, straight into the {@link DeviceParser},
+ *     so the first device is available before the full array has been received, and the array is never held
+ *     in memory.
+ * </p>
+ */
+public class DeviceArrayParser implements Closeable
+{
+    private final JsonReader jsonReader;
+    private final TypeAdapter<DeviceParser> deviceAdapter;
+    private boolean isArrayStarted;
+    private boolean isArrayEnded;
+
+    /**
+     * Constructor
+     *
+     * @param reader the reader with the json array of device records. The parser owns the reader, and close it
+     *               when it is closed.
+     * @throws IllegalArgumentException if the provided reader is null.
+     */
+    public DeviceArrayParser(Reader reader) throws IllegalArgumentException
+    {
+        /* Codes_SRS_DEVICE_ARRAY_PARSER_21_001: [If the provided reader is null, the constructor shall throw IllegalArgumentException.] */
+        if (reader == null)
+        {
+            throw new IllegalArgumentException("The provided reader cannot be null");
+        }
+
+        /* Codes_SRS_DEVICE_ARRAY_PARSER_21_002: [The constructor shall not read any content from the provided reader.] */
+        this.jsonReader = new JsonReader(reader);
+        this.deviceAdapter = GsonRegistry.getDefault().getAdapter(DeviceParser.class);
+        this.isArrayStarted = false;
+        this.isArrayEnded = false;
+    }
+
+    /**
+     * Check if the array contains one more device record.
+     *
+     * @return {@code true} if there is one more device in the array, {@code false} if the array ended.
+     * @throws IllegalArgumentException if the content is not a valid json array.
+     * @throws IOException if the reader failed.
+     */
+    public boolean hasNext() throws IllegalArgumentException, IOException
+    {
+        if (this.isArrayEnded)
+        {
+            return false;
+        }
+
+        try
+        {
+            if (!this.isArrayStarted)
+            {
+                /* Codes_SRS_DEVICE_ARRAY_PARSER_21_003: [If the content is not a json array, the hasNext shall throw IllegalArgumentException.] */
+                this.jsonReader.beginArray();
+                this.isArrayStarted = true;
+            }
+
+            /* Codes_SRS_DEVICE_ARRAY_PARSER_21_004: [The hasNext shall read the content only up to the beginning of the next device record.] */
+            if (this.jsonReader.peek() == JsonToken.END_ARRAY)
+            {
+                /* Codes_SRS_DEVICE_ARRAY_PARSER_21_005: [If the array ended, the hasNext shall return false.] */
+                this.jsonReader.endArray();
+                this.isArrayEnded = true;
+                return false;
+            }
+        }
+        catch (MalformedJsonException | IllegalStateException e)
+        {
+            throw new IllegalArgumentException("The provided json is not a valid array", e);
+        }
+
+        return true;
+    }
+
+    /**
+     * Parse the next device record in the array.
+     *
+     * @return the {@link DeviceParser} with the next device.
+     * @throws NoSuchElementException if the array has no more devices.
+     * @throws IllegalArgumentException if the device record is not valid.
+     * @throws IOException if the reader failed.
+     */
+    public DeviceParser next() throws NoSuchElementException, IllegalArgumentException, IOException
+    {
+        /* Codes_SRS_DEVICE_ARRAY_PARSER_21_006: [If the array has no more devices, the next shall throw NoSuchElementException.] */
+        if (!hasNext())
+        {
+            throw new NoSuchElementException("There are no more devices in the array");
+        }
+
+        DeviceParser deviceParser;
+        try
+        {
+            /* Codes_SRS_DEVICE_ARRAY_PARSER_21_007: [The next shall parse the next device record in a single pass, with the same rules as the DeviceParser constructor.] */
+            deviceParser = this.deviceAdapter.read(this.jsonReader);
+        }
+        catch (MalformedJsonException | JsonSyntaxException | IllegalStateException e)
+        {
+            /* Codes_SRS_DEVICE_ARRAY_PARSER_21_008: [If the device record cannot be parsed, the next shall throw IllegalArgumentException.] */
+            throw new IllegalArgumentException("The provided json could not be parsed", e);
+        }
+
+        if (deviceParser == null)
+        {
+            throw new IllegalArgumentException("The provided json contains a null device");
+        }
+
+        return DeviceParser.validateParsed(deviceParser);
+    }
+
+    /**
+     * Close the parser and the underlying reader.
+     *
+     * @throws IOException if the reader failed to close.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        /* Codes_SRS_DEVICE_ARRAY_PARSER_21_009: [The close shall close the underlying reader.] */
+        this.jsonReader.close();
+    }
+}
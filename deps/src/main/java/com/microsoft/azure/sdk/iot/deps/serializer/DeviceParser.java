@@ -5,9 +5,16 @@ package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.util.Date;
 
 public class DeviceParser
@@ -70,7 +77,23 @@ public class DeviceParser
     @SerializedName(AUTHENTICATION_NAME)
     private AuthenticationParser authenticationParser;
 
-    private transient Gson gson = new Gson();
+    /**
+     * Streaming adapter for the device records, shared by all Gson instances in the {@link GsonRegistry}. It reads
+     * and writes the same json as the Gson reflection, without reflection.
+     */
+    static final TypeAdapterFactory TYPE_ADAPTER_FACTORY = new TypeAdapterFactory()
+    {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+        {
+            if (type.getRawType() != DeviceParser.class)
+            {
+                return null;
+            }
+            return (TypeAdapter<T>) new DeviceParserTypeAdapter(gson.getAdapter(AuthenticationParser.class));
+        }
+    };
 
     /**
      * Converts this into json format and returns it
@@ -94,7 +117,7 @@ public class DeviceParser
         }
 
         //Codes_SRS_DEVICE_PARSER_34_001: [This method shall return a json representation of this.]
-        return gson.toJson(this);
+        return GsonRegistry.getDefault().toJson(this);
     }
 
     /**
@@ -120,7 +143,7 @@ public class DeviceParser
         DeviceParser deviceParser;
         try
         {
-            deviceParser = gson.fromJson(json, DeviceParser.class);
+            deviceParser = GsonRegistry.getDefault().fromJson(json, DeviceParser.class);
         }
         catch (JsonSyntaxException e)
         {
@@ -128,6 +151,34 @@ public class DeviceParser
             throw new IllegalArgumentException("The provided json could not be parsed");
         }
 
+        deviceParser = validateParsed(deviceParser);
+
+        //Codes_SRS_DEVICE_PARSER_34_002: [This constructor shall create a DeviceParser object based off of the provided json.]
+        this.authenticationParser = deviceParser.authenticationParser;
+        this.connectionState = deviceParser.connectionState;
+        this.deviceId = deviceParser.deviceId;
+        this.statusReason = deviceParser.statusReason;
+        this.cloudToDeviceMessageCount = deviceParser.cloudToDeviceMessageCount;
+        this.generationId = deviceParser.generationId;
+        this.eTag = deviceParser.eTag;
+        this.status = deviceParser.status;
+        this.lastActivityTimeString = deviceParser.lastActivityTimeString;
+        this.lastActivityTime = deviceParser.lastActivityTime;
+        this.connectionStateUpdatedTimeString = deviceParser.connectionStateUpdatedTimeString;
+        this.connectionStateUpdatedTime = deviceParser.connectionStateUpdatedTime;
+        this.statusUpdatedTimeString = deviceParser.statusUpdatedTimeString;
+        this.statusUpdatedTime = deviceParser.statusUpdatedTime;
+    }
+
+    /**
+     * Validate a device record read by the type adapter, and convert its date strings into dates.
+     *
+     * @param deviceParser the device record read from the json.
+     * @return the same device record, with the dates.
+     * @throws IllegalArgumentException if the device record does not contain a deviceId or an authentication.
+     */
+    static DeviceParser validateParsed(DeviceParser deviceParser) throws IllegalArgumentException
+    {
         //Codes_SRS_DEVICE_PARSER_34_011: [If the provided json is missing the DeviceId field or its value is empty, an IllegalArgumentException shall be thrown.]
         if (deviceParser.deviceId == null || deviceParser.deviceId.isEmpty())
         {
@@ -140,35 +191,23 @@ public class DeviceParser
             throw new IllegalArgumentException("The provided json must contain the field for authentication and its value may not be empty");
         }
 
-        //Codes_SRS_DEVICE_PARSER_34_002: [This constructor shall create a DeviceParser object based off of the provided json.]
-        this.authenticationParser = deviceParser.authenticationParser;
-        this.connectionState = deviceParser.connectionState;
-        this.deviceId = deviceParser.deviceId;
-        this.statusReason = deviceParser.statusReason;
-        this.cloudToDeviceMessageCount = deviceParser.cloudToDeviceMessageCount;
-        this.connectionState = deviceParser.connectionState;
-        this.generationId = deviceParser.generationId;
-        this.eTag = deviceParser.eTag;
-        this.status = deviceParser.status;
-
         //convert to date format
         if (deviceParser.lastActivityTimeString != null)
         {
-            this.lastActivityTimeString = deviceParser.lastActivityTimeString;
-            this.lastActivityTime = ParserUtility.getDateTimeUtc(deviceParser.lastActivityTimeString);
+            deviceParser.lastActivityTime = ParserUtility.getDateTimeUtc(deviceParser.lastActivityTimeString);
         }
 
         if (deviceParser.connectionStateUpdatedTimeString != null)
         {
-            this.connectionStateUpdatedTimeString = deviceParser.connectionStateUpdatedTimeString;
-            this.connectionStateUpdatedTime = ParserUtility.getDateTimeUtc(deviceParser.connectionStateUpdatedTimeString);
+            deviceParser.connectionStateUpdatedTime = ParserUtility.getDateTimeUtc(deviceParser.connectionStateUpdatedTimeString);
         }
 
         if (deviceParser.statusUpdatedTimeString != null)
         {
-            this.statusUpdatedTimeString = deviceParser.statusUpdatedTimeString;
-            this.statusUpdatedTime = ParserUtility.getDateTimeUtc(deviceParser.statusUpdatedTimeString);
+            deviceParser.statusUpdatedTime = ParserUtility.getDateTimeUtc(deviceParser.statusUpdatedTimeString);
         }
+
+        return deviceParser;
     }
 
     /**
@@ -448,4 +487,127 @@ public class DeviceParser
         //Codes_SRS_DEVICE_PARSER_34_029: [This method shall set the value of this object's cloudToDeviceMessageCount equal to the provided value.]
         this.cloudToDeviceMessageCount = cloudToDeviceMessageCount;
     }
+
+    private static final class DeviceParserTypeAdapter extends TypeAdapter<DeviceParser>
+    {
+        private final TypeAdapter<AuthenticationParser> authenticationAdapter;
+
+        private DeviceParserTypeAdapter(TypeAdapter<AuthenticationParser> authenticationAdapter)
+        {
+            this.authenticationAdapter = authenticationAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, DeviceParser value) throws IOException
+        {
+            if (value == null)
+            {
+                out.nullValue();
+                return;
+            }
+
+            //Codes_SRS_DEVICE_PARSER_21_033: [The type adapter shall write the fields in the same order and with the same names as the Gson reflection.]
+            out.beginObject();
+            out.name(E_TAG_NAME).value(value.eTag);
+            out.name(DEVICE_ID_NAME).value(value.deviceId);
+            out.name(GENERATION_ID_NAME).value(value.generationId);
+            out.name(STATUS_NAME).value(value.status);
+            out.name(STATUS_REASON).value(value.statusReason);
+            out.name(STATUS_UPDATED_TIME_NAME).value(value.statusUpdatedTimeString);
+            out.name(CONNECTION_STATE_NAME).value(value.connectionState);
+            out.name(CONNECTION_STATE_UPDATED_TIME_NAME).value(value.connectionStateUpdatedTimeString);
+            out.name(LAST_ACTIVITY_TIME_NAME).value(value.lastActivityTimeString);
+            out.name(CLOUD_TO_MESSAGE_COUNT_NAME).value(value.cloudToDeviceMessageCount);
+            out.name(AUTHENTICATION_NAME);
+            this.authenticationAdapter.write(out, value.authenticationParser);
+            out.endObject();
+        }
+
+        @Override
+        public DeviceParser read(JsonReader in) throws IOException
+        {
+            if (in.peek() == JsonToken.NULL)
+            {
+                in.nextNull();
+                return null;
+            }
+
+            //Codes_SRS_DEVICE_PARSER_21_034: [The type adapter shall read the device record in a single pass, ignoring unknown fields.]
+            DeviceParser deviceParser = new DeviceParser();
+            in.beginObject();
+            while (in.hasNext())
+            {
+                switch (in.nextName())
+                {
+                    case E_TAG_NAME:
+                        deviceParser.eTag = readString(in);
+                        break;
+                    case DEVICE_ID_NAME:
+                        deviceParser.deviceId = readString(in);
+                        break;
+                    case GENERATION_ID_NAME:
+                        deviceParser.generationId = readString(in);
+                        break;
+                    case STATUS_NAME:
+                        deviceParser.status = readString(in);
+                        break;
+                    case STATUS_REASON:
+                        deviceParser.statusReason = readString(in);
+                        break;
+                    case STATUS_UPDATED_TIME_NAME:
+                        deviceParser.statusUpdatedTimeString = readString(in);
+                        break;
+                    case CONNECTION_STATE_NAME:
+                        deviceParser.connectionState = readString(in);
+                        break;
+                    case CONNECTION_STATE_UPDATED_TIME_NAME:
+                        deviceParser.connectionStateUpdatedTimeString = readString(in);
+                        break;
+                    case LAST_ACTIVITY_TIME_NAME:
+                        deviceParser.lastActivityTimeString = readString(in);
+                        break;
+                    case CLOUD_TO_MESSAGE_COUNT_NAME:
+                        if (in.peek() == JsonToken.NULL)
+                        {
+                            in.nextNull();
+                        }
+                        else
+                        {
+                            try
+                            {
+                                deviceParser.cloudToDeviceMessageCount = in.nextLong();
+                            }
+                            catch (NumberFormatException e)
+                            {
+                                throw new JsonSyntaxException(e);
+                            }
+                        }
+                        break;
+                    case AUTHENTICATION_NAME:
+                        deviceParser.authenticationParser = this.authenticationAdapter.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return deviceParser;
+        }
+
+        private static String readString(JsonReader in) throws IOException
+        {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL)
+            {
+                in.nextNull();
+                return null;
+            }
+            if (token == JsonToken.BOOLEAN)
+            {
+                return Boolean.toString(in.nextBoolean());
+            }
+            return in.nextString();
+        }
+    }
 }
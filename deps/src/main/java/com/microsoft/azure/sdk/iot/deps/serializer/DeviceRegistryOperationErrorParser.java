@@ -0,0 +1,65 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Representation of the error of a single device in a bulk registry operation, with a Json deserializer.
+ */
+public class DeviceRegistryOperationErrorParser
+{
+    private static final String DEVICE_ID_TAG = "deviceId";
+    @SerializedName(DEVICE_ID_TAG)
+    private String deviceId;
+
+    private static final String ERROR_CODE_TAG = "errorCode";
+    @SerializedName(ERROR_CODE_TAG)
+    private String errorCode;
+
+    private static final String ERROR_STATUS_TAG = "errorStatus";
+    @SerializedName(ERROR_STATUS_TAG)
+    private String errorStatus;
+
+    /**
+     * Empty constructor: Used only to keep GSON happy.
+     */
+    @SuppressWarnings("unused")
+    DeviceRegistryOperationErrorParser()
+    {
+    }
+
+    /**
+     * Getter for the deviceId
+     *
+     * @return the id of the device that failed.
+     */
+    public String getDeviceId()
+    {
+        /* Codes_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_21_001: [The getDeviceId shall return the value of the deviceId.] */
+        return this.deviceId;
+    }
+
+    /**
+     * Getter for the errorCode
+     *
+     * @return the IoT Hub error code, like {@code DeviceAlreadyExists}.
+     */
+    public String getErrorCode()
+    {
+        /* Codes_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_21_002: [The getErrorCode shall return the value of the errorCode.] */
+        return this.errorCode;
+    }
+
+    /**
+     * Getter for the errorStatus
+     *
+     * @return the description of the error.
+     */
+    public String getErrorStatus()
+    {
+        /* Codes_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_21_003: [The getErrorStatus shall return the value of the errorStatus.] */
+        return this.errorStatus;
+    }
+}
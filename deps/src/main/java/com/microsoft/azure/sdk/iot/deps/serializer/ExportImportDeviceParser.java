@@ -8,6 +8,8 @@ import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
+import java.util.Collection;
+
 public class ExportImportDeviceParser
 {
     private static final String ID_NAME = "id";
@@ -40,7 +42,7 @@ public class ExportImportDeviceParser
     @SerializedName(AUTHENTICATION_NAME)
     private AuthenticationParser authentication;
 
-    private static Gson gson = new Gson();
+    private static final Gson gson = GsonRegistry.getDefault();
 
     /**
      * Converts this into json and returns it
@@ -52,6 +54,33 @@ public class ExportImportDeviceParser
         return gson.toJson(this);
     }
 
+    /**
+     * Converts a collection of devices into a json array, like the body of the bulk registry operations.
+     *
+     * @param devices the collection of devices to serialize.
+     * @return the json array with all devices, in the same order of the collection.
+     * @throws IllegalArgumentException if the provided collection is null, empty, or contains a null device.
+     */
+    public static String toJsonArray(Collection<ExportImportDeviceParser> devices) throws IllegalArgumentException
+    {
+        //Codes_SRS_EXPORTIMPORTDEVICE_PARSER_21_024: [If the provided collection is null, empty, or contains a null device, the toJsonArray shall throw IllegalArgumentException.]
+        if (devices == null || devices.isEmpty())
+        {
+            throw new IllegalArgumentException("The devices cannot be null or empty");
+        }
+
+        for (ExportImportDeviceParser device : devices)
+        {
+            if (device == null)
+            {
+                throw new IllegalArgumentException("The devices cannot contain a null device");
+            }
+        }
+
+        //Codes_SRS_EXPORTIMPORTDEVICE_PARSER_21_025: [The toJsonArray shall serialize all devices in a single json array, in the order of the collection.]
+        return gson.toJson(devices);
+    }
+
     /**
      * Empty constructor: Used only to keep GSON happy.
      */
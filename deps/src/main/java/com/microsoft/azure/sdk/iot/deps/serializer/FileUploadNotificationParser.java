@@ -4,7 +4,6 @@
 package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 import jdk.nashorn.internal.ir.annotations.Ignore;
@@ -69,7 +68,7 @@ public class FileUploadNotificationParser
     public FileUploadNotificationParser(String json) throws IllegalArgumentException
     {
         /* Codes_SRS_FILE_UPLOAD_NOTIFICATION_21_001: [The constructor shall create an instance of the FileUploadNotification.] */
-        Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
+        Gson gson = GsonRegistry.getWithoutHtmlEscapingWithNulls();
         FileUploadNotificationParser fileUploadNotificationParser;
 
         /* Codes_SRS_FILE_UPLOAD_NOTIFICATION_21_003: [If the provided json is null, empty, or not valid, the constructor shall throws IllegalArgumentException.] */
@@ -0,0 +1,109 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Registry of the pre-built {@link Gson} instances shared by the serializers.
+ *
+ * <p>
+ *     Building a Gson is expensive, and each instance caches its own reflection based adapters, so the serializers
+ *     shall not create a new Gson for each call. Gson instances are immutable and thread safe, so the same instance
+ *     can be used by any number of threads.
+ * </p>
+ * <p>
+ *     All instances share the hand-written streaming adapters for the hot types, the device records and the method
+ *     payloads, and the twin instance also parses the twin documents with a streaming map adapter.
+ * </p>
+ */
+final class GsonRegistry
+{
+    /* Codes_SRS_GSON_REGISTRY_21_001: [The registry shall create each Gson only once, and return the same instance in all calls.] */
+    private static final Gson DEFAULT = baseBuilder().create();
+    private static final Gson WITHOUT_HTML_ESCAPING = baseBuilder().disableHtmlEscaping().create();
+    private static final Gson WITH_NULLS = baseBuilder().serializeNulls().create();
+    private static final Gson WITHOUT_HTML_ESCAPING_WITH_NULLS = baseBuilder().disableHtmlEscaping().serializeNulls().create();
+    private static final Gson WITH_COMPLEX_MAP_KEYS_AND_NULLS = baseBuilder().enableComplexMapKeySerialization().serializeNulls().create();
+    /* Codes_SRS_GSON_REGISTRY_21_003: [The twin Gson shall parse the twin documents with the streaming map adapter.] */
+    private static final Gson TWIN = baseBuilder()
+            .registerTypeAdapterFactory(JsonMapTypeAdapterFactory.INSTANCE)
+            .disableInnerClassSerialization()
+            .disableHtmlEscaping()
+            .create();
+
+    private GsonRegistry()
+    {
+    }
+
+    private static GsonBuilder baseBuilder()
+    {
+        /* Codes_SRS_GSON_REGISTRY_21_002: [All Gson instances shall use the hand-written adapters for the device records and the method payloads.] */
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(DeviceParser.TYPE_ADAPTER_FACTORY)
+                .registerTypeAdapterFactory(MethodParser.TYPE_ADAPTER_FACTORY);
+    }
+
+    /**
+     * Getter for the Gson with the default configuration.
+     *
+     * @return the shared Gson.
+     */
+    static Gson getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Getter for the Gson that do not escape html characters.
+     *
+     * @return the shared Gson.
+     */
+    static Gson getWithoutHtmlEscaping()
+    {
+        return WITHOUT_HTML_ESCAPING;
+    }
+
+    /**
+     * Getter for the Gson that serialize null fields.
+     *
+     * @return the shared Gson.
+     */
+    static Gson getWithNulls()
+    {
+        return WITH_NULLS;
+    }
+
+    /**
+     * Getter for the Gson that do not escape html characters, and serialize null fields.
+     *
+     * @return the shared Gson.
+     */
+    static Gson getWithoutHtmlEscapingWithNulls()
+    {
+        return WITHOUT_HTML_ESCAPING_WITH_NULLS;
+    }
+
+    /**
+     * Getter for the Gson that serialize complex map keys and null fields.
+     *
+     * @return the shared Gson.
+     */
+    static Gson getWithComplexMapKeysAndNulls()
+    {
+        return WITH_COMPLEX_MAP_KEYS_AND_NULLS;
+    }
+
+    /**
+     * Getter for the Gson used to parse the twin documents. It do not serialize inner classes, do not escape
+     * html characters, and parse the {@code Map} and {@code HashMap} with the streaming map adapter.
+     *
+     * @return the shared Gson.
+     */
+    static Gson getForTwin()
+    {
+        return TWIN;
+    }
+}
@@ -0,0 +1,297 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Parser and formatter of the ISO-8601 date and time used by the IoT Hub, like "2016-06-01T21:22:43.7996883Z".
+ *
+ * <p>
+ *     It has no state, so all threads share it without any lock or per call allocation of a
+ *     {@code SimpleDateFormat} or a {@code Calendar}. The dates from 1583 to 9999 are converted with the
+ *     proleptic Gregorian calendar, that is the calendar of {@code java.util.Date} for these years. Older
+ *     dates, like the "0001-01-01T00:00:00" that the IoT Hub uses for "never", and the fields out of their
+ *     range use the lenient {@code GregorianCalendar}, so they keep the rules of {@code java.util.Date}.
+ * </p>
+ */
+public final class IsoDateTime
+{
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final String DATEFORMAT = "yyyy-MM-dd'T'HH:mm:ss";
+
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+    private static final long MILLISECONDS_PER_MINUTE = 60L * MILLISECONDS_PER_SECOND;
+    private static final long MILLISECONDS_PER_HOUR = 60L * MILLISECONDS_PER_MINUTE;
+    private static final long MILLISECONDS_PER_DAY = 24L * MILLISECONDS_PER_HOUR;
+    private static final int DAYS_PER_ERA = 146097;
+    private static final int DAYS_FROM_YEAR_0_TO_EPOCH = 719468;
+    private static final int MAX_MILLISECONDS_LENGTH = 3;
+
+    private static final int FIRST_GREGORIAN_YEAR = 1583;
+    private static final int LAST_YEAR = 9999;
+    private static final long FIRST_GREGORIAN_MILLISECONDS = daysFromCivil(FIRST_GREGORIAN_YEAR, 1, 1) * MILLISECONDS_PER_DAY;
+    private static final long END_MILLISECONDS = daysFromCivil(LAST_YEAR + 1, 1, 1) * MILLISECONDS_PER_DAY;
+
+    private static final int UTC_STRING_LENGTH = 24;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private IsoDateTime()
+    {
+    }
+
+    /**
+     * Parse an ISO-8601 date and time in the format "yyyy-MM-ddTHH:mm:ss[.fraction][zone]", where the zone is
+     * "Z", "+hh", "+hhmm", or "+hh:mm" (or the same with "-").
+     *
+     * @param dateTime the string with the date and time.
+     * @param isZoneRequired if {@code true}, the string must contain the zone. If {@code false}, a string without
+     *                       the zone is parsed as UTC.
+     * @return the milliseconds since the epoch.
+     * @throws IllegalArgumentException if the string is {@code null}, or is not in the correct format.
+     */
+    public static long parse(String dateTime, boolean isZoneRequired) throws IllegalArgumentException
+    {
+        /* Codes_SRS_ISODATETIME_21_001: [The parse shall throw IllegalArgumentException if the provided string is null or empty.] */
+        if ((dateTime == null) || dateTime.isEmpty())
+        {
+            throw new IllegalArgumentException("date is null or empty");
+        }
+
+        /* Codes_SRS_ISODATETIME_21_002: [The parse shall throw IllegalArgumentException if the date and time is not in the format `yyyy-MM-ddTHH:mm:ss`.] */
+        int length = dateTime.length();
+        if ((length < 19) ||
+                (dateTime.charAt(4) != '-') || (dateTime.charAt(7) != '-') || (dateTime.charAt(10) != 'T') ||
+                (dateTime.charAt(13) != ':') || (dateTime.charAt(16) != ':'))
+        {
+            throw invalid(dateTime);
+        }
+        int year = parseDigits(dateTime, 0, 4);
+        int month = parseDigits(dateTime, 5, 2);
+        int day = parseDigits(dateTime, 8, 2);
+        int hour = parseDigits(dateTime, 11, 2);
+        int minute = parseDigits(dateTime, 14, 2);
+        int second = parseDigits(dateTime, 17, 2);
+        if ((year < 0) || (month < 0) || (day < 0) || (hour < 0) || (minute < 0) || (second < 0))
+        {
+            throw invalid(dateTime);
+        }
+
+        int index = 19;
+        int milliseconds = 0;
+        if ((index < length) && ((dateTime.charAt(index) == '.') || (dateTime.charAt(index) == ',')))
+        {
+            /* Codes_SRS_ISODATETIME_21_003: [The parse shall accept a fraction of second with any number of digits, and truncate it to milliseconds.] */
+            index++;
+            int digits = 0;
+            while ((index < length) && isDigit(dateTime.charAt(index)))
+            {
+                if (digits < MAX_MILLISECONDS_LENGTH)
+                {
+                    milliseconds = (milliseconds * 10) + (dateTime.charAt(index) - '0');
+                }
+                digits++;
+                index++;
+            }
+            for (; digits < MAX_MILLISECONDS_LENGTH; digits++)
+            {
+                milliseconds *= 10;
+            }
+        }
+
+        long offsetInMilliseconds = 0;
+        if (index == length)
+        {
+            /* Codes_SRS_ISODATETIME_21_004: [If the string does not contain the zone, the parse shall throw IllegalArgumentException if the isZoneRequired is true, or parse it as UTC otherwise.] */
+            if (isZoneRequired)
+            {
+                throw invalid(dateTime);
+            }
+        }
+        else
+        {
+            /* Codes_SRS_ISODATETIME_21_005: [The parse shall accept the zone `Z`, `+hh`, `+hhmm`, or `+hh:mm` (or the same with `-`), and convert the date and time to UTC.] */
+            offsetInMilliseconds = parseOffset(dateTime, index);
+        }
+
+        long dateTimeInMilliseconds;
+        if ((year >= FIRST_GREGORIAN_YEAR) && (month >= 1) && (month <= 12) && (day >= 1) && (day <= daysInMonth(year, month)) &&
+                (hour <= 23) && (minute <= 59) && (second <= 59))
+        {
+            dateTimeInMilliseconds = (daysFromCivil(year, month, day) * MILLISECONDS_PER_DAY) +
+                    (hour * MILLISECONDS_PER_HOUR) + (minute * MILLISECONDS_PER_MINUTE) + (second * MILLISECONDS_PER_SECOND);
+        }
+        else
+        {
+            /* Codes_SRS_ISODATETIME_21_006: [The parse shall use the lenient GregorianCalendar rules for dates before 1583, or with a field out of its range, like `0000-00-00T00:00:00`.] */
+            Calendar calendar = new GregorianCalendar(UTC);
+            calendar.clear();
+            calendar.set(year, month - 1, day, hour, minute, second);
+            dateTimeInMilliseconds = calendar.getTimeInMillis();
+        }
+
+        /* Codes_SRS_ISODATETIME_21_007: [The parse shall return the milliseconds since the epoch.] */
+        return dateTimeInMilliseconds + milliseconds - offsetInMilliseconds;
+    }
+
+    /**
+     * Format the provided time in the ISO-8601 UTC format "yyyy-MM-ddTHH:mm:ss.SSSZ".
+     *
+     * @param milliseconds the milliseconds since the epoch.
+     * @return the {@code String} with the date and time.
+     */
+    public static String format(long milliseconds)
+    {
+        /* Codes_SRS_ISODATETIME_21_009: [The format shall use the GregorianCalendar rules for dates before 1583 or after 9999.] */
+        if ((milliseconds < FIRST_GREGORIAN_MILLISECONDS) || (milliseconds >= END_MILLISECONDS))
+        {
+            SimpleDateFormat dateFormat = new SimpleDateFormat(DATEFORMAT);
+            dateFormat.setTimeZone(UTC);
+            int remainder = (int)(milliseconds % MILLISECONDS_PER_SECOND);
+            remainder = (remainder < 0) ? (remainder + (int)MILLISECONDS_PER_SECOND) : remainder;
+            char[] fraction = {'.', '0', '0', '0', 'Z'};
+            putDigits(fraction, 1, 3, remainder);
+            return dateFormat.format(milliseconds) + new String(fraction);
+        }
+
+        long days = milliseconds / MILLISECONDS_PER_DAY;
+        int timeOfDay = (int)(milliseconds % MILLISECONDS_PER_DAY);
+        if (timeOfDay < 0)
+        {
+            days--;
+            timeOfDay += MILLISECONDS_PER_DAY;
+        }
+
+        // Convert the days since the epoch in year, month, and day of the proleptic Gregorian calendar.
+        long dayOfYear0 = days + DAYS_FROM_YEAR_0_TO_EPOCH;
+        long era = dayOfYear0 / DAYS_PER_ERA;
+        int dayOfEra = (int)(dayOfYear0 - (era * DAYS_PER_ERA));
+        int yearOfEra = (dayOfEra - (dayOfEra / 1460) + (dayOfEra / 36524) - (dayOfEra / (DAYS_PER_ERA - 1))) / 365;
+        int dayOfYear = dayOfEra - ((365 * yearOfEra) + (yearOfEra / 4) - (yearOfEra / 100));
+        int monthFromMarch = ((5 * dayOfYear) + 2) / 153;
+        int day = dayOfYear - (((153 * monthFromMarch) + 2) / 5) + 1;
+        int month = (monthFromMarch < 10) ? (monthFromMarch + 3) : (monthFromMarch - 9);
+        int year = (int)(yearOfEra + (era * 400)) + ((month <= 2) ? 1 : 0);
+
+        /* Codes_SRS_ISODATETIME_21_008: [The format shall return the UTC date and time in the format `yyyy-MM-ddTHH:mm:ss.SSSZ`.] */
+        char[] dateTime = new char[UTC_STRING_LENGTH];
+        putDigits(dateTime, 0, 4, year);
+        dateTime[4] = '-';
+        putDigits(dateTime, 5, 2, month);
+        dateTime[7] = '-';
+        putDigits(dateTime, 8, 2, day);
+        dateTime[10] = 'T';
+        putDigits(dateTime, 11, 2, (int)(timeOfDay / MILLISECONDS_PER_HOUR));
+        dateTime[13] = ':';
+        putDigits(dateTime, 14, 2, (int)((timeOfDay % MILLISECONDS_PER_HOUR) / MILLISECONDS_PER_MINUTE));
+        dateTime[16] = ':';
+        putDigits(dateTime, 17, 2, (int)((timeOfDay % MILLISECONDS_PER_MINUTE) / MILLISECONDS_PER_SECOND));
+        dateTime[19] = '.';
+        putDigits(dateTime, 20, 3, (int)(timeOfDay % MILLISECONDS_PER_SECOND));
+        dateTime[23] = 'Z';
+        return new String(dateTime);
+    }
+
+    private static long parseOffset(String dateTime, int index) throws IllegalArgumentException
+    {
+        int length = dateTime.length();
+        char sign = dateTime.charAt(index);
+        if ((sign == 'Z') || (sign == 'z'))
+        {
+            if ((index + 1) != length)
+            {
+                throw invalid(dateTime);
+            }
+            return 0;
+        }
+        if (((sign != '+') && (sign != '-')) || ((index + 3) > length))
+        {
+            throw invalid(dateTime);
+        }
+
+        int hours = parseDigits(dateTime, index + 1, 2);
+        int minutes = 0;
+        index += 3;
+        if (index < length)
+        {
+            if (dateTime.charAt(index) == ':')
+            {
+                index++;
+            }
+            if ((index + 2) != length)
+            {
+                throw invalid(dateTime);
+            }
+            minutes = parseDigits(dateTime, index, 2);
+        }
+        if ((hours < 0) || (hours > 23) || (minutes < 0) || (minutes > 59))
+        {
+            throw invalid(dateTime);
+        }
+
+        long offset = (hours * MILLISECONDS_PER_HOUR) + (minutes * MILLISECONDS_PER_MINUTE);
+        return (sign == '-') ? -offset : offset;
+    }
+
+    private static long daysFromCivil(int year, int month, int day)
+    {
+        int yearFromMarch = (month <= 2) ? (year - 1) : year;
+        int era = yearFromMarch / 400;
+        int yearOfEra = yearFromMarch - (era * 400);
+        int dayOfYear = (((153 * ((month > 2) ? (month - 3) : (month + 9))) + 2) / 5) + day - 1;
+        int dayOfEra = (yearOfEra * 365) + (yearOfEra / 4) - (yearOfEra / 100) + dayOfYear;
+        return ((long)era * DAYS_PER_ERA) + dayOfEra - DAYS_FROM_YEAR_0_TO_EPOCH;
+    }
+
+    private static int daysInMonth(int year, int month)
+    {
+        if ((month == 2) && ((year % 4) == 0) && (((year % 100) != 0) || ((year % 400) == 0)))
+        {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    /**
+     * Parse a fixed number of decimal digits.
+     *
+     * @return the value, or {@code -1} if one of the characters is not a digit.
+     */
+    private static int parseDigits(String str, int start, int count)
+    {
+        int value = 0;
+        for (int i = start; i < (start + count); i++)
+        {
+            char c = str.charAt(i);
+            if (!isDigit(c))
+            {
+                return -1;
+            }
+            value = (value * 10) + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return (c >= '0') && (c <= '9');
+    }
+
+    private static void putDigits(char[] dst, int start, int count, int value)
+    {
+        for (int i = (start + count - 1); i >= start; i--)
+        {
+            dst[i] = (char)('0' + (value % 10));
+            value /= 10;
+        }
+    }
+
+    private static IllegalArgumentException invalid(String dateTime)
+    {
+        return new IllegalArgumentException("invalid time:" + dateTime);
+    }
+}
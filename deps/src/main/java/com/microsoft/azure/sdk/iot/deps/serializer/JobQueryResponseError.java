@@ -6,7 +6,6 @@
 package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.SerializedName;
 
@@ -38,7 +37,7 @@ public class JobQueryResponseError
             throw new IllegalArgumentException("Json is null or empty");
         }
 
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+        Gson gson = GsonRegistry.getWithoutHtmlEscaping();
         JobQueryResponseError jobQueryResponseError = null;
         try
         {
@@ -72,7 +71,7 @@ public class JobQueryResponseError
     public String toJson()
     {
         //Codes_SRSJOB_QUERY_RESPONSE_ERROR_25_003: [The method shall build the json with the values provided to this object.]
-        Gson gson = new GsonBuilder().serializeNulls().create();
+        Gson gson = GsonRegistry.getWithNulls();
         return gson.toJson(this);
     }
 
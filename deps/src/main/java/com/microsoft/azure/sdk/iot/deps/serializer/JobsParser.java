@@ -4,22 +4,17 @@
 package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.TimeZone;
 
 /**
  * Representation of a single Jobs collection with a Json serializer.
  */
 public class JobsParser
 {
-    private static final String DATEFORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
-    private static final String TIMEZONE = "UTC";
     private static final String SCHEDULE_DEVICE_METHOD = "scheduleDeviceMethod";
     private static final String SCHEDULE_UPDATE_TWIN = "scheduleUpdateTwin";
 
@@ -150,7 +145,7 @@ public class JobsParser
      */
     public String toJson()
     {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+        Gson gson = GsonRegistry.getWithoutHtmlEscaping();
         /* Codes_SRS_JOBSPARSER_21_013: [The toJson shall return a String with a json that represents the content of this class.] */
         return gson.toJson(this);
     }
@@ -190,9 +185,7 @@ public class JobsParser
         this.maxExecutionTimeInSeconds = maxExecutionTimeInSeconds;
 
         /* Codes_SRS_JOBSPARSER_21_018: [The validateCommonFields shall format startTime as a String and store it.] */
-        SimpleDateFormat dateFormat = new SimpleDateFormat(DATEFORMAT);
-        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
-        this.startTime = dateFormat.format(startTime);
+        this.startTime = IsoDateTime.format(startTime.getTime());
     }
 
     /**
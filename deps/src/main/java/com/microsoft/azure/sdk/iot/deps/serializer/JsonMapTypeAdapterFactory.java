@@ -0,0 +1,146 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming parser for the raw {@code Map} and {@code HashMap}, like the twin documents.
+ *
+ * <p>
+ *     The json is parsed in a single pass, straight into the maps and lists, with the same types that Gson uses
+ *     for untyped content: nested objects are maps, arrays are lists, and numbers are {@code Double}. Any other
+ *     content, and the serialization, are handled by the Gson default adapter.
+ * </p>
+ */
+final class JsonMapTypeAdapterFactory implements TypeAdapterFactory
+{
+    static final JsonMapTypeAdapterFactory INSTANCE = new JsonMapTypeAdapterFactory();
+
+    private JsonMapTypeAdapterFactory()
+    {
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+    {
+        /* Codes_SRS_JSON_MAP_TYPE_ADAPTER_21_001: [The factory shall only handle the raw Map and HashMap types.] */
+        if ((type.getType() != Map.class) && (type.getType() != HashMap.class))
+        {
+            return null;
+        }
+
+        return (TypeAdapter<T>) new Adapter(gson.getDelegateAdapter(this, (TypeToken<Map<String, Object>>) (TypeToken<?>) type), type.getType() == HashMap.class);
+    }
+
+    /**
+     * Read any json value, as Gson does for the untyped content.
+     *
+     * @param in the reader positioned at the value.
+     * @return the value, as a {@code Map}, {@code List}, {@code String}, {@code Double}, {@code Boolean}, or {@code null}.
+     * @throws IOException if the json is not valid.
+     */
+    static Object readValue(JsonReader in) throws IOException
+    {
+        /* Codes_SRS_JSON_MAP_TYPE_ADAPTER_21_004: [The nested objects shall be parsed as maps, the arrays as lists, and the numbers as Double.] */
+        switch (in.peek())
+        {
+            case BEGIN_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<>();
+                in.beginObject();
+                while (in.hasNext())
+                {
+                    map.put(in.nextName(), readValue(in));
+                }
+                in.endObject();
+                return map;
+
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext())
+                {
+                    list.add(readValue(in));
+                }
+                in.endArray();
+                return list;
+
+            case STRING:
+                return in.nextString();
+
+            case NUMBER:
+                return in.nextDouble();
+
+            case BOOLEAN:
+                return in.nextBoolean();
+
+            case NULL:
+                in.nextNull();
+                return null;
+
+            default:
+                throw new IllegalStateException("Unexpected token " + in.peek());
+        }
+    }
+
+    private static final class Adapter extends TypeAdapter<Map<String, Object>>
+    {
+        private final TypeAdapter<Map<String, Object>> delegate;
+        private final boolean isHashMap;
+
+        private Adapter(TypeAdapter<Map<String, Object>> delegate, boolean isHashMap)
+        {
+            this.delegate = delegate;
+            this.isHashMap = isHashMap;
+        }
+
+        @Override
+        public void write(JsonWriter out, Map<String, Object> value) throws IOException
+        {
+            /* Codes_SRS_JSON_MAP_TYPE_ADAPTER_21_005: [The serialization shall be done by the Gson default adapter.] */
+            this.delegate.write(out, value);
+        }
+
+        @Override
+        public Map<String, Object> read(JsonReader in) throws IOException
+        {
+            if (in.peek() != JsonToken.BEGIN_OBJECT)
+            {
+                return this.delegate.read(in);
+            }
+
+            Map<String, Object> map = this.isHashMap ? new HashMap<String, Object>() : new LinkedHashMap<String, Object>();
+            in.beginObject();
+            while (in.hasNext())
+            {
+                /* Codes_SRS_JSON_MAP_TYPE_ADAPTER_21_002: [The adapter shall parse the json object in a single pass.] */
+                String key = in.nextName();
+                Object replaced = map.put(key, readValue(in));
+
+                /* Codes_SRS_JSON_MAP_TYPE_ADAPTER_21_003: [If the root object contains a duplicated key, the adapter shall throw JsonSyntaxException.] */
+                if (replaced != null)
+                {
+                    throw new JsonSyntaxException("duplicate key: " + key);
+                }
+            }
+            in.endObject();
+            return map;
+        }
+    }
+}
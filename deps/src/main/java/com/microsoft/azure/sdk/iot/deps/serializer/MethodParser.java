@@ -6,7 +6,12 @@ package com.microsoft.azure.sdk.iot.deps.serializer;
 import com.google.gson.*;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -54,6 +59,24 @@ public class MethodParser
     @SerializedName(PAYLOAD_TAG)
     private Object payload;
 
+    /**
+     * Streaming adapter for the method payloads, shared by all Gson instances in the {@link GsonRegistry}. It
+     * reads the method without reflection, and writes it with the Gson reflection.
+     */
+    static final TypeAdapterFactory TYPE_ADAPTER_FACTORY = new TypeAdapterFactory()
+    {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+        {
+            if (type.getRawType() != MethodParser.class)
+            {
+                return null;
+            }
+            return (TypeAdapter<T>) new MethodParserTypeAdapter(gson.getDelegateAdapter(this, (TypeToken<MethodParser>) type));
+        }
+    };
+
     /**
      * CONSTRUCTOR
      * Create a MethodParser instance with provided values.
@@ -151,7 +174,7 @@ public class MethodParser
         }
 
         /* Codes_SRS_METHODPARSER_21_007: [The json can contain values `null`, `"null"`, and `""`, which represents null, the string null, and empty string respectively.] */
-        Gson gson = new GsonBuilder().serializeNulls().create();
+        Gson gson = GsonRegistry.getWithNulls();
 
         /* Codes_SRS_METHODPARSER_21_006: [The fromJson shall parse the json and fill the method collection.] */
         if(json.contains(METHOD_NAME_TAG))
@@ -303,7 +326,7 @@ public class MethodParser
         /* Codes_SRS_METHODPARSER_21_019: [If the payload is null, the toJsonElement shall include `payload` with value `null`.] */
         /* Codes_SRS_METHODPARSER_21_024: [The class toJsonElement include status as `status` in the json.] */
         /* Codes_SRS_METHODPARSER_21_025: [If the status is null, the toJsonElement shall include `status` as `null`.] */
-        Gson gson = new GsonBuilder().enableComplexMapKeySerialization().serializeNulls().create();
+        Gson gson = GsonRegistry.getWithComplexMapKeysAndNulls();
         JsonObject jsonProperty = new JsonObject();
 
         switch(operation)
@@ -427,4 +450,102 @@ public class MethodParser
         }
     }
 
+
+    private static final class MethodParserTypeAdapter extends TypeAdapter<MethodParser>
+    {
+        private final TypeAdapter<MethodParser> delegate;
+
+        private MethodParserTypeAdapter(TypeAdapter<MethodParser> delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(JsonWriter out, MethodParser value) throws IOException
+        {
+            this.delegate.write(out, value);
+        }
+
+        @Override
+        public MethodParser read(JsonReader in) throws IOException
+        {
+            if (in.peek() == JsonToken.NULL)
+            {
+                in.nextNull();
+                return null;
+            }
+
+            /* Codes_SRS_METHODPARSER_21_037: [The type adapter shall read the method in a single pass, ignoring unknown fields.] */
+            MethodParser methodParser = new MethodParser();
+            in.beginObject();
+            while (in.hasNext())
+            {
+                switch (in.nextName())
+                {
+                    case METHOD_NAME_TAG:
+                        methodParser.name = readString(in);
+                        break;
+                    case RESPONSE_TIMEOUT_IN_SECONDS_TAG:
+                        methodParser.responseTimeout = readLong(in);
+                        break;
+                    case CONNECT_TIMEOUT_IN_SECONDS_TAG:
+                        methodParser.connectTimeout = readLong(in);
+                        break;
+                    case STATUS_TAG:
+                        Long status = readLong(in);
+                        methodParser.status = (status == null) ? null : readInteger(status);
+                        break;
+                    case PAYLOAD_TAG:
+                        methodParser.payload = JsonMapTypeAdapterFactory.readValue(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return methodParser;
+        }
+
+        private static String readString(JsonReader in) throws IOException
+        {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL)
+            {
+                in.nextNull();
+                return null;
+            }
+            if (token == JsonToken.BOOLEAN)
+            {
+                return Boolean.toString(in.nextBoolean());
+            }
+            return in.nextString();
+        }
+
+        private static Long readLong(JsonReader in) throws IOException
+        {
+            if (in.peek() == JsonToken.NULL)
+            {
+                in.nextNull();
+                return null;
+            }
+            try
+            {
+                return in.nextLong();
+            }
+            catch (NumberFormatException e)
+            {
+                throw new JsonSyntaxException(e);
+            }
+        }
+
+        private static Integer readInteger(long value)
+        {
+            if ((value < Integer.MIN_VALUE) || (value > Integer.MAX_VALUE))
+            {
+                throw new JsonSyntaxException("Expected an int but was " + value);
+            }
+            return (int) value;
+        }
+    }
 }
@@ -4,16 +4,14 @@
 package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
-import java.io.UnsupportedEncodingException;
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Map;
-import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 /**
@@ -22,18 +20,32 @@ import java.util.regex.Pattern;
 public class ParserUtility
 {
     private static final String DATEFORMAT = "yyyy-MM-dd'T'HH:mm:ss";
-    private static final String OFFSETFORMAT = "yyyy-MM-dd'T'HH:mm:ssXXX";
-    private static final String TIMEZONE = "UTC";
     private static final String SELECT = "select";
     private static final String FROM = "from";
+    private static final char MAX_ASCII = 0x7F;
+    private static final int MAX_CACHED_VALUE_TYPES = 256;
+    private static final ConcurrentMap<Class<?>, Boolean> ILLEGAL_VALUE_TYPES = new ConcurrentHashMap<>();
+    private static final boolean[] VALID_ID_CHARACTERS = new boolean[MAX_ASCII + 1];
 
-    private static final int NO_MILLISECONDS_IN_DATE = 0;
-    private static final int DATE_AND_TIME_IN_DATE = 0;
-    private static final int MILLISECONDS_IN_DATE = 1;
-    private static final int EXPECTED_PARTS_IN_DATE = 2;
-    private static final int MAX_MILLISECONDS_LENGTH_IN_DATE = 3;
-    private static final double MILLISECONDS_NUMERIC_BASE = 10;
-    private static final String MILLISECONDS_REGEX = "[.,Z]";
+    static
+    {
+        for(char c = 'A'; c <= 'Z'; c++)
+        {
+            VALID_ID_CHARACTERS[c] = true;
+        }
+        for(char c = 'a'; c <= 'z'; c++)
+        {
+            VALID_ID_CHARACTERS[c] = true;
+        }
+        for(char c = '0'; c <= '9'; c++)
+        {
+            VALID_ID_CHARACTERS[c] = true;
+        }
+        for(char c : "-:.+%_#*?!(),=@;$'".toCharArray())
+        {
+            VALID_ID_CHARACTERS[c] = true;
+        }
+    }
 
     /**
      * Helper to validate if the provided string is not null, empty, and all characters are UTF-8.
@@ -50,14 +62,7 @@ public class ParserUtility
         }
 
         /* Codes_SRS_PARSER_UTILITY_21_003: [The validateStringUTF8 shall throw IllegalArgumentException if the provided string contains at least one not UTF-8 character.] */
-        try
-        {
-            if(str.getBytes("UTF-8").length != str.length())
-            {
-                throw new IllegalArgumentException("invalid parameter");
-            }
-        }
-        catch(UnsupportedEncodingException e)
+        if(!isAscii(str))
         {
             throw new IllegalArgumentException("invalid parameter");
         }
@@ -154,26 +159,37 @@ public class ParserUtility
     public static void validateKey(String key, boolean isMetadata) throws IllegalArgumentException
     {
         /* Codes_SRS_PARSER_UTILITY_21_014: [The validateKey shall throw IllegalArgumentException if the provided string is null or empty.] */
-        /* Codes_SRS_PARSER_UTILITY_21_015: [The validateKey shall throw IllegalArgumentException if the provided string contains at least one not UTF-8 character.] */
-        try
+        if((key == null) || key.isEmpty())
         {
-            validateStringUTF8(key);
+            throw new IllegalArgumentException("The provided key is not valid");
         }
-        catch (IllegalArgumentException e)
+
+        boolean hasIllegalCharacter = false;
+        int length = key.length();
+        for(int i = 0; i < length; i++)
         {
-            throw new IllegalArgumentException("The provided key is not valid");
+            char c = key.charAt(i);
+            /* Codes_SRS_PARSER_UTILITY_21_015: [The validateKey shall throw IllegalArgumentException if the provided string contains at least one not UTF-8 character.] */
+            if(c > MAX_ASCII)
+            {
+                throw new IllegalArgumentException("The provided key is not valid");
+            }
+            /* Codes_SRS_PARSER_UTILITY_21_017: [The validateKey shall throw IllegalArgumentException if the provided string contains an illegal character (`$`,`.`, space).] */
+            /* Codes_SRS_PARSER_UTILITY_21_018: [If `isMetadata` is `true`, the validateKey shall accept the character `$` as valid.] */
+            /* Codes_SRS_PARSER_UTILITY_21_019: [If `isMetadata` is `false`, the validateKey shall not accept the character `$` as valid.] */
+            if((c == '.') || (c == ' ') || ((c == '$') && !isMetadata))
+            {
+                hasIllegalCharacter = true;
+            }
         }
 
         /* Codes_SRS_PARSER_UTILITY_21_016: [The validateKey shall throw IllegalArgumentException if the provided string contains more than 128 characters.] */
-        if(key.length() > 128)
+        if(length > 128)
         {
             throw new IllegalArgumentException("The provided key is bigger than 128 characters");
         }
 
-        /* Codes_SRS_PARSER_UTILITY_21_017: [The validateKey shall throw IllegalArgumentException if the provided string contains an illegal character (`$`,`.`, space).] */
-        /* Codes_SRS_PARSER_UTILITY_21_018: [If `isMetadata` is `true`, the validateKey shall accept the character `$` as valid.] */
-        /* Codes_SRS_PARSER_UTILITY_21_019: [If `isMetadata` is `false`, the validateKey shall not accept the character `$` as valid.] */
-        if((key.contains(".") || key.contains(" ") || (key.contains("$") && ! isMetadata)))
+        if(hasIllegalCharacter)
         {
             throw new IllegalArgumentException("The provided key is not valid");
         }
@@ -220,7 +236,7 @@ public class ParserUtility
             ParserUtility.validateKey(key, allowMetadata);
 
             /* Codes_SRS_PARSER_UTILITY_21_051: [The validateMap shall throws IllegalArgumentException if any value contains illegal type (array or invalid class).] */
-            if((value != null) && ((value.getClass().isArray()) || (value.getClass().isLocalClass())))
+            if(isIllegalValueType(value))
             {
                 throw new IllegalArgumentException("Map contains illegal value type " + value.getClass().getName());
             }
@@ -269,12 +285,10 @@ public class ParserUtility
         }
 
         /* Codes_SRS_PARSER_UTILITY_21_029: [The validateId shall throw IllegalArgumentException if the provided string contains an illegal character.] */
-        byte[] chars = id.getBytes();
-        for (byte c:chars)
+        for(int i = 0; i < id.length(); i++)
         {
-            if(!(((c>='A') && (c<='Z')) || ((c>='a') && (c<='z')) || ((c>='0') && (c<='9')) ||
-                    (c=='-') || (c==':') || (c=='.') || (c=='+') || (c=='%') || (c=='_') || (c=='#') || (c=='*') || (c=='?') ||
-                    (c=='!') || (c=='(') || (c==')') || (c==',') || (c=='=') || (c=='@') || (c==';') || (c=='$') || (c=='\'')))
+            char c = id.charAt(i);
+            if((c > MAX_ASCII) || !VALID_ID_CHARACTERS[c])
             {
                 throw new IllegalArgumentException("The provided ID is not valid");
             }
@@ -315,51 +329,18 @@ public class ParserUtility
      */
     public static Date getDateTimeUtc(String dataTime) throws IllegalArgumentException
     {
-        Date dateTimeUtc;
-        /* Codes_SRS_PARSER_UTILITY_21_020: [The getDateTimeUtc shall parse the provide string using `UTC` timezone.] */
-        /* Codes_SRS_PARSER_UTILITY_21_021: [The getDateTimeUtc shall parse the provide string using the data format `yyyy-MM-dd'T'HH:mm:ss`.] */
-        SimpleDateFormat dateFormat = new SimpleDateFormat(DATEFORMAT);
-        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
-
         /* Codes_SRS_PARSER_UTILITY_21_022: [If the provide string is null, empty or contains an invalid data format, the getDateTimeUtc shall throw IllegalArgumentException.] */
         if((dataTime == null) || dataTime.isEmpty())
         {
             throw new IllegalArgumentException("date is null, empty, or invalid");
         }
 
-        try
-        {
-            /* Codes_SRS_PARSER_UTILITY_21_040: [If the provide string contains more than 3 digits for milliseconds, the getDateTimeUtc shall reduce the milliseconds to 3 digits.] */
-            String[] splitDateTime = dataTime.split(MILLISECONDS_REGEX);
-            int milliseconds;
-            if(splitDateTime.length > EXPECTED_PARTS_IN_DATE)
-            {
-                throw new IllegalArgumentException("invalid time:" + dataTime);
-            }
-            else if((splitDateTime.length == EXPECTED_PARTS_IN_DATE) && !splitDateTime[MILLISECONDS_IN_DATE].isEmpty())
-            {
-                int millisecondsLength = splitDateTime[MILLISECONDS_IN_DATE].length();
-                if(millisecondsLength > MAX_MILLISECONDS_LENGTH_IN_DATE)
-                {
-                    millisecondsLength = MAX_MILLISECONDS_LENGTH_IN_DATE;
-                }
-
-                milliseconds = Integer.parseInt(splitDateTime[MILLISECONDS_IN_DATE].substring(0, millisecondsLength)) *
-                        (int)Math.pow(MILLISECONDS_NUMERIC_BASE, (MAX_MILLISECONDS_LENGTH_IN_DATE - millisecondsLength));
-            }
-            else
-            {
-                /* Codes_SRS_PARSER_UTILITY_21_041: [The getDateTimeUtc shall accept date without milliseconds.] */
-                milliseconds = NO_MILLISECONDS_IN_DATE;
-            }
-            dateTimeUtc =  new Date(dateFormat.parse(splitDateTime[DATE_AND_TIME_IN_DATE]).getTime() + milliseconds);
-        }
-        catch (ParseException e)
-        {
-            throw new IllegalArgumentException("invalid time:" + dataTime);
-        }
-
-        return dateTimeUtc;
+        /* Codes_SRS_PARSER_UTILITY_21_020: [The getDateTimeUtc shall parse the provide string using `UTC` timezone.] */
+        /* Codes_SRS_PARSER_UTILITY_21_021: [The getDateTimeUtc shall parse the provide string using the data format `yyyy-MM-dd'T'HH:mm:ss`.] */
+        /* Codes_SRS_PARSER_UTILITY_21_040: [If the provide string contains more than 3 digits for milliseconds, the getDateTimeUtc shall reduce the milliseconds to 3 digits.] */
+        /* Codes_SRS_PARSER_UTILITY_21_041: [The getDateTimeUtc shall accept date without milliseconds.] */
+        /* Codes_SRS_PARSER_UTILITY_21_055: [If the provide string contains a zone offset, the getDateTimeUtc shall convert the date and time to UTC.] */
+        return new Date(IsoDateTime.parse(dataTime, false));
     }
 
     /**
@@ -373,29 +354,16 @@ public class ParserUtility
      */
     public static Date stringToDateTimeOffset(String dateTime) throws IllegalArgumentException
     {
-        Date dateTimeOffset;
-
-        /* Codes_SRS_PARSER_UTILITY_21_023: [The stringToDateTimeOffset shall parse the provide string using `UTC` timezone.] */
-        /* Codes_SRS_PARSER_UTILITY_21_024: [The stringToDateTimeOffset shall parse the provide string using the data format `2016-06-01T21:22:41+00:00`.] */
-        SimpleDateFormat dateFormat = new SimpleDateFormat(OFFSETFORMAT);
-        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
-
         /* Codes_SRS_PARSER_UTILITY_21_025: [If the provide string is null, empty or contains an invalid data format, the stringToDateTimeOffset shall throw IllegalArgumentException.] */
         if((dateTime == null) || dateTime.isEmpty())
         {
             throw new IllegalArgumentException("date is null or empty");
         }
 
-        try
-        {
-            dateTimeOffset = dateFormat.parse(dateTime);
-        }
-        catch (ParseException e)
-        {
-            throw new IllegalArgumentException("invalid time:" + e.toString());
-        }
-
-        return dateTimeOffset;
+        /* Codes_SRS_PARSER_UTILITY_21_023: [The stringToDateTimeOffset shall parse the provide string using `UTC` timezone.] */
+        /* Codes_SRS_PARSER_UTILITY_21_024: [The stringToDateTimeOffset shall parse the provide string using the data format `2016-06-01T21:22:41+00:00`.] */
+        /* Codes_SRS_PARSER_UTILITY_21_056: [The stringToDateTimeOffset shall accept a fraction of second before the offset.] */
+        return new Date(IsoDateTime.parse(dateTime, true));
     }
 
     /**
@@ -416,16 +384,8 @@ public class ParserUtility
         }
 
         /* Codes_SRS_PARSER_UTILITY_21_054: [The dateTimeUtcToString shall serialize the provide Date using `UTC` timezone.] */
-        SimpleDateFormat dateFormat = new SimpleDateFormat(DATEFORMAT);
-        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
-        StringBuilder dateStr = new StringBuilder();
-        dateStr.append(dateFormat.format(date));
-        dateStr.append(".");
-        int milliseconds = (int)(date.getTime() % 1000L);
-        milliseconds = milliseconds < 0 ? milliseconds + 1000 : milliseconds;
-        dateStr.append(milliseconds);
-        dateStr.append("Z");
-        return dateStr.toString();
+        /* Codes_SRS_PARSER_UTILITY_21_057: [The dateTimeUtcToString shall serialize the milliseconds with 3 digits.] */
+        return IsoDateTime.format(date.getTime());
     }
 
     /**
@@ -449,6 +409,46 @@ public class ParserUtility
         return new SimpleDateFormat(DATEFORMAT).format(date);
     }
 
+    /**
+     * Helper to check if the provided value has a type that cannot be a value of a json map, like an array or a
+     * local class. The result is cached by class, because {@code Class.isLocalClass()} is a reflection call, and
+     * the maps of a twin reuse a few value types.
+     *
+     * @param value is the value to check. It can be {@code null}.
+     * @return {@code true} if the value is an array or an instance of a local class.
+     */
+    static boolean isIllegalValueType(Object value)
+    {
+        if(value == null)
+        {
+            return false;
+        }
+
+        Class<?> valueClass = value.getClass();
+        Boolean isIllegal = ILLEGAL_VALUE_TYPES.get(valueClass);
+        if(isIllegal == null)
+        {
+            isIllegal = valueClass.isArray() || valueClass.isLocalClass();
+            if(ILLEGAL_VALUE_TYPES.size() < MAX_CACHED_VALUE_TYPES)
+            {
+                ILLEGAL_VALUE_TYPES.put(valueClass, isIllegal);
+            }
+        }
+        return isIllegal;
+    }
+
+    private static boolean isAscii(String str)
+    {
+        for(int i = 0; i < str.length(); i++)
+        {
+            if(str.charAt(i) > MAX_ASCII)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Helper to convert a provided map in to a JsonElement, including sub-maps.
      *
@@ -460,7 +460,7 @@ public class ParserUtility
     {
         /* Codes_SRS_PARSER_UTILITY_21_035: [The mapToJsonElement shall serialize the provided map into a JsonElement.] */
         /* Codes_SRS_PARSER_UTILITY_21_036: [The mapToJsonElement shall include keys with null values in the JsonElement.] */
-        Gson gson = new GsonBuilder().serializeNulls().create();
+        Gson gson = GsonRegistry.getWithNulls();
 
         /* Codes_SRS_PARSER_UTILITY_21_038: [If the map is empty, the mapToJsonElement shall return a empty JsonElement.] */
         JsonObject json = new JsonObject();
@@ -6,17 +6,30 @@
 package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
-import java.util.LinkedList;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 public class QueryResponseParser
 {
     private Gson gson;
     private JsonObject[] jsonItems = null;
+    private JsonReader jsonItemsReader = null;
+    private boolean isStreamRead = false;
 
     /**
      * CONSTRUCTOR
@@ -28,7 +41,7 @@ public class QueryResponseParser
     public QueryResponseParser(String json) throws IllegalArgumentException
     {
         //Codes_SRS_QUERY_RESPONSE_PARSER_25_001: [The constructor shall create an instance of the QueryResponseParser.]
-        gson = new GsonBuilder().disableHtmlEscaping().create();
+        gson = GsonRegistry.getWithoutHtmlEscaping();
 
         //Codes_SRS_QUERY_RESPONSE_PARSER_25_003: [If the provided json is null, empty, or not valid, the constructor shall throws IllegalArgumentException.]
         ParserUtility.validateStringUTF8(json);
@@ -45,19 +58,142 @@ public class QueryResponseParser
     }
 
     /**
-     * Getter for Json Items from Json Array
-     * @return the array of json as string
+     * CONSTRUCTOR
+     * Create an instance of the QueryResponseParser that streams the items of the provided UTF-8 json, without
+     * decoding the whole json to a string or parsing all items upfront. The items can be read only once, by
+     * {@link #getJsonItemsIterator()}.
+     *
+     * @param json is the UTF-8 encoded json with the QueryResponse.
+     * @throws IllegalArgumentException if the json is null, empty, or does not start with an array.
      */
-    public List<String> getJsonItems()
+    public QueryResponseParser(byte[] json) throws IllegalArgumentException
     {
-        List<String> jsonElements = new LinkedList<>();
+        //Codes_SRS_QUERY_RESPONSE_PARSER_21_023: [If the provided json is null or empty, the constructor shall throws IllegalArgumentException.]
+        if ((json == null) || (json.length == 0))
+        {
+            throw new IllegalArgumentException("json cannot be null or empty");
+        }
 
-        for (JsonObject json : this.jsonItems)
+        gson = GsonRegistry.getWithoutHtmlEscaping();
+
+        //Codes_SRS_QUERY_RESPONSE_PARSER_21_024: [The constructor shall decode the json as strict UTF-8, and throw IllegalArgumentException if it does not start with an array.]
+        this.jsonItemsReader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json),
+                StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)));
+        try
         {
-            jsonElements.add(gson.toJson(json));
+            this.jsonItemsReader.beginArray();
+        }
+        catch (IOException | IllegalStateException malformed)
+        {
+            throw new IllegalArgumentException("Malformed json:" + malformed);
         }
+    }
+
+    /**
+     * Getter for Json Items from Json Array. Each item is serialized only when it is read from the list, so
+     * iterating a page does not build all item strings upfront.
+     * @return the array of json as string
+     */
+    public List<String> getJsonItems() throws IllegalStateException
+    {
+        if (this.jsonItemsReader != null)
+        {
+            //Codes_SRS_QUERY_RESPONSE_PARSER_21_025: [If the parser was created from an UTF-8 json, the getJsonItems shall throw IllegalStateException.]
+            throw new IllegalStateException("The items of a streamed json can only be read by getJsonItemsIterator");
+        }
+
         //Codes_SRS_QUERY_RESPONSE_PARSER_25_008: [The getJsonItems shall return the list of json items as strings .]
-        return jsonElements;
+        //Codes_SRS_QUERY_RESPONSE_PARSER_21_022: [The getJsonItems shall serialize each json item only when it is read from the returned list.]
+        return new AbstractList<String>()
+        {
+            @Override
+            public String get(int index)
+            {
+                return gson.toJson(jsonItems[index]);
+            }
+
+            @Override
+            public int size()
+            {
+                return jsonItems.length;
+            }
+        };
+    }
+
+    /**
+     * Getter for an iterator over the Json Items from Json Array. If the parser was created from an UTF-8 json,
+     * each item is parsed from the json only when it is returned by {@link Iterator#next()}, and the iterator
+     * throws {@link IllegalArgumentException} if the item is not valid.
+     *
+     * @return the iterator of json items as strings
+     * @throws IllegalStateException if the items of the UTF-8 json were already requested.
+     */
+    public Iterator<String> getJsonItemsIterator() throws IllegalStateException
+    {
+        if (this.jsonItemsReader == null)
+        {
+            //Codes_SRS_QUERY_RESPONSE_PARSER_21_026: [If the parser was created from a string, the getJsonItemsIterator shall return an iterator over the getJsonItems.]
+            return this.getJsonItems().iterator();
+        }
+
+        if (this.isStreamRead)
+        {
+            //Codes_SRS_QUERY_RESPONSE_PARSER_21_027: [If the parser was created from an UTF-8 json, the getJsonItemsIterator shall throw IllegalStateException if it was already called.]
+            throw new IllegalStateException("The items of a streamed json can only be read once");
+        }
+        this.isStreamRead = true;
+
+        //Codes_SRS_QUERY_RESPONSE_PARSER_21_028: [If the parser was created from an UTF-8 json, the iterator shall parse and serialize each json item only when it is returned by next.]
+        //Codes_SRS_QUERY_RESPONSE_PARSER_21_029: [The iterator shall throw IllegalArgumentException if the next json item is not valid.]
+        return new Iterator<String>()
+        {
+            private final JsonParser jsonParser = new JsonParser();
+
+            @Override
+            public boolean hasNext()
+            {
+                try
+                {
+                    return jsonItemsReader.hasNext();
+                }
+                catch (IOException malformed)
+                {
+                    throw new IllegalArgumentException("Malformed json:" + malformed);
+                }
+            }
+
+            @Override
+            public String next()
+            {
+                if (!this.hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+
+                JsonElement jsonItem;
+                try
+                {
+                    if (jsonItemsReader.peek() != JsonToken.BEGIN_OBJECT)
+                    {
+                        throw new IllegalArgumentException("Malformed json: the item is not an object");
+                    }
+                    jsonItem = jsonParser.parse(jsonItemsReader);
+                }
+                catch (IOException | JsonParseException malformed)
+                {
+                    throw new IllegalArgumentException("Malformed json:" + malformed);
+                }
+                return gson.toJson(jsonItem);
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     /**
@@ -4,14 +4,9 @@
 package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.annotations.SerializedName;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
-
 /**
  * INNER TWINPARSER CLASS
  *
@@ -21,9 +16,6 @@ import java.util.TimeZone;
 public class TwinMetadata
 {
 
-    private static final String DATEFORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
-    private static final String TIMEZONE = "UTC";
-
     @SerializedName("$lastUpdated")
     private String lastUpdated;
 
@@ -90,9 +82,7 @@ public class TwinMetadata
 
     protected synchronized void update()
     {
-        SimpleDateFormat dateFormat = new SimpleDateFormat(DATEFORMAT);
-        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
-        lastUpdated = dateFormat.format(new Date());
+        lastUpdated = IsoDateTime.format(System.currentTimeMillis());
     }
 
     protected synchronized Integer getLastUpdateVersion()
@@ -107,7 +97,7 @@ public class TwinMetadata
 
     protected JsonElement toJsonElement()
     {
-        Gson gson = new GsonBuilder().create();
+        Gson gson = GsonRegistry.getDefault();
         return gson.toJsonTree(this);
     }
 }
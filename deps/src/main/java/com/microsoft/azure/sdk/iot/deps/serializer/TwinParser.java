@@ -150,7 +150,7 @@ public class TwinParser
     public JsonElement toJsonElement()
     {
         /* Codes_SRS_TWINPARSER_21_017: [The toJsonElement shall return a JsonElement with information in the TwinParser using json format.] */
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+        Gson gson = GsonRegistry.getWithoutHtmlEscaping();
         JsonObject twinJson = gson.toJsonTree(manager).getAsJsonObject();
 
         /* Codes_SRS_TWINPARSER_21_018: [The toJsonElement shall not include null fields.] */
@@ -217,7 +217,7 @@ public class TwinParser
         validateMap(reportedPropertyMap);
         validateMap(tagsMap);
 
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+        Gson gson = GsonRegistry.getWithoutHtmlEscaping();
         jsonTwin = gson.toJsonTree(manager).getAsJsonObject();
 
         /* Codes_SRS_TWINPARSER_21_075: [If Tags is not enable and `tagsMap` is not null, the updateTwin shall throw IOException.] */
@@ -618,7 +618,7 @@ public class TwinParser
         /* Codes_SRS_TWINPARSER_21_071: [If the provided json is empty, the updateTwin shall not change the collection and not call the OnDesiredCallback or the OnReportedCallback.] */
         if(!json.isEmpty())
         {
-            Gson gson = new GsonBuilder().disableInnerClassSerialization().disableHtmlEscaping().create();
+            Gson gson = GsonRegistry.getForTwin();
             Map<String, Object> jsonTree;
             try
             {
@@ -1005,7 +1005,7 @@ public class TwinParser
         Map<String, Object> map;
         try
         {
-            Gson gson = new GsonBuilder().disableInnerClassSerialization().disableHtmlEscaping().create();
+            Gson gson = GsonRegistry.getForTwin();
             map = (Map<String, Object>) gson.fromJson(json, HashMap.class);
         }
         catch (Exception e)
@@ -1079,7 +1079,7 @@ public class TwinParser
             ParserUtility.validateKey(key, allowDollar);
             
             /* Codes_SRS_TWINPARSER_21_156: [A valid `value` shall contains types of boolean, number, string, or object.] */
-            if((value != null) && ((value.getClass().isArray()) || (value.getClass().isLocalClass())))
+            if(ParserUtility.isIllegalValueType(value))
             {
                 throw new IllegalArgumentException("Malformed Json: illegal value type");
             }
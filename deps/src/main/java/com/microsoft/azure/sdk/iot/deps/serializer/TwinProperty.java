@@ -4,7 +4,6 @@
 package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.internal.LinkedTreeMap;
 
@@ -359,7 +358,7 @@ public class TwinProperty
         {
             /* Codes_SRS_TWINPARSER_21_095: [If the provided json have any duplicated `key`, the updateReportedProperty shall throws IllegalArgumentException.] */
             /* Codes_SRS_TWINPARSER_21_096: [If the provided json have any duplicated `key`, the updateDesiredProperty shall throws IllegalArgumentException.] */
-            Gson gson = new GsonBuilder().create();
+            Gson gson = GsonRegistry.getForTwin();
             newValues = (Map<String, Object>) gson.fromJson(json, Map.class);
         }
         catch (Exception e)
@@ -17,7 +17,7 @@ public class X509ThumbprintParser
     @SerializedName(SECONDARY_THUMBPRINT_SERIALIZED_NAME)
     private String secondaryThumbprint;
 
-    private transient Gson gson = new Gson();
+    private static final Gson gson = GsonRegistry.getDefault();
 
     /**
      * Empty constructor: Used only to keep GSON happy.
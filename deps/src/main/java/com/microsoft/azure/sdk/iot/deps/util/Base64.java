@@ -3,161 +3,156 @@
 
 package com.microsoft.azure.sdk.iot.deps.util;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encode and decode using the Base64 format defined in the RFC2045.
+ *
+ * <p>
+ *     The encode methods that return a new array or string use {@code java.util.Base64} when the platform
+ *     provides it, like Java 8 or Android 8, so newer JVMs can use their intrinsic encoder. The local decoder is
+ *     faster than the one of Java 8, and keeps the strict pad validation. The methods that write in a caller supplied array, or array backed
+ *     {@link ByteBuffer}, do not allocate, so the caller can reuse one destination for many values. Use the
+ *     {@link Base64OutputStream} to encode a large body without holding all its base64 values in memory.
+ * </p>
+ */
 public final class Base64
 {
-    private static final byte BYTE_START_UPPERCASE = 'A';
-    private static final byte BYTE_END_UPPERCASE = 'Z';
-    private static final byte BYTE_START_LOWERCASE = 'a';
-    private static final byte BYTE_END_LOWERCASE = 'z';
-    private static final byte BYTE_START_NUMBER = '0';
-    private static final byte BYTE_END_NUMBER = '9';
-    private static final byte BYTE_PLUS = '+';
-    private static final byte BYTE_SLASH = '/';
-
-    private static final int BASE64_END_UPPERCASE = 26;
-    private static final int BASE64_END_LOWERCASE = 52;
-    private static final int BASE64_END_NUMBER = 62;
-    private static final int BASE64_PLUS = 62;
-    private static final int BASE64_SLASH = 63;
     private static final byte BASE64_PAD = '=';
+    private static final byte[] BASE64_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+    private static final int[] BASE64_VALUES = new int[256];
 
-    private static final int HALF_NIBBLE = 2;
-    private static final int ONE_NIBBLE = 4;
-    private static final int ONE_AND_HALF_NIBBLE = 6;
+    private static final int ONE_BASE64 = 6;
+    private static final int TWO_BASE64 = 12;
+    private static final int THREE_BASE64 = 18;
     private static final int ONE_BYTE = 8;
     private static final int TWO_BYTES = 16;
-    private static final int THREE_BYTES = 24;
 
     private static final int ISOLATE_BYTE = 0xFF;
     private static final int ISOLATE_BASE64 = 0x3F;
-    private static final int ISOLATE_LSB_BASE64 = 0x0F;
-    private static final int ISOLATE_MSB_BASE64 = 0x03;
 
     private static final int BYTE_GROUP_SIZE = 3;
     private static final int BASE64_GROUP_SIZE = 4;
 
+    private static final boolean IS_JDK_BASE64_AVAILABLE = isJdkBase64Available();
 
-    private static final int[] BASE64D16_CONVERSION_TABLE =
-        {
-            ((int)'A' + ((int)'E'<<ONE_BYTE) + ((int)'I'<<TWO_BYTES) + ((int)'M'<<THREE_BYTES)),
-            ((int)'Q' + ((int)'U'<<ONE_BYTE) + ((int)'Y'<<TWO_BYTES) + ((int)'c'<<THREE_BYTES)),
-            ((int)'g' + ((int)'k'<<ONE_BYTE) + ((int)'o'<<TWO_BYTES) + ((int)'s'<<THREE_BYTES)),
-            ((int)'w' + ((int)'0'<<ONE_BYTE) + ((int)'4'<<TWO_BYTES) + ((int)'8'<<THREE_BYTES)),
-        };
-
-    private static final int BASE64D8_CONVERSION_TABLE = ((int)'A' + ((int)'Q'<<ONE_BYTE) + ((int)'g'<<TWO_BYTES) + ((int)'w'<<THREE_BYTES));
-
-    private static byte extractBase64FromInteger(final int integerValue, final int bytePosition)
-    {
-        return (byte)((integerValue >> (bytePosition << 3)) & ISOLATE_BYTE);
-    }
-
-    private static byte base64ToByte(final byte base64Value)
+    static
     {
-        if(base64Value < BASE64_END_UPPERCASE)
+        for (int i = 0; i < BASE64_VALUES.length; i++)
         {
-            return (byte)(BYTE_START_UPPERCASE + base64Value);
+            BASE64_VALUES[i] = -1;
         }
-
-        if(base64Value < BASE64_END_LOWERCASE)
+        for (int i = 0; i < BASE64_ALPHABET.length; i++)
         {
-            return (byte)(BYTE_START_LOWERCASE + (base64Value - BASE64_END_UPPERCASE));
+            BASE64_VALUES[BASE64_ALPHABET[i]] = i;
         }
+    }
 
-        if(base64Value < BASE64_END_NUMBER)
+    /**
+     * The platform Base64, in its own class, so it is only loaded if the platform provides it.
+     */
+    private static final class JdkBase64
+    {
+        private static byte[] encode(byte[] dataValues)
         {
-            return (byte)(BYTE_START_NUMBER + (base64Value - BASE64_END_LOWERCASE));
+            return java.util.Base64.getEncoder().encode(dataValues);
         }
 
-        if(base64Value == BASE64_END_NUMBER)
+        private static String encodeToString(byte[] dataValues)
         {
-            return BYTE_PLUS;
+            return java.util.Base64.getEncoder().encodeToString(dataValues);
         }
-
-        return BYTE_SLASH;
     }
 
-    private static byte base64d16ToByte(final byte base64d16Value)
+    private static boolean isJdkBase64Available()
     {
-        return extractBase64FromInteger(BASE64D16_CONVERSION_TABLE[base64d16Value >> HALF_NIBBLE],
-            (base64d16Value & ISOLATE_MSB_BASE64));
-    }
-
-    private static byte base64d8ToByte(final byte base64d8Value)
-    {
-        return extractBase64FromInteger(BASE64D8_CONVERSION_TABLE, base64d8Value);
-    }
-
-    private static byte byteToBase64(final byte byteValue) throws IllegalArgumentException
-    {
-        if((byteValue >= BYTE_START_UPPERCASE) && (byteValue <= BYTE_END_UPPERCASE))
-        {
-            return (byte)(byteValue - BYTE_START_UPPERCASE);
-        }
-
-        if((byteValue >= BYTE_START_LOWERCASE) && (byteValue <= BYTE_END_LOWERCASE))
+        try
         {
-            return (byte)((BYTE_END_UPPERCASE - BYTE_START_UPPERCASE) + 1 +
-                (byteValue - BYTE_START_LOWERCASE));
+            Class.forName("java.util.Base64");
+            return true;
         }
-
-        if((byteValue >= BYTE_START_NUMBER) && (byteValue <= BYTE_END_NUMBER))
+        catch (ClassNotFoundException | LinkageError e)
         {
-            return (byte)((BYTE_END_UPPERCASE - BYTE_START_UPPERCASE) + 1 +
-                (BYTE_END_LOWERCASE - BYTE_START_LOWERCASE) + 1 +
-                (byteValue - BYTE_START_NUMBER));
+            return false;
         }
+    }
 
-        if(byteValue == BYTE_PLUS)
-        {
-            return BASE64_PLUS;
-        }
+    private static int numberOfPads(final byte[] base64Values, final int base64Offset, final int base64Length)
+    {
+        int end = base64Offset + base64Length;
+        int pads = 0;
 
-        if(byteValue == BYTE_SLASH)
+        if (base64Values[end - 1] == BASE64_PAD)
         {
-            return BASE64_SLASH;
+            pads++;
+            if (base64Values[end - 2] == BASE64_PAD)
+            {
+                pads++;
+            }
         }
 
-        throw new IllegalArgumentException("provided byte value out of base64 range");
+        return pads;
     }
 
-    private static int numberOfValidBase64BytesWithoutPad(final byte[] bytesToEncode) throws IllegalArgumentException
+    private static void checkRange(final byte[] values, final int offset, final int length, final String name) throws IllegalArgumentException
     {
-        int validLength = bytesToEncode.length;
+        if (values == null)
+        {
+            throw new IllegalArgumentException("null " + name);
+        }
 
-        if(bytesToEncode[validLength-1] == BASE64_PAD)
+        if ((offset < 0) || (length < 0) || (offset > (values.length - length)))
         {
-            validLength--;
+            throw new IllegalArgumentException("invalid " + name + " offset or length");
         }
+    }
 
-        if(bytesToEncode[validLength-1] == BASE64_PAD)
+    /**
+     * Getter for the number of base64 values that encode the provided number of bytes, including the pad.
+     *
+     * @param dataLength the number of bytes to encode.
+     * @return the number of base64 values.
+     * @throws IllegalArgumentException if the dataLength is negative, or the result does not fit in an int.
+     */
+    public static int getEncodedLength(final int dataLength) throws IllegalArgumentException
+    {
+        /* Codes_SRS_BASE64_21_011: [If the `dataLength` is negative, or the encoded length does not fit in an int, the getEncodedLength shall throw IllegalArgumentException.] */
+        if ((dataLength < 0) || (dataLength > ((Integer.MAX_VALUE / BASE64_GROUP_SIZE) * BYTE_GROUP_SIZE)))
         {
-            validLength--;
+            throw new IllegalArgumentException("invalid dataLength");
         }
 
-        return validLength;
+        /* Codes_SRS_BASE64_21_012: [The getEncodedLength shall return the number of base64 values, including the pad, that encode `dataLength` bytes.] */
+        return ((dataLength + BYTE_GROUP_SIZE - 1) / BYTE_GROUP_SIZE) * BASE64_GROUP_SIZE;
     }
 
-    private static int base64EstimatedLength(final byte[] base64sToDecode)
+    /**
+     * Getter for the number of bytes encoded in the provided base64 values.
+     *
+     * @param base64Values is an array with the base64 encoded values
+     * @param base64Offset is the index of the first base64 value
+     * @param base64Length is the number of base64 values
+     * @return the number of decoded bytes
+     * @throws IllegalArgumentException if the provided base64 values are null, out of the array, or do not fits the required length
+     */
+    public static int getDecodedLength(final byte[] base64Values, final int base64Offset, final int base64Length) throws IllegalArgumentException
     {
-        int estimatedLength;
-
-        if(base64sToDecode.length == 0)
+        /* Codes_SRS_BASE64_21_013: [If the `base64Values` is null, or the range is out of the array, or its length is not multiple of 4, the getDecodedLength shall throw IllegalArgumentException.] */
+        checkRange(base64Values, base64Offset, base64Length, "base64Values");
+        if ((base64Length % BASE64_GROUP_SIZE) != 0)
         {
-            return 0;
+            throw new IllegalArgumentException("invalid base64Values length");
         }
 
-        estimatedLength = base64sToDecode.length / BASE64_GROUP_SIZE * BYTE_GROUP_SIZE;
-        if(base64sToDecode[base64sToDecode.length - 1] == BASE64_PAD)
+        if (base64Length == 0)
         {
-            if(base64sToDecode[base64sToDecode.length - 2] == BASE64_PAD)
-            {
-                estimatedLength --;
-            }
-            estimatedLength --;
+            return 0;
         }
 
-        return estimatedLength;
+        /* Codes_SRS_BASE64_21_014: [The getDecodedLength shall return the number of bytes encoded in the range of `base64Values`.] */
+        return ((base64Length / BASE64_GROUP_SIZE) * BYTE_GROUP_SIZE) - numberOfPads(base64Values, base64Offset, base64Length);
     }
 
     /**
@@ -195,40 +190,95 @@ public final class Base64
         }
 
         /* Codes_SRS_BASE64_21_001: [The decodeBase64Local shall decode the provided `base64Values` in a byte array using the Base64 format define in the RFC2045.] */
-        int numberOfEncodedBytes = numberOfValidBase64BytesWithoutPad(base64Values);
-        int indexOfFirstEncodedByte = 0;
-        int decodedIndex = 0;
-        byte[] decodedResult = new byte[base64EstimatedLength(base64Values)];
+        byte[] decodedResult = new byte[getDecodedLength(base64Values, 0, base64Values.length)];
+        decodeBase64Internal(base64Values, 0, base64Values.length, decodedResult, 0);
+        return decodedResult;
+    }
 
-        while(numberOfEncodedBytes >= BASE64_GROUP_SIZE)
+    /**
+     * Decode the provided base64 values in the caller supplied destination, without any allocation.
+     * <a href="http://www.ietf.org/rfc/rfc2045.txt">RFC 2045</a>.
+     *
+     * @param base64Values is an array with the base64 encoded values
+     * @param base64Offset is the index of the first base64 value
+     * @param base64Length is the number of base64 values, multiple of 4
+     * @param destination is the array that receives the original values
+     * @param destinationOffset is the index in the destination of the first original value
+     * @return the number of bytes written in the destination
+     * @throws IllegalArgumentException if the provided base64 values are null, invalid, or do not fits the required length,
+     *                                  or the destination is too small
+     */
+    public static int decodeBase64Local(final byte[] base64Values, final int base64Offset, final int base64Length,
+                                        final byte[] destination, final int destinationOffset) throws IllegalArgumentException
+    {
+        /* Codes_SRS_BASE64_21_015: [If the `base64Values` is null, or the range is out of the array, or its length is not multiple of 4, the decodeBase64Local shall throw IllegalArgumentException.] */
+        int decodedLength = getDecodedLength(base64Values, base64Offset, base64Length);
+
+        /* Codes_SRS_BASE64_21_016: [If the `destination` is null, or it has no room for the decoded bytes after `destinationOffset`, the decodeBase64Local shall throw IllegalArgumentException.] */
+        checkRange(destination, destinationOffset, decodedLength, "destination");
+
+        /* Codes_SRS_BASE64_21_017: [The decodeBase64Local shall decode the range of `base64Values` in the `destination` starting at `destinationOffset`, and return the number of decoded bytes.] */
+        if (base64Length > 0)
         {
-            byte c1 = byteToBase64(base64Values[indexOfFirstEncodedByte++]);
-            byte c2 = byteToBase64(base64Values[indexOfFirstEncodedByte++]);
-            byte c3 = byteToBase64(base64Values[indexOfFirstEncodedByte++]);
-            byte c4 = byteToBase64(base64Values[indexOfFirstEncodedByte++]);
-            decodedResult[decodedIndex++] = (byte)((c1 << HALF_NIBBLE) | (c2 >> ONE_NIBBLE));
-            decodedResult[decodedIndex++] = (byte)((c2 << ONE_NIBBLE) | (c3 >> HALF_NIBBLE));
-            decodedResult[decodedIndex++] = (byte)((c3 << ONE_AND_HALF_NIBBLE) | c4);
-            numberOfEncodedBytes -= BASE64_GROUP_SIZE;
+            decodeBase64Internal(base64Values, base64Offset, base64Length, destination, destinationOffset);
         }
+        return decodedLength;
+    }
 
-        if(numberOfEncodedBytes == 3)
+    /**
+     * Decode the remaining base64 values of the source in the destination, from their positions. On success, the
+     * position of the source moves to its limit, and the position of the destination moves after the decoded bytes.
+     *
+     * @param base64Values is the buffer with the base64 encoded values
+     * @param destination is the buffer that receives the original values
+     * @return the number of bytes written in the destination
+     * @throws IllegalArgumentException if one of the buffers is null, the base64 values are invalid, or the
+     *                                  destination has not enough remaining space
+     */
+    public static int decodeBase64Local(final ByteBuffer base64Values, final ByteBuffer destination) throws IllegalArgumentException
+    {
+        /* Codes_SRS_BASE64_21_018: [If the `base64Values` or the `destination` is null, the decodeBase64Local shall throw IllegalArgumentException.] */
+        if ((base64Values == null) || (destination == null))
         {
-            byte c1 = byteToBase64(base64Values[indexOfFirstEncodedByte++]);
-            byte c2 = byteToBase64(base64Values[indexOfFirstEncodedByte++]);
-            byte c3 = byteToBase64(base64Values[indexOfFirstEncodedByte]);
-            decodedResult[decodedIndex++] = (byte)((c1 << HALF_NIBBLE) | (c2 >> ONE_NIBBLE));
-            decodedResult[decodedIndex] = (byte)((c2 << ONE_NIBBLE) | (c3 >> HALF_NIBBLE));
+            throw new IllegalArgumentException("null base64Values or destination");
         }
 
-        if(numberOfEncodedBytes == 2)
+        /* Codes_SRS_BASE64_21_019: [If the remaining `base64Values` are invalid, or the `destination` has not enough remaining space, the decodeBase64Local shall throw IllegalArgumentException, and not change the buffer positions.] */
+        /* Codes_SRS_BASE64_21_020: [The decodeBase64Local shall decode the remaining `base64Values` in the `destination`, move both positions, and return the number of decoded bytes.] */
+        byte[] values;
+        int valuesOffset;
+        if (base64Values.hasArray())
         {
-            byte c1 = byteToBase64(base64Values[indexOfFirstEncodedByte++]);
-            byte c2 = byteToBase64(base64Values[indexOfFirstEncodedByte]);
-            decodedResult[decodedIndex] = (byte)((c1 << HALF_NIBBLE) | (c2 >> ONE_NIBBLE));
+            values = base64Values.array();
+            valuesOffset = base64Values.arrayOffset() + base64Values.position();
+        }
+        else
+        {
+            values = new byte[base64Values.remaining()];
+            base64Values.duplicate().get(values);
+            valuesOffset = 0;
         }
 
-        return decodedResult;
+        int decodedLength = getDecodedLength(values, valuesOffset, base64Values.remaining());
+        if (decodedLength > destination.remaining())
+        {
+            throw new IllegalArgumentException("destination is too small");
+        }
+
+        if (destination.hasArray() && !destination.isReadOnly())
+        {
+            decodeBase64Local(values, valuesOffset, base64Values.remaining(), destination.array(), destination.arrayOffset() + destination.position());
+        }
+        else
+        {
+            byte[] decoded = new byte[decodedLength];
+            decodeBase64Local(values, valuesOffset, base64Values.remaining(), decoded, 0);
+            destination.duplicate().put(decoded);
+        }
+
+        base64Values.position(base64Values.limit());
+        destination.position(destination.position() + decodedLength);
+        return decodedLength;
     }
 
     /**
@@ -254,7 +304,95 @@ public final class Base64
         }
 
         /* Codes_SRS_BASE64_21_005: [The encodeBase64Local shall encoded the provided `dataValues` in a byte array using the Base64 format define in the RFC2045.] */
-        return encodeBase64Internal(dataValues);
+        if (IS_JDK_BASE64_AVAILABLE)
+        {
+            return JdkBase64.encode(dataValues);
+        }
+
+        byte[] encodedResult = new byte[getEncodedLength(dataValues.length)];
+        encodeBase64Internal(dataValues, 0, dataValues.length, encodedResult, 0);
+        return encodedResult;
+    }
+
+    /**
+     * Encode the provided bytes in the caller supplied destination, without any allocation.
+     * <a href="http://www.ietf.org/rfc/rfc2045.txt">RFC 2045</a>.
+     *
+     * @param dataValues is an array with the original values
+     * @param dataOffset is the index of the first original value
+     * @param dataLength is the number of original values
+     * @param destination is the array that receives the base64 encoded values
+     * @param destinationOffset is the index in the destination of the first base64 value
+     * @return the number of base64 values written in the destination, that is {@link #getEncodedLength(int)}
+     * @throws IllegalArgumentException if the provided values are null, or out of the array, or the destination is too small
+     */
+    public static int encodeBase64Local(final byte[] dataValues, final int dataOffset, final int dataLength,
+                                        final byte[] destination, final int destinationOffset) throws IllegalArgumentException
+    {
+        /* Codes_SRS_BASE64_21_021: [If the `dataValues` is null, or the range is out of the array, the encodeBase64Local shall throw IllegalArgumentException.] */
+        checkRange(dataValues, dataOffset, dataLength, "dataValues");
+
+        /* Codes_SRS_BASE64_21_022: [If the `destination` is null, or it has no room for the encoded values after `destinationOffset`, the encodeBase64Local shall throw IllegalArgumentException.] */
+        int encodedLength = getEncodedLength(dataLength);
+        checkRange(destination, destinationOffset, encodedLength, "destination");
+
+        /* Codes_SRS_BASE64_21_023: [The encodeBase64Local shall encode the range of `dataValues` in the `destination` starting at `destinationOffset`, and return the number of base64 values.] */
+        return encodeBase64Internal(dataValues, dataOffset, dataLength, destination, destinationOffset);
+    }
+
+    /**
+     * Encode the remaining bytes of the source in the destination, from their positions. On success, the position
+     * of the source moves to its limit, and the position of the destination moves after the base64 values.
+     *
+     * @param dataValues is the buffer with the original values
+     * @param destination is the buffer that receives the base64 encoded values
+     * @return the number of base64 values written in the destination
+     * @throws IllegalArgumentException if one of the buffers is null, or the destination has not enough remaining space
+     */
+    public static int encodeBase64Local(final ByteBuffer dataValues, final ByteBuffer destination) throws IllegalArgumentException
+    {
+        /* Codes_SRS_BASE64_21_024: [If the `dataValues` or the `destination` is null, the encodeBase64Local shall throw IllegalArgumentException.] */
+        if ((dataValues == null) || (destination == null))
+        {
+            throw new IllegalArgumentException("null dataValues or destination");
+        }
+
+        /* Codes_SRS_BASE64_21_025: [If the `destination` has not enough remaining space, the encodeBase64Local shall throw IllegalArgumentException, and not change the buffer positions.] */
+        int encodedLength = getEncodedLength(dataValues.remaining());
+        if (encodedLength > destination.remaining())
+        {
+            throw new IllegalArgumentException("destination is too small");
+        }
+
+        /* Codes_SRS_BASE64_21_026: [The encodeBase64Local shall encode the remaining `dataValues` in the `destination`, move both positions, and return the number of base64 values.] */
+        if (dataValues.hasArray() && destination.hasArray() && !destination.isReadOnly())
+        {
+            encodeBase64Internal(dataValues.array(), dataValues.arrayOffset() + dataValues.position(), dataValues.remaining(),
+                    destination.array(), destination.arrayOffset() + destination.position());
+            dataValues.position(dataValues.limit());
+            destination.position(destination.position() + encodedLength);
+        }
+        else
+        {
+            while (dataValues.remaining() >= BYTE_GROUP_SIZE)
+            {
+                int bits = ((dataValues.get() & ISOLATE_BYTE) << TWO_BYTES) | ((dataValues.get() & ISOLATE_BYTE) << ONE_BYTE) | (dataValues.get() & ISOLATE_BYTE);
+                destination.put(BASE64_ALPHABET[(bits >>> THREE_BASE64) & ISOLATE_BASE64]);
+                destination.put(BASE64_ALPHABET[(bits >>> TWO_BASE64) & ISOLATE_BASE64]);
+                destination.put(BASE64_ALPHABET[(bits >>> ONE_BASE64) & ISOLATE_BASE64]);
+                destination.put(BASE64_ALPHABET[bits & ISOLATE_BASE64]);
+            }
+            if (dataValues.hasRemaining())
+            {
+                byte[] tail = new byte[BASE64_GROUP_SIZE];
+                byte[] data = new byte[dataValues.remaining()];
+                dataValues.get(data);
+                encodeBase64Internal(data, 0, data.length, tail, 0);
+                destination.put(tail);
+            }
+        }
+
+        return encodedLength;
     }
 
     /**
@@ -280,45 +418,90 @@ public final class Base64
         }
 
         /* Codes_SRS_BASE64_21_008: [The encodeBase64StringLocal shall encoded the provided `dataValues` in a string using the Base64 format define in the RFC2045.] */
-        return new String(encodeBase64Internal(dataValues));
+        if (IS_JDK_BASE64_AVAILABLE)
+        {
+            return JdkBase64.encodeToString(dataValues);
+        }
+
+        byte[] encodedResult = new byte[getEncodedLength(dataValues.length)];
+        encodeBase64Internal(dataValues, 0, dataValues.length, encodedResult, 0);
+        return new String(encodedResult, StandardCharsets.US_ASCII);
     }
 
-    private static byte[] encodeBase64Internal(byte[] dataValues) throws IllegalArgumentException
+    private static int encodeBase64Internal(final byte[] dataValues, final int dataOffset, final int dataLength,
+                                            final byte[] destination, final int destinationOffset)
     {
-        int encodedLength = (((dataValues.length - 1) / BYTE_GROUP_SIZE) + 1) * BASE64_GROUP_SIZE;
-        int destinationPosition = 0;
-        int currentPosition = 0;
-
-        byte[] encodedResult = new byte[encodedLength];
+        int currentPosition = dataOffset;
+        int groupsEnd = dataOffset + dataLength - (dataLength % BYTE_GROUP_SIZE);
+        int destinationPosition = destinationOffset;
 
-        while((dataValues.length - currentPosition) >= BYTE_GROUP_SIZE)
+        while (currentPosition < groupsEnd)
         {
-            encodedResult[destinationPosition++] = base64ToByte((byte)((dataValues[currentPosition] >> HALF_NIBBLE) & ISOLATE_BASE64));
-            encodedResult[destinationPosition++] = base64ToByte((byte)(((dataValues[currentPosition] << ONE_NIBBLE) & ISOLATE_BASE64) |
-                ((dataValues[currentPosition + 1] >> ONE_NIBBLE) & ISOLATE_LSB_BASE64)));
-            encodedResult[destinationPosition++] = base64ToByte((byte)(((dataValues[currentPosition + 1] << HALF_NIBBLE) & ISOLATE_BASE64) |
-                ((dataValues[currentPosition + 2] >> ONE_AND_HALF_NIBBLE) & ISOLATE_MSB_BASE64)));
-            encodedResult[destinationPosition++] = base64ToByte((byte)(dataValues[currentPosition + 2] & ISOLATE_BASE64));
-            currentPosition += BYTE_GROUP_SIZE;
+            int bits = ((dataValues[currentPosition++] & ISOLATE_BYTE) << TWO_BYTES) |
+                    ((dataValues[currentPosition++] & ISOLATE_BYTE) << ONE_BYTE) |
+                    (dataValues[currentPosition++] & ISOLATE_BYTE);
+            destination[destinationPosition++] = BASE64_ALPHABET[(bits >>> THREE_BASE64) & ISOLATE_BASE64];
+            destination[destinationPosition++] = BASE64_ALPHABET[(bits >>> TWO_BASE64) & ISOLATE_BASE64];
+            destination[destinationPosition++] = BASE64_ALPHABET[(bits >>> ONE_BASE64) & ISOLATE_BASE64];
+            destination[destinationPosition++] = BASE64_ALPHABET[bits & ISOLATE_BASE64];
         }
 
-        if((dataValues.length - currentPosition) == 2)
+        int remaining = dataOffset + dataLength - currentPosition;
+        if (remaining > 0)
         {
-            encodedResult[destinationPosition++] = base64ToByte((byte)((dataValues[currentPosition] >> HALF_NIBBLE) & ISOLATE_BASE64));
-            encodedResult[destinationPosition++] = base64ToByte((byte)(((dataValues[currentPosition] << ONE_NIBBLE) & ISOLATE_BASE64) |
-                ((dataValues[currentPosition + 1] >> ONE_NIBBLE) & ISOLATE_LSB_BASE64)));
-            encodedResult[destinationPosition++] = base64d16ToByte((byte)(dataValues[currentPosition + 1] & ISOLATE_LSB_BASE64));
-            encodedResult[destinationPosition] = BASE64_PAD;
+            int bits = (dataValues[currentPosition] & ISOLATE_BYTE) << TWO_BYTES;
+            if (remaining == 2)
+            {
+                bits |= (dataValues[currentPosition + 1] & ISOLATE_BYTE) << ONE_BYTE;
+            }
+            destination[destinationPosition++] = BASE64_ALPHABET[(bits >>> THREE_BASE64) & ISOLATE_BASE64];
+            destination[destinationPosition++] = BASE64_ALPHABET[(bits >>> TWO_BASE64) & ISOLATE_BASE64];
+            destination[destinationPosition++] = (remaining == 2) ? BASE64_ALPHABET[(bits >>> ONE_BASE64) & ISOLATE_BASE64] : BASE64_PAD;
+            destination[destinationPosition++] = BASE64_PAD;
         }
 
-        if((dataValues.length - currentPosition) == 1)
+        return destinationPosition - destinationOffset;
+    }
+
+    private static void decodeBase64Internal(final byte[] base64Values, final int base64Offset, final int base64Length,
+                                             final byte[] destination, final int destinationOffset) throws IllegalArgumentException
+    {
+        int pads = numberOfPads(base64Values, base64Offset, base64Length);
+        int currentPosition = base64Offset;
+        int groupsEnd = base64Offset + base64Length - (pads == 0 ? 0 : BASE64_GROUP_SIZE);
+        int destinationPosition = destinationOffset;
+
+        while (currentPosition < groupsEnd)
         {
-            encodedResult[destinationPosition++] = base64ToByte((byte)((dataValues[currentPosition] >> HALF_NIBBLE) & ISOLATE_BASE64));
-            encodedResult[destinationPosition++] = base64d8ToByte((byte)(dataValues[currentPosition] & ISOLATE_MSB_BASE64));
-            encodedResult[destinationPosition++] = BASE64_PAD;
-            encodedResult[destinationPosition] = BASE64_PAD;
+            int c1 = BASE64_VALUES[base64Values[currentPosition++] & ISOLATE_BYTE];
+            int c2 = BASE64_VALUES[base64Values[currentPosition++] & ISOLATE_BYTE];
+            int c3 = BASE64_VALUES[base64Values[currentPosition++] & ISOLATE_BYTE];
+            int c4 = BASE64_VALUES[base64Values[currentPosition++] & ISOLATE_BYTE];
+            if ((c1 | c2 | c3 | c4) < 0)
+            {
+                throw new IllegalArgumentException("provided byte value out of base64 range");
+            }
+            int bits = (c1 << THREE_BASE64) | (c2 << TWO_BASE64) | (c3 << ONE_BASE64) | c4;
+            destination[destinationPosition++] = (byte) (bits >>> TWO_BYTES);
+            destination[destinationPosition++] = (byte) (bits >>> ONE_BYTE);
+            destination[destinationPosition++] = (byte) bits;
         }
 
-        return encodedResult;
+        if (pads > 0)
+        {
+            int c1 = BASE64_VALUES[base64Values[currentPosition++] & ISOLATE_BYTE];
+            int c2 = BASE64_VALUES[base64Values[currentPosition++] & ISOLATE_BYTE];
+            int c3 = (pads == 1) ? BASE64_VALUES[base64Values[currentPosition] & ISOLATE_BYTE] : 0;
+            if ((c1 | c2 | c3) < 0)
+            {
+                throw new IllegalArgumentException("provided byte value out of base64 range");
+            }
+            int bits = (c1 << THREE_BASE64) | (c2 << TWO_BASE64) | (c3 << ONE_BASE64);
+            destination[destinationPosition++] = (byte) (bits >>> TWO_BYTES);
+            if (pads == 1)
+            {
+                destination[destinationPosition] = (byte) (bits >>> ONE_BYTE);
+            }
+        }
     }
 }
@@ -0,0 +1,162 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that encodes the bytes written to it in Base64, and writes the base64 values to the wrapped
+ * stream. The bytes are encoded in blocks, so a large body is never held in memory, and the pad of the last
+ * group is written when the stream is finished or closed.
+ */
+public final class Base64OutputStream extends FilterOutputStream
+{
+    private static final int DEFAULT_BLOCK_SIZE = 3 * 1024;
+    private static final int BYTE_GROUP_SIZE = 3;
+
+    private final byte[] pending = new byte[BYTE_GROUP_SIZE];
+    private final byte[] encoded;
+    private final int blockSize;
+    private int pendingLength = 0;
+    private boolean isFinished = false;
+
+    /**
+     * Constructor.
+     *
+     * @param out the stream that receives the base64 values.
+     * @throws IllegalArgumentException if the out is null.
+     */
+    public Base64OutputStream(OutputStream out) throws IllegalArgumentException
+    {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param out the stream that receives the base64 values.
+     * @param blockSize the maximum number of bytes encoded in each write to the out. It is rounded down to a
+     *                  multiple of 3.
+     * @throws IllegalArgumentException if the out is null, or the blockSize is less than 3.
+     */
+    public Base64OutputStream(OutputStream out, int blockSize) throws IllegalArgumentException
+    {
+        super(out);
+
+        /* Codes_SRS_BASE64OUTPUTSTREAM_21_001: [If the `out` is null, or the `blockSize` is less than 3, the constructor shall throw IllegalArgumentException.] */
+        if (out == null)
+        {
+            throw new IllegalArgumentException("out cannot be null");
+        }
+        if (blockSize < BYTE_GROUP_SIZE)
+        {
+            throw new IllegalArgumentException("blockSize cannot be less than 3");
+        }
+
+        this.blockSize = blockSize - (blockSize % BYTE_GROUP_SIZE);
+        this.encoded = new byte[Base64.getEncodedLength(this.blockSize)];
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        checkNotFinished();
+        addPending((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        checkNotFinished();
+        if (b == null)
+        {
+            throw new NullPointerException("b cannot be null");
+        }
+        if ((off < 0) || (len < 0) || (off > (b.length - len)))
+        {
+            throw new IndexOutOfBoundsException("invalid off or len");
+        }
+
+        /* Codes_SRS_BASE64OUTPUTSTREAM_21_003: [The write shall encode the bytes in groups of 3, and keep the last 1 or 2 bytes until the next write.] */
+        while ((this.pendingLength > 0) && (len > 0))
+        {
+            addPending(b[off++]);
+            len--;
+        }
+
+        int groupsLength = len - (len % BYTE_GROUP_SIZE);
+        while (groupsLength > 0)
+        {
+            int blockLength = Math.min(groupsLength, this.blockSize);
+            int encodedLength = Base64.encodeBase64Local(b, off, blockLength, this.encoded, 0);
+            out.write(this.encoded, 0, encodedLength);
+            off += blockLength;
+            len -= blockLength;
+            groupsLength -= blockLength;
+        }
+
+        while (len > 0)
+        {
+            this.pending[this.pendingLength++] = b[off++];
+            len--;
+        }
+    }
+
+    private void checkNotFinished() throws IOException
+    {
+        /* Codes_SRS_BASE64OUTPUTSTREAM_21_002: [If the stream is finished, the write shall throw IOException.] */
+        if (this.isFinished)
+        {
+            throw new IOException("Base64 stream is finished");
+        }
+    }
+
+    private void addPending(byte b) throws IOException
+    {
+        this.pending[this.pendingLength++] = b;
+        if (this.pendingLength == BYTE_GROUP_SIZE)
+        {
+            int encodedLength = Base64.encodeBase64Local(this.pending, 0, BYTE_GROUP_SIZE, this.encoded, 0);
+            out.write(this.encoded, 0, encodedLength);
+            this.pendingLength = 0;
+        }
+    }
+
+    /**
+     * Write the last group of base64 values, with its pad, without closing the wrapped stream. No byte can be
+     * written after it.
+     *
+     * @throws IOException if the wrapped stream failed.
+     */
+    public void finish() throws IOException
+    {
+        /* Codes_SRS_BASE64OUTPUTSTREAM_21_004: [The finish shall encode the pending bytes with the pad, only once.] */
+        if (!this.isFinished)
+        {
+            this.isFinished = true;
+            if (this.pendingLength > 0)
+            {
+                int encodedLength = Base64.encodeBase64Local(this.pending, 0, this.pendingLength, this.encoded, 0);
+                out.write(this.encoded, 0, encodedLength);
+                this.pendingLength = 0;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        /* Codes_SRS_BASE64OUTPUTSTREAM_21_005: [The close shall finish the stream, and close the wrapped stream.] */
+        try
+        {
+            finish();
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
@@ -7,9 +7,8 @@ package com.microsoft.azure.sdk.iot.deps.ws.impl;
 import com.microsoft.azure.sdk.iot.deps.ws.WebSocketHandler;
 import com.microsoft.azure.sdk.iot.deps.ws.WebSocketHeader;
 
-import java.io.ByteArrayOutputStream;
-import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.SecureRandom;
 import java.util.Map;
 import java.util.Random;
@@ -17,6 +16,7 @@ import java.util.Random;
 public class WebSocketHandlerImpl implements WebSocketHandler
 {
     private WebSocketUpgrade _webSocketUpgrade = null;
+    private final Random _random = new SecureRandom();
 
     @Override
     public String createUpgradeRequest(String hostName, String webSocketPath, int webSocketPort, String webSocketProtocol, Map<String, String> additionalHeaders)
@@ -83,23 +83,26 @@ public class WebSocketHandlerImpl implements WebSocketHandler
             throw new IllegalArgumentException("input parameter is null");
         }
 
+        dstBuffer.clear();
         if (srcBuffer.remaining() > 0)
         {
-            // We always send masked data
-            // RFC: "client MUST mask all frames that it sends to the server"
-            final byte[] MASKING_KEY = createRandomMaskingKey();
-
             // Get data length
             final int DATA_LENGTH = srcBuffer.remaining();
 
-            // Auto growing buffer for the WS frame, initialized to minimum size
-            ByteArrayOutputStream webSocketFrame = new ByteArrayOutputStream(WebSocketHeader.MIN_HEADER_LENGTH_MASKED + DATA_LENGTH);
+            // The frame is written directly in the destination buffer, so it shall fit there
+            if (dstBuffer.capacity() < (calculateHeaderSize(DATA_LENGTH) + DATA_LENGTH))
+            {
+                throw new OutOfMemoryError("insufficient output buffer size");
+            }
+
+            // We always send masked data
+            // RFC: "client MUST mask all frames that it sends to the server"
+            final int MASKING_KEY = nextMaskingKey();
 
             // Create the first byte
             // We always send final WebSocket frame
             // We always send binary message (AMQP)
-            byte firstByte = (byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY);
-            webSocketFrame.write(firstByte);
+            dstBuffer.put((byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY));
 
             // Create the second byte
             // RFC: "client MUST mask all frames that it sends to the server"
@@ -108,65 +111,75 @@ public class WebSocketHandlerImpl implements WebSocketHandler
             // RFC: The length of the "Payload data", in bytes: if 0-125, that is the payload length.
             if (DATA_LENGTH <= WebSocketHeader.PAYLOAD_SHORT_MAX)
             {
-                secondByte = (byte) (secondByte | DATA_LENGTH);
-                webSocketFrame.write(secondByte);
+                dstBuffer.put((byte) (secondByte | DATA_LENGTH));
             }
             // RFC: If 126, the following 2 bytes interpreted as a 16-bit unsigned integer are the payload length
             else if (DATA_LENGTH <= WebSocketHeader.PAYLOAD_MEDIUM_MAX)
             {
-                // Create payload byte
-                secondByte = (byte) (secondByte | WebSocketHeader.PAYLOAD_EXTENDED_16);
-                webSocketFrame.write(secondByte);
-
-                // Create extended length bytes
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 8));
-                webSocketFrame.write((byte) (DATA_LENGTH));
+                dstBuffer.put((byte) (secondByte | WebSocketHeader.PAYLOAD_EXTENDED_16));
+                putBigEndian(dstBuffer, DATA_LENGTH, 2);
             }
             // RFC: If 127, the following 8 bytes interpreted as a 64-bit unsigned integer (the most significant bit MUST be 0) are the payload length.
-            // No need for "else if" because if it is longer than what 8 byte length can hold... all bets are off anyway
             else
             {
-                secondByte = (byte) (secondByte | WebSocketHeader.PAYLOAD_EXTENDED_64);
-                webSocketFrame.write(secondByte);
-
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 56));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 48));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 40));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 32));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 24));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 16));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 8));
-                webSocketFrame.write((byte) (DATA_LENGTH));
+                dstBuffer.put((byte) (secondByte | WebSocketHeader.PAYLOAD_EXTENDED_64));
+                putBigEndian(dstBuffer, 0, 4);
+                putBigEndian(dstBuffer, DATA_LENGTH, 4);
             }
 
             // Write mask
-            webSocketFrame.write(MASKING_KEY[0]);
-            webSocketFrame.write(MASKING_KEY[1]);
-            webSocketFrame.write(MASKING_KEY[2]);
-            webSocketFrame.write(MASKING_KEY[3]);
+            putBigEndian(dstBuffer, MASKING_KEY, 4);
 
             // Write masked data
-            for (int i = 0; i < DATA_LENGTH; i++)
-            {
-                byte nextByte = srcBuffer.get();
-                nextByte ^= MASKING_KEY[i % 4];
-                webSocketFrame.write(nextByte);
-            }
+            maskPayload(srcBuffer, dstBuffer, DATA_LENGTH, MASKING_KEY);
+        }
+    }
 
-            // Copy frame to destination buffer
-            dstBuffer.clear();
-            if (dstBuffer.capacity() >= webSocketFrame.size())
-            {
-                dstBuffer.put(webSocketFrame.toByteArray());
-            }
-            else
-            {
-                throw new OutOfMemoryError("insufficient output buffer size");
-            }
+    /**
+     * Copy the payload from the source to the destination buffer, masking it with the provided key. The payload is
+     * masked 8 bytes at a time, and only the last bytes, that do not fill a word, are masked one by one.
+     *
+     * @param srcBuffer the buffer with the payload, from its position.
+     * @param dstBuffer the buffer for the masked payload, from its position.
+     * @param length the number of bytes to mask.
+     * @param maskingKey the masking key, with its first byte in the most significant bits.
+     */
+    private static void maskPayload(ByteBuffer srcBuffer, ByteBuffer dstBuffer, int length, int maskingKey)
+    {
+        // The word masks are in the byte order of each buffer, so any byte order reads and writes the same bytes
+        final long WORD_MASK = ((long) maskingKey << 32) | (maskingKey & 0xFFFFFFFFL);
+        final long SRC_MASK = (srcBuffer.order() == ByteOrder.BIG_ENDIAN) ? WORD_MASK : Long.reverseBytes(WORD_MASK);
+        final boolean SAME_ORDER = (srcBuffer.order() == dstBuffer.order());
+
+        int i = 0;
+        for (; i <= (length - 8); i += 8)
+        {
+            long word = srcBuffer.getLong() ^ SRC_MASK;
+            dstBuffer.putLong(SAME_ORDER ? word : Long.reverseBytes(word));
         }
-        else
+
+        // Each word has 8 bytes, so the remaining bytes start on the first byte of the key
+        for (; i < length; i++)
         {
-            dstBuffer.clear();
+            dstBuffer.put((byte) (srcBuffer.get() ^ (maskingKey >>> (24 - (8 * (i & 3))))));
+        }
+    }
+
+    private static long getBigEndian(ByteBuffer buffer, int numberOfBytes)
+    {
+        long value = 0;
+        for (int i = 0; i < numberOfBytes; i++)
+        {
+            value = (value << 8) | (buffer.get() & 0xFF);
+        }
+        return value;
+    }
+
+    private static void putBigEndian(ByteBuffer buffer, int value, int numberOfBytes)
+    {
+        for (int shift = 8 * (numberOfBytes - 1); shift >= 0; shift -= 8)
+        {
+            buffer.put((byte) (value >>> shift));
         }
     }
 
@@ -182,7 +195,7 @@ public class WebSocketHandlerImpl implements WebSocketHandler
 
         WebSocketMessageType retVal = WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_UNKNOWN;
 
-        if (srcBuffer.remaining() > WebSocketHeader.MIN_HEADER_LENGTH)
+        if (srcBuffer.remaining() >= WebSocketHeader.MIN_HEADER_LENGTH)
         {
             // Read the first byte
             byte firstByte = srcBuffer.get();
@@ -203,13 +216,13 @@ public class WebSocketHandlerImpl implements WebSocketHandler
             }
             else if (payloadLength == WebSocketHeader.PAYLOAD_EXTENDED_16)
             {
-                // Check if we have enough bytes to read
-                try
+                // Check if we have enough bytes to read, without the cost of an underflow exception
+                if (srcBuffer.remaining() >= 2)
                 {
-                    //Apply mask to turn into unsigned value
-                    finalPayloadLength = srcBuffer.getShort() & 0xFFFF;
+                    // The extended length is always big endian, whatever the order of the buffer
+                    finalPayloadLength = getBigEndian(srcBuffer, 2);
                 }
-                catch (BufferUnderflowException e)
+                else
                 {
                     retVal = WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_HEADER_CHUNK;
                 }
@@ -217,11 +230,11 @@ public class WebSocketHandlerImpl implements WebSocketHandler
             else if (payloadLength == WebSocketHeader.PAYLOAD_EXTENDED_64)
             {
                 //Check if we have enough bytes to read
-                try
+                if (srcBuffer.remaining() >= 8)
                 {
-                    finalPayloadLength = srcBuffer.getLong();
+                    finalPayloadLength = getBigEndian(srcBuffer, 8);
                 }
-                catch (BufferUnderflowException e)
+                else
                 {
                     retVal = WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_HEADER_CHUNK;
                 }
@@ -263,13 +276,15 @@ public class WebSocketHandlerImpl implements WebSocketHandler
         return new WebSocketUpgrade(hostName, webSocketPath, webSocketPort, webSocketProtocol, additionalHeaders);
     }
 
-    protected byte[] createRandomMaskingKey()
+    /**
+     * Create a new masking key for a frame. The keys come from a random generator created once per handler, so
+     * each connection does not pay to seed a new generator for every frame.
+     *
+     * @return the masking key, with its first byte in the most significant bits.
+     */
+    protected int nextMaskingKey()
     {
-        final byte[] maskingKey = new byte[4];
-        Random random = new SecureRandom();
-        random.nextBytes(maskingKey);
-
-        return maskingKey;
+        return _random.nextInt();
     }
 
     public int calculateHeaderSize(int payloadSize)
@@ -28,7 +28,7 @@ public class WebSocketImpl implements WebSocket, TransportLayer
     private final ByteBuffer _outputBuffer;
     private ByteBuffer _pingBuffer;
     private ByteBuffer _wsInputBuffer;
-    private ByteBuffer _temp;
+    private final ByteBuffer _headerBuffer;
 
     private int _underlyingOutputSize = 0;
     private int _webSocketHeaderSize = 0;
@@ -47,7 +47,6 @@ public class WebSocketImpl implements WebSocket, TransportLayer
     private WebSocketHandler.WebSocketMessageType _lastType;
     private long _lastLength;
     private long _bytesRead = 0;
-    private int _dataStart = 0;
     private WebSocketFrameReadState _frameReadState = WebSocketFrameReadState.INIT_READ;
 
     public WebSocketImpl()
@@ -56,7 +55,7 @@ public class WebSocketImpl implements WebSocket, TransportLayer
         _outputBuffer = newWriteableBuffer(_maxFrameSize);
         _pingBuffer = newWriteableBuffer(_maxFrameSize);
         _wsInputBuffer = newWriteableBuffer(_maxFrameSize);
-        _temp = newWriteableBuffer(_maxFrameSize);
+        _headerBuffer = newWriteableBuffer(WebSocketHeader.MAX_HEADER_LENGTH_MASKED);
         _lastType = WEB_SOCKET_MESSAGE_TYPE_UNKNOWN;
         _lastLength = 0;
         _isWebSocketEnabled = false;
@@ -227,60 +226,183 @@ public class WebSocketImpl implements WebSocket, TransportLayer
             _head.limit(0);
         }
 
-        private void readInputBuffer()
+        /**
+         * Decode the frames received since the last call. A frame, or its header, may be split across any number
+         * of reads, and a data message may be fragmented in continuation frames with control frames between them.
+         *
+         * <p>
+         *     The payload of the binary and continuation frames is poured straight from the read buffer to the
+         *     underlying input, and only the bytes of a header split between two reads are staged. The backlog is
+         *     used only if the underlying input cannot take all the payload, so the next read keeps the order.
+         * </p>
+         */
+        private void readFrames()
         {
-            ByteBufferUtils.pour(_inputBuffer, _temp);
+            if (_wsInputBuffer.position() > 0)
+            {
+                ByteBufferUtils.pour(_inputBuffer, _wsInputBuffer);
+                _wsInputBuffer.flip();
+                readFrames(_wsInputBuffer);
+                _wsInputBuffer.compact();
+            }
+
+            if (_wsInputBuffer.position() == 0)
+            {
+                readFrames(_inputBuffer);
+                ByteBufferUtils.pour(_inputBuffer, _wsInputBuffer);
+            }
+        }
+
+        private void readFrames(ByteBuffer source)
+        {
+            while (source.hasRemaining())
+            {
+                if (_frameReadState == WebSocketFrameReadState.CONTINUED_FRAME_READ)
+                {
+                    if (readPayload(source) == 0)
+                    {
+                        //The underlying input is full, keep the rest for the next read
+                        return;
+                    }
+                }
+                else
+                {
+                    readHeader(source);
+                }
+            }
+        }
+
+        private void readHeader(ByteBuffer source)
+        {
+            if ((_headerBuffer.position() == 0) && (source.remaining() >= WebSocketHeader.MIN_HEADER_LENGTH))
+            {
+                int headerLength = getHeaderLength(source.get(source.position() + 1));
+                if (source.remaining() >= headerLength)
+                {
+                    //The whole header is in the buffer, unwrap it in place
+                    ByteBuffer header = source.slice();
+                    header.limit(headerLength);
+                    startFrame(header);
+                    source.position(source.position() + header.position());
+                    return;
+                }
+            }
+
+            //The header is split between reads, stage only its bytes until it is complete
+            _frameReadState = WebSocketFrameReadState.CHUNK_READ;
+            while (source.hasRemaining() && (_headerBuffer.position() < getStagedHeaderLength()))
+            {
+                _headerBuffer.put(source.get());
+            }
+
+            if (_headerBuffer.position() == getStagedHeaderLength())
+            {
+                _headerBuffer.flip();
+                startFrame(_headerBuffer);
+                _headerBuffer.clear();
+            }
+        }
+
+        private int getStagedHeaderLength()
+        {
+            return (_headerBuffer.position() < WebSocketHeader.MIN_HEADER_LENGTH) ? WebSocketHeader.MIN_HEADER_LENGTH : getHeaderLength(_headerBuffer.get(1));
         }
 
-        private boolean sendToUnderlyingInput()
+        private int getHeaderLength(byte secondByte)
         {
-            boolean _readComplete =  false;
+            byte payloadLength = (byte) (secondByte & WebSocketHeader.PAYLOAD_MASK);
+            if (payloadLength == WebSocketHeader.PAYLOAD_EXTENDED_16)
+            {
+                return WebSocketHeader.MED_HEADER_LENGTH_NOMASK;
+            }
+            else if (payloadLength == WebSocketHeader.PAYLOAD_EXTENDED_64)
+            {
+                return WebSocketHeader.MAX_HEADER_LENGTH_NOMASK;
+            }
+            return WebSocketHeader.MIN_HEADER_LENGTH;
+        }
+
+        private void startFrame(ByteBuffer header)
+        {
+            WebSocketHandler.WebsocketTuple unwrapResult = unwrapBuffer(header);
+            _lastType = unwrapResult.getType();
+            _lastLength = Math.max(0, unwrapResult.getLength());
+            _bytesRead = 0;
+
+            if ((_lastType == WebSocketHandler.WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_PING) ||
+                    (_lastType == WebSocketHandler.WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_CLOSE))
+            {
+                //Keep the whole control frame, a data message may continue after it
+                ByteBuffer headerRead = header.duplicate();
+                headerRead.flip();
+                _pingBuffer.clear();
+                _pingBuffer.put(headerRead);
+            }
+
+            _frameReadState = WebSocketFrameReadState.CONTINUED_FRAME_READ;
+            if (_lastLength == 0)
+            {
+                endFrame();
+            }
+        }
+
+        private int readPayload(ByteBuffer source)
+        {
+            int start = source.position();
+            int limit = source.limit();
+            source.limit(start + (int) Math.min(source.remaining(), _lastLength - _bytesRead));
+
             switch (_lastType)
             {
-                case WEB_SOCKET_MESSAGE_TYPE_UNKNOWN:
-                    _wsInputBuffer.position(_wsInputBuffer.limit());
-                    _wsInputBuffer.limit(_wsInputBuffer.capacity());
-                    break;
-                case WEB_SOCKET_MESSAGE_TYPE_CHUNK:
-                    _wsInputBuffer.position(_wsInputBuffer.limit());
-                    _wsInputBuffer.limit(_wsInputBuffer.capacity());
-                    break;
                 case WEB_SOCKET_MESSAGE_TYPE_AMQP:
-                    _wsInputBuffer.flip();
-
-                    int bytes2 = pourAll(_wsInputBuffer, _underlyingInput);
-                    if (bytes2 == Transport.END_OF_STREAM)
+                case WEB_SOCKET_MESSAGE_TYPE_CHUNK:
+                    if (_underlyingInput.capacity() == Transport.END_OF_STREAM)
                     {
                         _tail_closed = true;
+                        source.position(source.limit());
+                    }
+                    else
+                    {
+                        pourAll(source, _underlyingInput);
                     }
-                    //_underlyingInput.process();
-
-                    _wsInputBuffer.compact();
-                    _wsInputBuffer.flip();
-                    _readComplete = true;
                     break;
+                case WEB_SOCKET_MESSAGE_TYPE_PING:
                 case WEB_SOCKET_MESSAGE_TYPE_CLOSE:
-                    _wsInputBuffer.flip();
-                    _pingBuffer.put(_wsInputBuffer);
-                    _state = WebSocketState.PN_WS_CONNECTED_CLOSING;
-
-                    _wsInputBuffer.compact();
-                    _wsInputBuffer.flip();
-                    _readComplete = true;
+                    ByteBufferUtils.pour(source, _pingBuffer);
+                    source.position(source.limit());
                     break;
+                default:
+                    //Skip the payload of the frames that are not used, like pong
+                    source.position(source.limit());
+                    break;
+            }
+
+            int bytesRead = source.position() - start;
+            source.limit(limit);
+
+            _bytesRead += bytesRead;
+            if (_bytesRead == _lastLength)
+            {
+                endFrame();
+            }
+
+            return bytesRead;
+        }
+
+        private void endFrame()
+        {
+            switch (_lastType)
+            {
                 case WEB_SOCKET_MESSAGE_TYPE_PING:
-                    _wsInputBuffer.flip();
-                    _pingBuffer.put(_wsInputBuffer);
                     _state = WebSocketState.PN_WS_CONNECTED_PONG;
-
-                    _wsInputBuffer.compact();
-                    _wsInputBuffer.flip();
-                    _readComplete = true;
+                    break;
+                case WEB_SOCKET_MESSAGE_TYPE_CLOSE:
+                    _state = WebSocketState.PN_WS_CONNECTED_CLOSING;
+                    break;
+                default:
                     break;
             }
-            _wsInputBuffer.position(_wsInputBuffer.limit());
-            _wsInputBuffer.limit(_wsInputBuffer.capacity());
-            return _readComplete;
+            _frameReadState = WebSocketFrameReadState.INIT_READ;
         }
 
         private void processInput() throws TransportException
@@ -296,96 +418,7 @@ public class WebSocketImpl implements WebSocket, TransportLayer
                     break;
                 case PN_WS_CONNECTED_FLOW:
                 case PN_WS_CONNECTED_PONG:
-
-                    if (_inputBuffer.remaining() > 0)
-                    {
-                        boolean _readComplete = false;
-                        while(!_readComplete) {
-                            switch (_frameReadState)
-                            {
-                                //State 1: Init_Read
-                                case INIT_READ:
-                                    //Reset the bytes read count
-                                    _bytesRead = 0;
-                                    //Determine how much to grab from the input buffer and only take that
-                                    readInputBuffer();
-
-                                    _frameReadState = _temp.position() < 2 ? WebSocketFrameReadState.CHUNK_READ : WebSocketFrameReadState.HEADER_READ;
-                                    _readComplete = _frameReadState == WebSocketFrameReadState.CHUNK_READ;
-                                    break;
-
-                                //State 2: Chunk_Read
-                                case CHUNK_READ:
-                                    //Determine how much to grab from the input buffer and only take that
-                                    readInputBuffer();
-
-                                    _frameReadState = _temp.position() < 2 ? _frameReadState : WebSocketFrameReadState.HEADER_READ;
-                                    _readComplete = _frameReadState == WebSocketFrameReadState.CHUNK_READ;
-                                    break;
-
-                                //State 3: Header_Read
-                                case HEADER_READ:
-                                    //Determine how much to grab from the input buffer and only take that
-                                    readInputBuffer();
-
-                                    _temp.flip();
-                                    WebSocketHandler.WebsocketTuple unwrapResult = unwrapBuffer(_temp);
-                                    _lastType = unwrapResult.getType();
-                                    _lastLength = unwrapResult.getLength();
-
-                                    _frameReadState = _lastType == WEB_SOCKET_MESSAGE_TYPE_HEADER_CHUNK ? WebSocketFrameReadState.CHUNK_READ : WebSocketFrameReadState.CONTINUED_FRAME_READ;
-                                    _readComplete = _frameReadState == WebSocketFrameReadState.CHUNK_READ || _temp.position() == _temp.limit();
-
-                                    if(_frameReadState == WebSocketFrameReadState.CONTINUED_FRAME_READ)
-                                    {
-                                        _temp.compact();
-                                    }
-                                    else
-                                    {
-                                        //Unflip the buffer to continue writing to it
-                                        _temp.position(_temp.limit());
-                                        _temp.limit(_temp.capacity());
-                                    }
-
-                                    break;
-
-                                //State 4: Continued_Frame_Read (Similar to Chunk_Read but reading until we've read the number of bytes specified when unwrapping the buffer)
-                                case CONTINUED_FRAME_READ:
-                                    //Determine how much to grab from the input buffer and only take that
-                                    readInputBuffer();
-                                    _temp.flip();
-
-                                    final byte[] data;
-                                    if(_temp.remaining() >= _lastLength-_bytesRead)
-                                    {
-                                        data = new byte[(int)(_lastLength-_bytesRead)];
-                                        _temp.get(data, 0, (int)(_lastLength-_bytesRead));
-                                        _wsInputBuffer.put(data);
-                                        _bytesRead += _lastLength-_bytesRead;
-                                    }
-                                    //Otherwise the remaining bytes is < the rest that we need
-                                    else
-                                    {
-                                        data = new byte[_temp.remaining()];
-                                        _temp.get(data);
-                                        _wsInputBuffer.put(data);
-                                        _bytesRead += data.length;
-                                    }
-
-                                    //Send whatever we have
-                                    sendToUnderlyingInput();
-
-                                    _frameReadState = _bytesRead == _lastLength ? WebSocketFrameReadState.INIT_READ : WebSocketFrameReadState.CONTINUED_FRAME_READ;
-                                    _readComplete = _temp.remaining() == 0;
-                                    _temp.compact();
-                                    break;
-
-                                //State 5: Read_Error
-                                case READ_ERROR:
-                                    break;
-                            }
-                        }
-                    }
+                    readFrames();
                     _inputBuffer.compact();
                     break;
                 case PN_WS_NOT_STARTED:
@@ -460,6 +493,7 @@ public class WebSocketImpl implements WebSocket, TransportLayer
                 {
                     case PN_WS_CONNECTING:
                     case PN_WS_CONNECTED_FLOW:
+                    case PN_WS_CONNECTED_PONG:
                         processInput();
                         break;
                     case PN_WS_NOT_STARTED:
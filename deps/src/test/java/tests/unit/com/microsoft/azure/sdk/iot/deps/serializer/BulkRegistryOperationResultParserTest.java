@@ -0,0 +1,116 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.BulkRegistryOperationResultParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceRegistryOperationErrorParser;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the BulkRegistryOperationResultParser and DeviceRegistryOperationErrorParser.
+ * 100% methods, 100% lines covered
+ */
+public class BulkRegistryOperationResultParserTest
+{
+    /* Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_001: [If the provided json is null or empty, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullJsonThrows()
+    {
+        // act
+        new BulkRegistryOperationResultParser(null);
+    }
+
+    /* Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_001: [If the provided json is null or empty, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorEmptyJsonThrows()
+    {
+        // act
+        new BulkRegistryOperationResultParser("");
+    }
+
+    /* Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_003: [If the provided json is not valid, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorInvalidJsonThrows()
+    {
+        // act
+        new BulkRegistryOperationResultParser("{\"isSuccessful\":true,\"errors\":{");
+    }
+
+    /* Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_004: [If the provided json does not contain the isSuccessful field, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorMissingIsSuccessfulThrows()
+    {
+        // act
+        new BulkRegistryOperationResultParser("{\"errors\":[]}");
+    }
+
+    /* Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_002: [The constructor shall parse the provided json and store the isSuccessful and the per-device errors.] */
+    /* Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_005: [The isSuccessful shall return the value of the isSuccessful.] */
+    /* Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_006: [The getErrors shall return the unmodifiable list of the per-device errors, or an empty list if there are no errors.] */
+    @Test
+    public void constructorSuccessWithoutErrors()
+    {
+        // act
+        BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser("{\"isSuccessful\":true,\"errors\":[],\"warnings\":[]}");
+
+        // assert
+        assertTrue(parser.isSuccessful());
+        assertTrue(parser.getErrors().isEmpty());
+    }
+
+    /* Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_006: [The getErrors shall return the unmodifiable list of the per-device errors, or an empty list if there are no errors.] */
+    @Test
+    public void constructorWithoutErrorsFieldReturnsEmptyList()
+    {
+        // act
+        BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser("{\"isSuccessful\":true}");
+
+        // assert
+        assertTrue(parser.getErrors().isEmpty());
+    }
+
+    /* Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_002: [The constructor shall parse the provided json and store the isSuccessful and the per-device errors.] */
+    /* Tests_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_21_001: [The getDeviceId shall return the value of the deviceId.] */
+    /* Tests_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_21_002: [The getErrorCode shall return the value of the errorCode.] */
+    /* Tests_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_21_003: [The getErrorStatus shall return the value of the errorStatus.] */
+    @Test
+    public void constructorParsesPerDeviceErrors()
+    {
+        // arrange
+        String json =
+                "{\"isSuccessful\":false,\"errors\":[" +
+                "{\"deviceId\":\"device1\",\"errorCode\":\"DeviceAlreadyExists\",\"errorStatus\":\"A device with ID 'device1' is already registered.\"}," +
+                "{\"deviceId\":\"device2\",\"errorCode\":412002,\"errorStatus\":\"Precondition failed\"}],\"warnings\":[]}";
+
+        // act
+        BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser(json);
+
+        // assert
+        assertFalse(parser.isSuccessful());
+        List<DeviceRegistryOperationErrorParser> errors = parser.getErrors();
+        assertEquals(2, errors.size());
+        assertEquals("device1", errors.get(0).getDeviceId());
+        assertEquals("DeviceAlreadyExists", errors.get(0).getErrorCode());
+        assertEquals("A device with ID 'device1' is already registered.", errors.get(0).getErrorStatus());
+        assertEquals("device2", errors.get(1).getDeviceId());
+        assertEquals("412002", errors.get(1).getErrorCode());
+    }
+
+    /* Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_21_006: [The getErrors shall return the unmodifiable list of the per-device errors, or an empty list if there are no errors.] */
+    @Test (expected = UnsupportedOperationException.class)
+    public void getErrorsIsUnmodifiable()
+    {
+        // arrange
+        BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser("{\"isSuccessful\":true}");
+
+        // act
+        parser.getErrors().clear();
+    }
+}
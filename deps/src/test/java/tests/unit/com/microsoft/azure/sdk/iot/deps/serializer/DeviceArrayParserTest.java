@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceArrayParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Code coverage:
+ * 100% Methods
+ * 100% lines
+ */
+public class DeviceArrayParserTest
+{
+    private static final String DEVICE_1 =
+            "{\"deviceId\":\"device1\",\"generationId\":\"1\",\"etag\":\"MA==\",\"status\":\"enabled\"," +
+            "\"statusUpdatedTime\":\"2017-09-14T16:41:23\",\"cloudToDeviceMessageCount\":3,\"unknown\":[1,{\"a\":null}]," +
+            "\"authentication\":{\"symmetricKey\":{\"primaryKey\":\"AAECAwQFBgcICQoLDA0ODw==\",\"secondaryKey\":\"EBESExQVFhcYGRobHB0eHw==\"}}}";
+    private static final String DEVICE_2 =
+            "{\"deviceId\":\"device2\",\"authentication\":{\"type\":\"selfSigned\"," +
+            "\"x509Thumbprint\":{\"primaryThumbprint\":\"0000000000000000000000000000000000000000\"," +
+            "\"secondaryThumbprint\":\"1111111111111111111111111111111111111111\"}}}";
+
+    private static String fullReport(DeviceParser parser)
+    {
+        return parser.getDeviceId() + "|" + parser.geteTag() + "|" + parser.getGenerationId() + "|" + parser.getStatus() + "|" +
+                parser.getStatusUpdatedTime() + "|" + parser.getCloudToDeviceMessageCount() + "|" +
+                parser.getAuthenticationParser().getType() + "|" +
+                (parser.getAuthenticationParser().getSymmetricKey() == null ? null : parser.getAuthenticationParser().getSymmetricKey().getPrimaryKey()) + "|" +
+                (parser.getAuthenticationParser().getThumbprint() == null ? null : parser.getAuthenticationParser().getThumbprint().getPrimaryThumbprint());
+    }
+
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_001: [If the provided reader is null, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullReaderThrows()
+    {
+        // act
+        new DeviceArrayParser(null);
+    }
+
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_002: [The constructor shall not read any content from the provided reader.] */
+    @Test
+    public void constructorDoesNotRead() throws IOException
+    {
+        // arrange
+        final boolean[] isRead = {false};
+        Reader reader = new Reader()
+        {
+            @Override
+            public int read(char[] cbuf, int off, int len)
+            {
+                isRead[0] = true;
+                return -1;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+
+        // act
+        new DeviceArrayParser(reader);
+
+        // assert
+        assertFalse(isRead[0]);
+    }
+
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_007: [The next shall parse the next device record in a single pass, with the same rules as the DeviceParser constructor.] */
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_005: [If the array ended, the hasNext shall return false.] */
+    @Test
+    public void nextParsesSameAsDeviceParser() throws IOException
+    {
+        // arrange
+        DeviceArrayParser arrayParser = new DeviceArrayParser(new StringReader("[" + DEVICE_1 + ",\n" + DEVICE_2 + "]"));
+
+        // act
+        DeviceParser device1 = arrayParser.next();
+        assertTrue(arrayParser.hasNext());
+        DeviceParser device2 = arrayParser.next();
+
+        // assert
+        assertEquals(fullReport(new DeviceParser(DEVICE_1)), fullReport(device1));
+        assertEquals(fullReport(new DeviceParser(DEVICE_2)), fullReport(device2));
+        assertNotNull(device1.getStatusUpdatedTime());
+        assertFalse(arrayParser.hasNext());
+        assertFalse(arrayParser.hasNext());
+        arrayParser.close();
+    }
+
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_004: [The hasNext shall read the content only up to the beginning of the next device record.] */
+    @Test
+    public void hasNextReturnsFirstDeviceBeforeEndOfArray() throws IOException
+    {
+        // arrange
+        final String content = "[" + DEVICE_1 + ",";
+        Reader reader = new Reader()
+        {
+            private int position = 0;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException
+            {
+                if (position >= content.length())
+                {
+                    throw new IOException("the rest of the array is not available");
+                }
+                cbuf[off] = content.charAt(position++);
+                return 1;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        DeviceArrayParser arrayParser = new DeviceArrayParser(reader);
+
+        // act
+        DeviceParser device1 = arrayParser.next();
+
+        // assert
+        assertEquals("device1", device1.getDeviceId());
+    }
+
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_005: [If the array ended, the hasNext shall return false.] */
+    @Test
+    public void hasNextEmptyArrayReturnsFalse() throws IOException
+    {
+        // arrange
+        DeviceArrayParser arrayParser = new DeviceArrayParser(new StringReader("[]"));
+
+        // act - assert
+        assertFalse(arrayParser.hasNext());
+    }
+
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_003: [If the content is not a json array, the hasNext shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void hasNextNotArrayThrows() throws IOException
+    {
+        // arrange
+        DeviceArrayParser arrayParser = new DeviceArrayParser(new StringReader(DEVICE_1));
+
+        // act
+        arrayParser.hasNext();
+    }
+
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_006: [If the array has no more devices, the next shall throw NoSuchElementException.] */
+    @Test (expected = NoSuchElementException.class)
+    public void nextAfterEndOfArrayThrows() throws IOException
+    {
+        // arrange
+        DeviceArrayParser arrayParser = new DeviceArrayParser(new StringReader("[" + DEVICE_2 + "]"));
+        arrayParser.next();
+
+        // act
+        arrayParser.next();
+    }
+
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_008: [If the device record cannot be parsed, the next shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void nextInvalidDeviceThrows() throws IOException
+    {
+        // arrange
+        DeviceArrayParser arrayParser = new DeviceArrayParser(new StringReader("[{\"deviceId\":[1]}]"));
+
+        // act
+        arrayParser.next();
+    }
+
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_008: [If the device record cannot be parsed, the next shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void nextDeviceWithoutAuthenticationThrows() throws IOException
+    {
+        // arrange
+        DeviceArrayParser arrayParser = new DeviceArrayParser(new StringReader("[{\"deviceId\":\"device1\"}]"));
+
+        // act
+        arrayParser.next();
+    }
+
+    /* Tests_SRS_DEVICE_ARRAY_PARSER_21_009: [The close shall close the underlying reader.] */
+    @Test
+    public void closeClosesReader() throws IOException
+    {
+        // arrange
+        final boolean[] isClosed = {false};
+        Reader reader = new StringReader("[]")
+        {
+            @Override
+            public void close()
+            {
+                isClosed[0] = true;
+                super.close();
+            }
+        };
+        DeviceArrayParser arrayParser = new DeviceArrayParser(reader);
+
+        // act
+        arrayParser.close();
+
+        // assert
+        assertTrue(isClosed[0]);
+    }
+}
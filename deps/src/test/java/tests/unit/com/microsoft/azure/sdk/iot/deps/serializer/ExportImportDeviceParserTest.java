@@ -7,6 +7,8 @@ import com.microsoft.azure.sdk.iot.deps.serializer.*;
 import org.junit.Test;
 
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNull;
@@ -410,4 +412,52 @@ public class ExportImportDeviceParserTest
         //act
         new ExportImportDeviceParser(json);
     }
+
+    //Tests_SRS_EXPORTIMPORTDEVICE_PARSER_21_025: [The toJsonArray shall serialize all devices in a single json array, in the order of the collection.]
+    @Test
+    public void toJsonArraySerializesAllDevicesInOrder()
+    {
+        //arrange
+        ExportImportDeviceParser device1 = new ExportImportDeviceParser();
+        device1.setId("device1");
+        device1.setImportMode("create");
+        device1.setAuthentication(new AuthenticationParser());
+        device1.getAuthentication().setType(AuthenticationTypeParser.CERTIFICATE_AUTHORITY);
+        ExportImportDeviceParser device2 = new ExportImportDeviceParser();
+        device2.setId("device2");
+        device2.setETag("MA==");
+        device2.setImportMode("deleteIfMatchETag");
+        device2.setAuthentication(new AuthenticationParser());
+        device2.getAuthentication().setType(AuthenticationTypeParser.CERTIFICATE_AUTHORITY);
+
+        //act
+        String json = ExportImportDeviceParser.toJsonArray(Arrays.asList(device1, device2));
+
+        //assert
+        assertEquals("[" + device1.toJson() + "," + device2.toJson() + "]", json);
+    }
+
+    //Tests_SRS_EXPORTIMPORTDEVICE_PARSER_21_024: [If the provided collection is null, empty, or contains a null device, the toJsonArray shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void toJsonArrayNullThrows()
+    {
+        //act
+        ExportImportDeviceParser.toJsonArray(null);
+    }
+
+    //Tests_SRS_EXPORTIMPORTDEVICE_PARSER_21_024: [If the provided collection is null, empty, or contains a null device, the toJsonArray shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void toJsonArrayEmptyThrows()
+    {
+        //act
+        ExportImportDeviceParser.toJsonArray(new ArrayList<ExportImportDeviceParser>());
+    }
+
+    //Tests_SRS_EXPORTIMPORTDEVICE_PARSER_21_024: [If the provided collection is null, empty, or contains a null device, the toJsonArray shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void toJsonArrayNullDeviceThrows()
+    {
+        //act
+        ExportImportDeviceParser.toJsonArray(Arrays.asList(new ExportImportDeviceParser(), null));
+    }
 }
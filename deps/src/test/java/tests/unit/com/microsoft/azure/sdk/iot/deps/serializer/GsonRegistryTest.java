@@ -0,0 +1,152 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the GsonRegistry and its streaming adapters.
+ * 100% methods, 100% lines covered
+ */
+public class GsonRegistryTest
+{
+    private static final String REGISTRY_CLASS_NAME = "com.microsoft.azure.sdk.iot.deps.serializer.GsonRegistry";
+    private static final String[] GETTERS =
+    {
+        "getDefault", "getWithoutHtmlEscaping", "getWithNulls", "getWithoutHtmlEscapingWithNulls",
+        "getWithComplexMapKeysAndNulls", "getForTwin"
+    };
+
+    private static final String DEVICE_JSON =
+            "{\"deviceId\":\"device1\",\"generationId\":\"1234\",\"etag\":\"MA==\",\"status\":\"enabled\"," +
+            "\"statusUpdatedTime\":\"0001-01-01T00:00:00\",\"connectionState\":\"Disconnected\"," +
+            "\"unknownField\":{\"a\":[1,2]},\"cloudToDeviceMessageCount\":3," +
+            "\"authentication\":{\"symmetricKey\":{\"primaryKey\":\"a2V5MQ==\",\"secondaryKey\":\"a2V5Mg==\"},\"type\":\"sas\"}}";
+
+    private static final String TWIN_JSON =
+            "{\"tags\":{\"tag1\":{\"key\":\"value\",\"num\":2}},\"properties\":{\"desired\":{\"list\":[1,true,null,\"s\"],\"$version\":4}}}";
+
+    private static Gson get(String getter) throws ClassNotFoundException
+    {
+        return Deencapsulation.invoke(Class.forName(REGISTRY_CLASS_NAME), getter);
+    }
+
+    /* Tests_SRS_GSON_REGISTRY_21_001: [The registry shall create each Gson only once, and return the same instance in all calls.] */
+    @Test
+    public void gettersReturnSharedInstances() throws ClassNotFoundException
+    {
+        for (String getter : GETTERS)
+        {
+            assertSame(get(getter), get(getter));
+        }
+    }
+
+    /* Tests_SRS_GSON_REGISTRY_21_002: [All Gson instances shall use the hand-written adapters for the device records and the method payloads.] */
+    /* Tests_SRS_DEVICE_PARSER_21_033: [The type adapter shall write the fields in the same order and with the same names as the Gson reflection.] */
+    /* Tests_SRS_DEVICE_PARSER_21_034: [The type adapter shall read the device record in a single pass, ignoring unknown fields.] */
+    @Test
+    public void deviceAdapterMatchesReflection() throws ClassNotFoundException
+    {
+        // arrange
+        Gson reflection = new Gson();
+        DeviceParser parsed = get("getDefault").fromJson(DEVICE_JSON, DeviceParser.class);
+
+        // act
+        String streamed = get("getDefault").toJson(parsed);
+
+        // assert
+        assertEquals(reflection.toJson(reflection.fromJson(DEVICE_JSON, DeviceParser.class)), streamed);
+        assertEquals(streamed, reflection.toJson(parsed));
+    }
+
+    /* Tests_SRS_DEVICE_PARSER_21_034: [The type adapter shall read the device record in a single pass, ignoring unknown fields.] */
+    @Test (expected = JsonSyntaxException.class)
+    public void deviceAdapterThrowsOnInvalidCount() throws ClassNotFoundException
+    {
+        get("getDefault").fromJson("{\"deviceId\":\"device1\",\"cloudToDeviceMessageCount\":\"abc\"}", DeviceParser.class);
+    }
+
+    /* Tests_SRS_METHODPARSER_21_037: [The type adapter shall read the method in a single pass, ignoring unknown fields.] */
+    @Test
+    public void methodAdapterMatchesReflection() throws ClassNotFoundException
+    {
+        // arrange
+        String json = "{\"methodName\":\"reboot\",\"responseTimeoutInSeconds\":200,\"connectTimeoutInSeconds\":5,\"unknown\":[1],\"payload\":{\"input1\":\"someInput\",\"input2\":[1,2]}}";
+        Gson reflection = new GsonBuilder().serializeNulls().create();
+
+        // act
+        MethodParser streamed = get("getWithNulls").fromJson(json, MethodParser.class);
+
+        // assert
+        MethodParser expected = reflection.fromJson(json, MethodParser.class);
+        assertEquals(reflection.toJson(expected), reflection.toJson(streamed));
+    }
+
+    /* Tests_SRS_GSON_REGISTRY_21_003: [The twin Gson shall parse the twin documents with the streaming map adapter.] */
+    /* Tests_SRS_JSON_MAP_TYPE_ADAPTER_21_002: [The adapter shall parse the json object in a single pass.] */
+    /* Tests_SRS_JSON_MAP_TYPE_ADAPTER_21_004: [The nested objects shall be parsed as maps, the arrays as lists, and the numbers as Double.] */
+    @Test
+    public void twinMapAdapterMatchesGsonUntypedContent() throws ClassNotFoundException
+    {
+        // arrange
+        Gson reflection = new GsonBuilder().create();
+
+        // act
+        Map streamed = get("getForTwin").fromJson(TWIN_JSON, HashMap.class);
+        Map linked = get("getForTwin").fromJson(TWIN_JSON, Map.class);
+
+        // assert
+        assertEquals(reflection.fromJson(TWIN_JSON, HashMap.class), streamed);
+        assertEquals(streamed, linked);
+        assertTrue(streamed instanceof HashMap);
+        Map desired = (Map)((Map)streamed.get("properties")).get("desired");
+        assertEquals(4.0, desired.get("$version"));
+        assertTrue(desired.get("list") instanceof List);
+    }
+
+    /* Tests_SRS_JSON_MAP_TYPE_ADAPTER_21_003: [If the root object contains a duplicated key, the adapter shall throw JsonSyntaxException.] */
+    @Test (expected = JsonSyntaxException.class)
+    public void twinMapAdapterThrowsOnDuplicatedRootKey() throws ClassNotFoundException
+    {
+        get("getForTwin").fromJson("{\"a\":1,\"a\":2}", HashMap.class);
+    }
+
+    /* Tests_SRS_JSON_MAP_TYPE_ADAPTER_21_004: [The nested objects shall be parsed as maps, the arrays as lists, and the numbers as Double.] */
+    @Test
+    public void twinMapAdapterKeepsLastNestedDuplicatedKey() throws ClassNotFoundException
+    {
+        Map map = get("getForTwin").fromJson("{\"a\":{\"b\":1,\"b\":2}}", HashMap.class);
+
+        assertEquals(2.0, ((Map)map.get("a")).get("b"));
+    }
+
+    /* Tests_SRS_JSON_MAP_TYPE_ADAPTER_21_001: [The factory shall only handle the raw Map and HashMap types.] */
+    /* Tests_SRS_JSON_MAP_TYPE_ADAPTER_21_005: [The serialization shall be done by the Gson default adapter.] */
+    @Test
+    public void twinMapAdapterSerializesAsGson() throws ClassNotFoundException
+    {
+        // arrange
+        Map map = get("getForTwin").fromJson(TWIN_JSON, HashMap.class);
+
+        // act
+        String json = get("getForTwin").toJson(map, HashMap.class);
+
+        // assert
+        assertEquals(new GsonBuilder().disableHtmlEscaping().create().toJson(map, HashMap.class), json);
+    }
+}
@@ -0,0 +1,227 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.IsoDateTime;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the ISO-8601 date and time parser and formatter
+ * 100% methods
+ * 100% lines covered
+ */
+public class IsoDateTimeTest
+{
+    private static final long DATE_TIME_2016 = 1464816163000L;
+
+    private static SimpleDateFormat createUtcDateFormat(String pattern)
+    {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat;
+    }
+
+    /* Tests_SRS_ISODATETIME_21_001: [The parse shall throw IllegalArgumentException if the provided string is null or empty.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void parseNullThrows()
+    {
+        // act
+        IsoDateTime.parse(null, false);
+    }
+
+    /* Tests_SRS_ISODATETIME_21_001: [The parse shall throw IllegalArgumentException if the provided string is null or empty.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void parseEmptyThrows()
+    {
+        // act
+        IsoDateTime.parse("", false);
+    }
+
+    /* Tests_SRS_ISODATETIME_21_002: [The parse shall throw IllegalArgumentException if the date and time is not in the format `yyyy-MM-ddTHH:mm:ss`.] */
+    @Test
+    public void parseInvalidFormatThrows()
+    {
+        // arrange
+        String[] invalidDateTimes =
+        {
+            "This is not a data and time",
+            "2016-06-01T21:22",
+            "2016-6-01T21:22:43",
+            "2016-06-01 21:22:43",
+            "2016/06/01T21:22:43",
+            "2016-06-01T21-22-43",
+            "2016-06-0xT21:22:43",
+            "2016-06-01T21:22:43.123Zx",
+            "2016-06-01T21:22:43.123X",
+            "2016-06-01T21:22:43+0",
+            "2016-06-01T21:22:43+00:0",
+            "2016-06-01T21:22:43+00:000",
+            "2016-06-01T21:22:43+24:00",
+            "2016-06-01T21:22:43+00:60",
+            "2016-06-01T21:22:43+ab:00",
+        };
+
+        for (String invalidDateTime : invalidDateTimes)
+        {
+            // act
+            try
+            {
+                IsoDateTime.parse(invalidDateTime, false);
+                throw new AssertionError("parse shall throw IllegalArgumentException for " + invalidDateTime);
+            }
+            catch (IllegalArgumentException expected)
+            {
+                // assert
+            }
+        }
+    }
+
+    /* Tests_SRS_ISODATETIME_21_002: [The parse shall throw IllegalArgumentException if the date and time is not in the format `yyyy-MM-ddTHH:mm:ss`.] */
+    /* Tests_SRS_ISODATETIME_21_007: [The parse shall return the milliseconds since the epoch.] */
+    @Test
+    public void parseLeapDaySucceed() throws ParseException
+    {
+        // act
+        long result = IsoDateTime.parse("2000-02-29T23:59:59", false);
+
+        // assert
+        assertEquals(createUtcDateFormat("yyyy-MM-dd'T'HH:mm:ss").parse("2000-02-29T23:59:59").getTime(), result);
+    }
+
+    /* Tests_SRS_ISODATETIME_21_003: [The parse shall accept a fraction of second with any number of digits, and truncate it to milliseconds.] */
+    @Test
+    public void parseFractionSucceed()
+    {
+        // assert
+        assertEquals(DATE_TIME_2016 + 799, IsoDateTime.parse("2016-06-01T21:22:43.7996883Z", false));
+        assertEquals(DATE_TIME_2016 + 123, IsoDateTime.parse("2016-06-01T21:22:43.123Z", false));
+        assertEquals(DATE_TIME_2016 + 120, IsoDateTime.parse("2016-06-01T21:22:43.12Z", false));
+        assertEquals(DATE_TIME_2016 + 100, IsoDateTime.parse("2016-06-01T21:22:43,1", false));
+        assertEquals(DATE_TIME_2016, IsoDateTime.parse("2016-06-01T21:22:43.Z", false));
+    }
+
+    /* Tests_SRS_ISODATETIME_21_004: [If the string does not contain the zone, the parse shall throw IllegalArgumentException if the isZoneRequired is true, or parse it as UTC otherwise.] */
+    @Test
+    public void parseWithoutZoneSucceed()
+    {
+        // assert
+        assertEquals(DATE_TIME_2016, IsoDateTime.parse("2016-06-01T21:22:43", false));
+    }
+
+    /* Tests_SRS_ISODATETIME_21_004: [If the string does not contain the zone, the parse shall throw IllegalArgumentException if the isZoneRequired is true, or parse it as UTC otherwise.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void parseWithoutRequiredZoneThrows()
+    {
+        // act
+        IsoDateTime.parse("2016-06-01T21:22:43.123", true);
+    }
+
+    /* Tests_SRS_ISODATETIME_21_005: [The parse shall accept the zone `Z`, `+hh`, `+hhmm`, or `+hh:mm` (or the same with `-`), and convert the date and time to UTC.] */
+    @Test
+    public void parseZoneSucceed()
+    {
+        // assert
+        assertEquals(DATE_TIME_2016, IsoDateTime.parse("2016-06-01T21:22:43Z", true));
+        assertEquals(DATE_TIME_2016, IsoDateTime.parse("2016-06-01T21:22:43+00:00", true));
+        assertEquals(DATE_TIME_2016, IsoDateTime.parse("2016-06-01T23:22:43+02", true));
+        assertEquals(DATE_TIME_2016, IsoDateTime.parse("2016-06-01T23:52:43+0230", true));
+        assertEquals(DATE_TIME_2016, IsoDateTime.parse("2016-06-01T18:52:43-02:30", true));
+        assertEquals(DATE_TIME_2016 + 5, IsoDateTime.parse("2016-06-02T06:22:43.005+09:00", true));
+    }
+
+    /* Tests_SRS_ISODATETIME_21_006: [The parse shall use the lenient GregorianCalendar rules for dates before 1583, or with a field out of its range, like `0000-00-00T00:00:00`.] */
+    @Test
+    public void parseBeforeGregorianCalendarSucceed() throws ParseException
+    {
+        // arrange
+        SimpleDateFormat dateFormat = createUtcDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+
+        // assert
+        assertEquals(dateFormat.parse("0001-01-01T00:00:00").getTime(), IsoDateTime.parse("0001-01-01T00:00:00", false));
+        assertEquals(dateFormat.parse("1500-02-29T12:00:00").getTime(), IsoDateTime.parse("1500-02-29T12:00:00", false));
+        assertEquals(dateFormat.parse("1582-12-31T23:59:59").getTime(), IsoDateTime.parse("1582-12-31T23:59:59", false));
+    }
+
+    /* Tests_SRS_ISODATETIME_21_006: [The parse shall use the lenient GregorianCalendar rules for dates before 1583, or with a field out of its range, like `0000-00-00T00:00:00`.] */
+    @Test
+    public void parseFieldsOutOfRangeSucceed() throws ParseException
+    {
+        // arrange
+        SimpleDateFormat dateFormat = createUtcDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        String[] dateTimes =
+        {
+            "0000-00-00T00:00:00",
+            "2016-13-01T21:22:43",
+            "2016-06-31T21:22:43",
+            "2015-02-29T21:22:43",
+            "1900-02-29T21:22:43",
+            "2016-06-01T24:60:60",
+        };
+
+        for (String dateTime : dateTimes)
+        {
+            // act
+            long result = IsoDateTime.parse(dateTime, false);
+
+            // assert
+            assertEquals(dateTime, dateFormat.parse(dateTime).getTime(), result);
+        }
+        assertEquals(dateFormat.parse("0000-00-00T00:00:00").getTime(), IsoDateTime.parse("0000-00-00T00:00:00+00:00", true));
+    }
+
+    /* Tests_SRS_ISODATETIME_21_008: [The format shall return the UTC date and time in the format `yyyy-MM-ddTHH:mm:ss.SSSZ`.] */
+    @Test
+    public void formatSucceed()
+    {
+        // assert
+        assertEquals("2016-06-01T21:22:43.000Z", IsoDateTime.format(DATE_TIME_2016));
+        assertEquals("2016-06-01T21:22:43.007Z", IsoDateTime.format(DATE_TIME_2016 + 7));
+        assertEquals("1970-01-01T00:00:00.000Z", IsoDateTime.format(0));
+        assertEquals("1969-12-31T23:59:59.999Z", IsoDateTime.format(-1));
+        assertEquals("1583-01-01T00:00:00.000Z", IsoDateTime.format(IsoDateTime.parse("1583-01-01T00:00:00", false)));
+        assertEquals("9999-12-31T23:59:59.999Z", IsoDateTime.format(IsoDateTime.parse("9999-12-31T23:59:59.999", false)));
+    }
+
+    /* Tests_SRS_ISODATETIME_21_008: [The format shall return the UTC date and time in the format `yyyy-MM-ddTHH:mm:ss.SSSZ`.] */
+    @Test
+    public void formatMatchesSimpleDateFormat()
+    {
+        // arrange
+        SimpleDateFormat dateFormat = createUtcDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        long first = IsoDateTime.parse("1583-01-01T00:00:00", false);
+        long last = IsoDateTime.parse("9999-12-31T23:59:59.999", false);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10000; i++)
+        {
+            long milliseconds = first + (long)(random.nextDouble() * (last - first));
+
+            // act
+            String result = IsoDateTime.format(milliseconds);
+
+            // assert
+            assertEquals(dateFormat.format(milliseconds), result);
+            assertEquals(milliseconds, IsoDateTime.parse(result, true));
+        }
+    }
+
+    /* Tests_SRS_ISODATETIME_21_009: [The format shall use the GregorianCalendar rules for dates before 1583 or after 9999.] */
+    @Test
+    public void formatBeforeGregorianCalendarSucceed()
+    {
+        // arrange
+        long never = IsoDateTime.parse("0001-01-01T00:00:00.001Z", true);
+
+        // assert
+        assertEquals("0001-01-01T00:00:00.001Z", IsoDateTime.format(never));
+        assertEquals("1582-12-31T23:59:59.999Z", IsoDateTime.format(IsoDateTime.parse("1583-01-01T00:00:00", false) - 1));
+    }
+}
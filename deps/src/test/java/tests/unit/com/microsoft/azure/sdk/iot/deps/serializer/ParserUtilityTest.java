@@ -8,10 +8,12 @@ import com.microsoft.azure.sdk.iot.deps.serializer.ParserUtility;
 import mockit.Deencapsulation;
 import org.junit.Test;
 
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
 
@@ -532,6 +534,40 @@ public class ParserUtilityTest
         ParserUtility.validateMap(mapSample, 10, true);
     }
 
+    /* Tests_SRS_PARSER_UTILITY_21_047: [The validateMap shall do nothing if the map is a valid Map.] */
+    /* Tests_SRS_PARSER_UTILITY_21_051: [The validateMap shall throws IllegalArgumentException if any value contains illegal type (array or invalid class).] */
+    @Test
+    public void validateMapChecksValueTypesOnEveryCall()
+    {
+        // arrange
+        final class localClass
+        {
+            int a;
+        }
+        final Map<String, Object> validMap = new HashMap<>();
+        validMap.put("string", "value");
+        validMap.put("number", 1);
+        validMap.put("double", 1.5);
+        validMap.put("boolean", true);
+        final Map<String, Object> invalidMap = new HashMap<>();
+        invalidMap.put("key", new localClass());
+
+        for (int i = 0; i < 2; i++)
+        {
+            // act
+            ParserUtility.validateMap(validMap, 10, false);
+            try
+            {
+                ParserUtility.validateMap(invalidMap, 10, false);
+                throw new AssertionError("validateMap shall throw IllegalArgumentException for a local class value");
+            }
+            catch (IllegalArgumentException expected)
+            {
+                // assert
+            }
+        }
+    }
+
     /* Tests_SRS_PARSER_UTILITY_21_052: [The validateMap shall throws IllegalArgumentException if the provided map contains more than maxLevel levels.] */
     @Test (expected = IllegalArgumentException.class)
     public void validateMapThrowsOnBiggerThanMaxLevel() throws ClassNotFoundException
@@ -724,6 +760,71 @@ public class ParserUtilityTest
         assertEquals("2016-06-01T21:22:43.123Z", result);
     }
 
+    /* Tests_SRS_PARSER_UTILITY_21_057: [The dateTimeUtcToString shall serialize the milliseconds with 3 digits.] */
+    @Test
+    public void dateTimeUtcToStringPadsMilliseconds()
+    {
+        // arrange
+        Date date = new Date(1464816163005L);
+
+        // act
+        String result = ParserUtility.dateTimeUtcToString(date);
+
+        // assert
+        assertEquals("2016-06-01T21:22:43.005Z", result);
+    }
+
+    /* Tests_SRS_PARSER_UTILITY_21_040: [If the provide string contains more than 3 digits for milliseconds, the getDateTimeUtc shall reduce the milliseconds to 3 digits.] */
+    @Test
+    public void getDateTimeUtcTruncatesMilliseconds()
+    {
+        // act
+        Date date = ParserUtility.getDateTimeUtc("2016-06-01T21:22:43.7996883Z");
+
+        // assert
+        assertEquals(1464816163799L, date.getTime());
+    }
+
+    /* Tests_SRS_PARSER_UTILITY_21_055: [If the provide string contains a zone offset, the getDateTimeUtc shall convert the date and time to UTC.] */
+    @Test
+    public void getDateTimeUtcConvertsOffsetToUtc()
+    {
+        // act
+        Date date = ParserUtility.getDateTimeUtc("2016-06-01T23:22:43.5+02:00");
+
+        // assert
+        assertEquals(1464816163500L, date.getTime());
+    }
+
+    /* Tests_SRS_PARSER_UTILITY_21_056: [The stringToDateTimeOffset shall accept a fraction of second before the offset.] */
+    @Test
+    public void stringToDateTimeOffsetWithMillisecondsSucceed()
+    {
+        // act
+        Date date = ParserUtility.stringToDateTimeOffset("2016-06-01T21:22:41.25-00:30");
+
+        // assert
+        assertEquals(1464816161250L + (30 * 60 * 1000L), date.getTime());
+    }
+
+    /* Tests_SRS_PARSER_UTILITY_21_020: [The getDateTimeUtc shall parse the provide string using `UTC` timezone.] */
+    /* Tests_SRS_PARSER_UTILITY_21_054: [The dateTimeUtcToString shall serialize the provide Date using `UTC` timezone.] */
+    @Test
+    public void getDateTimeUtcRoundTripsDateTimeUtcToString() throws ParseException
+    {
+        // arrange
+        String never = "0001-01-01T00:00:00.000Z";
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // act
+        Date date = ParserUtility.getDateTimeUtc(never);
+
+        // assert
+        assertEquals(dateFormat.parse("0001-01-01T00:00:00"), date);
+        assertEquals(never, ParserUtility.dateTimeUtcToString(date));
+    }
+
 
     /* Tests_SRS_PARSER_UTILITY_21_030: [The validateId shall do nothing if the string is a valid ID.] */
     @Test
@@ -7,13 +7,22 @@ package tests.unit.com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.microsoft.azure.sdk.iot.deps.serializer.QueryResponseParser;
+import mockit.Invocation;
+import mockit.Mock;
+import mockit.MockUp;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static tests.unit.com.microsoft.azure.sdk.iot.deps.serializer.Helpers.assertListEquals;
 
 /*
@@ -143,4 +152,199 @@ public class QueryResponseParserTest
         assertListEquals(buildListFromJsonArray(VALID_JSON_ARRAY_2), testParser.getJsonItems());
     }
 
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_022: [The getJsonItems shall serialize each json item only when it is read from the returned list.]
+    @Test
+    public void getJsonItemsSerializesOnlyReadItems() throws IllegalArgumentException
+    {
+        //arrange
+        final int[] serializeCount = { 0 };
+        final Object expectedFirstItem = buildListFromJsonArray(VALID_JSON_ARRAY_2).get(0);
+        QueryResponseParser testParser = new QueryResponseParser(VALID_JSON_ARRAY_2);
+        new MockUp<Gson>()
+        {
+            @Mock
+            String toJson(Invocation invocation, JsonElement jsonElement)
+            {
+                serializeCount[0]++;
+                return invocation.proceed(jsonElement);
+            }
+        };
+
+        //act
+        List<String> items = testParser.getJsonItems();
+        int size = items.size();
+        String firstItem = items.get(0);
+
+        //assert
+        assertEquals(2, size);
+        assertEquals(expectedFirstItem, firstItem);
+        assertEquals(1, serializeCount[0]);
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_023: [If the provided json is null or empty, the constructor shall throws IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorUTF8ThrowsOnNullJson() throws IllegalArgumentException
+    {
+        //act
+        new QueryResponseParser((byte[])null);
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_023: [If the provided json is null or empty, the constructor shall throws IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorUTF8ThrowsOnEmptyJson() throws IllegalArgumentException
+    {
+        //act
+        new QueryResponseParser(new byte[0]);
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_024: [The constructor shall decode the json as strict UTF-8, and throw IllegalArgumentException if it does not start with an array.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorUTF8ThrowsOnJsonThatIsNotArray() throws IllegalArgumentException
+    {
+        //act
+        new QueryResponseParser(VALID_JSON.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_024: [The constructor shall decode the json as strict UTF-8, and throw IllegalArgumentException if it does not start with an array.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorUTF8ThrowsOnInvalidUTF8() throws IllegalArgumentException
+    {
+        //arrange
+        final byte[] testJson = { '[', '{', '"', 'a', '"', ':', '"', (byte)0xC3, '"', '}', ']' };
+        QueryResponseParser testParser = new QueryResponseParser(testJson);
+
+        //act
+        testParser.getJsonItemsIterator().next();
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_024: [The constructor shall decode the json as strict UTF-8, and throw IllegalArgumentException if it does not start with an array.]
+    @Test
+    public void constructorUTF8DecodesMultiByteCharacters() throws IllegalArgumentException
+    {
+        //arrange
+        final String testJson = "[{\"deviceId\":\"d\u00e9v\u4e2d\"}]";
+        QueryResponseParser testParser = new QueryResponseParser(testJson.getBytes(StandardCharsets.UTF_8));
+
+        //act
+        String item = testParser.getJsonItemsIterator().next();
+
+        //assert
+        assertEquals("{\"deviceId\":\"d\u00e9v\u4e2d\"}", item);
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_025: [If the parser was created from an UTF-8 json, the getJsonItems shall throw IllegalStateException.]
+    @Test (expected = IllegalStateException.class)
+    public void getJsonItemsThrowsOnUTF8Json() throws IllegalArgumentException
+    {
+        //arrange
+        QueryResponseParser testParser = new QueryResponseParser(VALID_JSON_ARRAY_1.getBytes(StandardCharsets.UTF_8));
+
+        //act
+        testParser.getJsonItems();
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_026: [If the parser was created from a string, the getJsonItemsIterator shall return an iterator over the getJsonItems.]
+    @Test
+    public void getJsonItemsIteratorGetsItemsOfString() throws IllegalArgumentException
+    {
+        //arrange
+        QueryResponseParser testParser = new QueryResponseParser(VALID_JSON_ARRAY_2);
+        List<String> items = new LinkedList<>();
+
+        //act
+        Iterator<String> iterator = testParser.getJsonItemsIterator();
+        while (iterator.hasNext())
+        {
+            items.add(iterator.next());
+        }
+
+        //assert
+        assertListEquals(buildListFromJsonArray(VALID_JSON_ARRAY_2), items);
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_028: [If the parser was created from an UTF-8 json, the iterator shall parse and serialize each json item only when it is returned by next.]
+    @Test
+    public void getJsonItemsIteratorStreamsItemsOfUTF8Json() throws IllegalArgumentException
+    {
+        //arrange
+        QueryResponseParser testParser = new QueryResponseParser(VALID_TWIN_JSON_ARRAY_2.getBytes(StandardCharsets.UTF_8));
+        List<String> items = new LinkedList<>();
+
+        //act
+        Iterator<String> iterator = testParser.getJsonItemsIterator();
+        while (iterator.hasNext())
+        {
+            items.add(iterator.next());
+        }
+
+        //assert
+        assertListEquals(buildListFromJsonArray(VALID_TWIN_JSON_ARRAY_2), items);
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_028: [If the parser was created from an UTF-8 json, the iterator shall parse and serialize each json item only when it is returned by next.]
+    @Test
+    public void getJsonItemsIteratorParsesOnlyReadItems() throws IllegalArgumentException
+    {
+        //arrange
+        final String testJson = "[" + VALID_JSON + "," + MALFORMED_JSON + "]";
+        QueryResponseParser testParser = new QueryResponseParser(testJson.getBytes(StandardCharsets.UTF_8));
+
+        //act
+        Iterator<String> iterator = testParser.getJsonItemsIterator();
+        String firstItem = iterator.next();
+
+        //assert
+        assertEquals(buildListFromJsonArray(VALID_JSON_ARRAY_1).get(0), firstItem);
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_028: [If the parser was created from an UTF-8 json, the iterator shall parse and serialize each json item only when it is returned by next.]
+    @Test (expected = NoSuchElementException.class)
+    public void getJsonItemsIteratorThrowsAfterLastItem() throws IllegalArgumentException
+    {
+        //arrange
+        QueryResponseParser testParser = new QueryResponseParser(VALID_JSON_ARRAY_1.getBytes(StandardCharsets.UTF_8));
+        Iterator<String> iterator = testParser.getJsonItemsIterator();
+        iterator.next();
+        assertFalse(iterator.hasNext());
+
+        //act
+        iterator.next();
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_027: [If the parser was created from an UTF-8 json, the getJsonItemsIterator shall throw IllegalStateException if it was already called.]
+    @Test (expected = IllegalStateException.class)
+    public void getJsonItemsIteratorThrowsOnSecondCallForUTF8Json() throws IllegalArgumentException
+    {
+        //arrange
+        QueryResponseParser testParser = new QueryResponseParser(VALID_JSON_ARRAY_1.getBytes(StandardCharsets.UTF_8));
+        testParser.getJsonItemsIterator();
+
+        //act
+        testParser.getJsonItemsIterator();
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_029: [The iterator shall throw IllegalArgumentException if the next json item is not valid.]
+    @Test (expected = IllegalArgumentException.class)
+    public void getJsonItemsIteratorThrowsOnMalformedItem() throws IllegalArgumentException
+    {
+        //arrange
+        final String testJson = "[" + VALID_JSON + "," + MALFORMED_JSON + "]";
+        QueryResponseParser testParser = new QueryResponseParser(testJson.getBytes(StandardCharsets.UTF_8));
+        Iterator<String> iterator = testParser.getJsonItemsIterator();
+        iterator.next();
+
+        //act
+        iterator.next();
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_PARSER_21_029: [The iterator shall throw IllegalArgumentException if the next json item is not valid.]
+    @Test (expected = IllegalArgumentException.class)
+    public void getJsonItemsIteratorThrowsOnItemThatIsNotObject() throws IllegalArgumentException
+    {
+        //arrange
+        QueryResponseParser testParser = new QueryResponseParser("[1]".getBytes(StandardCharsets.UTF_8));
+
+        //act
+        testParser.getJsonItemsIterator().next();
+    }
 }
@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.util;
+
+import com.microsoft.azure.sdk.iot.deps.util.Base64;
+import com.microsoft.azure.sdk.iot.deps.util.Base64OutputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for Base64OutputStream
+ * 100% methods, 100% lines covered
+ */
+public class Base64OutputStreamTest
+{
+    private static byte[] createData(int length)
+    {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    /* Tests_SRS_BASE64OUTPUTSTREAM_21_001: [If the `out` is null, or the `blockSize` is less than 3, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNullOut()
+    {
+        // act
+        new Base64OutputStream(null);
+    }
+
+    /* Tests_SRS_BASE64OUTPUTSTREAM_21_001: [If the `out` is null, or the `blockSize` is less than 3, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnSmallBlockSize()
+    {
+        // act
+        new Base64OutputStream(new ByteArrayOutputStream(), 2);
+    }
+
+    /* Tests_SRS_BASE64OUTPUTSTREAM_21_003: [The write shall encode the bytes in groups of 3, and keep the last 1 or 2 bytes until the next write.] */
+    /* Tests_SRS_BASE64OUTPUTSTREAM_21_005: [The close shall finish the stream, and close the wrapped stream.] */
+    @Test
+    public void writeInAnyChunksEncodesLikeBase64() throws IOException
+    {
+        // arrange
+        byte[] data = createData(1000);
+        String expected = Base64.encodeBase64StringLocal(data);
+
+        for (int chunkSize = 1; chunkSize <= 10; chunkSize++)
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Base64OutputStream base64OutputStream = new Base64OutputStream(out, 7);
+
+            // act
+            for (int i = 0; i < data.length; i += chunkSize)
+            {
+                base64OutputStream.write(data, i, Math.min(chunkSize, data.length - i));
+            }
+            base64OutputStream.close();
+
+            // assert
+            assertEquals(expected, out.toString("US-ASCII"));
+        }
+    }
+
+    /* Tests_SRS_BASE64OUTPUTSTREAM_21_003: [The write shall encode the bytes in groups of 3, and keep the last 1 or 2 bytes until the next write.] */
+    @Test
+    public void writeSingleBytesKeepsThePendingBytes() throws IOException
+    {
+        // arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Base64OutputStream base64OutputStream = new Base64OutputStream(out);
+
+        // act
+        base64OutputStream.write('A');
+        base64OutputStream.write('B');
+        assertEquals(0, out.size());
+        base64OutputStream.write('C');
+        base64OutputStream.write('D');
+
+        // assert
+        assertEquals("QUJD", out.toString("US-ASCII"));
+        base64OutputStream.finish();
+        assertEquals("QUJDRA==", out.toString("US-ASCII"));
+    }
+
+    /* Tests_SRS_BASE64OUTPUTSTREAM_21_002: [If the stream is finished, the write shall throw IOException.] */
+    /* Tests_SRS_BASE64OUTPUTSTREAM_21_004: [The finish shall encode the pending bytes with the pad, only once.] */
+    @Test
+    public void writeAfterFinishThrows() throws IOException
+    {
+        // arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Base64OutputStream base64OutputStream = new Base64OutputStream(out);
+        base64OutputStream.write(new byte[] {'A'});
+        base64OutputStream.finish();
+        base64OutputStream.finish();
+
+        // act
+        try
+        {
+            base64OutputStream.write('B');
+            throw new AssertionError("write shall throw IOException");
+        }
+        catch (IOException e)
+        {
+            // assert
+            assertEquals("QQ==", out.toString("US-ASCII"));
+        }
+    }
+
+    /* Tests_SRS_BASE64OUTPUTSTREAM_21_005: [The close shall finish the stream, and close the wrapped stream.] */
+    @Test
+    public void closeClosesTheWrappedStream() throws IOException
+    {
+        // arrange
+        final boolean[] isClosed = {false};
+        ByteArrayOutputStream out = new ByteArrayOutputStream()
+        {
+            @Override
+            public void close()
+            {
+                isClosed[0] = true;
+            }
+        };
+        Base64OutputStream base64OutputStream = new Base64OutputStream(out);
+        base64OutputStream.write(new byte[] {'A', 'B'});
+
+        // act
+        base64OutputStream.close();
+
+        // assert
+        assertTrue(isClosed[0]);
+        assertEquals("QUI=", out.toString("US-ASCII"));
+    }
+}
@@ -7,7 +7,11 @@ import com.microsoft.azure.sdk.iot.deps.util.Base64;
 import org.junit.Test;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -274,4 +278,307 @@ public class Base64Test
         // assert
         assertEquals(expectedBase64Result, result);
     }
+
+    private static final String TEXT = "This is a valid test>>>>????(aBcDeFgHiJKLmnoPqRstuVWXyz)0123456789";
+    private static final String TEXT_BASE64 = "VGhpcyBpcyBhIHZhbGlkIHRlc3Q+Pj4+Pz8/PyhhQmNEZUZnSGlKS0xtbm9QcVJzdHVWV1h5eikwMTIzNDU2Nzg5";
+
+    /* Tests_SRS_BASE64_21_011: [If the `dataLength` is negative, or the encoded length does not fit in an int, the getEncodedLength shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void getEncodedLengthThrowsOnNegativeLength()
+    {
+        // act
+        Base64.getEncodedLength(-1);
+    }
+
+    /* Tests_SRS_BASE64_21_011: [If the `dataLength` is negative, or the encoded length does not fit in an int, the getEncodedLength shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void getEncodedLengthThrowsOnTooLargeLength()
+    {
+        // act
+        Base64.getEncodedLength(Integer.MAX_VALUE);
+    }
+
+    /* Tests_SRS_BASE64_21_012: [The getEncodedLength shall return the number of base64 values, including the pad, that encode `dataLength` bytes.] */
+    @Test
+    public void getEncodedLengthSuccess()
+    {
+        // act - assert
+        assertEquals(0, Base64.getEncodedLength(0));
+        assertEquals(4, Base64.getEncodedLength(1));
+        assertEquals(4, Base64.getEncodedLength(2));
+        assertEquals(4, Base64.getEncodedLength(3));
+        assertEquals(8, Base64.getEncodedLength(4));
+    }
+
+    /* Tests_SRS_BASE64_21_013: [If the `base64Values` is null, or the range is out of the array, or its length is not multiple of 4, the getDecodedLength shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void getDecodedLengthThrowsOnInvalidLength()
+    {
+        // act
+        Base64.getDecodedLength("QUJD".getBytes(), 1, 3);
+    }
+
+    /* Tests_SRS_BASE64_21_013: [If the `base64Values` is null, or the range is out of the array, or its length is not multiple of 4, the getDecodedLength shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void getDecodedLengthThrowsOnRangeOutOfArray()
+    {
+        // act
+        Base64.getDecodedLength("QUJD".getBytes(), 4, 4);
+    }
+
+    /* Tests_SRS_BASE64_21_014: [The getDecodedLength shall return the number of bytes encoded in the range of `base64Values`.] */
+    @Test
+    public void getDecodedLengthSuccess()
+    {
+        // arrange
+        byte[] base64Values = "xxQUJDQQ==xx".getBytes();
+
+        // act - assert
+        assertEquals(4, Base64.getDecodedLength(base64Values, 2, 8));
+        assertEquals(3, Base64.getDecodedLength(base64Values, 2, 4));
+        assertEquals(0, Base64.getDecodedLength(base64Values, 2, 0));
+    }
+
+    /* Tests_SRS_BASE64_21_015: [If the `base64Values` is null, or the range is out of the array, or its length is not multiple of 4, the decodeBase64Local shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void decodeBase64InDestinationThrowsOnNullBase64Values()
+    {
+        // act
+        Base64.decodeBase64Local(null, 0, 4, new byte[3], 0);
+    }
+
+    /* Tests_SRS_BASE64_21_016: [If the `destination` is null, or it has no room for the decoded bytes after `destinationOffset`, the decodeBase64Local shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void decodeBase64InDestinationThrowsOnSmallDestination()
+    {
+        // act
+        Base64.decodeBase64Local("QUJD".getBytes(), 0, 4, new byte[3], 1);
+    }
+
+    /* Tests_SRS_BASE64_21_017: [The decodeBase64Local shall decode the range of `base64Values` in the `destination` starting at `destinationOffset`, and return the number of decoded bytes.] */
+    @Test
+    public void decodeBase64InDestinationSuccess()
+    {
+        // arrange
+        byte[] base64Values = ("xx" + TEXT_BASE64 + "xx").getBytes();
+        byte[] destination = new byte[TEXT.length() + 4];
+
+        // act
+        int result = Base64.decodeBase64Local(base64Values, 2, TEXT_BASE64.length(), destination, 2);
+
+        // assert
+        assertEquals(TEXT.length(), result);
+        assertEquals(TEXT, new String(destination, 2, result));
+        assertEquals(0, destination[0]);
+        assertEquals(0, destination[destination.length - 1]);
+    }
+
+    /* Tests_SRS_BASE64_21_017: [The decodeBase64Local shall decode the range of `base64Values` in the `destination` starting at `destinationOffset`, and return the number of decoded bytes.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void decodeBase64InDestinationThrowsOnInvalidBase64()
+    {
+        // act
+        Base64.decodeBase64Local("QU*D".getBytes(), 0, 4, new byte[3], 0);
+    }
+
+    /* Tests_SRS_BASE64_21_017: [The decodeBase64Local shall decode the range of `base64Values` in the `destination` starting at `destinationOffset`, and return the number of decoded bytes.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void decodeBase64InDestinationThrowsOnPadInTheMiddle()
+    {
+        // act
+        Base64.decodeBase64Local("QQ==QUJD".getBytes(), 0, 8, new byte[6], 0);
+    }
+
+    /* Tests_SRS_BASE64_21_018: [If the `base64Values` or the `destination` is null, the decodeBase64Local shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void decodeBase64BufferThrowsOnNullDestination()
+    {
+        // act
+        Base64.decodeBase64Local(ByteBuffer.wrap("QUJD".getBytes()), null);
+    }
+
+    /* Tests_SRS_BASE64_21_019: [If the remaining `base64Values` are invalid, or the `destination` has not enough remaining space, the decodeBase64Local shall throw IllegalArgumentException, and not change the buffer positions.] */
+    @Test
+    public void decodeBase64BufferThrowsOnSmallDestination()
+    {
+        // arrange
+        ByteBuffer base64Values = ByteBuffer.wrap("QUJDQQ==".getBytes());
+        ByteBuffer destination = ByteBuffer.allocate(16);
+        destination.limit(3);
+
+        // act
+        try
+        {
+            Base64.decodeBase64Local(base64Values, destination);
+            throw new AssertionError("decodeBase64Local shall throw IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // assert
+            assertEquals(0, base64Values.position());
+            assertEquals(0, destination.position());
+            assertEquals(0, destination.array()[3]);
+        }
+    }
+
+    /* Tests_SRS_BASE64_21_020: [The decodeBase64Local shall decode the remaining `base64Values` in the `destination`, move both positions, and return the number of decoded bytes.] */
+    @Test
+    public void decodeBase64BufferSuccess()
+    {
+        // arrange
+        ByteBuffer[] sources = {ByteBuffer.wrap(TEXT_BASE64.getBytes()), ByteBuffer.allocateDirect(TEXT_BASE64.length())};
+        sources[1].put(TEXT_BASE64.getBytes());
+        sources[1].flip();
+        ByteBuffer[] destinations = {ByteBuffer.allocate(TEXT.length() + 1), ByteBuffer.allocateDirect(TEXT.length() + 1)};
+
+        for (ByteBuffer source : sources)
+        {
+            for (ByteBuffer destination : destinations)
+            {
+                source.rewind();
+                destination.clear();
+                destination.put((byte) '>');
+
+                // act
+                int result = Base64.decodeBase64Local(source, destination);
+
+                // assert
+                assertEquals(TEXT.length(), result);
+                assertEquals(source.limit(), source.position());
+                assertEquals(TEXT.length() + 1, destination.position());
+                destination.flip();
+                byte[] actual = new byte[destination.remaining()];
+                destination.get(actual);
+                assertEquals(">" + TEXT, new String(actual));
+            }
+        }
+    }
+
+    /* Tests_SRS_BASE64_21_021: [If the `dataValues` is null, or the range is out of the array, the encodeBase64Local shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void encodeBase64InDestinationThrowsOnRangeOutOfArray()
+    {
+        // act
+        Base64.encodeBase64Local(new byte[3], 1, 3, new byte[4], 0);
+    }
+
+    /* Tests_SRS_BASE64_21_022: [If the `destination` is null, or it has no room for the encoded values after `destinationOffset`, the encodeBase64Local shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void encodeBase64InDestinationThrowsOnSmallDestination()
+    {
+        // act
+        Base64.encodeBase64Local(new byte[3], 0, 3, new byte[7], 4);
+    }
+
+    /* Tests_SRS_BASE64_21_023: [The encodeBase64Local shall encode the range of `dataValues` in the `destination` starting at `destinationOffset`, and return the number of base64 values.] */
+    @Test
+    public void encodeBase64InDestinationSuccess()
+    {
+        // arrange
+        byte[] dataValues = ("xx" + TEXT + "xx").getBytes();
+        byte[] destination = new byte[TEXT_BASE64.length() + 4];
+
+        // act
+        int result = Base64.encodeBase64Local(dataValues, 2, TEXT.length(), destination, 2);
+
+        // assert
+        assertEquals(TEXT_BASE64.length(), result);
+        assertEquals(TEXT_BASE64, new String(destination, 2, result));
+        assertEquals(0, destination[0]);
+        assertEquals(0, destination[destination.length - 1]);
+    }
+
+    /* Tests_SRS_BASE64_21_023: [The encodeBase64Local shall encode the range of `dataValues` in the `destination` starting at `destinationOffset`, and return the number of base64 values.] */
+    /* Tests_SRS_BASE64_21_017: [The decodeBase64Local shall decode the range of `base64Values` in the `destination` starting at `destinationOffset`, and return the number of decoded bytes.] */
+    @Test
+    public void encodeAndDecodeInDestinationMatchArrayResults()
+    {
+        // arrange
+        Random random = new Random(42);
+
+        for (int length = 0; length < 100; length++)
+        {
+            byte[] dataValues = new byte[length];
+            random.nextBytes(dataValues);
+            byte[] encoded = new byte[Base64.getEncodedLength(length)];
+            byte[] decoded = new byte[length];
+
+            // act
+            Base64.encodeBase64Local(dataValues, 0, length, encoded, 0);
+            Base64.decodeBase64Local(encoded, 0, encoded.length, decoded, 0);
+
+            // assert
+            assertArrayEquals(Base64.encodeBase64Local(dataValues), encoded);
+            assertEquals(Base64.encodeBase64StringLocal(dataValues), new String(encoded));
+            assertArrayEquals(dataValues, decoded);
+            assertArrayEquals(dataValues, Base64.decodeBase64Local(encoded));
+        }
+    }
+
+    /* Tests_SRS_BASE64_21_024: [If the `dataValues` or the `destination` is null, the encodeBase64Local shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void encodeBase64BufferThrowsOnNullDataValues()
+    {
+        // act
+        Base64.encodeBase64Local(null, ByteBuffer.allocate(4));
+    }
+
+    /* Tests_SRS_BASE64_21_025: [If the `destination` has not enough remaining space, the encodeBase64Local shall throw IllegalArgumentException, and not change the buffer positions.] */
+    @Test
+    public void encodeBase64BufferThrowsOnSmallDestination()
+    {
+        // arrange
+        ByteBuffer dataValues = ByteBuffer.wrap(new byte[4]);
+        ByteBuffer destination = ByteBuffer.allocate(7);
+
+        // act
+        try
+        {
+            Base64.encodeBase64Local(dataValues, destination);
+            throw new AssertionError("encodeBase64Local shall throw IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // assert
+            assertEquals(0, dataValues.position());
+            assertEquals(0, destination.position());
+        }
+    }
+
+    /* Tests_SRS_BASE64_21_026: [The encodeBase64Local shall encode the remaining `dataValues` in the `destination`, move both positions, and return the number of base64 values.] */
+    @Test
+    public void encodeBase64BufferSuccess()
+    {
+        // arrange
+        for (int length = TEXT.length() - 2; length <= TEXT.length(); length++)
+        {
+            byte[] text = Arrays.copyOf(TEXT.getBytes(), length);
+            String expected = Base64.encodeBase64StringLocal(text);
+            ByteBuffer[] sources = {ByteBuffer.wrap(text), ByteBuffer.allocateDirect(length)};
+            sources[1].put(text);
+            sources[1].flip();
+            ByteBuffer[] destinations = {ByteBuffer.allocate(expected.length()), ByteBuffer.allocateDirect(expected.length())};
+
+            for (ByteBuffer source : sources)
+            {
+                for (ByteBuffer destination : destinations)
+                {
+                    source.rewind();
+                    destination.clear();
+
+                    // act
+                    int result = Base64.encodeBase64Local(source, destination);
+
+                    // assert
+                    assertEquals(expected.length(), result);
+                    assertEquals(source.limit(), source.position());
+                    assertEquals(destination.limit(), destination.position());
+                    destination.flip();
+                    byte[] actual = new byte[destination.remaining()];
+                    destination.get(actual);
+                    assertEquals(expected, new String(actual));
+                }
+            }
+        }
+    }
 }
@@ -27,6 +27,7 @@ import org.junit.Test;
 
 import com.microsoft.azure.sdk.iot.deps.util.Base64;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.SecureRandom;
 import java.util.*;
 
@@ -35,6 +36,11 @@ import static org.mockito.Mockito.*;
 
 public class WebSocketHandlerImplTest
 {
+    private static int toMaskingKey(byte[] maskingKey)
+    {
+        return ByteBuffer.wrap(maskingKey).getInt();
+    }
+
     @Test
     public void testCreateUpgradeRequest()
     {
@@ -351,7 +357,7 @@ public class WebSocketHandlerImplTest
         }
         srcBuffer.flip();
 
-        doReturn(maskingKey).when(spyWebSocketHandler).createRandomMaskingKey();
+        doReturn(toMaskingKey(maskingKey)).when(spyWebSocketHandler).nextMaskingKey();
 
         spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
         dstBuffer.flip();
@@ -408,7 +414,7 @@ public class WebSocketHandlerImplTest
         }
         srcBuffer.flip();
 
-        doReturn(maskingKey).when(spyWebSocketHandler).createRandomMaskingKey();
+        doReturn(toMaskingKey(maskingKey)).when(spyWebSocketHandler).nextMaskingKey();
 
         spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
         dstBuffer.flip();
@@ -465,7 +471,7 @@ public class WebSocketHandlerImplTest
         }
         srcBuffer.flip();
 
-        doReturn(maskingKey).when(spyWebSocketHandler).createRandomMaskingKey();
+        doReturn(toMaskingKey(maskingKey)).when(spyWebSocketHandler).nextMaskingKey();
 
         spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
         dstBuffer.flip();
@@ -526,7 +532,7 @@ public class WebSocketHandlerImplTest
         }
         srcBuffer.flip();
 
-        doReturn(maskingKey).when(spyWebSocketHandler).createRandomMaskingKey();
+        doReturn(toMaskingKey(maskingKey)).when(spyWebSocketHandler).nextMaskingKey();
 
         spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
         dstBuffer.flip();
@@ -590,7 +596,7 @@ public class WebSocketHandlerImplTest
         }
         srcBuffer.flip();
 
-        doReturn(maskingKey).when(spyWebSocketHandler).createRandomMaskingKey();
+        doReturn(toMaskingKey(maskingKey)).when(spyWebSocketHandler).nextMaskingKey();
 
         spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
         dstBuffer.flip();
@@ -654,7 +660,7 @@ public class WebSocketHandlerImplTest
         }
         srcBuffer.flip();
 
-        doReturn(maskingKey).when(spyWebSocketHandler).createRandomMaskingKey();
+        doReturn(toMaskingKey(maskingKey)).when(spyWebSocketHandler).nextMaskingKey();
 
         spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
         dstBuffer.flip();
@@ -702,10 +708,10 @@ public class WebSocketHandlerImplTest
         expected[0] = (byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY);
         expected[1] = (byte) (WebSocketHeader.MASKBIT_MASK | WebSocketHeader.PAYLOAD_EXTENDED_64);
 
-        expected[2] = (byte) (payloadLength >>> 56);
-        expected[3] = (byte) (payloadLength >>> 48);
-        expected[4] = (byte) (payloadLength >>> 40);
-        expected[5] = (byte) (payloadLength >>> 32);
+        expected[2] = (byte) ((long) payloadLength >>> 56);
+        expected[3] = (byte) ((long) payloadLength >>> 48);
+        expected[4] = (byte) ((long) payloadLength >>> 40);
+        expected[5] = (byte) ((long) payloadLength >>> 32);
         expected[6] = (byte) (payloadLength >>> 24);
         expected[7] = (byte) (payloadLength >>> 16);
         expected[8] = (byte) (payloadLength >>> 8);
@@ -724,7 +730,7 @@ public class WebSocketHandlerImplTest
         }
         srcBuffer.flip();
 
-        doReturn(maskingKey).when(spyWebSocketHandler).createRandomMaskingKey();
+        doReturn(toMaskingKey(maskingKey)).when(spyWebSocketHandler).nextMaskingKey();
 
         spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
         dstBuffer.flip();
@@ -778,10 +784,10 @@ public class WebSocketHandlerImplTest
         expected[0] = (byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY);
         expected[1] = (byte) (WebSocketHeader.MASKBIT_MASK | WebSocketHeader.PAYLOAD_EXTENDED_64);
 
-        expected[2] = (byte) (payloadLength >>> 56);
-        expected[3] = (byte) (payloadLength >>> 48);
-        expected[4] = (byte) (payloadLength >>> 40);
-        expected[5] = (byte) (payloadLength >>> 32);
+        expected[2] = (byte) ((long) payloadLength >>> 56);
+        expected[3] = (byte) ((long) payloadLength >>> 48);
+        expected[4] = (byte) ((long) payloadLength >>> 40);
+        expected[5] = (byte) ((long) payloadLength >>> 32);
         expected[6] = (byte) (payloadLength >>> 24);
         expected[7] = (byte) (payloadLength >>> 16);
         expected[8] = (byte) (payloadLength >>> 8);
@@ -800,7 +806,7 @@ public class WebSocketHandlerImplTest
         }
         srcBuffer.flip();
 
-        doReturn(maskingKey).when(spyWebSocketHandler).createRandomMaskingKey();
+        doReturn(toMaskingKey(maskingKey)).when(spyWebSocketHandler).nextMaskingKey();
 
         spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
         dstBuffer.flip();
@@ -854,10 +860,10 @@ public class WebSocketHandlerImplTest
 //        expected[0] = (byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY);
 //        expected[1] = (byte) (WebSocketHeader.MASKBIT_MASK | WebSocketHeader.PAYLOAD_EXTENDED_64);
 //
-//        expected[2] = (byte) (payloadLength >>> 56);
-//        expected[3] = (byte) (payloadLength >>> 48);
-//        expected[4] = (byte) (payloadLength >>> 40);
-//        expected[5] = (byte) (payloadLength >>> 32);
+//        expected[2] = (byte) ((long) payloadLength >>> 56);
+//        expected[3] = (byte) ((long) payloadLength >>> 48);
+//        expected[4] = (byte) ((long) payloadLength >>> 40);
+//        expected[5] = (byte) ((long) payloadLength >>> 32);
 //        expected[6] = (byte) (payloadLength >>> 24);
 //        expected[7] = (byte) (payloadLength >>> 16);
 //        expected[8] = (byte) (payloadLength >>> 8);
@@ -876,7 +882,7 @@ public class WebSocketHandlerImplTest
 //        }
 //        srcBuffer.flip();
 //
-//        doReturn(maskingKey).when(spyWebSocketHandler).createRandomMaskingKey();
+//        doReturn(toMaskingKey(maskingKey)).when(spyWebSocketHandler).nextMaskingKey();
 //
 //        spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
 //        dstBuffer.flip();
@@ -905,6 +911,64 @@ public class WebSocketHandlerImplTest
 //        assertTrue(Arrays.equals(expected, actual));
 //    }
 
+    @Test
+    public void testWrapBuffer_masks_any_length_and_byte_order()
+    {
+        byte[] maskingKey = new byte[]{(byte) 0x81, 0x02, (byte) 0xF3, 0x44};
+        Random random = new SecureRandom();
+
+        for (int payloadLength = 1; payloadLength <= 20; payloadLength++)
+        {
+            for (ByteOrder srcOrder : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN})
+            {
+                for (ByteOrder dstOrder : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN})
+                {
+                    WebSocketHandlerImpl spyWebSocketHandler = spy(new WebSocketHandlerImpl());
+                    doReturn(toMaskingKey(maskingKey)).when(spyWebSocketHandler).nextMaskingKey();
+
+                    byte[] data = new byte[payloadLength];
+                    random.nextBytes(data);
+                    ByteBuffer srcBuffer = ByteBuffer.allocateDirect(payloadLength + 3).order(srcOrder);
+                    srcBuffer.position(3);
+                    srcBuffer.put(data);
+                    srcBuffer.position(3);
+                    ByteBuffer dstBuffer = ByteBuffer.allocate(payloadLength + WebSocketHeader.MIN_HEADER_LENGTH_MASKED).order(dstOrder);
+
+                    spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
+                    dstBuffer.flip();
+
+                    assertEquals(payloadLength + WebSocketHeader.MIN_HEADER_LENGTH_MASKED, dstBuffer.limit());
+                    assertFalse(srcBuffer.hasRemaining());
+                    byte[] actual = dstBuffer.array();
+                    assertEquals((byte) (WebSocketHeader.MASKBIT_MASK | payloadLength), actual[1]);
+                    for (int i = 0; i < payloadLength; i++)
+                    {
+                        assertEquals((byte) (data[i] ^ maskingKey[i % 4]), actual[WebSocketHeader.MIN_HEADER_LENGTH_MASKED + i]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWrapBuffer_uses_new_masking_key_per_frame()
+    {
+        WebSocketHandlerImpl webSocketHandler = new WebSocketHandlerImpl();
+        Set<Integer> maskingKeys = new HashSet<>();
+
+        for (int i = 0; i < 10; i++)
+        {
+            ByteBuffer srcBuffer = ByteBuffer.allocate(1);
+            ByteBuffer dstBuffer = ByteBuffer.allocate(1 + WebSocketHeader.MIN_HEADER_LENGTH_MASKED);
+
+            webSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
+
+            maskingKeys.add(dstBuffer.getInt(2));
+        }
+
+        assertTrue(maskingKeys.size() > 1);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testWrapBuffer_src_buffer_null()
     {
@@ -1016,6 +1080,24 @@ public class WebSocketHandlerImplTest
         assertTrue(Arrays.equals(expected, actual));
     }
 
+    @Test
+    public void testUnwrapBuffer_empty_payload()
+    {
+        WebSocketHandlerImpl webSocketHandler = new WebSocketHandlerImpl();
+        WebSocketHandlerImpl spyWebSocketHandler = spy(webSocketHandler);
+
+        ByteBuffer srcBuffer = ByteBuffer.allocate(WebSocketHeader.MIN_HEADER_LENGTH);
+        srcBuffer.put((byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_PING));
+        srcBuffer.put((byte) 0);
+        srcBuffer.flip();
+
+        WebSocketHandler.WebsocketTuple result = spyWebSocketHandler.unwrapBuffer(srcBuffer);
+
+        assertEquals(WebSocketHandler.WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_PING, result.getType());
+        assertEquals(0, result.getLength());
+        assertEquals(0, srcBuffer.remaining());
+    }
+
     @Test
     public void testUnwrapBuffer_short_message()
     {
@@ -1205,10 +1287,10 @@ public class WebSocketHandlerImplTest
 
         data[0] = (byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY);
         data[1] = WebSocketHeader.PAYLOAD_EXTENDED_64;
-        data[2] = (byte) (payloadLength >>> 56);
-        data[3] = (byte) (payloadLength >>> 48);
-        data[4] = (byte) (payloadLength >>> 40);
-        data[5] = (byte) (payloadLength >>> 32);
+        data[2] = (byte) ((long) payloadLength >>> 56);
+        data[3] = (byte) ((long) payloadLength >>> 48);
+        data[4] = (byte) ((long) payloadLength >>> 40);
+        data[5] = (byte) ((long) payloadLength >>> 32);
         data[6] = (byte) (payloadLength >>> 24);
         data[7] = (byte) (payloadLength >>> 16);
         data[8] = (byte) (payloadLength >>> 8);
@@ -1218,7 +1300,9 @@ public class WebSocketHandlerImplTest
         srcBuffer.put(data);
         srcBuffer.flip();
 
-        assertEquals(WebSocketHandler.WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_AMQP, spyWebSocketHandler.unwrapBuffer(srcBuffer).getType());
+        WebSocketHandler.WebsocketTuple result = spyWebSocketHandler.unwrapBuffer(srcBuffer);
+        assertEquals(WebSocketHandler.WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_AMQP, result.getType());
+        assertEquals(payloadLength, result.getLength());
 
         byte[] expected = Arrays.copyOfRange(data, WebSocketHeader.MAX_HEADER_LENGTH_NOMASK, messageLength);
         byte[] actual = new byte[srcBuffer.remaining()];
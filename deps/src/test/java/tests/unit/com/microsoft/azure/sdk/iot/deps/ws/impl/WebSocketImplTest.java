@@ -1279,6 +1279,286 @@ public class WebSocketImplTest
         verify(mockTransportInput, times(chunkCount-1)).process();
     }
 
+    private byte[] createFrame(byte firstByte, byte[] payload)
+    {
+        int headerLength;
+        if (payload.length <= WebSocketHeader.PAYLOAD_SHORT_MAX)
+        {
+            headerLength = WebSocketHeader.MIN_HEADER_LENGTH;
+        }
+        else if (payload.length <= WebSocketHeader.PAYLOAD_MEDIUM_MAX)
+        {
+            headerLength = WebSocketHeader.MED_HEADER_LENGTH_NOMASK;
+        }
+        else
+        {
+            headerLength = WebSocketHeader.MAX_HEADER_LENGTH_NOMASK;
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(headerLength + payload.length);
+        frame.put(firstByte);
+        if (headerLength == WebSocketHeader.MIN_HEADER_LENGTH)
+        {
+            frame.put((byte) payload.length);
+        }
+        else if (headerLength == WebSocketHeader.MED_HEADER_LENGTH_NOMASK)
+        {
+            frame.put(WebSocketHeader.PAYLOAD_EXTENDED_16);
+            frame.putShort((short) payload.length);
+        }
+        else
+        {
+            frame.put(WebSocketHeader.PAYLOAD_EXTENDED_64);
+            frame.putLong(payload.length);
+        }
+        frame.put(payload);
+
+        return frame.array();
+    }
+
+    private byte[] createPayload(int size)
+    {
+        byte[] payload = new byte[size];
+        new SecureRandom().nextBytes(payload);
+        return payload;
+    }
+
+    private TransportInput createCollectingTransportInput(final ByteBuffer collected, final int capacity)
+    {
+        return spy(new TransportInput() {
+            ByteBuffer bb = ByteBufferUtils.newWriteableBuffer(capacity);
+
+            @Override
+            public int capacity() {
+                return bb.remaining();
+            }
+
+            @Override
+            public int position() {
+                return bb.position();
+            }
+
+            @Override
+            public ByteBuffer tail() throws TransportException {
+                return bb;
+            }
+
+            @Override
+            public void process() throws TransportException {
+                bb.flip();
+                collected.put(bb);
+                bb.clear();
+            }
+
+            @Override
+            public void close_tail() {
+            }
+        });
+    }
+
+    private TransportWrapper createConnectedTransportWrapper(WebSocketImpl webSocketImpl, TransportInput transportInput)
+    {
+        init();
+
+        WebSocketHandlerImpl spyWebSocketHandler = spy(new WebSocketHandlerImpl());
+        doReturn(true).when(spyWebSocketHandler).validateUpgradeReply((ByteBuffer) any());
+
+        webSocketImpl.configure(_hostName, _webSocketPath, _webSocketPort, _webSocketProtocol, _additionalHeaders, spyWebSocketHandler);
+        TransportWrapper transportWrapper = webSocketImpl.wrap(transportInput, mock(TransportOutput.class));
+
+        transportWrapper.pending();
+        transportWrapper.process();
+        assertTrue(webSocketImpl.getState() == WebSocket.WebSocketState.PN_WS_CONNECTED_FLOW);
+
+        return transportWrapper;
+    }
+
+    private void processInChunks(WebSocketImpl webSocketImpl, TransportWrapper transportWrapper, byte[] stream, int chunkSize)
+    {
+        ByteBuffer inputBuffer = webSocketImpl.getInputBuffer();
+        for (int i = 0; i < stream.length; i += chunkSize)
+        {
+            inputBuffer.put(getChunk(stream, chunkSize, i));
+            transportWrapper.process();
+        }
+    }
+
+    @Test
+    public void testProcess_frames_split_at_any_byte()
+    {
+        byte[] payload1 = createPayload(300);
+        byte[] payload2 = createPayload(WebSocketHeader.PAYLOAD_SHORT_MAX);
+        byte[] frame1 = createFrame(WebSocketHeader.FINAL_OPCODE_BINARY, payload1);
+        byte[] frame2 = createFrame(WebSocketHeader.FINAL_OPCODE_BINARY, payload2);
+
+        byte[] stream = new byte[frame1.length + frame2.length];
+        System.arraycopy(frame1, 0, stream, 0, frame1.length);
+        System.arraycopy(frame2, 0, stream, frame1.length, frame2.length);
+
+        byte[] expected = new byte[payload1.length + payload2.length];
+        System.arraycopy(payload1, 0, expected, 0, payload1.length);
+        System.arraycopy(payload2, 0, expected, payload1.length, payload2.length);
+
+        for (int chunkSize = 1; chunkSize <= 11; chunkSize++)
+        {
+            ByteBuffer collected = ByteBuffer.allocate(expected.length);
+            WebSocketImpl webSocketImpl = new WebSocketImpl();
+            TransportWrapper transportWrapper = createConnectedTransportWrapper(webSocketImpl, createCollectingTransportInput(collected, 4224));
+
+            processInChunks(webSocketImpl, transportWrapper, stream, chunkSize);
+
+            assertTrue(Arrays.equals(expected, collected.array()));
+            assertEquals(0, webSocketImpl.getInputBuffer().position());
+        }
+    }
+
+    @Test
+    public void testProcess_large_frame_split_across_reads()
+    {
+        byte[] payload = createPayload(70000);
+        byte[] frame = createFrame(WebSocketHeader.FINAL_OPCODE_BINARY, payload);
+
+        ByteBuffer collected = ByteBuffer.allocate(payload.length);
+        WebSocketImpl webSocketImpl = new WebSocketImpl();
+        TransportWrapper transportWrapper = createConnectedTransportWrapper(webSocketImpl, createCollectingTransportInput(collected, 4224));
+
+        processInChunks(webSocketImpl, transportWrapper, frame, 4000);
+
+        assertTrue(Arrays.equals(payload, collected.array()));
+    }
+
+    @Test
+    public void testProcess_fragmented_message_with_ping_between_fragments()
+    {
+        byte[] payload1 = createPayload(200);
+        byte[] payload2 = createPayload(50);
+        byte[] pingPayload = "ping".getBytes();
+        byte[] frame1 = createFrame(WebSocketHeader.OPCODE_BINARY, payload1);
+        byte[] ping = createFrame((byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_PING), pingPayload);
+        byte[] frame2 = createFrame((byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_CONTINUATION), payload2);
+
+        byte[] stream = new byte[frame1.length + ping.length + frame2.length];
+        System.arraycopy(frame1, 0, stream, 0, frame1.length);
+        System.arraycopy(ping, 0, stream, frame1.length, ping.length);
+        System.arraycopy(frame2, 0, stream, frame1.length + ping.length, frame2.length);
+
+        byte[] expected = new byte[payload1.length + payload2.length];
+        System.arraycopy(payload1, 0, expected, 0, payload1.length);
+        System.arraycopy(payload2, 0, expected, payload1.length, payload2.length);
+
+        ByteBuffer collected = ByteBuffer.allocate(expected.length);
+        WebSocketImpl webSocketImpl = new WebSocketImpl();
+        TransportWrapper transportWrapper = createConnectedTransportWrapper(webSocketImpl, createCollectingTransportInput(collected, 4224));
+
+        processInChunks(webSocketImpl, transportWrapper, stream, 7);
+
+        assertTrue(Arrays.equals(expected, collected.array()));
+        assertTrue(webSocketImpl.getState() == WebSocket.WebSocketState.PN_WS_CONNECTED_PONG);
+
+        ByteBuffer pingBuffer = webSocketImpl.getPingBuffer();
+        pingBuffer.flip();
+        byte[] actualPing = new byte[pingBuffer.remaining()];
+        pingBuffer.get(actualPing);
+        assertTrue(Arrays.equals(ping, actualPing));
+    }
+
+    @Test
+    public void testProcess_empty_control_frame_at_end_of_read()
+    {
+        byte[] payload = createPayload(10);
+        byte[] frame = createFrame(WebSocketHeader.FINAL_OPCODE_BINARY, payload);
+        byte[] ping = createFrame((byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_PING), new byte[0]);
+
+        ByteBuffer collected = ByteBuffer.allocate(payload.length);
+        WebSocketImpl webSocketImpl = new WebSocketImpl();
+        TransportWrapper transportWrapper = createConnectedTransportWrapper(webSocketImpl, createCollectingTransportInput(collected, 4224));
+
+        ByteBuffer inputBuffer = webSocketImpl.getInputBuffer();
+        inputBuffer.put(frame);
+        inputBuffer.put(ping);
+        transportWrapper.process();
+
+        assertTrue(Arrays.equals(payload, collected.array()));
+        assertTrue(webSocketImpl.getState() == WebSocket.WebSocketState.PN_WS_CONNECTED_PONG);
+    }
+
+    @Test
+    public void testProcess_state_pong_keeps_reading_frames()
+    {
+        byte[] payload = createPayload(100);
+        byte[] ping = createFrame((byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_PING), "ping".getBytes());
+        byte[] frame = createFrame(WebSocketHeader.FINAL_OPCODE_BINARY, payload);
+
+        ByteBuffer collected = ByteBuffer.allocate(payload.length);
+        WebSocketImpl webSocketImpl = new WebSocketImpl();
+        TransportWrapper transportWrapper = createConnectedTransportWrapper(webSocketImpl, createCollectingTransportInput(collected, 4224));
+
+        ByteBuffer inputBuffer = webSocketImpl.getInputBuffer();
+        inputBuffer.put(ping);
+        transportWrapper.process();
+        assertTrue(webSocketImpl.getState() == WebSocket.WebSocketState.PN_WS_CONNECTED_PONG);
+
+        inputBuffer.put(frame);
+        transportWrapper.process();
+
+        assertTrue(Arrays.equals(payload, collected.array()));
+        assertEquals(0, inputBuffer.position());
+        assertEquals(inputBuffer.capacity(), inputBuffer.limit());
+    }
+
+    @Test
+    public void testProcess_keeps_payload_the_underlying_input_cannot_take()
+    {
+        byte[] payload = createPayload(1000);
+        byte[] frame = createFrame(WebSocketHeader.FINAL_OPCODE_BINARY, payload);
+
+        final ByteBuffer collected = ByteBuffer.allocate(payload.length);
+        final boolean[] isFull = {true};
+        TransportInput transportInput = spy(new TransportInput() {
+            ByteBuffer bb = ByteBufferUtils.newWriteableBuffer(100);
+
+            @Override
+            public int capacity() {
+                return isFull[0] ? 0 : bb.remaining();
+            }
+
+            @Override
+            public int position() {
+                return bb.position();
+            }
+
+            @Override
+            public ByteBuffer tail() throws TransportException {
+                return bb;
+            }
+
+            @Override
+            public void process() throws TransportException {
+                bb.flip();
+                collected.put(bb);
+                bb.clear();
+            }
+
+            @Override
+            public void close_tail() {
+            }
+        });
+
+        WebSocketImpl webSocketImpl = new WebSocketImpl();
+        TransportWrapper transportWrapper = createConnectedTransportWrapper(webSocketImpl, transportInput);
+
+        ByteBuffer inputBuffer = webSocketImpl.getInputBuffer();
+        inputBuffer.put(Arrays.copyOfRange(frame, 0, 500));
+        transportWrapper.process();
+        assertEquals(0, collected.position());
+
+        isFull[0] = false;
+        inputBuffer.put(Arrays.copyOfRange(frame, 500, frame.length));
+        transportWrapper.process();
+
+        assertTrue(Arrays.equals(payload, collected.array()));
+    }
+
     @Test
     public void testHead_websocket_not_enabled()
     {
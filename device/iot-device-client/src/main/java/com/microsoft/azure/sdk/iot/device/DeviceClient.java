@@ -5,13 +5,16 @@ package com.microsoft.azure.sdk.iot.device;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.ParserUtility;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.*;
+import com.microsoft.azure.sdk.iot.device.fileupload.BlockBlobUploader;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUpload;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetrics;
 
 import java.io.Closeable;
 import java.io.IOError;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
@@ -101,6 +104,9 @@ public final class DeviceClient implements Closeable
     private static final String SET_SEND_INTERVAL = "SetSendInterval";
     private static final String SET_CERTIFICATE_PATH = "SetCertificatePath";
     private static final String SET_SAS_TOKEN_EXPIRY_TIME = "SetSASTokenExpiryTime";
+    private static final String SET_FILE_UPLOAD_BLOCK_SIZE = "SetFileUploadBlockSize";
+    private static final String SET_TRANSPORT_METRICS = "SetTransportMetrics";
+    private static final String SET_TRUSTED_CERTIFICATE_PATH = "SetTrustedCertificatePath";
 
     private DeviceClientConfig config;
     private DeviceIO deviceIO;
@@ -579,6 +585,57 @@ public final class DeviceClient implements Closeable
         this.fileUpload.uploadToBlobAsync(destinationBlobName, inputStream, streamLength, callback, callbackContext);
     }
 
+    /**
+     * Asynchronously upload a file to the IoT Hub in blocks.
+     *
+     * <p>The blocks are memory-mapped from the file and staged in parallel. If the upload fails,
+     * uploading the same file to the same blob name again resumes from the blocks that are already
+     * in the storage. The block size can be changed with the option <b>SetFileUploadBlockSize</b>.</p>
+     *
+     * @param destinationBlobName is a string with the name of the file in the storage.
+     * @param fileChannel is the channel of the file to upload. It shall stay open until the callback is called.
+     * @param callback the callback to be invoked when a file is uploaded.
+     * @param callbackContext a context to be passed to the callback. Can be {@code null}.
+     *
+     * @throws IllegalArgumentException if the provided blob name, or the file channel is {@code null},
+     *          empty or not valid, or if the callback is {@code null}.
+     * @throws IOException if the client cannot create a instance of the FileUpload or the transport.
+     * @throws UnsupportedOperationException if this method is called when using x509 authentication
+     */
+    public void uploadToBlobAsync(String destinationBlobName, FileChannel fileChannel,
+                                  IotHubEventCallback callback, Object callbackContext)
+            throws IllegalArgumentException, IOException
+    {
+        /* Codes_SRS_DEVICECLIENT_21_055: [If the `callback` is null, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+        if(callback == null)
+        {
+            throw new IllegalArgumentException("Callback is null");
+        }
+
+        /* Codes_SRS_DEVICECLIENT_21_056: [If the `fileChannel` is null, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+        if(fileChannel == null)
+        {
+            throw new IllegalArgumentException("The file channel cannot be null.");
+        }
+
+        /* Codes_SRS_DEVICECLIENT_21_057: [If the `destinationBlobName` is null, empty or not valid, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+        ParserUtility.validateBlobName(destinationBlobName);
+
+        if (this.config.getAuthenticationType() == DeviceClientConfig.AuthType.X509_CERTIFICATE)
+        {
+            /* Codes_SRS_DEVICECLIENT_21_058: [If this function is called when the device client is using x509 authentication, an UnsupportedOperationException shall be thrown.] */
+            throw new UnsupportedOperationException("File Upload does not support x509 authentication");
+        }
+
+        if(this.fileUpload == null)
+        {
+            this.fileUpload = new FileUpload(this.config);
+        }
+
+        /* Codes_SRS_DEVICECLIENT_21_059: [The uploadToBlobAsync shall start the file upload process, by calling uploadToBlobAsync on the FileUpload class.] */
+        this.fileUpload.uploadToBlobAsync(destinationBlobName, fileChannel, callback, callbackContext);
+    }
+
     @SuppressWarnings("unused")
     protected DeviceClient()
     {
@@ -652,6 +709,51 @@ public final class DeviceClient implements Closeable
         }
     }
 
+    private void setOption_SetFileUploadBlockSize(Object value)
+    {
+        logger.LogInfo("Setting file upload block size as %s bytes, method name is %s ", value, logger.getMethodName());
+
+        if (value != null)
+        {
+            // Codes_SRS_DEVICECLIENT_21_061: ["SetFileUploadBlockSize" needs to have value type integer, between 0 and 4 MB.]
+            if ((value instanceof Integer) && ((int) value >= 0) && ((int) value <= BlockBlobUploader.MAX_BLOCK_SIZE))
+            {
+                this.config.setFileUploadBlockSize((int) value);
+            }
+            else
+            {
+                throw new IllegalArgumentException("value is not an integer between 0 and " + BlockBlobUploader.MAX_BLOCK_SIZE + " = " + value);
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException("value cannot be null");
+        }
+    }
+
+    private void setOption_SetTransportMetrics(Object value)
+    {
+        logger.LogInfo("Setting transport metrics as %s, method name is %s ", value, logger.getMethodName());
+
+        if (this.deviceIO.isOpen())
+        {
+            throw new IllegalStateException("setOption " + SET_TRANSPORT_METRICS +
+                    " only works when the transport is closed");
+        }
+        else
+        {
+            // Codes_SRS_DEVICECLIENT_21_063: ["SetTransportMetrics" needs to have value type TransportMetrics, and is only available when the transport is closed.]
+            if (value instanceof TransportMetrics)
+            {
+                this.config.setTransportMetrics((TransportMetrics) value);
+            }
+            else
+            {
+                throw new IllegalArgumentException("value is not a TransportMetrics = " + value);
+            }
+        }
+    }
+
     private void setOption_SetCertificatePath(Object value)
     {
         logger.LogInfo("Setting CertificatePath as %s, method name is %s ", value, logger.getMethodName());
@@ -680,6 +782,36 @@ public final class DeviceClient implements Closeable
         }
     }
 
+    private void setOption_SetTrustedCertificatePath(Object value)
+    {
+        logger.LogInfo("Setting trusted certificate path as %s, method name is %s ", value, logger.getMethodName());
+
+        if (this.deviceIO.isOpen())
+        {
+            throw new IllegalStateException("setOption " + SET_TRUSTED_CERTIFICATE_PATH +
+                    " only works when the transport is closed");
+        }
+        else
+        {
+            // Codes_SRS_DEVICECLIENT_21_065: ["SetTrustedCertificatePath" needs to have value type String, and is only available when the transport is closed.]
+            if (value instanceof String)
+            {
+                if (this.config.getAuthenticationType() == DeviceClientConfig.AuthType.X509_CERTIFICATE)
+                {
+                    this.config.getX509Authentication().setPathToIotHubTrustedCert((String) value);
+                }
+                else
+                {
+                    this.config.getSasTokenAuthentication().setPathToIotHubTrustedCert((String) value);
+                }
+            }
+            else
+            {
+                throw new IllegalArgumentException("value is not a String = " + value);
+            }
+        }
+    }
+
     private void setOption_SetSASTokenExpiryTime(Object value)
     {
         logger.LogInfo("Setting SASTokenExpiryTime as %s seconds, method name is %s ", value, logger.getMethodName());
@@ -765,6 +897,19 @@ public final class DeviceClient implements Closeable
      *         SASToken expires. If the transport is already open then setting this
      *         option will restart the transport with the updated expiry time. The
      *         value is expected to be of type {@code long}.
+     *      - <b>SetFileUploadBlockSize</b> - this option specifies the size in bytes
+     *         of the blocks used to upload files, up to 4 MB. The blocks are staged in
+     *         parallel and a failed upload can be resumed. The value 0 uploads streams
+     *         in a single request. The value is expected to be of type {@code int}.
+     *      - <b>SetTransportMetrics</b> - this option specifies the {@link TransportMetrics}
+     *         that receive the depth of the queues, the send to acknowledgement latency,
+     *         and the reconnects of the transport. It can only be set when the client is
+     *         closed. The value is expected to be of type {@code TransportMetrics}.
+     *      - <b>SetTrustedCertificatePath</b> - this option is applicable for HTTP/
+     *         AMQP/MQTT. This option specifies the path to the PEM file with the
+     *         certificate used to verify the IotHub, instead of the default one. It
+     *         can only be set when the client is closed. The value is expected to be
+     *         of type {@code String}.
      *
      * @param optionName the option name to modify
      * @param value an object of the appropriate type for the option's value
@@ -836,6 +981,24 @@ public final class DeviceClient implements Closeable
                     setOption_SetSASTokenExpiryTime(value);
                     break;
                 }
+                // Codes_SRS_DEVICECLIENT_21_060: ["SetFileUploadBlockSize" - size in bytes of the blocks of a file upload.]
+                case SET_FILE_UPLOAD_BLOCK_SIZE:
+                {
+                    setOption_SetFileUploadBlockSize(value);
+                    break;
+                }
+                // Codes_SRS_DEVICECLIENT_21_062: ["SetTransportMetrics" - metrics of the queues, latency, and reconnects of the transport.]
+                case SET_TRANSPORT_METRICS:
+                {
+                    setOption_SetTransportMetrics(value);
+                    break;
+                }
+                // Codes_SRS_DEVICECLIENT_21_064: ["SetTrustedCertificatePath" - path to the certificate to verify the IotHub, for all protocols.]
+                case SET_TRUSTED_CERTIFICATE_PATH:
+                {
+                    setOption_SetTrustedCertificatePath(value);
+                    break;
+                }
                 default:
                 {
                     throw new IllegalArgumentException("optionName is unknown = " + optionName);
@@ -5,6 +5,8 @@ package com.microsoft.azure.sdk.iot.device;
 
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthentication;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubX509Authentication;
+import com.microsoft.azure.sdk.iot.device.transport.NoopTransportMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetrics;
 
 /**
  * Configuration settings for an IoT Hub client. Validates all user-defined
@@ -19,6 +21,12 @@ public final class DeviceClientConfig
 
     private boolean useWebsocket;
 
+    /** The size of the blocks of a chunked file upload, or 0 to upload each file in a single request. */
+    private int fileUploadBlockSize;
+
+    /** The metrics of the transports, which ignore them by default. */
+    private TransportMetrics transportMetrics = NoopTransportMetrics.INSTANCE;
+
     private IotHubX509Authentication x509Authentication;
     private IotHubSasTokenAuthentication sasTokenAuthentication;
 
@@ -185,6 +193,60 @@ public final class DeviceClientConfig
         this.useWebsocket = useWebsocket;
     }
 
+    /**
+     * Getter for the size of the blocks used to upload files.
+     * @return the block size in bytes, or 0 if files are uploaded in a single request.
+     */
+    public int getFileUploadBlockSize()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_21_080: [The function shall return the saved file upload block size.]
+        return this.fileUploadBlockSize;
+    }
+
+    /**
+     * Setter for the size of the blocks used to upload files.
+     * @param fileUploadBlockSize the block size in bytes, or 0 to upload files in a single request.
+     * @throws IllegalArgumentException if the size is negative.
+     */
+    public void setFileUploadBlockSize(int fileUploadBlockSize) throws IllegalArgumentException
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_21_081: [If the provided size is negative, the function shall throw IllegalArgumentException.]
+        if (fileUploadBlockSize < 0)
+        {
+            throw new IllegalArgumentException("fileUploadBlockSize cannot be negative");
+        }
+
+        //Codes_SRS_DEVICECLIENTCONFIG_21_082: [The function shall save the file upload block size.]
+        this.fileUploadBlockSize = fileUploadBlockSize;
+    }
+
+    /**
+     * Getter for the metrics of the transports.
+     * @return the transport metrics, which is the {@link NoopTransportMetrics} if none was set.
+     */
+    public TransportMetrics getTransportMetrics()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_21_083: [The function shall return the saved transport metrics.]
+        return this.transportMetrics;
+    }
+
+    /**
+     * Setter for the metrics of the transports. The transports use them from the next open.
+     * @param transportMetrics the transport metrics.
+     * @throws IllegalArgumentException if the metrics is {@code null}.
+     */
+    public void setTransportMetrics(TransportMetrics transportMetrics) throws IllegalArgumentException
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_21_084: [If the provided metrics is null, the function shall throw IllegalArgumentException.]
+        if (transportMetrics == null)
+        {
+            throw new IllegalArgumentException("transportMetrics cannot be null, use NoopTransportMetrics to disable them");
+        }
+
+        //Codes_SRS_DEVICECLIENTCONFIG_21_085: [The function shall save the transport metrics.]
+        this.transportMetrics = transportMetrics;
+    }
+
     /**
      * Setter for the message callback. Can be {@code null}.
      * @param callback the message callback. Can be {@code null}.
@@ -216,6 +216,12 @@ public final class DeviceIO
         /* Codes_SRS_DEVICE_IO_21_019: [The close shall close the transport.] */
         this.transport.close();
 
+        /* Codes_SRS_DEVICE_IO_21_043: [If the client uses SAS token authentication, the close shall cancel the background renewal of the sas token.] */
+        if ((this.config.getAuthenticationType() == DeviceClientConfig.AuthType.SAS_TOKEN) && (this.config.getSasTokenAuthentication() != null))
+        {
+            this.config.getSasTokenAuthentication().cancelRenewal();
+        }
+
         /* Codes_SRS_DEVICE_IO_21_021: [The close shall set the `state` as `CLOSE`.] */
         this.state = IotHubClientState.CLOSED;
     }
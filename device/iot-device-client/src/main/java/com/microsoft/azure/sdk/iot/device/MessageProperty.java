@@ -39,12 +39,14 @@ public final class MessageProperty {
         RESERVED_PROPERTY_NAMES = Collections.unmodifiableSet(reservedPropertyNames);
     }
 
+    private static final char MAX_ASCII = 0x7F;
+    private static final CustomLogger logger = new CustomLogger(MessageProperty.class);
+
     /** The property name. */
     private String name;
     /** The property value. */
     private String value;
-    private CustomLogger logger;
-    
+
     /**
      * Constructor.
      *
@@ -56,7 +58,6 @@ public final class MessageProperty {
      * A message property name cannot be one of the reserved property names.
      */
     public MessageProperty(String name, String value) {
-        this.logger = new CustomLogger(this.getClass());
         if (name == null) {
             logger.LogError("Property argument 'name' cannot be null, method name is %s ", logger.getMethodName());
             throw new IllegalArgumentException("Property argument 'name' cannot be null.");
@@ -183,14 +184,13 @@ public final class MessageProperty {
      * @return whether the string only uses US-ASCII 
      */
     private static boolean usesValidChars(String s) {
-        boolean isValid = false;
-
-        if (s.matches("\\p{ASCII}*"))
-        {
-            isValid = true;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > MAX_ASCII) {
+                return false;
+            }
         }
 
-        return isValid;
+        return true;
     }
 
     @SuppressWarnings("unused")
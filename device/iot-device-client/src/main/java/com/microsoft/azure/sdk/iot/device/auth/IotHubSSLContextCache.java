@@ -0,0 +1,253 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.auth;
+
+import javax.net.ssl.SSLSessionContext;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.CertificateException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of the {@link IotHubSSLContext} used to connect to the IoT Hub.
+ *
+ * <p>
+ *     Building an SSL context parses the PEM certificates, loads the default certificates and initializes a
+ *     TrustManagerFactory. The cache builds each context once per trust and key material, and shares it
+ *     with all clients that use the same material. Because JSSE keeps the client TLS sessions in the SSL
+ *     context, sharing it also allows reconnections, and new clients to the same hub, to resume an existing
+ *     TLS session instead of doing a full handshake.
+ * </p>
+ *
+ * <p>
+ *     The contexts are keyed by a SHA-256 digest of the material, so the private keys are not kept in the keys.
+ *     A trusted certificate path is keyed by its path and last modification time, so an updated file creates a
+ *     new context.
+ * </p>
+ *
+ * <p>
+ *     The cache keeps the {@code MAX_CACHED_CONTEXTS} most recently used contexts, so the contexts of rotated
+ *     credentials, and the private keys that they hold, are eventually released. {@link #invalidate(IotHubSSLContext)}
+ *     releases the context of rotated credentials at once.
+ * </p>
+ */
+final class IotHubSSLContextCache
+{
+    private static final int SESSION_CACHE_SIZE = 1024;
+    private static final int SESSION_TIMEOUT_SECS = 24 * 60 * 60;
+    private static final int MAX_CACHED_CONTEXTS = 16;
+
+    private static final String DEFAULT_KEY = "default";
+    private static final String KEY_SEPARATOR = "\u0000";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final Object SSL_CONTEXT_CACHE_LOCK = new Object();
+
+    // Access ordered, so the eldest entry is the least recently used one. Guarded by the SSL_CONTEXT_CACHE_LOCK.
+    private static final Map<String, IotHubSSLContext> sslContexts = new LinkedHashMap<String, IotHubSSLContext>(MAX_CACHED_CONTEXTS, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IotHubSSLContext> eldest)
+        {
+            //Codes_SRS_IOTHUBSSLCONTEXTCACHE_21_006: [The cache shall keep at most MAX_CACHED_CONTEXTS contexts, and remove the least recently used one when it is full.]
+            return size() > MAX_CACHED_CONTEXTS;
+        }
+    };
+
+    private IotHubSSLContextCache()
+    {
+    }
+
+    /**
+     * Get the shared default SSL context.
+     *
+     * @return the shared {@link IotHubSSLContext} with the default IoT Hub certificates.
+     * @throws IOException if the context cannot be created.
+     */
+    static IotHubSSLContext getDefault() throws IOException
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_21_001: [The getDefault shall return the shared default IotHubSSLContext, creating it if it does not exist.]
+        synchronized (SSL_CONTEXT_CACHE_LOCK)
+        {
+            IotHubSSLContext sslContext = sslContexts.get(DEFAULT_KEY);
+            if (sslContext == null)
+            {
+                try
+                {
+                    sslContext = new IotHubSSLContext();
+                }
+                catch (CertificateException | NoSuchAlgorithmException | KeyManagementException | KeyStoreException e)
+                {
+                    throw new IOException(e.getMessage());
+                }
+                store(DEFAULT_KEY, sslContext);
+            }
+            return sslContext;
+        }
+    }
+
+    /**
+     * Get the shared SSL context that trusts the provided certificate.
+     *
+     * @param trustedCert the trusted certificate, or the path to it.
+     * @param isPath if the trustedCert is a path.
+     * @return the shared {@link IotHubSSLContext} for the certificate.
+     * @throws IOException if the context cannot be created.
+     */
+    static IotHubSSLContext getWithTrustedCert(String trustedCert, boolean isPath) throws IOException
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_21_002: [The getWithTrustedCert shall return the shared IotHubSSLContext for the trusted cert, creating it if it does not exist.]
+        String key = createKey("trusted", trustedMaterial(trustedCert, isPath));
+        synchronized (SSL_CONTEXT_CACHE_LOCK)
+        {
+            IotHubSSLContext sslContext = sslContexts.get(key);
+            if (sslContext == null)
+            {
+                try
+                {
+                    sslContext = new IotHubSSLContext(trustedCert, isPath);
+                }
+                catch (CertificateException | NoSuchAlgorithmException | KeyManagementException | KeyStoreException e)
+                {
+                    throw new IOException(e.getMessage());
+                }
+                store(key, sslContext);
+            }
+            return sslContext;
+        }
+    }
+
+    /**
+     * Get the shared SSL context for the provided x509 key pair and, optionally, trusted certificate.
+     *
+     * @param publicKeyCertificate the PEM formatted public key certificate.
+     * @param privateKey the PEM formatted private key.
+     * @param trustedCert the trusted certificate, or the path to it. Can be {@code null} to use the default certificates.
+     * @param isPath if the trustedCert is a path.
+     * @return the shared {@link IotHubSSLContext} for the key pair.
+     * @throws IOException if the context cannot be created.
+     */
+    static IotHubSSLContext getWithKeys(String publicKeyCertificate, String privateKey, String trustedCert, boolean isPath) throws IOException
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_21_003: [The getWithKeys shall return the shared IotHubSSLContext for the key pair and trusted cert, creating it if it does not exist.]
+        String key = createKey("keys", publicKeyCertificate, privateKey, trustedCert == null ? null : trustedMaterial(trustedCert, isPath));
+        synchronized (SSL_CONTEXT_CACHE_LOCK)
+        {
+            IotHubSSLContext sslContext = sslContexts.get(key);
+            if (sslContext == null)
+            {
+                try
+                {
+                    if (trustedCert == null)
+                    {
+                        sslContext = new IotHubSSLContext(publicKeyCertificate, privateKey);
+                    }
+                    else
+                    {
+                        sslContext = new IotHubSSLContext(publicKeyCertificate, privateKey, trustedCert, isPath);
+                    }
+                }
+                catch (CertificateException | NoSuchAlgorithmException | KeyManagementException | KeyStoreException | UnrecoverableKeyException e)
+                {
+                    throw new IOException(e.getMessage());
+                }
+                store(key, sslContext);
+            }
+            return sslContext;
+        }
+    }
+
+    /**
+     * Remove all the shared contexts. The clients that already have a context keep using it.
+     */
+    static void clear()
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_21_004: [The clear shall remove all cached IotHubSSLContext.]
+        synchronized (SSL_CONTEXT_CACHE_LOCK)
+        {
+            sslContexts.clear();
+        }
+    }
+
+    /**
+     * Remove a shared context, when the credentials that it holds are rotated. The clients that already
+     * have the context keep using it.
+     *
+     * @param sslContext the context to remove. Nothing is removed if it is {@code null} or not cached.
+     */
+    static void invalidate(IotHubSSLContext sslContext)
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_21_007: [The invalidate shall remove the provided IotHubSSLContext from the cache, if it is cached.]
+        synchronized (SSL_CONTEXT_CACHE_LOCK)
+        {
+            Iterator<IotHubSSLContext> contexts = sslContexts.values().iterator();
+            while (contexts.hasNext())
+            {
+                if (contexts.next() == sslContext)
+                {
+                    contexts.remove();
+                }
+            }
+        }
+    }
+
+    private static void store(String key, IotHubSSLContext sslContext)
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_21_005: [The cache shall enable the TLS session resumption on the client session context of each created SSLContext.]
+        if (sslContext.getSSlContext() != null)
+        {
+            SSLSessionContext sessionContext = sslContext.getSSlContext().getClientSessionContext();
+            if (sessionContext != null)
+            {
+                sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+                sessionContext.setSessionTimeout(SESSION_TIMEOUT_SECS);
+            }
+        }
+        sslContexts.put(key, sslContext);
+    }
+
+    private static String trustedMaterial(String trustedCert, boolean isPath)
+    {
+        if (isPath)
+        {
+            return "path" + KEY_SEPARATOR + trustedCert + KEY_SEPARATOR + new File(trustedCert).lastModified();
+        }
+        return "cert" + KEY_SEPARATOR + trustedCert;
+    }
+
+    private static String createKey(String... material) throws IOException
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            for (String part : material)
+            {
+                if (part != null)
+                {
+                    digest.update(part.getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update(KEY_SEPARATOR.getBytes(StandardCharsets.UTF_8));
+            }
+
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest())
+            {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException(e.getMessage());
+        }
+    }
+}
@@ -12,12 +12,13 @@ import java.util.Map;
 public final class IotHubSasToken
 {
     /**
-     * The SAS token format. The parameters to be interpolated are, in order:
-     * the signature, the expiry time, the key name (device ID), and the
-     * resource URI.
+     * The SAS token format is "SharedAccessSignature sig=&lt;signature&gt;&amp;se=&lt;expiryTime&gt;&amp;sr=&lt;resourceURI&gt;".
+     * The token is built by appending the signature, the expiry time and the resource URI to this prefix.
      */
-    private static final String TOKEN_FORMAT = "SharedAccessSignature sig=%s&se=%s&sr=%s";
+    private static final String TOKEN_PREFIX = "SharedAccessSignature sig=";
     private String sasToken = null;
+    /** The token built from the signature, the expiry time and the scope. */
+    private String builtSasToken = null;
 
     /** Components of the SAS token. */
     private String signature = null;
@@ -106,6 +107,29 @@ public final class IotHubSasToken
         }
     }
 
+    /**
+     * Constructor. Generates a SAS token signed by the provided signer, which grants access to an IoT Hub
+     * until the provided expiry time.
+     *
+     * @param hostname the hostname of the hub the token is for
+     * @param deviceId The id of the device the token is for
+     * @param signer the signer for the device key.
+     * @param expiryTime the time, as a UNIX timestamp, after which the token will become invalid
+     */
+    IotHubSasToken(String hostname, String deviceId, SasTokenSigner signer, long expiryTime)
+    {
+        // Codes_SRS_IOTHUBSASTOKEN_21_011: [If the signer is null, the constructor shall throw IllegalArgumentException.]
+        if (signer == null)
+        {
+            throw new IllegalArgumentException("signer cannot be null");
+        }
+
+        // Codes_SRS_IOTHUBSASTOKEN_21_012: [The constructor shall compute the signature with the provided signer, without decoding the device key again.]
+        this.scope = IotHubUri.getResourceUri(hostname, deviceId);
+        this.expiryTime = expiryTime;
+        this.signature = signer.sign(this.scope, this.expiryTime);
+    }
+
     /**
      * Returns the string representation of the SAS token.
      *
@@ -129,7 +153,11 @@ public final class IotHubSasToken
         else if(this.signature != null && this.expiryTime != 0L && this.scope!= null)
         {
             //Codes_SRS_IOTHUBSASTOKEN_25_010: [**If SAS Token was not provided by config it should be built and returned as string **]**
-            return buildSasToken();
+            if (this.builtSasToken == null)
+            {
+                this.builtSasToken = buildSasToken();
+            }
+            return this.builtSasToken;
         }
         else
         {
@@ -186,6 +214,17 @@ public final class IotHubSasToken
         return (System.currentTimeMillis() / 1000) >= this.expiryTime ;
     }
 
+    /**
+     * Getter for the expiry time of this token.
+     *
+     * @return the time, as a UNIX timestamp, after which the token will become invalid.
+     */
+    long getExpiryTime()
+    {
+        // Codes_SRS_IOTHUBSASTOKEN_21_013: [The getExpiryTime shall return the expiry time of the token in seconds.]
+        return this.expiryTime;
+    }
+
     /**
      * Return the expiry time for the provided sasToken in seconds.
      *
@@ -233,7 +272,11 @@ public final class IotHubSasToken
     private String buildSasToken()
     {
         // Codes_SRS_IOTHUBSASTOKEN_11_001: [The SAS token shall have the format "SharedAccessSignature sig=<signature >&se=<expiryTime>&sr=<resourceURI>". The params can be in any order.]
-        return String.format(TOKEN_FORMAT, this.signature, this.expiryTime, this.scope);
+        return new StringBuilder(TOKEN_PREFIX.length() + this.signature.length() + this.scope.length() + 32)
+                .append(TOKEN_PREFIX).append(this.signature)
+                .append(FieldPairSeparator).append(ExpiryTimeFieldKey).append(FieldKeyValueSeparator).append(this.expiryTime)
+                .append(FieldPairSeparator).append(ResourceURIFieldKey).append(FieldKeyValueSeparator).append(this.scope)
+                .toString();
     }
 
     @SuppressWarnings("unused")
@@ -7,10 +7,16 @@ package com.microsoft.azure.sdk.iot.device.auth;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 public class IotHubSasTokenAuthentication
 {
@@ -25,12 +31,29 @@ public class IotHubSasTokenAuthentication
     private static final long MILLISECONDS_PER_SECOND = 1000L;
     private static final long MINIMUM_EXPIRATION_TIME_OFFSET = 1L;
 
-    private IotHubSasToken sasToken;
+    /**
+     * Percentage of the token lifetime after which the token is renewed in background, so a
+     * valid token is always ready when the transport needs it.
+     */
+    private static final long TOKEN_RENEWAL_PERCENTAGE = 85L;
+    private static final String RENEWAL_THREAD_NAME = "azure-iot-sdk-SasTokenRenewal";
+    private static final long RENEWAL_THREAD_KEEP_ALIVE_SECONDS = 60L;
+
+    /**
+     * Scheduler shared by all authentications to renew the sas tokens before they expire. Its thread ends
+     * once no renewal is scheduled for a minute.
+     */
+    private static ScheduledExecutorService renewalScheduler;
+
+    private volatile IotHubSasToken sasToken;
+    private SasTokenSigner signer;
+    private ScheduledFuture<?> scheduledRenewal;
+    private volatile boolean renewalCancelled;
+    private final Object sasTokenLock = new Object();
     private IotHubSSLContext iotHubSSLContext;
 
     private String hostname;
     private String deviceId;
-    private String deviceKey;
 
     private String iotHubTrustedCert;
     private String pathToIotHubTrustedCert;
@@ -50,12 +73,20 @@ public class IotHubSasTokenAuthentication
     {
         this.hostname = hostname;
         this.deviceId = deviceId;
-        this.deviceKey = deviceKey;
 
         this.sslContextNeedsUpdate = false;
 
-        //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_002: [This constructor shall save the provided connection string.]
-        this.sasToken = new IotHubSasToken(hostname, deviceId, deviceKey, sharedAccessToken, tokenValidSecs);
+        if (deviceKey != null)
+        {
+            //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_21_032: [If a device key is provided, this constructor shall create a SasTokenSigner for it and use it to generate a valid sas token.]
+            this.signer = new SasTokenSigner(deviceKey);
+            renewSasToken();
+        }
+        else
+        {
+            //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_002: [This constructor shall save the provided connection string.]
+            this.sasToken = new IotHubSasToken(hostname, deviceId, null, sharedAccessToken, tokenValidSecs);
+        }
     }
 
     /**
@@ -65,17 +96,134 @@ public class IotHubSasTokenAuthentication
      */
     public String getRenewedSasToken()
     {
-        if (this.deviceKey != null && this.sasToken.isExpired())
+        if (this.signer != null && (this.renewalCancelled || this.sasToken.isExpired()))
         {
             //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_004: [If the saved sas token has expired and there is a device key present, the saved sas token shall be renewed.]
-            Long expiryTime = (System.currentTimeMillis() / MILLISECONDS_PER_SECOND) + this.tokenValidSecs + MINIMUM_EXPIRATION_TIME_OFFSET;
-            this.sasToken = new IotHubSasToken(this.hostname, this.deviceId, this.deviceKey, null, expiryTime);
+            //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_21_037: [If the background renewal was cancelled and there is a device key present, the saved sas token shall be renewed, and the background renewal scheduled again.]
+            synchronized (this.sasTokenLock)
+            {
+                if (this.renewalCancelled || this.sasToken.isExpired())
+                {
+                    renewSasToken();
+                }
+            }
         }
 
         //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_005: [This function shall return the saved sas token.]
         return this.sasToken.toString();
     }
 
+    /**
+     * Create a new sas token with the saved signer, and schedule its renewal in background after
+     * {@link #TOKEN_RENEWAL_PERCENTAGE} of its lifetime, so the send path does not need to renew it.
+     */
+    private void renewSasToken()
+    {
+        synchronized (this.sasTokenLock)
+        {
+            //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_21_033: [The renewal shall create the new sas token with the saved SasTokenSigner, valid for tokenValidSecs.]
+            long expiryTime = (System.currentTimeMillis() / MILLISECONDS_PER_SECOND) + this.tokenValidSecs + MINIMUM_EXPIRATION_TIME_OFFSET;
+            IotHubSasToken renewedSasToken = new IotHubSasToken(this.hostname, this.deviceId, this.signer, expiryTime);
+
+            // Build the token string now, out of the send path.
+            renewedSasToken.toString();
+            this.sasToken = renewedSasToken;
+            this.renewalCancelled = false;
+
+            if (this.scheduledRenewal != null)
+            {
+                this.scheduledRenewal.cancel(false);
+                this.scheduledRenewal = null;
+            }
+
+            //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_21_034: [The renewal shall schedule the next renewal in background once TOKEN_RENEWAL_PERCENTAGE of the token lifetime has elapsed.]
+            long lifetimeMillis = (renewedSasToken.getExpiryTime() * MILLISECONDS_PER_SECOND) - System.currentTimeMillis();
+            long delayMillis = (lifetimeMillis * TOKEN_RENEWAL_PERCENTAGE) / 100L;
+            if (delayMillis > 0)
+            {
+                this.scheduledRenewal = getRenewalScheduler().schedule(new SasTokenRenewalTask(this), delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Renew the sas token from the background renewal, unless the renewal was cancelled meanwhile.
+     */
+    private void renewSasTokenInBackground()
+    {
+        synchronized (this.sasTokenLock)
+        {
+            if (!this.renewalCancelled)
+            {
+                renewSasToken();
+            }
+        }
+    }
+
+    /**
+     * Cancel the background renewal of the sas token, so a closed client does not keep a task on the shared
+     * renewal scheduler. The next {@link #getRenewedSasToken()} renews the token and schedules the renewal again.
+     */
+    public void cancelRenewal()
+    {
+        synchronized (this.sasTokenLock)
+        {
+            //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_21_036: [This function shall cancel the scheduled background renewal of the sas token.]
+            this.renewalCancelled = true;
+            if (this.scheduledRenewal != null)
+            {
+                this.scheduledRenewal.cancel(false);
+                this.scheduledRenewal = null;
+            }
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getRenewalScheduler()
+    {
+        if (renewalScheduler == null)
+        {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, RENEWAL_THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            scheduler.setKeepAliveTime(RENEWAL_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            scheduler.allowCoreThreadTimeOut(true);
+            renewalScheduler = scheduler;
+        }
+        return renewalScheduler;
+    }
+
+    /**
+     * Renews the sas token of an authentication. It only keeps a weak reference to the authentication,
+     * so a pending renewal does not keep a closed client alive.
+     */
+    private static final class SasTokenRenewalTask implements Runnable
+    {
+        private final WeakReference<IotHubSasTokenAuthentication> authentication;
+
+        SasTokenRenewalTask(IotHubSasTokenAuthentication authentication)
+        {
+            this.authentication = new WeakReference<>(authentication);
+        }
+
+        @Override
+        public void run()
+        {
+            IotHubSasTokenAuthentication sasTokenAuthentication = this.authentication.get();
+            if (sasTokenAuthentication != null)
+            {
+                sasTokenAuthentication.renewSasTokenInBackground();
+            }
+        }
+    }
+
     /**
      * Getter for SasToken. If the saved token has expired, this method shall not renew it even if possible
      *
@@ -99,6 +247,7 @@ public class IotHubSasTokenAuthentication
             if (this.iotHubSSLContext == null || this.sslContextNeedsUpdate)
             {
                 this.iotHubSSLContext = generateSSLContext();
+                this.sslContextNeedsUpdate = false;
             }
 
             //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_008: [This function shall return the generated IotHubSSLContext.]
@@ -119,6 +268,12 @@ public class IotHubSasTokenAuthentication
     {
         //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_012: [This function shall save the provided tokenValidSecs as the number of seconds that created sas tokens are valid for.]
         this.tokenValidSecs = tokenValidSecs;
+
+        if (this.signer != null)
+        {
+            //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_21_035: [If there is a device key, this function shall renew the saved sas token with the new tokenValidSecs.]
+            renewSasToken();
+        }
     }
 
     /**
@@ -128,7 +283,7 @@ public class IotHubSasTokenAuthentication
     public boolean isRenewalNecessary()
     {
         //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_017: [If the saved sas token has expired and cannot be renewed, this function shall return true.]
-        return (this.sasToken != null && this.sasToken.isExpired() && this.deviceKey == null);
+        return (this.sasToken != null && this.sasToken.isExpired() && this.signer == null);
     }
 
     /**
@@ -146,18 +301,18 @@ public class IotHubSasTokenAuthentication
     {
         if (this.iotHubTrustedCert != null)
         {
-            // Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert as the trusted cert.]
-            return new IotHubSSLContext(this.iotHubTrustedCert, false);
+            // Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall get the shared IotHubSSLContext object with that saved cert as the trusted cert.]
+            return IotHubSSLContextCache.getWithTrustedCert(this.iotHubTrustedCert, false);
         }
         else if (this.pathToIotHubTrustedCert != null)
         {
-            // Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert path as the trusted cert.]
-            return new IotHubSSLContext(this.pathToIotHubTrustedCert, true);
+            // Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall get the shared IotHubSSLContext object with that saved cert path as the trusted cert.]
+            return IotHubSSLContextCache.getWithTrustedCert(this.pathToIotHubTrustedCert, true);
         }
         else
         {
-            // Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall create and save a new default IotHubSSLContext object.]
-            return new IotHubSSLContext();
+            // Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall get the shared default IotHubSSLContext object.]
+            return IotHubSSLContextCache.getDefault();
         }
     }
 
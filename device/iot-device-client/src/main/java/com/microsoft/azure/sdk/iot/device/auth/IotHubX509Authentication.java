@@ -50,6 +50,11 @@ public class IotHubX509Authentication
             //Codes_SRS_IOTHUBX509AUTHENTICATION_34_005: [This function shall return the saved IotHubSSLContext.]
             if (this.iotHubSSLContext == null || this.sslContextNeedsUpdate)
             {
+                if (this.iotHubSSLContext != null)
+                {
+                    //Codes_SRS_IOTHUBX509AUTHENTICATION_21_032: [If the saved IotHubSSLContext needs an update, this function shall invalidate it in the shared cache, so the cache does not keep the previous material with the private key.]
+                    IotHubSSLContextCache.invalidate(this.iotHubSSLContext);
+                }
                 this.iotHubSSLContext = generateSSLContext();
                 this.sslContextNeedsUpdate = false;
             }
@@ -77,18 +82,18 @@ public class IotHubX509Authentication
     {
         if (this.iotHubTrustedCert != null)
         {
-            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert as the trusted cert and with the saved public and private key combo.]
-            return new IotHubSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.iotHubTrustedCert, false);
+            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall get the shared IotHubSSLContext object with that saved cert as the trusted cert and with the saved public and private key combo.]
+            return IotHubSSLContextCache.getWithKeys(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.iotHubTrustedCert, false);
         }
         else if (this.pathToIotHubTrustedCert != null)
         {
-            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert path as the trusted cert and with the saved public and private key combo.]
-            return new IotHubSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.pathToIotHubTrustedCert, true);
+            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall get the shared IotHubSSLContext object with that saved cert path as the trusted cert and with the saved public and private key combo.]
+            return IotHubSSLContextCache.getWithKeys(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.pathToIotHubTrustedCert, true);
         }
         else
         {
-            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall create and save a new IotHubSSLContext object with the saved public and private key combo.]
-            return new IotHubSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey());
+            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall get the shared IotHubSSLContext object with the saved public and private key combo.]
+            return IotHubSSLContextCache.getWithKeys(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), null, false);
         }
     }
 
@@ -0,0 +1,95 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.auth;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Signs SAS tokens with a single device key.
+ *
+ * <p>
+ *     The key is Base64 decoded once, and each thread keeps its own initialized HmacSHA256 {@link Mac}, so
+ *     renewing a token does not decode the key or look up the Mac provider again. The signer is thread safe.
+ * </p>
+ */
+public final class SasTokenSigner
+{
+    private static final String HMAC_SHA_256 = "HmacSHA256";
+    private static final char RAW_SIGNATURE_SEPARATOR = '\n';
+
+    private final SecretKeySpec signingKey;
+    private final ThreadLocal<Mac> mac = new ThreadLocal<Mac>()
+    {
+        @Override
+        protected Mac initialValue()
+        {
+            return createMac();
+        }
+    };
+
+    /**
+     * Constructor.
+     *
+     * @param deviceKey the Base64 encoded device key.
+     * @throws IllegalArgumentException if the device key is null, empty, or cannot be used as HmacSHA256 key.
+     */
+    public SasTokenSigner(String deviceKey) throws IllegalArgumentException
+    {
+        // Codes_SRS_SASTOKENSIGNER_21_001: [If the deviceKey is null or empty, the constructor shall throw IllegalArgumentException.]
+        if ((deviceKey == null) || deviceKey.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceKey cannot be null or empty");
+        }
+
+        // Codes_SRS_SASTOKENSIGNER_21_002: [The constructor shall decode the deviceKey from Base64 only once, and create the HmacSHA256 key with it.]
+        this.signingKey = new SecretKeySpec(SignatureHelper.decodeDeviceKeyBase64(deviceKey), HMAC_SHA_256);
+
+        // Codes_SRS_SASTOKENSIGNER_21_003: [If the key cannot initialize a HmacSHA256 Mac, the constructor shall throw IllegalArgumentException.]
+        this.mac.get();
+    }
+
+    /**
+     * Compute the url encoded signature for the provided resource and expiry time.
+     *
+     * @param resourceUri the resource uri that the token grants access to.
+     * @param expiryTime the time, as a UNIX timestamp, after which the token will become invalid.
+     * @return the web safe signature.
+     * @throws IllegalArgumentException if the resourceUri is null or empty.
+     */
+    public String sign(String resourceUri, long expiryTime) throws IllegalArgumentException
+    {
+        // Codes_SRS_SASTOKENSIGNER_21_004: [If the resourceUri is null or empty, the sign shall throw IllegalArgumentException.]
+        if ((resourceUri == null) || resourceUri.isEmpty())
+        {
+            throw new IllegalArgumentException("resourceUri cannot be null or empty");
+        }
+
+        // Codes_SRS_SASTOKENSIGNER_21_005: [The sign shall compute the HmacSHA256 of `<resourceUri>\n<expiryTime>` with the Mac of the current thread.]
+        String rawSignature = new StringBuilder(resourceUri.length() + 21)
+                .append(resourceUri).append(RAW_SIGNATURE_SEPARATOR).append(expiryTime).toString();
+        byte[] encryptedSig = this.mac.get().doFinal(rawSignature.getBytes(StandardCharsets.UTF_8));
+
+        // Codes_SRS_SASTOKENSIGNER_21_006: [The sign shall return the Base64 and url encoded signature.]
+        return SignatureHelper.encodeSignatureWebSafe(
+                SignatureHelper.encodeSignatureUtf8(SignatureHelper.encodeSignatureBase64(encryptedSig)));
+    }
+
+    private Mac createMac()
+    {
+        try
+        {
+            Mac hMacSha256 = Mac.getInstance(HMAC_SHA_256);
+            hMacSha256.init(this.signingKey);
+            return hMacSha256;
+        }
+        catch (NoSuchAlgorithmException | InvalidKeyException e)
+        {
+            throw new IllegalArgumentException("Cannot create the HmacSHA256 signer: " + e.getMessage());
+        }
+    }
+}
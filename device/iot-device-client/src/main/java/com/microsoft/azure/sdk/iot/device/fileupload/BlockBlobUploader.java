@@ -0,0 +1,565 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.fileupload;
+
+import com.microsoft.azure.sdk.iot.deps.util.Base64;
+import com.microsoft.azure.sdk.iot.device.CustomLogger;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.BlockEntry;
+import com.microsoft.azure.storage.blob.BlockListingFilter;
+import com.microsoft.azure.storage.blob.BlockSearchMode;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Upload a stream to a block blob in fixed-size blocks.
+ *
+ * <p>
+ *     The blocks are staged in parallel with `Put Block`, and committed in order with `Put Block List`
+ *     when all of them are in the storage. The block ids are derived from the block index and the MD5 of
+ *     the block content, so an upload interrupted by a broken connection can be resumed by a new uploader
+ *     on the same blob: blocks that are already staged with the same content are not sent again, and the
+ *     blocks left by a failed upload of other content are never committed. A block that fails to be staged
+ *     is retried from the bytes that are already in memory, without restarting the upload.
+ * </p>
+ *
+ * <p>
+ *     The blocks of all uploads are staged on one shared pool of daemon threads, and each upload keeps at
+ *     most `parallelism` blocks in flight.
+ * </p>
+ *
+ * <p>
+ *     The uploader works on top of a {@code CloudBlockBlob}, so it can target any storage endpoint that
+ *     implements the Blob REST API, including the local storage emulator.
+ * </p>
+ */
+public final class BlockBlobUploader
+{
+    /** Maximum block size accepted by the storage service for the Put Block operation. */
+    public static final int MAX_BLOCK_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_BLOCK_ATTEMPTS = 3;
+    private static final String BLOCK_ID_FORMAT = "%08d-%s";
+    private static final String BLOCK_DIGEST_ALGORITHM = "MD5";
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final String UPLOAD_THREAD_NAME = "azure-iot-sdk-BlockBlobUploader";
+    private static final long UPLOAD_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private static ExecutorService uploadExecutor;
+
+    private final CloudBlockBlob blob;
+    private final int blockSize;
+    private final int parallelism;
+
+    private static CustomLogger logger;
+
+    /**
+     * Constructor
+     *
+     * @param blob is the destination block blob. Cannot be {@code null}.
+     * @param blockSize is the size of each block, in bytes. Shall be between 1 and {@link #MAX_BLOCK_SIZE}.
+     * @param parallelism is the maximum number of blocks staged at the same time. Cannot be less than 1.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     */
+    BlockBlobUploader(CloudBlockBlob blob, int blockSize, int parallelism) throws IllegalArgumentException
+    {
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_001: [If the `blob` is null, the constructor shall throw IllegalArgumentException.] */
+        if(blob == null)
+        {
+            throw new IllegalArgumentException("blob is null");
+        }
+
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_002: [If the `blockSize` is not between 1 and MAX_BLOCK_SIZE, the constructor shall throw IllegalArgumentException.] */
+        if((blockSize < 1) || (blockSize > MAX_BLOCK_SIZE))
+        {
+            throw new IllegalArgumentException("blockSize shall be between 1 and " + MAX_BLOCK_SIZE);
+        }
+
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_003: [If the `parallelism` is less than 1, the constructor shall throw IllegalArgumentException.] */
+        if(parallelism < 1)
+        {
+            throw new IllegalArgumentException("parallelism shall be at least 1");
+        }
+
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_004: [The constructor shall store all the provided parameters.] */
+        this.blob = blob;
+        this.blockSize = blockSize;
+        this.parallelism = parallelism;
+
+        logger = new CustomLogger(this.getClass());
+    }
+
+    /**
+     * Upload the content of the stream, reading one block at a time. Only `parallelism` blocks are kept in memory.
+     *
+     * @param inputStream is the stream to upload. Cannot be {@code null}.
+     * @param streamLength is the number of bytes to upload. Cannot be negative.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     * @throws IOException if the stream ends before `streamLength` bytes, or the blocks cannot be staged.
+     * @throws StorageException if the storage rejects the blocks or the block list.
+     */
+    public void upload(final InputStream inputStream, long streamLength) throws IllegalArgumentException, IOException, StorageException
+    {
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_005: [If the `inputStream` is null, or the `streamLength` is negative, the upload shall throw IllegalArgumentException.] */
+        if((inputStream == null) || (streamLength < 0))
+        {
+            throw new IllegalArgumentException("inputStream is null or streamLength is negative");
+        }
+
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_006: [The upload shall get the list of uncommitted blocks already staged in the blob.] */
+        Map<String, Long> stagedBlocks = getStagedBlocks();
+        List<String> blockIds = new ArrayList<>();
+        final Semaphore freeBuffers = new Semaphore(parallelism);
+        List<Future<Void>> pending = new ArrayList<>();
+
+        try
+        {
+            long offset = 0;
+            for(int index = 0; offset < streamLength; index++)
+            {
+                final int length = (int)Math.min(blockSize, streamLength - offset);
+                offset += length;
+
+                /* Codes_SRS_BLOCKBLOBUPLOADER_21_008: [The upload shall read each block from the `inputStream` and stage it in parallel, limited to `parallelism` blocks in memory.] */
+                acquire(freeBuffers);
+                final byte[] block = new byte[length];
+                final String blockId;
+                try
+                {
+                    readFully(inputStream, block);
+                    blockId = createBlockId(index, ByteBuffer.wrap(block));
+                }
+                catch (IOException e)
+                {
+                    freeBuffers.release();
+                    throw e;
+                }
+                blockIds.add(blockId);
+
+                if(isStaged(stagedBlocks, blockId, length))
+                {
+                    /* Codes_SRS_BLOCKBLOBUPLOADER_21_007: [If a block is already staged with the same block id and the expected size, the upload shall not stage it again.] */
+                    freeBuffers.release();
+                    continue;
+                }
+
+                /* Codes_SRS_BLOCKBLOBUPLOADER_21_017: [The upload shall stage the blocks on a thread pool shared by all uploads.] */
+                pending.add(getUploadExecutor().submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        try
+                        {
+                            stageBlock(blockId, block, 0, length);
+                        }
+                        finally
+                        {
+                            freeBuffers.release();
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            waitFor(pending);
+        }
+        finally
+        {
+            cancel(pending);
+        }
+
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_009: [When all blocks are staged, the upload shall commit the block list in order.] */
+        commit(blockIds);
+    }
+
+    /**
+     * Upload a region of the file. Each block is memory-mapped from the channel, so the file content
+     * is not copied through heap buffers, and the blocks can be staged in any order.
+     *
+     * @param fileChannel is the channel of the file to upload. Cannot be {@code null}.
+     * @param position is the position in the file of the first byte to upload. Cannot be negative.
+     * @param length is the number of bytes to upload. Cannot be negative.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     * @throws IOException if the file cannot be mapped, or the blocks cannot be staged.
+     * @throws StorageException if the storage rejects the blocks or the block list.
+     */
+    public void upload(final FileChannel fileChannel, long position, long length) throws IllegalArgumentException, IOException, StorageException
+    {
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_010: [If the `fileChannel` is null, or the `position` or `length` is negative, the upload shall throw IllegalArgumentException.] */
+        if((fileChannel == null) || (position < 0) || (length < 0))
+        {
+            throw new IllegalArgumentException("fileChannel is null or position or length are negative");
+        }
+
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_006: [The upload shall get the list of uncommitted blocks already staged in the blob.] */
+        Map<String, Long> stagedBlocks = getStagedBlocks();
+        List<String> blockIds = new ArrayList<>();
+        final Semaphore freeBlocks = new Semaphore(parallelism);
+        List<Future<Void>> pending = new ArrayList<>();
+
+        try
+        {
+            long offset = 0;
+            for(int index = 0; offset < length; index++)
+            {
+                final long blockPosition = position + offset;
+                final int blockLength = (int)Math.min(blockSize, length - offset);
+                offset += blockLength;
+
+                /* Codes_SRS_BLOCKBLOBUPLOADER_21_012: [The upload shall memory-map each block from the `fileChannel` and stage it in parallel, limited to `parallelism` blocks mapped at the same time.] */
+                acquire(freeBlocks);
+                final ByteBuffer block;
+                final String blockId;
+                try
+                {
+                    block = fileChannel.map(FileChannel.MapMode.READ_ONLY, blockPosition, blockLength);
+                }
+                catch (IOException e)
+                {
+                    freeBlocks.release();
+                    throw e;
+                }
+                blockId = createBlockId(index, block.duplicate());
+                blockIds.add(blockId);
+
+                if(isStaged(stagedBlocks, blockId, blockLength))
+                {
+                    /* Codes_SRS_BLOCKBLOBUPLOADER_21_011: [If a block is already staged with the same block id and the expected size, the upload shall not stage it again.] */
+                    /* Codes_SRS_BLOCKBLOBUPLOADER_21_018: [The upload shall release each memory-mapped block when it is staged or skipped.] */
+                    unmap(block);
+                    freeBlocks.release();
+                    continue;
+                }
+
+                /* Codes_SRS_BLOCKBLOBUPLOADER_21_017: [The upload shall stage the blocks on a thread pool shared by all uploads.] */
+                pending.add(getUploadExecutor().submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        try
+                        {
+                            stageBlock(blockId, block);
+                        }
+                        finally
+                        {
+                            /* Codes_SRS_BLOCKBLOBUPLOADER_21_018: [The upload shall release each memory-mapped block when it is staged or skipped.] */
+                            unmap(block);
+                            freeBlocks.release();
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            waitFor(pending);
+        }
+        finally
+        {
+            cancel(pending);
+        }
+
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_009: [When all blocks are staged, the upload shall commit the block list in order.] */
+        commit(blockIds);
+    }
+
+    private Map<String, Long> getStagedBlocks() throws StorageException
+    {
+        Map<String, Long> stagedBlocks = new HashMap<>();
+        try
+        {
+            for (BlockEntry entry : blob.downloadBlockList(BlockListingFilter.UNCOMMITTED, null, null, null))
+            {
+                stagedBlocks.put(entry.getId(), entry.getSize());
+            }
+        }
+        catch (StorageException e)
+        {
+            /* Codes_SRS_BLOCKBLOBUPLOADER_21_015: [If the blob does not exist yet, the upload shall stage all blocks.] */
+            if(e.getHttpStatusCode() != HTTP_NOT_FOUND)
+            {
+                throw e;
+            }
+        }
+        return stagedBlocks;
+    }
+
+    private void stageBlock(String blockId, byte[] block, int offset, int length) throws IOException, StorageException
+    {
+        for(int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                blob.uploadBlock(blockId, new ByteArrayInputStream(block, offset, length), length);
+                return;
+            }
+            catch (IOException | StorageException e)
+            {
+                /* Codes_SRS_BLOCKBLOBUPLOADER_21_013: [If staging a block fails, the upload shall retry the same block up to 3 times before failing.] */
+                if(attempt >= MAX_BLOCK_ATTEMPTS)
+                {
+                    throw e;
+                }
+                logger.LogInfo("Retrying block %s after failure: %s", blockId, e.toString());
+            }
+        }
+    }
+
+    private void stageBlock(String blockId, ByteBuffer block) throws IOException, StorageException
+    {
+        for(int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                blob.uploadBlock(blockId, new ByteBufferInputStream(block.duplicate()), block.remaining());
+                return;
+            }
+            catch (IOException | StorageException e)
+            {
+                /* Codes_SRS_BLOCKBLOBUPLOADER_21_013: [If staging a block fails, the upload shall retry the same block up to 3 times before failing.] */
+                if(attempt >= MAX_BLOCK_ATTEMPTS)
+                {
+                    throw e;
+                }
+                logger.LogInfo("Retrying block %s after failure: %s", blockId, e.toString());
+            }
+        }
+    }
+
+    private void commit(List<String> blockIds) throws StorageException
+    {
+        List<BlockEntry> blockList = new ArrayList<>(blockIds.size());
+        for (String blockId : blockIds)
+        {
+            blockList.add(new BlockEntry(blockId, BlockSearchMode.UNCOMMITTED));
+        }
+        blob.commitBlockList(blockList);
+    }
+
+    private static boolean isStaged(Map<String, Long> stagedBlocks, String blockId, int length)
+    {
+        Long stagedLength = stagedBlocks.get(blockId);
+        return (stagedLength != null) && (stagedLength == length);
+    }
+
+    private static String createBlockId(int index, ByteBuffer block)
+    {
+        /* Codes_SRS_BLOCKBLOBUPLOADER_21_016: [The block id shall be the Base64 of the block index and the MD5 of the block content, so the blocks staged by an upload of other content are never reused.] */
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance(BLOCK_DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform shall implement MD5.
+            throw new IllegalStateException(e);
+        }
+        digest.update(block);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest())
+        {
+            hex.append(String.format("%02x", b & 0xFF));
+        }
+
+        // All block ids in a blob shall have the same length.
+        return Base64.encodeBase64StringLocal(String.format(BLOCK_ID_FORMAT, index, hex).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static synchronized ExecutorService getUploadExecutor()
+    {
+        if (uploadExecutor == null)
+        {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                    UPLOAD_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, UPLOAD_THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            uploadExecutor = executor;
+        }
+        return uploadExecutor;
+    }
+
+    private static void cancel(List<Future<Void>> pending)
+    {
+        // After a failure, stop the blocks that are still staging. It does nothing on the completed ones.
+        for (Future<Void> future : pending)
+        {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Releases the memory mapping of a block now, instead of when the buffer is garbage collected, so the
+     * upload of a large file does not keep the whole file mapped. If the platform does not allow it, the
+     * mapping is released by the garbage collector.
+     */
+    private static void unmap(ByteBuffer buffer)
+    {
+        if (!buffer.isDirect())
+        {
+            return;
+        }
+
+        try
+        {
+            // Java 9 and later.
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        }
+        catch (Exception e)
+        {
+            // not available before Java 9.
+        }
+
+        try
+        {
+            // Java 8 and before.
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null)
+            {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }
+        catch (Exception | LinkageError e)
+        {
+            logger.LogInfo("Memory-mapped block left to the garbage collector: %s", e.toString());
+        }
+    }
+
+    private static void waitFor(List<Future<Void>> pending) throws IOException, StorageException
+    {
+        for (Future<Void> future : pending)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Block upload interrupted", e);
+            }
+            catch (ExecutionException e)
+            {
+                /* Codes_SRS_BLOCKBLOBUPLOADER_21_014: [If a block cannot be staged, the upload shall throw the failure without committing the block list.] */
+                Throwable cause = e.getCause();
+                if(cause instanceof StorageException)
+                {
+                    throw (StorageException)cause;
+                }
+                throw new IOException("Failed to stage block: " + cause, cause);
+            }
+        }
+    }
+
+    private static void acquire(Semaphore semaphore) throws IOException
+    {
+        try
+        {
+            semaphore.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Block upload interrupted", e);
+        }
+    }
+
+    private static void readFully(InputStream inputStream, byte[] buffer) throws IOException
+    {
+        int read = 0;
+        while(read < buffer.length)
+        {
+            int count = inputStream.read(buffer, read, buffer.length - read);
+            if(count < 0)
+            {
+                throw new IOException("inputStream ended before streamLength");
+            }
+            read += count;
+        }
+    }
+
+    /**
+     * Read-only stream on top of a buffer, used to hand mapped file regions to the storage without a copy.
+     */
+    private static final class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+        {
+            if(!buffer.hasRemaining())
+            {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available()
+        {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit)
+        {
+            buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset()
+        {
+            buffer.reset();
+        }
+    }
+}
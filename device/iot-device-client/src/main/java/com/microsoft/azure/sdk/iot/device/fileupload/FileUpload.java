@@ -6,11 +6,15 @@ package com.microsoft.azure.sdk.iot.device.fileupload;
 import com.microsoft.azure.sdk.iot.device.CustomLogger;
 import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
 import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
 import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetricsRecorder;
+import com.microsoft.azure.sdk.iot.device.transport.TransportOperation;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsTransportManager;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.Queue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
@@ -23,11 +27,12 @@ public final class FileUpload
 {
     private static final int MAX_UPLOAD_PARALLEL = 10;
 
-    private HttpsTransportManager httpsTransportManager;
+    private DeviceClientConfig config;
     private static CustomLogger logger;
     private ScheduledExecutorService taskScheduler;
     private FileUploadStatusCallBack fileUploadStatusCallBack;
     private static Queue<FileUploadInProgress> fileUploadInProgressesSet;
+    private TransportMetricsRecorder metricsRecorder;
 
     /**
      * CONSTRUCTOR
@@ -44,12 +49,8 @@ public final class FileUpload
             throw new IllegalArgumentException("config is null");
         }
 
-        // File upload will directly use the HttpsTransportManager, avoiding
-        //  all extra async controls.
-        // We can do that because File upload have its own async mechanism.
-        /* Codes_SRS_FILEUPLOAD_21_002: [The constructor shall create a new instance of `HttpsTransportManager` with the provided `config`.] */
-        /* Codes_SRS_FILEUPLOAD_21_003: [If the constructor fail to create the new instance of the `HttpsTransportManager`, it shall throw IllegalArgumentException, threw by the HttpsTransportManager constructor.] */
-        this.httpsTransportManager = new HttpsTransportManager(config);
+        /* Codes_SRS_FILEUPLOAD_21_002: [The constructor shall store the provided `config` to create the transport of each upload.] */
+        this.config = config;
 
         try
         {
@@ -65,6 +66,8 @@ public final class FileUpload
         fileUploadInProgressesSet = new LinkedBlockingDeque<FileUploadInProgress>();
         /* Codes_SRS_FILEUPLOAD_21_014: [The constructor shall create an Event callback `fileUploadStatusCallBack` to receive the upload status.] */
         fileUploadStatusCallBack = new FileUploadStatusCallBack();
+        /* Codes_SRS_FILEUPLOAD_21_031: [The constructor shall report the uploads to the transport metrics in the `config`, with the protocol HTTPS and the operation FILE_UPLOAD.] */
+        metricsRecorder = new TransportMetricsRecorder(config.getTransportMetrics(), IotHubClientProtocol.HTTPS);
 
         logger = new CustomLogger(this.getClass());
         logger.LogInfo("FileUpload object is created successfully, method name is %s ", logger.getMethodName());
@@ -122,15 +125,94 @@ public final class FileUpload
         /* Codes_SRS_FILEUPLOAD_21_016: [The uploadToBlobAsync shall create a `FileUploadInProgress` to store the fileUpload context.] */
         FileUploadInProgress newUpload = new FileUploadInProgress(statusCallback, statusCallbackContext);
         fileUploadInProgressesSet.add(newUpload);
+        startMetrics(newUpload);
+
+        // File upload will directly use the HttpsTransportManager, avoiding
+        //  all extra async controls.
+        // We can do that because File upload have its own async mechanism.
+        // Each upload owns its transport, so the SAS URI request and the notification of one
+        //  upload are always correlated with its own response, and uploads do not wait for each other.
+        /* Codes_SRS_FILEUPLOAD_21_024: [The uploadToBlobAsync shall create a new instance of `HttpsTransportManager` with the stored `config` for this file upload.] */
+        /* Codes_SRS_FILEUPLOAD_21_003: [If the uploadToBlobAsync fail to create the new instance of the `HttpsTransportManager`, it shall throw IllegalArgumentException, threw by the HttpsTransportManager constructor.] */
+        HttpsTransportManager httpsTransportManager = new HttpsTransportManager(config);
 
         /* Codes_SRS_FILEUPLOAD_21_004: [The uploadToBlobAsync shall asynchronously upload the InputStream `inputStream` to the blob in `blobName`.] */
         /* Codes_SRS_FILEUPLOAD_21_009: [The uploadToBlobAsync shall create a `FileUploadTask` to control this file upload.] */
-        FileUploadTask fileUploadTask = new FileUploadTask(blobName, inputStream, streamLength, httpsTransportManager, fileUploadStatusCallBack, newUpload);
+        /* Codes_SRS_FILEUPLOAD_21_025: [The uploadToBlobAsync shall upload the stream in blocks with the file upload block size in the `config`.] */
+        FileUploadTask fileUploadTask = new FileUploadTask(blobName, inputStream, streamLength, config.getFileUploadBlockSize(),
+                httpsTransportManager, fileUploadStatusCallBack, newUpload);
 
         /* Codes_SRS_FILEUPLOAD_21_010: [The uploadToBlobAsync shall schedule the task `FileUploadTask` to immediately start.] */
         newUpload.setTask(taskScheduler.submit(fileUploadTask));
     }
 
+    /**
+     * Upload the file to container, which was associated to the iothub, in blocks.
+     * Each block is memory-mapped from the file channel and the blocks are staged in parallel. If the
+     * upload fails, a new upload of the same file to the same blob name resumes from the staged blocks.
+     * When it is completed, the background thread will trigger the callback with the upload status.
+     *
+     * @param blobName is the name of the file in the container.
+     * @param fileChannel is the channel of the file to upload. It shall stay open until the callback is called.
+     * @param statusCallback is the callback to notify that the upload is completed (with status).
+     * @param statusCallbackContext is the context of the callback, allowing multiple uploads in parallel.
+     * @throws IllegalArgumentException if one of the parameters is invalid.
+     *              blobName is {@code null} or empty,
+     *              fileChannel is {@code null},
+     *              statusCallback is {@code null}
+     * @throws IOException if the size of the file cannot be read.
+     */
+    public synchronized void uploadToBlobAsync(
+            String blobName, FileChannel fileChannel,
+            IotHubEventCallback statusCallback, Object statusCallbackContext)
+            throws IllegalArgumentException, IOException
+    {
+        /* Codes_SRS_FILEUPLOAD_21_026: [If the `blobName` is null or empty, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+        if((blobName == null) || blobName.isEmpty())
+        {
+            throw new IllegalArgumentException("blobName is null or empty");
+        }
+
+        /* Codes_SRS_FILEUPLOAD_21_027: [If the `fileChannel` is null, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+        if(fileChannel == null)
+        {
+            throw new IllegalArgumentException("fileChannel is null");
+        }
+
+        /* Codes_SRS_FILEUPLOAD_21_028: [If the `statusCallback` is null, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+        if(statusCallback == null)
+        {
+            throw new IllegalArgumentException("statusCallback is null");
+        }
+
+        FileUploadInProgress newUpload = new FileUploadInProgress(statusCallback, statusCallbackContext);
+        fileUploadInProgressesSet.add(newUpload);
+        startMetrics(newUpload);
+
+        /* Codes_SRS_FILEUPLOAD_21_029: [The uploadToBlobAsync shall upload the file in blocks with the file upload block size in the `config`, or with the maximum block size if it is not set.] */
+        int blockSize = config.getFileUploadBlockSize();
+        if(blockSize == 0)
+        {
+            blockSize = BlockBlobUploader.MAX_BLOCK_SIZE;
+        }
+
+        HttpsTransportManager httpsTransportManager = new HttpsTransportManager(config);
+        FileUploadTask fileUploadTask = new FileUploadTask(blobName, fileChannel, fileChannel.size(), blockSize,
+                httpsTransportManager, fileUploadStatusCallBack, newUpload);
+
+        /* Codes_SRS_FILEUPLOAD_21_030: [The uploadToBlobAsync shall schedule the task `FileUploadTask` to immediately start.] */
+        newUpload.setTask(taskScheduler.submit(fileUploadTask));
+    }
+
+    private void startMetrics(FileUploadInProgress newUpload)
+    {
+        /* Codes_SRS_FILEUPLOAD_21_032: [The uploadToBlobAsync shall report the started upload to the transport metrics.] */
+        if (metricsRecorder.isEnabled())
+        {
+            newUpload.setSentNanos(metricsRecorder.onSent(TransportOperation.FILE_UPLOAD));
+        }
+    }
+
     private final class FileUploadStatusCallBack implements IotHubEventCallback
     {
         @Override
@@ -140,6 +222,8 @@ public final class FileUpload
             if(context instanceof FileUploadInProgress)
             {
                 FileUploadInProgress uploadInProgress = (FileUploadInProgress) context;
+                /* Codes_SRS_FILEUPLOAD_21_033: [The FileUploadStatusCallBack shall report the completed upload, with its status and latency, to the transport metrics.] */
+                metricsRecorder.onCompleted(TransportOperation.FILE_UPLOAD, status, uploadInProgress.getSentNanos());
                 /* Codes_SRS_FILEUPLOAD_21_020: [The FileUploadStatusCallBack shall call the `statusCallback` reporting the received status.] */
                 uploadInProgress.triggerCallback(status);
                 /* Codes_SRS_FILEUPLOAD_21_021: [The FileUploadStatusCallBack shall delete the `FileUploadInProgress` that store this file upload context.] */
@@ -176,6 +260,7 @@ public final class FileUpload
         {
             if(uploadInProgress.isCancelled())
             {
+                metricsRecorder.onCompleted(TransportOperation.FILE_UPLOAD, IotHubStatusCode.ERROR, uploadInProgress.getSentNanos());
                 uploadInProgress.triggerCallback(IotHubStatusCode.ERROR);
             }
         }
@@ -17,6 +17,8 @@ public final class FileUploadInProgress
     private IotHubEventCallback statusCallback;
     private Object statusCallbackContext;
     private Future task;
+    /** The start time of the upload taken by the transport metrics. */
+    private long sentNanos;
 
     /**
      * CONSTRUCTOR
@@ -67,6 +69,28 @@ public final class FileUploadInProgress
         statusCallback.execute(iotHubStatusCode, statusCallbackContext);
     }
 
+    /**
+     * Setter for the start time of the upload.
+     *
+     * @param sentNanos is the time returned by the transport metrics when the upload started.
+     */
+    void setSentNanos(long sentNanos)
+    {
+        /* Codes_SRS_FILEUPLOADINPROGRESS_21_008: [The setSentNanos shall store the provided `sentNanos`.] */
+        this.sentNanos = sentNanos;
+    }
+
+    /**
+     * Getter for the start time of the upload.
+     *
+     * @return the time returned by the transport metrics when the upload started.
+     */
+    long getSentNanos()
+    {
+        /* Codes_SRS_FILEUPLOADINPROGRESS_21_009: [The getSentNanos shall return the stored start time.] */
+        return this.sentNanos;
+    }
+
     /**
      * Getter for the task cancellation.
      * 
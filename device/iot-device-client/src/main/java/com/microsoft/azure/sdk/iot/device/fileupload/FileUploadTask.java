@@ -19,6 +19,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
@@ -54,28 +55,29 @@ public final class FileUploadTask implements Runnable
     private static final String HTTPS_URL_STRING = "https://";
     private static final String PATH_SEPARATOR_STRING = "/";
     private static final String UTF_8_STRING = "UTF-8";
+    private static final int MAX_BLOCK_UPLOAD_PARALLEL = 4;
 
     private HttpsTransportManager httpsTransportManager;
     private static CustomLogger logger;
 
     private String blobName;
     private InputStream inputStream;
+    private FileChannel fileChannel;
     private long streamLength;
+    private int blockSize;
     private IotHubEventCallback userCallback;
     private Object userCallbackContext;
 
     private String correlationId;
     private URI blobURI;
 
-    private static final ObjectLock FILE_UPLOAD_LOCK = new ObjectLock();
-
     /**
      * Constructor
      *
      * @param blobName is the destination blob name in the storage. Cannot be {@code null}, or empty.
      * @param inputStream is the byte stream with the information to store in the blob. Cannot be {@code null}.
      * @param streamLength is the number of bytes to upload. Cannot be negative.
-     * @param httpsTransportManager is the https transport to connect to the IoT Hub. Cannot be {@code null}.
+     * @param httpsTransportManager is the https transport to connect to the IoT Hub, owned by this task. Cannot be {@code null}.
      * @param userCallback is the callback to call when the upload is completed. Cannot be {@code null}.
      * @param userCallbackContext is the context for the callback. Can be any value.
      * @throws IllegalArgumentException if one of the parameters is not valid.
@@ -83,24 +85,86 @@ public final class FileUploadTask implements Runnable
     FileUploadTask(String blobName, InputStream inputStream, long streamLength, HttpsTransportManager httpsTransportManager,
                     IotHubEventCallback userCallback, Object userCallbackContext) throws IllegalArgumentException
     {
-        /* Codes_SRS_FILEUPLOADTASK_21_001: [If the `blobName` is null or empty, the constructor shall throw IllegalArgumentException.] */
-        if((blobName == null) || blobName.isEmpty())
-        {
-            throw new IllegalArgumentException("blobName is null or empty");
-        }
+        this(blobName, inputStream, streamLength, 0, httpsTransportManager, userCallback, userCallbackContext);
+    }
 
+    /**
+     * Constructor for a chunked upload of a stream.
+     *
+     * @param blobName is the destination blob name in the storage. Cannot be {@code null}, or empty.
+     * @param inputStream is the byte stream with the information to store in the blob. Cannot be {@code null}.
+     * @param streamLength is the number of bytes to upload. Cannot be negative.
+     * @param blockSize is the size of the blocks to upload, or 0 to upload the stream in a single request. Cannot be negative.
+     * @param httpsTransportManager is the https transport to connect to the IoT Hub, owned by this task. Cannot be {@code null}.
+     * @param userCallback is the callback to call when the upload is completed. Cannot be {@code null}.
+     * @param userCallbackContext is the context for the callback. Can be any value.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     */
+    FileUploadTask(String blobName, InputStream inputStream, long streamLength, int blockSize, HttpsTransportManager httpsTransportManager,
+                    IotHubEventCallback userCallback, Object userCallbackContext) throws IllegalArgumentException
+    {
         /* Codes_SRS_FILEUPLOADTASK_21_002: [If the `inputStream` is null, the constructor shall throw IllegalArgumentException.] */
         if(inputStream == null)
         {
             throw new IllegalArgumentException("inputStream is null or empty");
         }
 
+        initialize(blobName, streamLength, blockSize, httpsTransportManager, userCallback, userCallbackContext);
+        this.inputStream = inputStream;
+    }
+
+    /**
+     * Constructor for a chunked upload of a file, memory-mapping each block from the channel.
+     *
+     * @param blobName is the destination blob name in the storage. Cannot be {@code null}, or empty.
+     * @param fileChannel is the channel of the file to store in the blob. Cannot be {@code null}.
+     * @param streamLength is the number of bytes to upload from the beginning of the file. Cannot be negative.
+     * @param blockSize is the size of the blocks to upload. Shall be positive.
+     * @param httpsTransportManager is the https transport to connect to the IoT Hub, owned by this task. Cannot be {@code null}.
+     * @param userCallback is the callback to call when the upload is completed. Cannot be {@code null}.
+     * @param userCallbackContext is the context for the callback. Can be any value.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     */
+    FileUploadTask(String blobName, FileChannel fileChannel, long streamLength, int blockSize, HttpsTransportManager httpsTransportManager,
+                   IotHubEventCallback userCallback, Object userCallbackContext) throws IllegalArgumentException
+    {
+        /* Codes_SRS_FILEUPLOADTASK_21_034: [If the `fileChannel` is null, the constructor shall throw IllegalArgumentException.] */
+        if(fileChannel == null)
+        {
+            throw new IllegalArgumentException("fileChannel is null");
+        }
+
+        /* Codes_SRS_FILEUPLOADTASK_21_035: [If the `blockSize` is not positive for a `fileChannel`, the constructor shall throw IllegalArgumentException.] */
+        if(blockSize <= 0)
+        {
+            throw new IllegalArgumentException("blockSize shall be positive to upload a file channel");
+        }
+
+        initialize(blobName, streamLength, blockSize, httpsTransportManager, userCallback, userCallbackContext);
+        this.fileChannel = fileChannel;
+    }
+
+    private void initialize(String blobName, long streamLength, int blockSize, HttpsTransportManager httpsTransportManager,
+                            IotHubEventCallback userCallback, Object userCallbackContext) throws IllegalArgumentException
+    {
+        /* Codes_SRS_FILEUPLOADTASK_21_001: [If the `blobName` is null or empty, the constructor shall throw IllegalArgumentException.] */
+        if((blobName == null) || blobName.isEmpty())
+        {
+            throw new IllegalArgumentException("blobName is null or empty");
+        }
+
         /* Codes_SRS_FILEUPLOADTASK_21_003: [If the `streamLength` is negative, the constructor shall throw IllegalArgumentException.] */
         if(streamLength < 0)
         {
             throw new IllegalArgumentException("streamLength is negative");
         }
 
+        /* Codes_SRS_FILEUPLOADTASK_21_036: [If the `blockSize` is negative or bigger than the maximum block size, the constructor shall throw IllegalArgumentException.] */
+        if((blockSize < 0) || (blockSize > BlockBlobUploader.MAX_BLOCK_SIZE))
+        {
+            throw new IllegalArgumentException("blockSize shall be between 0 and " + BlockBlobUploader.MAX_BLOCK_SIZE);
+        }
+
         /* Codes_SRS_FILEUPLOADTASK_21_004: [If the `httpsTransportManager` is null, the constructor shall throw IllegalArgumentException.] */
         if(httpsTransportManager == null)
         {
@@ -115,8 +179,8 @@ public final class FileUploadTask implements Runnable
 
         /* Codes_SRS_FILEUPLOADTASK_21_006: [The constructor shall store all the provided parameters.] */
         this.blobName = blobName;
-        this.inputStream = inputStream;
         this.streamLength = streamLength;
+        this.blockSize = blockSize;
         this.userCallback = userCallback;
         this.userCallbackContext = userCallbackContext;
         this.httpsTransportManager = httpsTransportManager;
@@ -149,20 +213,33 @@ public final class FileUploadTask implements Runnable
         {
             try
             {
-            /* Codes_SRS_FILEUPLOADTASK_21_019: [The run shall create a `CloudBlockBlob` using the `blobUri`.] */
+                /* Codes_SRS_FILEUPLOADTASK_21_019: [The run shall create a `CloudBlockBlob` using the `blobUri`.] */
                 CloudBlockBlob blob = new CloudBlockBlob(blobURI);
-            /* Codes_SRS_FILEUPLOADTASK_21_020: [The run shall upload the `inputStream` with the `streamLength` to the created `CloudBlockBlob`.] */
-                blob.upload(inputStream, streamLength);
-            /* Codes_SRS_FILEUPLOADTASK_21_021: [If the upload to blob succeed, the run shall create a notification the IoT Hub with `isSuccess` equals true, `statusCode` equals 0.] */
+                if(fileChannel != null)
+                {
+                    /* Codes_SRS_FILEUPLOADTASK_21_037: [If a `fileChannel` was provided, the run shall upload it in blocks of `blockSize` using a `BlockBlobUploader`.] */
+                    new BlockBlobUploader(blob, blockSize, MAX_BLOCK_UPLOAD_PARALLEL).upload(fileChannel, 0, streamLength);
+                }
+                else if(blockSize > 0)
+                {
+                    /* Codes_SRS_FILEUPLOADTASK_21_038: [If the `blockSize` is positive, the run shall upload the `inputStream` in blocks of `blockSize` using a `BlockBlobUploader`.] */
+                    new BlockBlobUploader(blob, blockSize, MAX_BLOCK_UPLOAD_PARALLEL).upload(inputStream, streamLength);
+                }
+                else
+                {
+                    /* Codes_SRS_FILEUPLOADTASK_21_020: [The run shall upload the `inputStream` with the `streamLength` to the created `CloudBlockBlob`.] */
+                    blob.upload(inputStream, streamLength);
+                }
+                /* Codes_SRS_FILEUPLOADTASK_21_021: [If the upload to blob succeed, the run shall create a notification the IoT Hub with `isSuccess` equals true, `statusCode` equals 0.] */
                 fileUploadStatusParser = new FileUploadStatusParser(correlationId, true, 0, "Succeed to upload to storage.");
                 resultStatus = IotHubStatusCode.OK;
             }
             catch (StorageException | IOException | IllegalArgumentException e) //Nobody will handel exception from this thread, so, convert it to an failed code in the user callback.
             {
                 logger.LogError("File upload failed to upload the stream to the blob. " + e.toString());
-            /* Codes_SRS_FILEUPLOADTASK_21_030: [If the upload to blob failed, the run shall call the `userCallback` reporting an error status `ERROR`.] */
+                /* Codes_SRS_FILEUPLOADTASK_21_030: [If the upload to blob failed, the run shall call the `userCallback` reporting an error status `ERROR`.] */
                 resultStatus = IotHubStatusCode.ERROR;
-            /* Codes_SRS_FILEUPLOADTASK_21_022: [If the upload to blob failed, the run shall create a notification the IoT Hub with `isSuccess` equals false, `statusCode` equals -1.] */
+                /* Codes_SRS_FILEUPLOADTASK_21_022: [If the upload to blob failed, the run shall create a notification the IoT Hub with `isSuccess` equals false, `statusCode` equals -1.] */
                 fileUploadStatusParser = new FileUploadStatusParser(correlationId, false, -1, "Failed to upload to storage.");
             }
             finally
@@ -214,16 +291,13 @@ public final class FileUploadTask implements Runnable
         /* Codes_SRS_FILEUPLOADTASK_21_009: [The run shall set the message URI path as `/files`.] */
         message.setUriPath(PATH_FILES_STRING);
 
-        ResponseMessage responseMessage;
-        synchronized (FILE_UPLOAD_LOCK)
-        {
-            /* Codes_SRS_FILEUPLOADTASK_21_010: [The run shall open the connection with the iothub, using the httpsTransportManager.] */
-            httpsTransportManager.open();
-            /* Codes_SRS_FILEUPLOADTASK_21_011: [The run shall send the blob request message to the iothub, using the httpsTransportManager.] */
-            responseMessage = httpsTransportManager.send(message);
-            /* Codes_SRS_FILEUPLOADTASK_21_012: [The run shall close the connection with the iothub, using the httpsTransportManager.] */
-            httpsTransportManager.close();
-        }
+        // The httpsTransportManager is owned by this task, so the response always belongs to this request.
+        /* Codes_SRS_FILEUPLOADTASK_21_010: [The run shall open the connection with the iothub, using the httpsTransportManager.] */
+        httpsTransportManager.open();
+        /* Codes_SRS_FILEUPLOADTASK_21_011: [The run shall send the blob request message to the iothub, using the httpsTransportManager.] */
+        ResponseMessage responseMessage = httpsTransportManager.send(message);
+        /* Codes_SRS_FILEUPLOADTASK_21_012: [The run shall close the connection with the iothub, using the httpsTransportManager.] */
+        httpsTransportManager.close();
 
         IotHubStatusCode resultStatus = responseMessage.getStatus();
 
@@ -253,16 +327,12 @@ public final class FileUploadTask implements Runnable
             /* Codes_SRS_FILEUPLOADTASK_21_025: [The run shall set the message URI path as `/files/notifications`.] */
             message.setUriPath(PATH_NOTIFICATIONS_STRING);
 
-            ResponseMessage responseMessage;
-            synchronized (FILE_UPLOAD_LOCK)
-            {
             /* Codes_SRS_FILEUPLOADTASK_21_026: [The run shall open the connection with the iothub, using the httpsTransportManager.] */
-                httpsTransportManager.open();
+            httpsTransportManager.open();
             /* Codes_SRS_FILEUPLOADTASK_21_027: [The run shall send the blob request message to the iothub, using the httpsTransportManager.] */
-                responseMessage = httpsTransportManager.send(message);
+            ResponseMessage responseMessage = httpsTransportManager.send(message);
             /* Codes_SRS_FILEUPLOADTASK_21_028: [The run shall close the connection with the iothub, using the httpsTransportManager.] */
-                httpsTransportManager.close();
-            }
+            httpsTransportManager.close();
 
             responseStatus = responseMessage.getStatus();
         }
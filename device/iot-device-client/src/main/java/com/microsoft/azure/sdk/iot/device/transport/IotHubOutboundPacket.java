@@ -17,6 +17,8 @@ public final class IotHubOutboundPacket
     private final IotHubEventCallback eventCallback;
     private final IotHubResponseCallback responseCallback;
     private final Object callbackContext;
+    /** The time, in nanoseconds, of the last send of the message, or 0 if it was not sent or not timed. */
+    private long sentNanos;
 
     /**
      * Constructor.
@@ -103,4 +105,24 @@ public final class IotHubOutboundPacket
         // Codes_SRS_IOTHUBOUTBOUNDPACKET_11_004: [The function shall return the callback context given in the constructor.]
         return callbackContext;
     }
+
+    /**
+     * Getter for the time of the last send of the message, taken by the {@link TransportMetricsRecorder}.
+     *
+     * @return the time in nanoseconds, or {@link TransportMetricsRecorder#NOT_SENT} if the message was not sent.
+     */
+    public long getSentNanos()
+    {
+        return sentNanos;
+    }
+
+    /**
+     * Setter for the time of the last send of the message.
+     *
+     * @param sentNanos the time in nanoseconds.
+     */
+    void setSentNanos(long sentNanos)
+    {
+        this.sentNanos = sentNanos;
+    }
 }
@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+
+/**
+ * The default {@link TransportMetrics}, which ignores all metrics. The transports recognize it, and skip the
+ * calls and the timing of the messages.
+ */
+public final class NoopTransportMetrics implements TransportMetrics
+{
+    /** The single instance. */
+    public static final NoopTransportMetrics INSTANCE = new NoopTransportMetrics();
+
+    private NoopTransportMetrics()
+    {
+    }
+
+    @Override
+    public void registerQueues(IotHubClientProtocol protocol, TransportQueues queues)
+    {
+    }
+
+    @Override
+    public void unregisterQueues(IotHubClientProtocol protocol, TransportQueues queues)
+    {
+    }
+
+    @Override
+    public void onMessageQueued(IotHubClientProtocol protocol, TransportOperation operation)
+    {
+    }
+
+    @Override
+    public void onMessageSent(IotHubClientProtocol protocol, TransportOperation operation)
+    {
+    }
+
+    @Override
+    public void onMessageCompleted(IotHubClientProtocol protocol, TransportOperation operation, IotHubStatusCode status, long latencyNanos)
+    {
+    }
+
+    @Override
+    public void onMessageReceived(IotHubClientProtocol protocol, TransportOperation operation)
+    {
+    }
+
+    @Override
+    public void onReconnect(IotHubClientProtocol protocol)
+    {
+    }
+}
@@ -0,0 +1,83 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+
+/**
+ * <p>
+ * Receives the metrics of the transports of a device client, set with the option <b>SetTransportMetrics</b> of
+ * the {@code DeviceClient}. The default {@link NoopTransportMetrics} ignores them, and the transports do not
+ * take the time of the messages when it is set.
+ * </p>
+ * <p>
+ * The events map to the usual meters of a metrics library, tagged by protocol and operation:
+ * counters for the queued, sent, completed and received messages and for the reconnects, a timer for the
+ * send to acknowledgement latency, and gauges for the {@link TransportQueues}. The throttled messages are
+ * completed with the status {@link IotHubStatusCode#THROTTLED}.
+ * </p>
+ * The same instance can be set on many device clients, so the implementation shall be thread safe, and shall
+ * return quickly because it is called by the threads of the transports.
+ */
+public interface TransportMetrics
+{
+    /**
+     * Called when a transport is opened, to sample the depth of its queues until it is closed.
+     *
+     * @param protocol the protocol of the transport.
+     * @param queues the queues of the transport.
+     */
+    void registerQueues(IotHubClientProtocol protocol, TransportQueues queues);
+
+    /**
+     * Called when a transport is closed, with the queues given to {@link #registerQueues}.
+     *
+     * @param protocol the protocol of the transport.
+     * @param queues the queues of the transport.
+     */
+    void unregisterQueues(IotHubClientProtocol protocol, TransportQueues queues);
+
+    /**
+     * Called when a message is added to the waiting list of a transport.
+     *
+     * @param protocol the protocol of the transport.
+     * @param operation the operation of the message.
+     */
+    void onMessageQueued(IotHubClientProtocol protocol, TransportOperation operation);
+
+    /**
+     * Called when a message is sent to the IoT Hub. A message can be sent again after a connection loss.
+     *
+     * @param protocol the protocol of the transport.
+     * @param operation the operation of the message.
+     */
+    void onMessageSent(IotHubClientProtocol protocol, TransportOperation operation);
+
+    /**
+     * Called when the callback of a message is queued with its final status.
+     *
+     * @param protocol the protocol of the transport.
+     * @param operation the operation of the message.
+     * @param status the status of the message.
+     * @param latencyNanos the time, in nanoseconds, from the last send of the message to its completion,
+     *                     or -1 if the message was never sent, like an expired or cancelled message.
+     */
+    void onMessageCompleted(IotHubClientProtocol protocol, TransportOperation operation, IotHubStatusCode status, long latencyNanos);
+
+    /**
+     * Called when a message is received from the IoT Hub.
+     *
+     * @param protocol the protocol of the transport.
+     * @param operation the operation of the message.
+     */
+    void onMessageReceived(IotHubClientProtocol protocol, TransportOperation operation);
+
+    /**
+     * Called when a transport reconnects to the IoT Hub, after a connection loss or to renew the sas token.
+     *
+     * @param protocol the protocol of the transport.
+     */
+    void onReconnect(IotHubClientProtocol protocol);
+}
@@ -0,0 +1,204 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.Message;
+
+/**
+ * Reports the metrics of one transport to a {@link TransportMetrics}, with the protocol of the transport and
+ * the operation of each message. If the metrics are the {@link NoopTransportMetrics}, the recorder is disabled
+ * and every method returns without calling the metrics or taking the time.
+ */
+public final class TransportMetricsRecorder
+{
+    /** The send time of a message that was never sent. */
+    public static final long NOT_SENT = 0L;
+
+    private final TransportMetrics metrics;
+    private final IotHubClientProtocol protocol;
+    private final boolean enabled;
+
+    /**
+     * Constructor.
+     *
+     * @param metrics the metrics to report to.
+     * @param protocol the protocol of the transport.
+     * @throws IllegalArgumentException if one of the parameters is {@code null}.
+     */
+    public TransportMetricsRecorder(TransportMetrics metrics, IotHubClientProtocol protocol) throws IllegalArgumentException
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_001: [If the provided `metrics` or `protocol` is null, the constructor shall throw IllegalArgumentException.] */
+        if ((metrics == null) || (protocol == null))
+        {
+            throw new IllegalArgumentException("metrics and protocol cannot be null");
+        }
+
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_002: [The recorder shall be disabled if the provided `metrics` is the NoopTransportMetrics.] */
+        this.metrics = metrics;
+        this.protocol = protocol;
+        this.enabled = (metrics != NoopTransportMetrics.INSTANCE);
+    }
+
+    /**
+     * Getter for the enabled state.
+     *
+     * @return {@code true} if the metrics are reported, {@code false} otherwise.
+     */
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+
+    /**
+     * Reports the queues of an opened transport.
+     *
+     * @param queues the queues of the transport.
+     */
+    public void registerQueues(TransportQueues queues)
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_003: [If the recorder is enabled, the registerQueues shall call the metrics `registerQueues` with the protocol and the provided `queues`.] */
+        if (this.enabled)
+        {
+            this.metrics.registerQueues(this.protocol, queues);
+        }
+    }
+
+    /**
+     * Stops reporting the queues of a closed transport.
+     *
+     * @param queues the queues of the transport.
+     */
+    public void unregisterQueues(TransportQueues queues)
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_004: [If the recorder is enabled, the unregisterQueues shall call the metrics `unregisterQueues` with the protocol and the provided `queues`.] */
+        if (this.enabled)
+        {
+            this.metrics.unregisterQueues(this.protocol, queues);
+        }
+    }
+
+    /**
+     * Reports a packet added to the waiting list.
+     *
+     * @param packet the packet of the message.
+     */
+    public void onQueued(IotHubOutboundPacket packet)
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_005: [If the recorder is enabled, the onQueued shall call the metrics `onMessageQueued` with the operation of the packet message.] */
+        if (this.enabled)
+        {
+            this.metrics.onMessageQueued(this.protocol, operationOf(packet));
+        }
+    }
+
+    /**
+     * Reports a packet sent to the IoT Hub, and stores the send time in the packet.
+     *
+     * @param packet the packet of the message.
+     */
+    public void onSent(IotHubOutboundPacket packet)
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_006: [If the recorder is enabled, the onSent shall store the current time in the packet, and call the metrics `onMessageSent` with the operation of the packet message.] */
+        if (this.enabled)
+        {
+            packet.setSentNanos(System.nanoTime());
+            this.metrics.onMessageSent(this.protocol, operationOf(packet));
+        }
+    }
+
+    /**
+     * Reports a packet completed with its final status.
+     *
+     * @param packet the packet of the message.
+     * @param status the status of the message.
+     */
+    public void onCompleted(IotHubOutboundPacket packet, IotHubStatusCode status)
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_007: [If the recorder is enabled, the onCompleted shall call the metrics `onMessageCompleted` with the operation of the packet message, the status, and the time since the packet was sent.] */
+        if (this.enabled)
+        {
+            this.metrics.onMessageCompleted(this.protocol, operationOf(packet), status, latencySince(packet.getSentNanos()));
+        }
+    }
+
+    /**
+     * Reports an operation, that is not queued in a transport, started.
+     *
+     * @param operation the operation.
+     * @return the start time to provide to {@link #onCompleted(TransportOperation, IotHubStatusCode, long)},
+     * or {@link #NOT_SENT} if the recorder is disabled.
+     */
+    public long onSent(TransportOperation operation)
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_008: [If the recorder is enabled, the onSent shall call the metrics `onMessageSent` with the provided `operation` and return the current time.] */
+        if (this.enabled)
+        {
+            this.metrics.onMessageSent(this.protocol, operation);
+            return System.nanoTime();
+        }
+
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_009: [If the recorder is disabled, the onSent shall return NOT_SENT.] */
+        return NOT_SENT;
+    }
+
+    /**
+     * Reports an operation, that is not queued in a transport, completed.
+     *
+     * @param operation the operation.
+     * @param status the status of the operation.
+     * @param sentNanos the time returned by {@link #onSent(TransportOperation)}.
+     */
+    public void onCompleted(TransportOperation operation, IotHubStatusCode status, long sentNanos)
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_010: [If the recorder is enabled, the onCompleted shall call the metrics `onMessageCompleted` with the provided `operation`, `status`, and the time since `sentNanos`.] */
+        if (this.enabled)
+        {
+            this.metrics.onMessageCompleted(this.protocol, operation, status, latencySince(sentNanos));
+        }
+    }
+
+    /**
+     * Reports a message received from the IoT Hub.
+     *
+     * @param message the received message.
+     */
+    public void onReceived(Message message)
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_011: [If the recorder is enabled, the onReceived shall call the metrics `onMessageReceived` with the operation of the provided `message`.] */
+        if (this.enabled)
+        {
+            this.metrics.onMessageReceived(this.protocol, TransportOperation.fromMessageType(message.getMessageType()));
+        }
+    }
+
+    /**
+     * Reports a reconnection of the transport.
+     */
+    public void onReconnect()
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_012: [If the recorder is enabled, the onReconnect shall call the metrics `onReconnect`.] */
+        if (this.enabled)
+        {
+            this.metrics.onReconnect(this.protocol);
+        }
+    }
+
+    private static TransportOperation operationOf(IotHubOutboundPacket packet)
+    {
+        Message message = packet.getMessage();
+        return TransportOperation.fromMessageType((message == null) ? null : message.getMessageType());
+    }
+
+    private static long latencySince(long sentNanos)
+    {
+        /* Codes_SRS_TRANSPORTMETRICSRECORDER_21_013: [If the message was never sent, the latency shall be -1.] */
+        if (sentNanos == NOT_SENT)
+        {
+            return -1;
+        }
+        return System.nanoTime() - sentNanos;
+    }
+}
@@ -0,0 +1,33 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.MessageType;
+
+/**
+ * The types of operations reported to the {@link TransportMetrics}.
+ */
+public enum TransportOperation
+{
+    TELEMETRY, TWIN, METHODS, FILE_UPLOAD;
+
+    /**
+     * Gets the operation of a message.
+     *
+     * @param messageType the type of the message. Can be {@code null}.
+     * @return the operation of the message, which is {@link #TELEMETRY} if the type is not twin or methods.
+     */
+    public static TransportOperation fromMessageType(MessageType messageType)
+    {
+        if (messageType == MessageType.DEVICE_TWIN)
+        {
+            return TWIN;
+        }
+        else if (messageType == MessageType.DEVICE_METHODS)
+        {
+            return METHODS;
+        }
+        return TELEMETRY;
+    }
+}
@@ -0,0 +1,32 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+/**
+ * The current depth of the queues of a transport, to be sampled as gauges by the {@link TransportMetrics}.
+ * The counts are read from the concurrent queues of the transport, and can be called from any thread.
+ */
+public interface TransportQueues
+{
+    /**
+     * Getter for the number of messages waiting to be sent.
+     *
+     * @return the number of messages in the waiting list.
+     */
+    int getWaitingCount();
+
+    /**
+     * Getter for the number of messages sent and waiting for an acknowledgement from the IoT Hub.
+     *
+     * @return the number of messages in progress.
+     */
+    int getInProgressCount();
+
+    /**
+     * Getter for the number of completed messages whose callbacks are waiting to be invoked.
+     *
+     * @return the number of packets in the callback list.
+     */
+    int getCallbackCount();
+}
@@ -494,7 +494,9 @@ public final class AmqpsIotHubConnection extends BaseHandler
             try
             {
                 SslDomain domain = makeDomain();
-                transport.ssl(domain);
+                // Codes_SRS_AMQPSIOTHUBCONNECTION_21_063: [The event handler shall set the peer details (host and port) on the transport SSL, so the TLS session can be resumed when reconnecting.]
+                SslPeerDetails peerDetails = Proton.sslPeerDetails(this.config.getIotHubHostname(), this.useWebSockets ? AMQP_WEB_SOCKET_PORT : AMQP_PORT);
+                transport.ssl(domain, peerDetails);
             }
             catch (IOException e)
             {
@@ -748,6 +750,25 @@ public final class AmqpsIotHubConnection extends BaseHandler
         logger.LogDebug("Exited from method %s", logger.getMethodName());
     }
     
+    /**
+     * Checks if the sas token used to open this connection was renewed, so the connection shall be
+     * reopened with the renewed token before the current one expires.
+     *
+     * @return {@code true} if the connection uses sas token authentication and the sas token was renewed.
+     */
+    public boolean isSasTokenRenewed()
+    {
+        // Codes_SRS_AMQPSIOTHUBCONNECTION_21_064: [If the connection does not use sas token authentication, the function shall return false.]
+        if (this.config.getAuthenticationType() != DeviceClientConfig.AuthType.SAS_TOKEN || this.sasToken == null)
+        {
+            return false;
+        }
+
+        // Codes_SRS_AMQPSIOTHUBCONNECTION_21_065: [The function shall return true if the current sas token in the config is different from the one used to open the connection.]
+        String renewedSasToken = this.config.getSasTokenAuthentication().getRenewedSasToken();
+        return renewedSasToken != null && !renewedSasToken.equals(this.sasToken);
+    }
+
     /**
      * Subscribe a listener to the list of listeners.
      * @param listener the listener to be subscribed.
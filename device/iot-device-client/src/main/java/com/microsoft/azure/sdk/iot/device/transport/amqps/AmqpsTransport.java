@@ -7,7 +7,10 @@ import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubCallbackPacket;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubOutboundPacket;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.NoopTransportMetrics;
 import com.microsoft.azure.sdk.iot.device.transport.State;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetricsRecorder;
+import com.microsoft.azure.sdk.iot.device.transport.TransportQueues;
 
 import java.io.IOException;
 import java.util.*;
@@ -25,7 +28,7 @@ import java.util.concurrent.LinkedBlockingQueue;
  * The transport also receives messages from IoT Hub and invokes a
  * user-defined message callback if a message and callback are found.
  */
-public final class AmqpsTransport implements IotHubTransport, ServerListener
+public final class AmqpsTransport implements IotHubTransport, ServerListener, TransportQueues
 {
     /** The state of the AMQPS transport. */
     private State state;
@@ -52,8 +55,18 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
     private final DeviceClientConfig config;
     private final CustomLogger logger;
 
+    /** Reports the metrics of the transport, disabled until the transport is opened, and replaced on each open. */
+    private volatile TransportMetricsRecorder metricsRecorder;
+
     private ArrayList<AmqpsDeviceOperations> amqpsDeviceOperationsList;
 
+    /** Maximum time to wait for the in progress messages to be acknowledged before reconnecting with a renewed sas token. */
+    private static final long SAS_TOKEN_RENEWAL_DRAIN_TIMEOUT_MILLISECS = 60 * 1000;
+    /** Time, in milliseconds, when the transport started to wait for the in progress messages to reconnect, or 0 if not waiting. */
+    private long sasTokenRenewalDrainStart = 0;
+    /** True if the connection was closed to reconnect with a renewed sas token, but the new connection failed to open. */
+    private boolean sasTokenReconnectPending = false;
+
     /**
      * Constructs an instance from the given {@link DeviceClientConfig}
      * object.
@@ -69,6 +82,7 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
         // Codes_SRS_AMQPSTRANSPORT_15_002: [The constructor shall set the transport state to CLOSED.]
         this.state = State.CLOSED;
         this.logger = new CustomLogger(this.getClass());
+        this.metricsRecorder = new TransportMetricsRecorder(NoopTransportMetrics.INSTANCE, IotHubClientProtocol.AMQPS);
 
         // Codes_SRS_AMQPSTRANSPORT_12_001: [The constructor shall create device operation list with DEVICE_TELEMETRY, DEVICE_METHODS and DEVICE_TWIN objects.]
         amqpsDeviceOperationsList = new ArrayList<>();
@@ -109,6 +123,11 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
             throw new IOException(e);
         }
 
+        // Codes_SRS_AMQPSTRANSPORT_21_048: [The function shall report the queues to the transport metrics in the configuration, with the protocol AMQPS_WS if it uses websocket, or AMQPS otherwise.]
+        this.metricsRecorder = new TransportMetricsRecorder(this.config.getTransportMetrics(),
+                this.config.isUseWebsocket() ? IotHubClientProtocol.AMQPS_WS : IotHubClientProtocol.AMQPS);
+        this.metricsRecorder.registerQueues(this);
+
         // Codes_SRS_AMQPSTRANSPORT_15_006: [If the connection was opened successfully, the transport state shall be set to OPEN.]
         this.state = State.OPEN;
         logger.LogInfo("Connection has been opened, method name is %s ", logger.getMethodName());
@@ -141,7 +160,7 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
             {
                 IotHubCallbackPacket callbackPacket = new IotHubCallbackPacket(IotHubStatusCode.MESSAGE_CANCELLED_ONCLOSE, packet.getCallback(), packet.getContext());
                 this.callbackList.add(callbackPacket);
-                
+                this.metricsRecorder.onCompleted(packet, IotHubStatusCode.MESSAGE_CANCELLED_ONCLOSE);
             }
         }
 
@@ -151,6 +170,7 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
             IotHubOutboundPacket packet = entry.getValue();
             IotHubCallbackPacket callbackPacket = new IotHubCallbackPacket(IotHubStatusCode.MESSAGE_CANCELLED_ONCLOSE, packet.getCallback(), packet.getContext());
             this.callbackList.add(callbackPacket);
+            this.metricsRecorder.onCompleted(packet, IotHubStatusCode.MESSAGE_CANCELLED_ONCLOSE);
         }
                     
         // Codes_SRS_AMQPSTRANSPORT_99_037: [The method will invoke all the callbacks..]
@@ -164,6 +184,9 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
         // Codes_SRS_AMQPSTRANSPORT_15_008: [The function shall close an AMQPS connection with the IoT Hub given in the configuration.]
         this.connection.close();
 
+        // Codes_SRS_AMQPSTRANSPORT_21_049: [The function shall stop reporting the queues to the transport metrics.]
+        this.metricsRecorder.unregisterQueues(this);
+
         // Codes_SRS_AMQPSTRANSPORT_15_009: [The function shall set the transport state to CLOSED.]
         this.state = State.CLOSED;
         logger.LogInfo("Connection has been closed, method name is %s ", logger.getMethodName());
@@ -190,6 +213,8 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
         // Codes_SRS_AMQPSTRANSPORT_15_011: [The function shall add a packet containing the message, callback, and callback context to the queue of messages waiting to be sent.]
         IotHubOutboundPacket packet = new IotHubOutboundPacket(message, callback, callbackContext);
         this.waitingMessages.add(packet);
+        // Codes_SRS_AMQPSTRANSPORT_21_050: [The function shall report the queued message to the transport metrics.]
+        this.metricsRecorder.onQueued(packet);
     }
 
     /**
@@ -228,6 +253,27 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
             throw new IllegalStateException("Cannot send messages when the AMQPS transport is closed.");
         }
 
+        if (this.sasTokenReconnectPending || this.connection.isSasTokenRenewed())
+        {
+            // Codes_SRS_AMQPSTRANSPORT_21_043: [If the sas token was renewed, the function shall not send new messages while there are messages in progress, up to the drain timeout.]
+            if (!this.inProgressMessages.isEmpty())
+            {
+                long now = System.currentTimeMillis();
+                if (this.sasTokenRenewalDrainStart == 0)
+                {
+                    this.sasTokenRenewalDrainStart = now;
+                }
+
+                if (now - this.sasTokenRenewalDrainStart < SAS_TOKEN_RENEWAL_DRAIN_TIMEOUT_MILLISECS)
+                {
+                    return;
+                }
+            }
+
+            // Codes_SRS_AMQPSTRANSPORT_21_044: [If the sas token was renewed and there are no messages in progress, or the drain timeout expires, the function shall reopen the connection with the renewed sas token.]
+            reconnectWithRenewedSasToken();
+        }
+
         // Codes_SRS_AMQPSTRANSPORT_15_013: [If there are no messages in the waiting list, the function shall return.]
         if (this.waitingMessages.size() <= 0)
         {
@@ -254,6 +300,7 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
                     logger.LogInfo("Creating a callback for the expired message with MESSAGE_EXPIRED status, method name is %s ", logger.getMethodName());
                     IotHubCallbackPacket callbackPacket = new IotHubCallbackPacket(IotHubStatusCode.MESSAGE_EXPIRED, packet.getCallback(), packet.getContext());
                     this.callbackList.add(callbackPacket);
+                    this.metricsRecorder.onCompleted(packet, IotHubStatusCode.MESSAGE_EXPIRED);
                 }
                 else
                 {
@@ -287,6 +334,7 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
                         logger.LogInfo("Creating a callback for the message with expired sas token with UNAUTHORIZED status, method name is %s ", logger.getMethodName());
                         IotHubCallbackPacket callbackPacket = new IotHubCallbackPacket(IotHubStatusCode.UNAUTHORIZED, packet.getCallback(), packet.getContext());
                         this.callbackList.add(callbackPacket);
+                        this.metricsRecorder.onCompleted(packet, IotHubStatusCode.UNAUTHORIZED);
 
                         if (this.stateCallback != null)
                         {
@@ -301,6 +349,8 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
                         // Codes_SRS_AMQPSTRANSPORT_15_016: [If the sent message hash is valid, it shall be added to the in progress map.]
                         if (sendHash != -1)
                         {
+                            // Codes_SRS_AMQPSTRANSPORT_21_051: [The function shall report each message added to the in progress map to the transport metrics.]
+                            this.metricsRecorder.onSent(packet);
                             this.inProgressMessages.put(sendHash, packet);
                         }
                         // Codes_SRS_AMQPSTRANSPORT_15_017: [If the sent message hash is not valid, it shall be buffered to be sent in a subsequent attempt.]
@@ -316,6 +366,59 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
         this.waitingMessages.addAll(failedMessages);
     }
 
+    /**
+     * Replaces the connection by a new one opened with the renewed sas token. The messages still in progress
+     * are moved back to the waiting list, to be sent again over the new connection.
+     *
+     * @throws IOException if the new connection cannot be opened.
+     */
+    private synchronized void reconnectWithRenewedSasToken() throws IOException
+    {
+        logger.LogInfo("Reopening the connection with the renewed sas token, method name is %s ", logger.getMethodName());
+        this.sasTokenRenewalDrainStart = 0;
+
+        // Codes_SRS_AMQPSTRANSPORT_21_045: [The function shall move the messages still in progress back to the waiting list before reopening the connection.]
+        for (Map.Entry<Integer, IotHubOutboundPacket> entry : this.inProgressMessages.entrySet())
+        {
+            this.waitingMessages.add(entry.getValue());
+        }
+        this.inProgressMessages.clear();
+
+        if (!this.sasTokenReconnectPending)
+        {
+            this.connection.close();
+            this.sasTokenReconnectPending = true;
+        }
+
+        // Codes_SRS_AMQPSTRANSPORT_21_046: [The function shall open a new connection, with the transport as listener, to authenticate with the renewed sas token.]
+        AmqpsIotHubConnection renewedConnection = new AmqpsIotHubConnection(this.config, amqpsDeviceOperationsList);
+        try
+        {
+            renewedConnection.addListener(this);
+            renewedConnection.open();
+        }
+        catch (Exception e)
+        {
+            // Codes_SRS_AMQPSTRANSPORT_21_047: [If the new connection cannot be opened, the function shall throw IOException, keep the messages in the waiting list, and retry the reconnection on the next call to sendMessages.]
+            logger.LogError(e);
+            try
+            {
+                renewedConnection.close();
+            }
+            catch (Exception closeException)
+            {
+                logger.LogError(closeException);
+            }
+            throw new IOException(e);
+        }
+
+        this.connection = renewedConnection;
+        this.sasTokenReconnectPending = false;
+
+        // Codes_SRS_AMQPSTRANSPORT_21_052: [The function shall report the reconnection to the transport metrics.]
+        this.metricsRecorder.onReconnect();
+    }
+
     /**
      * Invokes the callbacks for all completed requests.
      *
@@ -396,6 +499,9 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
                 throw new IllegalStateException("No handler found for received message!");
             }
 
+            // Codes_SRS_AMQPSTRANSPORT_21_053: [The function shall report the received message to the transport metrics.]
+            this.metricsRecorder.onReceived(amqpsHandleMessageReturnValue.getMessage());
+
             // Codes_SRS_AMQPSTRANSPORT_12_008: [The function shall return if there is no message callback defined.]
             if (amqpsHandleMessageReturnValue.getMessageCallback() == null)
             {
@@ -438,6 +544,8 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
                 // its callback is added to the list of callbacks to be executed.]
                 IotHubCallbackPacket callbackPacket = new IotHubCallbackPacket(IotHubStatusCode.OK_EMPTY, packet.getCallback(), packet.getContext());
                 this.callbackList.add(callbackPacket);
+                // Codes_SRS_AMQPSTRANSPORT_21_054: [The function shall report the delivered message, with the send to acknowledgement latency, to the transport metrics.]
+                this.metricsRecorder.onCompleted(packet, IotHubStatusCode.OK_EMPTY);
             } else
             {
                 logger.LogInfo("Message with messageid %s was not delivered to IoTHub, it is buffered to be sent again, method name is %s ", packet.getMessage().getMessageId(), logger.getMethodName());
@@ -462,6 +570,9 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
         // Codes_SRS_AMQPSTRANSPORT_15_033: [The map of messages in progress is cleared.]
         inProgressMessages.clear();
 
+        // Codes_SRS_AMQPSTRANSPORT_21_055: [The connection loss is reported as a reconnection to the transport metrics.]
+        this.metricsRecorder.onReconnect();
+
         // Notify the listener that the connection is down
         // Codes_SRS_AMQPSTRANSPORT_99_001: [Registered connection state callback is notified that the connection has been lost.]
         if (this.stateCallback != null) {
@@ -527,4 +638,37 @@ public final class AmqpsTransport implements IotHubTransport, ServerListener
         this.stateCallback = callback;
         this.stateCallbackContext = callbackContext;
     }
-}
\ No newline at end of file
+
+    /**
+     * Getter for the number of messages waiting to be sent.
+     *
+     * @return the number of messages in the waiting list.
+     */
+    public int getWaitingCount()
+    {
+        // Codes_SRS_AMQPSTRANSPORT_21_056: [The function shall return the number of messages waiting to be sent.]
+        return this.waitingMessages.size();
+    }
+
+    /**
+     * Getter for the number of messages sent and waiting for an acknowledgement from the IoT Hub.
+     *
+     * @return the number of messages in progress.
+     */
+    public int getInProgressCount()
+    {
+        // Codes_SRS_AMQPSTRANSPORT_21_057: [The function shall return the number of messages in progress.]
+        return this.inProgressMessages.size();
+    }
+
+    /**
+     * Getter for the number of callbacks waiting to be invoked.
+     *
+     * @return the number of packets in the callback list.
+     */
+    public int getCallbackCount()
+    {
+        // Codes_SRS_AMQPSTRANSPORT_21_058: [The function shall return the number of callbacks waiting to be invoked.]
+        return this.callbackList.size();
+    }
+}
@@ -8,6 +8,9 @@ import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException
 import com.microsoft.azure.sdk.iot.device.transport.IotHubCallbackPacket;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubOutboundPacket;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.NoopTransportMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetricsRecorder;
+import com.microsoft.azure.sdk.iot.device.transport.TransportQueues;
 
 import java.io.IOException;
 import java.util.NoSuchElementException;
@@ -26,7 +29,7 @@ import java.util.concurrent.LinkedBlockingDeque;
  * user-defined message callback if a message and callback is found.
  * </p>
  */
-public final class HttpsTransport implements IotHubTransport
+public final class HttpsTransport implements IotHubTransport, TransportQueues
 {
     /** The state of the HTTPS transport. */
     protected enum HttpsTransportState
@@ -52,6 +55,9 @@ public final class HttpsTransport implements IotHubTransport
 
     private final DeviceClientConfig config;
 
+    /** Reports the metrics of the transport, disabled until the transport is opened, and replaced on each open. */
+    private volatile TransportMetricsRecorder metricsRecorder;
+
     /**
      * Constructs an instance from the given {@link DeviceClientConfig}
      * object.
@@ -69,6 +75,7 @@ public final class HttpsTransport implements IotHubTransport
         this.config = config;
 
         this.state = HttpsTransportState.CLOSED;
+        this.metricsRecorder = new TransportMetricsRecorder(NoopTransportMetrics.INSTANCE, IotHubClientProtocol.HTTPS);
     }
 
     /**
@@ -88,6 +95,11 @@ public final class HttpsTransport implements IotHubTransport
         // Codes_SRS_HTTPSTRANSPORT_11_023: [If the transport is already closed, the function shall throw an IllegalStateException.]
         // Codes_SRS_HTTPSTRANSPORT_11_021: [The function shall establish an HTTPS connection with the IoT Hub given in the configuration.]
         this.connection = new HttpsIotHubConnection(this.config);
+
+        // Codes_SRS_HTTPSTRANSPORT_21_042: [The function shall report the queues to the transport metrics in the configuration, with the protocol HTTPS.]
+        this.metricsRecorder = new TransportMetricsRecorder(this.config.getTransportMetrics(), IotHubClientProtocol.HTTPS);
+        this.metricsRecorder.registerQueues(this);
+
         this.state = HttpsTransportState.OPEN;
     }
 
@@ -121,6 +133,9 @@ public final class HttpsTransport implements IotHubTransport
         
         // the HTTPS connection does not contain state
         // that needs to be explicitly destroyed.
+        // Codes_SRS_HTTPSTRANSPORT_21_043: [The function shall stop reporting the queues to the transport metrics.]
+        this.metricsRecorder.unregisterQueues(this);
+
         // Codes_SRS_HTTPSTRANSPORT_11_035: [The function shall mark the transport as being closed.]
         this.state = HttpsTransportState.CLOSED;
     }
@@ -149,6 +164,8 @@ public final class HttpsTransport implements IotHubTransport
         // Codes_SRS_HTTPSTRANSPORT_11_003: [The function shall add a packet containing the message, callback, and callback context to the transport queue.]
         IotHubOutboundPacket packet = new IotHubOutboundPacket(message, callback, callbackContext);
         this.waitingList.add(packet);
+        // Codes_SRS_HTTPSTRANSPORT_21_044: [The function shall report the queued message to the transport metrics.]
+        this.metricsRecorder.onQueued(packet);
     }
 
     /**
@@ -175,6 +192,8 @@ public final class HttpsTransport implements IotHubTransport
         // Codes_SRS_HTTPSTRANSPORT_21_017: [The function shall add a packet containing the message, callback, and callback context to the transport queue.]
         IotHubOutboundPacket packet = new IotHubOutboundPacket(message, callback, callbackContext);
         this.waitingList.add(packet);
+        // Codes_SRS_HTTPSTRANSPORT_21_044: [The function shall report the queued message to the transport metrics.]
+        this.metricsRecorder.onQueued(packet);
     }
 
     /**
@@ -232,6 +251,14 @@ public final class HttpsTransport implements IotHubTransport
         // Codes_SRS_HTTPSTRANSPORT_11_005: [The function shall configure a valid HTTPS request and send it to the IoT Hub.]
         // Codes_SRS_HTTPSTRANSPORT_11_014: [If the send request fails while in progress, the function shall throw an IOException.]
         // Codes_SRS_HTTPSTRANSPORT_11_017: [If an invalid URI is generated from the configuration given in the constructor, the function shall throw a URISyntaxException.]
+        // Codes_SRS_HTTPSTRANSPORT_21_045: [The function shall report each message of the request as sent to the transport metrics.]
+        if (this.metricsRecorder.isEnabled())
+        {
+            for (IotHubOutboundPacket packet : this.inProgressList)
+            {
+                this.metricsRecorder.onSent(packet);
+            }
+        }
         ResponseMessage responseMessage = this.connection.sendEvent(msg);
 
         // Codes_SRS_HTTPSTRANSPORT_11_006: [The function shall add a packet containing the callbacks, contexts, and response for all sent messages to the callback queue.]
@@ -325,6 +352,9 @@ public final class HttpsTransport implements IotHubTransport
         Message message = this.connection.receiveMessage();
         if (message != null)
         {
+            // Codes_SRS_HTTPSTRANSPORT_21_046: [The function shall report the received message to the transport metrics.]
+            this.metricsRecorder.onReceived(message);
+
             IotHubMessageResult result = callback.execute(message, context);
 
             // Codes_SRS_HTTPSTRANSPORT_11_011: [The function shall return the message result (one of COMPLETE, ABANDON, or REJECT) to the IoT Hub.]
@@ -479,6 +509,9 @@ public final class HttpsTransport implements IotHubTransport
 
     private void addOutboundPacketToCallbackList(IotHubOutboundPacket packet, ResponseMessage responseMessage)
     {
+        // Codes_SRS_HTTPSTRANSPORT_21_047: [The function shall report each completed message, with the status of the response and the send to acknowledgement latency, to the transport metrics.]
+        this.metricsRecorder.onCompleted(packet, responseMessage.getStatus());
+
         IotHubEventCallback eventCallback = packet.getCallback();
         if (eventCallback != null)
         {
@@ -501,4 +534,37 @@ public final class HttpsTransport implements IotHubTransport
             this.callbackList.add(callbackPacket);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Getter for the number of messages waiting to be sent.
+     *
+     * @return the number of messages in the waiting list.
+     */
+    public int getWaitingCount()
+    {
+        // Codes_SRS_HTTPSTRANSPORT_21_048: [The function shall return the size of the waiting list.]
+        return this.waitingList.size();
+    }
+
+    /**
+     * Getter for the number of messages in the request waiting for a response from the IoT Hub.
+     *
+     * @return the number of messages in the in progress list.
+     */
+    public int getInProgressCount()
+    {
+        // Codes_SRS_HTTPSTRANSPORT_21_049: [The function shall return the size of the in progress list.]
+        return this.inProgressList.size();
+    }
+
+    /**
+     * Getter for the number of callbacks waiting to be invoked.
+     *
+     * @return the number of packets in the callback list.
+     */
+    public int getCallbackCount()
+    {
+        // Codes_SRS_HTTPSTRANSPORT_21_050: [The function shall return the size of the callback list.]
+        return this.callbackList.size();
+    }
+}
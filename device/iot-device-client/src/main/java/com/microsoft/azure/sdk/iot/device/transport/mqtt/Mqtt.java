@@ -4,8 +4,12 @@
 package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
 import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
 import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasToken;
+import com.microsoft.azure.sdk.iot.device.transport.NoopTransportMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetricsRecorder;
 import com.microsoft.azure.sdk.iot.device.transport.TransportUtils;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -28,6 +32,9 @@ abstract public class Mqtt implements MqttCallback
     // SAS token expiration check on retry
     private boolean userSpecifiedSASTokenExpiredOnRetry = false;
 
+    /** Reports the reconnections of this connection, created on the first one, guarded by the mqttLock. */
+    private TransportMetricsRecorder metricsRecorder = null;
+
     /* Each property is separated by & and all system properties start with an encoded $ (except for iothub-ack) */
     final static char MESSAGE_PROPERTY_SEPARATOR = '&';
     private final static String MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_ENCODED = "%24";
@@ -137,6 +144,69 @@ abstract public class Mqtt implements MqttCallback
         }
     }
 
+    /**
+     * Method to reconnect to the mqtt broker with a new sas token. The publishes, subscribes and
+     * reconnections wait on the mqtt lock until the connection is established again, and the
+     * in-flight messages are kept in the session, which is not clean.
+     *
+     * @param sasToken the new sas token to connect with.
+     * @throws IOException if failed to reconnect with the new sas token. The connection is left closed, and the
+     *                     caller retries the reconnection.
+     */
+    protected void reconnectWithSasToken(String sasToken) throws IOException
+    {
+        synchronized (this.mqttLock)
+        {
+            if (sasToken == null || sasToken.isEmpty())
+            {
+                /*
+                **Codes_SRS_Mqtt_21_060: [**If the sasToken is null or empty, the function shall throw an IllegalArgumentException.**]**
+                 */
+                throw new IllegalArgumentException("sasToken cannot be null or empty");
+            }
+
+            if (this.mqttConnection == null || this.mqttConnection.getMqttAsyncClient() == null)
+            {
+                /*
+                **Codes_SRS_Mqtt_21_061: [**If the mqtt connection was not initialised, the function shall throw an IOException.**]**
+                 */
+                throw new IOException("Mqtt client should be initialised atleast once before using it");
+            }
+
+            /*
+            **Codes_SRS_Mqtt_21_062: [**The function shall set the new sas token as the password of the connection options.**]**
+             */
+            this.mqttConnection.getConnectionOptions().setPassword(sasToken.toCharArray());
+
+            try
+            {
+                if (this.mqttConnection.getMqttAsyncClient().isConnected())
+                {
+                    /*
+                    **Codes_SRS_Mqtt_21_063: [**The function shall disconnect the current connection, waiting for the in-flight messages to complete.**]**
+                     */
+                    IMqttToken disconnectToken = this.mqttConnection.getMqttAsyncClient().disconnect();
+                    disconnectToken.waitForCompletion();
+                }
+            }
+            catch (MqttException e)
+            {
+                throw new IOException("Unable to disconnect because " + e.getMessage());
+            }
+
+            /*
+            **Codes_SRS_Mqtt_21_064: [**The function shall connect again with the new sas token.**]**
+            **Codes_SRS_Mqtt_21_065: [**If the connection cannot be established, the function shall throw an IOException, and leave the connection closed for the caller to retry.**]**
+             */
+            connect();
+
+            /*
+            **Codes_SRS_Mqtt_21_066: [**After it reconnects, the function shall report the reconnection to the transport metrics of the device client configuration.**]**
+             */
+            reportReconnection();
+        }
+    }
+
     /**
      * Method to publish to mqtt broker connection.
      *
@@ -458,6 +528,14 @@ abstract public class Mqtt implements MqttCallback
                         }
                     }
                 }
+
+                if (currentReconnectionAttempt > 0)
+                {
+                    /*
+                    **Codes_SRS_Mqtt_21_055: [**After it reconnects, the function shall report the reconnection to the transport metrics of the device client configuration.**]**
+                    */
+                    reportReconnection();
+                }
             }
             else
             {
@@ -466,6 +544,25 @@ abstract public class Mqtt implements MqttCallback
         }
     }
 
+    private void reportReconnection()
+    {
+        if (this.deviceClientConfig != null)
+        {
+            if (this.metricsRecorder == null)
+            {
+                /*
+                **Codes_SRS_Mqtt_21_067: [**The reconnections of the connection shall be reported by one recorder, created on the first reconnection, with the protocol MQTT_WS if it uses websocket, or MQTT otherwise.**]**
+                 */
+                TransportMetrics metrics = this.deviceClientConfig.getTransportMetrics();
+                // a disabled recorder ignores its protocol.
+                IotHubClientProtocol protocol = ((metrics != NoopTransportMetrics.INSTANCE) && this.deviceClientConfig.isUseWebsocket()) ?
+                        IotHubClientProtocol.MQTT_WS : IotHubClientProtocol.MQTT;
+                this.metricsRecorder = new TransportMetricsRecorder(metrics, protocol);
+            }
+            this.metricsRecorder.onReconnect();
+        }
+    }
+
     /**
      * Event fired when the message arrived on the MQTT broker.
      * @param topic the topic on which message arrived.
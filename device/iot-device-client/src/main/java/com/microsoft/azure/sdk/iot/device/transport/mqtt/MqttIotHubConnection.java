@@ -220,6 +220,32 @@ public class MqttIotHubConnection
 
     }
 
+    /**
+     * Reconnects with the renewed sas token, if the sas token in use by the connection was
+     * renewed. This allows the connection to use a new token before the current one expires.
+     *
+     * @throws IOException if the connection cannot be reestablished with the renewed sas token.
+     */
+    public void updateSasToken() throws IOException
+    {
+        synchronized (MQTT_CONNECTION_LOCK)
+        {
+            // Codes_SRS_MQTTIOTHUBCONNECTION_21_028: [If the connection is closed or does not use sas token authentication, the function shall do nothing.]
+            if (this.state == State.CLOSED || this.config.getAuthenticationType() != DeviceClientConfig.AuthType.SAS_TOKEN)
+            {
+                return;
+            }
+
+            String renewedSasToken = this.config.getSasTokenAuthentication().getRenewedSasToken();
+            if (renewedSasToken != null && !renewedSasToken.equals(this.iotHubUserPassword))
+            {
+                // Codes_SRS_MQTTIOTHUBCONNECTION_21_029: [If the sas token was renewed, the function shall reconnect with the renewed sas token.]
+                this.deviceMessaging.reconnectWithSasToken(renewedSasToken);
+                this.iotHubUserPassword = renewedSasToken;
+            }
+        }
+    }
+
     /**
      * Sends an event message.
      *
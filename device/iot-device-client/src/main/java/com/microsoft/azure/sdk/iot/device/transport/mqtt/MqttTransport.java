@@ -7,7 +7,10 @@ import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubCallbackPacket;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubOutboundPacket;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.NoopTransportMetrics;
 import com.microsoft.azure.sdk.iot.device.transport.State;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetricsRecorder;
+import com.microsoft.azure.sdk.iot.device.transport.TransportQueues;
 
 import java.io.IOException;
 import java.util.Queue;
@@ -26,7 +29,7 @@ import java.util.concurrent.LinkedBlockingDeque;
  * </p>
  */
 
-public final class MqttTransport implements IotHubTransport
+public final class MqttTransport implements IotHubTransport, TransportQueues
 {
     /** The MQTT connection lock. */
     protected final Object sendMessagesLock = new Object();
@@ -48,6 +51,9 @@ public final class MqttTransport implements IotHubTransport
 
     private final DeviceClientConfig config;
 
+    /** Reports the metrics of the transport, disabled until the transport is opened, and replaced on each open. */
+    private volatile TransportMetricsRecorder metricsRecorder;
+
     /**
      * Constructs an instance from the given {@link DeviceClientConfig}
      * object.
@@ -64,6 +70,7 @@ public final class MqttTransport implements IotHubTransport
         this.callbackList = new LinkedBlockingDeque<>();
         this.config = config;
         this.state = State.CLOSED;
+        this.metricsRecorder = new TransportMetricsRecorder(NoopTransportMetrics.INSTANCE, IotHubClientProtocol.MQTT);
     }
 
     /**
@@ -85,6 +92,11 @@ public final class MqttTransport implements IotHubTransport
         this.mqttIotHubConnection = new MqttIotHubConnection(this.config);
         this.mqttIotHubConnection.open();
 
+        // Codes_SRS_MQTTTRANSPORT_21_029: [The function shall report the queues to the transport metrics in the configuration, with the protocol MQTT_WS if it uses websocket, or MQTT otherwise.]
+        this.metricsRecorder = new TransportMetricsRecorder(this.config.getTransportMetrics(),
+                this.config.isUseWebsocket() ? IotHubClientProtocol.MQTT_WS : IotHubClientProtocol.MQTT);
+        this.metricsRecorder.registerQueues(this);
+
         this.state = State.OPEN;
     }
 
@@ -108,6 +120,7 @@ public final class MqttTransport implements IotHubTransport
 
             IotHubCallbackPacket callbackPacket = new IotHubCallbackPacket(IotHubStatusCode.MESSAGE_CANCELLED_ONCLOSE, packet.getCallback(), packet.getContext());
             this.callbackList.add(callbackPacket);
+            this.metricsRecorder.onCompleted(packet, IotHubStatusCode.MESSAGE_CANCELLED_ONCLOSE);
         }
        
         // Codes_SRS_MQTTTRANSPORT_99_021: [The method will invoke the callback list]
@@ -116,6 +129,8 @@ public final class MqttTransport implements IotHubTransport
         // Codes_SRS_MQTTTRANSPORT_15_005: [The function shall close the MQTT connection
         // with the IoT Hub given in the configuration.]
         this.mqttIotHubConnection.close();
+        // Codes_SRS_MQTTTRANSPORT_21_030: [The function shall stop reporting the queues to the transport metrics.]
+        this.metricsRecorder.unregisterQueues(this);
         this.state = State.CLOSED;
     }
 
@@ -148,6 +163,8 @@ public final class MqttTransport implements IotHubTransport
             // and callback context to the transport queue.]
             IotHubOutboundPacket packet = new IotHubOutboundPacket(message, callback, callbackContext);
             this.waitingList.add(packet);
+            // Codes_SRS_MQTTTRANSPORT_21_031: [The function shall report the queued message to the transport metrics.]
+            this.metricsRecorder.onQueued(packet);
         }
     }
 
@@ -194,6 +211,17 @@ public final class MqttTransport implements IotHubTransport
                 throw new IllegalStateException("MQTT transport is closed.");
             }
 
+            try
+            {
+                // Codes_SRS_MQTTTRANSPORT_21_027: [If the sas token was renewed, the function shall reconnect with the renewed sas token before sending the messages, keeping them in the waiting list.]
+                this.mqttIotHubConnection.updateSasToken();
+            }
+            catch (IOException e)
+            {
+                // Codes_SRS_MQTTTRANSPORT_21_028: [If the reconnection with the renewed sas token fails, the function shall keep the messages in the waiting list to be sent in a subsequent call.]
+                return;
+            }
+
             if (this.waitingList.size() <= 0)
             {
                 return;
@@ -210,6 +238,7 @@ public final class MqttTransport implements IotHubTransport
                     //Codes_SRS_MQTTTRANSPORT_34_023: [If the config is using sas token auth and its token has expired, the message shall not be sent, but shall be added to the callback list with IotHubStatusCode UNAUTHORIZED.]
                     IotHubCallbackPacket callbackPacket = new IotHubCallbackPacket(IotHubStatusCode.UNAUTHORIZED, packet.getCallback(), packet.getContext());
                     this.callbackList.add(callbackPacket);
+                    this.metricsRecorder.onCompleted(packet, IotHubStatusCode.UNAUTHORIZED);
 
                     //Codes_SRS_MQTTTRANSPORT_34_024: [If the config is using sas token auth, its token has expired, and the connection status callback is not null, the connection status callback will be fired with SAS_TOKEN_EXPIRED.]
                     if (this.stateCallback != null)
@@ -221,12 +250,15 @@ public final class MqttTransport implements IotHubTransport
                 {
                     try
                     {
+                        // Codes_SRS_MQTTTRANSPORT_21_032: [The function shall report each sent message, and its status with the send to acknowledgement latency, to the transport metrics.]
+                        this.metricsRecorder.onSent(packet);
                         IotHubStatusCode status = this.mqttIotHubConnection.sendEvent(packet.getMessage());
 
                         // Codes_SRS_MQTTTRANSPORT_15_010: [For each message being sent, the function shall add
                         // the IoT Hub status code along with the callback and context to the callback list.]
                         IotHubCallbackPacket callbackPacket = new IotHubCallbackPacket(status, packet.getCallback(), packet.getContext());
                         this.callbackList.add(callbackPacket);
+                        this.metricsRecorder.onCompleted(packet, status);
                     }
                     // Codes_SRS_MQTTTRANSPORT_15_011: [If the IoT Hub could not be reached, the message
                     // shall be buffered to be sent again next time.]
@@ -313,6 +345,9 @@ public final class MqttTransport implements IotHubTransport
             // the function shall invoke the callback on the message.]
             if (message != null)
             {
+                // Codes_SRS_MQTTTRANSPORT_21_033: [The function shall report the received message to the transport metrics.]
+                this.metricsRecorder.onReceived(message);
+
                 if (message.getMessageType() == MessageType.DEVICE_METHODS)
                 {
                     if (deviceMethodMessageCallback != null)
@@ -380,4 +415,38 @@ public final class MqttTransport implements IotHubTransport
         this.stateCallback = callback;
         this.stateCallbackContext = callbackContext;
     }
-}
\ No newline at end of file
+
+    /**
+     * Getter for the number of messages waiting to be sent.
+     *
+     * @return the number of messages in the waiting list.
+     */
+    public int getWaitingCount()
+    {
+        // Codes_SRS_MQTTTRANSPORT_21_034: [The function shall return the size of the waiting list.]
+        return this.waitingList.size();
+    }
+
+    /**
+     * Getter for the number of messages waiting for an acknowledgement. The MQTT transport
+     * waits for the acknowledgement of each message when it sends it.
+     *
+     * @return always 0.
+     */
+    public int getInProgressCount()
+    {
+        // Codes_SRS_MQTTTRANSPORT_21_035: [The function shall return 0.]
+        return 0;
+    }
+
+    /**
+     * Getter for the number of callbacks waiting to be invoked.
+     *
+     * @return the number of packets in the callback list.
+     */
+    public int getCallbackCount()
+    {
+        // Codes_SRS_MQTTTRANSPORT_21_036: [The function shall return the size of the callback list.]
+        return this.callbackList.size();
+    }
+}
@@ -8,6 +8,8 @@ import com.microsoft.azure.sdk.iot.device.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.device.MessageCallback;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthentication;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubX509Authentication;
+import com.microsoft.azure.sdk.iot.device.transport.NoopTransportMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetrics;
 import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
@@ -338,6 +340,76 @@ public class DeviceClientConfigTest
         assertTrue(config.isUseWebsocket());
     }
 
+    //Tests_SRS_DEVICECLIENTCONFIG_21_080: [The function shall return the saved file upload block size.]
+    //Tests_SRS_DEVICECLIENTCONFIG_21_082: [The function shall save the file upload block size.]
+    @Test
+    public void setFileUploadBlockSizeSets() throws URISyntaxException, IOException
+    {
+        final IotHubConnectionString iotHubConnectionString =
+                Deencapsulation.newInstance(IotHubConnectionString.class,
+                                            new Class[] {String.class, String.class, String.class, String.class},
+                                            "test.iothubhostname",
+                                            "test-deviceid",
+                                            "test-devicekey",
+                                            null);
+
+        DeviceClientConfig config = new DeviceClientConfig(iotHubConnectionString);
+        assertEquals(0, config.getFileUploadBlockSize());
+        config.setFileUploadBlockSize(1024);
+        assertEquals(1024, config.getFileUploadBlockSize());
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_21_081: [If the provided size is negative, the function shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setFileUploadBlockSizeNegativeThrows() throws URISyntaxException, IOException
+    {
+        final IotHubConnectionString iotHubConnectionString =
+                Deencapsulation.newInstance(IotHubConnectionString.class,
+                                            new Class[] {String.class, String.class, String.class, String.class},
+                                            "test.iothubhostname",
+                                            "test-deviceid",
+                                            "test-devicekey",
+                                            null);
+
+        DeviceClientConfig config = new DeviceClientConfig(iotHubConnectionString);
+        config.setFileUploadBlockSize(-1);
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_21_083: [The function shall return the saved transport metrics.]
+    //Tests_SRS_DEVICECLIENTCONFIG_21_085: [The function shall save the transport metrics.]
+    @Test
+    public void setTransportMetricsSets(@Mocked final TransportMetrics mockedTransportMetrics) throws URISyntaxException, IOException
+    {
+        final IotHubConnectionString iotHubConnectionString =
+                Deencapsulation.newInstance(IotHubConnectionString.class,
+                                            new Class[] {String.class, String.class, String.class, String.class},
+                                            "test.iothubhostname",
+                                            "test-deviceid",
+                                            "test-devicekey",
+                                            null);
+
+        DeviceClientConfig config = new DeviceClientConfig(iotHubConnectionString);
+        assertEquals(NoopTransportMetrics.INSTANCE, config.getTransportMetrics());
+        config.setTransportMetrics(mockedTransportMetrics);
+        assertEquals(mockedTransportMetrics, config.getTransportMetrics());
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_21_084: [If the provided metrics is null, the function shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setTransportMetricsNullThrows() throws URISyntaxException, IOException
+    {
+        final IotHubConnectionString iotHubConnectionString =
+                Deencapsulation.newInstance(IotHubConnectionString.class,
+                                            new Class[] {String.class, String.class, String.class, String.class},
+                                            "test.iothubhostname",
+                                            "test-deviceid",
+                                            "test-devicekey",
+                                            null);
+
+        DeviceClientConfig config = new DeviceClientConfig(iotHubConnectionString);
+        config.setTransportMetrics(null);
+    }
+
     //Tests_SRS_DEVICECLIENTCONFIG_25_037: [The function shall return the true if websocket is enabled, false otherwise.]
     @Test
     public void getWebsocketEnabledGets() throws URISyntaxException, IOException
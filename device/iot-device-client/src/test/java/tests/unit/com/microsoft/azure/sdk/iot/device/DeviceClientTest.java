@@ -5,7 +5,10 @@ package tests.unit.com.microsoft.azure.sdk.iot.device;
 
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.*;
+import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthentication;
+import com.microsoft.azure.sdk.iot.device.auth.IotHubX509Authentication;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUpload;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetrics;
 import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
@@ -15,6 +18,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -1530,6 +1534,246 @@ public class DeviceClientTest
         client.setOption("SetSendInterval", "thisIsNotALong");
     }
 
+    // Tests_SRS_DEVICECLIENT_21_060: ["SetFileUploadBlockSize" - size in bytes of the blocks of a file upload.]
+    @Test
+    public void setOptionFileUploadBlockSizeSucceeds()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        deviceClientInstanceExpectation(connString, protocol);
+        DeviceClient client = new DeviceClient(connString, protocol);
+        final int value = 1024 * 1024;
+
+        // act
+        client.setOption("SetFileUploadBlockSize", value);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockConfig.setFileUploadBlockSize(value);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_DEVICECLIENT_21_061: ["SetFileUploadBlockSize" needs to have value type integer, between 0 and 4 MB.]
+    @Test(expected = IllegalArgumentException.class)
+    public void setOptionFileUploadBlockSizeTooBigFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        deviceClientInstanceExpectation(connString, protocol);
+        DeviceClient client = new DeviceClient(connString, protocol);
+
+        // act
+        client.setOption("SetFileUploadBlockSize", 5 * 1024 * 1024);
+    }
+
+    // Tests_SRS_DEVICECLIENT_21_062: ["SetTransportMetrics" - metrics of the queues, latency, and reconnects of the transport.]
+    @Test
+    public void setOptionTransportMetricsSucceeds(@Mocked final TransportMetrics mockedTransportMetrics)
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        deviceClientInstanceExpectation(connString, protocol);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        DeviceClient client = new DeviceClient(connString, protocol);
+
+        // act
+        client.setOption("SetTransportMetrics", mockedTransportMetrics);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockConfig.setTransportMetrics(mockedTransportMetrics);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_DEVICECLIENT_21_063: ["SetTransportMetrics" needs to have value type TransportMetrics, and is only available when the transport is closed.]
+    @Test(expected = IllegalArgumentException.class)
+    public void setOptionTransportMetricsWithWrongTypeFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        deviceClientInstanceExpectation(connString, protocol);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        DeviceClient client = new DeviceClient(connString, protocol);
+
+        // act
+        client.setOption("SetTransportMetrics", "thisIsNotTransportMetrics");
+    }
+
+    // Tests_SRS_DEVICECLIENT_21_063: ["SetTransportMetrics" needs to have value type TransportMetrics, and is only available when the transport is closed.]
+    @Test(expected = IllegalStateException.class)
+    public void setOptionTransportMetricsWhenOpenFails(@Mocked final TransportMetrics mockedTransportMetrics)
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.HTTPS;
+        deviceClientInstanceExpectation(connString, protocol);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = true;
+            }
+        };
+        DeviceClient client = new DeviceClient(connString, protocol);
+
+        // act
+        client.setOption("SetTransportMetrics", mockedTransportMetrics);
+    }
+
+    // Tests_SRS_DEVICECLIENT_21_064: ["SetTrustedCertificatePath" - path to the certificate to verify the IotHub, for all protocols.]
+    @Test
+    public void setOptionTrustedCertificatePathSasTokenSucceeds(@Mocked final IotHubSasTokenAuthentication mockedSasTokenAuthentication)
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        final String certificatePath = "/path/to/trusted.pem";
+        deviceClientInstanceExpectation(connString, protocol);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = false;
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                mockConfig.getSasTokenAuthentication();
+                result = mockedSasTokenAuthentication;
+            }
+        };
+        DeviceClient client = new DeviceClient(connString, protocol);
+
+        // act
+        client.setOption("SetTrustedCertificatePath", certificatePath);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockedSasTokenAuthentication.setPathToIotHubTrustedCert(certificatePath);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_DEVICECLIENT_21_064: ["SetTrustedCertificatePath" - path to the certificate to verify the IotHub, for all protocols.]
+    @Test
+    public void setOptionTrustedCertificatePathX509Succeeds(@Mocked final IotHubX509Authentication mockedX509Authentication)
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.HTTPS;
+        final String certificatePath = "/path/to/trusted.pem";
+        deviceClientInstanceExpectation(connString, protocol);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = false;
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.X509_CERTIFICATE;
+                mockConfig.getX509Authentication();
+                result = mockedX509Authentication;
+            }
+        };
+        DeviceClient client = new DeviceClient(connString, protocol);
+
+        // act
+        client.setOption("SetTrustedCertificatePath", certificatePath);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockedX509Authentication.setPathToIotHubTrustedCert(certificatePath);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_DEVICECLIENT_21_065: ["SetTrustedCertificatePath" needs to have value type String, and is only available when the transport is closed.]
+    @Test(expected = IllegalArgumentException.class)
+    public void setOptionTrustedCertificatePathWithWrongTypeFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        deviceClientInstanceExpectation(connString, protocol);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        DeviceClient client = new DeviceClient(connString, protocol);
+
+        // act
+        client.setOption("SetTrustedCertificatePath", 42);
+    }
+
+    // Tests_SRS_DEVICECLIENT_21_065: ["SetTrustedCertificatePath" needs to have value type String, and is only available when the transport is closed.]
+    @Test(expected = IllegalStateException.class)
+    public void setOptionTrustedCertificatePathWhenOpenFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        deviceClientInstanceExpectation(connString, protocol);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = true;
+            }
+        };
+        DeviceClient client = new DeviceClient(connString, protocol);
+
+        // act
+        client.setOption("SetTrustedCertificatePath", "/path/to/trusted.pem");
+    }
+
     //Tests_SRS_DEVICECLIENT_25_022: [**"SetSASTokenExpiryTime" should have value type long.]
     @Test(expected = IllegalArgumentException.class)
     public void setOptionSASTokenExpiryTimeWithStringInsteadOfLongFails()
@@ -1947,6 +2191,59 @@ public class DeviceClientTest
         };
     }
 
+    /* Tests_SRS_DEVICECLIENT_21_059: [The uploadToBlobAsync shall start the file upload process, by calling uploadToBlobAsync on the FileUpload class.] */
+    @Test
+    public void startFileChannelUploadSucceeds(@Mocked final FileUpload mockedFileUpload,
+                                               @Mocked final FileChannel mockFileChannel,
+                                               @Mocked final IotHubEventCallback mockedStatusCB,
+                                               @Mocked final PropertyCallBack mockedPropertyCB) throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        final String destinationBlobName = "valid/blob/name.txt";
+
+        deviceClientInstanceExpectation(connString, protocol);
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.newInstance(FileUpload.class, mockConfig);
+                result = mockedFileUpload;
+            }
+        };
+        DeviceClient client = new DeviceClient(connString, protocol);
+
+        // act
+        client.uploadToBlobAsync(destinationBlobName, mockFileChannel, mockedStatusCB, mockedPropertyCB);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(FileUpload.class, mockConfig);
+                times = 1;
+                mockedFileUpload.uploadToBlobAsync(destinationBlobName, mockFileChannel, mockedStatusCB, mockedPropertyCB);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_DEVICECLIENT_21_056: [If the `fileChannel` is null, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void startFileChannelUploadNullFileChannelThrows(@Mocked final IotHubEventCallback mockedStatusCB) throws IOException, URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;DeviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        deviceClientInstanceExpectation(connString, protocol);
+        DeviceClient client = new DeviceClient(connString, protocol);
+
+        // act
+        client.uploadToBlobAsync("valid/blob/name.txt", (FileChannel)null, mockedStatusCB, null);
+    }
+
     /* Tests_SRS_DEVICECLIENT_21_054: [If the fileUpload is not null, the closeNow shall call closeNow on fileUpload.] */
     @Test
     public void closeNowClosesFileUploadSucceeds(@Mocked final FileUpload mockedFileUpload,
@@ -4,6 +4,7 @@
 package tests.unit.com.microsoft.azure.sdk.iot.device;
 
 import com.microsoft.azure.sdk.iot.device.*;
+import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthentication;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubReceiveTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
@@ -485,6 +486,37 @@ public class DeviceIOTest
         };
     }
 
+    /* Tests_SRS_DEVICE_IO_21_043: [If the client uses SAS token authentication, the close shall cancel the background renewal of the sas token.] */
+    @Test
+    public void closeCancelsSasTokenRenewalSuccess(@Mocked final IotHubSasTokenAuthentication mockSasTokenAuthentication)
+            throws URISyntaxException, IOException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIOAmqp();
+        openDeviceIO(deviceIO, mockAmqpsTransport, mockExecutors, mockScheduler);
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                mockConfig.getSasTokenAuthentication();
+                result = mockSasTokenAuthentication;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(deviceIO, "close");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockSasTokenAuthentication.cancelRenewal();
+                times = 1;
+            }
+        };
+    }
+
     /* Tests_SRS_DEVICE_IO_21_020: [If the client is already closed, the close shall do nothing.] */
     @Test
     public void closeDoesNothingOnUnopenedClientSuccess()
@@ -82,6 +82,30 @@ public class MessagePropertyTest
         new MessageProperty(invalidName, value);
     }
 
+    // Tests_SRS_MESSAGEPROPERTY_11_002: [If the name contains a character that is not in US-ASCII the function shall throw an IllegalArgumentException.]
+    // Tests_SRS_MESSAGEPROPERTY_11_003: [If the value contains a character that is not in US-ASCII, the function shall throw an IllegalArgumentException.]
+    @Test
+    public void constructorAcceptsAllUsAsciiCharacters()
+    {
+        StringBuilder allAscii = new StringBuilder();
+        for (char c = 0; c <= 0x7F; c++)
+        {
+            allAscii.append(c);
+        }
+
+        MessageProperty property = new MessageProperty(allAscii.toString(), allAscii.toString());
+
+        assertThat(property.getName(), is(allAscii.toString()));
+        assertThat(property.getValue(), is(allAscii.toString()));
+    }
+
+    // Tests_SRS_MESSAGEPROPERTY_11_003: [If the value contains a character that is not in US-ASCII, the function shall throw an IllegalArgumentException.]
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsFirstCharacterAfterUsAscii()
+    {
+        new MessageProperty("test-name", "test-value\u0080");
+    }
+
     // Tests_SRS_MESSAGEPROPERTY_11_008: [If the name is a reserved property name, the function shall throw an IllegalArgumentException.]
     @Test(expected = IllegalArgumentException.class)
     public void constructorRejectsReservedPropertyName()
@@ -0,0 +1,205 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.auth;
+
+import com.microsoft.azure.sdk.iot.device.auth.IotHubSSLContext;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for IotHubSSLContextCache.
+ */
+public class IotHubSSLContextCacheTest
+{
+    private static final String CACHE_CLASS_NAME = "com.microsoft.azure.sdk.iot.device.auth.IotHubSSLContextCache";
+    private static final String PUBLIC_KEY = "someCert";
+    private static final String PRIVATE_KEY = "someKey";
+    private static final String TRUSTED_CERT = "someTrustedCert";
+    private static final Class[] GET_WITH_KEYS_ARGS = new Class[] {String.class, String.class, String.class, boolean.class};
+
+    @Mocked IotHubSSLContext mockIotHubSSLContext;
+    @Mocked SSLContext mockSSLContext;
+    @Mocked SSLSessionContext mockSSLSessionContext;
+
+    static Class<?> cacheClass() throws ClassNotFoundException
+    {
+        return Class.forName(CACHE_CLASS_NAME);
+    }
+
+    /**
+     * Remove the contexts cached by other tests. The cache is shared by the whole process.
+     */
+    static void clearCache() throws ClassNotFoundException
+    {
+        Deencapsulation.invoke(cacheClass(), "clear");
+    }
+
+    @Before
+    public void setUp() throws ClassNotFoundException
+    {
+        clearCache();
+    }
+
+    /* Tests_SRS_IOTHUBSSLCONTEXTCACHE_21_001: [The getDefault shall return the shared default IotHubSSLContext, creating it if it does not exist.] */
+    @Test
+    public void getDefaultCreatesContextOnce() throws ClassNotFoundException
+    {
+        // act
+        IotHubSSLContext first = Deencapsulation.invoke(cacheClass(), "getDefault");
+        IotHubSSLContext second = Deencapsulation.invoke(cacheClass(), "getDefault");
+
+        // assert
+        assertEquals(first, second);
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_IOTHUBSSLCONTEXTCACHE_21_002: [The getWithTrustedCert shall return the shared IotHubSSLContext for the trusted cert, creating it if it does not exist.] */
+    @Test
+    public void getWithTrustedCertCreatesContextOncePerCert() throws ClassNotFoundException
+    {
+        // act
+        Deencapsulation.invoke(cacheClass(), "getWithTrustedCert", TRUSTED_CERT, false);
+        Deencapsulation.invoke(cacheClass(), "getWithTrustedCert", TRUSTED_CERT, false);
+        Deencapsulation.invoke(cacheClass(), "getWithTrustedCert", "otherTrustedCert", false);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, boolean.class}, TRUSTED_CERT, false);
+                times = 1;
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, boolean.class}, "otherTrustedCert", false);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_IOTHUBSSLCONTEXTCACHE_21_003: [The getWithKeys shall return the shared IotHubSSLContext for the key pair and trusted cert, creating it if it does not exist.] */
+    @Test
+    public void getWithKeysCreatesContextOncePerKeyPair() throws ClassNotFoundException
+    {
+        // act
+        Deencapsulation.invoke(cacheClass(), "getWithKeys", GET_WITH_KEYS_ARGS, PUBLIC_KEY, PRIVATE_KEY, null, false);
+        Deencapsulation.invoke(cacheClass(), "getWithKeys", GET_WITH_KEYS_ARGS, PUBLIC_KEY, PRIVATE_KEY, null, false);
+        Deencapsulation.invoke(cacheClass(), "getWithKeys", GET_WITH_KEYS_ARGS, PUBLIC_KEY, PRIVATE_KEY, TRUSTED_CERT, false);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class}, PUBLIC_KEY, PRIVATE_KEY);
+                times = 1;
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class, String.class, boolean.class}, PUBLIC_KEY, PRIVATE_KEY, TRUSTED_CERT, false);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_IOTHUBSSLCONTEXTCACHE_21_004: [The clear shall remove all cached IotHubSSLContext.] */
+    @Test
+    public void clearRemovesCachedContexts() throws ClassNotFoundException
+    {
+        // arrange
+        IotHubSSLContext first = Deencapsulation.invoke(cacheClass(), "getDefault");
+
+        // act
+        clearCache();
+
+        // assert
+        IotHubSSLContext second = Deencapsulation.invoke(cacheClass(), "getDefault");
+        assertNotSame(first, second);
+    }
+
+    /* Tests_SRS_IOTHUBSSLCONTEXTCACHE_21_006: [The cache shall keep at most MAX_CACHED_CONTEXTS contexts, and remove the least recently used one when it is full.] */
+    @Test
+    public void fullCacheRemovesLeastRecentlyUsedContext() throws ClassNotFoundException
+    {
+        // arrange
+        int maxCachedContexts = Deencapsulation.getField(cacheClass(), "MAX_CACHED_CONTEXTS");
+        for (int i = 0; i < maxCachedContexts; i++)
+        {
+            Deencapsulation.invoke(cacheClass(), "getWithTrustedCert", "trustedCert" + i, false);
+        }
+        Deencapsulation.invoke(cacheClass(), "getWithTrustedCert", "trustedCert0", false);
+
+        // act
+        Deencapsulation.invoke(cacheClass(), "getWithTrustedCert", "newTrustedCert", false);
+
+        // assert
+        Deencapsulation.invoke(cacheClass(), "getWithTrustedCert", "trustedCert0", false);
+        Deencapsulation.invoke(cacheClass(), "getWithTrustedCert", "trustedCert1", false);
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, boolean.class}, "trustedCert0", false);
+                times = 1;
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, boolean.class}, "trustedCert1", false);
+                times = 2;
+            }
+        };
+    }
+
+    /* Tests_SRS_IOTHUBSSLCONTEXTCACHE_21_007: [The invalidate shall remove the provided IotHubSSLContext from the cache, if it is cached.] */
+    @Test
+    public void invalidateRemovesOnlyTheProvidedContext() throws ClassNotFoundException
+    {
+        // arrange
+        IotHubSSLContext keysContext = Deencapsulation.invoke(cacheClass(), "getWithKeys", GET_WITH_KEYS_ARGS, PUBLIC_KEY, PRIVATE_KEY, null, false);
+        IotHubSSLContext defaultContext = Deencapsulation.invoke(cacheClass(), "getDefault");
+
+        // act
+        Deencapsulation.invoke(cacheClass(), "invalidate", keysContext);
+
+        // assert
+        assertNotSame(keysContext, Deencapsulation.invoke(cacheClass(), "getWithKeys", GET_WITH_KEYS_ARGS, PUBLIC_KEY, PRIVATE_KEY, null, false));
+        assertSame(defaultContext, Deencapsulation.invoke(cacheClass(), "getDefault"));
+    }
+
+    /* Tests_SRS_IOTHUBSSLCONTEXTCACHE_21_005: [The cache shall enable the TLS session resumption on the client session context of each created SSLContext.] */
+    @Test
+    public void createdContextEnablesSessionResumption() throws ClassNotFoundException
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockIotHubSSLContext, "getSSlContext");
+                result = mockSSLContext;
+                mockSSLContext.getClientSessionContext();
+                result = mockSSLSessionContext;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(cacheClass(), "getDefault");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockSSLSessionContext.setSessionCacheSize(anyInt);
+                times = 1;
+                mockSSLSessionContext.setSessionTimeout(anyInt);
+                times = 1;
+            }
+        };
+    }
+}
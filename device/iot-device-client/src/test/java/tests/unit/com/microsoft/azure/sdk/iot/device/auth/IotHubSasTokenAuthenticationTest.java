@@ -8,7 +8,9 @@ package tests.unit.com.microsoft.azure.sdk.iot.device.auth;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSSLContext;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasToken;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthentication;
+import com.microsoft.azure.sdk.iot.device.auth.SasTokenSigner;
 import mockit.*;
+import org.junit.Before;
 import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
@@ -17,6 +19,8 @@ import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.*;
@@ -28,6 +32,12 @@ import static org.junit.Assert.*;
  */
 public class IotHubSasTokenAuthenticationTest
 {
+    @Before
+    public void setUp() throws ClassNotFoundException
+    {
+        IotHubSSLContextCacheTest.clearCache();
+    }
+
     @Mocked
     SSLContext mockSSLContext;
 
@@ -37,6 +47,9 @@ public class IotHubSasTokenAuthenticationTest
     @Mocked
     IotHubSasToken mockSasToken;
 
+    @Mocked
+    SasTokenSigner mockSasTokenSigner;
+
     private static String expectedDeviceId = "deviceId";
     private static String expectedHostname = "hostname";
     private static String expectedDeviceKey = "deviceKey";
@@ -44,27 +57,27 @@ public class IotHubSasTokenAuthenticationTest
     private static long expectedExpiryTime = 3600;
 
     //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_004: [If the saved sas token has expired and there is a device key present, the saved sas token shall be renewed.]
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_21_033: [The renewal shall create the new sas token with the saved SasTokenSigner, valid for tokenValidSecs.]
     @Test
     public void getRenewedSasTokenAutoRenews() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException
     {
         //arrange
-        new Expectations()
+        new NonStrictExpectations()
         {
             {
-                Deencapsulation.newInstance(IotHubSasToken.class, new Class[] {String.class, String.class, String.class, String.class, long.class}, expectedHostname, expectedDeviceId, expectedDeviceKey, expectedSasToken, expectedExpiryTime);
-                result = mockSasToken;
                 Deencapsulation.invoke(mockSasToken, "isExpired");
                 result = true;
             }
         };
 
-        IotHubSasTokenAuthentication sasAuth = new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, expectedDeviceKey, expectedSasToken);
+        IotHubSasTokenAuthentication sasAuth = new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, expectedDeviceKey, null);
+        IotHubSasToken savedSasToken = Deencapsulation.getField(sasAuth, "sasToken");
 
         //act
-        String actualSasToken = sasAuth.getRenewedSasToken();
+        sasAuth.getRenewedSasToken();
 
         //assert
-        assertNotEquals(mockSasToken.toString(), actualSasToken);
+        assertNotSame(savedSasToken, Deencapsulation.getField(sasAuth, "sasToken"));
     }
 
     //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_005: [This function shall return the saved sas token.]
@@ -72,23 +85,147 @@ public class IotHubSasTokenAuthenticationTest
     public void getSasTokenReturnsSavedValue() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException
     {
         //arrange
-        new Expectations()
+        new NonStrictExpectations()
         {
             {
-                Deencapsulation.newInstance(IotHubSasToken.class, new Class[] {String.class, String.class, String.class, String.class, long.class}, expectedHostname, expectedDeviceId, expectedDeviceKey, expectedSasToken, expectedExpiryTime);
-                result = mockSasToken;
                 Deencapsulation.invoke(mockSasToken, "isExpired");
                 result = false;
+                mockSasToken.toString();
+                result = expectedSasToken;
             }
         };
 
-        IotHubSasTokenAuthentication sasAuth = new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, expectedDeviceKey, expectedSasToken);
+        IotHubSasTokenAuthentication sasAuth = new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, expectedDeviceKey, null);
+        IotHubSasToken savedSasToken = Deencapsulation.getField(sasAuth, "sasToken");
 
         //act
         String actualSasToken = sasAuth.getRenewedSasToken();
 
         //assert
-        assertEquals(mockSasToken.toString(), actualSasToken);
+        assertEquals(expectedSasToken, actualSasToken);
+        assertSame(savedSasToken, Deencapsulation.getField(sasAuth, "sasToken"));
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_21_032: [If a device key is provided, this constructor shall create a SasTokenSigner for it and use it to generate a valid sas token.]
+    @Test
+    public void constructorWithDeviceKeyCreatesSignerAndToken()
+    {
+        //act
+        IotHubSasTokenAuthentication sasAuth = new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, expectedDeviceKey, null);
+
+        //assert
+        assertNotNull(Deencapsulation.getField(sasAuth, "signer"));
+        assertNotNull(Deencapsulation.getField(sasAuth, "sasToken"));
+        new Verifications()
+        {
+            {
+                new SasTokenSigner(expectedDeviceKey);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_002: [This constructor shall save the provided connection string.]
+    @Test
+    public void constructorWithSasTokenSavesToken()
+    {
+        //act
+        new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, null, expectedSasToken);
+
+        //assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSasToken.class, new Class[] {String.class, String.class, String.class, String.class, long.class}, expectedHostname, expectedDeviceId, null, expectedSasToken, expectedExpiryTime);
+                times = 1;
+                new SasTokenSigner(anyString);
+                times = 0;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_21_034: [The renewal shall schedule the next renewal in background once TOKEN_RENEWAL_PERCENTAGE of the token lifetime has elapsed.]
+    @Test
+    public void constructorSchedulesBackgroundRenewal()
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockSasToken, "getExpiryTime");
+                result = (System.currentTimeMillis() / 1000) + expectedExpiryTime;
+            }
+        };
+
+        //act
+        IotHubSasTokenAuthentication sasAuth = new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, expectedDeviceKey, null);
+
+        //assert
+        ScheduledFuture<?> scheduledRenewal = Deencapsulation.getField(sasAuth, "scheduledRenewal");
+        assertNotNull(scheduledRenewal);
+        assertTrue(scheduledRenewal.getDelay(TimeUnit.SECONDS) < expectedExpiryTime);
+        scheduledRenewal.cancel(false);
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_21_034: [The renewal shall schedule the next renewal in background once TOKEN_RENEWAL_PERCENTAGE of the token lifetime has elapsed.]
+    @Test
+    public void constructorWithSasTokenDoesNotScheduleRenewal()
+    {
+        //act
+        IotHubSasTokenAuthentication sasAuth = new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, null, expectedSasToken);
+
+        //assert
+        assertNull(Deencapsulation.getField(sasAuth, "scheduledRenewal"));
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_21_036: [This function shall cancel the scheduled background renewal of the sas token.]
+    @Test
+    public void cancelRenewalCancelsScheduledRenewal()
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockSasToken, "getExpiryTime");
+                result = (System.currentTimeMillis() / 1000) + expectedExpiryTime;
+            }
+        };
+        IotHubSasTokenAuthentication sasAuth = new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, expectedDeviceKey, null);
+        ScheduledFuture<?> scheduledRenewal = Deencapsulation.getField(sasAuth, "scheduledRenewal");
+
+        //act
+        sasAuth.cancelRenewal();
+
+        //assert
+        assertTrue(scheduledRenewal.isCancelled());
+        assertNull(Deencapsulation.getField(sasAuth, "scheduledRenewal"));
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_21_037: [If the background renewal was cancelled and there is a device key present, the saved sas token shall be renewed, and the background renewal scheduled again.]
+    @Test
+    public void getRenewedSasTokenSchedulesRenewalAgainAfterCancel()
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockSasToken, "getExpiryTime");
+                result = (System.currentTimeMillis() / 1000) + expectedExpiryTime;
+                Deencapsulation.invoke(mockSasToken, "isExpired");
+                result = false;
+            }
+        };
+        IotHubSasTokenAuthentication sasAuth = new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, expectedDeviceKey, null);
+        sasAuth.cancelRenewal();
+
+        //act
+        sasAuth.getRenewedSasToken();
+
+        //assert
+        ScheduledFuture<?> scheduledRenewal = Deencapsulation.getField(sasAuth, "scheduledRenewal");
+        assertNotNull(scheduledRenewal);
+        assertFalse((boolean) Deencapsulation.getField(sasAuth, "renewalCancelled"));
+        scheduledRenewal.cancel(false);
     }
 
     //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_008: [This function shall return the generated IotHubSSLContext.]
@@ -122,6 +259,21 @@ public class IotHubSasTokenAuthenticationTest
         assertEquals(newTokenValidSecs, actualTokenValidSecs);
     }
 
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_21_035: [If there is a device key, this function shall renew the saved sas token with the new tokenValidSecs.]
+    @Test
+    public void setTokenValidSecsRenewsToken()
+    {
+        //arrange
+        IotHubSasTokenAuthentication sasAuth = new IotHubSasTokenAuthentication(expectedHostname, expectedDeviceId, expectedDeviceKey, null);
+        IotHubSasToken savedSasToken = Deencapsulation.getField(sasAuth, "sasToken");
+
+        //act
+        sasAuth.setTokenValidSecs(5000L);
+
+        //assert
+        assertNotSame(savedSasToken, Deencapsulation.getField(sasAuth, "sasToken"));
+    }
+
     //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_017: [If the saved sas token has expired and cannot be renewed, this function shall return true.]
     @Test
     public void isRenewalNecessaryReturnsTrueWhenTokenHasExpiredAndNoDeviceKeyIsPresent() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException
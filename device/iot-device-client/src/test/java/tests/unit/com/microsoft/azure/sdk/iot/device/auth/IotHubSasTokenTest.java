@@ -5,15 +5,18 @@ package tests.unit.com.microsoft.azure.sdk.iot.device.auth;
 
 import com.microsoft.azure.sdk.iot.device.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasToken;
+import com.microsoft.azure.sdk.iot.device.auth.SasTokenSigner;
 import com.microsoft.azure.sdk.iot.device.auth.Signature;
 import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
+import mockit.Verifications;
 import org.junit.Test;
 
 import java.net.URISyntaxException;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -465,4 +468,40 @@ public class IotHubSasTokenTest
                 iotHubConnectionString.getSharedAccessToken(),
                 0);
     }
+
+    // Tests_SRS_IOTHUBSASTOKEN_21_011: [If the signer is null, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorWithNullSignerThrows()
+    {
+        Deencapsulation.newInstance(IotHubSasToken.class, new Class[] {String.class, String.class, SasTokenSigner.class, long.class},
+                "iothub.sample-iothub-hostname.net", "sample-device-ID", null, 100L);
+    }
+
+    // Tests_SRS_IOTHUBSASTOKEN_21_012: [The constructor shall compute the signature with the provided signer, without decoding the device key again.]
+    // Tests_SRS_IOTHUBSASTOKEN_21_013: [The getExpiryTime shall return the expiry time of the token in seconds.]
+    @Test
+    public void constructorWithSignerBuildsToken(@Mocked final SasTokenSigner mockSigner)
+    {
+        final long expiryTime = 100;
+        new NonStrictExpectations()
+        {
+            {
+                mockSigner.sign("iothub.sample-iothub-hostname.net/devices/sample-device-ID", expiryTime);
+                result = "sample-sig";
+            }
+        };
+
+        IotHubSasToken token = Deencapsulation.newInstance(IotHubSasToken.class, new Class[] {String.class, String.class, SasTokenSigner.class, long.class},
+                "iothub.sample-iothub-hostname.net", "sample-device-ID", mockSigner, expiryTime);
+
+        assertEquals("SharedAccessSignature sig=sample-sig&se=100&sr=iothub.sample-iothub-hostname.net/devices/sample-device-ID", token.toString());
+        assertEquals(expiryTime, (long)Deencapsulation.invoke(token, "getExpiryTime"));
+        new Verifications()
+        {
+            {
+                new Signature(anyString, anyLong, anyString);
+                times = 0;
+            }
+        };
+    }
 }
@@ -12,6 +12,7 @@ import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import mockit.Verifications;
+import org.junit.Before;
 import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
@@ -33,6 +34,12 @@ import static org.junit.Assert.assertTrue;
  */
 public class IotHubX509AuthenticationTests
 {
+    @Before
+    public void setUp() throws ClassNotFoundException
+    {
+        IotHubSSLContextCacheTest.clearCache();
+    }
+
     @Mocked
     IotHubSSLContext mockIotHubSSLContext;
 
@@ -148,6 +155,30 @@ public class IotHubX509AuthenticationTests
         assertEquals(mockSSLcontext, actualSSLContext);
     }
 
+    //Tests_SRS_IOTHUBX509AUTHENTICATION_21_032: [If the saved IotHubSSLContext needs an update, this function shall invalidate it in the shared cache, so the cache does not keep the previous material with the private key.]
+    @Test
+    public void getSSLContextInvalidatesPreviousContext() throws CertificateException, UnrecoverableKeyException, NoSuchAlgorithmException, IOException, KeyManagementException, KeyStoreException
+    {
+        //arrange
+        commonExpectations();
+        IotHubX509Authentication x509Auth = new IotHubX509Authentication(publicKeyCertificate, false, privateKey, false);
+        x509Auth.getSSLContext();
+        x509Auth.setIotHubTrustedCert("someTrustedCert");
+
+        //act
+        x509Auth.getSSLContext();
+
+        //assert
+        new IotHubX509Authentication(publicKeyCertificate, false, privateKey, false).getSSLContext();
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class}, publicKeyCertificate, privateKey);
+                times = 2;
+            }
+        };
+    }
+
     // Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert as the trusted cert.]
     @Test
     public void generateSSLContextUsesSavedTrustedCert() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, UnrecoverableKeyException
@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.auth;
+
+import com.microsoft.azure.sdk.iot.device.auth.SasTokenSigner;
+import com.microsoft.azure.sdk.iot.device.auth.Signature;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for SasTokenSigner.
+ */
+public class SasTokenSignerTest
+{
+    private static final String DEVICE_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+    private static final String RESOURCE_URI = "iothub.sample-iothub-hostname.net/devices/sample-device-ID";
+    private static final long EXPIRY_TIME = 1474065852L;
+
+    // Tests_SRS_SASTOKENSIGNER_21_001: [If the deviceKey is null or empty, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullKeyThrows()
+    {
+        new SasTokenSigner(null);
+    }
+
+    // Tests_SRS_SASTOKENSIGNER_21_001: [If the deviceKey is null or empty, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorEmptyKeyThrows()
+    {
+        new SasTokenSigner("");
+    }
+
+    // Tests_SRS_SASTOKENSIGNER_21_004: [If the resourceUri is null or empty, the sign shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void signNullResourceUriThrows()
+    {
+        new SasTokenSigner(DEVICE_KEY).sign(null, EXPIRY_TIME);
+    }
+
+    // Tests_SRS_SASTOKENSIGNER_21_002: [The constructor shall decode the deviceKey from Base64 only once, and create the HmacSHA256 key with it.]
+    // Tests_SRS_SASTOKENSIGNER_21_005: [The sign shall compute the HmacSHA256 of `<resourceUri>\n<expiryTime>` with the Mac of the current thread.]
+    // Tests_SRS_SASTOKENSIGNER_21_006: [The sign shall return the Base64 and url encoded signature.]
+    @Test
+    public void signMatchesSignature()
+    {
+        SasTokenSigner signer = new SasTokenSigner(DEVICE_KEY);
+
+        String expectedSignature = new Signature(RESOURCE_URI, EXPIRY_TIME, DEVICE_KEY).toString();
+
+        assertEquals(expectedSignature, signer.sign(RESOURCE_URI, EXPIRY_TIME));
+        assertEquals(expectedSignature, signer.sign(RESOURCE_URI, EXPIRY_TIME));
+    }
+
+    // Tests_SRS_SASTOKENSIGNER_21_005: [The sign shall compute the HmacSHA256 of `<resourceUri>\n<expiryTime>` with the Mac of the current thread.]
+    @Test
+    public void signIsThreadSafe() throws Exception
+    {
+        final SasTokenSigner signer = new SasTokenSigner(DEVICE_KEY);
+        final String expectedSignature = new Signature(RESOURCE_URI, EXPIRY_TIME, DEVICE_KEY).toString();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            Future<?>[] results = new Future<?>[16];
+            for (int i = 0; i < results.length; i++)
+            {
+                results[i] = executor.submit(new Callable<String>()
+                {
+                    @Override
+                    public String call()
+                    {
+                        return signer.sign(RESOURCE_URI, EXPIRY_TIME);
+                    }
+                });
+            }
+
+            for (Future<?> result : results)
+            {
+                assertEquals(expectedSignature, result.get());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
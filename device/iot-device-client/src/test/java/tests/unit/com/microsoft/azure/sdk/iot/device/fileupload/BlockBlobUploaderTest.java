@@ -0,0 +1,409 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.fileupload;
+
+import com.microsoft.azure.sdk.iot.deps.util.Base64;
+import com.microsoft.azure.sdk.iot.device.fileupload.BlockBlobUploader;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.BlockEntry;
+import com.microsoft.azure.storage.blob.BlockListingFilter;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for block blob uploader class.
+ */
+public class BlockBlobUploaderTest
+{
+    @Mocked
+    private CloudBlockBlob mockCloudBlockBlob;
+
+    private static final int VALID_BLOCK_SIZE = 10;
+    private static final byte[] VALID_CONTENT = new byte[25];
+    private static final byte[] OTHER_CONTENT = new byte[25];
+    static
+    {
+        Arrays.fill(OTHER_CONTENT, (byte)1);
+    }
+
+    private static String blockId(int index, byte[] content, int blockSize) throws Exception
+    {
+        int offset = index * blockSize;
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+        digest.update(content, offset, Math.min(blockSize, content.length - offset));
+        StringBuilder id = new StringBuilder(String.format("%08d-", index));
+        for (byte b : digest.digest())
+        {
+            id.append(String.format("%02x", b & 0xFF));
+        }
+        return Base64.encodeBase64StringLocal(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BlockBlobUploader createUploader(CloudBlockBlob blob, int blockSize, int parallelism)
+    {
+        return Deencapsulation.newInstance(BlockBlobUploader.class,
+                new Class[] {CloudBlockBlob.class, int.class, int.class}, blob, blockSize, parallelism);
+    }
+
+    private void noStagedBlocksExpectations() throws StorageException
+    {
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.downloadBlockList(BlockListingFilter.UNCOMMITTED, null, null, null);
+                result = new ArrayList<BlockEntry>();
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_001: [If the `blob` is null, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullBlobThrows()
+    {
+        // act
+        createUploader(null, VALID_BLOCK_SIZE, 1);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_002: [If the `blockSize` is not between 1 and MAX_BLOCK_SIZE, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorZeroBlockSizeThrows()
+    {
+        // act
+        createUploader(mockCloudBlockBlob, 0, 1);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_002: [If the `blockSize` is not between 1 and MAX_BLOCK_SIZE, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorBlockSizeTooBigThrows()
+    {
+        // act
+        createUploader(mockCloudBlockBlob, BlockBlobUploader.MAX_BLOCK_SIZE + 1, 1);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_003: [If the `parallelism` is less than 1, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorZeroParallelismThrows()
+    {
+        // act
+        createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 0);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_005: [If the `inputStream` is null, or the `streamLength` is negative, the upload shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void uploadNullInputStreamThrows() throws Exception
+    {
+        // arrange
+        BlockBlobUploader uploader = createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 1);
+
+        // act
+        uploader.upload((InputStream)null, VALID_CONTENT.length);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_008: [The upload shall read each block from the `inputStream` and stage it in parallel, limited to `parallelism` blocks in memory.] */
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_009: [When all blocks are staged, the upload shall commit the block list in order.] */
+    @Test
+    public void uploadStreamStagesAndCommitsBlocksInOrder() throws Exception
+    {
+        // arrange
+        noStagedBlocksExpectations();
+        BlockBlobUploader uploader = createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 2);
+        final String firstBlockId = blockId(0, VALID_CONTENT, VALID_BLOCK_SIZE);
+        final String secondBlockId = blockId(1, VALID_CONTENT, VALID_BLOCK_SIZE);
+        final String thirdBlockId = blockId(2, VALID_CONTENT, VALID_BLOCK_SIZE);
+
+        // act
+        uploader.upload(new ByteArrayInputStream(VALID_CONTENT), VALID_CONTENT.length);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream)any, VALID_BLOCK_SIZE);
+                times = 2;
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream)any, 5);
+                times = 1;
+                List<BlockEntry> blockList;
+                mockCloudBlockBlob.commitBlockList(blockList = withCapture());
+                times = 1;
+                assertEquals(3, blockList.size());
+                assertEquals(firstBlockId, blockList.get(0).getId());
+                assertEquals(secondBlockId, blockList.get(1).getId());
+                assertEquals(thirdBlockId, blockList.get(2).getId());
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_006: [The upload shall get the list of uncommitted blocks already staged in the blob.] */
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_007: [If a block is already staged with the same block id and the expected size, the upload shall not stage it again.] */
+    @Test
+    public void uploadStreamResumesFromStagedBlocks() throws Exception
+    {
+        // arrange
+        final String stagedBlockId = blockId(0, VALID_CONTENT, VALID_BLOCK_SIZE);
+        final BlockEntry stagedBlock = new BlockEntry(stagedBlockId);
+        stagedBlock.setSize(VALID_BLOCK_SIZE);
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.downloadBlockList(BlockListingFilter.UNCOMMITTED, null, null, null);
+                result = new ArrayList<BlockEntry>() {{ add(stagedBlock); }};
+            }
+        };
+        BlockBlobUploader uploader = createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 1);
+
+        // act
+        uploader.upload(new ByteArrayInputStream(VALID_CONTENT), VALID_CONTENT.length);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(stagedBlockId, (InputStream)any, anyLong);
+                times = 0;
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream)any, anyLong);
+                times = 2;
+                mockCloudBlockBlob.commitBlockList((Iterable<BlockEntry>)any);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_016: [The block id shall be the Base64 of the block index and the MD5 of the block content, so the blocks staged by an upload of other content are never reused.] */
+    @Test
+    public void uploadStreamRestagesBlocksOfOtherContent() throws Exception
+    {
+        // arrange
+        final BlockEntry staleBlock = new BlockEntry(blockId(0, OTHER_CONTENT, VALID_BLOCK_SIZE));
+        staleBlock.setSize(VALID_BLOCK_SIZE);
+        final String expectedBlockId = blockId(0, VALID_CONTENT, VALID_BLOCK_SIZE);
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.downloadBlockList(BlockListingFilter.UNCOMMITTED, null, null, null);
+                result = new ArrayList<BlockEntry>() {{ add(staleBlock); }};
+            }
+        };
+        BlockBlobUploader uploader = createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 1);
+
+        // act
+        uploader.upload(new ByteArrayInputStream(VALID_CONTENT), VALID_CONTENT.length);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(expectedBlockId, (InputStream)any, VALID_BLOCK_SIZE);
+                times = 1;
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream)any, anyLong);
+                times = 3;
+                List<BlockEntry> blockList;
+                mockCloudBlockBlob.commitBlockList(blockList = withCapture());
+                times = 1;
+                assertEquals(expectedBlockId, blockList.get(0).getId());
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_015: [If the blob does not exist yet, the upload shall stage all blocks.] */
+    @Test
+    public void uploadStreamToNewBlobStagesAllBlocks() throws Exception
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.downloadBlockList(BlockListingFilter.UNCOMMITTED, null, null, null);
+                result = new StorageException("BlobNotFound", "The specified blob does not exist.", 404, null, null);
+            }
+        };
+        BlockBlobUploader uploader = createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 1);
+
+        // act
+        uploader.upload(new ByteArrayInputStream(VALID_CONTENT), VALID_CONTENT.length);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream)any, anyLong);
+                times = 3;
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_013: [If staging a block fails, the upload shall retry the same block up to 3 times before failing.] */
+    @Test
+    public void uploadStreamRetriesFailedBlock() throws Exception
+    {
+        // arrange
+        noStagedBlocksExpectations();
+        final String firstBlockId = blockId(0, VALID_CONTENT, VALID_BLOCK_SIZE);
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(firstBlockId, (InputStream)any, anyLong);
+                result = new IOException();
+                result = null;
+            }
+        };
+        BlockBlobUploader uploader = createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 1);
+
+        // act
+        uploader.upload(new ByteArrayInputStream(VALID_CONTENT), VALID_CONTENT.length);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(firstBlockId, (InputStream)any, anyLong);
+                times = 2;
+                mockCloudBlockBlob.commitBlockList((Iterable<BlockEntry>)any);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_014: [If a block cannot be staged, the upload shall throw the failure without committing the block list.] */
+    @Test
+    public void uploadStreamFailedBlockThrowsWithoutCommit() throws Exception
+    {
+        // arrange
+        noStagedBlocksExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream)any, anyLong);
+                result = new IOException();
+            }
+        };
+        BlockBlobUploader uploader = createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 1);
+        boolean thrown = false;
+
+        // act
+        try
+        {
+            uploader.upload(new ByteArrayInputStream(VALID_CONTENT), VALID_CONTENT.length);
+        }
+        catch (IOException e)
+        {
+            thrown = true;
+        }
+
+        // assert
+        assertEquals(true, thrown);
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.commitBlockList((Iterable<BlockEntry>)any);
+                times = 0;
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_010: [If the `fileChannel` is null, or the `position` or `length` is negative, the upload shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void uploadNullFileChannelThrows() throws Exception
+    {
+        // arrange
+        BlockBlobUploader uploader = createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 1);
+
+        // act
+        uploader.upload((FileChannel)null, 0, VALID_CONTENT.length);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_012: [The upload shall memory-map each block from the `fileChannel` and stage it in parallel.] */
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_009: [When all blocks are staged, the upload shall commit the block list in order.] */
+    @Test
+    public void uploadFileChannelStagesAndCommitsBlocks() throws Exception
+    {
+        // arrange
+        noStagedBlocksExpectations();
+        File file = File.createTempFile("blockblobuploader", ".bin");
+        file.deleteOnExit();
+        BlockBlobUploader uploader = createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 2);
+
+        // act
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"))
+        {
+            randomAccessFile.write(VALID_CONTENT);
+            uploader.upload(randomAccessFile.getChannel(), 0, VALID_CONTENT.length);
+        }
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream)any, VALID_BLOCK_SIZE);
+                times = 2;
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream)any, 5);
+                times = 1;
+                List<BlockEntry> blockList;
+                mockCloudBlockBlob.commitBlockList(blockList = withCapture());
+                times = 1;
+                assertEquals(3, blockList.size());
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_011: [If a block is already staged with the same block id and the expected size, the upload shall not stage it again.] */
+    /* Tests_SRS_BLOCKBLOBUPLOADER_21_018: [The upload shall release each memory-mapped block when it is staged or skipped.] */
+    @Test
+    public void uploadFileChannelResumesFromStagedBlocks() throws Exception
+    {
+        // arrange
+        final String stagedBlockId = blockId(1, VALID_CONTENT, VALID_BLOCK_SIZE);
+        final BlockEntry stagedBlock = new BlockEntry(stagedBlockId);
+        stagedBlock.setSize(VALID_BLOCK_SIZE);
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.downloadBlockList(BlockListingFilter.UNCOMMITTED, null, null, null);
+                result = new ArrayList<BlockEntry>() {{ add(stagedBlock); }};
+            }
+        };
+        File file = File.createTempFile("blockblobuploader", ".bin");
+        file.deleteOnExit();
+        BlockBlobUploader uploader = createUploader(mockCloudBlockBlob, VALID_BLOCK_SIZE, 1);
+
+        // act
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"))
+        {
+            randomAccessFile.write(VALID_CONTENT);
+            uploader.upload(randomAccessFile.getChannel(), 0, VALID_CONTENT.length);
+        }
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(stagedBlockId, (InputStream)any, anyLong);
+                times = 0;
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream)any, anyLong);
+                times = 2;
+                List<BlockEntry> blockList;
+                mockCloudBlockBlob.commitBlockList(blockList = withCapture());
+                times = 1;
+                assertEquals(stagedBlockId, blockList.get(1).getId());
+            }
+        };
+    }
+}
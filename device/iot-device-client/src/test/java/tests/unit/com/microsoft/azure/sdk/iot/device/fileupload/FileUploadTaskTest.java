@@ -7,6 +7,7 @@ import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
 import com.microsoft.azure.sdk.iot.device.IotHubMethod;
 import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
 import com.microsoft.azure.sdk.iot.device.ResponseMessage;
+import com.microsoft.azure.sdk.iot.device.fileupload.BlockBlobUploader;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUploadTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsTransportManager;
@@ -23,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -88,6 +90,7 @@ public class FileUploadTaskTest
             "}";
     private static final String VALID_URI_STRING = "https://" + VALID_HOST_NAME + "/" + VALID_CONTAINER_NAME + "/" + VALID_BLOB_NAME_URI + VALID_SAS_TOKEN;
     private static final long VALID_STREAM_LENGTH = 100;
+    private static final int VALID_BLOCK_SIZE = 10;
     private static final Map<String, Object> VALID_CALLBACK_CONTEXT = new HashMap<>();
 
 
@@ -1240,4 +1243,126 @@ public class FileUploadTaskTest
         };
     }
 
+    /* Tests_SRS_FILEUPLOADTASK_21_034: [If the `fileChannel` is null, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullFileChannelThrows()
+    {
+        // act
+        Deencapsulation.newInstance(FileUploadTask.class,
+                new Class[] {String.class, FileChannel.class, long.class, int.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, null, VALID_STREAM_LENGTH, VALID_BLOCK_SIZE, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_21_035: [If the `blockSize` is not positive for a `fileChannel`, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorFileChannelWithoutBlockSizeThrows(@Mocked final FileChannel mockFileChannel)
+    {
+        // act
+        Deencapsulation.newInstance(FileUploadTask.class,
+                new Class[] {String.class, FileChannel.class, long.class, int.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockFileChannel, VALID_STREAM_LENGTH, 0, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_21_036: [If the `blockSize` is negative or bigger than the maximum block size, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorBlockSizeTooBigThrows()
+    {
+        // act
+        Deencapsulation.newInstance(FileUploadTask.class,
+                new Class[] {String.class, InputStream.class, long.class, int.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, BlockBlobUploader.MAX_BLOCK_SIZE + 1, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_21_038: [If the `blockSize` is positive, the run shall upload the `inputStream` in blocks of `blockSize` using a `BlockBlobUploader`.] */
+    @Test
+    public void runUploadStreamInBlocks(@Mocked final BlockBlobUploader mockBlockBlobUploader) throws IOException, IllegalArgumentException, URISyntaxException, StorageException
+    {
+        // arrange
+        expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
+                VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
+        FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
+                new Class[] {String.class, InputStream.class, long.class, int.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, VALID_BLOCK_SIZE, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+
+        // act
+        Deencapsulation.invoke(fileUploadTask, "run");
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(BlockBlobUploader.class, new Class[] {CloudBlockBlob.class, int.class, int.class},
+                        mockCloudBlockBlob, VALID_BLOCK_SIZE, 4);
+                times = 1;
+                mockBlockBlobUploader.upload(mockInputStream, VALID_STREAM_LENGTH);
+                times = 1;
+                mockCloudBlockBlob.upload((InputStream)any, anyLong);
+                times = 0;
+                mockIotHubEventCallback.execute(IotHubStatusCode.OK, VALID_CALLBACK_CONTEXT);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_21_037: [If a `fileChannel` was provided, the run shall upload it in blocks of `blockSize` using a `BlockBlobUploader`.] */
+    @Test
+    public void runUploadFileChannelInBlocks(@Mocked final BlockBlobUploader mockBlockBlobUploader, @Mocked final FileChannel mockFileChannel) throws IOException, IllegalArgumentException, URISyntaxException, StorageException
+    {
+        // arrange
+        expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
+                VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
+        FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
+                new Class[] {String.class, FileChannel.class, long.class, int.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockFileChannel, VALID_STREAM_LENGTH, VALID_BLOCK_SIZE, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+
+        // act
+        Deencapsulation.invoke(fileUploadTask, "run");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockBlockBlobUploader.upload(mockFileChannel, 0L, VALID_STREAM_LENGTH);
+                times = 1;
+                mockIotHubEventCallback.execute(IotHubStatusCode.OK, VALID_CALLBACK_CONTEXT);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_21_030: [If the upload to blob failed, the run shall call the `userCallback` reporting an error status `ERROR`.] */
+    @Test
+    public void runUploadInBlocksThrows(@Mocked final BlockBlobUploader mockBlockBlobUploader) throws IOException, IllegalArgumentException, URISyntaxException, StorageException
+    {
+        // arrange
+        requestExpectations(VALID_BLOB_NAME, VALID_REQUEST_JSON);
+        responseExpectations(VALID_RESPONSE_JSON);
+        responseParserExpectations(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN);
+        cloudExpectations();
+        failedNotificationExpectations(VALID_CORRELATION_ID, VALID_NOTIFICATION_JSON);
+        new NonStrictExpectations()
+        {
+            {
+                mockBlockBlobUploader.upload(mockInputStream, VALID_STREAM_LENGTH);
+                result = new IOException();
+            }
+        };
+        FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
+                new Class[] {String.class, InputStream.class, long.class, int.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, VALID_BLOCK_SIZE, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+
+        // act
+        Deencapsulation.invoke(fileUploadTask, "run");
+
+        // assert
+        new Verifications()
+        {
+            {
+                new FileUploadStatusParser(VALID_CORRELATION_ID, false, -1, (String)any);
+                times = 1;
+                mockIotHubEventCallback.execute(IotHubStatusCode.ERROR, VALID_CALLBACK_CONTEXT);
+                times = 1;
+            }
+        };
+    }
 }
@@ -7,6 +7,7 @@ import com.microsoft.azure.sdk.iot.device.CustomLogger;
 import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
 import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
 import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.fileupload.BlockBlobUploader;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUpload;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUploadInProgress;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUploadTask;
@@ -19,6 +20,7 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
@@ -27,6 +29,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 /**
@@ -64,8 +67,6 @@ public class FileUploadTest
         new NonStrictExpectations()
         {
             {
-                new HttpsTransportManager(mockConfig);
-                result = mockHttpsTransportManager;
                 Executors.newScheduledThreadPool(10);
                 result = mockScheduler;
             }
@@ -80,7 +81,7 @@ public class FileUploadTest
         FileUpload fileUpload = new FileUpload(null);
     }
 
-    /* Tests_SRS_FILEUPLOAD_21_002: [The constructor shall create a new instance of `HttpsTransportManager` with the provided `config`.] */
+    /* Tests_SRS_FILEUPLOAD_21_002: [The constructor shall store the provided `config` to create the transport of each upload.] */
     /* Tests_SRS_FILEUPLOAD_21_012: [The constructor shall create an pool of 10 threads to execute the uploads in parallel.] */
     /* Tests_SRS_FILEUPLOAD_21_013: [The constructor shall create a list `fileUploadInProgressesSet` to control the pending uploads.] */
     @Test
@@ -90,8 +91,6 @@ public class FileUploadTest
         new NonStrictExpectations()
         {
             {
-                new HttpsTransportManager(mockConfig);
-                result = mockHttpsTransportManager;
                 Executors.newScheduledThreadPool(10);
                 result = mockScheduler;
             }
@@ -105,7 +104,7 @@ public class FileUploadTest
         {
             {
                 new HttpsTransportManager(mockConfig);
-                times = 1;
+                times = 0;
                 Executors.newScheduledThreadPool(10);
                 times = 1;
                 new LinkedBlockingDeque<>();
@@ -113,24 +112,7 @@ public class FileUploadTest
             }
         };
         assertNotNull(fileUpload);
-    }
-
-    /* Tests_SRS_FILEUPLOAD_21_003: [If the constructor fail to create the new instance of the `HttpsTransportManager`, it shall throw IllegalArgumentException, threw by the HttpsTransportManager constructor.] */
-    @Test (expected = IllegalArgumentException.class)
-    public void constructorHttpsTransportManagerThrows() throws IOException
-    {
-        // arrange
-        new NonStrictExpectations()
-        {
-            {
-                new HttpsTransportManager(mockConfig);
-                result = new IllegalArgumentException();
-                times = 1;
-            }
-        };
-
-        // act
-        FileUpload fileUpload = new FileUpload(mockConfig);
+        assertEquals(mockConfig, Deencapsulation.getField(fileUpload, "config"));
     }
 
     /* Tests_SRS_FILEUPLOAD_21_015: [If create the executor failed, the constructor shall throws IOException.] */
@@ -141,8 +123,6 @@ public class FileUploadTest
         new NonStrictExpectations()
         {
             {
-                new HttpsTransportManager(mockConfig);
-                result = mockHttpsTransportManager;
                 Executors.newScheduledThreadPool(10);
                 result = new IllegalArgumentException();
                 times = 1;
@@ -157,6 +137,7 @@ public class FileUploadTest
     /* Tests_SRS_FILEUPLOAD_21_009: [The uploadToBlobAsync shall create a `FileUploadTask` to control this file upload.] */
     /* Tests_SRS_FILEUPLOAD_21_010: [The uploadToBlobAsync shall schedule the task `FileUploadTask` to immediately start.] */
     /* Tests_SRS_FILEUPLOAD_21_016: [The uploadToBlobAsync shall create a `FileUploadInProgress` to store the fileUpload context.] */
+    /* Tests_SRS_FILEUPLOAD_21_024: [The uploadToBlobAsync shall create a new instance of `HttpsTransportManager` with the stored `config` for this file upload.] */
     @Test
     public void uploadToBlobAsyncSuccess() throws IOException
     {
@@ -174,14 +155,16 @@ public class FileUploadTest
             {
                 mockInputStream.available();
                 result = streamLength;
+                new HttpsTransportManager(mockConfig);
+                result = mockHttpsTransportManager;
                 Deencapsulation.newInstance(FileUploadInProgress.class,
                         new Class[] {IotHubEventCallback.class, Object.class},
                         mockIotHubEventCallback, context);
                 result = mockFileUploadInProgress;
                 times = 1;
                 Deencapsulation.newInstance(FileUploadTask.class,
-                        new Class[] { String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                        blobName, mockInputStream, streamLength, mockHttpsTransportManager, (IotHubEventCallback)any, mockFileUploadInProgress);
+                        new Class[] { String.class, InputStream.class, long.class, int.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
+                        blobName, mockInputStream, streamLength, 0, mockHttpsTransportManager, (IotHubEventCallback)any, mockFileUploadInProgress);
                 result = mockFileUploadTask;
                 times = 1;
                 mockScheduler.submit(mockFileUploadTask);
@@ -191,6 +174,66 @@ public class FileUploadTest
 
         // act
         fileUpload.uploadToBlobAsync(blobName, mockInputStream, streamLength, mockIotHubEventCallback, context);
+
+        // assert
+        new Verifications()
+        {
+            {
+                new HttpsTransportManager(mockConfig);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOAD_21_024: [The uploadToBlobAsync shall create a new instance of `HttpsTransportManager` with the stored `config` for this file upload.] */
+    @Test
+    public void uploadToBlobAsyncCreatesOneTransportPerUpload() throws IOException
+    {
+        // arrange
+        final String blobName = "validBlobName";
+        final long streamLength = 100;
+        final Map<String, Object> context = new HashMap<>();
+
+        constructorExpectations();
+        FileUpload fileUpload = new FileUpload(mockConfig);
+
+        // act
+        fileUpload.uploadToBlobAsync(blobName, mockInputStream, streamLength, mockIotHubEventCallback, context);
+        fileUpload.uploadToBlobAsync(blobName, mockInputStream, streamLength, mockIotHubEventCallback, context);
+
+        // assert
+        new Verifications()
+        {
+            {
+                new HttpsTransportManager(mockConfig);
+                times = 2;
+                mockScheduler.submit((FileUploadTask)any);
+                times = 2;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOAD_21_003: [If the uploadToBlobAsync fail to create the new instance of the `HttpsTransportManager`, it shall throw IllegalArgumentException, threw by the HttpsTransportManager constructor.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void uploadToBlobAsyncHttpsTransportManagerThrows() throws IOException
+    {
+        // arrange
+        final String blobName = "validBlobName";
+        final long streamLength = 100;
+        final Map<String, Object> context = new HashMap<>();
+
+        constructorExpectations();
+        FileUpload fileUpload = new FileUpload(mockConfig);
+        new NonStrictExpectations()
+        {
+            {
+                new HttpsTransportManager(mockConfig);
+                result = new IllegalArgumentException();
+            }
+        };
+
+        // act
+        fileUpload.uploadToBlobAsync(blobName, mockInputStream, streamLength, mockIotHubEventCallback, context);
     }
 
     /* Tests_SRS_FILEUPLOAD_21_005: [If the `blobName` is null or empty, the uploadToBlobAsync shall throw IllegalArgumentException.] */
@@ -332,8 +375,6 @@ public class FileUploadTest
         new NonStrictExpectations()
         {
             {
-                new HttpsTransportManager(mockConfig);
-                result = mockHttpsTransportManager;
                 Executors.newScheduledThreadPool(10);
                 result = mockScheduler;
                 Deencapsulation.invoke(mockFileUploadInProgress, "isCancelled");
@@ -390,9 +431,6 @@ public class FileUploadTest
         new NonStrictExpectations()
         {
             {
-                new HttpsTransportManager(mockConfig);
-                result = mockHttpsTransportManager;
-
                 Executors.newScheduledThreadPool(10);
                 result = mockScheduler;
 
@@ -471,5 +509,89 @@ public class FileUploadTest
         };
     }
 
+    /* Tests_SRS_FILEUPLOAD_21_025: [The uploadToBlobAsync shall upload the stream in blocks with the file upload block size in the `config`.] */
+    @Test
+    public void uploadToBlobAsyncUsesConfigBlockSize() throws IOException
+    {
+        // arrange
+        final String blobName = "validBlobName";
+        final long streamLength = 100;
+        final int blockSize = 1024;
+        final Map<String, Object> context = new HashMap<>();
+
+        constructorExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getFileUploadBlockSize();
+                result = blockSize;
+            }
+        };
+        FileUpload fileUpload = new FileUpload(mockConfig);
+
+        // act
+        fileUpload.uploadToBlobAsync(blobName, mockInputStream, streamLength, mockIotHubEventCallback, context);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(FileUploadTask.class,
+                        new Class[] { String.class, InputStream.class, long.class, int.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
+                        blobName, mockInputStream, streamLength, blockSize, (HttpsTransportManager)any, (IotHubEventCallback)any, (FileUploadInProgress)any);
+                times = 1;
+            }
+        };
+    }
 
+    /* Tests_SRS_FILEUPLOAD_21_029: [The uploadToBlobAsync shall upload the file in blocks with the file upload block size in the `config`, or with the maximum block size if it is not set.] */
+    /* Tests_SRS_FILEUPLOAD_21_030: [The uploadToBlobAsync shall schedule the task `FileUploadTask` to immediately start.] */
+    @Test
+    public void uploadToBlobAsyncFileChannelSuccess(@Mocked final FileChannel mockFileChannel) throws IOException
+    {
+        // arrange
+        final String blobName = "validBlobName";
+        final long fileSize = 100;
+        final Map<String, Object> context = new HashMap<>();
+
+        constructorExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getFileUploadBlockSize();
+                result = 0;
+                mockFileChannel.size();
+                result = fileSize;
+                Deencapsulation.newInstance(FileUploadTask.class,
+                        new Class[] { String.class, FileChannel.class, long.class, int.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
+                        blobName, mockFileChannel, fileSize, BlockBlobUploader.MAX_BLOCK_SIZE, (HttpsTransportManager)any, (IotHubEventCallback)any, (FileUploadInProgress)any);
+                result = mockFileUploadTask;
+            }
+        };
+        FileUpload fileUpload = new FileUpload(mockConfig);
+
+        // act
+        fileUpload.uploadToBlobAsync(blobName, mockFileChannel, mockIotHubEventCallback, context);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockScheduler.submit(mockFileUploadTask);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOAD_21_027: [If the `fileChannel` is null, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void uploadToBlobAsyncNullFileChannelThrows() throws IOException
+    {
+        // arrange
+        constructorExpectations();
+        FileUpload fileUpload = new FileUpload(mockConfig);
+
+        // act
+        fileUpload.uploadToBlobAsync("validBlobName", (FileChannel)null, mockIotHubEventCallback, null);
+    }
 }
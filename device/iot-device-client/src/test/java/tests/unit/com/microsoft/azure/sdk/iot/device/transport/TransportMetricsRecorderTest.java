@@ -0,0 +1,224 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.*;
+import com.microsoft.azure.sdk.iot.device.transport.*;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Unit tests for TransportMetricsRecorder. */
+public class TransportMetricsRecorderTest
+{
+    @Mocked
+    TransportMetrics mockMetrics;
+    @Mocked
+    TransportQueues mockQueues;
+    @Mocked
+    IotHubEventCallback mockCallback;
+
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_001: [If the provided `metrics` or `protocol` is null, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullMetricsThrows()
+    {
+        // act
+        new TransportMetricsRecorder(null, IotHubClientProtocol.MQTT);
+    }
+
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_001: [If the provided `metrics` or `protocol` is null, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullProtocolThrows()
+    {
+        // act
+        new TransportMetricsRecorder(mockMetrics, null);
+    }
+
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_002: [The recorder shall be disabled if the provided `metrics` is the NoopTransportMetrics.]
+    @Test
+    public void constructorEnabledOnlyWithMetrics()
+    {
+        // act
+        TransportMetricsRecorder noopRecorder = new TransportMetricsRecorder(NoopTransportMetrics.INSTANCE, IotHubClientProtocol.MQTT);
+        TransportMetricsRecorder recorder = new TransportMetricsRecorder(mockMetrics, IotHubClientProtocol.MQTT);
+
+        // assert
+        assertFalse(noopRecorder.isEnabled());
+        assertTrue(recorder.isEnabled());
+    }
+
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_003: [If the recorder is enabled, the registerQueues shall call the metrics `registerQueues` with the protocol and the provided `queues`.]
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_004: [If the recorder is enabled, the unregisterQueues shall call the metrics `unregisterQueues` with the protocol and the provided `queues`.]
+    @Test
+    public void registerAndUnregisterQueuesCallMetrics()
+    {
+        // arrange
+        TransportMetricsRecorder recorder = new TransportMetricsRecorder(mockMetrics, IotHubClientProtocol.AMQPS_WS);
+
+        // act
+        recorder.registerQueues(mockQueues);
+        recorder.unregisterQueues(mockQueues);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockMetrics.registerQueues(IotHubClientProtocol.AMQPS_WS, mockQueues);
+                times = 1;
+                mockMetrics.unregisterQueues(IotHubClientProtocol.AMQPS_WS, mockQueues);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_005: [If the recorder is enabled, the onQueued shall call the metrics `onMessageQueued` with the operation of the packet message.]
+    @Test
+    public void onQueuedReportsOperationOfMessage()
+    {
+        // arrange
+        TransportMetricsRecorder recorder = new TransportMetricsRecorder(mockMetrics, IotHubClientProtocol.MQTT);
+        Message twinMessage = new Message(new byte[0]);
+        twinMessage.setMessageType(MessageType.DEVICE_TWIN);
+
+        // act
+        recorder.onQueued(new IotHubOutboundPacket(new Message(new byte[0]), mockCallback, null));
+        recorder.onQueued(new IotHubOutboundPacket(twinMessage, mockCallback, null));
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockMetrics.onMessageQueued(IotHubClientProtocol.MQTT, TransportOperation.TELEMETRY);
+                times = 1;
+                mockMetrics.onMessageQueued(IotHubClientProtocol.MQTT, TransportOperation.TWIN);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_006: [If the recorder is enabled, the onSent shall store the current time in the packet, and call the metrics `onMessageSent` with the operation of the packet message.]
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_007: [If the recorder is enabled, the onCompleted shall call the metrics `onMessageCompleted` with the operation of the packet message, the status, and the time since the packet was sent.]
+    @Test
+    public void onSentAndCompletedReportsLatency() throws InterruptedException
+    {
+        // arrange
+        TransportMetricsRecorder recorder = new TransportMetricsRecorder(mockMetrics, IotHubClientProtocol.HTTPS);
+        Message methodMessage = new Message(new byte[0]);
+        methodMessage.setMessageType(MessageType.DEVICE_METHODS);
+        IotHubOutboundPacket packet = new IotHubOutboundPacket(methodMessage, mockCallback, null);
+        final long before = System.nanoTime();
+
+        // act
+        recorder.onSent(packet);
+        Thread.sleep(2);
+        recorder.onCompleted(packet, IotHubStatusCode.THROTTLED);
+
+        // assert
+        assertTrue(packet.getSentNanos() >= before);
+        new Verifications()
+        {
+            {
+                long latency;
+                mockMetrics.onMessageSent(IotHubClientProtocol.HTTPS, TransportOperation.METHODS);
+                times = 1;
+                mockMetrics.onMessageCompleted(IotHubClientProtocol.HTTPS, TransportOperation.METHODS, IotHubStatusCode.THROTTLED, latency = withCapture());
+                times = 1;
+                assertTrue(latency >= 2000000L);
+            }
+        };
+    }
+
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_013: [If the message was never sent, the latency shall be -1.]
+    @Test
+    public void onCompletedNotSentReportsNoLatency()
+    {
+        // arrange
+        TransportMetricsRecorder recorder = new TransportMetricsRecorder(mockMetrics, IotHubClientProtocol.AMQPS);
+
+        // act
+        recorder.onCompleted(new IotHubOutboundPacket(new Message(new byte[0]), mockCallback, null), IotHubStatusCode.MESSAGE_EXPIRED);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockMetrics.onMessageCompleted(IotHubClientProtocol.AMQPS, TransportOperation.TELEMETRY, IotHubStatusCode.MESSAGE_EXPIRED, -1L);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_008: [If the recorder is enabled, the onSent shall call the metrics `onMessageSent` with the provided `operation` and return the current time.]
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_010: [If the recorder is enabled, the onCompleted shall call the metrics `onMessageCompleted` with the provided `operation`, `status`, and the time since `sentNanos`.]
+    @Test
+    public void onSentAndCompletedOperationReportsLatency()
+    {
+        // arrange
+        TransportMetricsRecorder recorder = new TransportMetricsRecorder(mockMetrics, IotHubClientProtocol.HTTPS);
+
+        // act
+        long sentNanos = recorder.onSent(TransportOperation.FILE_UPLOAD);
+        recorder.onCompleted(TransportOperation.FILE_UPLOAD, IotHubStatusCode.OK, sentNanos);
+
+        // assert
+        assertNotEquals(TransportMetricsRecorder.NOT_SENT, sentNanos);
+        new Verifications()
+        {
+            {
+                long latency;
+                mockMetrics.onMessageSent(IotHubClientProtocol.HTTPS, TransportOperation.FILE_UPLOAD);
+                times = 1;
+                mockMetrics.onMessageCompleted(IotHubClientProtocol.HTTPS, TransportOperation.FILE_UPLOAD, IotHubStatusCode.OK, latency = withCapture());
+                times = 1;
+                assertTrue(latency >= 0);
+            }
+        };
+    }
+
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_011: [If the recorder is enabled, the onReceived shall call the metrics `onMessageReceived` with the operation of the provided `message`.]
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_012: [If the recorder is enabled, the onReconnect shall call the metrics `onReconnect`.]
+    @Test
+    public void onReceivedAndReconnectCallMetrics()
+    {
+        // arrange
+        TransportMetricsRecorder recorder = new TransportMetricsRecorder(mockMetrics, IotHubClientProtocol.MQTT_WS);
+        Message methodMessage = new Message(new byte[0]);
+        methodMessage.setMessageType(MessageType.DEVICE_METHODS);
+
+        // act
+        recorder.onReceived(methodMessage);
+        recorder.onReconnect();
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockMetrics.onMessageReceived(IotHubClientProtocol.MQTT_WS, TransportOperation.METHODS);
+                times = 1;
+                mockMetrics.onReconnect(IotHubClientProtocol.MQTT_WS);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_TRANSPORTMETRICSRECORDER_21_009: [If the recorder is disabled, the onSent shall return NOT_SENT.]
+    @Test
+    public void disabledRecorderDoesNotTimeMessages()
+    {
+        // arrange
+        TransportMetricsRecorder recorder = new TransportMetricsRecorder(NoopTransportMetrics.INSTANCE, IotHubClientProtocol.MQTT);
+        IotHubOutboundPacket packet = new IotHubOutboundPacket(new Message(new byte[0]), mockCallback, null);
+
+        // act
+        recorder.onQueued(packet);
+        recorder.onSent(packet);
+        long sentNanos = recorder.onSent(TransportOperation.FILE_UPLOAD);
+
+        // assert
+        assertEquals(TransportMetricsRecorder.NOT_SENT, packet.getSentNanos());
+        assertEquals(TransportMetricsRecorder.NOT_SENT, sentNanos);
+    }
+}
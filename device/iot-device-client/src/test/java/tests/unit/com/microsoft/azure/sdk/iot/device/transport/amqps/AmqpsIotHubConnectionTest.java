@@ -34,6 +34,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /* Unit tests for AmqpsIotHubConnection
@@ -1058,7 +1059,7 @@ public class AmqpsIotHubConnectionTest {
                 mockSslDomain.setSslContext(mockSSLContext);
 
                 mockSslDomain.setPeerAuthentication(SslDomain.VerifyMode.VERIFY_PEER);
-                mockTransport.ssl(mockSslDomain);
+                mockTransport.ssl(mockSslDomain, (SslPeerDetails) any);
             }
         };
 
@@ -1083,7 +1084,7 @@ public class AmqpsIotHubConnectionTest {
                 times = 1;
                 mockSslDomain.setPeerAuthentication(SslDomain.VerifyMode.VERIFY_PEER);
                 times = 1;
-                mockTransport.ssl(mockSslDomain);
+                mockTransport.ssl(mockSslDomain, (SslPeerDetails) any);
                 times = 1;
             }
         };
@@ -1115,7 +1116,7 @@ public class AmqpsIotHubConnectionTest {
                 mockSslDomain.setSslContext(mockSSLContext);
 
                 mockSslDomain.setPeerAuthentication(SslDomain.VerifyMode.VERIFY_PEER);
-                mockTransportInternal.ssl(mockSslDomain);
+                mockTransportInternal.ssl(mockSslDomain, (SslPeerDetails) any);
             }
         };
 
@@ -1146,7 +1147,7 @@ public class AmqpsIotHubConnectionTest {
                 times = 1;
                 mockSslDomain.setPeerAuthentication(SslDomain.VerifyMode.VERIFY_PEER);
                 times = 1;
-                mockTransportInternal.ssl(mockSslDomain);
+                mockTransportInternal.ssl(mockSslDomain, (SslPeerDetails) any);
                 times = 1;
             }
         };
@@ -1757,6 +1758,65 @@ public class AmqpsIotHubConnectionTest {
         };
     }
 
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_21_065: [The function shall return true if the current sas token in the config is different from the one used to open the connection.]
+    @Test
+    public void isSasTokenRenewedReturnsTrueIfSasTokenChanged() throws IOException
+    {
+        baseExpectations();
+        ArrayList<AmqpsDeviceOperations> amqpsDeviceOperationsList = new ArrayList<AmqpsDeviceOperations>();
+        amqpsDeviceOperationsList.add(Deencapsulation.newInstance(AmqpsDeviceTelemetry.class, deviceId));
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getSasTokenAuthentication().getRenewedSasToken();
+                result = "renewedToken";
+            }
+        };
+        AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig, amqpsDeviceOperationsList);
+        Deencapsulation.setField(connection, "sasToken", "currentToken");
+
+        assertTrue(connection.isSasTokenRenewed());
+    }
+
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_21_065: [The function shall return true if the current sas token in the config is different from the one used to open the connection.]
+    @Test
+    public void isSasTokenRenewedReturnsFalseIfSasTokenNotChanged() throws IOException
+    {
+        baseExpectations();
+        ArrayList<AmqpsDeviceOperations> amqpsDeviceOperationsList = new ArrayList<AmqpsDeviceOperations>();
+        amqpsDeviceOperationsList.add(Deencapsulation.newInstance(AmqpsDeviceTelemetry.class, deviceId));
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getSasTokenAuthentication().getRenewedSasToken();
+                result = "currentToken";
+            }
+        };
+        AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig, amqpsDeviceOperationsList);
+        Deencapsulation.setField(connection, "sasToken", "currentToken");
+
+        assertFalse(connection.isSasTokenRenewed());
+    }
+
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_21_064: [If the connection does not use sas token authentication, the function shall return false.]
+    @Test
+    public void isSasTokenRenewedReturnsFalseForX509() throws IOException
+    {
+        baseExpectations();
+        ArrayList<AmqpsDeviceOperations> amqpsDeviceOperationsList = new ArrayList<AmqpsDeviceOperations>();
+        amqpsDeviceOperationsList.add(Deencapsulation.newInstance(AmqpsDeviceTelemetry.class, deviceId));
+        AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig, amqpsDeviceOperationsList);
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.X509_CERTIFICATE;
+            }
+        };
+
+        assertFalse(connection.isSasTokenRenewed());
+    }
+
     private void baseExpectations()
     {
         new NonStrictExpectations() {
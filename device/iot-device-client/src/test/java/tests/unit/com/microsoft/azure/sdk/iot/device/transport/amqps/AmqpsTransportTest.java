@@ -7,6 +7,9 @@ import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthentication;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubCallbackPacket;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubOutboundPacket;
+import com.microsoft.azure.sdk.iot.device.transport.NoopTransportMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.TransportOperation;
 import com.microsoft.azure.sdk.iot.device.transport.State;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.*;
 import mockit.*;
@@ -312,6 +315,8 @@ public class AmqpsTransportTest
         new NonStrictExpectations()
         {
             {
+                mockConfig.getTransportMetrics();
+                result = NoopTransportMetrics.INSTANCE;
                 mockConfig.getDeviceId();
                 result = "deviceId";
             }
@@ -623,6 +628,8 @@ public class AmqpsTransportTest
         new NonStrictExpectations()
         {
             {
+                mockConfig.getTransportMetrics();
+                result = NoopTransportMetrics.INSTANCE;
                 new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
                 result = mockConnection;
                 new IotHubOutboundPacket(mockMessage, mockCallback, context);
@@ -663,6 +670,164 @@ public class AmqpsTransportTest
         };
     }
 
+    // Tests_SRS_AMQPSTRANSPORT_21_044: [If the sas token was renewed and there are no messages in progress, or the drain timeout expires, the function shall reopen the connection with the renewed sas token.]
+    // Tests_SRS_AMQPSTRANSPORT_21_046: [The function shall open a new connection, with the transport as listener, to authenticate with the renewed sas token.]
+    @Test
+    public void sendMessagesReopensConnectionIfSasTokenWasRenewed() throws IOException
+    {
+        new NonStrictExpectations()
+        {
+            {
+                new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
+                result = mockConnection;
+                mockConnection.isSasTokenRenewed();
+                returns(true, false);
+            }
+        };
+
+        AmqpsTransport transport = new AmqpsTransport(mockConfig);
+        transport.open();
+        transport.sendMessages();
+
+        new VerificationsInOrder()
+        {
+            {
+                mockConnection.close();
+                times = 1;
+                new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
+                times = 1;
+                mockConnection.addListener((ServerListener) any);
+                times = 1;
+                mockConnection.open();
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSTRANSPORT_21_047: [If the new connection cannot be opened, the function shall throw IOException, keep the messages in the waiting list, and retry the reconnection on the next call to sendMessages.]
+    @Test
+    public void sendMessagesRetriesReopeningIfRenewedConnectionFailsToOpen() throws IOException
+    {
+        new NonStrictExpectations()
+        {
+            {
+                new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
+                result = mockConnection;
+                mockConnection.isSasTokenRenewed();
+                result = true;
+                mockConnection.open();
+                result = null;
+                result = new IOException();
+                result = null;
+            }
+        };
+
+        AmqpsTransport transport = new AmqpsTransport(mockConfig);
+        transport.open();
+        boolean reconnectFailed = false;
+        try
+        {
+            transport.sendMessages();
+        }
+        catch (IOException e)
+        {
+            reconnectFailed = true;
+        }
+
+        assertTrue(reconnectFailed);
+        assertTrue((boolean) Deencapsulation.getField(transport, "sasTokenReconnectPending"));
+
+        transport.sendMessages();
+
+        assertFalse((boolean) Deencapsulation.getField(transport, "sasTokenReconnectPending"));
+        new Verifications()
+        {
+            {
+                new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
+                times = 3;
+                mockConnection.open();
+                times = 3;
+                mockConnection.close();
+                times = 2;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSTRANSPORT_21_043: [If the sas token was renewed, the function shall not send new messages while there are messages in progress, up to the drain timeout.]
+    @Test
+    public void sendMessagesWaitsInProgressMessagesBeforeReopeningWithRenewedSasToken(
+            @Mocked final Message mockMessage,
+            @Mocked final IotHubEventCallback mockCallback,
+            @Mocked final IotHubOutboundPacket mockPacket)
+            throws IOException
+    {
+        final Map<String, Object> context = new HashMap<>();
+        new NonStrictExpectations()
+        {
+            {
+                new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
+                result = mockConnection;
+                mockConnection.isSasTokenRenewed();
+                result = true;
+            }
+        };
+
+        AmqpsTransport transport = new AmqpsTransport(mockConfig);
+        transport.open();
+        Map<Integer, IotHubOutboundPacket> inProgressMessages = Deencapsulation.getField(transport, "inProgressMessages");
+        inProgressMessages.put(1, mockPacket);
+        transport.addMessage(mockMessage, mockCallback, context);
+        transport.sendMessages();
+
+        Queue<IotHubOutboundPacket> waitingMessages = Deencapsulation.getField(transport, "waitingMessages");
+        assertEquals(1, waitingMessages.size());
+        assertEquals(1, inProgressMessages.size());
+        new Verifications()
+        {
+            {
+                mockConnection.close();
+                times = 0;
+                mockConnection.sendMessage((org.apache.qpid.proton.message.Message) any, (MessageType) any);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSTRANSPORT_21_045: [The function shall move the messages still in progress back to the waiting list before reopening the connection.]
+    @Test
+    public void sendMessagesMovesInProgressMessagesBackAfterDrainTimeout(
+            @Mocked final IotHubOutboundPacket mockPacket)
+            throws IOException
+    {
+        new NonStrictExpectations()
+        {
+            {
+                new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
+                result = mockConnection;
+                mockConnection.isSasTokenRenewed();
+                returns(true, false);
+                mockConnection.sendMessage((org.apache.qpid.proton.message.Message) any, (MessageType) any);
+                result = -1;
+            }
+        };
+
+        AmqpsTransport transport = new AmqpsTransport(mockConfig);
+        transport.open();
+        Map<Integer, IotHubOutboundPacket> inProgressMessages = Deencapsulation.getField(transport, "inProgressMessages");
+        inProgressMessages.put(1, mockPacket);
+        Deencapsulation.setField(transport, "sasTokenRenewalDrainStart", 1L);
+        transport.sendMessages();
+
+        assertEquals(0, inProgressMessages.size());
+        new Verifications()
+        {
+            {
+                mockConnection.close();
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_AMQPSTRANSPORT_34_041: [If the config is using sas token authentication and its sas token has expired and cannot be renewed, the message shall not be sent, an UNAUTHORIZED message callback shall be added to the callback queue and SAS_TOKEN_EXPIRED state callback shall be fired.]
     @Test
     public void sendMessagesWithExpiredSasTokenSendsCallbacks(
@@ -826,6 +991,8 @@ public class AmqpsTransportTest
         new NonStrictExpectations()
         {
             {
+                mockConfig.getTransportMetrics();
+                result = NoopTransportMetrics.INSTANCE;
                 new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
                 result = mockConnection;
                 new IotHubOutboundPacket(mockMessage, mockCallback, context);
@@ -884,6 +1051,8 @@ public class AmqpsTransportTest
         new NonStrictExpectations()
         {
             {
+                mockConfig.getTransportMetrics();
+                result = NoopTransportMetrics.INSTANCE;
 
                 new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
 
@@ -948,6 +1117,8 @@ public class AmqpsTransportTest
         new NonStrictExpectations()
         {
             {
+                mockConfig.getTransportMetrics();
+                result = NoopTransportMetrics.INSTANCE;
 
                 new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
 
@@ -1683,4 +1854,53 @@ public class AmqpsTransportTest
 
         Assert.assertFalse(isEmpty);
     }
-}
\ No newline at end of file
+
+    // Tests_SRS_AMQPSTRANSPORT_21_048: [The function shall report the queues to the transport metrics in the configuration, with the protocol AMQPS_WS if it uses websocket, or AMQPS otherwise.]
+    // Tests_SRS_AMQPSTRANSPORT_21_054: [The function shall report the delivered message, with the send to acknowledgement latency, to the transport metrics.]
+    // Tests_SRS_AMQPSTRANSPORT_21_055: [The connection loss is reported as a reconnection to the transport metrics.]
+    // Tests_SRS_AMQPSTRANSPORT_21_057: [The function shall return the number of messages in progress.]
+    @Test
+    public void messageSentAndConnectionLostReportTransportMetrics(@Mocked final TransportMetrics mockTransportMetrics) throws IOException
+    {
+        new NonStrictExpectations()
+        {
+            {
+                new AmqpsIotHubConnection(mockConfig, (ArrayList<AmqpsDeviceOperations>) any);
+                result = mockConnection;
+                mockConfig.getDeviceId();
+                result = "deviceId";
+                mockConfig.isUseWebsocket();
+                result = true;
+                mockConfig.getTransportMetrics();
+                result = mockTransportMetrics;
+            }
+        };
+
+        final AmqpsTransport transport = new AmqpsTransport(mockConfig);
+        transport.open();
+
+        Map<Integer, IotHubOutboundPacket> inProgressMessages = new ConcurrentHashMap<>();
+        inProgressMessages.put(1, new IotHubOutboundPacket(new Message(), mockIotHubEventCallback, new Object()));
+        inProgressMessages.put(2, new IotHubOutboundPacket(new Message(), mockIotHubEventCallback, new Object()));
+        Deencapsulation.setField(transport, "inProgressMessages", inProgressMessages);
+        assertEquals(2, transport.getInProgressCount());
+
+        transport.messageSent(1, true);
+        transport.connectionLost();
+
+        assertEquals(0, transport.getInProgressCount());
+        assertEquals(1, transport.getWaitingCount());
+        assertEquals(1, transport.getCallbackCount());
+        new Verifications()
+        {
+            {
+                mockTransportMetrics.registerQueues(IotHubClientProtocol.AMQPS_WS, transport);
+                times = 1;
+                mockTransportMetrics.onMessageCompleted(IotHubClientProtocol.AMQPS_WS, TransportOperation.TELEMETRY, IotHubStatusCode.OK_EMPTY, anyLong);
+                times = 1;
+                mockTransportMetrics.onReconnect(IotHubClientProtocol.AMQPS_WS);
+                times = 1;
+            }
+        };
+    }
+}
@@ -7,6 +7,8 @@ import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubCallbackPacket;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubOutboundPacket;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.TransportOperation;
 import com.microsoft.azure.sdk.iot.device.transport.https.*;
 import junit.framework.AssertionFailedError;
 import mockit.*;
@@ -1013,4 +1015,66 @@ public class HttpsTransportTest
         //act
         transport.registerConnectionStateCallback(null, callbackContext);
     }
+
+    // Tests_SRS_HTTPSTRANSPORT_21_042: [The function shall report the queues to the transport metrics in the configuration, with the protocol HTTPS.]
+    // Tests_SRS_HTTPSTRANSPORT_21_043: [The function shall stop reporting the queues to the transport metrics.]
+    // Tests_SRS_HTTPSTRANSPORT_21_044: [The function shall report the queued message to the transport metrics.]
+    // Tests_SRS_HTTPSTRANSPORT_21_045: [The function shall report each message of the request as sent to the transport metrics.]
+    // Tests_SRS_HTTPSTRANSPORT_21_047: [The function shall report each completed message, with the status of the response and the send to acknowledgement latency, to the transport metrics.]
+    @Test
+    public void sendMessagesReportsTransportMetrics(
+            @Mocked final Message mockMsg,
+            @Mocked final HttpsSingleMessage mockHttpsMsg,
+            @Mocked final IotHubEventCallback mockCallback,
+            @Mocked final HttpsBatchMessage mockBatch,
+            @Mocked final ResponseMessage mockResponseMessage,
+            @Mocked final TransportMetrics mockTransportMetrics)
+            throws URISyntaxException, IOException, IotHubSizeExceededException
+    {
+        final Map<String, Object> context = new HashMap<>();
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getTransportMetrics();
+                result = mockTransportMetrics;
+                mockMsg.getMessageType();
+                result = MessageType.DEVICE_TELEMETRY;
+                HttpsSingleMessage.parseHttpsMessage(mockMsg);
+                result = mockHttpsMsg;
+                new HttpsBatchMessage();
+                result = mockBatch;
+                mockConn.sendEvent((HttpsMessage) any);
+                result = mockResponseMessage;
+                mockResponseMessage.getStatus();
+                result = IotHubStatusCode.THROTTLED;
+            }
+        };
+
+        final HttpsTransport transport = new HttpsTransport(mockConfig);
+        transport.open();
+        transport.addMessage(mockMsg, mockCallback, context);
+        transport.addMessage(mockMsg, mockCallback, context);
+        assertEquals(2, transport.getWaitingCount());
+        transport.sendMessages();
+        assertEquals(0, transport.getWaitingCount());
+        assertEquals(0, transport.getInProgressCount());
+        assertEquals(2, transport.getCallbackCount());
+        transport.close();
+
+        new Verifications()
+        {
+            {
+                mockTransportMetrics.registerQueues(IotHubClientProtocol.HTTPS, transport);
+                times = 1;
+                mockTransportMetrics.onMessageQueued(IotHubClientProtocol.HTTPS, TransportOperation.TELEMETRY);
+                times = 2;
+                mockTransportMetrics.onMessageSent(IotHubClientProtocol.HTTPS, TransportOperation.TELEMETRY);
+                times = 2;
+                mockTransportMetrics.onMessageCompleted(IotHubClientProtocol.HTTPS, TransportOperation.TELEMETRY, IotHubStatusCode.THROTTLED, anyLong);
+                times = 2;
+                mockTransportMetrics.unregisterQueues(IotHubClientProtocol.HTTPS, transport);
+                times = 1;
+            }
+        };
+    }
 }
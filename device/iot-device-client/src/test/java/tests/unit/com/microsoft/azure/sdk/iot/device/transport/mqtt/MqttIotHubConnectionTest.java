@@ -1092,4 +1092,88 @@ public class MqttIotHubConnectionTest
         MqttIotHubConnection connection = new MqttIotHubConnection(mockConfig);
         connection.open();
     }
-}
\ No newline at end of file
+
+    //Tests_SRS_MQTTIOTHUBCONNECTION_21_029: [If the sas token was renewed, the function shall reconnect with the renewed sas token.]
+    @Test
+    public void updateSasTokenReconnectsWithRenewedSasToken() throws IOException
+    {
+        baseExpectations();
+        openExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                mockConfig.getSasTokenAuthentication().getRenewedSasToken();
+                returns(expectedToken, "renewedToken");
+            }
+        };
+        MqttIotHubConnection connection = new MqttIotHubConnection(mockConfig);
+        connection.open();
+
+        connection.updateSasToken();
+
+        assertEquals("renewedToken", Deencapsulation.getField(connection, "iotHubUserPassword"));
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockDeviceMessaging, "reconnectWithSasToken", "renewedToken");
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_MQTTIOTHUBCONNECTION_21_029: [If the sas token was renewed, the function shall reconnect with the renewed sas token.]
+    @Test
+    public void updateSasTokenDoesNotReconnectIfSasTokenWasNotRenewed() throws IOException
+    {
+        baseExpectations();
+        openExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                mockConfig.getSasTokenAuthentication().getRenewedSasToken();
+                result = expectedToken;
+            }
+        };
+        MqttIotHubConnection connection = new MqttIotHubConnection(mockConfig);
+        connection.open();
+
+        connection.updateSasToken();
+
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockDeviceMessaging, "reconnectWithSasToken", anyString);
+                times = 0;
+            }
+        };
+    }
+
+    //Tests_SRS_MQTTIOTHUBCONNECTION_21_028: [If the connection is closed or does not use sas token authentication, the function shall do nothing.]
+    @Test
+    public void updateSasTokenDoesNothingIfConnectionIsClosed() throws IOException
+    {
+        baseExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+            }
+        };
+        MqttIotHubConnection connection = new MqttIotHubConnection(mockConfig);
+
+        connection.updateSasToken();
+
+        new Verifications()
+        {
+            {
+                mockConfig.getSasTokenAuthentication();
+                times = 0;
+            }
+        };
+    }
+}
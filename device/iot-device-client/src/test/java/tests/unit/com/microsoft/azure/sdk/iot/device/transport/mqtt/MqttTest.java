@@ -3,8 +3,11 @@
 package tests.unit.com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
 import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
 import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasToken;
+import com.microsoft.azure.sdk.iot.device.transport.NoopTransportMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetrics;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.Mqtt;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttDeviceTwin;
@@ -1065,6 +1068,9 @@ public class MqttTest {
 
                 mockMqttAsyncClient.isConnected();
                 result = true;
+
+                mockDeviceClientConfig.getTransportMetrics();
+                result = NoopTransportMetrics.INSTANCE;
             }
         };
 
@@ -1129,6 +1135,9 @@ public class MqttTest {
                 mockMqttToken.waitForCompletion();
                 mockMqttAsyncClient.isConnected();
                 result = true;
+
+                mockDeviceClientConfig.getTransportMetrics();
+                result = NoopTransportMetrics.INSTANCE;
             }
         };
 
@@ -1184,6 +1193,90 @@ public class MqttTest {
         Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, payload);
     }
     
+    /*
+    **Tests_SRS_Mqtt_21_055: [**After it reconnects, the function shall report the reconnection to the transport metrics of the device client configuration.**]**
+     */
+    @Test
+    public void connectionLostReportsReconnectionToTransportMetrics(@Mocked final TransportMetrics mockTransportMetrics) throws IOException, MqttException
+    {
+        //arrange
+        baseConstructorExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockMqttAsyncClient.isConnected();
+                returns(false, false, true);
+                mockDeviceClientConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.X509_CERTIFICATE;
+                mockMqttAsyncClient.connect(mockMqttConnectionOptions);
+                result = mockMqttToken;
+                mockDeviceClientConfig.getTransportMetrics();
+                result = mockTransportMetrics;
+                mockDeviceClientConfig.isUseWebsocket();
+                result = true;
+            }
+        };
+        Mqtt mockMqtt = instantiateMqtt(true);
+        Deencapsulation.invoke(mockMqtt, "setDeviceClientConfig", mockDeviceClientConfig);
+
+        //act
+        mockMqtt.connectionLost(new Throwable());
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockTransportMetrics.onReconnect(IotHubClientProtocol.MQTT_WS);
+                times = 1;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_Mqtt_21_067: [**The reconnections of the connection shall be reported by one recorder, created on the first reconnection, with the protocol MQTT_WS if it uses websocket, or MQTT otherwise.**]**
+     */
+    @Test
+    public void reconnectionsReuseOneMetricsRecorder(@Mocked final TransportMetrics mockTransportMetrics) throws IOException, MqttException
+    {
+        //arrange
+        baseConstructorExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockMqttAsyncClient.isConnected();
+                returns(false, false, true, false, false, true);
+                mockDeviceClientConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.X509_CERTIFICATE;
+                mockMqttAsyncClient.connect(mockMqttConnectionOptions);
+                result = mockMqttToken;
+                mockDeviceClientConfig.getTransportMetrics();
+                result = mockTransportMetrics;
+                mockDeviceClientConfig.isUseWebsocket();
+                result = false;
+            }
+        };
+        Mqtt mockMqtt = instantiateMqtt(true);
+        Deencapsulation.invoke(mockMqtt, "setDeviceClientConfig", mockDeviceClientConfig);
+
+        //act
+        mockMqtt.connectionLost(new Throwable());
+        Object firstRecorder = Deencapsulation.getField(mockMqtt, "metricsRecorder");
+        mockMqtt.connectionLost(new Throwable());
+
+        //assert
+        assertNotNull(firstRecorder);
+        assertSame(firstRecorder, Deencapsulation.getField(mockMqtt, "metricsRecorder"));
+        new Verifications()
+        {
+            {
+                mockDeviceClientConfig.getTransportMetrics();
+                times = 1;
+                mockTransportMetrics.onReconnect(IotHubClientProtocol.MQTT);
+                times = 2;
+            }
+        };
+    }
+
     /*
     **Tests_SRS_Mqtt_25_027: [**The function shall attempt to reconnect to the IoTHub in a loop with exponential backoff until it succeeds**]**
      */
@@ -1242,6 +1335,9 @@ public class MqttTest {
 
                 mockMqttAsyncClient.isConnected();
                 result = true;
+
+                mockDeviceClientConfig.getTransportMetrics();
+                result = NoopTransportMetrics.INSTANCE;
             }
         };
         //act
@@ -1442,4 +1538,85 @@ public class MqttTest {
 
         Deencapsulation.invoke(mockMqtt,"setDeviceClientConfig", new Class[] {DeviceClientConfig.class},(DeviceClientConfig)null);
     } 
-}
\ No newline at end of file
+
+    /*
+    **Tests_SRS_Mqtt_21_062: [**The function shall set the new sas token as the password of the connection options.**]**
+    **Tests_SRS_Mqtt_21_063: [**The function shall disconnect the current connection, waiting for the in-flight messages to complete.**]**
+    **Tests_SRS_Mqtt_21_064: [**The function shall connect again with the new sas token.**]**
+     */
+    @Test
+    public void reconnectWithSasTokenDisconnectsAndConnectsWithNewPassword() throws IOException, MqttException
+    {
+        //arrange
+        final String newSasToken = "SharedAccessSignature sr=hostname&sig=newSignature&se=4102444800";
+        baseConstructorExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockMqttAsyncClient.isConnected();
+                returns(true, false, true);
+                mockMqttAsyncClient.disconnect();
+                result = mockMqttToken;
+                mockMqttAsyncClient.connect(mockMqttConnectionOptions);
+                result = mockMqttToken;
+            }
+        };
+        Mqtt mockMqtt = instantiateMqtt(true);
+
+        //act
+        Deencapsulation.invoke(mockMqtt, "reconnectWithSasToken", newSasToken);
+
+        //assert
+        new VerificationsInOrder()
+        {
+            {
+                mockMqttConnectionOptions.setPassword(newSasToken.toCharArray());
+                times = 1;
+                mockMqttAsyncClient.disconnect();
+                times = 1;
+                mockMqttAsyncClient.connect(mockMqttConnectionOptions);
+                times = 1;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_Mqtt_21_065: [**If the connection cannot be established, the function shall throw an IOException, and leave the connection closed for the caller to retry.**]**
+     */
+    @Test (expected = IOException.class)
+    public void reconnectWithSasTokenThrowsIfConnectFails() throws IOException, MqttException
+    {
+        //arrange
+        final String newSasToken = "SharedAccessSignature sr=hostname&sig=newSignature&se=4102444800";
+        baseConstructorExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockMqttAsyncClient.isConnected();
+                returns(true, false);
+                mockMqttAsyncClient.disconnect();
+                result = mockMqttToken;
+                mockMqttAsyncClient.connect(mockMqttConnectionOptions);
+                result = mockMqttException;
+            }
+        };
+        Mqtt mockMqtt = instantiateMqtt(true);
+
+        //act
+        Deencapsulation.invoke(mockMqtt, "reconnectWithSasToken", newSasToken);
+    }
+
+    /*
+    **Tests_SRS_Mqtt_21_060: [**If the sasToken is null or empty, the function shall throw an IllegalArgumentException.**]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void reconnectWithSasTokenThrowsOnEmptySasToken() throws IOException, MqttException
+    {
+        //arrange
+        baseConstructorExpectations();
+        Mqtt mockMqtt = instantiateMqtt(true);
+
+        //act
+        Deencapsulation.invoke(mockMqtt, "reconnectWithSasToken", "");
+    }
+}
@@ -7,6 +7,8 @@ import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthentication;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubCallbackPacket;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubOutboundPacket;
+import com.microsoft.azure.sdk.iot.device.transport.TransportMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.TransportOperation;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttTransport;
 import junit.framework.AssertionFailedError;
@@ -486,6 +488,65 @@ public class MqttTransportTest
         };
     }
 
+    // Tests_SRS_MQTTTRANSPORT_21_027: [If the sas token was renewed, the function shall reconnect with the renewed sas token before sending the messages, keeping them in the waiting list.]
+    @Test
+    public void sendMessagesUpdatesSasTokenBeforeSending(
+            @Mocked final Message mockMsg,
+            @Mocked final IotHubEventCallback mockCallback)
+            throws IOException
+    {
+        final Map<String, Object> context = new HashMap<>();
+        MqttTransport transport = new MqttTransport(mockConfig);
+        transport.open();
+        transport.addMessage(mockMsg, mockCallback, context);
+
+        transport.sendMessages();
+
+        final MqttIotHubConnection expectedConnection = mockConnection;
+        new VerificationsInOrder()
+        {
+            {
+                expectedConnection.updateSasToken();
+                times = 1;
+                expectedConnection.sendEvent(mockMsg);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_MQTTTRANSPORT_21_028: [If the reconnection with the renewed sas token fails, the function shall keep the messages in the waiting list to be sent in a subsequent call.]
+    @Test
+    public void sendMessagesKeepsMessagesIfUpdateSasTokenFails(
+            @Mocked final Message mockMsg,
+            @Mocked final IotHubEventCallback mockCallback)
+            throws IOException
+    {
+        final Map<String, Object> context = new HashMap<>();
+        new NonStrictExpectations()
+        {
+            {
+                mockConnection.updateSasToken();
+                result = new IOException();
+            }
+        };
+        MqttTransport transport = new MqttTransport(mockConfig);
+        transport.open();
+        transport.addMessage(mockMsg, mockCallback, context);
+
+        transport.sendMessages();
+
+        Queue<IotHubOutboundPacket> waitingList = Deencapsulation.getField(transport, "waitingList");
+        assertEquals(1, waitingList.size());
+        final MqttIotHubConnection expectedConnection = mockConnection;
+        new Verifications()
+        {
+            {
+                expectedConnection.sendEvent((Message) any);
+                times = 0;
+            }
+        };
+    }
+
     // Tests_SRS_MQTTTRANSPORT_15_011: [If the MQTT connection is closed,
     // the function shall throw an IllegalStateException.]
     @Test(expected = IllegalStateException.class)
@@ -761,4 +822,66 @@ public class MqttTransportTest
         transport.close();
         transport.handleMessage();
     }
-}
\ No newline at end of file
+
+    // Tests_SRS_MQTTTRANSPORT_21_029: [The function shall report the queues to the transport metrics in the configuration, with the protocol MQTT_WS if it uses websocket, or MQTT otherwise.]
+    // Tests_SRS_MQTTTRANSPORT_21_031: [The function shall report the queued message to the transport metrics.]
+    // Tests_SRS_MQTTTRANSPORT_21_032: [The function shall report each sent message, and its status with the send to acknowledgement latency, to the transport metrics.]
+    // Tests_SRS_MQTTTRANSPORT_21_033: [The function shall report the received message to the transport metrics.]
+    // Tests_SRS_MQTTTRANSPORT_21_034: [The function shall return the size of the waiting list.]
+    // Tests_SRS_MQTTTRANSPORT_21_036: [The function shall return the size of the callback list.]
+    @Test
+    public void sendAndHandleMessagesReportTransportMetrics(
+            @Mocked final Message mockMsg,
+            @Mocked final IotHubEventCallback mockCallback,
+            @Mocked final TransportMetrics mockTransportMetrics)
+            throws IOException
+    {
+        final Map<String, Object> context = new HashMap<>();
+        new NonStrictExpectations()
+        {
+            {
+                new MqttIotHubConnection(mockConfig);
+                result = mockConnection;
+                mockConfig.getTransportMetrics();
+                result = mockTransportMetrics;
+                mockConfig.isUseWebsocket();
+                result = false;
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.X509_CERTIFICATE;
+                mockMsg.getMessageType();
+                result = MessageType.DEVICE_TWIN;
+                mockConnection.sendEvent((Message) any);
+                result = IotHubStatusCode.OK_EMPTY;
+                mockConnection.receiveMessage();
+                result = mockMsg;
+            }
+        };
+
+        final MqttTransport transport = new MqttTransport(mockConfig);
+        transport.open();
+        transport.addMessage(mockMsg, mockCallback, context);
+        transport.addMessage(mockMsg, mockCallback, context);
+        assertEquals(2, transport.getWaitingCount());
+        transport.sendMessages();
+        assertEquals(0, transport.getWaitingCount());
+        assertEquals(0, transport.getInProgressCount());
+        assertEquals(2, transport.getCallbackCount());
+        transport.handleMessage();
+
+        new Verifications()
+        {
+            {
+                mockTransportMetrics.registerQueues(IotHubClientProtocol.MQTT, transport);
+                times = 1;
+                mockTransportMetrics.onMessageQueued(IotHubClientProtocol.MQTT, TransportOperation.TWIN);
+                times = 2;
+                mockTransportMetrics.onMessageSent(IotHubClientProtocol.MQTT, TransportOperation.TWIN);
+                times = 2;
+                mockTransportMetrics.onMessageCompleted(IotHubClientProtocol.MQTT, TransportOperation.TWIN, IotHubStatusCode.OK_EMPTY, anyLong);
+                times = 2;
+                mockTransportMetrics.onMessageReceived(IotHubClientProtocol.MQTT, TransportOperation.TWIN);
+                times = 1;
+            }
+        };
+    }
+}
@@ -0,0 +1,666 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Properties;
+import org.apache.qpid.proton.amqp.messaging.Rejected;
+import org.apache.qpid.proton.amqp.messaging.Source;
+import org.apache.qpid.proton.amqp.messaging.Target;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
+import org.apache.qpid.proton.engine.Collector;
+import org.apache.qpid.proton.engine.Connection;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.EndpointState;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Link;
+import org.apache.qpid.proton.engine.Receiver;
+import org.apache.qpid.proton.engine.Sasl;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.engine.Transport;
+import org.apache.qpid.proton.message.Message;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * AMQP endpoint of the simulated IoT Hub, built on the proton engine. It serves the device links for telemetry,
+ * cloud to device messages, twin and methods, and the service links for cloud to device messages and file upload
+ * notifications. The feedback link is accepted, but the simulated IoT Hub does not generate feedback.
+ */
+final class AmqpEndpoint extends SocketEndpoint
+{
+    private static final int POLL_MILLIS = 20;
+    private static final int LINK_CREDIT = 100;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final Pattern DEVICE_ADDRESS = Pattern.compile("/devices/([^/]+)/(messages/events|messages/devicebound|twin|methods/devicebound)");
+    private static final String SERVICE_CLOUD_TO_DEVICE_ADDRESS = "/messages/devicebound";
+    private static final String SERVICE_FILE_NOTIFICATIONS_ADDRESS = "/messages/serviceBound/filenotifications";
+    private static final String SERVICE_FEEDBACK_ADDRESS = "/messages/servicebound/feedback";
+
+    private static final Symbol OPERATION = Symbol.getSymbol("operation");
+    private static final Symbol RESOURCE = Symbol.getSymbol("resource");
+    private static final Symbol STATUS = Symbol.getSymbol("status");
+    private static final Symbol VERSION = Symbol.getSymbol("version");
+    private static final Symbol RESOURCE_LIMIT_EXCEEDED = Symbol.getSymbol("amqp:resource-limit-exceeded");
+    private static final String DESIRED_NOTIFICATIONS = "/notifications/twin/properties/desired";
+    private static final String METHOD_NAME = "IoThub-methodname";
+    private static final String METHOD_STATUS = "IoThub-status";
+    private static final String ACK_PROPERTY = "iothub-ack";
+
+    /**
+     * What a link carries, kept as the context of the proton link.
+     */
+    private enum LinkRole
+    {
+        TELEMETRY,
+        CLOUD_TO_DEVICE,
+        TWIN,
+        METHODS,
+        SERVICE_CLOUD_TO_DEVICE,
+        SERVICE_FILE_NOTIFICATIONS,
+        SERVICE_FEEDBACK
+    }
+
+    private final IotHubSimulator simulator;
+
+    AmqpEndpoint(IotHubSimulator simulator, SSLContext sslContext, InetAddress address, int port) throws IOException
+    {
+        super("amqp", sslContext, address, port, simulator.getFaultInjector());
+        this.simulator = simulator;
+    }
+
+    @Override
+    void serve(Socket socket) throws IOException
+    {
+        new AmqpConnection(socket).run();
+    }
+
+    private final class AmqpConnection implements DeviceConnection
+    {
+        private final Socket socket;
+        private final Transport transport = Transport.Factory.create();
+        private final Connection connection = Connection.Factory.create();
+        private final Collector collector = Collector.Factory.create();
+        private final Sasl sasl;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicLong nextTag = new AtomicLong();
+
+        private volatile SimulatedDevice device;
+        private volatile boolean desiredPropertiesSubscribed;
+        private volatile Sender twinSender;
+        private volatile Sender methodsSender;
+        private Sender cloudToDeviceSender;
+        private Sender fileNotificationsSender;
+        private boolean disconnect;
+
+        private AmqpConnection(Socket socket) throws IOException
+        {
+            this.socket = socket;
+            this.sasl = this.transport.sasl();
+            this.sasl.server();
+            this.sasl.setMechanisms("PLAIN", "ANONYMOUS");
+            this.connection.collect(this.collector);
+            this.transport.bind(this.connection);
+            // a read timeout in the middle of the TLS handshake is fatal, so finish it before polling.
+            ((SSLSocket)this.socket).startHandshake();
+            this.socket.setSoTimeout(POLL_MILLIS);
+        }
+
+        private void run() throws IOException
+        {
+            InputStream input = this.socket.getInputStream();
+            OutputStream output = this.socket.getOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try
+            {
+                while (!this.disconnect)
+                {
+                    int read;
+                    try
+                    {
+                        read = input.read(buffer);
+                    }
+                    catch (SocketTimeoutException e)
+                    {
+                        read = 0;
+                    }
+
+                    if (read < 0)
+                    {
+                        this.transport.close_tail();
+                    }
+                    else
+                    {
+                        int offset = 0;
+                        while (offset < read)
+                        {
+                            ByteBuffer tail = this.transport.tail();
+                            int length = Math.min(tail.remaining(), read - offset);
+                            tail.put(buffer, offset, length);
+                            this.transport.process();
+                            offset += length;
+                        }
+                    }
+
+                    if ((this.sasl.getOutcome() == Sasl.SaslOutcome.PN_SASL_NONE) && (this.sasl.getRemoteMechanisms().length > 0))
+                    {
+                        // the simulated IoT Hub accepts any credentials.
+                        this.sasl.done(Sasl.SaslOutcome.PN_SASL_OK);
+                    }
+
+                    Runnable task;
+                    while ((task = this.tasks.poll()) != null)
+                    {
+                        task.run();
+                    }
+                    pumpCloudToDevice();
+                    pumpFileNotifications();
+
+                    Event event;
+                    while ((event = this.collector.peek()) != null)
+                    {
+                        onEvent(event);
+                        this.collector.pop();
+                    }
+
+                    int pending;
+                    while ((pending = this.transport.pending()) > 0)
+                    {
+                        ByteBuffer head = this.transport.head();
+                        byte[] bytes = new byte[pending];
+                        head.get(bytes);
+                        output.write(bytes);
+                        this.transport.pop(pending);
+                    }
+                    output.flush();
+
+                    if ((pending < 0) || this.transport.isClosed())
+                    {
+                        return;
+                    }
+                }
+            }
+            finally
+            {
+                close();
+                if (this.device != null)
+                {
+                    this.device.detach(this);
+                }
+            }
+        }
+
+        private void onEvent(Event event)
+        {
+            switch (event.getType())
+            {
+                case CONNECTION_REMOTE_OPEN:
+                    this.connection.setContainer("iothub-simulator");
+                    this.connection.open();
+                    break;
+                case SESSION_REMOTE_OPEN:
+                    event.getSession().open();
+                    break;
+                case LINK_REMOTE_OPEN:
+                    onLinkRemoteOpen(event.getLink());
+                    break;
+                case LINK_REMOTE_CLOSE:
+                    event.getLink().close();
+                    break;
+                case SESSION_REMOTE_CLOSE:
+                    event.getSession().close();
+                    break;
+                case CONNECTION_REMOTE_CLOSE:
+                    this.connection.close();
+                    break;
+                case DELIVERY:
+                    if (event.getLink() instanceof Receiver)
+                    {
+                        onMessage((Receiver)event.getLink(), event.getDelivery());
+                    }
+                    else
+                    {
+                        onDisposition(event.getDelivery());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void onLinkRemoteOpen(Link link)
+        {
+            if (link.getLocalState() != EndpointState.UNINITIALIZED)
+            {
+                return;
+            }
+
+            link.setSource(link.getRemoteSource());
+            link.setTarget(link.getRemoteTarget());
+            boolean isSender = link instanceof Sender;
+            String address = isSender ? ((Source)link.getRemoteSource()).getAddress() : ((Target)link.getRemoteTarget()).getAddress();
+            LinkRole role = null;
+            Matcher matcher = DEVICE_ADDRESS.matcher((address == null) ? "" : address);
+            if (matcher.matches())
+            {
+                if (this.device == null)
+                {
+                    this.device = simulator.getDevice(matcher.group(1));
+                    this.device.attach(this);
+                }
+
+                switch (matcher.group(2))
+                {
+                    case "messages/events":
+                        role = isSender ? null : LinkRole.TELEMETRY;
+                        break;
+                    case "messages/devicebound":
+                        role = isSender ? LinkRole.CLOUD_TO_DEVICE : null;
+                        break;
+                    case "twin":
+                        role = LinkRole.TWIN;
+                        break;
+                    default:
+                        role = LinkRole.METHODS;
+                        break;
+                }
+            }
+            else if (SERVICE_CLOUD_TO_DEVICE_ADDRESS.equals(address) && !isSender)
+            {
+                role = LinkRole.SERVICE_CLOUD_TO_DEVICE;
+            }
+            else if (SERVICE_FILE_NOTIFICATIONS_ADDRESS.equals(address) && isSender)
+            {
+                role = LinkRole.SERVICE_FILE_NOTIFICATIONS;
+            }
+            else if (SERVICE_FEEDBACK_ADDRESS.equals(address) && isSender)
+            {
+                role = LinkRole.SERVICE_FEEDBACK;
+            }
+
+            if (role == null)
+            {
+                link.setCondition(new ErrorCondition(Symbol.getSymbol("amqp:not-found"), "unknown address " + address));
+                link.open();
+                link.close();
+                return;
+            }
+
+            link.setContext(role);
+            link.open();
+            if (!isSender)
+            {
+                ((Receiver)link).flow(LINK_CREDIT);
+            }
+            else if (role == LinkRole.CLOUD_TO_DEVICE)
+            {
+                this.cloudToDeviceSender = (Sender)link;
+            }
+            else if (role == LinkRole.TWIN)
+            {
+                this.twinSender = (Sender)link;
+            }
+            else if (role == LinkRole.METHODS)
+            {
+                this.methodsSender = (Sender)link;
+            }
+            else if (role == LinkRole.SERVICE_FILE_NOTIFICATIONS)
+            {
+                this.fileNotificationsSender = (Sender)link;
+            }
+        }
+
+        private void onMessage(Receiver receiver, Delivery delivery)
+        {
+            if (!delivery.isReadable() || delivery.isPartial())
+            {
+                return;
+            }
+
+            byte[] bytes = new byte[delivery.pending()];
+            int read = receiver.recv(bytes, 0, bytes.length);
+            receiver.advance();
+            Message message = Proton.message();
+            message.decode(bytes, 0, read);
+            if (receiver.getCredit() < (LINK_CREDIT / 2))
+            {
+                receiver.flow(LINK_CREDIT - receiver.getCredit());
+            }
+
+            FaultInjector faultInjector = getFaultInjector();
+            faultInjector.delay();
+            FaultInjector.Fault fault = faultInjector.nextOperation();
+            if (fault == FaultInjector.Fault.DISCONNECT)
+            {
+                this.disconnect = true;
+                return;
+            }
+
+            if (fault == FaultInjector.Fault.THROTTLE)
+            {
+                Rejected rejected = new Rejected();
+                rejected.setError(new ErrorCondition(RESOURCE_LIMIT_EXCEEDED, "the simulated IoT Hub throttled the request"));
+                delivery.disposition(rejected);
+                delivery.settle();
+                return;
+            }
+
+            switch ((LinkRole)receiver.getContext())
+            {
+                case TELEMETRY:
+                    this.device.addTelemetry(toSimulatedMessage(message));
+                    break;
+                case TWIN:
+                    onTwinRequest(message);
+                    break;
+                case METHODS:
+                    onMethodResponse(message);
+                    break;
+                case SERVICE_CLOUD_TO_DEVICE:
+                    Matcher matcher = DEVICE_ADDRESS.matcher(String.valueOf(message.getAddress()));
+                    if (matcher.matches())
+                    {
+                        simulator.getDevice(matcher.group(1)).enqueueCloudToDevice(toSimulatedMessage(message));
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            delivery.disposition(Accepted.getInstance());
+            delivery.settle();
+        }
+
+        private void onDisposition(Delivery delivery)
+        {
+            DeliveryState state = delivery.getRemoteState();
+            if ((state == null) || delivery.isSettled())
+            {
+                return;
+            }
+
+            Object context = delivery.getContext();
+            if ((context instanceof SimulatedMessage) && !(state instanceof Accepted) && !(state instanceof Rejected))
+            {
+                // released or modified, the IoT Hub delivers the message again.
+                this.device.abandonCloudToDevice((SimulatedMessage)context);
+            }
+            delivery.settle();
+        }
+
+        private void onTwinRequest(Message request)
+        {
+            Map<Symbol, Object> annotations = (request.getMessageAnnotations() == null)
+                    ? new HashMap<Symbol, Object>() : request.getMessageAnnotations().getValue();
+            String operation = String.valueOf(annotations.get(OPERATION));
+            String resource = String.valueOf(annotations.get(RESOURCE));
+            Object correlationId = request.getCorrelationId();
+
+            int status = 200;
+            byte[] body = new byte[0];
+            Integer version = null;
+            switch (operation)
+            {
+                case "GET":
+                    body = this.device.getDeviceTwin().getBytes(StandardCharsets.UTF_8);
+                    break;
+                case "PATCH":
+                    JsonObject patch = new JsonParser().parse(new String(getBody(request), StandardCharsets.UTF_8)).getAsJsonObject();
+                    version = this.device.updateReportedProperties(patch);
+                    status = 204;
+                    break;
+                case "PUT":
+                    this.desiredPropertiesSubscribed = DESIRED_NOTIFICATIONS.equals(resource) || this.desiredPropertiesSubscribed;
+                    break;
+                case "DELETE":
+                    this.desiredPropertiesSubscribed = !DESIRED_NOTIFICATIONS.equals(resource) && this.desiredPropertiesSubscribed;
+                    break;
+                default:
+                    status = 400;
+                    break;
+            }
+
+            Map<Symbol, Object> responseAnnotations = new HashMap<>();
+            responseAnnotations.put(STATUS, status);
+            if (version != null)
+            {
+                responseAnnotations.put(VERSION, (long)version);
+            }
+            Message response = Proton.message();
+            Properties properties = new Properties();
+            properties.setCorrelationId(correlationId);
+            response.setProperties(properties);
+            response.setMessageAnnotations(new MessageAnnotations(responseAnnotations));
+            response.setBody(new Data(new Binary(body)));
+            send(this.twinSender, response, null);
+        }
+
+        private void onMethodResponse(Message response)
+        {
+            Map<String, Object> applicationProperties = (response.getApplicationProperties() == null)
+                    ? new HashMap<String, Object>() : response.getApplicationProperties().getValue();
+            Object status = applicationProperties.get(METHOD_STATUS);
+            this.device.completeMethod(String.valueOf(response.getCorrelationId()),
+                    (status == null) ? 500 : Integer.parseInt(status.toString()),
+                    new String(getBody(response), StandardCharsets.UTF_8));
+        }
+
+        private void pumpCloudToDevice()
+        {
+            Sender sender = this.cloudToDeviceSender;
+            if ((sender == null) || (sender.getLocalState() != EndpointState.ACTIVE))
+            {
+                return;
+            }
+
+            SimulatedMessage message;
+            while ((sender.getCredit() > 0) && ((message = this.device.pollCloudToDevice()) != null))
+            {
+                Message protonMessage = toProtonMessage(message);
+                protonMessage.setAddress("/devices/" + this.device.getDeviceId() + "/messages/devicebound");
+                send(sender, protonMessage, message);
+            }
+        }
+
+        private void pumpFileNotifications()
+        {
+            Sender sender = this.fileNotificationsSender;
+            if ((sender == null) || (sender.getLocalState() != EndpointState.ACTIVE))
+            {
+                return;
+            }
+
+            String notification;
+            while ((sender.getCredit() > 0) && ((notification = simulator.pollFileUploadNotification()) != null))
+            {
+                Message message = Proton.message();
+                message.setBody(new Data(new Binary(notification.getBytes(StandardCharsets.UTF_8))));
+                send(sender, message, null);
+            }
+        }
+
+        /**
+         * Sends a message on a link. The messages with a context wait for the disposition of the client, the
+         * others are sent settled.
+         */
+        private void send(Sender sender, Message message, Object context)
+        {
+            if ((sender == null) || (sender.getLocalState() != EndpointState.ACTIVE))
+            {
+                return;
+            }
+
+            byte[] bytes = new byte[1024];
+            int length;
+            while (true)
+            {
+                try
+                {
+                    length = message.encode(bytes, 0, bytes.length);
+                    break;
+                }
+                catch (BufferOverflowException e)
+                {
+                    bytes = new byte[bytes.length * 2];
+                }
+            }
+
+            Delivery delivery = sender.delivery(Long.toString(this.nextTag.incrementAndGet()).getBytes(StandardCharsets.UTF_8));
+            delivery.setContext(context);
+            sender.send(bytes, 0, length);
+            if (context == null)
+            {
+                delivery.settle();
+            }
+            sender.advance();
+        }
+
+        @Override
+        public void onCloudToDeviceMessage()
+        {
+            // the connection thread takes the cloud to device messages when the link has credit.
+        }
+
+        @Override
+        public boolean onDesiredProperties(String patch, final int version)
+        {
+            if (!this.desiredPropertiesSubscribed || (this.twinSender == null))
+            {
+                return false;
+            }
+
+            final Message message = Proton.message();
+            message.setProperties(new Properties());
+            Map<Symbol, Object> annotations = new HashMap<>();
+            annotations.put(VERSION, (long)version);
+            message.setMessageAnnotations(new MessageAnnotations(annotations));
+            message.setBody(new Data(new Binary(patch.getBytes(StandardCharsets.UTF_8))));
+            this.tasks.add(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    send(twinSender, message, null);
+                }
+            });
+            return true;
+        }
+
+        @Override
+        public boolean onMethodInvocation(MethodInvocation invocation)
+        {
+            if (this.methodsSender == null)
+            {
+                return false;
+            }
+
+            final Message message = Proton.message();
+            Properties properties = new Properties();
+            properties.setCorrelationId(UUID.fromString(invocation.getRequestId()));
+            message.setProperties(properties);
+            Map<String, Object> applicationProperties = new HashMap<>();
+            applicationProperties.put(METHOD_NAME, invocation.getMethodName());
+            message.setApplicationProperties(new ApplicationProperties(applicationProperties));
+            String payload = (invocation.getPayload() == null) ? "" : invocation.getPayload();
+            message.setBody(new Data(new Binary(payload.getBytes(StandardCharsets.UTF_8))));
+            this.tasks.add(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    send(methodsSender, message, null);
+                }
+            });
+            return true;
+        }
+
+        @Override
+        public void close()
+        {
+            closeQuietly(this.socket);
+        }
+    }
+
+    private static SimulatedMessage toSimulatedMessage(Message message)
+    {
+        SimulatedMessage simulatedMessage = new SimulatedMessage(getBody(message));
+        if (message.getMessageId() != null)
+        {
+            simulatedMessage.setMessageId(message.getMessageId().toString());
+        }
+        if (message.getCorrelationId() != null)
+        {
+            simulatedMessage.setCorrelationId(message.getCorrelationId().toString());
+        }
+        if (message.getApplicationProperties() != null)
+        {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> applicationProperties = message.getApplicationProperties().getValue();
+            for (Map.Entry<String, Object> property : applicationProperties.entrySet())
+            {
+                if (ACK_PROPERTY.equals(property.getKey()))
+                {
+                    // the feedback request is for the IoT Hub, it never reaches the device.
+                    continue;
+                }
+                simulatedMessage.setProperty(property.getKey(), String.valueOf(property.getValue()));
+            }
+        }
+        return simulatedMessage;
+    }
+
+    private static Message toProtonMessage(SimulatedMessage message)
+    {
+        Message protonMessage = Proton.message();
+        Properties properties = new Properties();
+        properties.setMessageId(message.getMessageId());
+        properties.setCorrelationId(message.getCorrelationId());
+        protonMessage.setProperties(properties);
+        protonMessage.setApplicationProperties(new ApplicationProperties(new HashMap<String, Object>(message.getProperties())));
+        protonMessage.setBody(new Data(new Binary(message.getBody())));
+        return protonMessage;
+    }
+
+    private static byte[] getBody(Message message)
+    {
+        if (message.getBody() instanceof Data)
+        {
+            Binary binary = ((Data)message.getBody()).getValue();
+            byte[] body = new byte[binary.getLength()];
+            System.arraycopy(binary.getArray(), binary.getArrayOffset(), body, 0, body.length);
+            return body;
+        }
+        return new byte[0];
+    }
+}
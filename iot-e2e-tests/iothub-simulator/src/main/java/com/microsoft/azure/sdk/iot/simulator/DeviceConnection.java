@@ -0,0 +1,41 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+/**
+ * A device connection to one of the endpoints of the simulated IoT Hub, used to push the cloud to device
+ * messages, the desired properties and the method invocations to the device.
+ */
+interface DeviceConnection
+{
+    /**
+     * Notifies the connection that there is a cloud to device message waiting for the device. The connection
+     * shall take it from the device queue once it can deliver it.
+     */
+    void onCloudToDeviceMessage();
+
+    /**
+     * Sends a desired properties patch to the device, if the device subscribed to them on this connection.
+     *
+     * @param patch the desired properties patch, with the new version.
+     * @param version the new version of the desired properties.
+     * @return {@code true} if the patch was sent.
+     */
+    boolean onDesiredProperties(String patch, int version);
+
+    /**
+     * Sends a method invocation to the device, if the device subscribed to the methods on this connection.
+     *
+     * @param invocation the method invocation.
+     * @return {@code true} if the invocation was sent.
+     */
+    boolean onMethodInvocation(MethodInvocation invocation);
+
+    /**
+     * Closes the connection without notifying the device.
+     */
+    void close();
+}
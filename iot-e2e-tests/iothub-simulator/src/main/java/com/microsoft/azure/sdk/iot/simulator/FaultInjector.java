@@ -0,0 +1,178 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Configures the latency, throttling and disconnects that the simulated IoT Hub injects in every endpoint. It can
+ * be changed while the clients are connected, so a test can, for example, start a reconnect storm in the middle of
+ * a load run.
+ *
+ * <p>Every request from a client is one operation: a telemetry message, a twin request, a method response, or an
+ * HTTPS request. The faults are applied to every n-th operation, so the runs are repeatable.
+ */
+public final class FaultInjector
+{
+    /**
+     * The fault that the simulated IoT Hub shall apply to an operation.
+     */
+    enum Fault
+    {
+        NONE,
+        THROTTLE,
+        DISCONNECT
+    }
+
+    private final AtomicLong operations = new AtomicLong();
+    private final Random random = new Random();
+
+    private volatile long minLatencyMillis;
+    private volatile long maxLatencyMillis;
+    private volatile int throttleEvery;
+    private volatile int disconnectEvery;
+    private volatile boolean refuseConnections;
+
+    /**
+     * Sets the latency added to every response of the simulated IoT Hub. Each response waits a random time between
+     * the minimum and the maximum.
+     *
+     * @param minLatencyMillis the minimum latency in milliseconds.
+     * @param maxLatencyMillis the maximum latency in milliseconds.
+     * @throws IllegalArgumentException if the minimum is negative or bigger than the maximum.
+     */
+    public void setLatency(long minLatencyMillis, long maxLatencyMillis) throws IllegalArgumentException
+    {
+        if ((minLatencyMillis < 0) || (minLatencyMillis > maxLatencyMillis))
+        {
+            throw new IllegalArgumentException("latency range is invalid");
+        }
+
+        this.minLatencyMillis = minLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * Throttles every n-th operation. Throttled HTTPS requests fail with 429, AMQP deliveries are rejected with
+     * {@code amqp:resource-limit-exceeded}, MQTT twin requests fail with 429, and MQTT telemetry is acknowledged
+     * after one second, as the IoT Hub slows down the MQTT clients over the limit.
+     *
+     * @param throttleEvery the operation interval, or 0 to stop throttling.
+     * @throws IllegalArgumentException if the interval is negative.
+     */
+    public void setThrottleEvery(int throttleEvery) throws IllegalArgumentException
+    {
+        if (throttleEvery < 0)
+        {
+            throw new IllegalArgumentException("throttleEvery cannot be negative");
+        }
+
+        this.throttleEvery = throttleEvery;
+    }
+
+    /**
+     * Closes the connection that carries every n-th operation, without responding to it.
+     *
+     * @param disconnectEvery the operation interval, or 0 to stop disconnecting.
+     * @throws IllegalArgumentException if the interval is negative.
+     */
+    public void setDisconnectEvery(int disconnectEvery) throws IllegalArgumentException
+    {
+        if (disconnectEvery < 0)
+        {
+            throw new IllegalArgumentException("disconnectEvery cannot be negative");
+        }
+
+        this.disconnectEvery = disconnectEvery;
+    }
+
+    /**
+     * Refuses or accepts new connections, to keep the clients retrying during an outage.
+     *
+     * @param refuseConnections {@code true} to refuse the new connections.
+     */
+    public void setRefuseConnections(boolean refuseConnections)
+    {
+        this.refuseConnections = refuseConnections;
+    }
+
+    /**
+     * Removes all faults.
+     */
+    public void reset()
+    {
+        this.minLatencyMillis = 0;
+        this.maxLatencyMillis = 0;
+        this.throttleEvery = 0;
+        this.disconnectEvery = 0;
+        this.refuseConnections = false;
+        this.operations.set(0);
+    }
+
+    boolean isRefusingConnections()
+    {
+        return this.refuseConnections;
+    }
+
+    /**
+     * Counts a new operation and returns the fault to apply to it.
+     *
+     * @return the fault for the operation.
+     */
+    Fault nextOperation()
+    {
+        long operation = this.operations.incrementAndGet();
+        int disconnectInterval = this.disconnectEvery;
+        int throttleInterval = this.throttleEvery;
+
+        if ((disconnectInterval > 0) && ((operation % disconnectInterval) == 0))
+        {
+            return Fault.DISCONNECT;
+        }
+
+        if ((throttleInterval > 0) && ((operation % throttleInterval) == 0))
+        {
+            return Fault.THROTTLE;
+        }
+
+        return Fault.NONE;
+    }
+
+    /**
+     * Waits the configured latency before a response.
+     */
+    void delay()
+    {
+        long min = this.minLatencyMillis;
+        long max = this.maxLatencyMillis;
+        if (max > 0)
+        {
+            long latency = min;
+            if (max > min)
+            {
+                synchronized (this.random)
+                {
+                    latency += (long)(this.random.nextDouble() * (max - min));
+                }
+            }
+
+            sleep(latency);
+        }
+    }
+
+    static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
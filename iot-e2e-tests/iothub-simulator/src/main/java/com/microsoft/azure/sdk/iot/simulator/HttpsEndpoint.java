@@ -0,0 +1,567 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import javax.net.ssl.SSLContext;
+import javax.xml.bind.DatatypeConverter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * HTTPS endpoint of the simulated IoT Hub. It serves the device REST API for telemetry, cloud to device messages
+ * and file upload, the service REST API for twins, methods and the device registry, and a minimal blob storage
+ * that accepts the file uploads with the SAS returned by the file upload request.
+ */
+final class HttpsEndpoint implements Closeable
+{
+    static final String BLOB_CONTAINER = "iothub-simulator";
+
+    private static final Pattern DEVICE_EVENTS = Pattern.compile("/devices/([^/]+)/messages/events");
+    private static final Pattern DEVICE_CLOUD_TO_DEVICE = Pattern.compile("/devices/([^/]+)/messages/devicebound(?:/([^/]+)(/abandon)?)?");
+    private static final Pattern DEVICE_FILES = Pattern.compile("/devices/([^/]+)/files(/notifications)?");
+    private static final Pattern SERVICE_TWIN = Pattern.compile("/twins/([^/]+)(/methods)?");
+    private static final Pattern SERVICE_DEVICE = Pattern.compile("/devices/([^/]+)");
+    private static final Pattern BLOB = Pattern.compile("/" + BLOB_CONTAINER + "/(.+)");
+    private static final Pattern BLOCK_ID = Pattern.compile("<(?:Latest|Committed|Uncommitted)>([^<]*)</");
+
+    private static final String BATCH_CONTENT_TYPE = "application/vnd.microsoft.iothub.json";
+    private static final String APP_PROPERTY_PREFIX = "iothub-app-";
+    private static final String MESSAGE_ID = "iothub-messageid";
+    private static final String CORRELATION_ID = "iothub-correlationid";
+    private static final String SAS_TOKEN = "?sv=2016-05-31&sr=b&sp=rw&se=2099-01-01T00%3A00%3A00Z&sig=c2ltdWxhdGVk";
+    private static final String THROTTLED = "{\"Message\":\"ErrorCode:ThrottlingException;the simulated IoT Hub throttled the request\"}";
+
+    private final IotHubSimulator simulator;
+    private final String hostName;
+    private final HttpsServer server;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, LockedMessage> lockedMessages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, JsonObject> registry = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Map<String, byte[]>> uncommittedBlocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> pendingUploads = new ConcurrentHashMap<>();
+
+    private static final class LockedMessage
+    {
+        private final SimulatedDevice device;
+        private final SimulatedMessage message;
+
+        private LockedMessage(SimulatedDevice device, SimulatedMessage message)
+        {
+            this.device = device;
+            this.message = message;
+        }
+    }
+
+    HttpsEndpoint(IotHubSimulator simulator, SSLContext sslContext, String hostName, InetAddress address, int port) throws IOException
+    {
+        this.simulator = simulator;
+        this.server = HttpsServer.create(new InetSocketAddress(address, port), 0);
+        this.server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "iothub-simulator-https-" + this.count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                try
+                {
+                    dispatch(exchange);
+                }
+                catch (JsonParseException | IllegalStateException | IllegalArgumentException e)
+                {
+                    respond(exchange, 400, "{\"Message\":\"" + e.getClass().getSimpleName() + "\"}");
+                }
+                finally
+                {
+                    exchange.close();
+                }
+            }
+        });
+        int localPort = this.server.getAddress().getPort();
+        this.hostName = (localPort == 443) ? hostName : (hostName + ":" + localPort);
+    }
+
+    void start()
+    {
+        this.server.start();
+    }
+
+    int getPort()
+    {
+        return this.server.getAddress().getPort();
+    }
+
+    @Override
+    public void close()
+    {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException
+    {
+        String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8.name());
+        String query = exchange.getRequestURI().getRawQuery();
+        String method = exchange.getRequestMethod();
+        String methodOverride = exchange.getRequestHeaders().getFirst("X-HTTP-Method-Override");
+        if (methodOverride != null)
+        {
+            method = methodOverride;
+        }
+        byte[] body = readBody(exchange.getRequestBody());
+
+        Matcher blob = BLOB.matcher(path);
+        if (blob.matches() && "PUT".equals(method))
+        {
+            // the blob storage is not part of the IoT Hub, so it is not throttled.
+            onBlob(exchange, blob.group(1), (query == null) ? "" : query, body);
+            return;
+        }
+
+        FaultInjector faultInjector = this.simulator.getFaultInjector();
+        if (faultInjector.isRefusingConnections())
+        {
+            respond(exchange, 503, "{\"Message\":\"ErrorCode:ServerBusy;the simulated IoT Hub is unavailable\"}");
+            return;
+        }
+        faultInjector.delay();
+        FaultInjector.Fault fault = faultInjector.nextOperation();
+        if (fault == FaultInjector.Fault.DISCONNECT)
+        {
+            // closing the exchange without a response drops the connection.
+            return;
+        }
+        if (fault == FaultInjector.Fault.THROTTLE)
+        {
+            respond(exchange, 429, THROTTLED);
+            return;
+        }
+
+        Matcher matcher;
+        if ((matcher = DEVICE_EVENTS.matcher(path)).matches() && "POST".equals(method))
+        {
+            onTelemetry(exchange, this.simulator.getDevice(matcher.group(1)), body);
+        }
+        else if ((matcher = DEVICE_CLOUD_TO_DEVICE.matcher(path)).matches())
+        {
+            onCloudToDevice(exchange, method, matcher.group(1), matcher.group(2), matcher.group(3) != null);
+        }
+        else if ((matcher = DEVICE_FILES.matcher(path)).matches() && "POST".equals(method))
+        {
+            JsonObject request = parseObject(body);
+            if (matcher.group(2) == null)
+            {
+                onFileUploadRequest(exchange, request);
+            }
+            else
+            {
+                onFileUploadNotification(exchange, matcher.group(1), request);
+            }
+        }
+        else if ((matcher = SERVICE_TWIN.matcher(path)).matches())
+        {
+            SimulatedDevice device = this.simulator.getDevice(matcher.group(1));
+            if (matcher.group(2) != null)
+            {
+                onMethod(exchange, device, parseObject(body));
+            }
+            else
+            {
+                onTwin(exchange, method, device, body);
+            }
+        }
+        else if ((matcher = SERVICE_DEVICE.matcher(path)).matches())
+        {
+            onRegistry(exchange, method, matcher.group(1), body);
+        }
+        else
+        {
+            respond(exchange, 404, "{\"Message\":\"ErrorCode:NotFound;" + method + " " + path + "\"}");
+        }
+    }
+
+    private void onTelemetry(HttpExchange exchange, SimulatedDevice device, byte[] body) throws IOException
+    {
+        Headers headers = exchange.getRequestHeaders();
+        String contentType = headers.getFirst("Content-Type");
+        if ((contentType != null) && contentType.startsWith(BATCH_CONTENT_TYPE))
+        {
+            JsonArray batch = new JsonParser().parse(new String(body, StandardCharsets.UTF_8)).getAsJsonArray();
+            for (JsonElement element : batch)
+            {
+                JsonObject json = element.getAsJsonObject();
+                String messageBody = json.get("body").getAsString();
+                boolean base64Encoded = json.has("base64Encoded") && json.get("base64Encoded").getAsBoolean();
+                SimulatedMessage message = new SimulatedMessage(base64Encoded
+                        ? DatatypeConverter.parseBase64Binary(messageBody) : messageBody.getBytes(StandardCharsets.UTF_8));
+                if (json.has("properties"))
+                {
+                    for (Map.Entry<String, JsonElement> property : json.getAsJsonObject("properties").entrySet())
+                    {
+                        setProperty(message, property.getKey(), property.getValue().getAsString());
+                    }
+                }
+                device.addTelemetry(message);
+            }
+        }
+        else
+        {
+            SimulatedMessage message = new SimulatedMessage(body);
+            for (Map.Entry<String, java.util.List<String>> header : headers.entrySet())
+            {
+                setProperty(message, header.getKey(), header.getValue().get(0));
+            }
+            device.addTelemetry(message);
+        }
+
+        respondEmpty(exchange, 204);
+    }
+
+    private void onCloudToDevice(HttpExchange exchange, String method, String deviceId, String etag, boolean abandon) throws IOException
+    {
+        if (etag == null)
+        {
+            SimulatedDevice device = this.simulator.getDevice(deviceId);
+            SimulatedMessage message = device.pollCloudToDevice();
+            if (message == null)
+            {
+                respondEmpty(exchange, 204);
+                return;
+            }
+
+            String lockToken = UUID.randomUUID().toString();
+            this.lockedMessages.put(lockToken, new LockedMessage(device, message));
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", "\"" + lockToken + "\"");
+            if (message.getMessageId() != null)
+            {
+                headers.set(MESSAGE_ID, message.getMessageId());
+            }
+            if (message.getCorrelationId() != null)
+            {
+                headers.set(CORRELATION_ID, message.getCorrelationId());
+            }
+            for (Map.Entry<String, String> property : message.getProperties().entrySet())
+            {
+                headers.set(APP_PROPERTY_PREFIX + property.getKey(), property.getValue());
+            }
+            respond(exchange, 200, message.getBody());
+            return;
+        }
+
+        LockedMessage locked = this.lockedMessages.remove(etag);
+        if (locked == null)
+        {
+            respond(exchange, 412, "{\"Message\":\"ErrorCode:DeviceMessageLockLost;the lock token is not valid\"}");
+            return;
+        }
+
+        if (abandon || !"DELETE".equals(method))
+        {
+            locked.device.abandonCloudToDevice(locked.message);
+        }
+        respondEmpty(exchange, 204);
+    }
+
+    private void onFileUploadRequest(HttpExchange exchange, JsonObject request) throws IOException
+    {
+        String correlationId = UUID.randomUUID().toString();
+        String blobName = request.get("blobName").getAsString();
+        this.pendingUploads.put(correlationId, blobName);
+        JsonObject response = new JsonObject();
+        response.addProperty("correlationId", correlationId);
+        response.addProperty("hostName", this.hostName);
+        response.addProperty("containerName", BLOB_CONTAINER);
+        response.addProperty("blobName", blobName);
+        response.addProperty("sasToken", SAS_TOKEN);
+        respond(exchange, 200, response.toString());
+    }
+
+    private void onFileUploadNotification(HttpExchange exchange, String deviceId, JsonObject request) throws IOException
+    {
+        String blobName = this.pendingUploads.remove(request.get("correlationId").getAsString());
+        if ((blobName != null) && request.has("isSuccess") && request.get("isSuccess").getAsBoolean())
+        {
+            byte[] blob = this.simulator.getBlob(blobName);
+            String now = formatDate(new Date(), "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+            JsonObject notification = new JsonObject();
+            notification.addProperty("deviceId", deviceId);
+            notification.addProperty("blobUri", "https://" + this.hostName + "/" + BLOB_CONTAINER + "/" + blobName);
+            notification.addProperty("blobName", blobName);
+            notification.addProperty("lastUpdatedTime", now);
+            notification.addProperty("blobSizeInBytes", (blob == null) ? 0 : blob.length);
+            notification.addProperty("enqueuedTimeUtc", now);
+            this.simulator.addFileUploadNotification(notification.toString());
+        }
+        respondEmpty(exchange, 204);
+    }
+
+    private void onBlob(HttpExchange exchange, String blobName, String query, byte[] body) throws IOException
+    {
+        Map<String, String> parameters = parseQuery(query);
+        String operation = parameters.get("comp");
+        if ("block".equals(operation))
+        {
+            Map<String, byte[]> blocks = this.uncommittedBlocks.get(blobName);
+            if (blocks == null)
+            {
+                this.uncommittedBlocks.putIfAbsent(blobName, new ConcurrentHashMap<String, byte[]>());
+                blocks = this.uncommittedBlocks.get(blobName);
+            }
+            blocks.put(parameters.get("blockid"), body);
+        }
+        else if ("blocklist".equals(operation))
+        {
+            Map<String, byte[]> blocks = this.uncommittedBlocks.remove(blobName);
+            ByteArrayOutputStream blob = new ByteArrayOutputStream();
+            Matcher blockId = BLOCK_ID.matcher(new String(body, StandardCharsets.UTF_8));
+            while (blockId.find())
+            {
+                byte[] block = (blocks == null) ? null : blocks.get(blockId.group(1));
+                if (block == null)
+                {
+                    respond(exchange, 400, "<Error><Code>InvalidBlockList</Code></Error>");
+                    return;
+                }
+                blob.write(block);
+            }
+            this.simulator.putBlob(blobName, blob.toByteArray());
+        }
+        else
+        {
+            this.simulator.putBlob(blobName, body);
+        }
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", "\"0x" + Long.toHexString(System.nanoTime()).toUpperCase(Locale.US) + "\"");
+        headers.set("Last-Modified", formatDate(new Date(), "EEE, dd MMM yyyy HH:mm:ss 'GMT'"));
+        headers.set("x-ms-request-id", UUID.randomUUID().toString());
+        headers.set("x-ms-version", "2016-05-31");
+        headers.set("x-ms-request-server-encrypted", "false");
+        respondEmpty(exchange, 201);
+    }
+
+    private void onTwin(HttpExchange exchange, String method, SimulatedDevice device, byte[] body) throws IOException
+    {
+        if ("PATCH".equals(method) || "PUT".equals(method))
+        {
+            JsonObject twin = parseObject(body);
+            if (twin.has("tags") && twin.get("tags").isJsonObject())
+            {
+                device.updateTags(twin.getAsJsonObject("tags"));
+            }
+            if (twin.has("properties") && twin.getAsJsonObject("properties").has("desired"))
+            {
+                device.updateDesiredProperties(twin.getAsJsonObject("properties").getAsJsonObject("desired"));
+            }
+        }
+        else if (!"GET".equals(method))
+        {
+            respondEmpty(exchange, 405);
+            return;
+        }
+
+        respond(exchange, 200, device.getTwin());
+    }
+
+    private void onMethod(HttpExchange exchange, SimulatedDevice device, JsonObject request) throws IOException
+    {
+        long timeoutSeconds = request.has("responseTimeoutInSeconds") ? request.get("responseTimeoutInSeconds").getAsLong() : 30;
+        JsonElement payload = request.get("payload");
+        MethodResult result;
+        try
+        {
+            result = device.invokeMethod(request.get("methodName").getAsString(),
+                    ((payload == null) || payload.isJsonNull()) ? null : payload.toString(), timeoutSeconds * 1000);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            respondEmpty(exchange, 503);
+            return;
+        }
+
+        if (result == null)
+        {
+            respond(exchange, 404, "{\"Message\":\"{\\\"errorCode\\\":404103,\\\"message\\\":\\\"Timed out waiting for device to connect or respond.\\\"}\"}");
+            return;
+        }
+
+        JsonObject response = new JsonObject();
+        response.addProperty("status", result.getStatus());
+        try
+        {
+            response.add("payload", new JsonParser().parse(result.getPayload()));
+        }
+        catch (JsonParseException e)
+        {
+            response.addProperty("payload", result.getPayload());
+        }
+        respond(exchange, 200, response.toString());
+    }
+
+    private void onRegistry(HttpExchange exchange, String method, String deviceId, byte[] body) throws IOException
+    {
+        JsonObject device;
+        switch (method)
+        {
+            case "PUT":
+                device = parseObject(body);
+                device.addProperty("deviceId", deviceId);
+                device.addProperty("generationId", Long.toString(System.nanoTime()));
+                device.addProperty("etag", "MA==");
+                this.registry.put(deviceId, device);
+                this.simulator.getDevice(deviceId);
+                respond(exchange, 200, device.toString());
+                break;
+            case "GET":
+                device = this.registry.get(deviceId);
+                if (device == null)
+                {
+                    respond(exchange, 404, "{\"Message\":\"ErrorCode:DeviceNotFound;" + deviceId + "\"}");
+                }
+                else
+                {
+                    respond(exchange, 200, device.toString());
+                }
+                break;
+            case "DELETE":
+                this.registry.remove(deviceId);
+                respondEmpty(exchange, 204);
+                break;
+            default:
+                respondEmpty(exchange, 405);
+                break;
+        }
+    }
+
+    private static void setProperty(SimulatedMessage message, String name, String value)
+    {
+        String lowerCaseName = name.toLowerCase(Locale.US);
+        if (lowerCaseName.equals(MESSAGE_ID))
+        {
+            message.setMessageId(value);
+        }
+        else if (lowerCaseName.equals(CORRELATION_ID))
+        {
+            message.setCorrelationId(value);
+        }
+        else if (lowerCaseName.startsWith(APP_PROPERTY_PREFIX))
+        {
+            message.setProperty(name.substring(APP_PROPERTY_PREFIX.length()), value);
+        }
+    }
+
+    private static JsonObject parseObject(byte[] body)
+    {
+        return new JsonParser().parse(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    private static Map<String, String> parseQuery(String query) throws IOException
+    {
+        Map<String, String> parameters = new HashMap<>();
+        for (String parameter : query.split("&"))
+        {
+            int separator = parameter.indexOf('=');
+            if (separator > 0)
+            {
+                parameters.put(parameter.substring(0, separator), URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8.name()));
+            }
+        }
+        return parameters;
+    }
+
+    private static String formatDate(Date date, String pattern)
+    {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(pattern, Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat.format(date);
+    }
+
+    private static byte[] readBody(InputStream input) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) > 0)
+        {
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    private static void respondEmpty(HttpExchange exchange, int status) throws IOException
+    {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException
+    {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException
+    {
+        if (body.length == 0)
+        {
+            exchange.sendResponseHeaders(status, -1);
+        }
+        else
+        {
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream output = exchange.getResponseBody())
+            {
+                output.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process stand-in for an IoT Hub, to run the load, latency and reconnect tests of the device and service
+ * clients offline. It serves MQTT, AMQP and HTTPS with the IoT Hub topics, links and REST paths for telemetry,
+ * cloud to device messages, twin, methods and file upload, and injects the latency, throttling and disconnects
+ * configured in its {@link FaultInjector}.
+ *
+ * <p>The clients use the fixed IoT Hub ports, so by default the simulator listens on 8883, 5671 and 443 of
+ * {@code 127.0.0.1}. Binding the privileged port 443 needs root or the CAP_NET_BIND_SERVICE capability, and
+ * {@link #start()} fails fast with a {@link BindException} that says so; the clients cannot be pointed at another
+ * port, so a test that does not need HTTPS disables it with {@code setHttpsPort(-1)}. The device clients shall trust
+ * the certificate in {@link #getCertificatePath()}, which {@link SimulatorTrust} does on all protocols before the
+ * client opens. The HTTPS clients of the service, and the blob uploads, shall trust {@link #getSslContext()}. The
+ * simulator accepts any credentials, and creates the devices on their first use.
+ *
+ * <pre>
+ * {@code
+ * try (IotHubSimulator simulator = new IotHubSimulator())
+ * {
+ *     simulator.start();
+ *     simulator.getFaultInjector().setLatency(5, 20);
+ *     DeviceClient client = new DeviceClient(simulator.getDeviceConnectionString("device1"), IotHubClientProtocol.AMQPS);
+ *     SimulatorTrust.trustCertificate(client, simulator.getCertificatePath());
+ *     client.open();
+ *     ...
+ * }
+ * }
+ * </pre>
+ */
+public final class IotHubSimulator implements Closeable
+{
+    private static final String DEFAULT_HOST_NAME = "127.0.0.1";
+    private static final int DEFAULT_MQTT_PORT = 8883;
+    private static final int DEFAULT_AMQP_PORT = 5671;
+    private static final int DEFAULT_HTTPS_PORT = 443;
+    private static final int PRIVILEGED_PORT_LIMIT = 1024;
+    private static final int DEFAULT_TELEMETRY_RETENTION = 10000;
+    private static final String SHARED_ACCESS_KEY = "c2ltdWxhdGVkLWlvdC1odWIta2V5";
+
+    private final FaultInjector faultInjector = new FaultInjector();
+    private final ConcurrentMap<String, SimulatedDevice> devices = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, byte[]> blobs = new ConcurrentHashMap<>();
+    private final BlockingQueue<String> fileUploadNotifications = new LinkedBlockingQueue<>();
+
+    private String hostName = DEFAULT_HOST_NAME;
+    private int mqttPort = DEFAULT_MQTT_PORT;
+    private int amqpPort = DEFAULT_AMQP_PORT;
+    private int httpsPort = DEFAULT_HTTPS_PORT;
+    private int telemetryRetention = DEFAULT_TELEMETRY_RETENTION;
+
+    private volatile SimulatorCertificate certificate;
+    private volatile MqttEndpoint mqttEndpoint;
+    private volatile AmqpEndpoint amqpEndpoint;
+    private volatile HttpsEndpoint httpsEndpoint;
+
+    /**
+     * Setter for the host name that the clients use to connect. It shall contain a '.', as the clients require,
+     * and resolve to a local address.
+     *
+     * @param hostName the host name, {@code 127.0.0.1} by default.
+     * @throws IllegalArgumentException if the host name is null or has no '.'.
+     * @throws IllegalStateException if the simulator is already started.
+     */
+    public void setHostName(String hostName) throws IllegalArgumentException, IllegalStateException
+    {
+        if ((hostName == null) || !hostName.contains("."))
+        {
+            throw new IllegalArgumentException("hostName shall contain a '.'");
+        }
+
+        checkNotStarted();
+        this.hostName = hostName;
+    }
+
+    /**
+     * Setter for the MQTT port. The device client only connects to 8883, other ports are useful to test the
+     * endpoint with other clients.
+     *
+     * @param mqttPort the port, 0 for any free port, or -1 to disable MQTT.
+     * @throws IllegalStateException if the simulator is already started.
+     */
+    public void setMqttPort(int mqttPort) throws IllegalStateException
+    {
+        checkNotStarted();
+        this.mqttPort = mqttPort;
+    }
+
+    /**
+     * Setter for the AMQP port. The clients only connect to 5671.
+     *
+     * @param amqpPort the port, 0 for any free port, or -1 to disable AMQP.
+     * @throws IllegalStateException if the simulator is already started.
+     */
+    public void setAmqpPort(int amqpPort) throws IllegalStateException
+    {
+        checkNotStarted();
+        this.amqpPort = amqpPort;
+    }
+
+    /**
+     * Setter for the HTTPS port. The clients only connect to 443, but the blob uploads follow the port returned
+     * by the file upload request.
+     *
+     * @param httpsPort the port, 0 for any free port, or -1 to disable HTTPS.
+     * @throws IllegalStateException if the simulator is already started.
+     */
+    public void setHttpsPort(int httpsPort) throws IllegalStateException
+    {
+        checkNotStarted();
+        this.httpsPort = httpsPort;
+    }
+
+    /**
+     * Setter for the number of telemetry messages retained per device for {@link SimulatedDevice#pollTelemetry}.
+     * The older messages are dropped, but always counted.
+     *
+     * @param telemetryRetention the number of messages, 10000 by default.
+     * @throws IllegalArgumentException if the retention is not positive.
+     */
+    public void setTelemetryRetention(int telemetryRetention) throws IllegalArgumentException
+    {
+        if (telemetryRetention <= 0)
+        {
+            throw new IllegalArgumentException("telemetryRetention shall be positive");
+        }
+
+        this.telemetryRetention = telemetryRetention;
+    }
+
+    /**
+     * Creates the server certificate and starts the enabled endpoints.
+     *
+     * @throws BindException if an endpoint cannot listen on its port, with the reason and how to disable the protocol.
+     * @throws IOException if an endpoint cannot start.
+     * @throws GeneralSecurityException if the server certificate cannot be created.
+     * @throws IllegalStateException if the simulator is already started.
+     */
+    public synchronized void start() throws IOException, GeneralSecurityException, IllegalStateException
+    {
+        checkNotStarted();
+        this.certificate = new SimulatorCertificate(this.hostName);
+        SSLContext sslContext = this.certificate.getServerSslContext();
+        InetAddress address = InetAddress.getByName(this.hostName);
+        try
+        {
+            if (this.mqttPort >= 0)
+            {
+                try
+                {
+                    this.mqttEndpoint = new MqttEndpoint(this, sslContext, address, this.mqttPort);
+                }
+                catch (BindException e)
+                {
+                    throw bindFailure("MQTT", this.mqttPort, "setMqttPort", e);
+                }
+                this.mqttEndpoint.start();
+            }
+            if (this.amqpPort >= 0)
+            {
+                try
+                {
+                    this.amqpEndpoint = new AmqpEndpoint(this, sslContext, address, this.amqpPort);
+                }
+                catch (BindException e)
+                {
+                    throw bindFailure("AMQP", this.amqpPort, "setAmqpPort", e);
+                }
+                this.amqpEndpoint.start();
+            }
+            if (this.httpsPort >= 0)
+            {
+                try
+                {
+                    this.httpsEndpoint = new HttpsEndpoint(this, sslContext, this.hostName, address, this.httpsPort);
+                }
+                catch (BindException e)
+                {
+                    throw bindFailure("HTTPS", this.httpsPort, "setHttpsPort", e);
+                }
+                this.httpsEndpoint.start();
+            }
+        }
+        catch (IOException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Explains why an endpoint cannot listen on its port. The clients cannot be pointed at other ports, so the
+     * simulator does not move to a free port, and the caller has to free the port, get the permission to bind it,
+     * or disable the protocol.
+     */
+    private BindException bindFailure(String protocol, int port, String portSetter, BindException cause)
+    {
+        String reason = (port > 0) && (port < PRIVILEGED_PORT_LIMIT)
+                ? "the port is privileged, so the JVM needs to run as root or with the CAP_NET_BIND_SERVICE capability"
+                : "the port may be used by another process";
+        BindException exception = new BindException("The simulator cannot listen for " + protocol + " on " +
+                this.hostName + ":" + port + " (" + cause.getMessage() + "): " + reason + ". The clients only connect to " +
+                "the default port, so " + portSetter + "(-1) disables " + protocol + " if it is not needed.");
+        exception.initCause(cause);
+        return exception;
+    }
+
+    /**
+     * Stops the endpoints, closes all the connections and deletes the certificate file.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (this.mqttEndpoint != null)
+        {
+            this.mqttEndpoint.close();
+            this.mqttEndpoint = null;
+        }
+        if (this.amqpEndpoint != null)
+        {
+            this.amqpEndpoint.close();
+            this.amqpEndpoint = null;
+        }
+        if (this.httpsEndpoint != null)
+        {
+            this.httpsEndpoint.close();
+            this.httpsEndpoint = null;
+        }
+        if (this.certificate != null)
+        {
+            this.certificate.delete();
+            this.certificate = null;
+        }
+    }
+
+    /**
+     * Getter for the host name that the clients use to connect.
+     *
+     * @return the host name.
+     */
+    public String getHostName()
+    {
+        return this.hostName;
+    }
+
+    /**
+     * Getter for the port the MQTT endpoint listens on.
+     *
+     * @return the port, or -1 if MQTT is not started.
+     */
+    public int getMqttPort()
+    {
+        MqttEndpoint endpoint = this.mqttEndpoint;
+        return (endpoint == null) ? -1 : endpoint.getPort();
+    }
+
+    /**
+     * Getter for the port the AMQP endpoint listens on.
+     *
+     * @return the port, or -1 if AMQP is not started.
+     */
+    public int getAmqpPort()
+    {
+        AmqpEndpoint endpoint = this.amqpEndpoint;
+        return (endpoint == null) ? -1 : endpoint.getPort();
+    }
+
+    /**
+     * Getter for the port the HTTPS endpoint listens on.
+     *
+     * @return the port, or -1 if HTTPS is not started.
+     */
+    public int getHttpsPort()
+    {
+        HttpsEndpoint endpoint = this.httpsEndpoint;
+        return (endpoint == null) ? -1 : endpoint.getPort();
+    }
+
+    /**
+     * Creates a device connection string for the simulator. The device does not need to exist.
+     *
+     * @param deviceId the device id.
+     * @return the device connection string.
+     */
+    public String getDeviceConnectionString(String deviceId)
+    {
+        return "HostName=" + this.hostName + ";DeviceId=" + deviceId + ";SharedAccessKey=" + SHARED_ACCESS_KEY;
+    }
+
+    /**
+     * Creates a service connection string for the simulator.
+     *
+     * @return the service connection string.
+     */
+    public String getServiceConnectionString()
+    {
+        return "HostName=" + this.hostName + ";SharedAccessKeyName=iothubowner;SharedAccessKey=" + SHARED_ACCESS_KEY;
+    }
+
+    /**
+     * Getter for the path of the PEM file with the server certificate, to be trusted by the device clients.
+     *
+     * @return the path of the certificate.
+     * @throws IllegalStateException if the simulator is not started.
+     */
+    public String getCertificatePath() throws IllegalStateException
+    {
+        return getCertificate().getPemFile().getAbsolutePath();
+    }
+
+    /**
+     * Getter for a client SSL context that trusts the simulator, for the clients that use the default
+     * {@code HttpsURLConnection} socket factory, like the HTTPS service client and the blob uploads.
+     *
+     * @return the client SSL context.
+     * @throws IllegalStateException if the simulator is not started.
+     */
+    public SSLContext getSslContext() throws IllegalStateException
+    {
+        return getCertificate().getClientSslContext();
+    }
+
+    /**
+     * Getter for the fault injector of all the endpoints.
+     *
+     * @return the fault injector.
+     */
+    public FaultInjector getFaultInjector()
+    {
+        return this.faultInjector;
+    }
+
+    /**
+     * Getter for the state of a device, created on the first use.
+     *
+     * @param deviceId the device id.
+     * @return the device.
+     * @throws IllegalArgumentException if the device id is null or empty.
+     */
+    public SimulatedDevice getDevice(String deviceId) throws IllegalArgumentException
+    {
+        if ((deviceId == null) || deviceId.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceId cannot be null or empty");
+        }
+
+        SimulatedDevice device = this.devices.get(deviceId);
+        if (device == null)
+        {
+            this.devices.putIfAbsent(deviceId, new SimulatedDevice(deviceId, this.telemetryRetention));
+            device = this.devices.get(deviceId);
+        }
+        return device;
+    }
+
+    /**
+     * Closes all the MQTT and AMQP connections, as a failover of the IoT Hub does. The clients shall reconnect.
+     */
+    public void disconnectAll()
+    {
+        MqttEndpoint mqtt = this.mqttEndpoint;
+        if (mqtt != null)
+        {
+            mqtt.disconnectAll();
+        }
+        AmqpEndpoint amqp = this.amqpEndpoint;
+        if (amqp != null)
+        {
+            amqp.disconnectAll();
+        }
+    }
+
+    /**
+     * Sends a cloud to device message, as the service client does.
+     *
+     * @param deviceId the device id.
+     * @param message the message.
+     * @throws IllegalArgumentException if the device id is empty or the message is null.
+     */
+    public void sendCloudToDevice(String deviceId, SimulatedMessage message) throws IllegalArgumentException
+    {
+        if (message == null)
+        {
+            throw new IllegalArgumentException("message cannot be null");
+        }
+
+        getDevice(deviceId).enqueueCloudToDevice(message);
+    }
+
+    /**
+     * Updates the desired properties of a device and notifies the device, as the service client does.
+     *
+     * @param deviceId the device id.
+     * @param patch the JSON patch of the desired properties, a null value deletes a property.
+     * @throws IllegalArgumentException if the device id is empty or the patch is not a JSON object.
+     */
+    public void updateDesiredProperties(String deviceId, String patch) throws IllegalArgumentException
+    {
+        JsonObject json;
+        try
+        {
+            json = new JsonParser().parse(patch).getAsJsonObject();
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException("patch shall be a JSON object", e);
+        }
+
+        getDevice(deviceId).updateDesiredProperties(json);
+    }
+
+    /**
+     * Invokes a direct method on a device and waits for its response, as the service client does.
+     *
+     * @param deviceId the device id.
+     * @param methodName the method name.
+     * @param payload the JSON payload, or {@code null}.
+     * @param timeout the maximum time to wait for the response.
+     * @param unit the unit of the timeout.
+     * @return the response, or {@code null} if the device is not subscribed to methods or did not respond in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     * @throws IllegalArgumentException if the device id is empty.
+     */
+    public MethodResult invokeMethod(String deviceId, String methodName, String payload, long timeout, TimeUnit unit)
+            throws InterruptedException, IllegalArgumentException
+    {
+        return getDevice(deviceId).invokeMethod(methodName, payload, unit.toMillis(timeout));
+    }
+
+    /**
+     * Getter for a blob uploaded by a device.
+     *
+     * @param blobName the blob name, as requested by the device.
+     * @return the content of the blob, or {@code null} if it does not exist.
+     */
+    public byte[] getBlob(String blobName)
+    {
+        return this.blobs.get(blobName);
+    }
+
+    void putBlob(String blobName, byte[] content)
+    {
+        this.blobs.put(blobName, content);
+    }
+
+    void addFileUploadNotification(String notification)
+    {
+        this.fileUploadNotifications.add(notification);
+    }
+
+    String pollFileUploadNotification()
+    {
+        return this.fileUploadNotifications.poll();
+    }
+
+    private SimulatorCertificate getCertificate() throws IllegalStateException
+    {
+        SimulatorCertificate current = this.certificate;
+        if (current == null)
+        {
+            throw new IllegalStateException("the simulator is not started");
+        }
+        return current;
+    }
+
+    private void checkNotStarted() throws IllegalStateException
+    {
+        if (this.certificate != null)
+        {
+            throw new IllegalStateException("the simulator is already started");
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A direct method invocation waiting for the response of the device.
+ */
+final class MethodInvocation
+{
+    private final String requestId;
+    private final String methodName;
+    private final String payload;
+    private final CountDownLatch responded = new CountDownLatch(1);
+    private volatile MethodResult result;
+
+    MethodInvocation(String requestId, String methodName, String payload)
+    {
+        this.requestId = requestId;
+        this.methodName = methodName;
+        this.payload = payload;
+    }
+
+    String getRequestId()
+    {
+        return this.requestId;
+    }
+
+    String getMethodName()
+    {
+        return this.methodName;
+    }
+
+    String getPayload()
+    {
+        return this.payload;
+    }
+
+    void complete(int status, String responsePayload)
+    {
+        this.result = new MethodResult(status, responsePayload);
+        this.responded.countDown();
+    }
+
+    /**
+     * Waits for the response of the device.
+     *
+     * @param timeoutMillis the maximum time to wait.
+     * @return the response of the device, or {@code null} if it did not respond in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    MethodResult await(long timeoutMillis) throws InterruptedException
+    {
+        this.responded.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        return this.result;
+    }
+}
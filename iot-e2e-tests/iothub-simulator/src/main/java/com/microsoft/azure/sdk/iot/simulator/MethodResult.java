@@ -0,0 +1,41 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+/**
+ * The response of a device to a direct method invoked through the simulated IoT Hub.
+ */
+public final class MethodResult
+{
+    private final int status;
+    private final String payload;
+
+    MethodResult(int status, String payload)
+    {
+        this.status = status;
+        this.payload = payload;
+    }
+
+    /**
+     * Getter for the status returned by the device.
+     *
+     * @return the method status.
+     */
+    public int getStatus()
+    {
+        return this.status;
+    }
+
+    /**
+     * Getter for the payload returned by the device.
+     *
+     * @return the JSON payload, or {@code null} if the device returned none.
+     */
+    public String getPayload()
+    {
+        return this.payload;
+    }
+}
@@ -0,0 +1,509 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Minimal MQTT 3.1.1 broker that speaks the IoT Hub topics: telemetry, cloud to device messages, twin and methods.
+ * It supports QoS 0 and 1 from the device, and publishes everything to the device with QoS 1.
+ */
+final class MqttEndpoint extends SocketEndpoint
+{
+    private static final int CONNECT = 1;
+    private static final int CONNACK = 2;
+    private static final int PUBLISH = 3;
+    private static final int PUBACK = 4;
+    private static final int SUBSCRIBE = 8;
+    private static final int SUBACK = 9;
+    private static final int UNSUBSCRIBE = 10;
+    private static final int UNSUBACK = 11;
+    private static final int PINGREQ = 12;
+    private static final int PINGRESP = 13;
+    private static final int DISCONNECT = 14;
+
+    private static final long THROTTLED_ACK_DELAY_MILLIS = 1000;
+
+    private static final String TWIN_GET = "$iothub/twin/GET/";
+    private static final String TWIN_PATCH_REPORTED = "$iothub/twin/PATCH/properties/reported/";
+    private static final String TWIN_RESPONSE = "$iothub/twin/res/";
+    private static final String TWIN_PATCH_DESIRED = "$iothub/twin/PATCH/properties/desired/";
+    private static final String METHOD_REQUEST = "$iothub/methods/POST/";
+    private static final String METHOD_RESPONSE = "$iothub/methods/res/";
+    private static final String REQUEST_ID = "$rid=";
+
+    private final IotHubSimulator simulator;
+
+    MqttEndpoint(IotHubSimulator simulator, SSLContext sslContext, InetAddress address, int port) throws IOException
+    {
+        super("mqtt", sslContext, address, port, simulator.getFaultInjector());
+        this.simulator = simulator;
+    }
+
+    @Override
+    void serve(Socket socket) throws IOException
+    {
+        new MqttSession(socket).run();
+    }
+
+    /**
+     * Checks if an MQTT topic matches a topic filter with the {@code +} and {@code #} wildcards.
+     */
+    static boolean matches(String filter, String topic)
+    {
+        String[] filterLevels = filter.split("/", -1);
+        String[] topicLevels = topic.split("/", -1);
+        for (int i = 0; i < filterLevels.length; i++)
+        {
+            if (filterLevels[i].equals("#"))
+            {
+                return true;
+            }
+
+            if ((i >= topicLevels.length) || (!filterLevels[i].equals("+") && !filterLevels[i].equals(topicLevels[i])))
+            {
+                return false;
+            }
+        }
+
+        return filterLevels.length == topicLevels.length;
+    }
+
+    private final class MqttSession implements DeviceConnection
+    {
+        private final Socket socket;
+        private final DataInputStream input;
+        private final OutputStream output;
+        private final List<String> subscriptions = new CopyOnWriteArrayList<>();
+        private final Map<Integer, SimulatedMessage> inFlight = new ConcurrentHashMap<>();
+        private int nextPacketId;
+        private SimulatedDevice device;
+        private String cloudToDeviceTopic;
+
+        private MqttSession(Socket socket) throws IOException
+        {
+            this.socket = socket;
+            this.input = new DataInputStream(socket.getInputStream());
+            this.output = socket.getOutputStream();
+        }
+
+        private void run() throws IOException
+        {
+            try
+            {
+                while (true)
+                {
+                    int header = this.input.read();
+                    if (header < 0)
+                    {
+                        return;
+                    }
+
+                    byte[] packet = new byte[readRemainingLength()];
+                    this.input.readFully(packet);
+                    int type = header >>> 4;
+                    if ((this.device == null) && (type != CONNECT))
+                    {
+                        return;
+                    }
+
+                    switch (type)
+                    {
+                        case CONNECT:
+                            onConnect(packet);
+                            break;
+                        case PUBLISH:
+                            if (!onPublish(header, packet))
+                            {
+                                return;
+                            }
+                            break;
+                        case PUBACK:
+                            this.inFlight.remove(readShort(packet, 0));
+                            break;
+                        case SUBSCRIBE:
+                            onSubscribe(packet);
+                            break;
+                        case UNSUBSCRIBE:
+                            onUnsubscribe(packet);
+                            break;
+                        case PINGREQ:
+                            write(new byte[] { (byte)(PINGRESP << 4), 0 });
+                            break;
+                        case DISCONNECT:
+                            return;
+                        default:
+                            // the IoT Hub closes the connection on unexpected packets.
+                            return;
+                    }
+                }
+            }
+            finally
+            {
+                close();
+                if (this.device != null)
+                {
+                    this.device.detach(this);
+                    for (SimulatedMessage message : this.inFlight.values())
+                    {
+                        this.device.abandonCloudToDevice(message);
+                    }
+                }
+            }
+        }
+
+        private void onConnect(byte[] packet) throws IOException
+        {
+            // skip the protocol name, level, flags and keep alive.
+            int offset = 2 + readShort(packet, 0) + 4;
+            String clientId = readString(packet, offset);
+            write(new byte[] { (byte)(CONNACK << 4), 2, 0, 0 });
+            this.cloudToDeviceTopic = "devices/" + clientId + "/messages/devicebound/";
+            this.device = simulator.getDevice(clientId);
+            this.device.attach(this);
+        }
+
+        private boolean onPublish(int header, byte[] packet) throws IOException
+        {
+            int qos = (header >>> 1) & 0x03;
+            String topic = readString(packet, 0);
+            int offset = 2 + topic.getBytes(StandardCharsets.UTF_8).length;
+            int packetId = 0;
+            if (qos > 0)
+            {
+                packetId = readShort(packet, offset);
+                offset += 2;
+            }
+            byte[] payload = new byte[packet.length - offset];
+            System.arraycopy(packet, offset, payload, 0, payload.length);
+
+            FaultInjector faultInjector = getFaultInjector();
+            faultInjector.delay();
+            FaultInjector.Fault fault = faultInjector.nextOperation();
+            if (fault == FaultInjector.Fault.DISCONNECT)
+            {
+                return false;
+            }
+
+            String telemetryTopic = "devices/" + this.device.getDeviceId() + "/messages/events/";
+            if (topic.startsWith(telemetryTopic))
+            {
+                this.device.addTelemetry(parseTelemetry(payload, topic.substring(telemetryTopic.length())));
+                if (fault == FaultInjector.Fault.THROTTLE)
+                {
+                    FaultInjector.sleep(THROTTLED_ACK_DELAY_MILLIS);
+                }
+            }
+            else if (topic.startsWith(TWIN_GET))
+            {
+                String requestId = getParameter(topic, REQUEST_ID);
+                if (fault == FaultInjector.Fault.THROTTLE)
+                {
+                    publish(TWIN_RESPONSE + "429/?" + REQUEST_ID + requestId, new byte[0]);
+                }
+                else
+                {
+                    publish(TWIN_RESPONSE + "200/?" + REQUEST_ID + requestId, this.device.getDeviceTwin().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            else if (topic.startsWith(TWIN_PATCH_REPORTED))
+            {
+                String requestId = getParameter(topic, REQUEST_ID);
+                if (fault == FaultInjector.Fault.THROTTLE)
+                {
+                    publish(TWIN_RESPONSE + "429/?" + REQUEST_ID + requestId, new byte[0]);
+                }
+                else
+                {
+                    JsonObject patch = new JsonParser().parse(new String(payload, StandardCharsets.UTF_8)).getAsJsonObject();
+                    int version = this.device.updateReportedProperties(patch);
+                    publish(TWIN_RESPONSE + "204/?" + REQUEST_ID + requestId + "&$version=" + version, new byte[0]);
+                }
+            }
+            else if (topic.startsWith(METHOD_RESPONSE))
+            {
+                String status = topic.substring(METHOD_RESPONSE.length(), topic.indexOf('/', METHOD_RESPONSE.length()));
+                this.device.completeMethod(getParameter(topic, REQUEST_ID), Integer.parseInt(status), new String(payload, StandardCharsets.UTF_8));
+            }
+            else
+            {
+                // the IoT Hub closes the connection on publishes to unknown topics.
+                return false;
+            }
+
+            if (qos > 0)
+            {
+                write(new byte[] { (byte)(PUBACK << 4), 2, (byte)(packetId >>> 8), (byte)packetId });
+            }
+            return true;
+        }
+
+        private void onSubscribe(byte[] packet) throws IOException
+        {
+            int packetId = readShort(packet, 0);
+            ByteArrayOutputStream suback = new ByteArrayOutputStream();
+            suback.write((byte)(packetId >>> 8));
+            suback.write((byte)packetId);
+            int offset = 2;
+            while (offset < packet.length)
+            {
+                String filter = readString(packet, offset);
+                offset += 2 + filter.getBytes(StandardCharsets.UTF_8).length + 1;
+                this.subscriptions.add(filter);
+                suback.write(1);
+            }
+
+            writePacket(SUBACK << 4, suback.toByteArray());
+            onCloudToDeviceMessage();
+        }
+
+        private void onUnsubscribe(byte[] packet) throws IOException
+        {
+            int packetId = readShort(packet, 0);
+            int offset = 2;
+            while (offset < packet.length)
+            {
+                String filter = readString(packet, offset);
+                offset += 2 + filter.getBytes(StandardCharsets.UTF_8).length;
+                this.subscriptions.remove(filter);
+            }
+
+            write(new byte[] { (byte)(UNSUBACK << 4), 2, (byte)(packetId >>> 8), (byte)packetId });
+        }
+
+        @Override
+        public void onCloudToDeviceMessage()
+        {
+            if (!isSubscribed(this.cloudToDeviceTopic))
+            {
+                return;
+            }
+
+            SimulatedMessage message;
+            while ((message = this.device.pollCloudToDevice()) != null)
+            {
+                try
+                {
+                    this.inFlight.put(publish(this.cloudToDeviceTopic + formatProperties(this.device.getDeviceId(), message), message.getBody()), message);
+                }
+                catch (IOException e)
+                {
+                    this.device.abandonCloudToDevice(message);
+                    close();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean onDesiredProperties(String patch, int version)
+        {
+            return publishIfSubscribed(TWIN_PATCH_DESIRED + "?$version=" + version, patch);
+        }
+
+        @Override
+        public boolean onMethodInvocation(MethodInvocation invocation)
+        {
+            return publishIfSubscribed(METHOD_REQUEST + invocation.getMethodName() + "/?" + REQUEST_ID + invocation.getRequestId(), invocation.getPayload());
+        }
+
+        @Override
+        public void close()
+        {
+            closeQuietly(this.socket);
+        }
+
+        private boolean publishIfSubscribed(String topic, String payload)
+        {
+            if (!isSubscribed(topic))
+            {
+                return false;
+            }
+
+            try
+            {
+                publish(topic, (payload == null) ? new byte[0] : payload.getBytes(StandardCharsets.UTF_8));
+                return true;
+            }
+            catch (IOException e)
+            {
+                close();
+                return false;
+            }
+        }
+
+        private boolean isSubscribed(String topic)
+        {
+            for (String filter : this.subscriptions)
+            {
+                if (matches(filter, topic))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Publishes to the device with QoS 1.
+         *
+         * @return the packet id of the publish.
+         */
+        private int publish(String topic, byte[] payload) throws IOException
+        {
+            byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+            synchronized (this.output)
+            {
+                int packetId = this.nextPacketId = (this.nextPacketId % 0xFFFF) + 1;
+                byte[] packet = new byte[2 + topicBytes.length + 2 + payload.length];
+                packet[0] = (byte)(topicBytes.length >>> 8);
+                packet[1] = (byte)topicBytes.length;
+                System.arraycopy(topicBytes, 0, packet, 2, topicBytes.length);
+                packet[2 + topicBytes.length] = (byte)(packetId >>> 8);
+                packet[3 + topicBytes.length] = (byte)packetId;
+                System.arraycopy(payload, 0, packet, 4 + topicBytes.length, payload.length);
+                writePacket((PUBLISH << 4) | 0x02, packet);
+                return packetId;
+            }
+        }
+
+        private void writePacket(int header, byte[] body) throws IOException
+        {
+            ByteArrayOutputStream packet = new ByteArrayOutputStream(body.length + 5);
+            packet.write(header);
+            int remaining = body.length;
+            do
+            {
+                int digit = remaining % 128;
+                remaining /= 128;
+                packet.write((remaining > 0) ? (digit | 0x80) : digit);
+            }
+            while (remaining > 0);
+            packet.write(body, 0, body.length);
+            write(packet.toByteArray());
+        }
+
+        private void write(byte[] bytes) throws IOException
+        {
+            synchronized (this.output)
+            {
+                this.output.write(bytes);
+                this.output.flush();
+            }
+        }
+
+        private int readRemainingLength() throws IOException
+        {
+            int length = 0;
+            int multiplier = 1;
+            int digit;
+            do
+            {
+                digit = this.input.read();
+                if (digit < 0)
+                {
+                    throw new EOFException();
+                }
+                length += (digit & 0x7F) * multiplier;
+                multiplier *= 128;
+            }
+            while ((digit & 0x80) != 0);
+            return length;
+        }
+    }
+
+    private static SimulatedMessage parseTelemetry(byte[] payload, String properties)
+    {
+        SimulatedMessage message = new SimulatedMessage(payload);
+        for (String property : properties.split("&"))
+        {
+            int separator = property.indexOf('=');
+            if (separator > 0)
+            {
+                String key = property.substring(0, separator);
+                String value = property.substring(separator + 1);
+                switch (key)
+                {
+                    case "$.mid":
+                        message.setMessageId(value);
+                        break;
+                    case "$.cid":
+                        message.setCorrelationId(value);
+                        break;
+                    default:
+                        if (!key.startsWith("$."))
+                        {
+                            message.setProperty(key, value);
+                        }
+                }
+            }
+        }
+        return message;
+    }
+
+    private static String formatProperties(String deviceId, SimulatedMessage message) throws UnsupportedEncodingException
+    {
+        // the device only parses the properties after the first system property, so the hub always sends $.to.
+        StringBuilder properties = new StringBuilder("%24.to=").append(encode("/devices/" + deviceId + "/messages/devicebound"));
+        if (message.getMessageId() != null)
+        {
+            properties.append("&%24.mid=").append(encode(message.getMessageId()));
+        }
+        if (message.getCorrelationId() != null)
+        {
+            properties.append("&%24.cid=").append(encode(message.getCorrelationId()));
+        }
+        for (Map.Entry<String, String> property : message.getProperties().entrySet())
+        {
+            properties.append('&').append(encode(property.getKey())).append('=').append(encode(property.getValue()));
+        }
+        return properties.toString();
+    }
+
+    private static String encode(String value) throws UnsupportedEncodingException
+    {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    }
+
+    private static String getParameter(String topic, String name)
+    {
+        int start = topic.indexOf(name);
+        if (start < 0)
+        {
+            return null;
+        }
+        start += name.length();
+        int end = topic.indexOf('&', start);
+        return (end < 0) ? topic.substring(start) : topic.substring(start, end);
+    }
+
+    private static int readShort(byte[] packet, int offset)
+    {
+        return ((packet[offset] & 0xFF) << 8) | (packet[offset + 1] & 0xFF);
+    }
+
+    private static String readString(byte[] packet, int offset)
+    {
+        return new String(packet, offset + 2, readShort(packet, offset), StandardCharsets.UTF_8);
+    }
+}
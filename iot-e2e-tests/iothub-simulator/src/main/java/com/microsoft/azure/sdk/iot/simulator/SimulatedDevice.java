@@ -0,0 +1,217 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import com.google.gson.JsonObject;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The state of a device in the simulated IoT Hub: the telemetry received from it, the cloud to device messages
+ * waiting for it, its twin, and its open connections. The devices are created on their first use, the simulated
+ * IoT Hub accepts any credentials.
+ */
+public final class SimulatedDevice
+{
+    private final String deviceId;
+    private final SimulatedTwin twin = new SimulatedTwin();
+    private final BlockingQueue<SimulatedMessage> telemetry;
+    private final AtomicLong telemetryCount = new AtomicLong();
+    private final BlockingDeque<SimulatedMessage> cloudToDevice = new LinkedBlockingDeque<>();
+    private final Set<DeviceConnection> connections = new CopyOnWriteArraySet<>();
+    private final ConcurrentMap<String, MethodInvocation> pendingMethods = new ConcurrentHashMap<>();
+
+    SimulatedDevice(String deviceId, int telemetryRetention)
+    {
+        this.deviceId = deviceId;
+        this.telemetry = new ArrayBlockingQueue<>(telemetryRetention);
+    }
+
+    /**
+     * Getter for the device id.
+     *
+     * @return the device id.
+     */
+    public String getDeviceId()
+    {
+        return this.deviceId;
+    }
+
+    /**
+     * Getter for the number of telemetry messages received from the device, over all protocols.
+     *
+     * @return the number of telemetry messages.
+     */
+    public long getTelemetryCount()
+    {
+        return this.telemetryCount.get();
+    }
+
+    /**
+     * Takes the oldest retained telemetry message of the device, waiting for one if necessary. Only the most
+     * recent messages are retained, up to the retention configured in the {@link IotHubSimulator}.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout.
+     * @return the telemetry message, or {@code null} if none was received in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public SimulatedMessage pollTelemetry(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return this.telemetry.poll(timeout, unit);
+    }
+
+    /**
+     * Getter for the number of cloud to device messages not yet delivered to the device.
+     *
+     * @return the number of cloud to device messages.
+     */
+    public int getPendingCloudToDeviceCount()
+    {
+        return this.cloudToDevice.size();
+    }
+
+    /**
+     * Getter for the number of connections the device currently holds, over all protocols.
+     *
+     * @return the number of connections.
+     */
+    public int getConnectionCount()
+    {
+        return this.connections.size();
+    }
+
+    /**
+     * Getter for the twin, as returned to the service client.
+     *
+     * @return the JSON twin document.
+     */
+    public String getTwin()
+    {
+        return this.twin.toServiceJson(this.deviceId);
+    }
+
+    void addTelemetry(SimulatedMessage message)
+    {
+        this.telemetryCount.incrementAndGet();
+        while (!this.telemetry.offer(message))
+        {
+            this.telemetry.poll();
+        }
+    }
+
+    void enqueueCloudToDevice(SimulatedMessage message)
+    {
+        this.cloudToDevice.addLast(message);
+        for (DeviceConnection connection : this.connections)
+        {
+            connection.onCloudToDeviceMessage();
+        }
+    }
+
+    SimulatedMessage pollCloudToDevice()
+    {
+        return this.cloudToDevice.pollFirst();
+    }
+
+    void abandonCloudToDevice(SimulatedMessage message)
+    {
+        this.cloudToDevice.addFirst(message);
+    }
+
+    String getDeviceTwin()
+    {
+        return this.twin.toDeviceJson();
+    }
+
+    int updateReportedProperties(JsonObject patch)
+    {
+        return this.twin.updateReported(patch);
+    }
+
+    void updateTags(JsonObject patch)
+    {
+        this.twin.updateTags(patch);
+    }
+
+    void updateDesiredProperties(JsonObject patch)
+    {
+        JsonObject notification = this.twin.updateDesired(patch);
+        int version = notification.get("$version").getAsInt();
+        String json = notification.toString();
+        for (DeviceConnection connection : this.connections)
+        {
+            connection.onDesiredProperties(json, version);
+        }
+    }
+
+    /**
+     * Invokes a direct method on the device and waits for its response.
+     *
+     * @return the response, or {@code null} if the device is not subscribed to methods or did not respond in time.
+     */
+    MethodResult invokeMethod(String methodName, String payload, long timeoutMillis) throws InterruptedException
+    {
+        MethodInvocation invocation = new MethodInvocation(UUID.randomUUID().toString(), methodName, payload);
+        this.pendingMethods.put(invocation.getRequestId(), invocation);
+        try
+        {
+            for (DeviceConnection connection : this.connections)
+            {
+                if (connection.onMethodInvocation(invocation))
+                {
+                    return invocation.await(timeoutMillis);
+                }
+            }
+            return null;
+        }
+        finally
+        {
+            this.pendingMethods.remove(invocation.getRequestId());
+        }
+    }
+
+    void completeMethod(String requestId, int status, String payload)
+    {
+        MethodInvocation invocation = this.pendingMethods.get(requestId);
+        if (invocation != null)
+        {
+            invocation.complete(status, payload);
+        }
+    }
+
+    void attach(DeviceConnection connection)
+    {
+        this.connections.add(connection);
+        if (!this.cloudToDevice.isEmpty())
+        {
+            connection.onCloudToDeviceMessage();
+        }
+    }
+
+    void detach(DeviceConnection connection)
+    {
+        this.connections.remove(connection);
+    }
+
+    void closeConnections()
+    {
+        for (DeviceConnection connection : this.connections)
+        {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A telemetry or cloud to device message as seen by the simulated IoT Hub, independent of the protocol that
+ * carried it.
+ */
+public final class SimulatedMessage
+{
+    private final byte[] body;
+    private final Map<String, String> properties;
+    private String messageId;
+    private String correlationId;
+
+    /**
+     * Constructor.
+     *
+     * @param body the message body. Cannot be {@code null}.
+     */
+    public SimulatedMessage(byte[] body)
+    {
+        if (body == null)
+        {
+            throw new IllegalArgumentException("body cannot be null");
+        }
+
+        this.body = body;
+        this.properties = new HashMap<>();
+    }
+
+    /**
+     * Getter for the message body.
+     *
+     * @return the message body.
+     */
+    public byte[] getBody()
+    {
+        return this.body;
+    }
+
+    /**
+     * Getter for the application properties of the message.
+     *
+     * @return an unmodifiable view of the application properties.
+     */
+    public Map<String, String> getProperties()
+    {
+        return Collections.unmodifiableMap(this.properties);
+    }
+
+    /**
+     * Adds an application property to the message.
+     *
+     * @param name the property name.
+     * @param value the property value.
+     */
+    public void setProperty(String name, String value)
+    {
+        this.properties.put(name, value);
+    }
+
+    public String getMessageId()
+    {
+        return this.messageId;
+    }
+
+    public void setMessageId(String messageId)
+    {
+        this.messageId = messageId;
+    }
+
+    public String getCorrelationId()
+    {
+        return this.correlationId;
+    }
+
+    public void setCorrelationId(String correlationId)
+    {
+        this.correlationId = correlationId;
+    }
+}
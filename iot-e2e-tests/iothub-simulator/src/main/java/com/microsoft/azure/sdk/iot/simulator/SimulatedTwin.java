@@ -0,0 +1,149 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+
+/**
+ * The twin of a simulated device, with the desired and reported properties and their versions. Patches follow
+ * the IoT Hub rules: objects are merged, {@code null} deletes the property, and the keys starting with {@code $}
+ * are reserved.
+ */
+final class SimulatedTwin
+{
+    private static final String VERSION = "$version";
+    private static final char RESERVED_KEY_PREFIX = '$';
+
+    private final JsonObject desired = new JsonObject();
+    private final JsonObject reported = new JsonObject();
+    private final JsonObject tags = new JsonObject();
+    private int desiredVersion = 1;
+    private int reportedVersion = 1;
+
+    /**
+     * Applies a patch to the desired properties.
+     *
+     * @param patch the desired properties patch.
+     * @return the patch as sent to the device, with the new version.
+     */
+    synchronized JsonObject updateDesired(JsonObject patch)
+    {
+        merge(this.desired, patch);
+        this.desiredVersion++;
+
+        JsonObject notification = new JsonObject();
+        copyEntries(patch, notification);
+        notification.addProperty(VERSION, this.desiredVersion);
+        return notification;
+    }
+
+    /**
+     * Applies a patch to the reported properties.
+     *
+     * @param patch the reported properties patch.
+     * @return the new version of the reported properties.
+     */
+    synchronized int updateReported(JsonObject patch)
+    {
+        merge(this.reported, patch);
+        return ++this.reportedVersion;
+    }
+
+    /**
+     * Applies a patch to the tags.
+     *
+     * @param patch the tags patch.
+     */
+    synchronized void updateTags(JsonObject patch)
+    {
+        merge(this.tags, patch);
+    }
+
+    /**
+     * Builds the twin document returned to the device by a twin GET.
+     *
+     * @return the properties of the twin, with their versions.
+     */
+    synchronized String toDeviceJson()
+    {
+        return buildProperties().toString();
+    }
+
+    /**
+     * Builds the twin document returned to the service client.
+     *
+     * @param deviceId the device the twin belongs to.
+     * @return the twin with the device identity, the tags, and the properties.
+     */
+    synchronized String toServiceJson(String deviceId)
+    {
+        JsonObject twin = new JsonObject();
+        twin.addProperty("deviceId", deviceId);
+        twin.addProperty("etag", "AAAAAAAAAA" + (this.desiredVersion + this.reportedVersion));
+        twin.addProperty("version", this.desiredVersion + this.reportedVersion);
+        JsonObject tagsCopy = new JsonObject();
+        copyEntries(this.tags, tagsCopy);
+        twin.add("tags", tagsCopy);
+        twin.add("properties", buildProperties());
+        return twin.toString();
+    }
+
+    private JsonObject buildProperties()
+    {
+        JsonObject desiredCopy = new JsonObject();
+        copyEntries(this.desired, desiredCopy);
+        desiredCopy.addProperty(VERSION, this.desiredVersion);
+
+        JsonObject reportedCopy = new JsonObject();
+        copyEntries(this.reported, reportedCopy);
+        reportedCopy.addProperty(VERSION, this.reportedVersion);
+
+        JsonObject properties = new JsonObject();
+        properties.add("desired", desiredCopy);
+        properties.add("reported", reportedCopy);
+        return properties;
+    }
+
+    private static void merge(JsonObject target, JsonObject patch)
+    {
+        for (Map.Entry<String, JsonElement> entry : patch.entrySet())
+        {
+            String key = entry.getKey();
+            JsonElement value = entry.getValue();
+            if (key.isEmpty() || (key.charAt(0) == RESERVED_KEY_PREFIX))
+            {
+                continue;
+            }
+
+            if (value.isJsonNull())
+            {
+                target.remove(key);
+            }
+            else if (value.isJsonObject())
+            {
+                JsonElement current = target.get(key);
+                JsonObject merged = ((current != null) && current.isJsonObject()) ? current.getAsJsonObject() : new JsonObject();
+                merge(merged, value.getAsJsonObject());
+                target.add(key, merged);
+            }
+            else
+            {
+                target.add(key, value);
+            }
+        }
+    }
+
+    private static void copyEntries(JsonObject source, JsonObject destination)
+    {
+        for (Map.Entry<String, JsonElement> entry : source.entrySet())
+        {
+            destination.add(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.X509Extension;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import javax.security.auth.x500.X500Principal;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+
+/**
+ * Self signed server certificate of the simulated IoT Hub, valid for {@code localhost} and {@code 127.0.0.1}.
+ * The device clients trust the PEM file in {@link #getPemFile()}, and the service client trusts
+ * {@link #getClientSslContext()}.
+ */
+final class SimulatorCertificate
+{
+    private static final String ALIAS = "iothub-simulator";
+    private static final char[] PASSWORD = "iothub-simulator".toCharArray();
+    private static final long VALIDITY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int PEM_LINE_LENGTH = 64;
+
+    private final X509Certificate certificate;
+    private final SSLContext serverSslContext;
+    private final SSLContext clientSslContext;
+    private final File pemFile;
+
+    SimulatorCertificate(String hostName) throws GeneralSecurityException, IOException
+    {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null)
+        {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+        X500Principal subject = new X500Principal("CN=" + hostName);
+        long now = System.currentTimeMillis();
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(subject, BigInteger.valueOf(now),
+                new Date(now - VALIDITY_MILLIS), new Date(now + VALIDITY_MILLIS), subject, keyPair.getPublic());
+        builder.addExtension(X509Extension.subjectAlternativeName, false, new GeneralNames(new DERSequence(new ASN1Encodable[]
+                {
+                        new GeneralName(GeneralName.dNSName, "localhost"),
+                        new GeneralName(GeneralName.iPAddress, "127.0.0.1"),
+                        new GeneralName(isIpAddress(hostName) ? GeneralName.iPAddress : GeneralName.dNSName, hostName)
+                })));
+        // the certificate is its own trust anchor, so it shall be a CA certificate.
+        builder.addExtension(X509Extension.basicConstraints, true, new BasicConstraints(true));
+        ContentSigner signer;
+        try
+        {
+            signer = new JcaContentSignerBuilder("SHA256WithRSAEncryption")
+                    .setProvider(BouncyCastleProvider.PROVIDER_NAME).build(keyPair.getPrivate());
+        }
+        catch (OperatorCreationException e)
+        {
+            throw new GeneralSecurityException("Cannot create the signer of the simulator certificate", e);
+        }
+        this.certificate = new JcaX509CertificateConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME)
+                .getCertificate(builder.build(signer));
+
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, null);
+        keyStore.setKeyEntry(ALIAS, keyPair.getPrivate(), PASSWORD, new Certificate[] { this.certificate });
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, PASSWORD);
+        this.serverSslContext = SSLContext.getInstance("TLSv1.2");
+        this.serverSslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry(ALIAS, this.certificate);
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustStore);
+        this.clientSslContext = SSLContext.getInstance("TLSv1.2");
+        this.clientSslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+        this.pemFile = File.createTempFile(ALIAS, ".pem");
+        this.pemFile.deleteOnExit();
+        try (OutputStream outputStream = new FileOutputStream(this.pemFile))
+        {
+            outputStream.write(toPem(this.certificate.getEncoded()).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    SSLContext getServerSslContext()
+    {
+        return this.serverSslContext;
+    }
+
+    SSLContext getClientSslContext()
+    {
+        return this.clientSslContext;
+    }
+
+    File getPemFile()
+    {
+        return this.pemFile;
+    }
+
+    void delete()
+    {
+        if (!this.pemFile.delete())
+        {
+            this.pemFile.deleteOnExit();
+        }
+    }
+
+    private static boolean isIpAddress(String hostName)
+    {
+        return hostName.matches("[0-9.]+") || hostName.contains(":");
+    }
+
+    private static String toPem(byte[] der)
+    {
+        String base64 = new String(org.bouncycastle.util.encoders.Base64.encode(der), StandardCharsets.US_ASCII);
+        StringBuilder pem = new StringBuilder("-----BEGIN CERTIFICATE-----\r\n");
+        for (int i = 0; i < base64.length(); i += PEM_LINE_LENGTH)
+        {
+            pem.append(base64, i, Math.min(base64.length(), i + PEM_LINE_LENGTH)).append("\r\n");
+        }
+        return pem.append("-----END CERTIFICATE-----\r\n").toString();
+    }
+}
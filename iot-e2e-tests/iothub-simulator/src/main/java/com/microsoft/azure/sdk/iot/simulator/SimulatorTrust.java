@@ -0,0 +1,93 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClient;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+
+/**
+ * Makes the SDK clients trust the self signed certificate of the {@link IotHubSimulator}, or of any other server,
+ * from its PEM file.
+ *
+ * <p>{@link #trustCertificate(DeviceClient, String)} sets the {@code SetTrustedCertificatePath} option of the
+ * device client, that applies to all protocols. The HTTPS clients of the service, and the blob uploads, use the
+ * default {@code HttpsURLConnection} socket factory, which can be built from {@link #createSslContext(String)}.</p>
+ */
+public final class SimulatorTrust
+{
+    private static final String SET_TRUSTED_CERTIFICATE_PATH = "SetTrustedCertificatePath";
+
+    private SimulatorTrust()
+    {
+    }
+
+    /**
+     * Makes a device client trust the certificate in a PEM file. It shall be called before the client opens.
+     *
+     * @param client the device client, not opened yet.
+     * @param certificatePath the path of the PEM file with the certificate to trust.
+     * @throws IllegalArgumentException if one of the parameters is {@code null}.
+     * @throws IllegalStateException if the device client is already open.
+     */
+    public static void trustCertificate(DeviceClient client, String certificatePath)
+            throws IllegalArgumentException, IllegalStateException
+    {
+        if ((client == null) || (certificatePath == null))
+        {
+            throw new IllegalArgumentException("the client and the certificate path cannot be null");
+        }
+
+        client.setOption(SET_TRUSTED_CERTIFICATE_PATH, certificatePath);
+    }
+
+    /**
+     * Creates a client SSL context that trusts the certificates in a PEM file.
+     *
+     * @param certificatePath the path of the PEM file with the certificates to trust.
+     * @return the client SSL context.
+     * @throws IllegalArgumentException if the certificate path is {@code null}.
+     * @throws IOException if the PEM file cannot be read.
+     * @throws GeneralSecurityException if the PEM file has no valid certificate.
+     */
+    public static SSLContext createSslContext(String certificatePath)
+            throws IllegalArgumentException, IOException, GeneralSecurityException
+    {
+        if (certificatePath == null)
+        {
+            throw new IllegalArgumentException("the certificate path cannot be null");
+        }
+
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        try (InputStream inputStream = new FileInputStream(certificatePath))
+        {
+            int index = 0;
+            for (Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(inputStream))
+            {
+                trustStore.setCertificateEntry("trusted-" + index++, certificate);
+            }
+            if (index == 0)
+            {
+                throw new GeneralSecurityException("No certificate in " + certificatePath);
+            }
+        }
+
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustStore);
+        SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
+        sslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+        return sslContext;
+    }
+}
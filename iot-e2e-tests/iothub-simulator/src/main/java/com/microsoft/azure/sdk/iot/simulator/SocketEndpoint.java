@@ -0,0 +1,149 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.simulator;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TLS endpoint of the simulated IoT Hub that serves every connection in its own thread.
+ */
+abstract class SocketEndpoint implements Closeable
+{
+    private final String name;
+    private final FaultInjector faultInjector;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> sockets = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    SocketEndpoint(String name, SSLContext sslContext, InetAddress address, int port, FaultInjector faultInjector) throws IOException
+    {
+        this.name = name;
+        this.faultInjector = faultInjector;
+        SSLServerSocket sslServerSocket = (SSLServerSocket)sslContext.getServerSocketFactory().createServerSocket(port, 0, address);
+        sslServerSocket.setReuseAddress(true);
+        this.serverSocket = sslServerSocket;
+    }
+
+    /**
+     * Serves a connection until it is closed. Runs in the thread of the connection.
+     *
+     * @param socket the connection.
+     * @throws IOException if the connection failed.
+     */
+    abstract void serve(Socket socket) throws IOException;
+
+    void start()
+    {
+        Thread acceptor = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                accept();
+            }
+        }, "iothub-simulator-" + this.name);
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort()
+    {
+        return this.serverSocket.getLocalPort();
+    }
+
+    FaultInjector getFaultInjector()
+    {
+        return this.faultInjector;
+    }
+
+    /**
+     * Closes all the open connections, without closing the endpoint.
+     */
+    void disconnectAll()
+    {
+        for (Socket socket : this.sockets)
+        {
+            closeQuietly(socket);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.closed = true;
+        closeQuietly(this.serverSocket);
+        disconnectAll();
+    }
+
+    private void accept()
+    {
+        while (!this.closed)
+        {
+            final Socket socket;
+            try
+            {
+                socket = this.serverSocket.accept();
+            }
+            catch (IOException e)
+            {
+                continue;
+            }
+
+            if (this.faultInjector.isRefusingConnections())
+            {
+                closeQuietly(socket);
+                continue;
+            }
+
+            this.sockets.add(socket);
+            Thread connection = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        serve(socket);
+                    }
+                    catch (IOException e)
+                    {
+                        // the client or a fault closed the connection.
+                    }
+                    finally
+                    {
+                        sockets.remove(socket);
+                        closeQuietly(socket);
+                    }
+                }
+            }, "iothub-simulator-" + this.name + "-" + this.connectionCount.incrementAndGet());
+            connection.setDaemon(true);
+            connection.start();
+        }
+    }
+
+    static void closeQuietly(Closeable closeable)
+    {
+        try
+        {
+            closeable.close();
+        }
+        catch (IOException e)
+        {
+            // nothing to do, the connection is already closed.
+        }
+    }
+}
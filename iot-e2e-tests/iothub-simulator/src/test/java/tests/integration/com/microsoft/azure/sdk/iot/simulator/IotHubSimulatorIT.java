@@ -0,0 +1,335 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.integration.com.microsoft.azure.sdk.iot.simulator;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClient;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceMethodCallback;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceMethodData;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.Property;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.PropertyCallBack;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
+import com.microsoft.azure.sdk.iot.device.IotHubMessageResult;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageCallback;
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.ServiceClient;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethod;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwin;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinDevice;
+import com.microsoft.azure.sdk.iot.service.devicetwin.MethodResult;
+import com.microsoft.azure.sdk.iot.service.devicetwin.Pair;
+import com.microsoft.azure.sdk.iot.simulator.IotHubSimulator;
+import com.microsoft.azure.sdk.iot.simulator.SimulatedDevice;
+import com.microsoft.azure.sdk.iot.simulator.SimulatedMessage;
+import com.microsoft.azure.sdk.iot.simulator.SimulatorTrust;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the device and service clients against the IoT Hub simulator. The simulator listens on the fixed IoT Hub
+ * ports, so these tests need the permission to bind the port 443.
+ */
+public class IotHubSimulatorIT
+{
+    private static final int MESSAGE_COUNT = 20;
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final long HTTPS_POLLING_MILLIS = 100L;
+
+    private static IotHubSimulator simulator;
+    private DeviceClient deviceClient;
+
+    @BeforeClass
+    public static void startSimulator() throws Exception
+    {
+        simulator = new IotHubSimulator();
+        simulator.start();
+        HttpsURLConnection.setDefaultSSLSocketFactory(simulator.getSslContext().getSocketFactory());
+    }
+
+    @AfterClass
+    public static void stopSimulator()
+    {
+        simulator.close();
+    }
+
+    @After
+    public void closeDeviceClient() throws Exception
+    {
+        if (this.deviceClient != null)
+        {
+            this.deviceClient.closeNow();
+            this.deviceClient = null;
+        }
+        simulator.getFaultInjector().reset();
+    }
+
+    private SimulatedDevice openDeviceClient(IotHubClientProtocol protocol) throws Exception
+    {
+        String deviceId = "simulated-" + protocol + "-" + UUID.randomUUID();
+        this.deviceClient = new DeviceClient(simulator.getDeviceConnectionString(deviceId), protocol);
+        SimulatorTrust.trustCertificate(this.deviceClient, simulator.getCertificatePath());
+        if (protocol == IotHubClientProtocol.HTTPS)
+        {
+            this.deviceClient.setOption("SetMinimumPollingInterval", HTTPS_POLLING_MILLIS);
+        }
+        this.deviceClient.open();
+        return simulator.getDevice(deviceId);
+    }
+
+    private void sendTelemetry(int count) throws InterruptedException
+    {
+        final CountDownLatch sent = new CountDownLatch(count);
+        for (int i = 0; i < count; i++)
+        {
+            Message message = new Message(("telemetry " + i).getBytes(StandardCharsets.UTF_8));
+            message.setMessageId(Integer.toString(i));
+            message.setProperty("index", Integer.toString(i));
+            this.deviceClient.sendEventAsync(message, new IotHubEventCallback()
+            {
+                @Override
+                public void execute(IotHubStatusCode responseStatus, Object callbackContext)
+                {
+                    if (responseStatus == IotHubStatusCode.OK || responseStatus == IotHubStatusCode.OK_EMPTY)
+                    {
+                        sent.countDown();
+                    }
+                }
+            }, null);
+        }
+        assertTrue("telemetry was not acknowledged", sent.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private void assertTelemetry(SimulatedDevice device, int count) throws InterruptedException
+    {
+        // the clients may report a message as sent before the simulator receives it.
+        for (int i = 0; i < count; i++)
+        {
+            SimulatedMessage message = device.pollTelemetry(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertEquals("telemetry " + i, new String(message.getBody(), StandardCharsets.UTF_8));
+            assertEquals(Integer.toString(i), message.getMessageId());
+            assertEquals(Integer.toString(i), message.getProperties().get("index"));
+        }
+        assertEquals(count, device.getTelemetryCount());
+    }
+
+    @Test
+    public void telemetryOverMqtt() throws Exception
+    {
+        SimulatedDevice device = openDeviceClient(IotHubClientProtocol.MQTT);
+        sendTelemetry(MESSAGE_COUNT);
+        assertTelemetry(device, MESSAGE_COUNT);
+    }
+
+    @Test
+    public void telemetryOverAmqps() throws Exception
+    {
+        SimulatedDevice device = openDeviceClient(IotHubClientProtocol.AMQPS);
+        sendTelemetry(MESSAGE_COUNT);
+        assertTelemetry(device, MESSAGE_COUNT);
+    }
+
+    @Test
+    public void telemetryOverHttps() throws Exception
+    {
+        SimulatedDevice device = openDeviceClient(IotHubClientProtocol.HTTPS);
+        sendTelemetry(MESSAGE_COUNT);
+        assertTelemetry(device, MESSAGE_COUNT);
+    }
+
+    private void receiveCloudToDevice(IotHubClientProtocol protocol) throws Exception
+    {
+        final AtomicReference<Message> received = new AtomicReference<>();
+        final CountDownLatch receivedLatch = new CountDownLatch(1);
+        SimulatedDevice device = openDeviceClient(protocol);
+        this.deviceClient.setMessageCallback(new MessageCallback()
+        {
+            @Override
+            public IotHubMessageResult execute(Message message, Object callbackContext)
+            {
+                received.set(message);
+                receivedLatch.countDown();
+                return IotHubMessageResult.COMPLETE;
+            }
+        }, null);
+
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(simulator.getServiceConnectionString(), IotHubServiceClientProtocol.AMQPS);
+        serviceClient.open();
+        com.microsoft.azure.sdk.iot.service.Message message = new com.microsoft.azure.sdk.iot.service.Message("cloud to device");
+        message.setMessageId("c2d-1");
+        message.setProperties(java.util.Collections.singletonMap("key", "value"));
+        serviceClient.send(device.getDeviceId(), message);
+        serviceClient.close();
+
+        assertTrue("cloud to device message was not received", receivedLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertArrayEquals("cloud to device".getBytes(StandardCharsets.UTF_8), received.get().getBytes());
+        assertEquals("c2d-1", received.get().getMessageId());
+        assertEquals("value", received.get().getProperty("key"));
+    }
+
+    @Test
+    public void cloudToDeviceOverMqtt() throws Exception
+    {
+        receiveCloudToDevice(IotHubClientProtocol.MQTT);
+    }
+
+    @Test
+    public void cloudToDeviceOverAmqps() throws Exception
+    {
+        receiveCloudToDevice(IotHubClientProtocol.AMQPS);
+    }
+
+    @Test
+    public void cloudToDeviceOverHttps() throws Exception
+    {
+        receiveCloudToDevice(IotHubClientProtocol.HTTPS);
+    }
+
+    private void twinAndMethods(IotHubClientProtocol protocol) throws Exception
+    {
+        final CountDownLatch reported = new CountDownLatch(1);
+        final CountDownLatch desired = new CountDownLatch(1);
+        final AtomicReference<Object> desiredValue = new AtomicReference<>();
+        SimulatedDevice device = openDeviceClient(protocol);
+        this.deviceClient.startDeviceTwin(new IotHubEventCallback()
+        {
+            @Override
+            public void execute(IotHubStatusCode responseStatus, Object callbackContext)
+            {
+                if (responseStatus == IotHubStatusCode.OK || responseStatus == IotHubStatusCode.OK_EMPTY)
+                {
+                    reported.countDown();
+                }
+            }
+        }, null, new PropertyCallBack<String, Object>()
+        {
+            @Override
+            public void PropertyCall(String propertyKey, Object propertyValue, Object context)
+            {
+                if ("target".equals(propertyKey))
+                {
+                    desiredValue.set(propertyValue);
+                    desired.countDown();
+                }
+            }
+        }, null);
+        this.deviceClient.subscribeToDesiredProperties(null);
+        this.deviceClient.subscribeToDeviceMethod(new DeviceMethodCallback()
+        {
+            @Override
+            public DeviceMethodData call(String methodName, Object methodData, Object context)
+            {
+                return new DeviceMethodData(200, "{\"echo\":\"" + methodName + "\"}");
+            }
+        }, null, new IotHubEventCallback()
+        {
+            @Override
+            public void execute(IotHubStatusCode responseStatus, Object callbackContext)
+            {
+            }
+        }, null);
+
+        Set<Property> properties = new HashSet<>();
+        properties.add(new Property("temperature", 21));
+        this.deviceClient.sendReportedProperties(properties);
+        assertTrue("reported properties were not acknowledged", reported.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        DeviceTwin twinClient = DeviceTwin.createFromConnectionString(simulator.getServiceConnectionString());
+        DeviceTwinDevice twin = new DeviceTwinDevice(device.getDeviceId());
+        twinClient.getTwin(twin);
+        assertEquals(21.0, ((Number)twin.getReportedProperties().iterator().next().getValue()).doubleValue(), 0);
+
+        Set<Pair> desiredProperties = new HashSet<>();
+        desiredProperties.add(new Pair("target", 25));
+        twin.setDesiredProperties(desiredProperties);
+        twinClient.updateTwin(twin);
+        assertTrue("desired properties were not notified", desired.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(25.0, ((Number)desiredValue.get()).doubleValue(), 0);
+
+        MethodResult result = DeviceMethod.createFromConnectionString(simulator.getServiceConnectionString())
+                .invoke(device.getDeviceId(), "reboot", TIMEOUT_SECONDS, TIMEOUT_SECONDS, null);
+        assertEquals(200, (int)result.getStatus());
+    }
+
+    @Test
+    public void twinAndMethodsOverMqtt() throws Exception
+    {
+        twinAndMethods(IotHubClientProtocol.MQTT);
+    }
+
+    @Test
+    public void twinAndMethodsOverAmqps() throws Exception
+    {
+        twinAndMethods(IotHubClientProtocol.AMQPS);
+    }
+
+    @Test
+    public void uploadToBlob() throws Exception
+    {
+        final CountDownLatch uploaded = new CountDownLatch(1);
+        final AtomicReference<IotHubStatusCode> status = new AtomicReference<>();
+        byte[] content = new byte[100 * 1024];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte)i;
+        }
+        openDeviceClient(IotHubClientProtocol.HTTPS);
+        this.deviceClient.uploadToBlobAsync("folder/blob.bin", new ByteArrayInputStream(content), content.length, new IotHubEventCallback()
+        {
+            @Override
+            public void execute(IotHubStatusCode responseStatus, Object callbackContext)
+            {
+                status.set(responseStatus);
+                uploaded.countDown();
+            }
+        }, null);
+
+        assertTrue("the upload did not complete", uploaded.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(status.get() == IotHubStatusCode.OK || status.get() == IotHubStatusCode.OK_EMPTY);
+        assertArrayEquals(content, simulator.getBlob("folder/blob.bin"));
+    }
+
+    @Test
+    public void throttledHttpsTelemetryIsRetriedOrReported() throws Exception
+    {
+        SimulatedDevice device = openDeviceClient(IotHubClientProtocol.MQTT);
+        simulator.getFaultInjector().setLatency(1, 5);
+        simulator.getFaultInjector().setThrottleEvery(5);
+        sendTelemetry(MESSAGE_COUNT);
+        assertTelemetry(device, MESSAGE_COUNT);
+    }
+
+    @Test
+    public void mqttClientReconnectsAfterDisconnect() throws Exception
+    {
+        SimulatedDevice device = openDeviceClient(IotHubClientProtocol.MQTT);
+        sendTelemetry(1);
+        assertNotNull(device.pollTelemetry(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        simulator.disconnectAll();
+        sendTelemetry(1);
+        assertNotNull(device.pollTelemetry(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, device.getConnectionCount());
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClient;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+
+import java.net.URISyntaxException;
+
+/**
+ * Creates the device clients of the {@link LoadGenerator}, to set options on them before they are opened.
+ */
+public interface DeviceClientFactory
+{
+    /**
+     * Creates a device client, which the load generator opens.
+     *
+     * @param connectionString the connection string of the device.
+     * @param protocol the protocol of the device.
+     * @return the device client.
+     * @throws URISyntaxException if the connection string is not valid.
+     */
+    DeviceClient create(String connectionString, IotHubClientProtocol protocol) throws URISyntaxException;
+}
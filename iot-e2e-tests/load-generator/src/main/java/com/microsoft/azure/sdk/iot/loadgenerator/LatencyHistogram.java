@@ -0,0 +1,209 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe latency histogram with a fixed relative precision, in the HdrHistogram layout.
+ *
+ * <p>The values are counted in buckets that double in range, and each bucket is split in 128 linear sub-buckets, so
+ * any value is reported within 1% of its recorded value. Recording a value is lock free and never allocates, so
+ * the send callbacks of thousands of devices can record into the same histogram.</p>
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 7;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final long SUB_BUCKET_MASK = (SUB_BUCKET_HALF_COUNT << 1) - 1;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValue = new AtomicLong();
+    private final AtomicLong minValue = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param highestTrackableValue the highest value the histogram tracks, the higher values are counted as this one.
+     * @throws IllegalArgumentException if the highestTrackableValue is smaller than 2.
+     */
+    public LatencyHistogram(long highestTrackableValue) throws IllegalArgumentException
+    {
+        if (highestTrackableValue < 2)
+        {
+            throw new IllegalArgumentException("highestTrackableValue shall be 2 or more");
+        }
+
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(countsIndex(highestTrackableValue) + 1);
+    }
+
+    /**
+     * Records a value in the histogram.
+     *
+     * @param value the value to record, like a latency in microseconds.
+     * @throws IllegalArgumentException if the value is negative.
+     */
+    public void recordValue(long value) throws IllegalArgumentException
+    {
+        if (value < 0)
+        {
+            throw new IllegalArgumentException("value shall not be negative");
+        }
+
+        long trackedValue = Math.min(value, this.highestTrackableValue);
+        this.counts.incrementAndGet(countsIndex(trackedValue));
+        this.totalCount.incrementAndGet();
+        this.totalValue.addAndGet(trackedValue);
+        updateMin(trackedValue);
+        updateMax(trackedValue);
+    }
+
+    /**
+     * Adds the values recorded in other histogram to this one.
+     *
+     * @param other the histogram to add, with the same highest trackable value.
+     * @throws IllegalArgumentException if the other histogram is null, or tracks other range.
+     */
+    public void add(LatencyHistogram other) throws IllegalArgumentException
+    {
+        if ((other == null) || (other.highestTrackableValue != this.highestTrackableValue))
+        {
+            throw new IllegalArgumentException("other histogram shall track the same range");
+        }
+
+        for (int i = 0; i < other.counts.length(); i++)
+        {
+            long count = other.counts.get(i);
+            if (count != 0)
+            {
+                this.counts.addAndGet(i, count);
+            }
+        }
+        this.totalCount.addAndGet(other.totalCount.get());
+        this.totalValue.addAndGet(other.totalValue.get());
+        if (other.getTotalCount() != 0)
+        {
+            updateMin(other.minValue.get());
+            updateMax(other.maxValue.get());
+        }
+    }
+
+    /**
+     * Getter for the number of recorded values.
+     *
+     * @return the number of recorded values.
+     */
+    public long getTotalCount()
+    {
+        return this.totalCount.get();
+    }
+
+    /**
+     * Getter for the smallest recorded value.
+     *
+     * @return the smallest recorded value, or 0 if there is no recorded value.
+     */
+    public long getMinValue()
+    {
+        return (this.totalCount.get() == 0) ? 0 : this.minValue.get();
+    }
+
+    /**
+     * Getter for the highest recorded value.
+     *
+     * @return the highest recorded value, or 0 if there is no recorded value.
+     */
+    public long getMaxValue()
+    {
+        return this.maxValue.get();
+    }
+
+    /**
+     * Getter for the mean of the recorded values.
+     *
+     * @return the mean of the recorded values, or 0 if there is no recorded value.
+     */
+    public double getMean()
+    {
+        long count = this.totalCount.get();
+        return (count == 0) ? 0 : ((double)this.totalValue.get() / count);
+    }
+
+    /**
+     * Getter for the value at a percentile of the recorded values.
+     *
+     * @param percentile the percentile, from 0 to 100.
+     * @return the highest value equivalent to the value at the percentile, or 0 if there is no recorded value.
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100.
+     */
+    public long getValueAtPercentile(double percentile) throws IllegalArgumentException
+    {
+        if ((percentile < 0) || (percentile > 100))
+        {
+            throw new IllegalArgumentException("percentile shall be between 0 and 100");
+        }
+
+        long count = this.totalCount.get();
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        long countAtPercentile = Math.max(1, (long)Math.ceil((percentile / 100) * count));
+        long runningCount = 0;
+        for (int i = 0; i < this.counts.length(); i++)
+        {
+            runningCount += this.counts.get(i);
+            if (runningCount >= countAtPercentile)
+            {
+                return Math.min(highestEquivalentValue(i), this.maxValue.get());
+            }
+        }
+        return this.maxValue.get();
+    }
+
+    private void updateMin(long value)
+    {
+        long current;
+        while ((value < (current = this.minValue.get())) && !this.minValue.compareAndSet(current, value))
+        {
+            // another thread changed the minimum, try again.
+        }
+    }
+
+    private void updateMax(long value)
+    {
+        long current;
+        while ((value > (current = this.maxValue.get())) && !this.maxValue.compareAndSet(current, value))
+        {
+            // another thread changed the maximum, try again.
+        }
+    }
+
+    private static int countsIndex(long value)
+    {
+        int bucketIndex = 63 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK) - SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+        int subBucketIndex = (int)(value >>> bucketIndex);
+        return (bucketIndex << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + subBucketIndex;
+    }
+
+    private static long highestEquivalentValue(int index)
+    {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        long subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0)
+        {
+            // the values below 128 are counted with a unit precision.
+            return index;
+        }
+        return ((subBucketIndex + 1) << bucketIndex) - 1;
+    }
+}
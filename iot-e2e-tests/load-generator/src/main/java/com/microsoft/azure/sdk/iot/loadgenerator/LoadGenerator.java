@@ -0,0 +1,355 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClient;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.service.Device;
+import com.microsoft.azure.sdk.iot.service.RegistryManager;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives thousands of {@link DeviceClient}s in one JVM against an IoT Hub, and reports their throughput, send to
+ * acknowledgement latency percentiles, and thread and heap usage.
+ *
+ * <p>The generator registers the devices of the {@link LoadProfile} with the IoT Hub connection string, connects
+ * them along the ramp up, and sends the telemetry of each device at a fixed rate until the end of the duration.
+ * It then waits for the pending acknowledgements, closes the devices, and removes them from the IoT Hub.</p>
+ *
+ * <pre>
+ * {@code
+ * LoadProfile profile = new LoadProfile()
+ *         .setDeviceCount(1000)
+ *         .setProtocols(IotHubClientProtocol.MQTT, IotHubClientProtocol.AMQPS)
+ *         .setMessagesPerSecond(0.5);
+ * LoadReport report = new LoadGenerator(iotHubConnectionString, profile).run();
+ * System.out.println(report);
+ * }
+ * </pre>
+ */
+public final class LoadGenerator
+{
+    private static final String DEVICE_CLIENT_POM_PROPERTIES = "/META-INF/maven/com.microsoft.azure.sdk.iot/iot-device-client/pom.properties";
+    private static final String UNKNOWN_VERSION = "unknown";
+    private static final long SAMPLE_PERIOD_MILLIS = 1000;
+    private static final long DRAIN_TIMEOUT_MILLIS = 30000;
+    private static final long DRAIN_POLL_MILLIS = 100;
+    private static final long CLOSE_TIMEOUT_MINUTES = 5;
+
+    private static final DeviceClientFactory DEFAULT_DEVICE_CLIENT_FACTORY = new DeviceClientFactory()
+    {
+        @Override
+        public DeviceClient create(String connectionString, IotHubClientProtocol protocol) throws URISyntaxException
+        {
+            return new DeviceClient(connectionString, protocol);
+        }
+    };
+
+    private final String iotHubConnectionString;
+    private final LoadProfile profile;
+    private DeviceClientFactory deviceClientFactory = DEFAULT_DEVICE_CLIENT_FACTORY;
+
+    /**
+     * A connected device, and the task that sends its telemetry.
+     */
+    private static final class LoadDevice implements Runnable
+    {
+        private final DeviceClient client;
+        private final LoadStatistics statistics;
+        private final byte[] payload;
+
+        private LoadDevice(DeviceClient client, LoadStatistics statistics, byte[] payload)
+        {
+            this.client = client;
+            this.statistics = statistics;
+            this.payload = payload;
+        }
+
+        @Override
+        public void run()
+        {
+            this.client.sendEventAsync(new Message(this.payload), this.statistics, this.statistics.onSend());
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param iotHubConnectionString the connection string of the IoT Hub, with the registry write permission.
+     * @param profile the load to apply.
+     * @throws IllegalArgumentException if the iotHubConnectionString is null or empty, or the profile is null.
+     */
+    public LoadGenerator(String iotHubConnectionString, LoadProfile profile) throws IllegalArgumentException
+    {
+        if ((iotHubConnectionString == null) || iotHubConnectionString.isEmpty())
+        {
+            throw new IllegalArgumentException("iotHubConnectionString shall not be null or empty");
+        }
+        if (profile == null)
+        {
+            throw new IllegalArgumentException("profile shall not be null");
+        }
+
+        this.iotHubConnectionString = iotHubConnectionString;
+        this.profile = profile;
+    }
+
+    /**
+     * Setter for the factory of the device clients, to set options on the clients before they are opened.
+     *
+     * @param deviceClientFactory the factory, which creates a plain {@link DeviceClient} by default.
+     * @throws IllegalArgumentException if the deviceClientFactory is null.
+     */
+    public void setDeviceClientFactory(DeviceClientFactory deviceClientFactory) throws IllegalArgumentException
+    {
+        if (deviceClientFactory == null)
+        {
+            throw new IllegalArgumentException("deviceClientFactory shall not be null");
+        }
+        this.deviceClientFactory = deviceClientFactory;
+    }
+
+    /**
+     * Applies the load, and blocks until the devices are closed.
+     *
+     * <p>The throughput is the number of acknowledged messages over the ramp up and the duration.</p>
+     *
+     * @return the report of the run.
+     * @throws IOException if the IoT Hub connection string is not valid.
+     * @throws InterruptedException if the thread is interrupted while the load runs.
+     */
+    public LoadReport run() throws IOException, InterruptedException
+    {
+        final RegistryManager registryManager = RegistryManager.createFromConnectionString(this.iotHubConnectionString);
+        final Map<IotHubClientProtocol, LoadStatistics> statistics = new LinkedHashMap<>();
+        for (IotHubClientProtocol protocol : this.profile.getProtocols())
+        {
+            if (!statistics.containsKey(protocol))
+            {
+                statistics.put(protocol, new LoadStatistics(protocol.toString()));
+            }
+        }
+        final byte[] payload = new byte[this.profile.getMessageSize()];
+        new Random(0).nextBytes(payload);
+        final Queue<DeviceClient> clients = new ConcurrentLinkedQueue<>();
+        final Queue<String> registeredDeviceIds = new ConcurrentLinkedQueue<>();
+
+        ResourceSampler resources = new ResourceSampler();
+        String startTime = formatUtc(new Date());
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(createThreadFactory("load-generator-sampler"));
+        sampler.scheduleAtFixedRate(resources, SAMPLE_PERIOD_MILLIS, SAMPLE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        final ScheduledExecutorService sendScheduler = Executors.newScheduledThreadPool(
+                Runtime.getRuntime().availableProcessors(), createThreadFactory("load-generator-send"));
+        ScheduledThreadPoolExecutor connectionScheduler = new ScheduledThreadPoolExecutor(
+                this.profile.getConnectionThreads(), createThreadFactory("load-generator-connect"));
+        connectionScheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        final long startNanos = System.nanoTime();
+        final long rampUpNanos = TimeUnit.SECONDS.toNanos(this.profile.getRampUpSeconds());
+        final long endNanos = startNanos + rampUpNanos + TimeUnit.SECONDS.toNanos(this.profile.getDurationSeconds());
+        final long periodNanos = Math.max(1, (long)(TimeUnit.SECONDS.toNanos(1) / this.profile.getMessagesPerSecond()));
+        final Random jitter = new Random();
+        for (int i = 0; i < this.profile.getDeviceCount(); i++)
+        {
+            final String deviceId = this.profile.getDeviceId(i);
+            final IotHubClientProtocol protocol = this.profile.getProtocol(i);
+            final long initialDelayNanos = (long)(periodNanos * jitter.nextDouble());
+            connectionScheduler.schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    LoadStatistics protocolStatistics = statistics.get(protocol);
+                    try
+                    {
+                        Device device = register(registryManager, deviceId);
+                        registeredDeviceIds.add(deviceId);
+                        DeviceClient client = deviceClientFactory.create(registryManager.getDeviceConnectionString(device), protocol);
+                        clients.add(client);
+                        client.open();
+                        // spreading the first sends avoids that all devices send in the same instant.
+                        sendScheduler.scheduleAtFixedRate(new LoadDevice(client, protocolStatistics, payload),
+                                initialDelayNanos, periodNanos, TimeUnit.NANOSECONDS);
+                        protocolStatistics.onConnected();
+                    }
+                    catch (IOException | IotHubException | URISyntaxException | NoSuchAlgorithmException | RuntimeException e)
+                    {
+                        protocolStatistics.onConnectFailure();
+                    }
+                }
+            }, (rampUpNanos * i) / this.profile.getDeviceCount(), TimeUnit.NANOSECONDS);
+        }
+
+        TimeUnit.NANOSECONDS.sleep(endNanos - System.nanoTime());
+        // the devices that are not connected at the end of the duration are not counted.
+        connectionScheduler.shutdown();
+        sendScheduler.shutdown();
+        connectionScheduler.awaitTermination(CLOSE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        sendScheduler.awaitTermination(CLOSE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        double elapsedSeconds = (System.nanoTime() - startNanos) / (double)TimeUnit.SECONDS.toNanos(1);
+        waitForAcknowledgements(statistics.values());
+        sampler.shutdown();
+        sampler.awaitTermination(CLOSE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        resources.run();
+
+        List<LoadReport.ProtocolResult> protocolResults = new ArrayList<>();
+        LoadStatistics total = new LoadStatistics("total");
+        for (LoadStatistics protocolStatistics : statistics.values())
+        {
+            protocolResults.add(protocolStatistics.toResult(elapsedSeconds));
+            total.add(protocolStatistics);
+        }
+        LoadReport report = new LoadReport(getDeviceClientVersion(), startTime, this.profile, protocolResults,
+                total.toResult(elapsedSeconds), resources);
+
+        close(registryManager, clients, registeredDeviceIds);
+        return report;
+    }
+
+    /**
+     * Getter for the version of the device client in the class path, which the report records.
+     *
+     * @return the version of the device client, or {@code unknown} if its maven properties are not available.
+     */
+    public static String getDeviceClientVersion()
+    {
+        Properties properties = new Properties();
+        try (InputStream stream = DeviceClient.class.getResourceAsStream(DEVICE_CLIENT_POM_PROPERTIES))
+        {
+            if (stream != null)
+            {
+                properties.load(stream);
+            }
+        }
+        catch (IOException e)
+        {
+            // the version is only informative.
+        }
+        return properties.getProperty("version", UNKNOWN_VERSION);
+    }
+
+    private static Device register(RegistryManager registryManager, String deviceId)
+            throws IOException, IotHubException, NoSuchAlgorithmException
+    {
+        try
+        {
+            return registryManager.addDevice(Device.createFromId(deviceId, null, null));
+        }
+        catch (IotHubException e)
+        {
+            // the device may remain from an interrupted run.
+            return registryManager.getDevice(deviceId);
+        }
+    }
+
+    private void close(final RegistryManager registryManager, Queue<DeviceClient> clients, Queue<String> registeredDeviceIds)
+            throws InterruptedException
+    {
+        ExecutorService closer = Executors.newFixedThreadPool(this.profile.getConnectionThreads(), createThreadFactory("load-generator-close"));
+        for (final DeviceClient client : clients)
+        {
+            closer.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        client.closeNow();
+                    }
+                    catch (IOException | RuntimeException e)
+                    {
+                        // the load is over, a device that fails to close is only left behind.
+                    }
+                }
+            });
+        }
+        for (final String deviceId : registeredDeviceIds)
+        {
+            closer.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        registryManager.removeDevice(deviceId);
+                    }
+                    catch (IOException | IotHubException | RuntimeException e)
+                    {
+                        // the device is reused by the next run with the same prefix.
+                    }
+                }
+            });
+        }
+        closer.shutdown();
+        closer.awaitTermination(CLOSE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+    }
+
+    private static void waitForAcknowledgements(Iterable<LoadStatistics> statistics) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline)
+        {
+            long pending = 0;
+            for (LoadStatistics protocolStatistics : statistics)
+            {
+                pending += protocolStatistics.getPending();
+            }
+            if (pending == 0)
+            {
+                return;
+            }
+            Thread.sleep(DRAIN_POLL_MILLIS);
+        }
+    }
+
+    private static String formatUtc(Date date)
+    {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat.format(date);
+    }
+
+    private static ThreadFactory createThreadFactory(final String name)
+    {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.simulator.SimulatorTrust;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line of the {@link LoadGenerator}.
+ *
+ * <pre>
+ * java -jar iot-e2e-load-generator-with-deps.jar --devices 1000 --protocols MQTT,AMQPS --rate 0.5
+ *     --report current.json --baseline previous.json
+ * </pre>
+ *
+ * <p>The IoT Hub connection string is taken from {@code --connection-string}, or from the
+ * {@code IOTHUB_CONNECTION_STRING} environment variable. With {@code --trusted-cert}, the device clients on all
+ * protocols and the registry manager trust the certificate in the PEM file, to run against the IoT Hub
+ * simulator.</p>
+ */
+public final class LoadGeneratorCli
+{
+    private static final String CONNECTION_STRING_ENV_VAR_NAME = "IOTHUB_CONNECTION_STRING";
+    private static final String USAGE =
+            "usage: LoadGeneratorCli [options]\n" +
+            "  --connection-string <s>  IoT Hub connection string, or the " + CONNECTION_STRING_ENV_VAR_NAME + " environment variable\n" +
+            "  --devices <n>            number of devices (100)\n" +
+            "  --protocols <list>       comma separated MQTT, AMQPS, HTTPS, MQTT_WS, AMQPS_WS (MQTT)\n" +
+            "  --rate <n>               messages per second of each device (1)\n" +
+            "  --message-size <n>       message body size in bytes (256)\n" +
+            "  --ramp-up <s>            seconds to connect all devices (10)\n" +
+            "  --duration <s>           seconds to send after the ramp up (60)\n" +
+            "  --connection-threads <n> threads that connect the devices (16)\n" +
+            "  --device-prefix <s>      prefix of the device ids (load-generator)\n" +
+            "  --trusted-cert <file>    PEM file of a server certificate to trust, like the one of the IoT Hub simulator\n" +
+            "  --report <file>          save the report as JSON\n" +
+            "  --baseline <file>        compare with a report saved by an other run\n";
+
+    private LoadGeneratorCli()
+    {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        Map<String, String> options;
+        LoadProfile profile = new LoadProfile();
+        try
+        {
+            options = parseOptions(args);
+            if (options.containsKey("devices"))
+            {
+                profile.setDeviceCount(Integer.parseInt(options.get("devices")));
+            }
+            if (options.containsKey("protocols"))
+            {
+                String[] names = options.get("protocols").split(",");
+                IotHubClientProtocol[] protocols = new IotHubClientProtocol[names.length];
+                for (int i = 0; i < names.length; i++)
+                {
+                    protocols[i] = IotHubClientProtocol.valueOf(names[i].trim().toUpperCase());
+                }
+                profile.setProtocols(protocols);
+            }
+            if (options.containsKey("rate"))
+            {
+                profile.setMessagesPerSecond(Double.parseDouble(options.get("rate")));
+            }
+            if (options.containsKey("message-size"))
+            {
+                profile.setMessageSize(Integer.parseInt(options.get("message-size")));
+            }
+            if (options.containsKey("ramp-up"))
+            {
+                profile.setRampUpSeconds(Long.parseLong(options.get("ramp-up")));
+            }
+            if (options.containsKey("duration"))
+            {
+                profile.setDurationSeconds(Long.parseLong(options.get("duration")));
+            }
+            if (options.containsKey("connection-threads"))
+            {
+                profile.setConnectionThreads(Integer.parseInt(options.get("connection-threads")));
+            }
+            if (options.containsKey("device-prefix"))
+            {
+                profile.setDeviceIdPrefix(options.get("device-prefix"));
+            }
+            if (!options.containsKey("connection-string") && (System.getenv(CONNECTION_STRING_ENV_VAR_NAME) != null))
+            {
+                options.put("connection-string", System.getenv(CONNECTION_STRING_ENV_VAR_NAME));
+            }
+            if (!options.containsKey("connection-string"))
+            {
+                throw new IllegalArgumentException("the IoT Hub connection string is missing");
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            // NumberFormatException is an IllegalArgumentException too.
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        LoadGenerator loadGenerator = new LoadGenerator(options.get("connection-string"), profile);
+        if (options.containsKey("trusted-cert"))
+        {
+            String certificatePath = options.get("trusted-cert");
+            try
+            {
+                // the registry manager uses the default HTTPS socket factory.
+                HttpsURLConnection.setDefaultSSLSocketFactory(SimulatorTrust.createSslContext(certificatePath).getSocketFactory());
+            }
+            catch (GeneralSecurityException e)
+            {
+                throw new IOException("Cannot trust the certificate in " + certificatePath, e);
+            }
+            loadGenerator.setDeviceClientFactory(new TrustingDeviceClientFactory(certificatePath));
+        }
+
+        LoadReport report = loadGenerator.run();
+        System.out.println(report);
+        if (options.containsKey("report"))
+        {
+            Files.write(Paths.get(options.get("report")), report.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        if (options.containsKey("baseline"))
+        {
+            String baseline = new String(Files.readAllBytes(Paths.get(options.get("baseline"))), StandardCharsets.UTF_8);
+            System.out.println(report.compare(LoadReport.fromJson(baseline)));
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) throws IllegalArgumentException
+    {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2)
+        {
+            if (!args[i].startsWith("--") || ((i + 1) >= args.length))
+            {
+                throw new IllegalArgumentException("invalid option " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The load the {@link LoadGenerator} applies to the IoT Hub: how many devices, over which protocols, and how fast
+ * they send which messages.
+ *
+ * <p>The devices are spread over the protocols in turn, and connected evenly along the ramp up. Each device sends
+ * its messages at a fixed rate, from its connection until the end of the ramp up and the duration.</p>
+ */
+public final class LoadProfile
+{
+    private static final int DEFAULT_DEVICE_COUNT = 100;
+    private static final double DEFAULT_MESSAGES_PER_SECOND = 1;
+    private static final int DEFAULT_MESSAGE_SIZE = 256;
+    private static final long DEFAULT_RAMP_UP_SECONDS = 10;
+    private static final long DEFAULT_DURATION_SECONDS = 60;
+    private static final int DEFAULT_CONNECTION_THREADS = 16;
+    private static final String DEFAULT_DEVICE_ID_PREFIX = "load-generator";
+
+    private int deviceCount = DEFAULT_DEVICE_COUNT;
+    private List<IotHubClientProtocol> protocols = Collections.singletonList(IotHubClientProtocol.MQTT);
+    private double messagesPerSecond = DEFAULT_MESSAGES_PER_SECOND;
+    private int messageSize = DEFAULT_MESSAGE_SIZE;
+    private long rampUpSeconds = DEFAULT_RAMP_UP_SECONDS;
+    private long durationSeconds = DEFAULT_DURATION_SECONDS;
+    private int connectionThreads = DEFAULT_CONNECTION_THREADS;
+    private String deviceIdPrefix = DEFAULT_DEVICE_ID_PREFIX;
+
+    /**
+     * Setter for the number of simulated devices.
+     *
+     * @param deviceCount the number of devices, 100 by default.
+     * @return this profile.
+     * @throws IllegalArgumentException if the deviceCount is not positive.
+     */
+    public LoadProfile setDeviceCount(int deviceCount) throws IllegalArgumentException
+    {
+        if (deviceCount <= 0)
+        {
+            throw new IllegalArgumentException("deviceCount shall be positive");
+        }
+        this.deviceCount = deviceCount;
+        return this;
+    }
+
+    /**
+     * Setter for the protocols of the devices, which are assigned to the devices in turn.
+     *
+     * @param protocols the protocols, MQTT by default.
+     * @return this profile.
+     * @throws IllegalArgumentException if there is no protocol, or a protocol is null.
+     */
+    public LoadProfile setProtocols(IotHubClientProtocol... protocols) throws IllegalArgumentException
+    {
+        if ((protocols == null) || (protocols.length == 0))
+        {
+            throw new IllegalArgumentException("protocols shall contain at least one protocol");
+        }
+        List<IotHubClientProtocol> protocolList = new ArrayList<>(Arrays.asList(protocols));
+        if (protocolList.contains(null))
+        {
+            throw new IllegalArgumentException("protocols shall not contain null");
+        }
+        this.protocols = Collections.unmodifiableList(protocolList);
+        return this;
+    }
+
+    /**
+     * Setter for the rate each device sends its messages at.
+     *
+     * @param messagesPerSecond the number of messages per second of each device, 1 by default.
+     * @return this profile.
+     * @throws IllegalArgumentException if the messagesPerSecond is not positive.
+     */
+    public LoadProfile setMessagesPerSecond(double messagesPerSecond) throws IllegalArgumentException
+    {
+        if (!(messagesPerSecond > 0))
+        {
+            throw new IllegalArgumentException("messagesPerSecond shall be positive");
+        }
+        this.messagesPerSecond = messagesPerSecond;
+        return this;
+    }
+
+    /**
+     * Setter for the size of the body of the messages.
+     *
+     * @param messageSize the size in bytes, 256 by default.
+     * @return this profile.
+     * @throws IllegalArgumentException if the messageSize is negative.
+     */
+    public LoadProfile setMessageSize(int messageSize) throws IllegalArgumentException
+    {
+        if (messageSize < 0)
+        {
+            throw new IllegalArgumentException("messageSize shall not be negative");
+        }
+        this.messageSize = messageSize;
+        return this;
+    }
+
+    /**
+     * Setter for the time to connect all devices.
+     *
+     * @param rampUpSeconds the time in seconds, 10 by default. With 0, all devices connect at once.
+     * @return this profile.
+     * @throws IllegalArgumentException if the rampUpSeconds is negative.
+     */
+    public LoadProfile setRampUpSeconds(long rampUpSeconds) throws IllegalArgumentException
+    {
+        if (rampUpSeconds < 0)
+        {
+            throw new IllegalArgumentException("rampUpSeconds shall not be negative");
+        }
+        this.rampUpSeconds = rampUpSeconds;
+        return this;
+    }
+
+    /**
+     * Setter for the time all devices send after the ramp up.
+     *
+     * @param durationSeconds the time in seconds, 60 by default.
+     * @return this profile.
+     * @throws IllegalArgumentException if the durationSeconds is not positive.
+     */
+    public LoadProfile setDurationSeconds(long durationSeconds) throws IllegalArgumentException
+    {
+        if (durationSeconds <= 0)
+        {
+            throw new IllegalArgumentException("durationSeconds shall be positive");
+        }
+        this.durationSeconds = durationSeconds;
+        return this;
+    }
+
+    /**
+     * Setter for the number of threads that register, connect, and close the devices.
+     *
+     * @param connectionThreads the number of threads, 16 by default.
+     * @return this profile.
+     * @throws IllegalArgumentException if the connectionThreads is not positive.
+     */
+    public LoadProfile setConnectionThreads(int connectionThreads) throws IllegalArgumentException
+    {
+        if (connectionThreads <= 0)
+        {
+            throw new IllegalArgumentException("connectionThreads shall be positive");
+        }
+        this.connectionThreads = connectionThreads;
+        return this;
+    }
+
+    /**
+     * Setter for the prefix of the device ids, which end with the index of the device.
+     *
+     * @param deviceIdPrefix the prefix, {@code load-generator} by default.
+     * @return this profile.
+     * @throws IllegalArgumentException if the deviceIdPrefix is null or empty.
+     */
+    public LoadProfile setDeviceIdPrefix(String deviceIdPrefix) throws IllegalArgumentException
+    {
+        if ((deviceIdPrefix == null) || deviceIdPrefix.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceIdPrefix shall not be null or empty");
+        }
+        this.deviceIdPrefix = deviceIdPrefix;
+        return this;
+    }
+
+    public int getDeviceCount()
+    {
+        return this.deviceCount;
+    }
+
+    public List<IotHubClientProtocol> getProtocols()
+    {
+        return this.protocols;
+    }
+
+    public double getMessagesPerSecond()
+    {
+        return this.messagesPerSecond;
+    }
+
+    public int getMessageSize()
+    {
+        return this.messageSize;
+    }
+
+    public long getRampUpSeconds()
+    {
+        return this.rampUpSeconds;
+    }
+
+    public long getDurationSeconds()
+    {
+        return this.durationSeconds;
+    }
+
+    public int getConnectionThreads()
+    {
+        return this.connectionThreads;
+    }
+
+    public String getDeviceIdPrefix()
+    {
+        return this.deviceIdPrefix;
+    }
+
+    IotHubClientProtocol getProtocol(int deviceIndex)
+    {
+        return this.protocols.get(deviceIndex % this.protocols.size());
+    }
+
+    String getDeviceId(int deviceIndex)
+    {
+        return this.deviceIdPrefix + "-" + deviceIndex;
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Result of a {@link LoadGenerator} run: the profile, the throughput and latency percentiles for each protocol and
+ * overall, and the thread and heap usage of the JVM.
+ *
+ * <p>The report is saved as JSON with {@link #toJson()}, so the runs of different SDK versions, loaded with
+ * {@link #fromJson(String)}, can be compared with {@link #compare(LoadReport)}.</p>
+ */
+public final class LoadReport
+{
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private String deviceClientVersion;
+    private String javaVersion;
+    private String startTime;
+    private int deviceCount;
+    private List<String> protocols;
+    private double messagesPerSecond;
+    private int messageSize;
+    private long rampUpSeconds;
+    private long durationSeconds;
+    private List<ProtocolResult> protocolResults;
+    private ProtocolResult total;
+    private long baselineThreads;
+    private long peakThreads;
+    private long baselineHeapBytes;
+    private long peakHeapBytes;
+
+    /**
+     * Throughput and send to acknowledgement latency of a set of devices.
+     */
+    public static final class ProtocolResult
+    {
+        private String protocol;
+        private long devices;
+        private long connectFailures;
+        private long sent;
+        private long acknowledged;
+        private long failed;
+        private double messagesPerSecond;
+        private double latencyMeanMillis;
+        private double latencyP50Millis;
+        private double latencyP90Millis;
+        private double latencyP99Millis;
+        private double latencyP999Millis;
+        private double latencyMaxMillis;
+
+        ProtocolResult(String protocol, long devices, long connectFailures, long sent, long acknowledged, long failed,
+                       double messagesPerSecond, LatencyHistogram latencyMicros)
+        {
+            this.protocol = protocol;
+            this.devices = devices;
+            this.connectFailures = connectFailures;
+            this.sent = sent;
+            this.acknowledged = acknowledged;
+            this.failed = failed;
+            this.messagesPerSecond = messagesPerSecond;
+            this.latencyMeanMillis = latencyMicros.getMean() / MICROS_PER_MILLI;
+            this.latencyP50Millis = latencyMicros.getValueAtPercentile(50) / MICROS_PER_MILLI;
+            this.latencyP90Millis = latencyMicros.getValueAtPercentile(90) / MICROS_PER_MILLI;
+            this.latencyP99Millis = latencyMicros.getValueAtPercentile(99) / MICROS_PER_MILLI;
+            this.latencyP999Millis = latencyMicros.getValueAtPercentile(99.9) / MICROS_PER_MILLI;
+            this.latencyMaxMillis = latencyMicros.getMaxValue() / MICROS_PER_MILLI;
+        }
+
+        public String getProtocol()
+        {
+            return this.protocol;
+        }
+
+        public long getDevices()
+        {
+            return this.devices;
+        }
+
+        public long getConnectFailures()
+        {
+            return this.connectFailures;
+        }
+
+        public long getSent()
+        {
+            return this.sent;
+        }
+
+        public long getAcknowledged()
+        {
+            return this.acknowledged;
+        }
+
+        public long getFailed()
+        {
+            return this.failed;
+        }
+
+        public double getMessagesPerSecond()
+        {
+            return this.messagesPerSecond;
+        }
+
+        public double getLatencyMeanMillis()
+        {
+            return this.latencyMeanMillis;
+        }
+
+        public double getLatencyP50Millis()
+        {
+            return this.latencyP50Millis;
+        }
+
+        public double getLatencyP90Millis()
+        {
+            return this.latencyP90Millis;
+        }
+
+        public double getLatencyP99Millis()
+        {
+            return this.latencyP99Millis;
+        }
+
+        public double getLatencyP999Millis()
+        {
+            return this.latencyP999Millis;
+        }
+
+        public double getLatencyMaxMillis()
+        {
+            return this.latencyMaxMillis;
+        }
+    }
+
+    LoadReport(String deviceClientVersion, String startTime, LoadProfile profile, List<ProtocolResult> protocolResults,
+               ProtocolResult total, ResourceSampler resources)
+    {
+        this.deviceClientVersion = deviceClientVersion;
+        this.javaVersion = System.getProperty("java.version");
+        this.startTime = startTime;
+        this.deviceCount = profile.getDeviceCount();
+        this.protocols = new ArrayList<>();
+        for (IotHubClientProtocol protocol : profile.getProtocols())
+        {
+            this.protocols.add(protocol.toString());
+        }
+        this.messagesPerSecond = profile.getMessagesPerSecond();
+        this.messageSize = profile.getMessageSize();
+        this.rampUpSeconds = profile.getRampUpSeconds();
+        this.durationSeconds = profile.getDurationSeconds();
+        this.protocolResults = new ArrayList<>(protocolResults);
+        this.total = total;
+        this.baselineThreads = resources.getBaselineThreads();
+        this.peakThreads = resources.getPeakThreads();
+        this.baselineHeapBytes = resources.getBaselineHeapBytes();
+        this.peakHeapBytes = resources.getPeakHeapBytes();
+    }
+
+    /**
+     * Loads a report saved with {@link #toJson()}.
+     *
+     * @param json the saved report.
+     * @return the report.
+     * @throws IllegalArgumentException if the json is null, empty, or not a report.
+     */
+    public static LoadReport fromJson(String json) throws IllegalArgumentException
+    {
+        if ((json == null) || json.isEmpty())
+        {
+            throw new IllegalArgumentException("json shall not be null or empty");
+        }
+
+        LoadReport report;
+        try
+        {
+            report = GSON.fromJson(json, LoadReport.class);
+        }
+        catch (JsonParseException e)
+        {
+            throw new IllegalArgumentException("json is not a load report", e);
+        }
+        if ((report == null) || (report.total == null))
+        {
+            throw new IllegalArgumentException("json is not a load report");
+        }
+        return report;
+    }
+
+    /**
+     * Saves the report as JSON.
+     *
+     * @return the JSON of the report.
+     */
+    public String toJson()
+    {
+        return GSON.toJson(this);
+    }
+
+    public String getDeviceClientVersion()
+    {
+        return this.deviceClientVersion;
+    }
+
+    public List<ProtocolResult> getProtocolResults()
+    {
+        return Collections.unmodifiableList(this.protocolResults);
+    }
+
+    public ProtocolResult getTotal()
+    {
+        return this.total;
+    }
+
+    public long getBaselineThreads()
+    {
+        return this.baselineThreads;
+    }
+
+    public long getPeakThreads()
+    {
+        return this.peakThreads;
+    }
+
+    public long getBaselineHeapBytes()
+    {
+        return this.baselineHeapBytes;
+    }
+
+    public long getPeakHeapBytes()
+    {
+        return this.peakHeapBytes;
+    }
+
+    /**
+     * Formats the report as a table.
+     *
+     * @return the report.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "IoT Hub load report, device client %s on Java %s, started %s%n",
+                this.deviceClientVersion, this.javaVersion, this.startTime));
+        builder.append(String.format(Locale.ROOT, "%d devices over %s, %.2f messages per second of %d bytes each, %d s ramp up, %d s%n%n",
+                this.deviceCount, this.protocols, this.messagesPerSecond, this.messageSize, this.rampUpSeconds, this.durationSeconds));
+        builder.append(String.format(Locale.ROOT, "%-10s %8s %8s %10s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "protocol", "devices", "no conn", "sent", "acked", "failed", "msg/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (ProtocolResult result : this.protocolResults)
+        {
+            appendResult(builder, result);
+        }
+        appendResult(builder, this.total);
+        builder.append(String.format(Locale.ROOT, "%nthreads: %d before, %d at peak, %.2f per device%n",
+                this.baselineThreads, this.peakThreads, perDevice(this.peakThreads - this.baselineThreads)));
+        builder.append(String.format(Locale.ROOT, "heap: %.1f MB before, %.1f MB at peak, %.1f KB per device%n",
+                this.baselineHeapBytes / BYTES_PER_MEGABYTE, this.peakHeapBytes / BYTES_PER_MEGABYTE,
+                perDevice(this.peakHeapBytes - this.baselineHeapBytes) / 1024));
+        return builder.toString();
+    }
+
+    /**
+     * Compares the totals of this report with the ones of a baseline, like the run of an other SDK version with the
+     * same profile.
+     *
+     * @param baseline the report to compare with.
+     * @return the table of the baseline and current values, and their change.
+     * @throws IllegalArgumentException if the baseline is null.
+     */
+    public String compare(LoadReport baseline) throws IllegalArgumentException
+    {
+        if (baseline == null)
+        {
+            throw new IllegalArgumentException("baseline shall not be null");
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%-24s %14s %14s %9s%n",
+                "metric", baseline.deviceClientVersion, this.deviceClientVersion, "change"));
+        appendComparison(builder, "throughput msg/s", baseline.total.messagesPerSecond, this.total.messagesPerSecond);
+        appendComparison(builder, "failed messages", baseline.total.failed, this.total.failed);
+        appendComparison(builder, "failed connections", baseline.total.connectFailures, this.total.connectFailures);
+        appendComparison(builder, "latency mean ms", baseline.total.latencyMeanMillis, this.total.latencyMeanMillis);
+        appendComparison(builder, "latency p50 ms", baseline.total.latencyP50Millis, this.total.latencyP50Millis);
+        appendComparison(builder, "latency p90 ms", baseline.total.latencyP90Millis, this.total.latencyP90Millis);
+        appendComparison(builder, "latency p99 ms", baseline.total.latencyP99Millis, this.total.latencyP99Millis);
+        appendComparison(builder, "latency p99.9 ms", baseline.total.latencyP999Millis, this.total.latencyP999Millis);
+        appendComparison(builder, "latency max ms", baseline.total.latencyMaxMillis, this.total.latencyMaxMillis);
+        appendComparison(builder, "threads per device",
+                baseline.perDevice(baseline.peakThreads - baseline.baselineThreads), perDevice(this.peakThreads - this.baselineThreads));
+        appendComparison(builder, "heap KB per device",
+                baseline.perDevice(baseline.peakHeapBytes - baseline.baselineHeapBytes) / 1024, perDevice(this.peakHeapBytes - this.baselineHeapBytes) / 1024);
+        return builder.toString();
+    }
+
+    private double perDevice(long value)
+    {
+        return (this.deviceCount == 0) ? 0 : ((double)value / this.deviceCount);
+    }
+
+    private static void appendResult(StringBuilder builder, ProtocolResult result)
+    {
+        builder.append(String.format(Locale.ROOT, "%-10s %8d %8d %10d %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                result.protocol, result.devices, result.connectFailures, result.sent, result.acknowledged, result.failed,
+                result.messagesPerSecond, result.latencyP50Millis, result.latencyP90Millis, result.latencyP99Millis,
+                result.latencyP999Millis, result.latencyMaxMillis));
+    }
+
+    private static void appendComparison(StringBuilder builder, String metric, double baseline, double current)
+    {
+        String change = (baseline == 0) ? "-" : String.format(Locale.ROOT, "%+.1f%%", ((current - baseline) / baseline) * 100);
+        builder.append(String.format(Locale.ROOT, "%-24s %14.2f %14.2f %9s%n", metric, baseline, current, change));
+    }
+}
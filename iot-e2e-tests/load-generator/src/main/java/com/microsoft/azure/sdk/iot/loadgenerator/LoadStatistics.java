@@ -0,0 +1,96 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and send to acknowledgement latencies of the devices of one protocol.
+ *
+ * <p>The statistics are the send callback of the devices, with the send time in nanoseconds as context, so a
+ * message costs no allocation besides its boxed send time.</p>
+ */
+final class LoadStatistics implements IotHubEventCallback
+{
+    /* the latencies are recorded in microseconds, up to one hour. */
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final String protocol;
+    private final AtomicLong devices = new AtomicLong();
+    private final AtomicLong connectFailures = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong acknowledged = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram(HIGHEST_LATENCY_MICROS);
+
+    LoadStatistics(String protocol)
+    {
+        this.protocol = protocol;
+    }
+
+    void onConnected()
+    {
+        this.devices.incrementAndGet();
+    }
+
+    void onConnectFailure()
+    {
+        this.connectFailures.incrementAndGet();
+    }
+
+    Long onSend()
+    {
+        this.sent.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    @Override
+    public void execute(IotHubStatusCode responseStatus, Object callbackContext)
+    {
+        if ((responseStatus == IotHubStatusCode.OK) || (responseStatus == IotHubStatusCode.OK_EMPTY))
+        {
+            long latencyNanos = System.nanoTime() - (Long)callbackContext;
+            this.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(Math.max(0, latencyNanos)));
+            this.acknowledged.incrementAndGet();
+        }
+        else
+        {
+            this.failed.incrementAndGet();
+        }
+    }
+
+    long getPending()
+    {
+        return this.sent.get() - this.acknowledged.get() - this.failed.get();
+    }
+
+    void add(LoadStatistics other)
+    {
+        this.devices.addAndGet(other.devices.get());
+        this.connectFailures.addAndGet(other.connectFailures.get());
+        this.sent.addAndGet(other.sent.get());
+        this.acknowledged.addAndGet(other.acknowledged.get());
+        this.failed.addAndGet(other.failed.get());
+        this.latency.add(other.latency);
+    }
+
+    LoadReport.ProtocolResult toResult(double elapsedSeconds)
+    {
+        return new LoadReport.ProtocolResult(
+                this.protocol,
+                this.devices.get(),
+                this.connectFailures.get(),
+                this.sent.get(),
+                this.acknowledged.get(),
+                this.failed.get(),
+                (elapsedSeconds > 0) ? (this.acknowledged.get() / elapsedSeconds) : 0,
+                this.latency);
+    }
+}
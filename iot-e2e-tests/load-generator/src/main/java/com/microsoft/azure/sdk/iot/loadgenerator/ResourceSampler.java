@@ -0,0 +1,59 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Samples the live threads and the used heap of the JVM, and keeps their peak values.
+ */
+final class ResourceSampler implements Runnable
+{
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final long baselineThreads;
+    private final long baselineHeapBytes;
+    private long peakThreads;
+    private long peakHeapBytes;
+
+    ResourceSampler()
+    {
+        // a collection before the baseline leaves only the live objects of the JVM and the test.
+        System.gc();
+        this.baselineThreads = this.threads.getThreadCount();
+        this.baselineHeapBytes = this.memory.getHeapMemoryUsage().getUsed();
+        run();
+    }
+
+    @Override
+    public synchronized void run()
+    {
+        this.peakThreads = Math.max(this.peakThreads, this.threads.getThreadCount());
+        this.peakHeapBytes = Math.max(this.peakHeapBytes, this.memory.getHeapMemoryUsage().getUsed());
+    }
+
+    long getBaselineThreads()
+    {
+        return this.baselineThreads;
+    }
+
+    long getBaselineHeapBytes()
+    {
+        return this.baselineHeapBytes;
+    }
+
+    synchronized long getPeakThreads()
+    {
+        return this.peakThreads;
+    }
+
+    synchronized long getPeakHeapBytes()
+    {
+        return this.peakHeapBytes;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClient;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.simulator.SimulatorTrust;
+
+import java.net.URISyntaxException;
+
+/**
+ * Creates device clients that trust the certificate in a PEM file, on all protocols, like the self signed
+ * certificate of the IoT Hub simulator.
+ */
+public final class TrustingDeviceClientFactory implements DeviceClientFactory
+{
+    private final String certificatePath;
+
+    /**
+     * Constructor.
+     *
+     * @param certificatePath the path of the PEM file with the certificate to trust.
+     * @throws IllegalArgumentException if the certificate path is {@code null} or empty.
+     */
+    public TrustingDeviceClientFactory(String certificatePath) throws IllegalArgumentException
+    {
+        if ((certificatePath == null) || certificatePath.isEmpty())
+        {
+            throw new IllegalArgumentException("the certificate path cannot be null or empty");
+        }
+        this.certificatePath = certificatePath;
+    }
+
+    @Override
+    public DeviceClient create(String connectionString, IotHubClientProtocol protocol) throws URISyntaxException
+    {
+        DeviceClient client = new DeviceClient(connectionString, protocol);
+        SimulatorTrust.trustCertificate(client, this.certificatePath);
+        return client;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.integration.com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.loadgenerator.LoadGenerator;
+import com.microsoft.azure.sdk.iot.loadgenerator.LoadProfile;
+import com.microsoft.azure.sdk.iot.loadgenerator.LoadReport;
+import com.microsoft.azure.sdk.iot.loadgenerator.TrustingDeviceClientFactory;
+import com.microsoft.azure.sdk.iot.simulator.IotHubSimulator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Integration tests that run a small load against the IoT Hub simulator.
+ */
+public class LoadGeneratorIT
+{
+    private static final int DEVICES_PER_PROTOCOL = 10;
+
+    private static IotHubSimulator simulator;
+
+    @BeforeClass
+    public static void startSimulator() throws Exception
+    {
+        simulator = new IotHubSimulator();
+        simulator.start();
+        // the registry manager uses the default HTTPS socket factory.
+        HttpsURLConnection.setDefaultSSLSocketFactory(simulator.getSslContext().getSocketFactory());
+    }
+
+    @AfterClass
+    public static void stopSimulator()
+    {
+        simulator.close();
+    }
+
+    @Test
+    public void loadOverAllProtocolsIsReported() throws Exception
+    {
+        // arrange
+        LoadProfile profile = new LoadProfile()
+                .setDeviceCount(3 * DEVICES_PER_PROTOCOL)
+                .setProtocols(IotHubClientProtocol.MQTT, IotHubClientProtocol.AMQPS, IotHubClientProtocol.HTTPS)
+                .setMessagesPerSecond(5)
+                .setMessageSize(128)
+                .setRampUpSeconds(2)
+                .setDurationSeconds(5)
+                .setConnectionThreads(8)
+                .setDeviceIdPrefix("load-generator-it");
+        LoadGenerator loadGenerator = new LoadGenerator(simulator.getServiceConnectionString(), profile);
+        loadGenerator.setDeviceClientFactory(new TrustingDeviceClientFactory(simulator.getCertificatePath()));
+
+        // act
+        LoadReport report = loadGenerator.run();
+
+        // assert
+        assertEquals(3, report.getProtocolResults().size());
+        for (LoadReport.ProtocolResult result : report.getProtocolResults())
+        {
+            assertEquals(result.getProtocol(), DEVICES_PER_PROTOCOL, result.getDevices());
+            assertEquals(result.getProtocol(), 0, result.getConnectFailures());
+            assertEquals(result.getProtocol(), 0, result.getFailed());
+            assertTrue(result.getProtocol(), result.getSent() > 0);
+            assertEquals(result.getProtocol(), result.getSent(), result.getAcknowledged());
+            assertTrue(result.getProtocol(), result.getLatencyP50Millis() > 0);
+            assertTrue(result.getProtocol(), result.getLatencyP99Millis() >= result.getLatencyP50Millis());
+        }
+        LoadReport.ProtocolResult total = report.getTotal();
+        assertEquals(3 * DEVICES_PER_PROTOCOL, total.getDevices());
+        assertTrue(total.getMessagesPerSecond() > 0);
+        assertTrue(simulator.getDevice(profile.getDeviceIdPrefix() + "-0").getTelemetryCount() > 0);
+        assertTrue(report.getPeakThreads() > report.getBaselineThreads());
+        assertEquals(LoadGenerator.getDeviceClientVersion(), report.getDeviceClientVersion());
+
+        LoadReport reloaded = LoadReport.fromJson(report.toJson());
+        assertEquals(total.getAcknowledged(), reloaded.getTotal().getAcknowledged());
+        assertTrue(report.compare(reloaded).contains("+0.0%"));
+    }
+}
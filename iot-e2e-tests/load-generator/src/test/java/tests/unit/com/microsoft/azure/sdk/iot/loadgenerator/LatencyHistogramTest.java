@@ -0,0 +1,180 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.loadgenerator.LatencyHistogram;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the latency histogram.
+ */
+public class LatencyHistogramTest
+{
+    private static final long HIGHEST_TRACKABLE_VALUE = 3600L * 1000 * 1000;
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorTooSmallRangeThrows()
+    {
+        // act
+        new LatencyHistogram(1);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void recordNegativeValueThrows()
+    {
+        // act
+        new LatencyHistogram(HIGHEST_TRACKABLE_VALUE).recordValue(-1);
+    }
+
+    @Test
+    public void emptyHistogramReturnsZero()
+    {
+        // arrange
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+
+        // assert
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMinValue());
+        assertEquals(0, histogram.getMaxValue());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void smallValuesAreExact()
+    {
+        // arrange
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+
+        // act
+        for (int value = 1; value <= 100; value++)
+        {
+            histogram.recordValue(value);
+        }
+
+        // assert
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(1, histogram.getMinValue());
+        assertEquals(100, histogram.getMaxValue());
+        assertEquals(50.5, histogram.getMean(), 0);
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void percentilesWithinOnePercent()
+    {
+        // arrange
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+        Random random = new Random(42);
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++)
+        {
+            // latencies from 1 microsecond to about 16 seconds.
+            values[i] = (long)Math.pow(2, random.nextDouble() * 24);
+            histogram.recordValue(values[i]);
+        }
+        Arrays.sort(values);
+
+        // assert
+        for (double percentile : new double[] { 1, 10, 50, 90, 99, 99.9, 99.99 })
+        {
+            long expected = values[(int)Math.ceil((percentile / 100) * values.length) - 1];
+            long actual = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + actual + " is not " + expected, actual >= expected);
+            assertTrue(percentile + ": " + actual + " is not " + expected, actual <= (expected * 1.01) + 1);
+        }
+        assertEquals(values[values.length - 1], histogram.getMaxValue());
+        assertEquals(values[0], histogram.getMinValue());
+    }
+
+    @Test
+    public void valuesAboveRangeAreClamped()
+    {
+        // arrange
+        LatencyHistogram histogram = new LatencyHistogram(1000);
+
+        // act
+        histogram.recordValue(5000);
+
+        // assert
+        assertEquals(1000, histogram.getMaxValue());
+        assertEquals(1000, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void addMergesCounts()
+    {
+        // arrange
+        LatencyHistogram first = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+        LatencyHistogram second = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+        first.recordValue(10);
+        first.recordValue(20);
+        second.recordValue(5);
+        second.recordValue(40000);
+
+        // act
+        first.add(second);
+
+        // assert
+        assertEquals(4, first.getTotalCount());
+        assertEquals(5, first.getMinValue());
+        assertEquals(40000, first.getMaxValue());
+        assertEquals(10, first.getValueAtPercentile(50));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void addOtherRangeThrows()
+    {
+        // act
+        new LatencyHistogram(HIGHEST_TRACKABLE_VALUE).add(new LatencyHistogram(1000));
+    }
+
+    @Test
+    public void concurrentRecordsAreCounted() throws InterruptedException
+    {
+        // arrange
+        final LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (int value = 0; value < 10000; value++)
+                    {
+                        histogram.recordValue(value);
+                    }
+                }
+            });
+        }
+
+        // act
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        // assert
+        assertEquals(40000, histogram.getTotalCount());
+        assertEquals(0, histogram.getMinValue());
+        assertEquals(9999, histogram.getMaxValue());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the async operations of the service clients.
+ *
+ * <p>
+ *     By default, all service clients in the JVM share three bounded executors. Their threads are created on
+ *     demand and stopped when idle, so idle clients do not hold threads.
+ * </p>
+ * <ul>
+ *     <li>The default executor runs the async operations, such as {@code getDeviceAsync}. Its queue is bounded,
+ *     so a burst of async calls fails fast with {@link RejectedExecutionException} instead of queueing without
+ *     limit.</li>
+ *     <li>The fan-out executor runs the work that one operation spreads over several threads: the bulk registry
+ *     batches, the multi-device twin updates, and the query page prefetch. It is separate from
+ *     the default executor, so a fan-out waiting for its parts never waits behind the async operations, and when
+ *     its queue is full it runs the new work in the caller thread instead of rejecting it.</li>
+ *     <li>The receive executor runs the async receives of the {@link FeedbackReceiver} and of the
+ *     {@link FileUploadNotificationReceiver}, which block until a message arrives or the receive times out. It is
+ *     separate from the default executor, so pending receives never hold the threads of the other async
+ *     operations.</li>
+ * </ul>
+ * <p>
+ *     The executors can be replaced for a client by creating it with {@code createFromConnectionString(String,
+ *     Executor)}. The client then runs its async operations, its fan-out work, and the receives of its receivers
+ *     in the supplied {@link Executor}, which can be shared by several clients. To slow down the callers instead of rejecting
+ *     the calls, supply a {@link ThreadPoolExecutor} with a {@link ThreadPoolExecutor.CallerRunsPolicy}, as
+ *     returned by {@link #newCallerRunsExecutor(int, int)}.
+ * </p>
+ */
+public final class AsyncExecutors
+{
+    /** The number of threads of the shared default executor. */
+    public static final int DEFAULT_THREAD_COUNT = 10;
+    /** The maximum number of pending operations in the shared default executor. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    /** The number of threads of the shared fan-out executor. */
+    public static final int DEFAULT_FAN_OUT_THREAD_COUNT = 10;
+    /** The maximum number of pending parts in the shared fan-out executor, before they run in the caller thread. */
+    public static final int DEFAULT_FAN_OUT_QUEUE_CAPACITY = 100;
+    /** The number of threads of the shared receive executor. */
+    public static final int DEFAULT_RECEIVE_THREAD_COUNT = 10;
+    /** The maximum number of pending receives in the shared receive executor. */
+    public static final int DEFAULT_RECEIVE_QUEUE_CAPACITY = 1000;
+
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+    private static final String THREAD_NAME_PREFIX = "iothub-service-async-";
+    private static final String FAN_OUT_THREAD_NAME_PREFIX = "iothub-service-fanout-";
+    private static final String RECEIVE_THREAD_NAME_PREFIX = "iothub-service-receive-";
+
+    private static class DefaultExecutorHolder
+    {
+        private static final ExecutorService DEFAULT_EXECUTOR = newBoundedExecutor(DEFAULT_THREAD_COUNT, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    private static class FanOutExecutorHolder
+    {
+        private static final ExecutorService FAN_OUT_EXECUTOR = newExecutor(DEFAULT_FAN_OUT_THREAD_COUNT, DEFAULT_FAN_OUT_QUEUE_CAPACITY,
+                FAN_OUT_THREAD_NAME_PREFIX, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static class ReceiveExecutorHolder
+    {
+        private static final ExecutorService RECEIVE_EXECUTOR = newExecutor(DEFAULT_RECEIVE_THREAD_COUNT, DEFAULT_RECEIVE_QUEUE_CAPACITY,
+                RECEIVE_THREAD_NAME_PREFIX, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private AsyncExecutors()
+    {
+    }
+
+    /**
+     * Getter for the executor shared by all service clients that were created without an executor.
+     *
+     * @return the shared default executor.
+     */
+    public static Executor getDefaultExecutor()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_001: [The function shall return the same bounded executor for all calls, and create it only on the first call.]
+        return DefaultExecutorHolder.DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Getter for the executor shared by all service clients that were created without an executor, to run the
+     * work that one operation spreads over several threads.
+     *
+     * @return the shared fan-out executor.
+     */
+    public static Executor getDefaultFanOutExecutor()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_007: [The function shall return the same fan-out executor for all calls, separate from the default executor, and create it only on the first call.]
+        return FanOutExecutorHolder.FAN_OUT_EXECUTOR;
+    }
+
+    /**
+     * Getter for the executor shared by all receivers of the service clients that were created without an
+     * executor, to run the receives that block until a message arrives.
+     *
+     * @return the shared receive executor.
+     */
+    public static Executor getDefaultReceiveExecutor()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_009: [The function shall return the same receive executor for all calls, separate from the default and the fan-out executors, and create it only on the first call.]
+        return ReceiveExecutorHolder.RECEIVE_EXECUTOR;
+    }
+
+    /**
+     * Create a new bounded executor. Its threads are daemon threads created on demand and stopped after
+     * one minute idle, and it rejects new operations when the queue is full.
+     *
+     * @param threadCount the maximum number of threads.
+     * @param queueCapacity the maximum number of operations waiting for a thread.
+     * @return the new executor. The caller shall shut it down when it is no longer needed.
+     * @throws IllegalArgumentException if the threadCount or the queueCapacity is less than 1.
+     */
+    public static ExecutorService newBoundedExecutor(int threadCount, int queueCapacity) throws IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_004: [The executor shall reject new operations with RejectedExecutionException when the queue is full.]
+        return newExecutor(threadCount, queueCapacity, THREAD_NAME_PREFIX, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Create a new bounded executor that slows down its callers when it is full. Its threads are daemon threads
+     * created on demand and stopped after one minute idle, and it runs new operations in the caller thread when
+     * the queue is full.
+     *
+     * @param threadCount the maximum number of threads.
+     * @param queueCapacity the maximum number of operations waiting for a thread.
+     * @return the new executor. The caller shall shut it down when it is no longer needed.
+     * @throws IllegalArgumentException if the threadCount or the queueCapacity is less than 1.
+     */
+    public static ExecutorService newCallerRunsExecutor(int threadCount, int queueCapacity) throws IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_008: [The executor shall run new operations in the caller thread when the queue is full.]
+        return newExecutor(threadCount, queueCapacity, THREAD_NAME_PREFIX, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static ExecutorService newExecutor(int threadCount, int queueCapacity, final String threadNamePrefix, RejectedExecutionHandler rejectedExecutionHandler)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_002: [The function shall throw IllegalArgumentException if the threadCount or the queueCapacity is less than 1.]
+        if (threadCount < 1)
+        {
+            throw new IllegalArgumentException("threadCount cannot be less than 1");
+        }
+        if (queueCapacity < 1)
+        {
+            throw new IllegalArgumentException("queueCapacity cannot be less than 1");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_003: [The function shall create an executor with up to threadCount daemon threads, that are stopped when idle, and a queue bounded to queueCapacity operations.]
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        ThreadFactory threadFactory = runnable ->
+        {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), threadFactory, rejectedExecutionHandler);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Run the provided operation in the provided executor. If the executor rejects the operation, the
+     * provided future completes exceptionally with the {@link RejectedExecutionException}.
+     *
+     * @param executor the executor to run the operation.
+     * @param future the future that the operation completes.
+     * @param operation the operation.
+     */
+    public static void execute(Executor executor, CompletableFuture<?> future, Runnable operation)
+    {
+        try
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_005: [The function shall run the provided operation in the provided executor.]
+            executor.execute(operation);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_006: [If the executor rejects the operation, the function shall complete the provided future exceptionally with the RejectedExecutionException.]
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.BulkRegistryOperationResultParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceRegistryOperationErrorParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a bulk create, update, or delete of devices. The operation is not atomic, so each device
+ * that failed has its own error, and all the other devices succeeded.
+ */
+public class BulkRegistryOperationResult
+{
+    private final boolean isSuccessful;
+    private final List<DeviceRegistryOperationError> errors;
+
+    /**
+     * Constructor for the result of a bulk registry operation.
+     * @param isSuccessful {@code true} if the operation succeeded for all devices
+     * @param errors the error of each device that failed
+     * @throws IllegalArgumentException if the provided list of errors is null
+     */
+    BulkRegistryOperationResult(boolean isSuccessful, List<DeviceRegistryOperationError> errors) throws IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_001: [If the provided list of errors is null, the constructor shall throw IllegalArgumentException.]
+        if (errors == null)
+        {
+            throw new IllegalArgumentException("The errors cannot be null");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_002: [The constructor shall store a copy of the provided list of errors, and the operation shall only be successful if the provided isSuccessful is true and there are no errors.]
+        this.errors = new ArrayList<>(errors);
+        this.isSuccessful = isSuccessful && errors.isEmpty();
+    }
+
+    /**
+     * Constructs a BulkRegistryOperationResult object based off of a BulkRegistryOperationResultParser object
+     * @param parser the object to base the constructed object on
+     * @throws IllegalArgumentException if the provided parser is null
+     */
+    BulkRegistryOperationResult(BulkRegistryOperationResultParser parser) throws IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_003: [If the provided parser is null, the constructor shall throw IllegalArgumentException.]
+        if (parser == null)
+        {
+            throw new IllegalArgumentException("The parser cannot be null");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_004: [The constructor shall convert the isSuccessful and each error in the provided parser.]
+        this.errors = new ArrayList<>();
+        for (DeviceRegistryOperationErrorParser errorParser : parser.getErrors())
+        {
+            this.errors.add(new DeviceRegistryOperationError(errorParser));
+        }
+        this.isSuccessful = parser.isSuccessful() && this.errors.isEmpty();
+    }
+
+    /**
+     * Getter for the isSuccessful
+     * @return {@code true} if the operation succeeded for all devices, {@code false} otherwise
+     */
+    public boolean isSuccessful()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_005: [The isSuccessful shall return true if the operation succeeded for all devices.]
+        return this.isSuccessful;
+    }
+
+    /**
+     * Getter for the errors
+     * @return the unmodifiable list with the error of each device that failed. It is empty if no device failed.
+     */
+    public List<DeviceRegistryOperationError> getErrors()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_006: [The getErrors shall return the unmodifiable list of errors.]
+        return Collections.unmodifiableList(this.errors);
+    }
+
+    /**
+     * Getter for the error of a single device
+     * @param deviceId the id of the device
+     * @return the error of the device, or {@code null} if the operation succeeded for it
+     */
+    public DeviceRegistryOperationError getError(String deviceId)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_007: [The getError shall return the first error for the provided deviceId, or null if there is none.]
+        for (DeviceRegistryOperationError error : this.errors)
+        {
+            if (Tools.areEqual(error.getDeviceId(), deviceId))
+            {
+                return error;
+            }
+        }
+        return null;
+    }
+}
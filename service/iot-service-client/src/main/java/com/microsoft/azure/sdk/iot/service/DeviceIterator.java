@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceArrayParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the devices in a device list response. The devices are parsed from the response stream one at
+ * a time, so the first device is available before the full response has been received.
+ *
+ * <p>
+ *     The iterator owns the response stream, and closes it when the last device has been read. If the caller
+ *     stops iterating before the end, it shall close the iterator to release the connection.
+ * </p>
+ */
+public class DeviceIterator implements Iterator<Device>, Closeable
+{
+    private final DeviceArrayParser deviceArrayParser;
+    private boolean isClosed;
+
+    /**
+     * Constructor
+     *
+     * @param bodyStream the stream with the json array of devices, in UTF-8.
+     * @throws IllegalArgumentException if the provided stream is null.
+     */
+    DeviceIterator(InputStream bodyStream) throws IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_001: [The constructor shall throw IllegalArgumentException if the input stream is null.]
+        if (bodyStream == null)
+        {
+            throw new IllegalArgumentException("The body stream cannot be null");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_002: [The constructor shall not read any content from the input stream.]
+        this.deviceArrayParser = new DeviceArrayParser(new InputStreamReader(bodyStream, StandardCharsets.UTF_8));
+        this.isClosed = false;
+    }
+
+    /**
+     * Check if there is one more device in the response.
+     *
+     * @return {@code true} if there is one more device, {@code false} otherwise.
+     * @throws UncheckedIOException if the response stream failed.
+     * @throws IllegalArgumentException if the response is not a valid json array.
+     */
+    @Override
+    public boolean hasNext() throws UncheckedIOException, IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_003: [If the iterator is closed, the function shall return false.]
+        if (this.isClosed)
+        {
+            return false;
+        }
+
+        try
+        {
+            if (this.deviceArrayParser.hasNext())
+            {
+                return true;
+            }
+
+            // Codes_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_004: [If the response has no more devices, the function shall close the iterator and return false.]
+            close();
+            return false;
+        }
+        catch (IOException e)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_005: [If the response stream failed, the function shall throw UncheckedIOException.]
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse the next device in the response.
+     *
+     * @return the next device.
+     * @throws NoSuchElementException if there are no more devices.
+     * @throws UncheckedIOException if the response stream failed.
+     * @throws IllegalArgumentException if the device is not valid.
+     */
+    @Override
+    public Device next() throws NoSuchElementException, UncheckedIOException, IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_006: [If there are no more devices, the function shall throw NoSuchElementException.]
+        if (!hasNext())
+        {
+            throw new NoSuchElementException("There are no more devices");
+        }
+
+        try
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_007: [The function shall parse the next device straight from the response stream, and return it.]
+            return new Device(this.deviceArrayParser.next());
+        }
+        catch (IOException e)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_005: [If the response stream failed, the function shall throw UncheckedIOException.]
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Close the iterator and the response stream.
+     *
+     * @throws IOException if the response stream failed to close.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_008: [The function shall close the response stream only once.]
+        if (!this.isClosed)
+        {
+            this.isClosed = true;
+            this.deviceArrayParser.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceRegistryOperationErrorParser;
+
+/**
+ * The error of a single device in a bulk registry operation.
+ */
+public class DeviceRegistryOperationError
+{
+    private final String deviceId;
+    private final String errorCode;
+    private final String errorStatus;
+
+    /**
+     * Constructs a DeviceRegistryOperationError object based off of a DeviceRegistryOperationErrorParser object
+     * @param parser the object to base the constructed object on
+     * @throws IllegalArgumentException if the provided parser is null
+     */
+    DeviceRegistryOperationError(DeviceRegistryOperationErrorParser parser) throws IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_001: [If the provided parser is null, the constructor shall throw IllegalArgumentException.]
+        if (parser == null)
+        {
+            throw new IllegalArgumentException("The parser cannot be null");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_002: [The constructor shall copy the deviceId, errorCode, and errorStatus from the provided parser.]
+        this.deviceId = parser.getDeviceId();
+        this.errorCode = parser.getErrorCode();
+        this.errorStatus = parser.getErrorStatus();
+    }
+
+    /**
+     * Constructor for an error reported by the client, like a batch that could not be sent.
+     * @param deviceId the id of the device that failed
+     * @param errorCode the error code
+     * @param errorStatus the description of the error
+     */
+    DeviceRegistryOperationError(String deviceId, String errorCode, String errorStatus)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_003: [The constructor shall store the provided deviceId, errorCode, and errorStatus.]
+        this.deviceId = deviceId;
+        this.errorCode = errorCode;
+        this.errorStatus = errorStatus;
+    }
+
+    /**
+     * Getter for the deviceId
+     * @return the id of the device that failed
+     */
+    public String getDeviceId()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_004: [The getDeviceId shall return the stored deviceId.]
+        return this.deviceId;
+    }
+
+    /**
+     * Getter for the errorCode
+     * @return the error code, like {@code DeviceAlreadyExists}
+     */
+    public String getErrorCode()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_005: [The getErrorCode shall return the stored errorCode.]
+        return this.errorCode;
+    }
+
+    /**
+     * Getter for the errorStatus
+     * @return the description of the error
+     */
+    public String getErrorStatus()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_006: [The getErrorStatus shall return the stored errorStatus.]
+        return this.errorStatus;
+    }
+}
@@ -9,8 +9,7 @@ import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpReceive;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 /**
  * FeedbackReceiver is a specialized receiver whose ReceiveAsync
@@ -19,7 +18,7 @@ import java.util.concurrent.Executors;
 public class FeedbackReceiver extends Receiver
 {
     private final long DEFAULT_TIMEOUT_MS = 60000;
-    private final ExecutorService executor = Executors.newFixedThreadPool(10);
+    private Executor executor = AsyncExecutors.getDefaultReceiveExecutor();
 
     private String deviceId;
     private AmqpReceive amqpReceive;
@@ -97,6 +96,22 @@ public class FeedbackReceiver extends Receiver
         this.amqpReceive = new AmqpReceive(hostName, userName, sasToken, iotHubServiceClientProtocol);
     }
         
+    /**
+     * Setter for the executor of the async operations
+     *
+     * @param executor The executor for the async operations
+     * @throws IllegalArgumentException This exception is thrown if the executor is null
+     */
+    void setExecutor(Executor executor) throws IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_21_015: [The function shall throw IllegalArgumentException if the input executor is null, and otherwise run the async operations in it]
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("The provided executor cannot be null");
+        }
+        this.executor = executor;
+    }
+
     /**
      * Open AmqpReceive object
      *
@@ -170,7 +185,7 @@ public class FeedbackReceiver extends Receiver
     {
         // Codes_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_12_011: [The function shall create an async wrapper around the open() function call]
         final CompletableFuture<Void> future = new CompletableFuture<>();
-        executor.submit(() -> {
+        AsyncExecutors.execute(this.executor, future, () -> {
             try
             {
                 open();
@@ -193,7 +208,7 @@ public class FeedbackReceiver extends Receiver
     {
         // Codes_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_12_012: [The function shall create an async wrapper around the close() function call]
         final CompletableFuture<Void> future = new CompletableFuture<>();
-        executor.submit(() -> {
+        AsyncExecutors.execute(this.executor, future, () -> {
             try
             {
                 close();
@@ -228,7 +243,7 @@ public class FeedbackReceiver extends Receiver
     {
         // Codes_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_12_014: [The function shall create an async wrapper around the receive(long timeoutMs) function call]
         final CompletableFuture<FeedbackBatch> future = new CompletableFuture<>();
-        executor.submit(() -> {
+        AsyncExecutors.execute(this.executor, future, () -> {
         try
         {
             FeedbackBatch responseFeedbackBatch = receive(timeoutMs);
@@ -9,13 +9,12 @@ import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpFileUploadNotific
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class FileUploadNotificationReceiver extends Receiver
 {
     private final long DEFAULT_TIMEOUT_MS = 60000;
-    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private Executor executor = AsyncExecutors.getDefaultReceiveExecutor();
     private AmqpFileUploadNotificationReceive amqpFileUploadNotificationReceive;
 
     /**
@@ -50,6 +49,22 @@ public class FileUploadNotificationReceiver extends Receiver
         this.amqpFileUploadNotificationReceive = new AmqpFileUploadNotificationReceive(hostName, userName, sasToken, iotHubServiceClientProtocol);
     }
 
+    /**
+     * Setter for the executor of the async operations
+     *
+     * @param executor The executor for the async operations
+     * @throws IllegalArgumentException This exception is thrown if the executor is null
+     */
+    void setExecutor(Executor executor) throws IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_21_014: [The function shall throw IllegalArgumentException if the input executor is null, and otherwise run the async operations in it]
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("The provided executor cannot be null");
+        }
+        this.executor = executor;
+    }
+
     /**
      * Open AmqpReceive object
      *
@@ -113,7 +128,7 @@ public class FileUploadNotificationReceiver extends Receiver
     {
         // Codes_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_25_010: [** The function shall create an async wrapper around the open() function call **]**
         final CompletableFuture<Void> future = new CompletableFuture<>();
-        executor.submit(() -> {
+        AsyncExecutors.execute(this.executor, future, () -> {
             try
             {
                 open();
@@ -136,7 +151,7 @@ public class FileUploadNotificationReceiver extends Receiver
     {
         // Codes_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_25_011: [** The function shall create an async wrapper around the close() function call **]**
         final CompletableFuture<Void> future = new CompletableFuture<>();
-        executor.submit(() -> {
+        AsyncExecutors.execute(this.executor, future, () -> {
             try
             {
                 close();
@@ -171,7 +186,7 @@ public class FileUploadNotificationReceiver extends Receiver
     {
         // Codes_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_25_013: [** The function shall create an async wrapper around the receive(long timeoutMs) function call **]**
         final CompletableFuture<FileUploadNotification> future = new CompletableFuture<>();
-        executor.submit(() -> {
+        AsyncExecutors.execute(this.executor, future, () -> {
             try
             {
                 FileUploadNotification responseFileUploadNotification = receive(timeoutMs);
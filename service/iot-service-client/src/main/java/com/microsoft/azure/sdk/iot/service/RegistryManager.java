@@ -6,28 +6,37 @@
 package com.microsoft.azure.sdk.iot.service;
 
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+import com.microsoft.azure.sdk.iot.deps.serializer.BulkRegistryOperationResultParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.ExportImportDeviceParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.JobPropertiesParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.RegistryStatisticsParser;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
+import com.microsoft.azure.sdk.iot.service.transport.OperationClass;
+import com.microsoft.azure.sdk.iot.service.transport.RequestThrottler;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpStreamingResponse;
 
-import javax.json.Json;
-import javax.json.JsonArray;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InterruptedIOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Use the RegistryManager class to manage the identity registry in IoT Hubs.
@@ -35,7 +44,26 @@ import java.util.concurrent.Executors;
 public class RegistryManager
 {
     private final Integer DEFAULT_HTTP_TIMEOUT_MS = 24000;
-    private final ExecutorService executor = Executors.newFixedThreadPool(10);
+    private static final int BULK_REGISTRY_OPERATION_MAX_DEVICES = 100;
+    private static final int HTTP_STATUS_BAD_REQUEST = 400;
+    /* The import modes as the service expects them, from the serialized names of the enum values. */
+    private static final Map<ImportMode, String> IMPORT_MODE_VALUES = new EnumMap<>(ImportMode.class);
+    static
+    {
+        for (ImportMode importMode : ImportMode.values())
+        {
+            try
+            {
+                IMPORT_MODE_VALUES.put(importMode, ImportMode.class.getField(importMode.name()).getAnnotation(SerializedName.class).value());
+            }
+            catch (NoSuchFieldException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+    private Executor executor = AsyncExecutors.getDefaultExecutor();
+    private Executor fanOutExecutor = AsyncExecutors.getDefaultFanOutExecutor();
     private IotHubConnectionString iotHubConnectionString;
 
     /**
@@ -61,6 +89,30 @@ public class RegistryManager
         return iotHubRegistryManager;
     }
 
+    /**
+     * Static constructor to create instance from connection string, that runs the async operations and the
+     * bulk registry batches in the provided executor instead of the executors shared by all service clients
+     *
+     * @param connectionString The iot hub connection string
+     * @param executor The executor for the async operations and the bulk registry operations
+     * @return The instance of RegistryManager
+     * @throws IOException This exception is thrown if the object creation failed
+     */
+    public static RegistryManager createFromConnectionString(String connectionString, Executor executor) throws IOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_106: [The constructor shall throw IllegalArgumentException if the input executor is null]
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("The provided executor cannot be null");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_107: [The constructor shall create a new RegistryManager that runs the async operations in the provided executor]
+        RegistryManager iotHubRegistryManager = createFromConnectionString(connectionString);
+        iotHubRegistryManager.executor = executor;
+        iotHubRegistryManager.fanOutExecutor = executor;
+        return iotHubRegistryManager;
+    }
+
     /**
      * Placeholder for open registry operations
      */
@@ -97,10 +149,8 @@ public class RegistryManager
         String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_008: [The function shall create a new HttpRequest for adding the device to IotHub]
-        HttpRequest request = CreateRequest(url, HttpMethod.PUT, deviceJson.getBytes(), sasTokenString);
-
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_009: [The function shall send the created request and get the response]
-        HttpResponse response = request.send();
+        HttpResponse response = sendRequest(url, HttpMethod.PUT, deviceJson.getBytes(), sasTokenString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_010: [The function shall verify the response status and throw proper Exception]
         IotHubExceptionManager.httpResponseVerification(response);
@@ -131,7 +181,7 @@ public class RegistryManager
 
         // Codes_SRS_SERVICE_SDK_JAVA_ REGISTRYMANAGER_12_013: [The function shall create an async wrapper around the addDevice() function call, handle the return value or delegate exception]
         final CompletableFuture<Device> future = new CompletableFuture<>();
-        executor.submit(() ->
+        AsyncExecutors.execute(this.executor, future, () ->
         {
             try
             {
@@ -168,10 +218,8 @@ public class RegistryManager
         String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_017: [The function shall create a new HttpRequest for getting a device from IotHub]
-        HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
-
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_018: [The function shall send the created request and get the response]
-        HttpResponse response = request.send();
+        HttpResponse response = sendRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_019: [The function shall verify the response status and throw proper Exception]
         IotHubExceptionManager.httpResponseVerification(response);
@@ -201,7 +249,7 @@ public class RegistryManager
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_022: [The function shall create an async wrapper around the addDevice() function call, handle the return value or delegate exception]
         final CompletableFuture<Device> future = new CompletableFuture<>();
-        executor.submit(() ->
+        AsyncExecutors.execute(this.executor, future, () ->
         {
             try
             {
@@ -238,31 +286,68 @@ public class RegistryManager
         String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_026: [The function shall create a new HttpRequest for getting a device list from IotHub]
-        HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
-
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_027: [The function shall send the created request and get the response]
-        HttpResponse response = request.send();
+        HttpResponse response = sendRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_028: [The function shall verify the response status and throw proper Exception]
         IotHubExceptionManager.httpResponseVerification(response);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_029: [The function shall create a new ArrayList<Device> object from the response and return with it]
-        String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
-        try (JsonReader jsonReader = Json.createReader(new StringReader(bodyStr)))
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_087: [The function shall parse each device only once, straight from the response body.]
+        try (DeviceIterator deviceIterator = new DeviceIterator(new ByteArrayInputStream(response.getBody())))
         {
             ArrayList<Device> deviceList = new ArrayList<>();
-            JsonArray deviceArray = jsonReader.readArray();
-            
-            for (int i = 0; i < deviceArray.size(); i++)
+            while (deviceIterator.hasNext())
             {
-                JsonObject jsonObject = deviceArray.getJsonObject(i);
-                Device iotHubDevice = new Device(new DeviceParser(jsonObject.toString()));
-                deviceList.add(iotHubDevice);
+                deviceList.add(deviceIterator.next());
             }
             return deviceList;
         }
     }
 
+    /**
+     * Get list of devices, as an iterator that parses the devices while the response is received. The first
+     * devices are available before the full list has been received, and the list is never held in memory.
+     *
+     * <p>
+     *     The iterator holds the HTTPS connection until the last device is read. If the caller stops before the
+     *     end, it shall close the iterator.
+     * </p>
+     *
+     * @param maxCount The requested count of devices
+     * @return The iterator over the devices
+     * @throws IOException This exception is thrown if the IO operation failed
+     * @throws IotHubException This exception is thrown if the response verification failed
+     */
+    public DeviceIterator getDevicesIterator(Integer maxCount) throws IOException, IotHubException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_088: [The function shall throw IllegalArgumentException if the input count number is less than 1]
+        if (maxCount < 1)
+        {
+            throw new IllegalArgumentException("maxCount cannot be less then 1");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_089: [The function shall create a new HttpRequest for getting a device list from IotHub, and send it without reading the response body]
+        URL url = iotHubConnectionString.getUrlDeviceList(maxCount);
+        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString, newRequestId());
+        HttpStreamingResponse response = request.sendStreaming();
+
+        try
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_090: [The function shall verify the response status, and if it fails, close the response and throw proper Exception]
+            IotHubExceptionManager.httpResponseVerification(response);
+        }
+        catch (IotHubException e)
+        {
+            response.close();
+            throw e;
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_091: [The function shall return a DeviceIterator that parses the devices from the response body stream]
+        return new DeviceIterator(response.getBodyStream());
+    }
+
     /**
      * Async wrapper for getDevices() operation
      *
@@ -281,7 +366,7 @@ public class RegistryManager
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_031: [The function shall create an async wrapper around the getDevices() function call, handle the return value or delegate exception]
         final CompletableFuture<ArrayList<Device>> future = new CompletableFuture<>();
-        executor.submit(() ->
+        AsyncExecutors.execute(this.executor, future, () ->
         {
             try
             {
@@ -376,11 +461,15 @@ public class RegistryManager
         String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_038: [The function shall create a new HttpRequest for updating the device on IotHub]
-        HttpRequest request = CreateRequest(url, HttpMethod.PUT, device.toDeviceParser().toJson().getBytes(), sasTokenString);
-        request.setHeaderField("If-Match", "*");
-
+        byte[] deviceJson = device.toDeviceParser().toJson().getBytes();
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_039: [The function shall send the created request and get the response]
-        HttpResponse response = request.send();
+        String requestId = newRequestId();
+        HttpResponse response = sendRequest(() ->
+        {
+            HttpRequest request = CreateRequest(url, HttpMethod.PUT, deviceJson, sasTokenString, requestId);
+            request.setHeaderField("If-Match", "*");
+            return request;
+        });
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_040: [The function shall verify the response status and throw proper Exception]
         IotHubExceptionManager.httpResponseVerification(response);
@@ -409,7 +498,7 @@ public class RegistryManager
         }
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_043: [The function shall create an async wrapper around the updateDevice() function call, handle the return value or delegate exception]
         final CompletableFuture<Device> future = new CompletableFuture<>();
-        executor.submit(() ->
+        AsyncExecutors.execute(this.executor, future, () ->
         {
             try
             {
@@ -442,7 +531,7 @@ public class RegistryManager
         }
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_045: [The function shall create an async wrapper around the updateDevice(Device, device, Boolean forceUpdate) function call, handle the return value or delegate exception]
         final CompletableFuture<Device> future = new CompletableFuture<>();
-        executor.submit(() ->
+        AsyncExecutors.execute(this.executor, future, () ->
         {
             try
             {
@@ -479,13 +568,17 @@ public class RegistryManager
         String sasToken = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_049: [The function shall create a new HttpRequest for removing the device from IotHub]
-        HttpRequest request = new HttpRequest(url, HttpMethod.DELETE, new byte[0]);
-        request.setReadTimeoutMillis(DEFAULT_HTTP_TIMEOUT_MS);
-        request.setHeaderField("authorization", sasToken);
-        request.setHeaderField("If-Match", "*");
-
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_050: [The function shall send the created request and get the response]
-        HttpResponse response = request.send();
+        String requestId = newRequestId();
+        HttpResponse response = sendRequest(() ->
+        {
+            HttpRequest request = new HttpRequest(url, HttpMethod.DELETE, new byte[0]);
+            request.setReadTimeoutMillis(DEFAULT_HTTP_TIMEOUT_MS);
+            request.setHeaderField("authorization", sasToken);
+            request.setHeaderField("Request-Id", requestId);
+            request.setHeaderField("If-Match", "*");
+            return request;
+        });
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_051: [The function shall verify the response status and throw proper Exception]
         IotHubExceptionManager.httpResponseVerification(response);
@@ -509,7 +602,7 @@ public class RegistryManager
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_053: [The function shall create an async wrapper around the removeDevice() function call, handle the return value or delegate exception]
         final CompletableFuture<Boolean> future = new CompletableFuture<Boolean>();
-        executor.submit(() ->
+        AsyncExecutors.execute(this.executor, future, () ->
         {
             try
             {
@@ -524,6 +617,56 @@ public class RegistryManager
         return future;
     }
 
+    /**
+     * Create many devices in the IotHub registry with a few bulk requests. Devices that already exist fail with
+     * their own error, and do not prevent the other devices from being created.
+     *
+     * @param devices The devices to create
+     * @return The result of the operation, with the error of each device that failed
+     * @throws IllegalArgumentException This exception is thrown if the collection is null, empty, or contains a null device
+     * @throws IOException This exception is thrown if the IO operation failed
+     * @throws IotHubException This exception is thrown if the response verification failed
+     */
+    public BulkRegistryOperationResult addDevices(Collection<Device> devices) throws IllegalArgumentException, IOException, IotHubException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_092: [The function shall create the devices with the import mode create.]
+        return bulkRegistryOperation(devices, ImportMode.Create);
+    }
+
+    /**
+     * Update many devices in the IotHub registry with a few bulk requests. If the update is not forced, each device
+     * is only updated if its eTag matches the one in the registry, otherwise it fails with its own error.
+     *
+     * @param devices The devices containing the updated data
+     * @param forceUpdate True if the update has to be forced regardless of the eTag of the devices
+     * @return The result of the operation, with the error of each device that failed
+     * @throws IllegalArgumentException This exception is thrown if the collection is null, empty, or contains a null device
+     * @throws IOException This exception is thrown if the IO operation failed
+     * @throws IotHubException This exception is thrown if the response verification failed
+     */
+    public BulkRegistryOperationResult updateDevices(Collection<Device> devices, boolean forceUpdate) throws IllegalArgumentException, IOException, IotHubException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_093: [The function shall update the devices with the import mode update if forceUpdate is true, or updateIfMatchETag otherwise.]
+        return bulkRegistryOperation(devices, forceUpdate ? ImportMode.Update : ImportMode.UpdateIfMatchETag);
+    }
+
+    /**
+     * Remove many devices from the IotHub registry with a few bulk requests. If the removal is not forced, each
+     * device is only removed if its eTag matches the one in the registry, otherwise it fails with its own error.
+     *
+     * @param devices The devices to remove
+     * @param forceRemove True if the removal has to be forced regardless of the eTag of the devices
+     * @return The result of the operation, with the error of each device that failed
+     * @throws IllegalArgumentException This exception is thrown if the collection is null, empty, or contains a null device
+     * @throws IOException This exception is thrown if the IO operation failed
+     * @throws IotHubException This exception is thrown if the response verification failed
+     */
+    public BulkRegistryOperationResult removeDevices(Collection<Device> devices, boolean forceRemove) throws IllegalArgumentException, IOException, IotHubException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_094: [The function shall remove the devices with the import mode delete if forceRemove is true, or deleteIfMatchETag otherwise.]
+        return bulkRegistryOperation(devices, forceRemove ? ImportMode.Delete : ImportMode.DeleteIfMatchETag);
+    }
+
     /**
      * Get device statistics
      *
@@ -540,10 +683,8 @@ public class RegistryManager
         String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_056: [The function shall create a new HttpRequest for getting statistics a device from IotHub]
-        HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
-
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_057: [The function shall send the created request and get the response]
-        HttpResponse response = request.send();
+        HttpResponse response = sendRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_058: [The function shall verify the response status and throw proper Exception]
         IotHubExceptionManager.httpResponseVerification(response);
@@ -565,7 +706,7 @@ public class RegistryManager
     {
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_060: [The function shall create an async wrapper around the getStatistics() function call, handle the return value or delegate exception]
         final CompletableFuture<RegistryStatistics> future = new CompletableFuture<>();
-        executor.submit(() ->
+        AsyncExecutors.execute(this.executor, future, () ->
         {
             try
             {
@@ -610,10 +751,8 @@ public class RegistryManager
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_064: [The function shall create a new HttpRequest for the bulk export job creation ]
         String jobPropertiesJson = CreateExportJobPropertiesJson(exportBlobContainerUri, excludeKeys);
-        HttpRequest request = CreateRequest(url, HttpMethod.POST, jobPropertiesJson.getBytes(), sasTokenString);
-
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_065: [The function shall send the created request and get the response]
-        HttpResponse response = request.send();
+        HttpResponse response = sendRequest(url, HttpMethod.POST, jobPropertiesJson.getBytes(), sasTokenString);
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_066: [The function shall verify the response status and throw proper Exception]
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_067: [The function shall create a new JobProperties object from the response and return it]
@@ -636,7 +775,7 @@ public class RegistryManager
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_068: [The function shall create an async wrapper around the
         // exportDevices() function call, handle the return value or delegate exception]
         final CompletableFuture<JobProperties> future = new CompletableFuture<>();
-        executor.submit(() ->
+        AsyncExecutors.execute(this.executor, future, () ->
         {
             try
             {
@@ -680,10 +819,8 @@ public class RegistryManager
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_072: [The function shall create a new HttpRequest for the bulk import job creation]
         String jobPropertiesJson = CreateImportJobPropertiesJson(importBlobContainerUri, outputBlobContainerUri);
-        HttpRequest request = CreateRequest(url, HttpMethod.POST, jobPropertiesJson.getBytes(), sasTokenString);
-
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_073: [The function shall send the created request and get the response]
-        HttpResponse response = request.send();
+        HttpResponse response = sendRequest(url, HttpMethod.POST, jobPropertiesJson.getBytes(), sasTokenString);
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_074: [The function shall verify the response status and throw proper Exception]
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_075: [The function shall create a new JobProperties object from the response and return it]
@@ -707,7 +844,7 @@ public class RegistryManager
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_076: [The function shall create an async wrapper around
         // the importDevices() function call, handle the return value or delegate exception]
         final CompletableFuture<JobProperties> future = new CompletableFuture<>();
-        executor.submit(() ->
+        AsyncExecutors.execute(this.executor, future, () ->
         {
             try
             {
@@ -748,10 +885,8 @@ public class RegistryManager
         String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_080: [The function shall create a new HttpRequest for getting the properties of a job]
-        HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
-
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_081: [The function shall send the created request and get the response]
-        HttpResponse response = request.send();
+        HttpResponse response = sendRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_082: [The function shall verify the response status and throw proper Exception ]
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_083: [The function shall create a new JobProperties object from the response and return it]
@@ -773,7 +908,7 @@ public class RegistryManager
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_084: [The function shall create an async wrapper around
         // the getJob() function call, handle the return value or delegate exception]
         final CompletableFuture<JobProperties> future = new CompletableFuture<>();
-        executor.submit(() ->
+        AsyncExecutors.execute(this.executor, future, () ->
         {
             try
             {
@@ -813,12 +948,180 @@ public class RegistryManager
         return resultJobProperties;
     }
 
-    private HttpRequest CreateRequest(URL url, HttpMethod method, byte[] payload, String sasToken) throws IOException
+    private BulkRegistryOperationResult bulkRegistryOperation(Collection<Device> devices, ImportMode importMode)
+            throws IllegalArgumentException, IOException, IotHubException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_095: [The function shall throw IllegalArgumentException if the collection of devices is null, empty, or contains a null device.]
+        if ((devices == null) || devices.isEmpty())
+        {
+            throw new IllegalArgumentException("devices cannot be null or empty");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_096: [The function shall split the devices in batches of up to 100 devices, which is the maximum that IotHub accepts in a single request.]
+        final List<List<ExportImportDeviceParser>> batches = new ArrayList<>();
+        List<ExportImportDeviceParser> batch = null;
+        for (Device device : devices)
+        {
+            if (device == null)
+            {
+                throw new IllegalArgumentException("devices cannot contain a null device");
+            }
+
+            if ((batch == null) || (batch.size() == BULK_REGISTRY_OPERATION_MAX_DEVICES))
+            {
+                batch = new ArrayList<>(BULK_REGISTRY_OPERATION_MAX_DEVICES);
+                batches.add(batch);
+            }
+            batch.add(toExportImportDeviceParser(device, importMode));
+        }
+
+        final URL url = iotHubConnectionString.getUrlBulkRegistryOperation();
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_097: [The function shall send the first batch in the caller thread, and if it fails, throw the exception before sending the other batches.]
+        BulkRegistryOperationResult firstResult = sendBulkRegistryBatch(url, batches.get(0));
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_098: [The function shall send the other batches in parallel on the fan-out executor, which is the provided executor if the RegistryManager was created with one.]
+        List<CompletableFuture<BulkRegistryOperationResult>> futures = new ArrayList<>(batches.size() - 1);
+        for (final List<ExportImportDeviceParser> nextBatch : batches.subList(1, batches.size()))
+        {
+            final CompletableFuture<BulkRegistryOperationResult> future = new CompletableFuture<>();
+            AsyncExecutors.execute(this.fanOutExecutor, future, () ->
+            {
+                if (future.isCancelled())
+                {
+                    return;
+                }
+
+                try
+                {
+                    future.complete(sendBulkRegistryBatch(url, nextBatch));
+                }
+                catch (IOException | IotHubException | RuntimeException e)
+                {
+                    future.completeExceptionally(e);
+                }
+            });
+            futures.add(future);
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_099: [The function shall merge the errors of all batches in a single BulkRegistryOperationResult, and return it.]
+        boolean isSuccessful = firstResult.isSuccessful();
+        List<DeviceRegistryOperationError> errors = new ArrayList<>(firstResult.getErrors());
+        for (int i = 0; i < futures.size(); i++)
+        {
+            try
+            {
+                BulkRegistryOperationResult result = futures.get(i).get();
+                isSuccessful &= result.isSuccessful();
+                errors.addAll(result.getErrors());
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if ((cause instanceof IOException) || (cause instanceof IotHubException) || (cause instanceof RejectedExecutionException))
+                {
+                    // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_100: [If one of the other batches fails or is rejected by the executor, the function shall report the failure as the error of each device in that batch.]
+                    isSuccessful = false;
+                    for (ExportImportDeviceParser failedDevice : batches.get(i + 1))
+                    {
+                        errors.add(new DeviceRegistryOperationError(failedDevice.getId(), cause.getClass().getSimpleName(), cause.getMessage()));
+                    }
+                }
+                else if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException) cause;
+                }
+                else
+                {
+                    throw new IllegalStateException(cause);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_101: [If the caller thread is interrupted, the function shall cancel the pending batches, and throw InterruptedIOException.]
+                for (CompletableFuture<BulkRegistryOperationResult> future : futures)
+                {
+                    future.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the bulk registry operation");
+            }
+        }
+
+        return new BulkRegistryOperationResult(isSuccessful, errors);
+    }
+
+    private BulkRegistryOperationResult sendBulkRegistryBatch(URL url, List<ExportImportDeviceParser> batch) throws IOException, IotHubException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_102: [The function shall send each batch as a json array in a single POST request.]
+        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        byte[] payload = ExportImportDeviceParser.toJsonArray(batch).getBytes(StandardCharsets.UTF_8);
+        HttpResponse response = sendRequest(url, HttpMethod.POST, payload, sasTokenString);
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_103: [If IotHub rejects some of the devices in the batch, the function shall return the error of each device reported in the response.]
+        if (response.getStatus() == HTTP_STATUS_BAD_REQUEST)
+        {
+            try
+            {
+                return new BulkRegistryOperationResult(
+                        new BulkRegistryOperationResultParser(new String(response.getErrorReason(), StandardCharsets.UTF_8)));
+            }
+            catch (IllegalArgumentException e)
+            {
+                // The request was rejected as a whole, the response verification reports it.
+            }
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_104: [The function shall verify the response status and throw proper Exception.]
+        IotHubExceptionManager.httpResponseVerification(response);
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_105: [If the response has no body, the function shall consider that all devices in the batch succeeded.]
+        byte[] body = response.getBody();
+        if ((body == null) || (body.length == 0))
+        {
+            return new BulkRegistryOperationResult(true, new ArrayList<DeviceRegistryOperationError>());
+        }
+        return new BulkRegistryOperationResult(new BulkRegistryOperationResultParser(new String(body, StandardCharsets.UTF_8)));
+    }
+
+    private static ExportImportDeviceParser toExportImportDeviceParser(Device device, ImportMode importMode)
+    {
+        DeviceParser deviceParser = device.toDeviceParser();
+        ExportImportDeviceParser exportImportDeviceParser = new ExportImportDeviceParser();
+        exportImportDeviceParser.setId(deviceParser.getDeviceId());
+        exportImportDeviceParser.setETag(deviceParser.geteTag());
+        exportImportDeviceParser.setStatus(deviceParser.getStatus());
+        exportImportDeviceParser.setStatusReason(deviceParser.getStatusReason());
+        exportImportDeviceParser.setAuthentication(deviceParser.getAuthenticationParser());
+        exportImportDeviceParser.setImportMode(IMPORT_MODE_VALUES.get(importMode));
+        return exportImportDeviceParser;
+    }
+
+    private HttpResponse sendRequest(URL url, HttpMethod method, byte[] payload, String sasToken) throws IOException
+    {
+        String requestId = newRequestId();
+        return sendRequest(() -> CreateRequest(url, method, payload, sasToken, requestId));
+    }
+
+    private HttpResponse sendRequest(RequestThrottler.HttpRequestFactory requestFactory) throws IOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_108: [The function shall send the requests through the RequestThrottler of the IotHub, with the OperationClass REGISTRY, that creates and sends the idempotent requests again if the IotHub throttles them.]
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_109: [The RequestThrottler shall report the requests to the ServiceInstrumentation, if any listener is registered.]
+        return RequestThrottler.getForIotHub(this.iotHubConnectionString.getHostName()).send(OperationClass.REGISTRY, requestFactory);
+    }
+
+    private static String newRequestId()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_110: [The function shall set a new random UUID as the Request-Id of each operation, and send the same one in all attempts of the operation.]
+        return UUID.randomUUID().toString();
+    }
+
+    private HttpRequest CreateRequest(URL url, HttpMethod method, byte[] payload, String sasToken, String requestId) throws IOException
     {
         HttpRequest request = new HttpRequest(url, method, payload);
         request.setReadTimeoutMillis(DEFAULT_HTTP_TIMEOUT_MS);
         request.setHeaderField("authorization", sasToken);
-        request.setHeaderField("Request-Id", "1001");
+        request.setHeaderField("Request-Id", requestId);
         request.setHeaderField("Accept", "application/json");
         request.setHeaderField("Content-Type", "application/json");
         request.setHeaderField("charset", "utf-8");
@@ -11,15 +11,15 @@ import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSend;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 /**
  * Extend the ServiceClient class and provide AMPQ specific implementation.
  */
 public class ServiceClient
 {
-    private final ExecutorService executor = Executors.newFixedThreadPool(10);
+    private Executor executor = AsyncExecutors.getDefaultExecutor();
+    private Executor receiveExecutor = AsyncExecutors.getDefaultReceiveExecutor();
 
     private AmqpSend amqpMessageSender;
     private final String hostName;
@@ -51,6 +51,30 @@ public class ServiceClient
         return iotServiceClient;
     }
 
+    /**
+     * Create ServiceClient from the specified connection string, that runs the async operations in the provided
+     * executor instead of the executor shared by all service clients
+     * @param connectionString The connection string for the IotHub
+     * @param iotHubServiceClientProtocol  protocol to use
+     * @param executor The executor for the async operations of the client and of its receivers
+     * @return The created ServiceClient object
+     * @throws IOException This exception is thrown if the object creation failed
+     */
+    public static ServiceClient createFromConnectionString(String connectionString, IotHubServiceClientProtocol iotHubServiceClientProtocol, Executor executor) throws IOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_21_019: [The constructor shall throw IllegalArgumentException if the input executor is null]
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("The provided executor cannot be null");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_21_020: [The constructor shall create a new instance of ServiceClient that runs the async operations in the provided executor]
+        ServiceClient iotServiceClient = createFromConnectionString(connectionString, iotHubServiceClientProtocol);
+        iotServiceClient.executor = executor;
+        iotServiceClient.receiveExecutor = executor;
+        return iotServiceClient;
+    }
+
     /**
      * Initialize AMQP sender using given connection string
      *
@@ -137,7 +161,7 @@ public class ServiceClient
     {
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_014: [The function shall create an async wrapper around the open() function call]
         final CompletableFuture<Void> future = new CompletableFuture<>();
-        executor.submit(() -> {
+        AsyncExecutors.execute(this.executor, future, () -> {
             try
             {
                 open();
@@ -159,7 +183,7 @@ public class ServiceClient
     {
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_015: [The function shall create an async wrapper around the close() function call]
         final CompletableFuture<Void> future = new CompletableFuture<>();
-        executor.submit(() -> {
+        AsyncExecutors.execute(this.executor, future, () -> {
             try
             {
                 close();
@@ -183,7 +207,7 @@ public class ServiceClient
     {
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_016: [The function shall create an async wrapper around the send() function call]
         final CompletableFuture<Void> future = new CompletableFuture<>();
-        executor.submit(() -> {
+        AsyncExecutors.execute(this.executor, future, () -> {
         try
         {
             send(deviceId, message);
@@ -206,6 +230,8 @@ public class ServiceClient
     {
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_017: [The function shall create a FeedbackReceiver object and returns with it. This API is deprecated.]
         FeedbackReceiver feedbackReceiver = new FeedbackReceiver(hostName, userName, sasToken, iotHubServiceClientProtocol, deviceId);
+        // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_21_021: [The function shall set the receive executor of the client on the created receiver, which is the executor provided on creation or else the shared receive executor]
+        feedbackReceiver.setExecutor(this.receiveExecutor);
         return feedbackReceiver;
     }
     
@@ -220,6 +246,8 @@ public class ServiceClient
     {
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_018: [The function shall create a FeedbackReceiver object and returns with it. This API doesn't need deviceId as an input parameter]
         FeedbackReceiver feedbackReceiver = new FeedbackReceiver(hostName, userName, sasToken, iotHubServiceClientProtocol);
+        // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_21_021: [The function shall set the receive executor of the client on the created receiver, which is the executor provided on creation or else the shared receive executor]
+        feedbackReceiver.setExecutor(this.receiveExecutor);
         return feedbackReceiver;
     }
 
@@ -230,7 +258,10 @@ public class ServiceClient
      */
     public FileUploadNotificationReceiver getFileUploadNotificationReceiver()
     {
-        return new FileUploadNotificationReceiver(hostName, userName, sasToken, iotHubServiceClientProtocol);
+        FileUploadNotificationReceiver fileUploadNotificationReceiver = new FileUploadNotificationReceiver(hostName, userName, sasToken, iotHubServiceClientProtocol);
+        // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_21_021: [The function shall set the receive executor of the client on the created receiver, which is the executor provided on creation or else the shared receive executor]
+        fileUploadNotificationReceiver.setExecutor(this.receiveExecutor);
+        return fileUploadNotificationReceiver;
     }
     
 }
@@ -10,8 +10,16 @@ import com.microsoft.azure.sdk.iot.deps.util.Base64;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /** 
  * Grants device access to an IoT Hub for the specified amount of time. 
@@ -30,6 +38,45 @@ public final class IotHubServiceSasToken
      */
     public static final String TOKEN_FORMAT = "SharedAccessSignature sr=%s&sig=%s&se=%s&skn=%s";
 
+    private static final String HMAC_SHA_256 = "HmacSHA256";
+    private static final String SHA_256 = "SHA-256";
+
+    /**
+     * A cached token is reused for up to one hour. As the tokens are valid for one year, a reused token
+     * expires at most one hour earlier than a new one.
+     */
+    private static final long TOKEN_CACHE_REFRESH_MILLISECONDS = 60 * 60 * 1000;
+
+    /**
+     * The signers and tokens of the least recently used keys are dropped once more keys than this are in use,
+     * so a process that goes through many keys does not keep all of them.
+     */
+    private static final int MAX_CACHED_KEYS = 64;
+
+    /* Signers for each shared access key, by the hash of the key, so the key is decoded only once. */
+    private static final Map<String, Signer> signers = new LinkedHashMap<String, Signer>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Signer> eldest)
+        {
+            if (size() > MAX_CACHED_KEYS)
+            {
+                eldest.getValue().close();
+                return true;
+            }
+            return false;
+        }
+    };
+    /* Tokens for each connection (host name, key name and hash of the key). */
+    private static final Map<String, CachedToken> tokenCache = new LinkedHashMap<String, CachedToken>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedToken> eldest)
+        {
+            return size() > MAX_CACHED_KEYS;
+        }
+    };
+
     /* The URI for a connection to an IoT Hub */
     protected final String resourceUri;
     /* The value of the SharedAccessKey */
@@ -62,16 +109,61 @@ public final class IotHubServiceSasToken
         this.resourceUri = iotHubConnectionString.getHostName();
         this.keyValue = iotHubConnectionString.getSharedAccessKey();
         this.keyName = iotHubConnectionString.getSharedAccessKeyName();
-        this.expiryTime = buildExpiresOn();
-        this.token =  buildToken();
+
+        // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_21_009: [The constructor shall reuse the token cached for the same host name, key name and key, if it was created less than one hour ago.]
+        // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_21_011: [The caches shall be keyed by a SHA-256 hash of the shared access key, not by the key itself.]
+        String keyHash = hashKey(this.keyValue);
+        String cacheKey = this.resourceUri + "\n" + this.keyName + "\n" + keyHash;
+        CachedToken cachedToken;
+        synchronized (tokenCache)
+        {
+            cachedToken = tokenCache.get(cacheKey);
+        }
+        if ((cachedToken != null) && (System.currentTimeMillis() < cachedToken.refreshOn))
+        {
+            this.expiryTime = cachedToken.expiryTime;
+            this.token = cachedToken.token;
+        }
+        else
+        {
+            this.expiryTime = buildExpiresOn();
+            this.token =  buildToken(keyHash);
+
+            // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_21_010: [The constructor shall cache the new token for the host name, key name and key.]
+            // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_21_012: [The caches shall keep the signers and tokens of the 64 most recently used keys, and drop the pooled Mac instances of an evicted signer.]
+            synchronized (tokenCache)
+            {
+                tokenCache.put(cacheKey, new CachedToken(this.token, this.expiryTime, System.currentTimeMillis() + TOKEN_CACHE_REFRESH_MILLISECONDS));
+            }
+        }
+    }
+
+    /**
+     * Helper function to identify a shared access key in the caches without keeping the key itself
+     *
+     * @param keyValue the shared access key
+     * @return The Base64 SHA-256 hash of the key
+     */
+    private static String hashKey(String keyValue)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance(SHA_256).digest(keyValue.getBytes(StandardCharsets.UTF_8));
+            return Base64.encodeBase64StringLocal(digest);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
      * Helper function to build the token string
      *
+     * @param keyHash the hash of the shared access key, which identifies its signer
      * @return Valid token string
      */
-    private String buildToken()
+    private String buildToken(String keyHash)
     {
         String targetUri;
         try
@@ -82,23 +174,26 @@ public final class IotHubServiceSasToken
             String toSign = targetUri + "\n" + this.expiryTime;
 
             // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_12_004: [The constructor shall create a key from the shared access key signing with HmacSHA256]
-            // Get an hmac_sha1 key from the raw key bytes
-            byte[] keyBytes = Base64.decodeBase64Local(this.keyValue.getBytes("UTF-8"));
-            SecretKeySpec signingKey = new SecretKeySpec(keyBytes, "HmacSHA256");
-
-            // Get an hmac_sha1 Mac instance and initialize with the signing key
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(signingKey);
+            Signer signer;
+            synchronized (signers)
+            {
+                signer = signers.get(keyHash);
+                if (signer == null)
+                {
+                    signer = new Signer(this.keyValue);
+                    signers.put(keyHash, signer);
+                }
+            }
 
             // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_12_005: [The constructor shall compute the final signature by url encoding the signed key]
-            // Compute the hmac on input data bytes
-            byte[] rawHmac = mac.doFinal(toSign.getBytes("UTF-8"));
-            // Convert raw bytes to Hex
-            String signature = URLEncoder.encode(
-                    Base64.encodeBase64StringLocal(rawHmac), "UTF-8");
+            String signature = signer.sign(toSign);
 
             // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_12_006: [The constructor shall concatenate the target uri, the signature, the expiry time and the key name using the format: "SharedAccessSignature sr=%s&sig=%s&se=%s&skn=%s"]
-            String token = String.format(TOKEN_FORMAT, targetUri, signature, this.expiryTime, this.keyName);
+            String token = new StringBuilder("SharedAccessSignature sr=").append(targetUri)
+                    .append("&sig=").append(signature)
+                    .append("&se=").append(this.expiryTime)
+                    .append("&skn=").append(this.keyName)
+                    .toString();
 
             return token;
         } catch (Exception e)
@@ -131,5 +226,67 @@ public final class IotHubServiceSasToken
         // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_12_008: [The constructor shall return with the generated token]
         return this.token;
     }
-}
 
+    /**
+     * Signs with one shared access key. The key is decoded once, and the initialized HmacSHA256 Mac instances
+     * are pooled, so a concurrent signature takes its own Mac and an evicted signer releases all of them.
+     */
+    private static final class Signer
+    {
+        private final SecretKeySpec signingKey;
+        private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+        private volatile boolean closed;
+
+        Signer(String keyValue) throws UnsupportedEncodingException
+        {
+            // Get an hmac_sha256 key from the raw key bytes
+            byte[] keyBytes = Base64.decodeBase64Local(keyValue.getBytes("UTF-8"));
+            this.signingKey = new SecretKeySpec(keyBytes, HMAC_SHA_256);
+        }
+
+        String sign(String toSign) throws UnsupportedEncodingException
+        {
+            // Compute the hmac on input data bytes, and url encode its Base64 representation
+            Mac mac = this.macs.poll();
+            if (mac == null)
+            {
+                try
+                {
+                    mac = Mac.getInstance(HMAC_SHA_256);
+                    mac.init(this.signingKey);
+                }
+                catch (NoSuchAlgorithmException | InvalidKeyException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            byte[] rawHmac = mac.doFinal(toSign.getBytes("UTF-8"));
+            if (!this.closed)
+            {
+                this.macs.offer(mac);
+            }
+            return URLEncoder.encode(Base64.encodeBase64StringLocal(rawHmac), "UTF-8");
+        }
+
+        void close()
+        {
+            this.closed = true;
+            this.macs.clear();
+        }
+    }
+
+    private static final class CachedToken
+    {
+        private final String token;
+        private final long expiryTime;
+        private final long refreshOn;
+
+        CachedToken(String token, long expiryTime, long refreshOn)
+        {
+            this.token = token;
+            this.expiryTime = expiryTime;
+            this.refreshOn = refreshOn;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.AsyncExecutors;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs one operation on a queue of devices, with a fixed number of workers that take the devices one by one,
+ * and collects the result or the failure of each device.
+ *
+ * @param <T> the type of the work of each device.
+ * @param <R> the type of the result of each device.
+ */
+final class DeviceFanOut<T, R> implements Runnable
+{
+    /**
+     * The operation that the fan-out runs on each device.
+     *
+     * @param <T> the type of the work of each device.
+     * @param <R> the type of the result of each device.
+     */
+    interface DeviceOperation<T, R>
+    {
+        R run(T work) throws IOException, IotHubException;
+    }
+
+    private final Queue<Map.Entry<String, T>> pendingWork;
+    private final DeviceOperation<T, R> operation;
+    private final long deadlineInNanos;
+    private final String deadlineMessage;
+    private final Map<String, R> results = new ConcurrentHashMap<>();
+    private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+    private final AtomicInteger runningWorkers = new AtomicInteger(0);
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private volatile RejectedExecutionException rejection = null;
+    private volatile Error workerError = null;
+
+    /**
+     * Constructor.
+     *
+     * @param workByDeviceId the work of each device, by deviceId.
+     * @param operation the operation to run on the work of each device.
+     * @param deadlineInNanos the {@link System#nanoTime()} after which no new operation starts. Zero means no limit.
+     * @param deadlineMessage the message of the {@link TimeoutException} of the devices not started before the deadline.
+     */
+    DeviceFanOut(Map<String, T> workByDeviceId, DeviceOperation<T, R> operation, long deadlineInNanos, String deadlineMessage)
+    {
+        this.pendingWork = new ConcurrentLinkedQueue<>(workByDeviceId.entrySet());
+        this.operation = operation;
+        this.deadlineInNanos = deadlineInNanos;
+        this.deadlineMessage = deadlineMessage;
+    }
+
+    /**
+     * Start the workers.
+     *
+     * @param executor the executor for the workers, or {@code null} to run them in a new executor with one thread
+     *                 per worker, that is shut down when all devices are done.
+     * @param workers the number of workers.
+     * @return a future that completes when all devices are done.
+     */
+    CompletableFuture<Void> start(Executor executor, int workers)
+    {
+        Executor workerExecutor = executor;
+        if (workerExecutor == null)
+        {
+            // Codes_SRS_DEVICEFANOUT_21_001: [If the executor is null, the start shall run the workers in a new executor with one thread per worker, and shut it down when all devices are done.]
+            final ExecutorService ownExecutor = AsyncExecutors.newBoundedExecutor(workers, workers);
+            this.future.whenComplete((done, throwable) -> ownExecutor.shutdown());
+            workerExecutor = ownExecutor;
+        }
+
+        // Codes_SRS_DEVICEFANOUT_21_002: [The start shall run the provided number of workers, each one running the operation on the next pending device until there is no pending device.]
+        this.runningWorkers.set(workers);
+        for (int i = 0; i < workers; i++)
+        {
+            try
+            {
+                workerExecutor.execute(this);
+            }
+            catch (RejectedExecutionException e)
+            {
+                this.rejection = e;
+                workerDone();
+            }
+        }
+
+        return this.future;
+    }
+
+    /**
+     * Getter for the results.
+     *
+     * @return the result of each device that succeeded, by deviceId.
+     */
+    Map<String, R> getResults()
+    {
+        return this.results;
+    }
+
+    /**
+     * Getter for the failures.
+     *
+     * @return the exception of each device that failed, by deviceId.
+     */
+    Map<String, Exception> getFailures()
+    {
+        return this.failures;
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            Map.Entry<String, T> work;
+            while ((work = this.pendingWork.poll()) != null)
+            {
+                if ((this.deadlineInNanos != 0) && (System.nanoTime() - this.deadlineInNanos >= 0))
+                {
+                    // Codes_SRS_DEVICEFANOUT_21_003: [After the deadline, the workers shall not run the operation on the pending devices, and shall report them as failed with TimeoutException.]
+                    this.failures.put(work.getKey(), new TimeoutException(this.deadlineMessage));
+                    continue;
+                }
+
+                try
+                {
+                    // Codes_SRS_DEVICEFANOUT_21_004: [The workers shall store the result of each operation that succeed, and the exception of each operation that failed, by deviceId.]
+                    this.results.put(work.getKey(), this.operation.run(work.getValue()));
+                }
+                catch (IOException | IotHubException | RuntimeException e)
+                {
+                    this.failures.put(work.getKey(), e);
+                }
+            }
+        }
+        catch (Error e)
+        {
+            this.workerError = e;
+            throw e;
+        }
+        finally
+        {
+            workerDone();
+        }
+    }
+
+    private void workerDone()
+    {
+        if (this.runningWorkers.decrementAndGet() == 0)
+        {
+            if (this.workerError != null)
+            {
+                // Codes_SRS_DEVICEFANOUT_21_005: [If a worker ended with an Error, the fan-out shall complete the future exceptionally with it.]
+                this.future.completeExceptionally(this.workerError);
+                return;
+            }
+
+            // Codes_SRS_DEVICEFANOUT_21_006: [If the executor rejects all workers, the fan-out shall report the pending devices as failed with the RejectedExecutionException.]
+            Map.Entry<String, T> work;
+            while ((work = this.pendingWork.poll()) != null)
+            {
+                this.failures.put(work.getKey(), this.rejection);
+            }
+
+            // Codes_SRS_DEVICEFANOUT_21_007: [When all devices are done, the fan-out shall complete the future.]
+            this.future.complete(null);
+        }
+    }
+}
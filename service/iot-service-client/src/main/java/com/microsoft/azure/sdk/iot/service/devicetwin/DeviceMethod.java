@@ -4,6 +4,7 @@
 package com.microsoft.azure.sdk.iot.service.devicetwin;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
+import com.microsoft.azure.sdk.iot.service.AsyncExecutors;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
@@ -11,9 +12,19 @@ import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * DeviceMethod enables service client to directly invoke methods on various devices from service client.
@@ -21,7 +32,8 @@ import java.util.Date;
 public class DeviceMethod
 {
     private IotHubConnectionString iotHubConnectionString = null;
-    private Integer requestId = 0;
+    private Executor executor = AsyncExecutors.getDefaultExecutor();
+    private Executor fanOutExecutor = null;
     private static final int DEFAULT_RESPONSE_TIMEOUT = 30; // default response timeout is 30 seconds
     private static final int DEFAULT_CONNECT_TIMEOUT = 0;
     private static final int THOUSAND_MS = 1000;
@@ -49,6 +61,31 @@ public class DeviceMethod
         return deviceMethod;
     }
 
+    /**
+     * Create a DeviceMethod instance from the information in the connection string, that runs its async
+     * operations and the multi-device invokes in the provided executor.
+     *
+     * @param connectionString is the IoTHub connection string.
+     * @param executor is the executor for the async operations.
+     * @return an instance of the DeviceMethod.
+     * @throws IOException This exception is thrown if the object creation failed
+     */
+    public static DeviceMethod createFromConnectionString(String connectionString, Executor executor) throws IOException
+    {
+        /* Codes_SRS_DEVICEMETHOD_21_024: [The constructor shall throw IllegalArgumentException if the input executor is null.] */
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        /* Codes_SRS_DEVICEMETHOD_21_025: [The constructor shall create a new DeviceMethod instance from the connection string, that runs its async operations in the provided executor.] */
+        DeviceMethod deviceMethod = createFromConnectionString(connectionString);
+        deviceMethod.executor = executor;
+        deviceMethod.fanOutExecutor = executor;
+
+        return deviceMethod;
+    }
+
     /**
      * Directly invokes a method on the device and return its result.
      *
@@ -61,7 +98,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed
      * @throws IOException This exception is thrown if the IO operation failed
      */
-    public synchronized MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
+    public MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
     {
         /* Codes_SRS_DEVICEMETHOD_21_004: [The invoke shall throw IllegalArgumentException if the provided deviceId is null or empty.] */
         if((deviceId == null) || deviceId.isEmpty())
@@ -114,9 +151,10 @@ public class DeviceMethod
         // Calculate total timeout in milliseconds
         long timeoutInMs = (responseTimeout + connectTimeout) * THOUSAND_MS; 
                
+        /* Codes_SRS_DEVICEMETHOD_21_026: [The invoke shall not block other invokes on the same instance, and shall use a different request id for each invoke.] */
         /* Codes_SRS_DEVICEMETHOD_21_009: [The invoke shall send the created request and get the response using the HttpRequester.] */
         /* Codes_SRS_DEVICEMETHOD_21_010: [The invoke shall create a new HttpRequest with http method as `POST`.] */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.POST, json.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId++), timeoutInMs);
+        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.POST, json.getBytes(StandardCharsets.UTF_8), UUID.randomUUID().toString(), timeoutInMs);
 
         /* Codes_SRS_DEVICEMETHOD_21_013: [The invoke shall deserialize the payload using the `serializer.MethodParser`.] */
         MethodParser methodParserResponse = new MethodParser();
@@ -126,6 +164,177 @@ public class DeviceMethod
         return new MethodResult(methodParserResponse.getStatus(), methodParserResponse.getPayload());
     }
 
+    /**
+     * Directly invokes a method on the device without blocking the caller.
+     *
+     * @param deviceId is the device identification.
+     * @param methodName is the name of the method that shall be invoked on the device.
+     * @param responseTimeoutInSeconds is the maximum waiting time for a response from the device in seconds.
+     * @param connectTimeoutInSeconds is the maximum waiting time for a response from the connection in seconds.
+     * @param payload is the the method parameter
+     * @return a future that completes with the status and payload resulted from the method invoke, or
+     *         exceptionally with the exception that the invoke threw.
+     * @throws IllegalArgumentException if the deviceId or the methodName is null or empty.
+     */
+    public CompletableFuture<MethodResult> invokeAsync(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IllegalArgumentException
+    {
+        /* Codes_SRS_DEVICEMETHOD_21_027: [The invokeAsync shall throw IllegalArgumentException if the provided deviceId or methodName is null or empty.] */
+        if((deviceId == null) || deviceId.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceId is empty or null.");
+        }
+        if((methodName == null) || methodName.isEmpty())
+        {
+            throw new IllegalArgumentException("methodName is empty or null.");
+        }
+
+        final CompletableFuture<MethodResult> future = new CompletableFuture<>();
+        /* Codes_SRS_DEVICEMETHOD_21_028: [The invokeAsync shall run the invoke in the executor, and complete the returned future with its result.] */
+        /* Codes_SRS_DEVICEMETHOD_21_030: [If the executor rejects the invoke, the invokeAsync shall complete the returned future exceptionally with the RejectedExecutionException.] */
+        AsyncExecutors.execute(this.executor, future, () ->
+        {
+            try
+            {
+                future.complete(invoke(deviceId, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload));
+            }
+            catch (IOException | IotHubException | RuntimeException e)
+            {
+                /* Codes_SRS_DEVICEMETHOD_21_029: [If the invoke failed, the invokeAsync shall complete the returned future exceptionally with the exception.] */
+                future.completeExceptionally(e);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Directly invokes a method on multiple devices, with up to maxParallelism concurrent invokes, and
+     * return the result of each device.
+     *
+     * <p>
+     *     Each invoke is limited by its own responseTimeoutInSeconds and connectTimeoutInSeconds. After
+     *     maxExecutionTimeInSeconds, the devices that were not invoked yet fail with {@link TimeoutException},
+     *     so the whole call takes at most maxExecutionTimeInSeconds plus one invoke timeout.
+     * </p>
+     * <p>
+     *     If this instance was created without an executor, each call runs its invokes in its own executor with
+     *     one thread per concurrent invoke, up to maxParallelism, and stops these threads when all devices are done.
+     *     If it was created with an executor, the invokes run in that executor, so the number of concurrent
+     *     invokes is also limited by its threads.
+     * </p>
+     *
+     * @param deviceIds is the list of device identifications. Repeated ids are invoked only once.
+     * @param methodName is the name of the method that shall be invoked on the devices.
+     * @param responseTimeoutInSeconds is the maximum waiting time for a response from each device in seconds.
+     * @param connectTimeoutInSeconds is the maximum waiting time for a response from each connection in seconds.
+     * @param payload is the the method parameter
+     * @param maxParallelism is the maximum number of concurrent invokes.
+     * @param maxExecutionTimeInSeconds is the maximum time to start new invokes, in seconds. Zero means no limit.
+     * @return the results and failures by deviceId.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     * @throws IOException if the thread is interrupted while waiting for the invokes.
+     */
+    public DeviceMethodResults invokeOnDevices(Collection<String> deviceIds,
+                                               String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload,
+                                               int maxParallelism, long maxExecutionTimeInSeconds)
+            throws IllegalArgumentException, IOException
+    {
+        CompletableFuture<DeviceMethodResults> future = invokeOnDevicesAsync(
+                deviceIds,
+                methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload,
+                maxParallelism, maxExecutionTimeInSeconds);
+
+        try
+        {
+            /* Codes_SRS_DEVICEMETHOD_21_031: [The invokeOnDevices shall run the invokeOnDevicesAsync and wait for its results.] */
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            /* Codes_SRS_DEVICEMETHOD_21_032: [If the thread is interrupted while waiting, the invokeOnDevices shall restore the interrupt and throw InterruptedIOException.] */
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the device methods");
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Directly invokes a method on multiple devices, with up to maxParallelism concurrent invokes, without
+     * blocking the caller.
+     *
+     * @see #invokeOnDevices(Collection, String, Long, Long, Object, int, long)
+     *
+     * @param deviceIds is the list of device identifications. Repeated ids are invoked only once.
+     * @param methodName is the name of the method that shall be invoked on the devices.
+     * @param responseTimeoutInSeconds is the maximum waiting time for a response from each device in seconds.
+     * @param connectTimeoutInSeconds is the maximum waiting time for a response from each connection in seconds.
+     * @param payload is the the method parameter
+     * @param maxParallelism is the maximum number of concurrent invokes.
+     * @param maxExecutionTimeInSeconds is the maximum time to start new invokes, in seconds. Zero means no limit.
+     * @return a future that completes with the results and failures by deviceId, when all devices are done.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     */
+    public CompletableFuture<DeviceMethodResults> invokeOnDevicesAsync(Collection<String> deviceIds,
+                                                                       String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload,
+                                                                       int maxParallelism, long maxExecutionTimeInSeconds)
+            throws IllegalArgumentException
+    {
+        /* Codes_SRS_DEVICEMETHOD_21_033: [The invokeOnDevicesAsync shall throw IllegalArgumentException if the deviceIds is null, empty, or contains a null or empty deviceId.] */
+        if ((deviceIds == null) || deviceIds.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceIds cannot be null or empty");
+        }
+        for (String deviceId : deviceIds)
+        {
+            if ((deviceId == null) || deviceId.isEmpty())
+            {
+                throw new IllegalArgumentException("deviceIds cannot contain a null or empty deviceId");
+            }
+        }
+
+        /* Codes_SRS_DEVICEMETHOD_21_034: [The invokeOnDevicesAsync shall throw IllegalArgumentException if the maxParallelism is less than 1, or the maxExecutionTimeInSeconds is negative.] */
+        if (maxParallelism < 1)
+        {
+            throw new IllegalArgumentException("maxParallelism cannot be less than 1");
+        }
+        if (maxExecutionTimeInSeconds < 0)
+        {
+            throw new IllegalArgumentException("negative maxExecutionTimeInSeconds");
+        }
+
+        /* Codes_SRS_DEVICEMETHOD_21_035: [The invokeOnDevicesAsync shall validate the methodName, timeouts and payload with the `serializer.MethodParser` before any invoke.] */
+        if((methodName == null) || methodName.isEmpty())
+        {
+            throw new IllegalArgumentException("methodName is empty or null.");
+        }
+        new MethodParser(methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload);
+
+        long deadlineInNanos = (maxExecutionTimeInSeconds == 0) ? 0 : System.nanoTime() + TimeUnit.SECONDS.toNanos(maxExecutionTimeInSeconds);
+        Map<String, String> distinctDeviceIds = new LinkedHashMap<>();
+        for (String deviceId : deviceIds)
+        {
+            distinctDeviceIds.put(deviceId, deviceId);
+        }
+
+        /* Codes_SRS_DEVICEMETHOD_21_037: [After the maxExecutionTimeInSeconds, the invokeOnDevicesAsync shall not invoke the pending devices, and shall report them as failed with TimeoutException.] */
+        /* Codes_SRS_DEVICEMETHOD_21_038: [The invokeOnDevicesAsync shall store the MethodResult of each invoke that succeed, and the exception of each invoke that failed, by deviceId.] */
+        /* Codes_SRS_DEVICEMETHOD_21_039: [If the executor rejects all workers, the invokeOnDevicesAsync shall report the pending devices as failed with the RejectedExecutionException.] */
+        /* Codes_SRS_DEVICEMETHOD_21_043: [If a worker ended with an Error, the invokeOnDevicesAsync shall complete the returned future exceptionally with it.] */
+        final DeviceFanOut<String, MethodResult> fanOut = new DeviceFanOut<>(distinctDeviceIds,
+                deviceId -> invoke(deviceId, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload),
+                deadlineInNanos, "Method was not invoked before the deadline");
+
+        /* Codes_SRS_DEVICEMETHOD_21_036: [The invokeOnDevicesAsync shall run up to maxParallelism workers, each one invoking the method on the next pending device until there is no pending device.] */
+        /* Codes_SRS_DEVICEMETHOD_21_041: [If the instance was created without an executor, the invokeOnDevicesAsync shall run the workers in a new executor with one thread per worker, and shut it down when all devices are done.] */
+        /* Codes_SRS_DEVICEMETHOD_21_042: [If the instance was created with an executor, the invokeOnDevicesAsync shall run the workers in that executor.] */
+        /* Codes_SRS_DEVICEMETHOD_21_040: [When all devices are done, the invokeOnDevicesAsync shall complete the returned future with the DeviceMethodResults.] */
+        return fanOut.start(this.fanOutExecutor, Math.min(maxParallelism, distinctDeviceIds.size()))
+                .thenApply(done -> new DeviceMethodResults(fanOut.getResults(), fanOut.getFailures()));
+    }
+
     /**
      * Creates a new Job to invoke method on one or multiple devices
      *
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Store the results of a method invoked on multiple devices.
+ *
+ * <p>
+ *     Each device appears either in the results, with the status and payload returned by the device, or in the
+ *     failures, with the exception that prevented the invoke. A device that was not invoked before the deadline
+ *     fails with {@link java.util.concurrent.TimeoutException}.
+ * </p>
+ */
+public final class DeviceMethodResults
+{
+    private final Map<String, MethodResult> results;
+    private final Map<String, Exception> failures;
+
+    /**
+     * Constructor.
+     *
+     * @param results the method results by deviceId.
+     * @param failures the invoke failures by deviceId.
+     * @throws IllegalArgumentException if one of the maps is null.
+     */
+    DeviceMethodResults(Map<String, MethodResult> results, Map<String, Exception> failures) throws IllegalArgumentException
+    {
+        /* Codes_SRS_DEVICEMETHODRESULTS_21_001: [The constructor shall throw IllegalArgumentException if the results or the failures is null.] */
+        if ((results == null) || (failures == null))
+        {
+            throw new IllegalArgumentException("results and failures cannot be null");
+        }
+
+        /* Codes_SRS_DEVICEMETHODRESULTS_21_002: [The constructor shall store a copy of the results and failures.] */
+        this.results = Collections.unmodifiableMap(new HashMap<>(results));
+        this.failures = Collections.unmodifiableMap(new HashMap<>(failures));
+    }
+
+    /**
+     * Getter for the method results.
+     *
+     * @return an unmodifiable map with the {@link MethodResult} of each device that answered the method, by deviceId.
+     */
+    public Map<String, MethodResult> getResults()
+    {
+        /* Codes_SRS_DEVICEMETHODRESULTS_21_003: [The getResults shall return an unmodifiable map with the results by deviceId.] */
+        return this.results;
+    }
+
+    /**
+     * Getter for the invoke failures.
+     *
+     * @return an unmodifiable map with the exception of each device that could not be invoked, by deviceId.
+     */
+    public Map<String, Exception> getFailures()
+    {
+        /* Codes_SRS_DEVICEMETHODRESULTS_21_004: [The getFailures shall return an unmodifiable map with the failures by deviceId.] */
+        return this.failures;
+    }
+
+    /**
+     * Check if the method was invoked on all devices.
+     *
+     * @return {@code true} if there is no failure, {@code false} otherwise.
+     */
+    public boolean isSuccessful()
+    {
+        /* Codes_SRS_DEVICEMETHODRESULTS_21_005: [The isSuccessful shall return true if there is no failure, and false otherwise.] */
+        return this.failures.isEmpty();
+    }
+}
@@ -7,6 +7,8 @@ import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
+import com.microsoft.azure.sdk.iot.service.transport.OperationClass;
+import com.microsoft.azure.sdk.iot.service.transport.RequestThrottler;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
@@ -15,6 +17,7 @@ import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Set of common operations for Twin and Method.
@@ -32,6 +35,8 @@ public class DeviceOperations
     private static final String ACCEPT_CHARSET = "charset=utf-8";
     private static final String CONTENT_TYPE = "Content-Type";
     private static final Integer DEFAULT_HTTP_TIMEOUT_MS = 24000;
+    private static final String URL_PATH_JOBS = "/jobs/";
+    private static final String URL_PATH_METHODS = "/methods";
     private static Map<String, String> headers = null;
 
     /**
@@ -41,7 +46,8 @@ public class DeviceOperations
      * @param url is the Twin URL for the device ID.
      * @param method is the HTTP method (GET, POST, DELETE, PATCH, PUT).
      * @param payload is the array of bytes that contains the payload.
-     * @param requestId is an unique number that identify the request.
+     * @param requestId is an unique string that identifies the request in the IotHub logs. If it is null or empty,
+     *                  a new random UUID is used.
      * @param timeoutInMs is timeout in milliseconds.
      * @return the result of the request.
      * @throws IotHubException This exception is thrown if the response verification failed
@@ -55,6 +61,40 @@ public class DeviceOperations
             String requestId,
             long timeoutInMs) 
             throws IOException, IotHubException, IllegalArgumentException
+    {
+        /* Codes_SRS_DEVICE_OPERATIONS_21_022: [The request shall use the custom headers set by setHeaders only once, and clear them.] */
+        Map<String, String> nextRequestHeaders = headers;
+        headers = null;
+
+        return request(iotHubConnectionString, url, method, payload, requestId, timeoutInMs, nextRequestHeaders);
+    }
+
+    /**
+     * Send a http request to the IoTHub using the Twin/Method standard, with the provided custom headers, and
+     * return its response. Unlike {@link #setHeaders(Map)}, the custom headers belong to this request only, so
+     * concurrent requests do not see each other headers.
+     *
+     * @param iotHubConnectionString is the connection string for the IoTHub
+     * @param url is the Twin URL for the device ID.
+     * @param method is the HTTP method (GET, POST, DELETE, PATCH, PUT).
+     * @param payload is the array of bytes that contains the payload.
+     * @param requestId is an unique string that identifies the request in the IotHub logs. If it is null or empty,
+     *                  a new random UUID is used.
+     * @param timeoutInMs is timeout in milliseconds.
+     * @param customHeaders is the map of additional headers for this request. It can be {@code null}.
+     * @return the result of the request.
+     * @throws IotHubException This exception is thrown if the response verification failed
+     * @throws IOException This exception is thrown if the IO operation failed
+     */
+    public static HttpResponse request(
+            IotHubConnectionString iotHubConnectionString,
+            URL url,
+            HttpMethod method,
+            byte[] payload,
+            String requestId,
+            long timeoutInMs,
+            Map<String, String> customHeaders)
+            throws IOException, IotHubException, IllegalArgumentException
     {
         /* Codes_SRS_DEVICE_OPERATIONS_21_001: [The request shall throw IllegalArgumentException if the provided `iotHubConnectionString` is null.] */
         if(iotHubConnectionString == null)
@@ -94,44 +134,48 @@ public class DeviceOperations
             throw new IOException("Illegal sasToken null or empty");
         }
 
-        /* Codes_SRS_DEVICE_OPERATIONS_21_008: [The request shall create a new HttpRequest with the provided `url`, http `method`, and `payload`.] */
-        HttpRequest request = new HttpRequest(url, method, payload);
+        /* Codes_SRS_DEVICE_OPERATIONS_21_027: [If the requestId is null or empty, the request shall use a new random UUID as requestId.] */
+        String operationRequestId = ((requestId == null) || requestId.isEmpty()) ? UUID.randomUUID().toString() : requestId;
 
-        /* Codes_SRS_DEVICE_OPERATIONS_21_009: [The request shall add to the HTTP header the sum of timeout and default timeout in milliseconds.] */
-        request.setReadTimeoutMillis((int)(timeoutInMs + DEFAULT_HTTP_TIMEOUT_MS));
+        /* Codes_SRS_DEVICE_OPERATIONS_21_024: [The request shall send the request through the RequestThrottler of the IotHub, with the OperationClass JOBS for job urls, METHOD for method urls, and TWIN for the others.] */
+        /* Codes_SRS_DEVICE_OPERATIONS_21_025: [If the IotHub throttles an idempotent request, the request shall create and send it again, as defined by the RequestThrottler.] */
+        HttpResponse response = RequestThrottler.getForIotHub(iotHubConnectionString.getHostName()).send(getOperationClass(url), () ->
+        {
+            /* Codes_SRS_DEVICE_OPERATIONS_21_008: [The request shall create a new HttpRequest with the provided `url`, http `method`, and `payload`.] */
+            HttpRequest request = new HttpRequest(url, method, payload);
+
+            /* Codes_SRS_DEVICE_OPERATIONS_21_009: [The request shall add to the HTTP header the sum of timeout and default timeout in milliseconds.] */
+            request.setReadTimeoutMillis((int)(timeoutInMs + DEFAULT_HTTP_TIMEOUT_MS));
         
-        /* Codes_SRS_DEVICE_OPERATIONS_21_010: [The request shall add to the HTTP header an `authorization` key with the SASToken.] */
-        request.setHeaderField(AUTHORIZATION, sasTokenString);
+            /* Codes_SRS_DEVICE_OPERATIONS_21_010: [The request shall add to the HTTP header an `authorization` key with the SASToken.] */
+            request.setHeaderField(AUTHORIZATION, sasTokenString);
 
-        //Codes_SRS_DEVICE_OPERATIONS_21_011: [If the requestId is not null or empty, the request shall add to the HTTP header a Request-Id key with a new unique string value for every request.]
-        if((requestId != null) && !requestId.isEmpty())
-        {
-            /* Codes_SRS_DEVICE_OPERATIONS_21_011: [The request shall add to the HTTP header a `Request-Id` key with a new unique string value for every request.] */
-            request.setHeaderField(REQUEST_ID, requestId);
-        }
+            /* Codes_SRS_DEVICE_OPERATIONS_21_011: [The request shall add to the HTTP header a `Request-Id` key with the requestId, and send the same one in all attempts.] */
+            request.setHeaderField(REQUEST_ID, operationRequestId);
 
-        /* Codes_SRS_DEVICE_OPERATIONS_21_012: [The request shall add to the HTTP header a `User-Agent` key with the client Id and service version.] */
-        request.setHeaderField(USER_AGENT, TransportUtils.getJavaServiceClientIdentifier() + TransportUtils.getServiceVersion());
+            /* Codes_SRS_DEVICE_OPERATIONS_21_012: [The request shall add to the HTTP header a `User-Agent` key with the client Id and service version.] */
+            request.setHeaderField(USER_AGENT, TransportUtils.getJavaServiceClientIdentifier() + TransportUtils.getServiceVersion());
 
-        /* Codes_SRS_DEVICE_OPERATIONS_21_013: [The request shall add to the HTTP header a `Accept` key with `application/json`.] */
-        request.setHeaderField(ACCEPT, ACCEPT_VALUE);
+            /* Codes_SRS_DEVICE_OPERATIONS_21_013: [The request shall add to the HTTP header a `Accept` key with `application/json`.] */
+            request.setHeaderField(ACCEPT, ACCEPT_VALUE);
 
-        /* Codes_SRS_DEVICE_OPERATIONS_21_014: [The request shall add to the HTTP header a `Content-Type` key with `application/json; charset=utf-8`.] */
-        request.setHeaderField(CONTENT_TYPE, ACCEPT_VALUE + "; " + ACCEPT_CHARSET);
+            /* Codes_SRS_DEVICE_OPERATIONS_21_014: [The request shall add to the HTTP header a `Content-Type` key with `application/json; charset=utf-8`.] */
+            request.setHeaderField(CONTENT_TYPE, ACCEPT_VALUE + "; " + ACCEPT_CHARSET);
 
-        if (headers != null)
-        {
-            //SRS_DEVICE_OPERATIONS_25_019: [The request shall add to the HTTP header all the additional custom headers set for this request.]
-            for(Map.Entry<String, String> header : headers.entrySet())
+            if (customHeaders != null)
             {
-                request.setHeaderField(header.getKey(), header.getValue());
+                //SRS_DEVICE_OPERATIONS_25_019: [The request shall add to the HTTP header all the additional custom headers set for this request.]
+                /* Codes_SRS_DEVICE_OPERATIONS_21_023: [If the customHeaders is not null, the request shall add all of them to the HTTP header of this request only, without changing the headers set by setHeaders.] */
+                for(Map.Entry<String, String> header : customHeaders.entrySet())
+                {
+                    request.setHeaderField(header.getKey(), header.getValue());
+                }
             }
 
-            headers = null;
-        }
-
-        /* Codes_SRS_DEVICE_OPERATIONS_21_015: [The request shall send the created request and get the response.] */
-        HttpResponse response = request.send();
+            /* Codes_SRS_DEVICE_OPERATIONS_21_015: [The request shall send the created request and get the response.] */
+            /* Codes_SRS_DEVICE_OPERATIONS_21_026: [The RequestThrottler shall report the request to the ServiceInstrumentation, if any listener is registered.] */
+            return request;
+        });
 
         /* Codes_SRS_DEVICE_OPERATIONS_21_016: [If the resulted HttpResponseStatus represents fail, the request shall throw proper Exception by calling httpResponseVerification.] */
         IotHubExceptionManager.httpResponseVerification(response);
@@ -140,6 +184,24 @@ public class DeviceOperations
         return response;
     }
 
+    private static OperationClass getOperationClass(URL url)
+    {
+        String path = url.getPath();
+        if (path == null)
+        {
+            return OperationClass.TWIN;
+        }
+        if (path.startsWith(URL_PATH_JOBS))
+        {
+            return OperationClass.JOBS;
+        }
+        if (path.endsWith(URL_PATH_METHODS) || path.endsWith(URL_PATH_METHODS + "/"))
+        {
+            return OperationClass.METHOD;
+        }
+        return OperationClass.TWIN;
+    }
+
     /**
      * Sets headers to be used on next HTTP request
      * @param httpHeaders non null and non empty custom headers
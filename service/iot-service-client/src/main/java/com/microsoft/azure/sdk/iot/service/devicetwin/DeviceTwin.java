@@ -6,25 +6,52 @@
 package com.microsoft.azure.sdk.iot.service.devicetwin;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.TwinParser;
+import com.microsoft.azure.sdk.iot.service.AsyncExecutors;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotModifiedException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubPreconditionFailedException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 public class DeviceTwin
 {
     private IotHubConnectionString iotHubConnectionString = null;
-    private Integer requestId = 0;
     private final long USE_DEFAULT_TIMEOUT = 0;
     private final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MIN_ADAPTIVE_PAGE_SIZE = 10;
+    private static final long TARGET_PAGE_LATENCY_IN_MS = 2000;
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MATCH = "If-Match";
+    private static final int MAX_PRECONDITION_FAILED_RETRIES = 3;
+    private TwinCache twinCache = null;
+    private Executor executor = AsyncExecutors.getDefaultExecutor();
+    private Executor fanOutExecutor = AsyncExecutors.getDefaultFanOutExecutor();
+    private Executor updateExecutor = null;
 
     /**
      * Static constructor to create instance from connection string
@@ -53,6 +80,63 @@ public class DeviceTwin
         return deviceTwin;
     }
 
+    /**
+     * Static constructor to create instance from connection string, that reads the twins through the provided
+     * cache. The twins in the cache are revalidated with the IotHub using their etag, and the twins updated by
+     * this instance are discarded from the cache.
+     *
+     * @param connectionString The iot hub connection string
+     * @param twinCache The cache for the twins of this iot hub
+     * @return The instance of DeviceTwin
+     * @throws IOException This exception is thrown if the object creation failed
+     */
+    public static DeviceTwin createFromConnectionString(String connectionString, TwinCache twinCache) throws IOException
+    {
+        if (twinCache == null)
+        {
+            /*
+            **Codes_SRS_DEVICETWIN_21_069: [** The constructor shall throw IllegalArgumentException if the input twinCache is null **]**
+             */
+            throw new IllegalArgumentException("twinCache cannot be null");
+        }
+
+        /*
+        **Codes_SRS_DEVICETWIN_21_070: [** The constructor shall create a new DeviceTwin instance from the connection string, that reads the twins through the provided twinCache **]**
+         */
+        DeviceTwin deviceTwin = createFromConnectionString(connectionString);
+        deviceTwin.twinCache = twinCache;
+        return deviceTwin;
+    }
+
+    /**
+     * Static constructor to create instance from connection string, that runs its async operations, the
+     * multi-device updates and the query page prefetch in the provided executor.
+     *
+     * @param connectionString The iot hub connection string
+     * @param executor The executor for the async operations
+     * @return The instance of DeviceTwin
+     * @throws IOException This exception is thrown if the object creation failed
+     */
+    public static DeviceTwin createFromConnectionString(String connectionString, Executor executor) throws IOException
+    {
+        if (executor == null)
+        {
+            /*
+            **Codes_SRS_DEVICETWIN_21_078: [** The constructor shall throw IllegalArgumentException if the input executor is null **]**
+             */
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        /*
+        **Codes_SRS_DEVICETWIN_21_079: [** The constructor shall create a new DeviceTwin instance from the connection string, that runs its async operations in the provided executor **]**
+         */
+        DeviceTwin deviceTwin = createFromConnectionString(connectionString);
+        deviceTwin.executor = executor;
+        deviceTwin.fanOutExecutor = executor;
+        deviceTwin.updateExecutor = executor;
+        return deviceTwin;
+    }
+
     /**
      * This method retrieves device twin for the specified device.
      *
@@ -89,8 +173,59 @@ public class DeviceTwin
          **Codes_SRS_DEVICETWIN_25_009: [** The function shall send the created request and get the response **]**
          **Codes_SRS_DEVICETWIN_25_010: [** The function shall verify the response status and throw proper Exception **]**
          */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.GET, new byte[0], String.valueOf(requestId++), USE_DEFAULT_TIMEOUT);
-        String twin = new String(response.getBody(), StandardCharsets.UTF_8);
+        String twin = null;
+        byte[] receivedTwin = null;
+        long cacheGeneration = 0;
+        if (this.twinCache != null)
+        {
+            /*
+            **Codes_SRS_DEVICETWIN_21_071: [** If the twin is cached and in its time to live, the function shall use the cached twin without sending any request **]**
+             */
+            twin = this.twinCache.getFreshTwin(device.getDeviceId());
+            if (twin == null)
+            {
+                cacheGeneration = this.twinCache.getGeneration();
+                String cachedETag = this.twinCache.getETag(device.getDeviceId());
+                if (cachedETag != null)
+                {
+                    try
+                    {
+                        /*
+                        **Codes_SRS_DEVICETWIN_21_072: [** If the twin is cached but its time to live expired, the function shall send the request with the header If-None-Match with the cached etag **]**
+                         */
+                        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.GET, new byte[0], UUID.randomUUID().toString(), USE_DEFAULT_TIMEOUT,
+                                Collections.singletonMap(IF_NONE_MATCH, "\"" + cachedETag + "\""));
+                        receivedTwin = response.getBody();
+                    }
+                    catch (IotHubNotModifiedException e)
+                    {
+                        /*
+                        **Codes_SRS_DEVICETWIN_21_073: [** If the IotHub answers that the twin was not modified, the function shall use the cached twin **]**
+                         */
+                        twin = this.twinCache.revalidate(device.getDeviceId(), cachedETag, cacheGeneration);
+                    }
+                    catch (IotHubNotFoundException e)
+                    {
+                        /*
+                        **Codes_SRS_DEVICETWIN_21_074: [** If the IotHub answers that the device was not found, the function shall discard the cached twin and throw the exception **]**
+                         */
+                        this.twinCache.invalidate(device.getDeviceId());
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        if ((twin == null) && (receivedTwin == null))
+        {
+            HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.GET, new byte[0], UUID.randomUUID().toString(), USE_DEFAULT_TIMEOUT);
+            receivedTwin = response.getBody();
+        }
+
+        if (receivedTwin != null)
+        {
+            twin = new String(receivedTwin, StandardCharsets.UTF_8);
+        }
 
         /*
         **Codes_SRS_DEVICETWIN_25_011: [** The function shall deserialize the payload by calling updateTwin Api on the twin object **]**
@@ -104,6 +239,14 @@ public class DeviceTwin
         device.setTags(device.getTwinParser().getTagsMap());
         device.setDesiredProperties(device.getTwinParser().getDesiredPropertyMap());
         device.setReportedProperties(device.getTwinParser().getReportedPropertyMap());
+
+        if ((this.twinCache != null) && (receivedTwin != null))
+        {
+            /*
+            **Codes_SRS_DEVICETWIN_21_075: [** If the twin was received from the IotHub, the function shall store it with its etag in the twinCache **]**
+             */
+            this.twinCache.put(device.getDeviceId(), device.getETag(), twin, cacheGeneration);
+        }
     }
 
     /**
@@ -113,7 +256,7 @@ public class DeviceTwin
      * @throws IOException This exception is thrown if the IO operation failed
      * @throws IotHubException This exception is thrown if the response verification failed
      */
-    public synchronized void updateTwin(DeviceTwinDevice device) throws IotHubException, IOException
+    public void updateTwin(DeviceTwinDevice device) throws IotHubException, IOException
     {
         if (device == null || device.getDeviceId() == null || device.getDeviceId().length() == 0)
         {
@@ -168,7 +311,17 @@ public class DeviceTwin
 
         **Codes_SRS_DEVICETWIN_25_020: [** The function shall verify the response status and throw proper Exception **]**
          */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.PATCH, twinJson.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId++),0);
+        try
+        {
+            HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.PATCH, twinJson.getBytes(StandardCharsets.UTF_8), UUID.randomUUID().toString(),0);
+        }
+        finally
+        {
+            /*
+            **Codes_SRS_DEVICETWIN_21_076: [** The function shall discard the twin of the device from the twinCache, if any, after the request **]**
+             */
+            this.invalidateCachedTwin(device.getDeviceId());
+        }
     }
 
     /**
@@ -208,6 +361,11 @@ public class DeviceTwin
             return;
         }
 
+        /*
+        **Codes_SRS_DEVICETWIN_21_077: [** The function shall discard the twin of the device from the twinCache, if any, before the request **]**
+         */
+        this.invalidateCachedTwin(device.getDeviceId());
+
         // Currently this is not supported by service - Please use Update twin to update desired properties
         throw new NotImplementedException();
         /*
@@ -229,7 +387,7 @@ public class DeviceTwin
         **Codes_SRS_DEVICETWIN_25_028: [** The function shall verify the response status and throw proper Exception **]**
          */
        /*
-        HttpResponse response = this.processHttpTwinRequest(url, HttpMethod.PATCH, desiredJson.getBytes(), String.valueOf(requestId++));
+        HttpResponse response = this.processHttpTwinRequest(url, HttpMethod.PATCH, desiredJson.getBytes(), UUID.randomUUID().toString());
         */
     }
 
@@ -295,7 +453,7 @@ public class DeviceTwin
         **Codes_SRS_DEVICETWIN_25_036: [** The function shall verify the response status and throw proper Exception **]**
          */
         // Currently not implemented on service
-        // HttpResponse response = this.processHttpTwinRequest(url, HttpMethod.PUT, tags.getBytes(), String.valueOf(requestId++));
+        // HttpResponse response = this.processHttpTwinRequest(url, HttpMethod.PUT, tags.getBytes(), String.valueOf(requestId.getAndIncrement()));
     }
 
     /**
@@ -360,7 +518,332 @@ public class DeviceTwin
          */
         throw new NotImplementedException();
         // Currently not implemented on service
-        // HttpResponse response = this.processHttpTwinRequest(url, HttpMethod.PUT, tags.getBytes(), String.valueOf(requestId++));
+        // HttpResponse response = this.processHttpTwinRequest(url, HttpMethod.PUT, tags.getBytes(), String.valueOf(requestId.getAndIncrement()));
+    }
+
+    /**
+     * This method updates the twin of multiple devices, with up to maxParallelism concurrent updates. Each device
+     * is updated with its own tags and desired properties. If the device has an etag, the update only succeeds if
+     * the twin did not change since that etag; if it changed, the etag is refreshed and the update is retried up
+     * to 3 times.
+     *
+     * <p>
+     *     Unlike {@link #updateTwin(DeviceTwinDevice)}, that sends only the changes since the last twin read into
+     *     the device, each device sends all of its tags and desired properties.
+     * </p>
+     * <p>
+     *     If this instance was created without an executor, each call runs its updates in its own executor with
+     *     one thread per concurrent update, up to maxParallelism, and stops these threads when all devices are done.
+     *     If it was created with an executor, the updates run in that executor, so the number of concurrent
+     *     updates is also limited by its threads.
+     * </p>
+     *
+     * @param devices The devices to update. Each one shall have a unique device id, and tags or desired properties.
+     * @param maxParallelism The maximum number of concurrent updates.
+     * @param maxExecutionTimeInSeconds The maximum time to start new updates, in seconds. Zero means no limit.
+     * @return the updated devices and the failures by deviceId.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     * @throws IOException if the thread was interrupted while waiting for the updates.
+     */
+    public DeviceTwinUpdateResults updateTwins(Collection<DeviceTwinDevice> devices, int maxParallelism, long maxExecutionTimeInSeconds)
+            throws IllegalArgumentException, IOException
+    {
+        /*
+        **Codes_SRS_DEVICETWIN_21_080: [** The updateTwins shall run the updateTwinsAsync and wait for its results **]**
+         */
+        return waitForUpdates(updateTwinsAsync(devices, maxParallelism, maxExecutionTimeInSeconds));
+    }
+
+    /**
+     * This method updates the twin of multiple devices, with up to maxParallelism concurrent updates, without
+     * blocking the caller.
+     *
+     * @see #updateTwins(Collection, int, long)
+     *
+     * @param devices The devices to update. Each one shall have a unique device id, and tags or desired properties.
+     * @param maxParallelism The maximum number of concurrent updates.
+     * @param maxExecutionTimeInSeconds The maximum time to start new updates, in seconds. Zero means no limit.
+     * @return a future that completes with the updated devices and the failures by deviceId, when all devices are done.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     */
+    public CompletableFuture<DeviceTwinUpdateResults> updateTwinsAsync(Collection<DeviceTwinDevice> devices, int maxParallelism, long maxExecutionTimeInSeconds)
+            throws IllegalArgumentException
+    {
+        if ((devices == null) || devices.isEmpty())
+        {
+            /*
+            **Codes_SRS_DEVICETWIN_21_081: [** The updateTwinsAsync shall throw IllegalArgumentException if the devices is null or empty, or contains a null device, a device with null or empty deviceId, or a repeated deviceId **]**
+             */
+            throw new IllegalArgumentException("devices cannot be null or empty");
+        }
+        validateFanOutLimits(maxParallelism, maxExecutionTimeInSeconds);
+
+        List<TwinPatch> patches = new ArrayList<>(devices.size());
+        Set<String> deviceIds = new HashSet<>();
+        for (DeviceTwinDevice device : devices)
+        {
+            if ((device == null) || (device.getDeviceId() == null) || device.getDeviceId().isEmpty())
+            {
+                throw new IllegalArgumentException("devices cannot contain a null device or a device without id");
+            }
+            if (!deviceIds.add(device.getDeviceId()))
+            {
+                throw new IllegalArgumentException("devices cannot contain the same deviceId twice");
+            }
+
+            /*
+            **Codes_SRS_DEVICETWIN_21_082: [** The updateTwinsAsync shall serialize the tags and desired properties of each device before any update, and throw IllegalArgumentException if one of them is not valid, or both are empty or null **]**
+             */
+            String twinJson = serializeTwinPatch(device.getDesiredMap(), device.getTagsMap());
+            patches.add(new TwinPatch(device.getDeviceId(), twinJson, device.getETag()));
+        }
+
+        return startUpdates(patches, maxParallelism, maxExecutionTimeInSeconds);
+    }
+
+    /**
+     * This method applies the same tags and desired properties to the twin of multiple devices, with up to
+     * maxParallelism concurrent updates. The updates do not check the twin etag.
+     *
+     * @param deviceIds The ids of the devices to update. Repeated ids are updated only once.
+     * @param tags The tags to apply. It can be {@code null} if desiredProperties is provided.
+     * @param desiredProperties The desired properties to apply. It can be {@code null} if tags is provided.
+     * @param maxParallelism The maximum number of concurrent updates.
+     * @param maxExecutionTimeInSeconds The maximum time to start new updates, in seconds. Zero means no limit.
+     * @return the updated devices and the failures by deviceId.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     * @throws IOException if the thread was interrupted while waiting for the updates.
+     */
+    public DeviceTwinUpdateResults updateTwins(Collection<String> deviceIds, Set<Pair> tags, Set<Pair> desiredProperties,
+                                               int maxParallelism, long maxExecutionTimeInSeconds)
+            throws IllegalArgumentException, IOException
+    {
+        /*
+        **Codes_SRS_DEVICETWIN_21_080: [** The updateTwins shall run the updateTwinsAsync and wait for its results **]**
+         */
+        return waitForUpdates(updateTwinsAsync(deviceIds, tags, desiredProperties, maxParallelism, maxExecutionTimeInSeconds));
+    }
+
+    /**
+     * This method applies the same tags and desired properties to the twin of multiple devices, with up to
+     * maxParallelism concurrent updates, without blocking the caller.
+     *
+     * @see #updateTwins(Collection, Set, Set, int, long)
+     *
+     * @param deviceIds The ids of the devices to update. Repeated ids are updated only once.
+     * @param tags The tags to apply. It can be {@code null} if desiredProperties is provided.
+     * @param desiredProperties The desired properties to apply. It can be {@code null} if tags is provided.
+     * @param maxParallelism The maximum number of concurrent updates.
+     * @param maxExecutionTimeInSeconds The maximum time to start new updates, in seconds. Zero means no limit.
+     * @return a future that completes with the updated devices and the failures by deviceId, when all devices are done.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     */
+    public CompletableFuture<DeviceTwinUpdateResults> updateTwinsAsync(Collection<String> deviceIds, Set<Pair> tags, Set<Pair> desiredProperties,
+                                                                       int maxParallelism, long maxExecutionTimeInSeconds)
+            throws IllegalArgumentException
+    {
+        if ((deviceIds == null) || deviceIds.isEmpty())
+        {
+            /*
+            **Codes_SRS_DEVICETWIN_21_083: [** The updateTwinsAsync shall throw IllegalArgumentException if the deviceIds is null, empty, or contains a null or empty deviceId **]**
+             */
+            throw new IllegalArgumentException("deviceIds cannot be null or empty");
+        }
+        for (String deviceId : deviceIds)
+        {
+            if ((deviceId == null) || deviceId.isEmpty())
+            {
+                throw new IllegalArgumentException("deviceIds cannot contain a null or empty deviceId");
+            }
+        }
+        validateFanOutLimits(maxParallelism, maxExecutionTimeInSeconds);
+
+        /*
+        **Codes_SRS_DEVICETWIN_21_084: [** The updateTwinsAsync shall serialize the tags and desired properties once before any update, and throw IllegalArgumentException if one of them is not valid, or both are empty or null **]**
+         */
+        DeviceTwinDevice sharedPatch = new DeviceTwinDevice();
+        if (tags != null)
+        {
+            sharedPatch.setTags(tags);
+        }
+        if (desiredProperties != null)
+        {
+            sharedPatch.setDesiredProperties(desiredProperties);
+        }
+        String twinJson = serializeTwinPatch(sharedPatch.getDesiredMap(), sharedPatch.getTagsMap());
+
+        List<TwinPatch> patches = new ArrayList<>(deviceIds.size());
+        for (String deviceId : new LinkedHashSet<>(deviceIds))
+        {
+            patches.add(new TwinPatch(deviceId, twinJson, null));
+        }
+
+        return startUpdates(patches, maxParallelism, maxExecutionTimeInSeconds);
+    }
+
+    private static void validateFanOutLimits(int maxParallelism, long maxExecutionTimeInSeconds) throws IllegalArgumentException
+    {
+        /*
+        **Codes_SRS_DEVICETWIN_21_085: [** The updateTwinsAsync shall throw IllegalArgumentException if the maxParallelism is less than 1, or the maxExecutionTimeInSeconds is negative **]**
+         */
+        if (maxParallelism < 1)
+        {
+            throw new IllegalArgumentException("maxParallelism cannot be less than 1");
+        }
+        if (maxExecutionTimeInSeconds < 0)
+        {
+            throw new IllegalArgumentException("negative maxExecutionTimeInSeconds");
+        }
+    }
+
+    private static String serializeTwinPatch(Map<String, Object> desiredMap, Map<String, Object> tagsMap) throws IllegalArgumentException
+    {
+        if ((desiredMap == null || desiredMap.isEmpty()) && (tagsMap == null || tagsMap.isEmpty()))
+        {
+            throw new IllegalArgumentException("Set either desired properties or tags for the device to be updated with");
+        }
+
+        // A new TwinParser has no previous state, so the patch contains all tags and desired properties.
+        TwinParser twinParser = new TwinParser();
+        twinParser.enableTags();
+        try
+        {
+            return twinParser.updateTwin(desiredMap, null, tagsMap);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private CompletableFuture<DeviceTwinUpdateResults> startUpdates(List<TwinPatch> patches, int maxParallelism, long maxExecutionTimeInSeconds)
+    {
+        long deadlineInNanos = (maxExecutionTimeInSeconds == 0) ? 0 : System.nanoTime() + TimeUnit.SECONDS.toNanos(maxExecutionTimeInSeconds);
+        Map<String, TwinPatch> patchesByDeviceId = new LinkedHashMap<>();
+        for (TwinPatch patch : patches)
+        {
+            patchesByDeviceId.put(patch.deviceId, patch);
+        }
+
+        /*
+        **Codes_SRS_DEVICETWIN_21_091: [** After the maxExecutionTimeInSeconds, the updateTwinsAsync shall not update the pending devices, and shall report them as failed with TimeoutException **]**
+        **Codes_SRS_DEVICETWIN_21_092: [** The updateTwinsAsync shall store the id of each device updated, and the exception of each update that failed, by deviceId **]**
+        **Codes_SRS_DEVICETWIN_21_093: [** If the executor rejects all workers, the updateTwinsAsync shall report the pending devices as failed with the RejectedExecutionException **]**
+        **Codes_SRS_DEVICETWIN_21_101: [** If a worker ended with an Error, the updateTwinsAsync shall complete the returned future exceptionally with it **]**
+         */
+        final DeviceFanOut<TwinPatch, Boolean> fanOut = new DeviceFanOut<>(patchesByDeviceId,
+                patch ->
+                {
+                    patchTwinWithRetry(patch);
+                    return Boolean.TRUE;
+                },
+                deadlineInNanos, "Twin was not updated before the deadline");
+
+        /*
+        **Codes_SRS_DEVICETWIN_21_086: [** The updateTwinsAsync shall run up to maxParallelism workers, each one updating the next pending device until there is no pending device **]**
+        **Codes_SRS_DEVICETWIN_21_099: [** If the instance was created without an executor, the updateTwinsAsync shall run the workers in a new executor with one thread per worker, and shut it down when all devices are done **]**
+        **Codes_SRS_DEVICETWIN_21_100: [** If the instance was created with an executor, the updateTwinsAsync shall run the workers in that executor **]**
+        **Codes_SRS_DEVICETWIN_21_094: [** When all devices are done, the updateTwinsAsync shall complete the returned future with the DeviceTwinUpdateResults **]**
+         */
+        return fanOut.start(this.updateExecutor, Math.min(maxParallelism, patchesByDeviceId.size()))
+                .thenApply(done -> new DeviceTwinUpdateResults(fanOut.getResults().keySet(), fanOut.getFailures()));
+    }
+
+    private static DeviceTwinUpdateResults waitForUpdates(CompletableFuture<DeviceTwinUpdateResults> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            /*
+            **Codes_SRS_DEVICETWIN_21_087: [** If the thread is interrupted while waiting, the updateTwins shall restore the interrupt and throw InterruptedIOException **]**
+             */
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the twin updates");
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Send the patch to the device twin. If the patch has an etag and the twin changed since it, read the new
+     * etag and send the patch again.
+     */
+    private void patchTwinWithRetry(TwinPatch patch) throws IotHubException, IOException
+    {
+        String eTag = patch.eTag;
+        for (int retry = 0; ; retry++)
+        {
+            try
+            {
+                patchTwin(patch.deviceId, patch.twinJson, eTag);
+                return;
+            }
+            catch (IotHubPreconditionFailedException e)
+            {
+                if (retry >= MAX_PRECONDITION_FAILED_RETRIES)
+                {
+                    /*
+                    **Codes_SRS_DEVICETWIN_21_090: [** If the twin still changed after 3 retries, the updateTwinsAsync shall report the device as failed with the IotHubPreconditionFailedException **]**
+                     */
+                    throw e;
+                }
+
+                /*
+                **Codes_SRS_DEVICETWIN_21_089: [** If the IotHub answers that the twin changed since the etag, the updateTwinsAsync shall read the twin again and send the patch with its new etag **]**
+                 */
+                DeviceTwinDevice currentTwin = new DeviceTwinDevice(patch.deviceId);
+                this.getTwin(currentTwin);
+                eTag = currentTwin.getETag();
+            }
+        }
+    }
+
+    private void patchTwin(String deviceId, String twinJson, String eTag) throws IotHubException, IOException
+    {
+        URL url = this.iotHubConnectionString.getUrlTwin(deviceId);
+
+        /*
+        **Codes_SRS_DEVICETWIN_21_088: [** The updateTwinsAsync shall send each patch with the header If-Match with the etag of the device, if it has one, using headers that belong to this request only **]**
+         */
+        Map<String, String> customHeaders = (eTag == null) ? null : Collections.singletonMap(IF_MATCH, "\"" + eTag + "\"");
+        try
+        {
+            DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.PATCH, twinJson.getBytes(StandardCharsets.UTF_8), UUID.randomUUID().toString(), USE_DEFAULT_TIMEOUT, customHeaders);
+        }
+        finally
+        {
+            this.invalidateCachedTwin(deviceId);
+        }
+    }
+
+    /**
+     * The serialized patch for one device, with the etag that the twin shall match.
+     */
+    private static final class TwinPatch
+    {
+        private final String deviceId;
+        private final String twinJson;
+        private final String eTag;
+
+        private TwinPatch(String deviceId, String twinJson, String eTag)
+        {
+            this.deviceId = deviceId;
+            this.twinJson = twinJson;
+            this.eTag = eTag;
+        }
+    }
+
+    private void invalidateCachedTwin(String deviceId)
+    {
+        if (this.twinCache != null)
+        {
+            this.twinCache.invalidate(deviceId);
+        }
     }
 
     /**
@@ -372,6 +855,11 @@ public class DeviceTwin
      * @throws IOException If input parameters are invalid
      */
     public synchronized Query queryTwin(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    {
+        return this.sendTwinQuery(sqlQuery, pageSize, false);
+    }
+
+    private Query sendTwinQuery(String sqlQuery, Integer pageSize, boolean isAdaptive) throws IotHubException, IOException
     {
         if (sqlQuery == null || sqlQuery.length() == 0)
         {
@@ -387,6 +875,11 @@ public class DeviceTwin
 
         //Codes_SRS_DEVICETWIN_25_050: [ The method shall create a new Query Object of Type TWIN. ]
         Query deviceTwinQuery = new Query(sqlQuery, pageSize, QueryType.TWIN);
+        if (isAdaptive)
+        {
+            deviceTwinQuery.enablePrefetch(this.fanOutExecutor);
+            deviceTwinQuery.enableAdaptivePageSize(Math.min(MIN_ADAPTIVE_PAGE_SIZE, pageSize), pageSize, TARGET_PAGE_LATENCY_IN_MS);
+        }
 
         //Codes_SRS_DEVICETWIN_25_049: [ The method shall build the URL for this operation by calling getUrlTwinQuery ]
         //Codes_SRS_DEVICETWIN_25_051: [ The method shall send a Query Request to IotHub as HTTP Method Post on the query Object by calling sendQueryRequest.]
@@ -407,6 +900,45 @@ public class DeviceTwin
         return this.queryTwin(sqlQuery, DEFAULT_PAGE_SIZE);
     }
 
+    /**
+     * Sql style query for twin, that returns the device twins of the response.
+     *
+     * <p>
+     *     The next page is prefetched while the current one is iterated, and the page size adapts to the IotHub
+     *     response time: pages that take longer than 2 seconds, or that the IotHub throttles, make the next
+     *     pages smaller, down to 10 twins, and fast pages make them bigger again, up to the provided pageSize.
+     * </p>
+     *
+     * @param sqlQuery Sql query string to query IotHub for Twin
+     * @param pageSize Maximum number of twins in each page of the query response
+     * @return the iterator over the device twins of the query response
+     * @throws IotHubException If Query request was not successful at the IotHub
+     * @throws IOException If input parameters are invalid
+     */
+    public DeviceTwinIterator queryTwinDevices(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    {
+        //Codes_SRS_DEVICETWIN_21_095: [The queryTwinDevices shall send the twin query as queryTwin, with the page prefetch enabled in the fan-out executor.]
+        //Codes_SRS_DEVICETWIN_21_096: [The queryTwinDevices shall enable the adaptive page size, between 10, or the pageSize if smaller, and the pageSize, with a target page latency of 2 seconds.]
+        //Codes_SRS_DEVICETWIN_21_097: [The queryTwinDevices shall return a DeviceTwinIterator over the twin query.]
+        return new DeviceTwinIterator(this.sendTwinQuery(sqlQuery, pageSize, true));
+    }
+
+    /**
+     * Sql style query for twin, that returns the device twins of the response, with the default page size of 100.
+     *
+     * @see #queryTwinDevices(String, Integer)
+     *
+     * @param sqlQuery Sql query string to query IotHub for Twin
+     * @return the iterator over the device twins of the query response
+     * @throws IotHubException If Query request was not successful at the IotHub
+     * @throws IOException If input parameters are invalid
+     */
+    public DeviceTwinIterator queryTwinDevices(String sqlQuery) throws IotHubException, IOException
+    {
+        //Codes_SRS_DEVICETWIN_21_098: [If the pageSize is not specified, default pageSize of 100 shall be used.]
+        return this.queryTwinDevices(sqlQuery, DEFAULT_PAGE_SIZE);
+    }
+
     /**
      * Returns the availability of next twin element upon query. If non was found,
      * Query is sent over again and response is updated accordingly until no response
@@ -449,19 +981,7 @@ public class DeviceTwin
         if (nextObject instanceof String)
         {
             //Codes_SRS_DEVICETWIN_25_059: [ The method shall parse the next element from the query response as Twin Document using TwinParser and provide the response on DeviceTwinDevice.]
-            String twinJson = (String) nextObject;
-            TwinParser twinParser = new TwinParser();
-            twinParser.enableTags();
-            twinParser.updateTwin(twinJson);
-
-            DeviceTwinDevice deviceTwinDevice = new DeviceTwinDevice(twinParser.getDeviceId());
-            deviceTwinDevice.setVersion(twinParser.getVersion());
-            deviceTwinDevice.setETag(twinParser.getETag());
-            deviceTwinDevice.setTags(twinParser.getTagsMap());
-            deviceTwinDevice.setDesiredProperties(twinParser.getDesiredPropertyMap());
-            deviceTwinDevice.setReportedProperties(twinParser.getReportedPropertyMap());
-
-            return deviceTwinDevice;
+            return parseDeviceTwin((String) nextObject);
         }
         else
         {
@@ -470,6 +990,28 @@ public class DeviceTwin
         }
     }
 
+    /**
+     * Parses one twin of a query response.
+     * @param twinJson the twin json
+     * @return the DeviceTwinDevice with the content of the twin
+     * @throws IOException if the twin tags cannot be read
+     */
+    static DeviceTwinDevice parseDeviceTwin(String twinJson) throws IOException
+    {
+        TwinParser twinParser = new TwinParser();
+        twinParser.enableTags();
+        twinParser.updateTwin(twinJson);
+
+        DeviceTwinDevice deviceTwinDevice = new DeviceTwinDevice(twinParser.getDeviceId());
+        deviceTwinDevice.setVersion(twinParser.getVersion());
+        deviceTwinDevice.setETag(twinParser.getETag());
+        deviceTwinDevice.setTags(twinParser.getTagsMap());
+        deviceTwinDevice.setDesiredProperties(twinParser.getDesiredPropertyMap());
+        deviceTwinDevice.setReportedProperties(twinParser.getReportedPropertyMap());
+
+        return deviceTwinDevice;
+    }
+
     /**
      * Creates a new Job to update twin tags and desired properties on one or multiple devices
      *
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Store the results of a twin update on multiple devices.
+ *
+ * <p>
+ *     Each device appears either in the updated devices, or in the failures, with the exception that prevented
+ *     the update. A device that was not updated before the deadline fails with
+ *     {@link java.util.concurrent.TimeoutException}.
+ * </p>
+ */
+public final class DeviceTwinUpdateResults
+{
+    private final Set<String> updatedDeviceIds;
+    private final Map<String, Exception> failures;
+
+    /**
+     * Constructor.
+     *
+     * @param updatedDeviceIds the ids of the updated devices.
+     * @param failures the update failures by deviceId.
+     * @throws IllegalArgumentException if one of the parameters is null.
+     */
+    DeviceTwinUpdateResults(Set<String> updatedDeviceIds, Map<String, Exception> failures) throws IllegalArgumentException
+    {
+        /* Codes_SRS_DEVICETWINUPDATERESULTS_21_001: [The constructor shall throw IllegalArgumentException if the updatedDeviceIds or the failures is null.] */
+        if ((updatedDeviceIds == null) || (failures == null))
+        {
+            throw new IllegalArgumentException("updatedDeviceIds and failures cannot be null");
+        }
+
+        /* Codes_SRS_DEVICETWINUPDATERESULTS_21_002: [The constructor shall store a copy of the updatedDeviceIds and failures.] */
+        this.updatedDeviceIds = Collections.unmodifiableSet(new HashSet<>(updatedDeviceIds));
+        this.failures = Collections.unmodifiableMap(new HashMap<>(failures));
+    }
+
+    /**
+     * Getter for the updated devices.
+     *
+     * @return an unmodifiable set with the ids of the devices whose twin was updated.
+     */
+    public Set<String> getUpdatedDeviceIds()
+    {
+        /* Codes_SRS_DEVICETWINUPDATERESULTS_21_003: [The getUpdatedDeviceIds shall return an unmodifiable set with the ids of the updated devices.] */
+        return this.updatedDeviceIds;
+    }
+
+    /**
+     * Getter for the update failures.
+     *
+     * @return an unmodifiable map with the exception of each device that could not be updated, by deviceId.
+     */
+    public Map<String, Exception> getFailures()
+    {
+        /* Codes_SRS_DEVICETWINUPDATERESULTS_21_004: [The getFailures shall return an unmodifiable map with the failures by deviceId.] */
+        return this.failures;
+    }
+
+    /**
+     * Check if the twin was updated on all devices.
+     *
+     * @return {@code true} if there is no failure, {@code false} otherwise.
+     */
+    public boolean isSuccessful()
+    {
+        /* Codes_SRS_DEVICETWINUPDATERESULTS_21_005: [The isSuccessful shall return true if there is no failure, and false otherwise.] */
+        return this.failures.isEmpty();
+    }
+}
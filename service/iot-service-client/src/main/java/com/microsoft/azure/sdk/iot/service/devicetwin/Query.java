@@ -9,17 +9,26 @@ import com.microsoft.azure.sdk.iot.deps.serializer.ParserUtility;
 import com.microsoft.azure.sdk.iot.deps.serializer.QueryRequestParser;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubServerBusyException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /*
-    Sql style query IotHub for twin, jobs, device jobs or raw data
+    Sql style query IotHub for twin, jobs, device jobs or raw data.
+    A query is a cursor for a single reader. Different queries can be read concurrently.
  */
 public class Query
 {
@@ -44,6 +53,35 @@ public class Query
     private HttpMethod httpMethod;
     private long timeout;
 
+    private Executor prefetchExecutor;
+    private CompletableFuture<QueryPage> prefetchedPage;
+    private String prefetchedContinuationToken;
+    private int prefetchedPageSize;
+
+    private boolean isAdaptivePageSize;
+    private int minPageSize;
+    private int maxPageSize;
+    private long targetPageLatencyInNanos;
+
+    /**
+     * One page of the query response, with the headers that came with it.
+     */
+    private static final class QueryPage
+    {
+        private final QueryResponse queryResponse;
+        private final String continuationToken;
+        private final QueryType queryType;
+        private final long latencyInNanos;
+
+        private QueryPage(QueryResponse queryResponse, String continuationToken, QueryType queryType, long latencyInNanos)
+        {
+            this.queryResponse = queryResponse;
+            this.continuationToken = continuationToken;
+            this.queryType = queryType;
+            this.latencyInNanos = latencyInNanos;
+        }
+    }
+
     /**
      * Constructor for Query
      * @param query Sql style query to be sent to IotHub
@@ -120,8 +158,11 @@ public class Query
     {
         //Codes_SRS_QUERY_25_005: [The method shall update the request continuation token and request pagesize which shall be used for processing subsequent query request.]
         this.requestContinuationToken = continuationToken;
-        //Codes_SRS_QUERY_25_018: [The method shall send the query request again.]
-        sendQueryRequest(this.iotHubConnectionString, this.url, this.httpMethod, this.timeout);
+        if (!this.usePrefetchedPage())
+        {
+            //Codes_SRS_QUERY_25_018: [The method shall send the query request again.]
+            sendQueryRequest(this.iotHubConnectionString, this.url, this.httpMethod, this.timeout);
+        }
     }
 
     /**
@@ -141,8 +182,11 @@ public class Query
 
         this.pageSize = pageSize;
         this.requestContinuationToken = continuationToken;
-        //Codes_SRS_QUERY_25_018: [The method shall send the query request again.]
-        sendQueryRequest(this.iotHubConnectionString, this.url, this.httpMethod, this.timeout);
+        if (!this.usePrefetchedPage())
+        {
+            //Codes_SRS_QUERY_25_018: [The method shall send the query request again.]
+            sendQueryRequest(this.iotHubConnectionString, this.url, this.httpMethod, this.timeout);
+        }
     }
 
     /**
@@ -172,18 +216,126 @@ public class Query
         this.httpMethod = method;
         this.timeout = timeoutInMs;
 
+        //Codes_SRS_QUERY_21_026: [The method shall discard any page prefetched before this request.]
+        this.discardPrefetchedPage();
+
+        QueryPage page;
+        try
+        {
+            page = this.requestPage(iotHubConnectionString, url, method, timeoutInMs, this.requestContinuationToken, this.pageSize);
+        }
+        catch (IotHubTooManyRequestsException | IotHubServerBusyException e)
+        {
+            this.throttlePageSize();
+            throw e;
+        }
+        this.applyPage(page);
+        return this.queryResponse;
+    }
+
+    /**
+     * Enable the prefetch of the next page. When a page with a continuation token arrives, the request for
+     * the next page is sent in the provided executor, so it overlaps with the processing of the current page.
+     * @param executor the executor for the prefetch requests
+     * @throws IllegalArgumentException if the executor is {@code null}
+     */
+    public void enablePrefetch(Executor executor) throws IllegalArgumentException
+    {
+        if (executor == null)
+        {
+            //Codes_SRS_QUERY_21_023: [If the executor is null, the method shall throw IllegalArgumentException.]
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        //Codes_SRS_QUERY_21_024: [The method shall save the executor, and use it to prefetch the next page after each page that has a continuation token.]
+        this.prefetchExecutor = executor;
+    }
+
+    /**
+     * Enable the adaptive page size. After each page, the page size is halved if the page took longer than the
+     * target latency, or doubled if it took less than half of it and there are more pages. If the IotHub throttles
+     * the query, the page size is halved before the exception is thrown, so the next try requests a smaller page.
+     * The page size always stays between the provided minimum and maximum.
+     * @param minPageSize the minimum page size
+     * @param maxPageSize the maximum page size
+     * @param targetPageLatencyInMs the target time, in milliseconds, to receive one page
+     * @throws IllegalArgumentException if the minPageSize or the targetPageLatencyInMs is less than 1, or the
+     *                                  maxPageSize is less than the minPageSize
+     */
+    public void enableAdaptivePageSize(int minPageSize, int maxPageSize, long targetPageLatencyInMs) throws IllegalArgumentException
+    {
+        if ((minPageSize < 1) || (maxPageSize < minPageSize))
+        {
+            //Codes_SRS_QUERY_21_028: [If the minPageSize is less than 1, the maxPageSize is less than the minPageSize, or the targetPageLatencyInMs is less than 1, the method shall throw IllegalArgumentException.]
+            throw new IllegalArgumentException("Page sizes must be positive, and the maximum cannot be less than the minimum");
+        }
+        if (targetPageLatencyInMs < 1)
+        {
+            throw new IllegalArgumentException("Target page latency must be positive");
+        }
+
+        //Codes_SRS_QUERY_21_029: [The method shall limit the page size of the next requests to the range between minPageSize and maxPageSize.]
+        this.isAdaptivePageSize = true;
+        this.minPageSize = minPageSize;
+        this.maxPageSize = maxPageSize;
+        this.targetPageLatencyInNanos = TimeUnit.MILLISECONDS.toNanos(targetPageLatencyInMs);
+        this.pageSize = Math.max(minPageSize, Math.min(maxPageSize, this.pageSize));
+    }
+
+    /**
+     * Adapts the page size of the next request to the latency of the provided page, if enabled.
+     */
+    private void adaptPageSize(QueryPage page)
+    {
+        if (!this.isAdaptivePageSize)
+        {
+            return;
+        }
+
+        if (page.latencyInNanos > this.targetPageLatencyInNanos)
+        {
+            //Codes_SRS_QUERY_21_030: [If the adaptive page size is enabled and a page took longer than the target latency, the query shall halve the page size, but not below the minPageSize.]
+            this.pageSize = Math.max(this.minPageSize, this.pageSize / 2);
+        }
+        else if ((page.latencyInNanos < (this.targetPageLatencyInNanos / 2)) && (page.continuationToken != null))
+        {
+            //Codes_SRS_QUERY_21_031: [If the adaptive page size is enabled and a page with a continuation token took less than half the target latency, the query shall double the page size, but not above the maxPageSize.]
+            this.pageSize = (int)Math.min(this.maxPageSize, this.pageSize * 2L);
+        }
+    }
+
+    /**
+     * Halves the page size of the next request after the IotHub throttled the query, if enabled.
+     */
+    private void throttlePageSize()
+    {
+        if (this.isAdaptivePageSize)
+        {
+            //Codes_SRS_QUERY_21_032: [If the adaptive page size is enabled and the IotHub throttled the request, the query shall halve the page size, but not below the minPageSize, and throw the exception.]
+            this.pageSize = Math.max(this.minPageSize, this.pageSize / 2);
+        }
+    }
+
+    /**
+     * Sends one page request to the IotHub, without changing the state of this query.
+     */
+    private QueryPage requestPage(IotHubConnectionString iotHubConnectionString,
+                                  URL url,
+                                  HttpMethod method,
+                                  Long timeoutInMs,
+                                  String continuationToken,
+                                  int pageSize) throws IOException, IotHubException
+    {
         byte[] payload = null;
         Map<String, String> queryHeaders = new HashMap<>();
 
-        if (this.requestContinuationToken != null)
+        if (continuationToken != null)
         {
-            queryHeaders.put(CONTINUATION_TOKEN_KEY, requestContinuationToken);
+            queryHeaders.put(CONTINUATION_TOKEN_KEY, continuationToken);
         }
         //Codes_SRS_QUERY_25_007: [The method shall set the http headers x-ms-continuation and x-ms-max-item-count with request continuation token and page size if they were not null.]
         queryHeaders.put(PAGE_SIZE_KEY, String.valueOf(pageSize));
 
-        DeviceOperations.setHeaders(queryHeaders);
-
         if (isSqlQuery)
         {
             //Codes_SRS_QUERY_25_008: [The method shall obtain the serilaized query by using QueryRequestParser.]
@@ -196,9 +348,13 @@ public class Query
         }
 
         //Codes_SRS_QUERY_25_009: [The method shall use the provided HTTP Method and send request to IotHub with the serialized body over the provided URL.]
-        HttpResponse httpResponse = DeviceOperations.request(iotHubConnectionString, url, method, payload, null, timeoutInMs);
+        //Codes_SRS_QUERY_21_022: [The method shall send the query headers with this request only, so concurrent queries do not share headers.]
+        long requestStartNanos = System.nanoTime();
+        HttpResponse httpResponse = DeviceOperations.request(iotHubConnectionString, url, method, payload, null, timeoutInMs, queryHeaders);
+        long latencyInNanos = System.nanoTime() - requestStartNanos;
 
-        this.responseContinuationToken = null;
+        String pageContinuationToken = null;
+        QueryType pageQueryType = this.responseQueryType;
         Map<String, String> headers = httpResponse.getHeaderFields();
         //Codes_SRS_QUERY_25_010: [The method shall read the continuation token (x-ms-continuation) and reponse type (x-ms-item-type) from the HTTP Headers and save it.]
         for (Map.Entry<String, String> header : headers.entrySet())
@@ -206,31 +362,148 @@ public class Query
             switch (header.getKey())
             {
                 case CONTINUATION_TOKEN_KEY:
-                    this.responseContinuationToken = header.getValue();
+                    pageContinuationToken = header.getValue();
                     break;
                 case ITEM_TYPE_KEY:
-                    this.responseQueryType = QueryType.fromString(header.getValue());
+                    pageQueryType = QueryType.fromString(header.getValue());
                     break;
                 default:
                     break;
             }
         }
 
-        if (this.responseQueryType == null || this.responseQueryType == QueryType.UNKNOWN)
+        if (pageQueryType == null || pageQueryType == QueryType.UNKNOWN)
         {
             //Codes_SRS_QUERY_25_012: [If the response type is Unknown or not found then this method shall throw IOException.]
             throw new IOException("Query response type is not defined by IotHub");
         }
 
-        if (this.requestQueryType != this.responseQueryType)
+        if (this.requestQueryType != pageQueryType)
         {
             //Codes_SRS_QUERY_25_011: [If the request type and response does not match then the method shall throw IOException.]
             throw new IOException("Query response does not match query request");
         }
 
         //Codes_SRS_QUERY_25_013: [The method shall create a QueryResponse object with the contents from the response body and save it.]
-        this.queryResponse = new QueryResponse(new String(httpResponse.getBody()));
-        return this.queryResponse;
+        //Codes_SRS_QUERY_21_033: [The QueryResponse shall stream the items from the UTF-8 response body, without converting the body to a string.]
+        return new QueryPage(new QueryResponse(httpResponse.getBody()), pageContinuationToken, pageQueryType, latencyInNanos);
+    }
+
+    /**
+     * Makes the provided page the current page of this query, and prefetches the next one if enabled.
+     */
+    private void applyPage(QueryPage page)
+    {
+        this.responseContinuationToken = page.continuationToken;
+        this.responseQueryType = page.queryType;
+        this.queryResponse = page.queryResponse;
+        this.adaptPageSize(page);
+
+        if ((this.prefetchExecutor != null) && (page.continuationToken != null))
+        {
+            this.prefetchPage(page.continuationToken, this.pageSize);
+        }
+    }
+
+    /**
+     * Sends the request for the page after the provided continuation token in the prefetch executor.
+     */
+    private void prefetchPage(final String continuationToken, final int pageSize)
+    {
+        final IotHubConnectionString iotHubConnectionString = this.iotHubConnectionString;
+        final URL url = this.url;
+        final HttpMethod method = this.httpMethod;
+        final long timeoutInMs = this.timeout;
+        final CompletableFuture<QueryPage> page = new CompletableFuture<>();
+        try
+        {
+            this.prefetchExecutor.execute(() ->
+            {
+                if (page.isCancelled())
+                {
+                    return;
+                }
+
+                try
+                {
+                    page.complete(requestPage(iotHubConnectionString, url, method, timeoutInMs, continuationToken, pageSize));
+                }
+                catch (IOException | IotHubException | RuntimeException e)
+                {
+                    page.completeExceptionally(e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            //Codes_SRS_QUERY_21_025: [If the executor rejects the prefetch, the query shall request the next page when it is needed, as if the prefetch was not enabled.]
+            return;
+        }
+
+        this.prefetchedPage = page;
+        this.prefetchedContinuationToken = continuationToken;
+        this.prefetchedPageSize = pageSize;
+    }
+
+    /**
+     * If the next page was prefetched for the current request continuation token and page size, waits for it
+     * and makes it the current page.
+     * @return {@code true} if the prefetched page was used, {@code false} if there is no matching prefetched page.
+     */
+    private boolean usePrefetchedPage() throws IOException, IotHubException
+    {
+        CompletableFuture<QueryPage> page = this.prefetchedPage;
+        boolean isMatchingPage = (page != null) &&
+                (this.prefetchedPageSize == this.pageSize) &&
+                this.prefetchedContinuationToken.equals(this.requestContinuationToken);
+        this.discardPrefetchedPage();
+        if (!isMatchingPage)
+        {
+            return false;
+        }
+
+        try
+        {
+            //Codes_SRS_QUERY_21_027: [If the next page was prefetched, the query shall use it instead of sending a new request, and throw the exception that the prefetch request threw.]
+            this.applyPage(page.get());
+            return true;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the next query page");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException)cause;
+            }
+            if ((cause instanceof IotHubTooManyRequestsException) || (cause instanceof IotHubServerBusyException))
+            {
+                this.throttlePageSize();
+            }
+            if (cause instanceof IotHubException)
+            {
+                throw (IotHubException)cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void discardPrefetchedPage()
+    {
+        if (this.prefetchedPage != null)
+        {
+            this.prefetchedPage.cancel(false);
+            this.prefetchedPage = null;
+            this.prefetchedContinuationToken = null;
+        }
     }
 
     /**
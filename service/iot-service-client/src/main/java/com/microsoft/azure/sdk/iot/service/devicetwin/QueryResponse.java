@@ -35,6 +35,24 @@ public class QueryResponse implements Iterator<Object>
         this.responseElementsIterator = responseParser.getJsonItems().iterator();
     }
 
+    /**
+     * Creates an object for the query response, that streams the response elements from the UTF-8 json
+     * @param json UTF-8 json response for query to parse
+     * @throws IOException If any of the input parameters are invalid
+     */
+    QueryResponse(byte[] json) throws IOException
+    {
+        if (json == null || json.length == 0)
+        {
+            //Codes_SRS_QUERY_RESPONSE_21_005: [If the json is null or empty, the constructor shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("response cannot be null or empty");
+        }
+
+        //Codes_SRS_QUERY_RESPONSE_21_006: [The constructor shall stream the UTF-8 json response using QueryResponseParser, parsing each element only when it is returned by next, and set the iterator.]
+        QueryResponseParser responseParser = new QueryResponseParser(json);
+        this.responseElementsIterator = responseParser.getJsonItemsIterator();
+    }
+
     /**
      * returns the availability of next response
      * @return true if present and false otherwise
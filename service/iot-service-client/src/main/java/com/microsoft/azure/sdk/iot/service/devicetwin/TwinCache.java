@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of device twins, by deviceId, for the {@link DeviceTwin} reads.
+ *
+ * <p>
+ *     A twin read in the last {@code timeToLiveInMs} is returned without any request to the IotHub. An older
+ *     twin is revalidated with a conditional request on its etag, and the IotHub only sends the twin again if
+ *     it changed. When the cache is full, the least recently read twin is discarded.
+ * </p>
+ * <p>
+ *     The twins updated by the {@link DeviceTwin} that uses this cache are discarded, but changes made by other
+ *     clients are only seen when the twin is revalidated. One cache shall be used only for one IotHub.
+ * </p>
+ */
+public final class TwinCache
+{
+    private static final class CachedTwin
+    {
+        private final String eTag;
+        private final String twinJson;
+        private long validatedAtNanos;
+
+        private CachedTwin(String eTag, String twinJson, long validatedAtNanos)
+        {
+            this.eTag = eTag;
+            this.twinJson = twinJson;
+            this.validatedAtNanos = validatedAtNanos;
+        }
+    }
+
+    private final int maxSize;
+    private final long timeToLiveInNanos;
+    private final Map<String, CachedTwin> twins;
+
+    private long generation = 0;
+    private long hitCount = 0;
+    private long revalidationCount = 0;
+    private long missCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize the maximum number of twins in the cache.
+     * @param timeToLiveInMs the time, in milliseconds, that a twin is returned without revalidation. If it is
+     *                       {@code 0}, the twin is revalidated on every read.
+     * @throws IllegalArgumentException if the maxSize is less than 1 or the timeToLiveInMs is negative.
+     */
+    public TwinCache(int maxSize, long timeToLiveInMs) throws IllegalArgumentException
+    {
+        /* Codes_SRS_TWINCACHE_21_001: [The constructor shall throw IllegalArgumentException if the maxSize is less than 1.] */
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize cannot be less than 1");
+        }
+
+        /* Codes_SRS_TWINCACHE_21_002: [The constructor shall throw IllegalArgumentException if the timeToLiveInMs is negative.] */
+        if (timeToLiveInMs < 0)
+        {
+            throw new IllegalArgumentException("timeToLiveInMs cannot be negative");
+        }
+
+        /* Codes_SRS_TWINCACHE_21_003: [The constructor shall create an empty cache that keeps up to maxSize twins, discarding the least recently read one.] */
+        this.maxSize = maxSize;
+        this.timeToLiveInNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveInMs);
+        this.twins = new LinkedHashMap<String, CachedTwin>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedTwin> eldest)
+            {
+                return size() > TwinCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Getter for the number of twins returned from the cache without any request to the IotHub.
+     *
+     * @return the number of hits.
+     */
+    public synchronized long getHitCount()
+    {
+        /* Codes_SRS_TWINCACHE_21_004: [The getHitCount shall return the number of twins returned without a request.] */
+        return this.hitCount;
+    }
+
+    /**
+     * Getter for the number of twins returned from the cache after the IotHub confirmed that they did not change.
+     *
+     * @return the number of revalidations.
+     */
+    public synchronized long getRevalidationCount()
+    {
+        /* Codes_SRS_TWINCACHE_21_005: [The getRevalidationCount shall return the number of twins returned after a conditional request that found no change.] */
+        return this.revalidationCount;
+    }
+
+    /**
+     * Getter for the number of twins that the IotHub sent because they were not cached, or changed.
+     *
+     * @return the number of misses.
+     */
+    public synchronized long getMissCount()
+    {
+        /* Codes_SRS_TWINCACHE_21_006: [The getMissCount shall return the number of twins received in full from the IotHub.] */
+        return this.missCount;
+    }
+
+    /**
+     * Getter for the number of twins in the cache.
+     *
+     * @return the number of cached twins.
+     */
+    public synchronized int size()
+    {
+        /* Codes_SRS_TWINCACHE_21_007: [The size shall return the number of cached twins.] */
+        return this.twins.size();
+    }
+
+    /**
+     * Discard the twin of the provided device, so the next read requests it from the IotHub.
+     *
+     * @param deviceId the device id. If it is not cached, nothing changes.
+     */
+    public synchronized void invalidate(String deviceId)
+    {
+        /* Codes_SRS_TWINCACHE_21_008: [The invalidate shall discard the twin of the deviceId, and not store any twin whose request started before.] */
+        this.twins.remove(deviceId);
+        this.generation++;
+    }
+
+    /**
+     * Discard all twins.
+     */
+    public synchronized void clear()
+    {
+        /* Codes_SRS_TWINCACHE_21_009: [The clear shall discard all twins, and not store any twin whose request started before.] */
+        this.twins.clear();
+        this.generation++;
+    }
+
+    /**
+     * Getter for the cached twin of the provided device, if it is still in its time to live.
+     *
+     * @param deviceId the device id.
+     * @return the twin json, or {@code null} if it is not cached or shall be revalidated.
+     */
+    synchronized String getFreshTwin(String deviceId)
+    {
+        CachedTwin cachedTwin = this.twins.get(deviceId);
+        if ((cachedTwin == null) || ((System.nanoTime() - cachedTwin.validatedAtNanos) >= this.timeToLiveInNanos))
+        {
+            /* Codes_SRS_TWINCACHE_21_010: [If the twin is not cached or its time to live expired, the getFreshTwin shall return null.] */
+            return null;
+        }
+
+        /* Codes_SRS_TWINCACHE_21_011: [If the twin is in its time to live, the getFreshTwin shall count a hit and return the cached twin.] */
+        this.hitCount++;
+        return cachedTwin.twinJson;
+    }
+
+    /**
+     * Getter for the etag of the cached twin of the provided device, to revalidate it.
+     *
+     * @param deviceId the device id.
+     * @return the etag, or {@code null} if the twin is not cached.
+     */
+    synchronized String getETag(String deviceId)
+    {
+        /* Codes_SRS_TWINCACHE_21_012: [The getETag shall return the etag of the cached twin, or null if it is not cached.] */
+        CachedTwin cachedTwin = this.twins.get(deviceId);
+        return (cachedTwin == null) ? null : cachedTwin.eTag;
+    }
+
+    /**
+     * Getter for the current generation of the cache, that changes on every invalidation. It shall be read
+     * before a request, and provided to {@link #revalidate} or {@link #put} with its result.
+     *
+     * @return the current generation.
+     */
+    synchronized long getGeneration()
+    {
+        return this.generation;
+    }
+
+    /**
+     * Restart the time to live of the cached twin, after the IotHub confirmed that the twin with this etag did
+     * not change.
+     *
+     * @param deviceId the device id.
+     * @param eTag the etag sent in the conditional request.
+     * @param generation the generation read before the request.
+     * @return the cached twin json, or {@code null} if it was discarded during the request.
+     */
+    synchronized String revalidate(String deviceId, String eTag, long generation)
+    {
+        CachedTwin cachedTwin = this.twins.get(deviceId);
+        if ((generation != this.generation) || (cachedTwin == null) || !cachedTwin.eTag.equals(eTag))
+        {
+            /* Codes_SRS_TWINCACHE_21_013: [If the twin was discarded or replaced during the request, the revalidate shall return null.] */
+            return null;
+        }
+
+        /* Codes_SRS_TWINCACHE_21_014: [The revalidate shall restart the time to live of the twin, count a revalidation, and return the cached twin.] */
+        cachedTwin.validatedAtNanos = System.nanoTime();
+        this.revalidationCount++;
+        return cachedTwin.twinJson;
+    }
+
+    /**
+     * Store the twin received from the IotHub.
+     *
+     * @param deviceId the device id.
+     * @param eTag the twin etag. If it is {@code null} or empty, the twin is not stored.
+     * @param twinJson the twin json.
+     * @param generation the generation read before the request.
+     */
+    synchronized void put(String deviceId, String eTag, String twinJson, long generation)
+    {
+        /* Codes_SRS_TWINCACHE_21_015: [The put shall count a miss.] */
+        this.missCount++;
+
+        /* Codes_SRS_TWINCACHE_21_016: [If the etag is null or empty, or any twin was invalidated during the request, the put shall not store the twin.] */
+        if ((eTag == null) || eTag.isEmpty() || (twinJson == null) || (generation != this.generation))
+        {
+            return;
+        }
+
+        /* Codes_SRS_TWINCACHE_21_017: [The put shall store the twin with its etag, and discard the least recently read twin if the cache is full.] */
+        this.twins.put(deviceId, new CachedTwin(eTag, twinJson, System.nanoTime()));
+    }
+}
@@ -19,6 +19,7 @@ public class IotHubExceptionManager
      * Verify Http response using response status
      *
      * @param httpResponse Http response object to verify
+     * @throws IotHubNotModifiedException This exception is thrown if the response status equal 304
      * @throws IotHubBadFormatException This exception is thrown if the response status equal 400
      * @throws IotHubUnathorizedException This exception is thrown if the response status equal 401
      * @throws IotHubTooManyDevicesException This exception is thrown if the response status equal 403
@@ -43,6 +44,7 @@ public class IotHubExceptionManager
             IotHubBadGatewayException,
             IotHubNotFoundException,
             IotHubGatewayTimeoutException,
+            IotHubNotModifiedException,
             IotHubException
     {
         int responseStatus = httpResponse.getStatus();
@@ -50,8 +52,13 @@ public class IotHubExceptionManager
         // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBEXCEPTIONMANAGER_21_013: [If the httpresponse contains a reason message, the function must print this reason in the error message]
         String errorMessage = ErrorMessageParser.bestErrorMessage(new String(httpResponse.getErrorReason(), StandardCharsets.UTF_8));
 
+        // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBEXCEPTIONMANAGER_21_014: [The function shall throw IotHubNotModifiedException if the Http response status equal 304]
+        if (304 == responseStatus)
+        {
+            throw new IotHubNotModifiedException(errorMessage);
+        }
         // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBEXCEPTIONMANAGER_12_001: [The function shall throw IotHubBadFormatException if the Http response status equal 400]
-        if (400 == responseStatus)
+        else if (400 == responseStatus)
         {
             throw new IotHubBadFormatException(errorMessage);
         }
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.exceptions;
+
+/**
+ * Create not modified exception (the resource did not change since the conditional request etag)
+ */
+public class IotHubNotModifiedException extends IotHubException
+{
+    public IotHubNotModifiedException()
+    {
+        this(null);
+    }
+    public IotHubNotModifiedException(String message)
+    {
+        super("Not modified!" + (((message == null) || message.isEmpty()) ? "" : " " + message));
+    }
+}
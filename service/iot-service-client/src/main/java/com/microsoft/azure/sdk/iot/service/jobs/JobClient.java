@@ -6,6 +6,7 @@ package com.microsoft.azure.sdk.iot.service.jobs;
 import com.microsoft.azure.sdk.iot.deps.serializer.JobsParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.TwinParser;
+import com.microsoft.azure.sdk.iot.service.AsyncExecutors;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.devicetwin.*;
@@ -18,6 +19,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 /**
  * JobClient enables service client to schedule and cancel jobs for a group of devices using the IoTHub.
@@ -31,6 +33,7 @@ public class JobClient
     private final static byte[] EMPTY_JSON = "{}".getBytes();
 
     private IotHubConnectionString iotHubConnectionString = null;
+    private Executor executor = AsyncExecutors.getDefaultFanOutExecutor();
 
     /**
      * Static constructor to create instance from connection string
@@ -57,6 +60,31 @@ public class JobClient
         return jobClient;
     }
 
+    /**
+     * Static constructor to create instance from connection string, that prefetches the query pages of the
+     * job result iterators in the provided executor.
+     *
+     * @param connectionString The iot hub connection string
+     * @param executor The executor for the query page prefetch
+     * @return The instance of JobClient
+     * @throws IOException if the object creation failed
+     * @throws IllegalArgumentException if the provided connectionString is {@code null} or empty, or the executor is {@code null}
+     */
+    public static JobClient createFromConnectionString(String connectionString, Executor executor) throws IOException, IllegalArgumentException
+    {
+        if (executor == null)
+        {
+            /* Codes_SRS_JOBCLIENT_21_036: [The constructor shall throw IllegalArgumentException if the input executor is null.] */
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        /* Codes_SRS_JOBCLIENT_21_037: [The constructor shall create a new JobClient instance from the connection string, that prefetches query pages in the provided executor.] */
+        JobClient jobClient = createFromConnectionString(connectionString);
+        jobClient.executor = executor;
+
+        return jobClient;
+    }
+
     /**
      * Creates a new Job to update twin tags and desired properties on one or multiple devices
      *
@@ -337,7 +365,12 @@ public class JobClient
      * @throws IotHubException When IotHub fails to respond
      * @throws IOException When any of the parameters are incorrect
      */
-    public synchronized Query queryDeviceJob(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    public Query queryDeviceJob(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    {
+        return this.sendDeviceJobQuery(sqlQuery, pageSize, null);
+    }
+
+    private Query sendDeviceJobQuery(String sqlQuery, Integer pageSize, Executor prefetchExecutor) throws IotHubException, IOException
     {
         if (sqlQuery == null || sqlQuery.length() == 0)
         {
@@ -353,6 +386,10 @@ public class JobClient
 
         //Codes_SRS_JOBCLIENT_25_039: [The queryDeviceJob shall create a query object for the type DEVICE_JOB.]
         Query deviceJobQuery = new Query(sqlQuery, pageSize, QueryType.DEVICE_JOB);
+        if (prefetchExecutor != null)
+        {
+            deviceJobQuery.enablePrefetch(prefetchExecutor);
+        }
 
         //Codes_SRS_JOBCLIENT_25_040: [The queryDeviceJob shall send a query request on the query object using Query URL, HTTP POST method and wait for the response by calling sendQueryRequest.]
         deviceJobQuery.sendQueryRequest(iotHubConnectionString, iotHubConnectionString.getUrlTwinQuery(), HttpMethod.POST, MAX_TIMEOUT);
@@ -366,7 +403,7 @@ public class JobClient
      * @throws IotHubException When IotHub fails to respond
      * @throws IOException When any of the parameters are incorrect
      */
-    public synchronized Query queryDeviceJob(String sqlQuery) throws IotHubException, IOException
+    public Query queryDeviceJob(String sqlQuery) throws IotHubException, IOException
     {
         //Codes_SRS_JOBCLIENT_25_038: [If the pageSize is not specified, default pageSize of 100 shall be used .]
         return queryDeviceJob(sqlQuery, DEFAULT_PAGE_SIZE);
@@ -379,7 +416,7 @@ public class JobClient
      * @throws IotHubException When IotHub fails to respond
      * @throws IOException if any of the input parameters are incorrect
      */
-    public synchronized boolean hasNextJob(Query query) throws IotHubException, IOException
+    public boolean hasNextJob(Query query) throws IotHubException, IOException
     {
         if (query == null)
         {
@@ -398,7 +435,7 @@ public class JobClient
      * @throws IOException if any of the input parameters are incorrect
      * @throws NoSuchElementException if called when no further responses are left
      */
-    public synchronized JobResult getNextJob(Query query) throws IOException, IotHubException, NoSuchElementException
+    public JobResult getNextJob(Query query) throws IOException, IotHubException, NoSuchElementException
     {
         if (query == null)
         {
@@ -430,7 +467,12 @@ public class JobClient
      * @throws IOException If any of the input parameters are incorrect
      * @throws IotHubException If IotHub failed to respond
      */
-    public synchronized Query queryJobResponse(JobType jobType, JobStatus jobStatus, Integer pageSize) throws IOException, IotHubException
+    public Query queryJobResponse(JobType jobType, JobStatus jobStatus, Integer pageSize) throws IOException, IotHubException
+    {
+        return this.sendJobResponseQuery(jobType, jobStatus, pageSize, null);
+    }
+
+    private Query sendJobResponseQuery(JobType jobType, JobStatus jobStatus, Integer pageSize, Executor prefetchExecutor) throws IOException, IotHubException
     {
         if (pageSize <= 0)
         {
@@ -440,6 +482,10 @@ public class JobClient
 
         //Codes_SRS_JOBCLIENT_25_043: [If the pageSize is not specified, default pageSize of 100 shall be used.] SRS_JOBCLIENT_25_044: [The queryDeviceJob shall create a query object for the type JOB_RESPONSE.]
         Query jobResponseQuery = new Query(pageSize, QueryType.JOB_RESPONSE);
+        if (prefetchExecutor != null)
+        {
+            jobResponseQuery.enablePrefetch(prefetchExecutor);
+        }
 
         //Codes_SRS_JOBCLIENT_25_045: [The queryDeviceJob shall send a query request on the query object using Query URL, HTTP GET method and wait for the response by calling sendQueryRequest.]
         String jobTypeString = (jobType == null) ? null : jobType.toString();
@@ -455,12 +501,73 @@ public class JobClient
      * @throws IOException If any of the input parameters are incorrect
      * @throws IotHubException If IotHub failed to respond
      */
-    public synchronized Query queryJobResponse(JobType jobType, JobStatus jobStatus) throws IotHubException, IOException
+    public Query queryJobResponse(JobType jobType, JobStatus jobStatus) throws IotHubException, IOException
     {
         //Codes_SRS_JOBCLIENT_25_043: [If the pageSize is not specified, default pageSize of 100 shall be used.]
         return queryJobResponse(jobType, jobStatus, DEFAULT_PAGE_SIZE);
     }
 
+    /**
+     * Query for device Job results, and iterate them while the next pages are prefetched. Each iterator has its
+     * own query cursor, so multiple iterators from the same JobClient can be read concurrently.
+     * @param sqlQuery sql style query over device.jobs
+     * @param pageSize the value per which to limit the size of query response by.
+     * @return an iterator over the device job results
+     * @throws IotHubException When IotHub fails to respond
+     * @throws IOException When any of the parameters are incorrect
+     */
+    public JobResultIterator queryDeviceJobResults(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    {
+        //Codes_SRS_JOBCLIENT_21_038: [The queryDeviceJobResults shall send the device job query as queryDeviceJob, with the page prefetch enabled in the executor.]
+        //Codes_SRS_JOBCLIENT_21_039: [The queryDeviceJobResults shall return a JobResultIterator over the device job query.]
+        return new JobResultIterator(this.sendDeviceJobQuery(sqlQuery, pageSize, this.executor));
+    }
+
+    /**
+     * Query for device Job results limited by default page size of 100 per page, and iterate them while the
+     * next pages are prefetched.
+     * @param sqlQuery sql style query over device.jobs
+     * @return an iterator over the device job results
+     * @throws IotHubException When IotHub fails to respond
+     * @throws IOException When any of the parameters are incorrect
+     */
+    public JobResultIterator queryDeviceJobResults(String sqlQuery) throws IotHubException, IOException
+    {
+        //Codes_SRS_JOBCLIENT_21_040: [If the pageSize is not specified, default pageSize of 100 shall be used.]
+        return queryDeviceJobResults(sqlQuery, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Query the iot hub for jobs responses, and iterate them while the next pages are prefetched.
+     * @param jobType The type of job to query for
+     * @param jobStatus The status of the job to query for
+     * @param pageSize The value to which to limit the job response size by
+     * @return an iterator over the job results
+     * @throws IOException If any of the input parameters are incorrect
+     * @throws IotHubException If IotHub failed to respond
+     */
+    public JobResultIterator queryJobResponseResults(JobType jobType, JobStatus jobStatus, Integer pageSize) throws IOException, IotHubException
+    {
+        //Codes_SRS_JOBCLIENT_21_041: [The queryJobResponseResults shall send the job response query as queryJobResponse, with the page prefetch enabled in the executor.]
+        //Codes_SRS_JOBCLIENT_21_042: [The queryJobResponseResults shall return a JobResultIterator over the job response query.]
+        return new JobResultIterator(this.sendJobResponseQuery(jobType, jobStatus, pageSize, this.executor));
+    }
+
+    /**
+     * Query the iot hub for jobs responses limited by default page size of 100 per page, and iterate them while
+     * the next pages are prefetched.
+     * @param jobType The type of job to query for
+     * @param jobStatus The status of the job to query for
+     * @return an iterator over the job results
+     * @throws IOException If any of the input parameters are incorrect
+     * @throws IotHubException If IotHub failed to respond
+     */
+    public JobResultIterator queryJobResponseResults(JobType jobType, JobStatus jobStatus) throws IOException, IotHubException
+    {
+        //Codes_SRS_JOBCLIENT_21_040: [If the pageSize is not specified, default pageSize of 100 shall be used.]
+        return queryJobResponseResults(jobType, jobStatus, DEFAULT_PAGE_SIZE);
+    }
+
     @SuppressWarnings("unused")
     protected JobClient()
     {
@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.jobs;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.Query;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the results of a jobs query.
+ *
+ * <p>
+ *     The query pages are requested by the underlying {@link Query}, that prefetches the next page while the
+ *     current one is iterated, and each {@link JobResult} is parsed only when it is returned by {@link #next()}.
+ *     One iterator shall be read by one thread at a time, but different iterators can be read concurrently.
+ * </p>
+ */
+public class JobResultIterator implements Iterator<JobResult>
+{
+    private final Query query;
+
+    /**
+     * Constructor
+     *
+     * @param query the jobs query, already sent to the IotHub.
+     * @throws IllegalArgumentException if the query is {@code null}.
+     */
+    JobResultIterator(Query query) throws IllegalArgumentException
+    {
+        if (query == null)
+        {
+            /* Codes_SRS_JOBRESULTITERATOR_21_001: [The constructor shall throw IllegalArgumentException if the query is null.] */
+            throw new IllegalArgumentException("query cannot be null");
+        }
+
+        /* Codes_SRS_JOBRESULTITERATOR_21_002: [The constructor shall store the query.] */
+        this.query = query;
+    }
+
+    /**
+     * Returns the availability of the next job result, requesting the next page from the IotHub if needed.
+     *
+     * @return {@code true} if there is a next job result, {@code false} otherwise.
+     * @throws UncheckedIOException if the request for the next page failed.
+     */
+    @Override
+    public boolean hasNext() throws UncheckedIOException
+    {
+        try
+        {
+            /* Codes_SRS_JOBRESULTITERATOR_21_003: [The hasNext shall return true if the query has a next element, and false otherwise.] */
+            return this.query.hasNext();
+        }
+        catch (IOException e)
+        {
+            /* Codes_SRS_JOBRESULTITERATOR_21_004: [If the query failed, the hasNext and next shall throw UncheckedIOException with the IOException, or with an IOException caused by the IotHubException.] */
+            throw new UncheckedIOException(e);
+        }
+        catch (IotHubException e)
+        {
+            throw new UncheckedIOException(new IOException(e));
+        }
+    }
+
+    /**
+     * Returns the next job result.
+     *
+     * @return the next job result.
+     * @throws NoSuchElementException if there are no more job results.
+     * @throws UncheckedIOException if the request for the next page failed, or the element is not a job result.
+     */
+    @Override
+    public JobResult next() throws NoSuchElementException, UncheckedIOException
+    {
+        Object nextObject;
+        try
+        {
+            /* Codes_SRS_JOBRESULTITERATOR_21_005: [The next shall throw NoSuchElementException if the query has no next element.] */
+            nextObject = this.query.next();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        catch (IotHubException e)
+        {
+            throw new UncheckedIOException(new IOException(e));
+        }
+
+        if (!(nextObject instanceof String))
+        {
+            /* Codes_SRS_JOBRESULTITERATOR_21_006: [The next shall throw UncheckedIOException if the next element is not a string.] */
+            throw new UncheckedIOException(new IOException("Received a response that could not be parsed"));
+        }
+
+        /* Codes_SRS_JOBRESULTITERATOR_21_007: [The next shall parse the next element of the query as a JobResult, and return it.] */
+        return new JobResult(((String)nextObject).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that paces the requests of one {@link OperationClass} to the rate that the IotHub accepts.
+ *
+ * <p>
+ *     The limiter does not delay any request until the IotHub throttles one. Then, the rate is reduced to half
+ *     of the rate of the last second, and all requests are paused until the time that the IotHub requested in
+ *     the Retry-After header. Each accepted request increases the rate a little, about one request per second
+ *     every second, so the rate converges to the maximum that the IotHub sustains. The bucket holds up to one
+ *     second of tokens, so an idle client does not send a burst larger than its rate.
+ * </p>
+ */
+public final class AdaptiveRateLimiter
+{
+    /** The minimum rate, in requests per second, after any number of throttled requests. */
+    public static final double MIN_RATE_PER_SECOND = 1.0;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongSupplier nanoClock;
+
+    private double ratePerSecond = 0;
+    private double tokens = 0;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+    private long lastDecreaseNanos;
+    private boolean decreased = false;
+
+    private long windowStartNanos;
+    private int windowCount = 0;
+    private int lastWindowCount = 0;
+
+    /**
+     * Constructor. The new limiter does not limit the rate until the first throttled request.
+     */
+    public AdaptiveRateLimiter()
+    {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Constructor with the clock that the limiter uses to measure the time.
+     *
+     * @param nanoClock the clock, in nanoseconds, like {@link System#nanoTime()}.
+     */
+    AdaptiveRateLimiter(LongSupplier nanoClock)
+    {
+        /* Codes_SRS_ADAPTIVERATELIMITER_21_001: [The constructor shall create a limiter that does not limit the rate.] */
+        this.nanoClock = nanoClock;
+        long now = nanoClock.getAsLong();
+        this.lastRefillNanos = now;
+        this.pausedUntilNanos = now;
+        this.windowStartNanos = now;
+    }
+
+    /**
+     * Getter for the current rate.
+     *
+     * @return the rate in requests per second, or {@code 0} if the rate is not limited.
+     */
+    public synchronized double getRatePerSecond()
+    {
+        /* Codes_SRS_ADAPTIVERATELIMITER_21_002: [The getRatePerSecond shall return the current rate, or 0 if the rate is not limited.] */
+        return this.ratePerSecond;
+    }
+
+    /**
+     * Wait until the next request can be sent.
+     *
+     * @throws InterruptedIOException if the thread is interrupted while it waits.
+     */
+    public void acquire() throws InterruptedIOException
+    {
+        long waitInNanos;
+        while ((waitInNanos = reserve()) > 0)
+        {
+            try
+            {
+                /* Codes_SRS_ADAPTIVERATELIMITER_21_003: [The acquire shall wait until the limiter has a token for the request.] */
+                TimeUnit.NANOSECONDS.sleep(waitInNanos);
+            }
+            catch (InterruptedException e)
+            {
+                /* Codes_SRS_ADAPTIVERATELIMITER_21_004: [If the thread is interrupted while it waits, the acquire shall restore the interrupt flag and throw InterruptedIOException.] */
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the request rate limit");
+            }
+        }
+    }
+
+    /**
+     * Take a token for a request, if there is one.
+     *
+     * @return {@code 0} if the request can be sent now, or the time, in nanoseconds, to wait before trying again.
+     */
+    synchronized long reserve()
+    {
+        long now = this.nanoClock.getAsLong();
+
+        /* Codes_SRS_ADAPTIVERATELIMITER_21_005: [If the limiter is paused by a Retry-After, the reserve shall return the time until the end of the pause.] */
+        if ((this.pausedUntilNanos - now) > 0)
+        {
+            return this.pausedUntilNanos - now;
+        }
+
+        if (this.ratePerSecond > 0)
+        {
+            /* Codes_SRS_ADAPTIVERATELIMITER_21_006: [The reserve shall add tokens at the current rate, up to one second of tokens.] */
+            double capacity = Math.max(1.0, this.ratePerSecond);
+            this.tokens = Math.min(capacity, this.tokens + (((now - this.lastRefillNanos) * this.ratePerSecond) / NANOS_PER_SECOND));
+            this.lastRefillNanos = now;
+
+            if (this.tokens < 1.0)
+            {
+                /* Codes_SRS_ADAPTIVERATELIMITER_21_007: [If there is no token, the reserve shall return the time until the next token.] */
+                return Math.max(1L, (long)(((1.0 - this.tokens) * NANOS_PER_SECOND) / this.ratePerSecond));
+            }
+            this.tokens -= 1.0;
+        }
+
+        /* Codes_SRS_ADAPTIVERATELIMITER_21_008: [If the rate is not limited, or there is a token, the reserve shall count the request and return 0.] */
+        countRequest(now);
+        return 0;
+    }
+
+    /**
+     * Report a request that the IotHub accepted.
+     */
+    public synchronized void onSuccess()
+    {
+        if (this.ratePerSecond > 0)
+        {
+            /* Codes_SRS_ADAPTIVERATELIMITER_21_009: [If the rate is limited, the onSuccess shall increase the rate by the inverse of the rate, about one request per second every second.] */
+            this.ratePerSecond += 1.0 / this.ratePerSecond;
+        }
+    }
+
+    /**
+     * Report a request that the IotHub throttled.
+     *
+     * @param retryAfterInMs the time, in milliseconds, that the IotHub requested to wait before the next request,
+     *                       or {@code 0} if it did not request any.
+     */
+    public synchronized void onThrottled(long retryAfterInMs)
+    {
+        long now = this.nanoClock.getAsLong();
+
+        /* Codes_SRS_ADAPTIVERATELIMITER_21_010: [The onThrottled shall halve the current rate, or the rate of the last second if the rate was not limited, to no less than MIN_RATE_PER_SECOND.] */
+        /* Codes_SRS_ADAPTIVERATELIMITER_21_011: [The onThrottled shall not reduce the rate again in one second, so the concurrent requests throttled together reduce it only once.] */
+        if (!this.decreased || ((now - this.lastDecreaseNanos) >= NANOS_PER_SECOND))
+        {
+            double currentRate = this.ratePerSecond;
+            if (currentRate == 0)
+            {
+                rollWindow(now);
+                currentRate = Math.max(this.windowCount, this.lastWindowCount);
+            }
+            this.ratePerSecond = Math.max(MIN_RATE_PER_SECOND, currentRate / 2.0);
+            this.tokens = 0;
+            this.lastRefillNanos = now;
+            this.lastDecreaseNanos = now;
+            this.decreased = true;
+        }
+
+        /* Codes_SRS_ADAPTIVERATELIMITER_21_012: [If the retryAfterInMs is positive, the onThrottled shall pause all requests until that time, and then accept one request.] */
+        if (retryAfterInMs > 0)
+        {
+            long pausedUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(retryAfterInMs);
+            if ((pausedUntilNanos - this.pausedUntilNanos) > 0)
+            {
+                this.pausedUntilNanos = pausedUntilNanos;
+                this.lastRefillNanos = pausedUntilNanos;
+                this.tokens = 1.0;
+            }
+        }
+    }
+
+    private void countRequest(long now)
+    {
+        rollWindow(now);
+        this.windowCount++;
+    }
+
+    private void rollWindow(long now)
+    {
+        long elapsed = now - this.windowStartNanos;
+        if (elapsed >= NANOS_PER_SECOND)
+        {
+            this.lastWindowCount = (elapsed >= (2 * NANOS_PER_SECOND)) ? 0 : this.windowCount;
+            this.windowCount = 0;
+            this.windowStartNanos = now;
+        }
+    }
+}
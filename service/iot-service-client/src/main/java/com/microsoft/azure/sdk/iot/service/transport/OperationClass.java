@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+/**
+ * Classes of service operations that the IotHub throttles independently, each one paced by its own
+ * {@link AdaptiveRateLimiter} in the {@link RequestThrottler}.
+ */
+public enum OperationClass
+{
+    /** Device identity operations of the RegistryManager. */
+    REGISTRY,
+    /** Device twin reads, updates and queries. */
+    TWIN,
+    /** Direct method invokes. */
+    METHOD,
+    /** Job operations and job queries. */
+    JOBS,
+    /** Cloud to device messages of the ServiceClient. They are sent over AMQP, not through the RequestThrottler. */
+    MESSAGING
+}
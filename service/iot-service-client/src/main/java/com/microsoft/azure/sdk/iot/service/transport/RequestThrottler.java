@@ -0,0 +1,444 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Paces and retries the REST requests that the service clients send to one IotHub.
+ *
+ * <p>
+ *     Each {@link OperationClass} has its own {@link AdaptiveRateLimiter}, because the IotHub throttles them
+ *     independently. A request throttled by the IotHub, with status 429 (too many requests) or 503 (server
+ *     busy), reduces the rate of its class. If the request is idempotent, it is sent again after a random backoff,
+ *     up to the maximum number of retries. The backoff doubles on each retry, and is never shorter than the
+ *     Retry-After of the response. Other requests are not sent again, because a 503 does not guarantee that the
+ *     IotHub did not apply them.
+ * </p>
+ * <p>
+ *     By default, all service clients in the JVM share one throttler per IotHub, so they do not exceed the
+ *     IotHub limits together. A default throttler that is not used for {@link #IDLE_THROTTLER_TIMEOUT_MS} is
+ *     discarded, so the clients of short lived IotHubs do not keep one forever. Use
+ *     {@link #setForIotHub(String, RequestThrottler)} to change its configuration, or to replace it with
+ *     {@link #passThrough()} to send the requests without any pacing or retry. A throttler set this way is kept
+ *     until it is set to {@code null}.
+ * </p>
+ */
+public final class RequestThrottler
+{
+    /** The default maximum number of retries of a throttled request. */
+    public static final int DEFAULT_MAX_RETRIES = 5;
+    /** The default backoff, in milliseconds, of the first retry. */
+    public static final long DEFAULT_BASE_BACKOFF_MS = 100;
+    /** The default maximum backoff, in milliseconds, of any retry. */
+    public static final long DEFAULT_MAX_BACKOFF_MS = 10000;
+    /** The time, in milliseconds, after which a default throttler that was not used is discarded. */
+    public static final long IDLE_THROTTLER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final int HTTP_STATUS_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_STATUS_SERVER_BUSY = 503;
+    private static final String RETRY_AFTER = "retry-after";
+
+    private static final long IDLE_THROTTLER_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(IDLE_THROTTLER_TIMEOUT_MS);
+    private static final long IDLE_THROTTLER_CHECK_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final ConcurrentMap<String, RequestThrottler> DEFAULT_THROTTLERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, RequestThrottler> CONFIGURED_THROTTLERS = new ConcurrentHashMap<>();
+    private static final AtomicLong LAST_IDLE_CHECK_NANOS = new AtomicLong(System.nanoTime());
+
+    /**
+     * Sender of one attempt of a request. Each call shall create and send a new request.
+     */
+    @FunctionalInterface
+    public interface HttpSender
+    {
+        /**
+         * Create and send the request.
+         *
+         * @return the response, with any status.
+         * @throws IOException if the request could not be sent.
+         */
+        HttpResponse send() throws IOException;
+    }
+
+    /**
+     * Factory of one attempt of a request. Each call shall create a new request, ready to be sent.
+     */
+    @FunctionalInterface
+    public interface HttpRequestFactory
+    {
+        /**
+         * Create the request.
+         *
+         * @return the request to send.
+         * @throws IOException if the request could not be created.
+         */
+        HttpRequest create() throws IOException;
+    }
+
+    private final boolean isEnabled;
+    private final int maxRetries;
+    private final long baseBackoffInMs;
+    private final long maxBackoffInMs;
+    private final Map<OperationClass, AdaptiveRateLimiter> limiters = new EnumMap<>(OperationClass.class);
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    /**
+     * Constructor with the default retry configuration.
+     */
+    public RequestThrottler()
+    {
+        this(DEFAULT_MAX_RETRIES, DEFAULT_BASE_BACKOFF_MS, DEFAULT_MAX_BACKOFF_MS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxRetries the maximum number of retries of a throttled request. If it is {@code 0}, the throttled
+     *                   requests are not sent again, but they still reduce the rate.
+     * @param baseBackoffInMs the backoff, in milliseconds, of the first retry.
+     * @param maxBackoffInMs the maximum backoff, in milliseconds, of any retry.
+     * @throws IllegalArgumentException if one of the parameters is negative, or the maxBackoffInMs is less than the baseBackoffInMs.
+     */
+    public RequestThrottler(int maxRetries, long baseBackoffInMs, long maxBackoffInMs) throws IllegalArgumentException
+    {
+        /* Codes_SRS_REQUESTTHROTTLER_21_001: [The constructor shall throw IllegalArgumentException if the maxRetries or the baseBackoffInMs is negative, or the maxBackoffInMs is less than the baseBackoffInMs.] */
+        if ((maxRetries < 0) || (baseBackoffInMs < 0))
+        {
+            throw new IllegalArgumentException("maxRetries and baseBackoffInMs cannot be negative");
+        }
+        if (maxBackoffInMs < baseBackoffInMs)
+        {
+            throw new IllegalArgumentException("maxBackoffInMs cannot be less than baseBackoffInMs");
+        }
+
+        /* Codes_SRS_REQUESTTHROTTLER_21_002: [The constructor shall create one AdaptiveRateLimiter for each OperationClass.] */
+        this.isEnabled = true;
+        this.maxRetries = maxRetries;
+        this.baseBackoffInMs = baseBackoffInMs;
+        this.maxBackoffInMs = maxBackoffInMs;
+        for (OperationClass operationClass : OperationClass.values())
+        {
+            this.limiters.put(operationClass, new AdaptiveRateLimiter());
+        }
+    }
+
+    private RequestThrottler(boolean isEnabled)
+    {
+        this.isEnabled = isEnabled;
+        this.maxRetries = 0;
+        this.baseBackoffInMs = 0;
+        this.maxBackoffInMs = 0;
+    }
+
+    /**
+     * Create a throttler that sends the requests without any pacing or retry.
+     *
+     * @return the new throttler.
+     */
+    public static RequestThrottler passThrough()
+    {
+        /* Codes_SRS_REQUESTTHROTTLER_21_003: [The passThrough shall create a throttler that only sends each request once.] */
+        return new RequestThrottler(false);
+    }
+
+    /**
+     * Getter for the throttler shared by all service clients of the provided IotHub. It is created with the
+     * default configuration on the first call, and after it was discarded for being idle.
+     *
+     * @param hostName the IotHub host name.
+     * @return the throttler of the IotHub.
+     */
+    public static RequestThrottler getForIotHub(String hostName)
+    {
+        String key = toKey(hostName);
+        RequestThrottler throttler = CONFIGURED_THROTTLERS.get(key);
+        if (throttler != null)
+        {
+            return throttler;
+        }
+
+        /* Codes_SRS_REQUESTTHROTTLER_21_022: [The getForIotHub shall discard the default throttlers that were not used for IDLE_THROTTLER_TIMEOUT_MS.] */
+        discardIdleThrottlers();
+
+        /* Codes_SRS_REQUESTTHROTTLER_21_004: [The getForIotHub shall return the same throttler for all calls with the same hostName, and create it with the default configuration on the first call.] */
+        throttler = DEFAULT_THROTTLERS.computeIfAbsent(key, newKey -> new RequestThrottler());
+        throttler.lastUsedNanos = System.nanoTime();
+        return throttler;
+    }
+
+    /**
+     * Replace the throttler shared by all service clients of the provided IotHub.
+     *
+     * @param hostName the IotHub host name.
+     * @param throttler the new throttler. If it is {@code null}, the next call to {@link #getForIotHub(String)}
+     *                  creates a new one with the default configuration.
+     */
+    public static void setForIotHub(String hostName, RequestThrottler throttler)
+    {
+        if (throttler == null)
+        {
+            /* Codes_SRS_REQUESTTHROTTLER_21_005: [If the throttler is null, the setForIotHub shall discard the throttler of the hostName.] */
+            CONFIGURED_THROTTLERS.remove(toKey(hostName));
+        }
+        else
+        {
+            /* Codes_SRS_REQUESTTHROTTLER_21_006: [The setForIotHub shall store the throttler as the one for the hostName, and keep it until it is set to null.] */
+            CONFIGURED_THROTTLERS.put(toKey(hostName), throttler);
+        }
+        DEFAULT_THROTTLERS.remove(toKey(hostName));
+    }
+
+    /**
+     * Getter for the current rate of the provided operation class.
+     *
+     * @param operationClass the operation class.
+     * @return the rate in requests per second, or {@code 0} if the rate is not limited.
+     * @throws IllegalArgumentException if the operationClass is {@code null}.
+     */
+    public double getRatePerSecond(OperationClass operationClass) throws IllegalArgumentException
+    {
+        if (operationClass == null)
+        {
+            throw new IllegalArgumentException("operationClass cannot be null");
+        }
+
+        /* Codes_SRS_REQUESTTHROTTLER_21_007: [The getRatePerSecond shall return the rate of the limiter of the operationClass, or 0 for a pass through throttler.] */
+        return this.isEnabled ? this.limiters.get(operationClass).getRatePerSecond() : 0;
+    }
+
+    /**
+     * Send a request that may not be idempotent, waiting for the rate of its operation class. If the IotHub
+     * throttles it, it is not sent again.
+     *
+     * @param operationClass the operation class of the request.
+     * @param sender the sender that creates and sends the request.
+     * @return the response.
+     * @throws IllegalArgumentException if the operationClass or the sender is {@code null}.
+     * @throws InterruptedIOException if the thread is interrupted while it waits.
+     * @throws IOException if the sender failed.
+     */
+    public HttpResponse send(OperationClass operationClass, HttpSender sender) throws IllegalArgumentException, IOException
+    {
+        /* Codes_SRS_REQUESTTHROTTLER_21_021: [If the request is not idempotent, the send shall not send it again when the IotHub throttles it.] */
+        return send(operationClass, false, sender);
+    }
+
+    /**
+     * Send a request, waiting for the rate of its operation class, and sending it again if the IotHub throttles it
+     * and it is idempotent.
+     *
+     * @param operationClass the operation class of the request.
+     * @param isIdempotent {@code true} if the request can be sent again without changing its result.
+     * @param sender the sender that creates and sends each attempt of the request.
+     * @return the response of the last attempt. It is a throttled response only if all retries were throttled,
+     *         or the request is not idempotent.
+     * @throws IllegalArgumentException if the operationClass or the sender is {@code null}.
+     * @throws InterruptedIOException if the thread is interrupted while it waits.
+     * @throws IOException if the sender failed.
+     */
+    public HttpResponse send(OperationClass operationClass, boolean isIdempotent, HttpSender sender) throws IllegalArgumentException, IOException
+    {
+        return send(operationClass, sender, () -> isIdempotent);
+    }
+
+    private HttpResponse send(OperationClass operationClass, HttpSender sender, BooleanSupplier isIdempotent) throws IllegalArgumentException, IOException
+    {
+        /* Codes_SRS_REQUESTTHROTTLER_21_008: [The send shall throw IllegalArgumentException if the operationClass or the sender is null.] */
+        if ((operationClass == null) || (sender == null))
+        {
+            throw new IllegalArgumentException("operationClass and sender cannot be null");
+        }
+
+        if (!this.isEnabled)
+        {
+            /* Codes_SRS_REQUESTTHROTTLER_21_009: [A pass through throttler shall send the request once and return its response.] */
+            return sender.send();
+        }
+
+        this.lastUsedNanos = System.nanoTime();
+        AdaptiveRateLimiter limiter = this.limiters.get(operationClass);
+        int attempt = 0;
+        while (true)
+        {
+            /* Codes_SRS_REQUESTTHROTTLER_21_010: [The send shall wait for the limiter of the operationClass before each attempt.] */
+            limiter.acquire();
+            HttpResponse response = sender.send();
+
+            int status = response.getStatus();
+            if ((status != HTTP_STATUS_TOO_MANY_REQUESTS) && (status != HTTP_STATUS_SERVER_BUSY))
+            {
+                /* Codes_SRS_REQUESTTHROTTLER_21_011: [If the response is not throttled, the send shall report the success to the limiter and return the response.] */
+                limiter.onSuccess();
+                return response;
+            }
+
+            /* Codes_SRS_REQUESTTHROTTLER_21_012: [If the response status is 429 or 503, the send shall report it to the limiter with the Retry-After of the response.] */
+            long retryAfterInMs = getRetryAfterInMs(response);
+            limiter.onThrottled(retryAfterInMs);
+
+            if ((attempt >= this.maxRetries) || !isIdempotent.getAsBoolean())
+            {
+                /* Codes_SRS_REQUESTTHROTTLER_21_013: [If the request was throttled more than maxRetries times, or it is not idempotent, the send shall return the throttled response.] */
+                return response;
+            }
+
+            /* Codes_SRS_REQUESTTHROTTLER_21_014: [Before each retry, the send shall wait a random time up to the backoff, that starts on baseBackoffInMs and doubles on each retry, up to maxBackoffInMs.] */
+            sleep(getBackoffInMs(attempt));
+            attempt++;
+        }
+    }
+
+    /**
+     * Send a request like {@link #send(OperationClass, boolean, HttpSender)}, and report it to the listeners of the
+     * {@link ServiceInstrumentation}, with all its attempts. The request is sent again only if
+     * {@link HttpRequest#isIdempotent()}.
+     *
+     * @param operationClass the operation class of the request.
+     * @param requestFactory the factory that creates each attempt of the request.
+     * @return the response of the last attempt. It is a throttled response only if all retries were throttled.
+     * @throws IllegalArgumentException if the operationClass or the requestFactory is {@code null}.
+     * @throws InterruptedIOException if the thread is interrupted while it waits.
+     * @throws IOException if the request failed.
+     */
+    public HttpResponse send(OperationClass operationClass, HttpRequestFactory requestFactory) throws IllegalArgumentException, IOException
+    {
+        if ((operationClass == null) || (requestFactory == null))
+        {
+            throw new IllegalArgumentException("operationClass and requestFactory cannot be null");
+        }
+
+        /* Codes_SRS_REQUESTTHROTTLER_21_023: [The send shall send the request again when the IotHub throttles it only if the request created by the requestFactory is idempotent.] */
+        AtomicBoolean isIdempotent = new AtomicBoolean(false);
+        if (!ServiceInstrumentation.isEnabled())
+        {
+            /* Codes_SRS_REQUESTTHROTTLER_21_017: [If no listener is registered in the ServiceInstrumentation, the send shall send each request created by the requestFactory without recording it.] */
+            return send(operationClass, () ->
+            {
+                HttpRequest request = requestFactory.create();
+                isIdempotent.set(request.isIdempotent());
+                return request.send();
+            }, isIdempotent::get);
+        }
+
+        /* Codes_SRS_REQUESTTHROTTLER_21_018: [The send shall record the url, method, Request-Id, body length, status, and response body length of each attempt.] */
+        ServiceOperationRecorder recorder = new ServiceOperationRecorder(operationClass);
+        HttpResponse response;
+        try
+        {
+            response = send(operationClass, () ->
+            {
+                HttpRequest request = requestFactory.create();
+                isIdempotent.set(request.isIdempotent());
+                URL url = request.getUrl();
+                HttpMethod method = request.getMethod();
+                recorder.onRequest((url == null) ? null : url.getHost(), (method == null) ? null : method.name(),
+                        (url == null) ? null : url.getPath(), request.getRequestId(), request.getBodyLength());
+                HttpResponse attemptResponse = request.send();
+                recorder.onResponse(attemptResponse.getStatus(), attemptResponse.getBody().length);
+                return attemptResponse;
+            }, isIdempotent::get);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            /* Codes_SRS_REQUESTTHROTTLER_21_019: [If the request fails, the send shall report the operation with its exception to the ServiceInstrumentation, and rethrow it.] */
+            recorder.onCompleted(e);
+            throw e;
+        }
+
+        /* Codes_SRS_REQUESTTHROTTLER_21_020: [The send shall report the operation, with the response of the last attempt, to the ServiceInstrumentation.] */
+        recorder.onCompleted(null);
+        return response;
+    }
+
+    long getBackoffInMs(int attempt)
+    {
+        long backoffInMs = this.baseBackoffInMs;
+        for (int i = 0; (i < attempt) && (backoffInMs < this.maxBackoffInMs); i++)
+        {
+            backoffInMs *= 2;
+        }
+        return ThreadLocalRandom.current().nextLong(Math.min(backoffInMs, this.maxBackoffInMs) + 1);
+    }
+
+    static long getRetryAfterInMs(HttpResponse response)
+    {
+        Map<String, String> headerFields = response.getHeaderFields();
+        String retryAfter = (headerFields == null) ? null : headerFields.get(RETRY_AFTER);
+        if ((retryAfter == null) || retryAfter.trim().isEmpty())
+        {
+            return 0;
+        }
+        retryAfter = retryAfter.trim();
+
+        try
+        {
+            /* Codes_SRS_REQUESTTHROTTLER_21_015: [The Retry-After shall be parsed as a number of seconds, or as an http date.] */
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter)));
+        }
+        catch (NumberFormatException e)
+        {
+            try
+            {
+                ZonedDateTime retryTime = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, retryTime.toInstant().toEpochMilli() - System.currentTimeMillis());
+            }
+            catch (DateTimeParseException e2)
+            {
+                /* Codes_SRS_REQUESTTHROTTLER_21_016: [An invalid Retry-After shall be ignored.] */
+                return 0;
+            }
+        }
+    }
+
+    private static void discardIdleThrottlers()
+    {
+        long now = System.nanoTime();
+        long lastCheck = LAST_IDLE_CHECK_NANOS.get();
+        if ((now - lastCheck < IDLE_THROTTLER_CHECK_INTERVAL_NANOS) || !LAST_IDLE_CHECK_NANOS.compareAndSet(lastCheck, now))
+        {
+            return;
+        }
+
+        DEFAULT_THROTTLERS.values().removeIf(throttler -> now - throttler.lastUsedNanos >= IDLE_THROTTLER_TIMEOUT_NANOS);
+    }
+
+    private static void sleep(long timeInMs) throws InterruptedIOException
+    {
+        try
+        {
+            Thread.sleep(timeInMs);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry a throttled request");
+        }
+    }
+
+    private static String toKey(String hostName)
+    {
+        return (hostName == null) ? "" : hostName.toLowerCase();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reports the latency, status, retries, throttling, and payload sizes of the operations of all service clients
+ * in the JVM to the registered {@link ServiceOperationListener}s.
+ *
+ * <p>
+ *     The REST operations of the RegistryManager, DeviceTwin, DeviceMethod, and JobClient are reported by the
+ *     {@link RequestThrottler}, and the cloud to device messages of the ServiceClient by its AMQP sender. While
+ *     no listener is registered, the service clients do not measure anything.
+ * </p>
+ */
+public final class ServiceInstrumentation
+{
+    private static final List<ServiceOperationListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private ServiceInstrumentation()
+    {
+    }
+
+    /**
+     * Register a listener for the operations of all service clients.
+     *
+     * @param listener the listener to add.
+     * @throws IllegalArgumentException if the listener is {@code null}.
+     */
+    public static void addListener(ServiceOperationListener listener) throws IllegalArgumentException
+    {
+        /* Codes_SRS_SERVICEINSTRUMENTATION_21_001: [The addListener shall throw IllegalArgumentException if the listener is null.] */
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("listener cannot be null");
+        }
+
+        /* Codes_SRS_SERVICEINSTRUMENTATION_21_002: [The addListener shall register the listener.] */
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Unregister a listener. It does nothing if the listener is not registered.
+     *
+     * @param listener the listener to remove.
+     */
+    public static void removeListener(ServiceOperationListener listener)
+    {
+        /* Codes_SRS_SERVICEINSTRUMENTATION_21_003: [The removeListener shall unregister the listener.] */
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Check if any listener is registered.
+     *
+     * @return {@code true} if the operations shall be recorded, {@code false} otherwise.
+     */
+    public static boolean isEnabled()
+    {
+        /* Codes_SRS_SERVICEINSTRUMENTATION_21_004: [The isEnabled shall return true if at least one listener is registered, and false otherwise.] */
+        return !LISTENERS.isEmpty();
+    }
+
+    /**
+     * Report a completed operation to all registered listeners.
+     *
+     * @param operation the completed operation.
+     */
+    static void report(ServiceOperation operation)
+    {
+        for (ServiceOperationListener listener : LISTENERS)
+        {
+            try
+            {
+                /* Codes_SRS_SERVICEINSTRUMENTATION_21_005: [The report shall call all registered listeners with the operation.] */
+                listener.onOperationCompleted(operation);
+            }
+            catch (RuntimeException e)
+            {
+                /* Codes_SRS_SERVICEINSTRUMENTATION_21_006: [The report shall ignore the exceptions of the listeners, so they do not fail the operation.] */
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+/**
+ * Outcome of one operation of the service clients, reported to the {@link ServiceOperationListener}s of the
+ * {@link ServiceInstrumentation}.
+ *
+ * <p>
+ *     One operation is one call to the IotHub, like one REST request of the RegistryManager, or one cloud to
+ *     device message of the ServiceClient. A REST request throttled by the IotHub is sent again by the
+ *     {@link RequestThrottler}, so an operation may have more than one attempt; its latency includes the wait
+ *     of the rate limiter and of the backoff between the attempts.
+ * </p>
+ */
+public final class ServiceOperation
+{
+    /** The status of an operation without any HTTP response, like an AMQP send, or a request that failed to connect. */
+    public static final int NO_STATUS = -1;
+
+    private static final int HTTP_STATUS_BAD_REQUEST = 400;
+
+    private final String hostName;
+    private final OperationClass operationClass;
+    private final String method;
+    private final String path;
+    private final String requestId;
+    private final int status;
+    private final int attempts;
+    private final int throttledAttempts;
+    private final long requestSize;
+    private final long responseSize;
+    private final long latencyNanos;
+    private final Exception error;
+
+    ServiceOperation(String hostName, OperationClass operationClass, String method, String path, String requestId,
+                     int status, int attempts, int throttledAttempts, long requestSize, long responseSize,
+                     long latencyNanos, Exception error)
+    {
+        this.hostName = hostName;
+        this.operationClass = operationClass;
+        this.method = method;
+        this.path = path;
+        this.requestId = requestId;
+        this.status = status;
+        this.attempts = attempts;
+        this.throttledAttempts = throttledAttempts;
+        this.requestSize = requestSize;
+        this.responseSize = responseSize;
+        this.latencyNanos = latencyNanos;
+        this.error = error;
+    }
+
+    /**
+     * Getter for the IotHub host name.
+     *
+     * @return the host name, or {@code null} if the operation failed before its first request.
+     */
+    public String getHostName()
+    {
+        return this.hostName;
+    }
+
+    /**
+     * Getter for the class of the operation.
+     *
+     * @return the operation class.
+     */
+    public OperationClass getOperationClass()
+    {
+        return this.operationClass;
+    }
+
+    /**
+     * Getter for the method of the operation, like {@code GET} or {@code PUT} for REST requests, or
+     * {@code SEND} for cloud to device messages.
+     *
+     * @return the method, or {@code null} if the operation failed before its first request.
+     */
+    public String getMethod()
+    {
+        return this.method;
+    }
+
+    /**
+     * Getter for the path of the request url, or the target address of an AMQP message.
+     *
+     * @return the path, or {@code null} if the operation failed before its first request.
+     */
+    public String getPath()
+    {
+        return this.path;
+    }
+
+    /**
+     * Getter for the id that correlates the operation with the IotHub logs: the {@code Request-Id} header of
+     * a REST request, or the message id of a cloud to device message.
+     *
+     * @return the request id, or {@code null} if the operation has none.
+     */
+    public String getRequestId()
+    {
+        return this.requestId;
+    }
+
+    /**
+     * Getter for the HTTP status of the last attempt.
+     *
+     * @return the status, or {@link #NO_STATUS} if there is no HTTP response.
+     */
+    public int getStatus()
+    {
+        return this.status;
+    }
+
+    /**
+     * Getter for the number of requests sent for this operation. It is {@code 1} plus the number of retries.
+     *
+     * @return the number of attempts.
+     */
+    public int getAttempts()
+    {
+        return this.attempts;
+    }
+
+    /**
+     * Getter for the number of attempts that the IotHub throttled, with status 429 (too many requests) or
+     * 503 (server busy).
+     *
+     * @return the number of throttled attempts.
+     */
+    public int getThrottledAttempts()
+    {
+        return this.throttledAttempts;
+    }
+
+    /**
+     * Getter for the size of the payload of the last request.
+     *
+     * @return the size in bytes.
+     */
+    public long getRequestSize()
+    {
+        return this.requestSize;
+    }
+
+    /**
+     * Getter for the size of the body of the last response.
+     *
+     * @return the size in bytes.
+     */
+    public long getResponseSize()
+    {
+        return this.responseSize;
+    }
+
+    /**
+     * Getter for the time from the start of the operation to its last response or failure.
+     *
+     * @return the latency in nanoseconds.
+     */
+    public long getLatencyNanos()
+    {
+        return this.latencyNanos;
+    }
+
+    /**
+     * Getter for the exception that ended the operation.
+     *
+     * @return the exception, or {@code null} if the operation received a response.
+     */
+    public Exception getError()
+    {
+        return this.error;
+    }
+
+    /**
+     * Check if the operation succeeded: it did not fail with an exception, and the HTTP status, if any, is
+     * not an error.
+     *
+     * @return {@code true} if the operation succeeded, {@code false} otherwise.
+     */
+    public boolean isSuccess()
+    {
+        return (this.error == null) && (this.status < HTTP_STATUS_BAD_REQUEST);
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.operationClass + " " + this.method + " " + this.hostName + this.path +
+                " requestId=" + this.requestId +
+                " status=" + this.status +
+                " attempts=" + this.attempts +
+                " throttled=" + this.throttledAttempts +
+                " requestSize=" + this.requestSize +
+                " responseSize=" + this.responseSize +
+                " latencyNanos=" + this.latencyNanos +
+                ((this.error == null) ? "" : (" error=" + this.error));
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+/**
+ * Listener of the operations of the service clients, added with {@link ServiceInstrumentation#addListener}.
+ *
+ * <p>
+ *     The listener is called on the thread that executed the operation, after its last response and before
+ *     the service client returns it. It shall return quickly, and shall be thread safe, because the service
+ *     clients execute operations in parallel. An exception thrown by the listener is ignored.
+ * </p>
+ */
+@FunctionalInterface
+public interface ServiceOperationListener
+{
+    /**
+     * Called when an operation completes, with success or not.
+     *
+     * @param operation the outcome of the operation.
+     */
+    void onOperationCompleted(ServiceOperation operation);
+}
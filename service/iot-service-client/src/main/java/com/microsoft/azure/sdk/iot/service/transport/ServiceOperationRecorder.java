@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+/**
+ * Records the attempts of one operation, and reports it to the {@link ServiceInstrumentation} when it completes.
+ *
+ * <p>
+ *     Create the recorder only if {@link ServiceInstrumentation#isEnabled()}, so the service clients do not
+ *     measure anything while no listener is registered.
+ * </p>
+ */
+public final class ServiceOperationRecorder
+{
+    private static final int HTTP_STATUS_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_STATUS_SERVER_BUSY = 503;
+
+    private final OperationClass operationClass;
+    private final long startNanos;
+
+    private String hostName;
+    private String method;
+    private String path;
+    private String requestId;
+    private long requestSize;
+    private int status = ServiceOperation.NO_STATUS;
+    private long responseSize;
+    private int attempts;
+    private int throttledAttempts;
+
+    /**
+     * Start to record an operation.
+     *
+     * @param operationClass the class of the operation.
+     * @throws IllegalArgumentException if the operationClass is {@code null}.
+     */
+    public ServiceOperationRecorder(OperationClass operationClass) throws IllegalArgumentException
+    {
+        /* Codes_SRS_SERVICEOPERATIONRECORDER_21_001: [The constructor shall throw IllegalArgumentException if the operationClass is null.] */
+        if (operationClass == null)
+        {
+            throw new IllegalArgumentException("operationClass cannot be null");
+        }
+
+        /* Codes_SRS_SERVICEOPERATIONRECORDER_21_002: [The constructor shall store the operationClass and the current time as the start of the operation.] */
+        this.operationClass = operationClass;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Record an attempt of the operation, before it is sent.
+     *
+     * @param hostName the IotHub host name.
+     * @param method the method of the request.
+     * @param path the path of the request url, or the target address of the message.
+     * @param requestId the id of the request, or {@code null} if it has none.
+     * @param requestSize the size of the request payload in bytes.
+     */
+    public void onRequest(String hostName, String method, String path, String requestId, long requestSize)
+    {
+        /* Codes_SRS_SERVICEOPERATIONRECORDER_21_003: [The onRequest shall count one attempt, and store the provided request information, replacing the one of the previous attempt.] */
+        this.attempts++;
+        this.hostName = hostName;
+        this.method = method;
+        this.path = path;
+        this.requestId = requestId;
+        this.requestSize = requestSize;
+    }
+
+    /**
+     * Record the HTTP response of the last attempt.
+     *
+     * @param status the HTTP status.
+     * @param responseSize the size of the response body in bytes.
+     */
+    public void onResponse(int status, long responseSize)
+    {
+        /* Codes_SRS_SERVICEOPERATIONRECORDER_21_004: [The onResponse shall store the status and response size of the last attempt.] */
+        this.status = status;
+        this.responseSize = responseSize;
+
+        /* Codes_SRS_SERVICEOPERATIONRECORDER_21_005: [If the status is 429 or 503, the onResponse shall count one throttled attempt.] */
+        if ((status == HTTP_STATUS_TOO_MANY_REQUESTS) || (status == HTTP_STATUS_SERVER_BUSY))
+        {
+            this.throttledAttempts++;
+        }
+    }
+
+    /**
+     * Complete the operation, and report it to the listeners of the {@link ServiceInstrumentation}.
+     *
+     * @param error the exception that ended the operation, or {@code null} if it received a response.
+     */
+    public void onCompleted(Exception error)
+    {
+        /* Codes_SRS_SERVICEOPERATIONRECORDER_21_006: [The onCompleted shall report the operation, with the latency since the start and the provided error, to the ServiceInstrumentation.] */
+        ServiceInstrumentation.report(new ServiceOperation(this.hostName, this.operationClass, this.method, this.path,
+                this.requestId, this.status, this.attempts, this.throttledAttempts, this.requestSize, this.responseSize,
+                System.nanoTime() - this.startNanos, error));
+    }
+}
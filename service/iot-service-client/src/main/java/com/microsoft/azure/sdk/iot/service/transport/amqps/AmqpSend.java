@@ -9,6 +9,9 @@ import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.Message;
 import com.microsoft.azure.sdk.iot.service.Tools;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.transport.OperationClass;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceInstrumentation;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceOperationRecorder;
 import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.engine.BaseHandler;
 import org.apache.qpid.proton.engine.Event;
@@ -24,6 +27,8 @@ import java.io.IOException;
  */
 public class AmqpSend extends BaseHandler
 {
+    private static final String SEND_METHOD = "SEND";
+
     protected final String hostName;
     protected final String userName;
     protected final String sasToken;
@@ -116,15 +121,42 @@ public class AmqpSend extends BaseHandler
       {
         if  (amqpSendHandler != null)
         {
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_006: [The function shall create a binary message with the given content]
-            amqpSendHandler.createProtonMessage(deviceId, message);
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_007: [The function shall initialize the Proton reactor object]
-            this.reactor = Proton.reactor(this);
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_008: [The function shall start the Proton reactor object]
-            this.reactor.run();
-            this.reactor.free();
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_25_010: [** The function shall call sendComplete to identify the status of sent message and throws exception if thrown by sendComplete **]**
-            amqpSendHandler.sendComplete();
+            ServiceOperationRecorder recorder = null;
+            if (ServiceInstrumentation.isEnabled())
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_21_011: [If any listener is registered in the ServiceInstrumentation, the function shall record the send as a MESSAGING operation, with the device path, message id, and body size.]
+                recorder = new ServiceOperationRecorder(OperationClass.MESSAGING);
+                recorder.onRequest(this.hostName, SEND_METHOD, String.format(AmqpSendHandler.DEVICE_PATH_FORMAT, deviceId),
+                        (message == null) ? null : message.getMessageId(), getBodySize(message));
+            }
+
+            try
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_006: [The function shall create a binary message with the given content]
+                amqpSendHandler.createProtonMessage(deviceId, message);
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_007: [The function shall initialize the Proton reactor object]
+                this.reactor = Proton.reactor(this);
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_008: [The function shall start the Proton reactor object]
+                this.reactor.run();
+                this.reactor.free();
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_25_010: [** The function shall call sendComplete to identify the status of sent message and throws exception if thrown by sendComplete **]**
+                amqpSendHandler.sendComplete();
+            }
+            catch (IOException | IotHubException | RuntimeException e)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_21_012: [If the send fails, the function shall report the operation with its exception to the ServiceInstrumentation.]
+                if (recorder != null)
+                {
+                    recorder.onCompleted(e);
+                }
+                throw e;
+            }
+
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_21_013: [The function shall report the completed send to the ServiceInstrumentation.]
+            if (recorder != null)
+            {
+                recorder.onCompleted(null);
+            }
         }
         else
         {
@@ -135,4 +167,8 @@ public class AmqpSend extends BaseHandler
 
     }
 
+    private static int getBodySize(Message message)
+    {
+        return ((message == null) || (message.getBytes() == null)) ? 0 : message.getBytes().length;
+    }
 }
@@ -210,6 +210,22 @@ public class HttpConnection
         return input;
     }
 
+    /**
+     * Returns the input stream (response stream), without reading it. The
+     * caller owns the stream, and shall close it after reading it.
+     *
+     * @return The response body stream.
+     *
+     * @throws IOException This exception thrown if the input stream could not be
+     * accessed, for example if the server could not be reached.
+     */
+    public InputStream getInputStream() throws IOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_21_024: [The function shall return the input stream (response stream) without reading it.]
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_21_025: [The function shall throw an IOException if the input stream could not be accessed.]
+        return this.connection.getInputStream();
+    }
+
     /**
      * Reads from the error stream and returns the error reason.
      *
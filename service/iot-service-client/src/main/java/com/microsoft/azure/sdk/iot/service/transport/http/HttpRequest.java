@@ -8,15 +8,26 @@ package com.microsoft.azure.sdk.iot.service.transport.http;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.List;
 import java.util.Map;
 
 public class HttpRequest
 {
+    private static final String REQUEST_ID = "Request-Id";
+    private static final String IF_MATCH = "If-Match";
+    private static final String IF_MATCH_ANY = "*";
+
     /** The underlying HTTPS connection stream. */
     protected final HttpConnection connection;
 
+    private final URL url;
+    private final HttpMethod method;
+    private final int bodyLength;
+    private String requestId;
+    private boolean hasIfMatchETag;
+
     /**
      * Constructor. Takes a URL as an argument and returns an HTTPS request that
      * is ready to be sent.
@@ -39,6 +50,9 @@ public class HttpRequest
         this.connection.setRequestHeader("User-Agent", TransportUtils.javaServiceClientIdentifier + TransportUtils.serviceVersion);
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_002: [The function shall write the body to the connection.]
         this.connection.writeOutput(body);
+        this.url = url;
+        this.method = method;
+        this.bodyLength = (body == null) ? 0 : body.length;
     }
 
     /**
@@ -87,6 +101,45 @@ public class HttpRequest
                 errorReason);
     }
 
+    /**
+     * Executes the HTTPS request, without reading the response body. The body
+     * is returned as a stream, so the caller can start processing it before it
+     * has been completely received.
+     *
+     * @return The HTTPS response with the body stream. The caller shall close it.
+     *
+     * @throws IOException This exception thrown if the connection could not be
+     * established, or the input/output streams could not be accessed.
+     */
+    public HttpStreamingResponse sendStreaming() throws IOException
+    {
+        int responseStatus = -1;
+        InputStream responseBodyStream = null;
+        byte[] errorReason = new byte[0];
+        Map<String, List<String>> headerFields;
+        try
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_011: [The function shall send an HTTPS request as formatted in the constructor.]
+            this.connection.connect();
+
+            responseStatus = this.connection.getResponseStatus();
+            headerFields = this.connection.getResponseHeaders();
+            // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_012: [The function shall not read the response body, and shall return it as a stream.]
+            responseBodyStream = this.connection.getInputStream();
+        }
+        catch (IOException e)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_013: [If the client cannot connect to the server, the function shall throw an IOException.]
+            responseStatus = this.connection.getResponseStatus();
+            headerFields = this.connection.getResponseHeaders();
+            // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_014: [If an I/O exception occurs because of a bad response status code, the function shall read the error stream, and return a response with an empty body stream.]
+            errorReason = this.connection.readError();
+        }
+
+        return new HttpStreamingResponse(responseStatus, responseBodyStream, headerFields,
+                errorReason);
+    }
+
     /**
      * Sets the header field to the given value.
      *
@@ -99,6 +152,15 @@ public class HttpRequest
     {
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_009: [The function shall set the header field with the given name to the given value.]
         this.connection.setRequestHeader(field, value);
+        if (REQUEST_ID.equalsIgnoreCase(field))
+        {
+            this.requestId = value;
+        }
+        else if (IF_MATCH.equalsIgnoreCase(field))
+        {
+            // "If-Match: *" matches any version, so only a concrete etag pins the request to one version.
+            this.hasIfMatchETag = (value != null) && !value.trim().isEmpty() && !IF_MATCH_ANY.equals(value.trim());
+        }
         return this;
     }
 
@@ -118,8 +180,68 @@ public class HttpRequest
         return this;
     }
 
+    /**
+     * Getter for the URL of the request.
+     *
+     * @return The URL.
+     */
+    public URL getUrl()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_015: [The function shall return the URL given in the constructor.]
+        return this.url;
+    }
+
+    /**
+     * Getter for the HTTPS request method.
+     *
+     * @return The request method.
+     */
+    public HttpMethod getMethod()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_016: [The function shall return the method given in the constructor.]
+        return this.method;
+    }
+
+    /**
+     * Getter for the size of the request body.
+     *
+     * @return The size in bytes.
+     */
+    public int getBodyLength()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_017: [The function shall return the length of the body given in the constructor.]
+        return this.bodyLength;
+    }
+
+    /**
+     * Getter for the Request-Id header field, that correlates the request with the IotHub logs.
+     *
+     * @return The request id, or {@code null} if the header field is not set.
+     */
+    public String getRequestId()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_018: [The function shall return the last value set for the Request-Id header field, or null if it was not set.]
+        return this.requestId;
+    }
+
+    /**
+     * Check if the request can be sent again without changing its result, because it is a GET, or the IotHub
+     * only applies it to the version in the etag of the If-Match header field. The If-Match value {@code *}
+     * matches any version, so it does not make the request idempotent.
+     *
+     * @return {@code true} if the request can be sent again, {@code false} otherwise.
+     */
+    public boolean isIdempotent()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_019: [The function shall return true if the method is GET, or the If-Match header field is set to an etag other than `*`, and false otherwise.]
+        return (this.method == HttpMethod.GET) || this.hasIfMatchETag;
+    }
+
     protected HttpRequest()
     {
         this.connection = null;
+        this.url = null;
+        this.method = null;
+        this.bodyLength = 0;
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An HTTPS response with the body as a stream. Contains the status code,
+ * body stream, header fields, and error reason (if any).
+ * <p>
+ * The body stream is not read by the response. The owner of the response
+ * shall read and close it, so the underlying connection can be reused.
+ */
+public class HttpStreamingResponse extends HttpResponse implements Closeable
+{
+    private final InputStream bodyStream;
+
+    /**
+     * Constructor.
+     *
+     * @param status The HTTPS status code.
+     * @param bodyStream The response body stream. It can be {@code null} if the response has no body.
+     * @param headerFields The map of header field names and the values associated with the field name.
+     * @param errorReason The error reason.
+     */
+    public HttpStreamingResponse(int status, InputStream bodyStream,
+                                 Map<String, List<String>> headerFields,
+                                 byte[] errorReason)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPSTREAMINGRESPONSE_21_001: [The constructor shall store the input arguments so that the getters can return them later.]
+        super(status, new byte[0], headerFields, errorReason);
+
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPSTREAMINGRESPONSE_21_002: [If the body stream is null, the constructor shall use an empty body stream.]
+        this.bodyStream = (bodyStream == null) ? new ByteArrayInputStream(new byte[0]) : bodyStream;
+    }
+
+    /**
+     * Getter for the response body stream.
+     *
+     * @return The response body stream.
+     */
+    public InputStream getBodyStream()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPSTREAMINGRESPONSE_21_003: [The function shall return the body stream given in the constructor.]
+        return this.bodyStream;
+    }
+
+    /**
+     * Closes the response body stream.
+     *
+     * @throws IOException This exception thrown if the body stream failed to close.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPSTREAMINGRESPONSE_21_004: [The function shall close the body stream.]
+        this.bodyStream.close();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.service.AsyncExecutors;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for AsyncExecutors.
+ * 100% methods, 100% lines covered
+ */
+public class AsyncExecutorsTest
+{
+    // Tests_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_001: [The function shall return the same bounded executor for all calls, and create it only on the first call.]
+    @Test
+    public void getDefaultExecutorIsShared()
+    {
+        // act
+        Executor executor1 = AsyncExecutors.getDefaultExecutor();
+        Executor executor2 = AsyncExecutors.getDefaultExecutor();
+
+        // assert
+        assertSame(executor1, executor2);
+        assertEquals(AsyncExecutors.DEFAULT_THREAD_COUNT, ((ThreadPoolExecutor)executor1).getMaximumPoolSize());
+        assertEquals(AsyncExecutors.DEFAULT_QUEUE_CAPACITY, ((ThreadPoolExecutor)executor1).getQueue().remainingCapacity());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_007: [The function shall return the same fan-out executor for all calls, separate from the default executor, and create it only on the first call.]
+    @Test
+    public void getDefaultFanOutExecutorIsSharedAndSeparate()
+    {
+        // act
+        Executor executor1 = AsyncExecutors.getDefaultFanOutExecutor();
+        Executor executor2 = AsyncExecutors.getDefaultFanOutExecutor();
+
+        // assert
+        assertSame(executor1, executor2);
+        assertNotSame(AsyncExecutors.getDefaultExecutor(), executor1);
+        assertEquals(AsyncExecutors.DEFAULT_FAN_OUT_THREAD_COUNT, ((ThreadPoolExecutor)executor1).getMaximumPoolSize());
+        assertTrue(((ThreadPoolExecutor)executor1).getRejectedExecutionHandler() instanceof ThreadPoolExecutor.CallerRunsPolicy);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_009: [The function shall return the same receive executor for all calls, separate from the default and the fan-out executors, and create it only on the first call.]
+    @Test
+    public void getDefaultReceiveExecutorIsSharedAndSeparate()
+    {
+        // act
+        Executor executor1 = AsyncExecutors.getDefaultReceiveExecutor();
+        Executor executor2 = AsyncExecutors.getDefaultReceiveExecutor();
+
+        // assert
+        assertSame(executor1, executor2);
+        assertNotSame(AsyncExecutors.getDefaultExecutor(), executor1);
+        assertNotSame(AsyncExecutors.getDefaultFanOutExecutor(), executor1);
+        assertEquals(AsyncExecutors.DEFAULT_RECEIVE_THREAD_COUNT, ((ThreadPoolExecutor)executor1).getMaximumPoolSize());
+        assertEquals(AsyncExecutors.DEFAULT_RECEIVE_QUEUE_CAPACITY, ((ThreadPoolExecutor)executor1).getQueue().remainingCapacity());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_002: [The function shall throw IllegalArgumentException if the threadCount or the queueCapacity is less than 1.]
+    @Test (expected = IllegalArgumentException.class)
+    public void newBoundedExecutorZeroThreadsThrows()
+    {
+        // act
+        AsyncExecutors.newBoundedExecutor(0, 10);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_002: [The function shall throw IllegalArgumentException if the threadCount or the queueCapacity is less than 1.]
+    @Test (expected = IllegalArgumentException.class)
+    public void newBoundedExecutorZeroQueueThrows()
+    {
+        // act
+        AsyncExecutors.newBoundedExecutor(1, 0);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_003: [The function shall create an executor with up to threadCount daemon threads, that are stopped when idle, and a queue bounded to queueCapacity operations.]
+    @Test
+    public void newBoundedExecutorThreadsAreDaemonAndTimeOut() throws Exception
+    {
+        // arrange
+        ExecutorService executor = AsyncExecutors.newBoundedExecutor(2, 5);
+        final boolean[] isDaemon = new boolean[1];
+
+        // act
+        executor.submit(() -> isDaemon[0] = Thread.currentThread().isDaemon()).get();
+
+        // assert
+        assertTrue(isDaemon[0]);
+        assertTrue(((ThreadPoolExecutor)executor).allowsCoreThreadTimeOut());
+        assertEquals(2, ((ThreadPoolExecutor)executor).getMaximumPoolSize());
+        executor.shutdown();
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_004: [The executor shall reject new operations with RejectedExecutionException when the queue is full.]
+    @Test
+    public void newBoundedExecutorRejectsWhenQueueIsFull() throws Exception
+    {
+        // arrange
+        ExecutorService executor = AsyncExecutors.newBoundedExecutor(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() ->
+        {
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        executor.execute(() -> { });
+
+        // act
+        try
+        {
+            executor.execute(() -> { });
+            throw new AssertionError("RejectedExecutionException expected");
+        }
+        catch (RejectedExecutionException e)
+        {
+            // expected
+        }
+        finally
+        {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_008: [The executor shall run new operations in the caller thread when the queue is full.]
+    @Test
+    public void newCallerRunsExecutorRunsInCallerWhenQueueIsFull() throws Exception
+    {
+        // arrange
+        ExecutorService executor = AsyncExecutors.newCallerRunsExecutor(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() ->
+        {
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        executor.execute(() -> { });
+        final Thread[] runner = new Thread[1];
+
+        // act
+        try
+        {
+            executor.execute(() -> runner[0] = Thread.currentThread());
+        }
+        finally
+        {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        // assert
+        assertSame(Thread.currentThread(), runner[0]);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_005: [The function shall run the provided operation in the provided executor.]
+    @Test
+    public void executeRunsOperation()
+    {
+        // arrange
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        Executor executor = Runnable::run;
+
+        // act
+        Deencapsulation.invoke(AsyncExecutors.class, "execute",
+                new Class[] { Executor.class, CompletableFuture.class, Runnable.class },
+                executor, future, (Runnable) () -> future.complete(null));
+
+        // assert
+        assertTrue(future.isDone());
+        assertFalse(future.isCompletedExceptionally());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_ASYNCEXECUTORS_21_006: [If the executor rejects the operation, the function shall complete the provided future exceptionally with the RejectedExecutionException.]
+    @Test
+    public void executeRejectedCompletesExceptionally()
+    {
+        // arrange
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        Executor executor = runnable ->
+        {
+            throw new RejectedExecutionException();
+        };
+
+        // act
+        Deencapsulation.invoke(AsyncExecutors.class, "execute",
+                new Class[] { Executor.class, CompletableFuture.class, Runnable.class },
+                executor, future, (Runnable) () -> future.complete(null));
+
+        // assert
+        assertTrue(future.isCompletedExceptionally());
+    }
+}
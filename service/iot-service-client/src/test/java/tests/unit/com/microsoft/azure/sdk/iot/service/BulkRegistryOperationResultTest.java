@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.BulkRegistryOperationResultParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceRegistryOperationErrorParser;
+import com.microsoft.azure.sdk.iot.service.BulkRegistryOperationResult;
+import com.microsoft.azure.sdk.iot.service.DeviceRegistryOperationError;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.integration.junit4.JMockit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for BulkRegistryOperationResult.
+ * 100% methods, 100% lines covered
+ */
+@RunWith(JMockit.class)
+public class BulkRegistryOperationResultTest
+{
+    private static BulkRegistryOperationResult createResult(boolean isSuccessful, List<DeviceRegistryOperationError> errors)
+    {
+        return Deencapsulation.newInstance(BulkRegistryOperationResult.class, new Class[] { boolean.class, List.class }, isSuccessful, errors);
+    }
+
+    private static DeviceRegistryOperationError createError(String deviceId, String errorCode)
+    {
+        return Deencapsulation.newInstance(DeviceRegistryOperationError.class,
+                new Class[] { String.class, String.class, String.class }, deviceId, errorCode, "status");
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_001: [If the provided list of errors is null, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullErrorsThrows()
+    {
+        // act
+        createResult(true, null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_002: [The constructor shall store a copy of the provided list of errors, and the operation shall only be successful if the provided isSuccessful is true and there are no errors.]
+    // Tests_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_005: [The isSuccessful shall return true if the operation succeeded for all devices.]
+    @Test
+    public void constructorWithErrorsIsNotSuccessful()
+    {
+        // arrange
+        List<DeviceRegistryOperationError> errors = new ArrayList<>();
+        errors.add(createError("device1", "DeviceNotFound"));
+
+        // act
+        BulkRegistryOperationResult result = createResult(true, errors);
+        errors.clear();
+
+        // assert
+        assertFalse(result.isSuccessful());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(createResult(true, new ArrayList<DeviceRegistryOperationError>()).isSuccessful());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_003: [If the provided parser is null, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullParserThrows()
+    {
+        // act
+        Deencapsulation.newInstance(BulkRegistryOperationResult.class, new Class[] { BulkRegistryOperationResultParser.class }, (BulkRegistryOperationResultParser) null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_004: [The constructor shall convert the isSuccessful and each error in the provided parser.]
+    @Test
+    public void constructorConvertsParser(
+            @Mocked final BulkRegistryOperationResultParser mockParser,
+            @Mocked final DeviceRegistryOperationErrorParser mockErrorParser)
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockParser.isSuccessful();
+                result = false;
+                mockParser.getErrors();
+                result = Arrays.asList(mockErrorParser);
+                mockErrorParser.getDeviceId();
+                result = "device1";
+                mockErrorParser.getErrorCode();
+                result = "PreconditionFailed";
+            }
+        };
+
+        // act
+        BulkRegistryOperationResult result = Deencapsulation.newInstance(BulkRegistryOperationResult.class,
+                new Class[] { BulkRegistryOperationResultParser.class }, mockParser);
+
+        // assert
+        assertFalse(result.isSuccessful());
+        assertEquals(1, result.getErrors().size());
+        assertEquals("PreconditionFailed", result.getErrors().get(0).getErrorCode());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_006: [The getErrors shall return the unmodifiable list of errors.]
+    @Test (expected = UnsupportedOperationException.class)
+    public void getErrorsIsUnmodifiable()
+    {
+        // arrange
+        BulkRegistryOperationResult result = createResult(true, new ArrayList<DeviceRegistryOperationError>());
+
+        // act
+        result.getErrors().add(createError("device1", "DeviceNotFound"));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_21_007: [The getError shall return the first error for the provided deviceId, or null if there is none.]
+    @Test
+    public void getErrorFindsDevice()
+    {
+        // arrange
+        BulkRegistryOperationResult result = createResult(false,
+                Arrays.asList(createError("device1", "DeviceNotFound"), createError("device2", "PreconditionFailed")));
+
+        // act - assert
+        assertEquals("PreconditionFailed", result.getError("device2").getErrorCode());
+        assertNull(result.getError("device3"));
+    }
+}
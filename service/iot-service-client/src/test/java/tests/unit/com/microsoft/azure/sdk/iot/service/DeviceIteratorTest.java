@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.service.Device;
+import com.microsoft.azure.sdk.iot.service.DeviceIterator;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Unit tests for DeviceIterator.
+ * 100% methods, 100% lines covered
+ */
+public class DeviceIteratorTest
+{
+    private static final String DEVICE_JSON_FORMAT =
+            "{\"deviceId\":\"%s\",\"generationId\":\"\",\"etag\":\"\",\"status\":\"Disabled\",\"statusReason\":\"\"," +
+            "\"statusUpdatedTime\":\"0001-01-01T00:00:00\",\"connectionState\":\"Disconnected\"," +
+            "\"connectionStateUpdatedTime\":\"0001-01-01T00:00:00\",\"cloudToDeviceMessageCount\":0," +
+            "\"authentication\":{\"type\":\"sas\",\"symmetricKey\":{\"primaryKey\":\"CZJIeLzepSADZe3Z9mQsCg\\u003d\\u003d\"," +
+            "\"secondaryKey\":\"wP7t1W95u6zF8ocRGSAoYQ\\u003d\\u003d\"}}}";
+
+    private static class TrackingInputStream extends ByteArrayInputStream
+    {
+        private int closeCount = 0;
+
+        TrackingInputStream(String content)
+        {
+            super(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            closeCount++;
+            super.close();
+        }
+    }
+
+    private static DeviceIterator createIterator(InputStream stream)
+    {
+        return Deencapsulation.newInstance(DeviceIterator.class, new Class[] { InputStream.class }, stream);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_001: [The constructor shall throw IllegalArgumentException if the input stream is null.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullStreamThrows()
+    {
+        // act
+        createIterator(null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_007: [The function shall parse the next device straight from the response stream, and return it.]
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_004: [If the response has no more devices, the function shall close the iterator and return false.]
+    @Test
+    public void iteratesAllDevicesAndClosesStream()
+    {
+        // arrange
+        TrackingInputStream stream = new TrackingInputStream(
+                "[" + String.format(DEVICE_JSON_FORMAT, "device1") + "," + String.format(DEVICE_JSON_FORMAT, "device2") + "]");
+
+        // act
+        DeviceIterator iterator = createIterator(stream);
+        Device device1 = iterator.next();
+        Device device2 = iterator.next();
+
+        // assert
+        assertEquals("device1", device1.getDeviceId());
+        assertEquals("device2", device2.getDeviceId());
+        assertFalse(iterator.hasNext());
+        assertEquals(1, stream.closeCount);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_003: [If the iterator is closed, the function shall return false.]
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_008: [The function shall close the response stream only once.]
+    @Test
+    public void closeBeforeEndStopsIteration() throws IOException
+    {
+        // arrange
+        TrackingInputStream stream = new TrackingInputStream("[" + String.format(DEVICE_JSON_FORMAT, "device1") + "]");
+        DeviceIterator iterator = createIterator(stream);
+
+        // act
+        iterator.close();
+        iterator.close();
+
+        // assert
+        assertFalse(iterator.hasNext());
+        assertEquals(1, stream.closeCount);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_006: [If there are no more devices, the function shall throw NoSuchElementException.]
+    @Test (expected = NoSuchElementException.class)
+    public void nextOnEmptyArrayThrows()
+    {
+        // arrange
+        DeviceIterator iterator = createIterator(new TrackingInputStream("[]"));
+
+        // act
+        iterator.next();
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_005: [If the response stream failed, the function shall throw UncheckedIOException.]
+    @Test (expected = UncheckedIOException.class)
+    public void hasNextStreamFailureThrows()
+    {
+        // arrange
+        InputStream failingStream = new InputStream()
+        {
+            @Override
+            public int read() throws IOException
+            {
+                throw new IOException();
+            }
+        };
+        DeviceIterator iterator = createIterator(failingStream);
+
+        // act
+        iterator.hasNext();
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICEITERATOR_21_002: [The constructor shall not read any content from the input stream.]
+    @Test
+    public void constructorDoesNotReadStream()
+    {
+        // arrange
+        TrackingInputStream stream = new TrackingInputStream("[]");
+        int available = stream.available();
+
+        // act
+        createIterator(stream);
+
+        // assert
+        assertEquals(available, stream.available());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceRegistryOperationErrorParser;
+import com.microsoft.azure.sdk.iot.service.DeviceRegistryOperationError;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.integration.junit4.JMockit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for DeviceRegistryOperationError.
+ * 100% methods, 100% lines covered
+ */
+@RunWith(JMockit.class)
+public class DeviceRegistryOperationErrorTest
+{
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_001: [If the provided parser is null, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullParserThrows()
+    {
+        // act
+        Deencapsulation.newInstance(DeviceRegistryOperationError.class, new Class[] { DeviceRegistryOperationErrorParser.class }, (DeviceRegistryOperationErrorParser) null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_002: [The constructor shall copy the deviceId, errorCode, and errorStatus from the provided parser.]
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_004: [The getDeviceId shall return the stored deviceId.]
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_005: [The getErrorCode shall return the stored errorCode.]
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_006: [The getErrorStatus shall return the stored errorStatus.]
+    @Test
+    public void constructorCopiesParser(@Mocked final DeviceRegistryOperationErrorParser mockParser)
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockParser.getDeviceId();
+                result = "device1";
+                mockParser.getErrorCode();
+                result = "DeviceNotFound";
+                mockParser.getErrorStatus();
+                result = "The device was not found.";
+            }
+        };
+
+        // act
+        DeviceRegistryOperationError error = Deencapsulation.newInstance(DeviceRegistryOperationError.class,
+                new Class[] { DeviceRegistryOperationErrorParser.class }, mockParser);
+
+        // assert
+        assertEquals("device1", error.getDeviceId());
+        assertEquals("DeviceNotFound", error.getErrorCode());
+        assertEquals("The device was not found.", error.getErrorStatus());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_21_003: [The constructor shall store the provided deviceId, errorCode, and errorStatus.]
+    @Test
+    public void constructorStoresValues()
+    {
+        // act
+        DeviceRegistryOperationError error = Deencapsulation.newInstance(DeviceRegistryOperationError.class,
+                new Class[] { String.class, String.class, String.class }, "device1", "IOException", "connection reset");
+
+        // assert
+        assertEquals("device1", error.getDeviceId());
+        assertEquals("IOException", error.getErrorCode());
+        assertEquals("connection reset", error.getErrorStatus());
+    }
+}
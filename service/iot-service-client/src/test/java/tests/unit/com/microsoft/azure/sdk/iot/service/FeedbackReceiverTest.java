@@ -16,8 +16,11 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class FeedbackReceiverTest
 {
@@ -751,4 +754,34 @@ public class FeedbackReceiverTest
         CompletableFuture<FeedbackBatch> completableFuture = feedbackReceiver.receiveAsync(timeoutMs);
         completableFuture.get();
     }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_21_015: [The function shall throw IllegalArgumentException if the input executor is null, and otherwise run the async operations in it]
+    @Test (expected = IllegalArgumentException.class)
+    public void setExecutor_null_throws() throws Exception
+    {
+        // Arrange
+        FeedbackReceiver feedbackReceiver = new FeedbackReceiver("xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS);
+        // Act
+        Deencapsulation.invoke(feedbackReceiver, "setExecutor", new Class[] { Executor.class }, (Object) null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_21_015: [The function shall throw IllegalArgumentException if the input executor is null, and otherwise run the async operations in it]
+    @Test
+    public void receiveAsync_runs_in_provided_executor() throws Exception
+    {
+        // Arrange
+        final AtomicInteger executeCount = new AtomicInteger(0);
+        Executor executor = runnable ->
+        {
+            executeCount.incrementAndGet();
+            runnable.run();
+        };
+        FeedbackReceiver feedbackReceiver = new FeedbackReceiver("xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS);
+        Deencapsulation.invoke(feedbackReceiver, "setExecutor", executor);
+        // Act
+        CompletableFuture<FeedbackBatch> completableFuture = feedbackReceiver.receiveAsync(100);
+        // Assert
+        assertTrue(completableFuture.isDone());
+        assertEquals(1, executeCount.get());
+    }
 }
@@ -16,6 +16,11 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class FileUploadNotificationReceiverTest
 {
@@ -360,4 +365,39 @@ public class FileUploadNotificationReceiverTest
         };
 
     }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_21_014: [The function shall throw IllegalArgumentException if the input executor is null, and otherwise run the async operations in it]
+    @Test (expected = IllegalArgumentException.class)
+    public void setExecutorNullThrows() throws Exception
+    {
+        // Arrange
+        IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
+        FileUploadNotificationReceiver fileUploadNotificationReceiver = Deencapsulation.newInstance(FileUploadNotificationReceiver.class, "xxx", "xxx", "xxx", iotHubServiceClientProtocol);
+
+        // Act
+        Deencapsulation.invoke(fileUploadNotificationReceiver, "setExecutor", new Class[] { Executor.class }, (Object) null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_21_014: [The function shall throw IllegalArgumentException if the input executor is null, and otherwise run the async operations in it]
+    @Test
+    public void openAsyncRunsInProvidedExecutor() throws Exception
+    {
+        // Arrange
+        final AtomicInteger executeCount = new AtomicInteger(0);
+        Executor executor = runnable ->
+        {
+            executeCount.incrementAndGet();
+            runnable.run();
+        };
+        IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
+        FileUploadNotificationReceiver fileUploadNotificationReceiver = Deencapsulation.newInstance(FileUploadNotificationReceiver.class, "xxx", "xxx", "xxx", iotHubServiceClientProtocol);
+        Deencapsulation.invoke(fileUploadNotificationReceiver, "setExecutor", executor);
+
+        // Act
+        CompletableFuture<Void> completableFuture = fileUploadNotificationReceiver.openAsync();
+
+        // Assert
+        assertTrue(completableFuture.isDone());
+        assertEquals(1, executeCount.get());
+    }
 }
@@ -187,6 +187,27 @@ public class IotHubConnectionStringTest
         assertEquals("Device Statistics mismatch!", expected, actual);
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBCONNECTIONSTRING_21_026: [The function shall create a URL object from the object properties using the following format: https:hostname/devices?api-version=201X-XX-XX]
+    @Test
+    public void getUrlBulkRegistryOperationGoodCase() throws IOException
+    {
+        // arrange
+        final String iotHubName = "b.c.d";
+        final String hostName = "HOSTNAME." + iotHubName;
+        final String sharedAccessKeyName = "ACCESSKEYNAME";
+        final String policyName = "SharedAccessKey";
+        final String sharedAccessKey = "1234567890abcdefghijklmnopqrstvwxyz=";
+        final String connectionString = "HostName=" + hostName + ";SharedAccessKeyName=" + sharedAccessKeyName + ";" + policyName + "=" + sharedAccessKey;
+        final IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(connectionString);
+        final String expected = "https://HOSTNAME.b.c.d/devices?" + URL_API_VERSION;
+
+        // act
+        String actual = iotHubConnectionString.getUrlBulkRegistryOperation().toString();
+
+        // assert
+        assertEquals("Bulk registry operation mismatch!", expected, actual);
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBCONNECTIONSTRING_12_007: [The function shall serialize the object to a string using the following format: HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=;SharedAccessSignature=]
     @Test
     public void toStringGoodCase() throws IOException
@@ -5,26 +5,45 @@
 
 package tests.unit.com.microsoft.azure.sdk.iot.service;
 
+import com.microsoft.azure.sdk.iot.deps.serializer.BulkRegistryOperationResultParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceRegistryOperationErrorParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.ExportImportDeviceParser;
 import com.microsoft.azure.sdk.iot.service.*;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
+import com.microsoft.azure.sdk.iot.service.transport.OperationClass;
+import com.microsoft.azure.sdk.iot.service.transport.RequestThrottler;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpStreamingResponse;
 import mockit.*;
 import mockit.integration.junit4.JMockit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Code Coverage
@@ -334,6 +353,99 @@ public class RegistryManagerTest
         getDevicesVerifications(numberOfDevices, devices);
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_088: [The function shall throw IllegalArgumentException if the input count number is less than 1]
+    // Assert
+    @Test (expected = IllegalArgumentException.class)
+    public void getDevicesIterator_input_zero() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        registryManager.getDevicesIterator(0);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_089: [The function shall create a new HttpRequest for getting a device list from IotHub, and send it without reading the response body]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_091: [The function shall return a DeviceIterator that parses the devices from the response body stream]
+    @Test
+    public void getDevicesIterator_good_case(@Mocked HttpStreamingResponse mockStreamingResponse) throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+                iotHubConnectionString.getUrlDeviceList(10);
+                result = mockUrl;
+                mockHttpRequest.sendStreaming();
+                result = mockStreamingResponse;
+                mockStreamingResponse.getBodyStream();
+                result = new ByteArrayInputStream(devicesJson.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        DeviceIterator deviceIterator = registryManager.getDevicesIterator(10);
+
+        int count = 0;
+        while (deviceIterator.hasNext())
+        {
+            assertNotEquals(null, deviceIterator.next());
+            count++;
+        }
+        assertEquals(3, count);
+        new Verifications()
+        {
+            {
+                new HttpRequest(mockUrl, HttpMethod.GET, (byte[]) any);
+                times = 1;
+                mockHttpRequest.sendStreaming();
+                times = 1;
+                mockHttpRequest.send();
+                times = 0;
+                mockIotHubExceptionManager.httpResponseVerification(mockStreamingResponse);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_090: [The function shall verify the response status, and if it fails, close the response and throw proper Exception]
+    @Test
+    public void getDevicesIterator_verification_failed_closes_response(@Mocked HttpStreamingResponse mockStreamingResponse) throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+                mockHttpRequest.sendStreaming();
+                result = mockStreamingResponse;
+                IotHubExceptionManager.httpResponseVerification(mockStreamingResponse);
+                result = new IotHubException();
+            }
+        };
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        try
+        {
+            registryManager.getDevicesIterator(10);
+            fail("IotHubException expected");
+        }
+        catch (IotHubException e)
+        {
+            // expected
+        }
+
+        new Verifications()
+        {
+            {
+                mockStreamingResponse.close();
+                times = 1;
+            }
+        };
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_030: [The function shall throw IllegalArgumentException if the input count number is less than 1]
     // Assert
     @Test (expected = IllegalArgumentException.class)
@@ -843,6 +955,58 @@ public class RegistryManagerTest
         };
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_110: [The function shall set a new random UUID as the Request-Id of each operation, and send the same one in all attempts of the operation.]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_108: [The function shall send the requests through the RequestThrottler of the IotHub, with the OperationClass REGISTRY, that creates and sends the idempotent requests again if the IotHub throttles them.]
+    @Test
+    public void removeDevice_throttled_request_sent_again() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        String deviceId = "somedevice";
+        RequestThrottler throttler = new RequestThrottler(1, 0, 0);
+
+        commonExpectations(connectionString, deviceId);
+        new NonStrictExpectations()
+        {
+            {
+                iotHubConnectionString.getHostName();
+                result = "aaa.bbb.ccc";
+                mockHttpRequest.isIdempotent();
+                result = true;
+                mockHttpResponse.getStatus();
+                returns(429, 200);
+            }
+        };
+        RequestThrottler.setForIotHub("aaa.bbb.ccc", throttler);
+
+        try
+        {
+            RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+            registryManager.removeDevice(deviceId);
+
+            assertTrue(throttler.getRatePerSecond(OperationClass.REGISTRY) > 0);
+            final List<String> requestIds = new ArrayList<>();
+            new Verifications()
+            {
+                {
+                    mockHttpRequest.setHeaderField("Request-Id", withCapture(requestIds));
+                    times = 2;
+                    new HttpRequest(mockUrl, HttpMethod.DELETE, new byte[0]);
+                    times = 2;
+                    mockHttpRequest.send();
+                    times = 2;
+                    mockIotHubExceptionManager.httpResponseVerification((HttpResponse) any);
+                    times = 1;
+                }
+            };
+            assertEquals(requestIds.get(0), requestIds.get(1));
+            assertEquals(requestIds.get(0), UUID.fromString(requestIds.get(0)).toString());
+        }
+        finally
+        {
+            RequestThrottler.setForIotHub("aaa.bbb.ccc", null);
+        }
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_052: [The function shall throw IllegalArgumentException if the input string is null or empty]
     // Assert
     @Test (expected = IllegalArgumentException.class)
@@ -912,6 +1076,260 @@ public class RegistryManagerTest
         CompletableFuture completableFuture = registryManager.removeDeviceAsync(deviceId);
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_095: [The function shall throw IllegalArgumentException if the collection of devices is null, empty, or contains a null device.]
+    @Test (expected = IllegalArgumentException.class)
+    public void addDevices_input_null() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        registryManager.addDevices(null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_095: [The function shall throw IllegalArgumentException if the collection of devices is null, empty, or contains a null device.]
+    @Test (expected = IllegalArgumentException.class)
+    public void addDevices_input_empty() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        registryManager.addDevices(new ArrayList<Device>());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_095: [The function shall throw IllegalArgumentException if the collection of devices is null, empty, or contains a null device.]
+    @Test (expected = IllegalArgumentException.class)
+    public void removeDevices_input_contains_null() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        registryManager.removeDevices(Arrays.asList(device, null), true);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_092: [The function shall create the devices with the import mode create.]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_102: [The function shall send each batch as a json array in a single POST request.]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_104: [The function shall verify the response status and throw proper Exception.]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_105: [If the response has no body, the function shall consider that all devices in the batch succeeded.]
+    @Test
+    public void addDevices_good_case(@Mocked ExportImportDeviceParser mockExportImportDeviceParser) throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        bulkRegistryOperationExpectations(connectionString);
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        BulkRegistryOperationResult result = registryManager.addDevices(Arrays.asList(device, device));
+
+        assertTrue(result.isSuccessful());
+        assertTrue(result.getErrors().isEmpty());
+        new Verifications()
+        {
+            {
+                mockExportImportDeviceParser.setImportMode("create");
+                times = 2;
+                ExportImportDeviceParser.toJsonArray((Collection<ExportImportDeviceParser>) any);
+                times = 1;
+                new HttpRequest(mockUrl, HttpMethod.POST, (byte[]) any);
+                times = 1;
+                mockHttpRequest.setHeaderField("authorization", anyString);
+                times = 1;
+                mockIotHubExceptionManager.httpResponseVerification(mockHttpResponse);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_093: [The function shall update the devices with the import mode update if forceUpdate is true, or updateIfMatchETag otherwise.]
+    @Test
+    public void updateDevices_not_forced_uses_etag(@Mocked ExportImportDeviceParser mockExportImportDeviceParser) throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        bulkRegistryOperationExpectations(connectionString);
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        registryManager.updateDevices(Arrays.asList(device), false);
+        registryManager.updateDevices(Arrays.asList(device), true);
+
+        new VerificationsInOrder()
+        {
+            {
+                mockExportImportDeviceParser.setImportMode("updateIfMatchETag");
+                mockExportImportDeviceParser.setImportMode("update");
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_094: [The function shall remove the devices with the import mode delete if forceRemove is true, or deleteIfMatchETag otherwise.]
+    @Test
+    public void removeDevices_not_forced_uses_etag(@Mocked ExportImportDeviceParser mockExportImportDeviceParser) throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        bulkRegistryOperationExpectations(connectionString);
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        registryManager.removeDevices(Arrays.asList(device), false);
+        registryManager.removeDevices(Arrays.asList(device), true);
+
+        new VerificationsInOrder()
+        {
+            {
+                mockExportImportDeviceParser.setImportMode("deleteIfMatchETag");
+                mockExportImportDeviceParser.setImportMode("delete");
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_096: [The function shall split the devices in batches of up to 100 devices, which is the maximum that IotHub accepts in a single request.]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_098: [The function shall send the other batches in parallel on the fan-out executor, which is the provided executor if the RegistryManager was created with one.]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_099: [The function shall merge the errors of all batches in a single BulkRegistryOperationResult, and return it.]
+    @Test
+    public void addDevices_splits_in_batches(@Mocked ExportImportDeviceParser mockExportImportDeviceParser) throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        bulkRegistryOperationExpectations(connectionString);
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 250; i++)
+        {
+            devices.add(device);
+        }
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        BulkRegistryOperationResult result = registryManager.addDevices(devices);
+
+        assertTrue(result.isSuccessful());
+        final List<Collection<ExportImportDeviceParser>> batches = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                ExportImportDeviceParser.toJsonArray(withCapture(batches));
+                times = 3;
+                new HttpRequest(mockUrl, HttpMethod.POST, (byte[]) any);
+                times = 3;
+            }
+        };
+        // The batches after the first run in parallel, so they can be serialized in any order.
+        List<Integer> batchSizes = new ArrayList<>();
+        for (Collection<ExportImportDeviceParser> batch : batches)
+        {
+            batchSizes.add(batch.size());
+        }
+        Collections.sort(batchSizes);
+        assertEquals(Arrays.asList(50, 100, 100), batchSizes);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_103: [If IotHub rejects some of the devices in the batch, the function shall return the error of each device reported in the response.]
+    @Test
+    public void addDevices_returns_per_device_errors(
+            @Mocked ExportImportDeviceParser mockExportImportDeviceParser,
+            @Mocked BulkRegistryOperationResultParser mockResultParser,
+            @Mocked DeviceRegistryOperationErrorParser mockErrorParser) throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        final String errorJson = "{\"isSuccessful\":false,\"errors\":[{\"deviceId\":\"device1\"}]}";
+        bulkRegistryOperationExpectations(connectionString);
+        new NonStrictExpectations()
+        {
+            {
+                mockHttpResponse.getStatus();
+                result = 400;
+                mockHttpResponse.getErrorReason();
+                result = errorJson.getBytes(StandardCharsets.UTF_8);
+                new BulkRegistryOperationResultParser(errorJson);
+                mockResultParser.isSuccessful();
+                result = false;
+                mockResultParser.getErrors();
+                result = Arrays.asList(mockErrorParser);
+                mockErrorParser.getDeviceId();
+                result = "device1";
+                mockErrorParser.getErrorCode();
+                result = "DeviceAlreadyExists";
+            }
+        };
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        BulkRegistryOperationResult result = registryManager.addDevices(Arrays.asList(device, device));
+
+        assertFalse(result.isSuccessful());
+        assertEquals(1, result.getErrors().size());
+        assertEquals("DeviceAlreadyExists", result.getError("device1").getErrorCode());
+        new Verifications()
+        {
+            {
+                mockIotHubExceptionManager.httpResponseVerification((HttpResponse) any);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_097: [The function shall send the first batch in the caller thread, and if it fails, throw the exception before sending the other batches.]
+    @Test
+    public void addDevices_first_batch_failure_throws(@Mocked ExportImportDeviceParser mockExportImportDeviceParser) throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        bulkRegistryOperationExpectations(connectionString);
+        new NonStrictExpectations()
+        {
+            {
+                IotHubExceptionManager.httpResponseVerification((HttpResponse) any);
+                result = new IotHubException();
+            }
+        };
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 150; i++)
+        {
+            devices.add(device);
+        }
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        try
+        {
+            registryManager.addDevices(devices);
+            fail("IotHubException expected");
+        }
+        catch (IotHubException e)
+        {
+            // expected
+        }
+
+        new Verifications()
+        {
+            {
+                mockHttpRequest.send();
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_100: [If one of the other batches fails, the function shall report the failure as the error of each device in that batch.]
+    @Test
+    public void addDevices_other_batch_failure_reported_per_device(@Mocked ExportImportDeviceParser mockExportImportDeviceParser) throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        bulkRegistryOperationExpectations(connectionString);
+        new NonStrictExpectations()
+        {
+            {
+                mockHttpRequest.send();
+                result = mockHttpResponse;
+                result = new IOException("connection reset");
+                mockExportImportDeviceParser.getId();
+                result = "device";
+            }
+        };
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 150; i++)
+        {
+            devices.add(device);
+        }
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        BulkRegistryOperationResult result = registryManager.addDevices(devices);
+
+        assertFalse(result.isSuccessful());
+        assertEquals(50, result.getErrors().size());
+        assertEquals("IOException", result.getError("device").getErrorCode());
+        assertEquals("connection reset", result.getError("device").getErrorStatus());
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_054: [The function shall get the URL for the device]
     // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_055: [The function shall create a new SAS token for the device]
     // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_056: [The function shall create a new HttpRequest for getting statistics a device from IotHub]
@@ -937,7 +1355,7 @@ public class RegistryManagerTest
                 new HttpRequest(mockUrl, HttpMethod.GET, new byte[0]);
                 mockHttpRequest.setReadTimeoutMillis(anyInt);
                 mockHttpRequest.setHeaderField("authorization", anyString);
-                mockHttpRequest.setHeaderField("Request-Id", "1001");
+                mockHttpRequest.setHeaderField("Request-Id", anyString);
                 mockHttpRequest.setHeaderField("Accept", "application/json");
                 mockHttpRequest.setHeaderField("Content-Type", "application/json");
                 mockHttpRequest.setHeaderField("charset", "utf-8");
@@ -969,7 +1387,7 @@ public class RegistryManagerTest
                 new HttpRequest(mockUrl, HttpMethod.GET, new byte[0]);
                 mockHttpRequest.setReadTimeoutMillis(anyInt);
                 mockHttpRequest.setHeaderField("authorization", anyString);
-                mockHttpRequest.setHeaderField("Request-Id", "1001");
+                mockHttpRequest.setHeaderField("Request-Id", anyString);
                 mockHttpRequest.setHeaderField("Accept", "application/json");
                 mockHttpRequest.setHeaderField("Content-Type", "application/json");
                 mockHttpRequest.setHeaderField("charset", "utf-8");
@@ -1055,7 +1473,7 @@ public class RegistryManagerTest
                 new HttpRequest(mockUrl, HttpMethod.POST, (byte[]) any);
                 mockHttpRequest.setReadTimeoutMillis(anyInt);
                 mockHttpRequest.setHeaderField("authorization", anyString);
-                mockHttpRequest.setHeaderField("Request-Id", "1001");
+                mockHttpRequest.setHeaderField("Request-Id", anyString);
                 mockHttpRequest.setHeaderField("Accept", "application/json");
                 mockHttpRequest.setHeaderField("Content-Type", "application/json");
                 mockHttpRequest.setHeaderField("charset", "utf-8");
@@ -1144,7 +1562,7 @@ public class RegistryManagerTest
                 new HttpRequest(mockUrl, HttpMethod.POST, (byte[]) any);
                 mockHttpRequest.setReadTimeoutMillis(anyInt);
                 mockHttpRequest.setHeaderField("authorization", anyString);
-                mockHttpRequest.setHeaderField("Request-Id", "1001");
+                mockHttpRequest.setHeaderField("Request-Id", anyString);
                 mockHttpRequest.setHeaderField("Accept", "application/json");
                 mockHttpRequest.setHeaderField("Content-Type", "application/json");
                 mockHttpRequest.setHeaderField("charset", "utf-8");
@@ -1224,7 +1642,7 @@ public class RegistryManagerTest
                 new HttpRequest(mockUrl, HttpMethod.GET, (byte[]) any);
                 mockHttpRequest.setReadTimeoutMillis(anyInt);
                 mockHttpRequest.setHeaderField("authorization", anyString);
-                mockHttpRequest.setHeaderField("Request-Id", "1001");
+                mockHttpRequest.setHeaderField("Request-Id", anyString);
                 mockHttpRequest.setHeaderField("Accept", "application/json");
                 mockHttpRequest.setHeaderField("Content-Type", "application/json");
                 mockHttpRequest.setHeaderField("charset", "utf-8");
@@ -1257,6 +1675,127 @@ public class RegistryManagerTest
         completableFuture.get();
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_106: [The constructor shall throw IllegalArgumentException if the input executor is null]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructor_executor_null() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+
+        RegistryManager.createFromConnectionString(connectionString, null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_107: [The constructor shall create a new RegistryManager that runs the async operations in the provided executor]
+    @Test
+    public void getStatisticsAsync_runs_in_provided_executor() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        final AtomicInteger executeCount = new AtomicInteger(0);
+        Executor executor = runnable ->
+        {
+            executeCount.incrementAndGet();
+            runnable.run();
+        };
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+                mockHttpRequest.send();
+                result = mockHttpResponse;
+                mockHttpResponse.getBody();
+                result = registryStatisticsJson.getBytes();
+            }
+        };
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString, executor);
+        CompletableFuture<RegistryStatistics> completableFuture = registryManager.getStatisticsAsync();
+
+        assertTrue(completableFuture.isDone());
+        assertEquals(1, executeCount.get());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_107: [The constructor shall create a new RegistryManager that runs the async operations in the provided executor]
+    @Test
+    public void getDeviceAsync_rejected_by_executor_completes_exceptionally() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        Executor executor = runnable ->
+        {
+            throw new RejectedExecutionException();
+        };
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+            }
+        };
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString, executor);
+        CompletableFuture<Device> completableFuture = registryManager.getDeviceAsync("somedevice");
+
+        assertTrue(completableFuture.isCompletedExceptionally());
+        new Verifications()
+        {
+            {
+                mockHttpRequest.send();
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_21_100: [If one of the other batches fails or is rejected by the executor, the function shall report the failure as the error of each device in that batch.]
+    @Test
+    public void addDevices_batch_rejected_by_executor_reported_per_device(@Mocked ExportImportDeviceParser mockExportImportDeviceParser) throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        Executor executor = runnable ->
+        {
+            throw new RejectedExecutionException("queue full");
+        };
+        bulkRegistryOperationExpectations(connectionString);
+        new NonStrictExpectations()
+        {
+            {
+                mockExportImportDeviceParser.getId();
+                result = "device";
+            }
+        };
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 150; i++)
+        {
+            devices.add(device);
+        }
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString, executor);
+        BulkRegistryOperationResult result = registryManager.addDevices(devices);
+
+        assertFalse(result.isSuccessful());
+        assertEquals(50, result.getErrors().size());
+        assertEquals("RejectedExecutionException", result.getError("device").getErrorCode());
+    }
+
+    private void bulkRegistryOperationExpectations(String connectionString) throws Exception
+    {
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+                iotHubConnectionString.getUrlBulkRegistryOperation();
+                result = mockUrl;
+                ExportImportDeviceParser.toJsonArray((Collection<ExportImportDeviceParser>) any);
+                result = "[]";
+                mockHttpRequest.send();
+                result = mockHttpResponse;
+                mockHttpResponse.getStatus();
+                result = 200;
+                mockHttpResponse.getBody();
+                result = new byte[0];
+            }
+        };
+    }
+
     private void commonExpectations(String connectionString, String deviceId) throws Exception
     {
         new NonStrictExpectations()
@@ -1286,7 +1825,7 @@ public class RegistryManagerTest
                 new HttpRequest(mockUrl, httpMethod, (byte[]) any);
                 mockHttpRequest.setReadTimeoutMillis(anyInt);
                 mockHttpRequest.setHeaderField("authorization", anyString);
-                mockHttpRequest.setHeaderField("Request-Id", "1001");
+                mockHttpRequest.setHeaderField("Request-Id", anyString);
                 mockHttpRequest.setHeaderField("Accept", "application/json");
                 mockHttpRequest.setHeaderField("Content-Type", "application/json");
                 mockHttpRequest.setHeaderField("charset", "utf-8");
@@ -1326,7 +1865,7 @@ public class RegistryManagerTest
                 times = 1;
                 mockHttpRequest.setReadTimeoutMillis(anyInt);
                 mockHttpRequest.setHeaderField("authorization", anyString);
-                mockHttpRequest.setHeaderField("Request-Id", "1001");
+                mockHttpRequest.setHeaderField("Request-Id", anyString);
                 mockHttpRequest.setHeaderField("Accept", "application/json");
                 mockHttpRequest.setHeaderField("Content-Type", "application/json");
                 mockHttpRequest.setHeaderField("charset", "utf-8");
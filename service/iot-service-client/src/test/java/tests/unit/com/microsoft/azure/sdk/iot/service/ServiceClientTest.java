@@ -13,9 +13,13 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ServiceClientTest
 {
@@ -478,4 +482,90 @@ public class ServiceClientTest
         // Assert
         assertNotEquals(null, feedbackReceiver);
     }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_21_019: [The constructor shall throw IllegalArgumentException if the input executor is null]
+    @Test (expected = IllegalArgumentException.class)
+    public void createFromConnectionString_executor_null() throws Exception
+    {
+        // Arrange
+        String connectionString = "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+        // Act
+        ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS, null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_21_020: [The constructor shall create a new instance of ServiceClient that runs the async operations in the provided executor]
+    @Test
+    public void sendAsync_runs_in_provided_executor() throws Exception
+    {
+        // Arrange
+        String connectionString = "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+        final AtomicInteger executeCount = new AtomicInteger(0);
+        Executor executor = runnable ->
+        {
+            executeCount.incrementAndGet();
+            runnable.run();
+        };
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS, executor);
+        // Act
+        CompletableFuture<Void> completableFuture = serviceClient.sendAsync("deviceId", new Message("message"));
+        // Assert
+        assertTrue(completableFuture.isDone());
+        assertEquals(1, executeCount.get());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_21_020: [The constructor shall create a new instance of ServiceClient that runs the async operations in the provided executor]
+    @Test
+    public void openAsync_rejected_by_executor_completes_exceptionally() throws Exception
+    {
+        // Arrange
+        String connectionString = "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+        Executor executor = runnable ->
+        {
+            throw new RejectedExecutionException();
+        };
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS, executor);
+        // Act
+        CompletableFuture<Void> completableFuture = serviceClient.openAsync();
+        // Assert
+        assertTrue(completableFuture.isCompletedExceptionally());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_21_021: [The function shall set the receive executor of the client on the created receiver, which is the executor provided on creation or else the shared receive executor]
+    @Test
+    public void getFeedbackReceiver_sets_executor() throws Exception
+    {
+        // Arrange
+        String connectionString = "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+        final Executor executor = Runnable::run;
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS, executor);
+        // Act
+        serviceClient.getFeedbackReceiver();
+        // Assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(feedbackReceiver, "setExecutor", executor);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_21_021: [The function shall set the receive executor of the client on the created receiver, which is the executor provided on creation or else the shared receive executor]
+    @Test
+    public void getFeedbackReceiver_sets_default_receive_executor() throws Exception
+    {
+        // Arrange
+        String connectionString = "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS);
+        // Act
+        serviceClient.getFeedbackReceiver();
+        // Assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(feedbackReceiver, "setExecutor", AsyncExecutors.getDefaultReceiveExecutor());
+                times = 1;
+            }
+        };
+    }
 }
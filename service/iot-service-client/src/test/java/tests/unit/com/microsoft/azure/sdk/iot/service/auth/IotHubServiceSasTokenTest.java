@@ -11,14 +11,21 @@ import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import mockit.Deencapsulation;
 import mockit.Expectations;
 import com.microsoft.azure.sdk.iot.deps.util.Base64;
+import org.junit.Before;
 import org.junit.Test;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  *
@@ -26,6 +33,16 @@ import static org.junit.Assert.assertEquals;
  */
 public class IotHubServiceSasTokenTest
 {
+    private static final String CONNECTION_STRING = "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+
+    @Before
+    public void setUp()
+    {
+        // The signers and tokens are cached for the whole process; start each test without them.
+        ((Map<?, ?>)Deencapsulation.getField(IotHubServiceSasToken.class, "signers")).clear();
+        ((Map<?, ?>)Deencapsulation.getField(IotHubServiceSasToken.class, "tokenCache")).clear();
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_12_001: [The constructor shall throw IllegalArgumentException if the input object is null]
     // Assert
     @Test (expected = IllegalArgumentException.class)
@@ -127,4 +144,102 @@ public class IotHubServiceSasTokenTest
         Deencapsulation.setField(iotHubConnectionString, "hostName", null);
         IotHubServiceSasToken iotHubServiceSasToken = new IotHubServiceSasToken(iotHubConnectionString);
     }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_21_009: [The constructor shall reuse the token cached for the same host name, key name and key, if it was created less than one hour ago.]
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_21_010: [The constructor shall cache the new token for the host name, key name and key.]
+    @Test
+    public void constructorReusesCachedToken() throws Exception
+    {
+        // Arrange
+        IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+        String firstToken = new IotHubServiceSasToken(iotHubConnectionString).toString();
+
+        // Act
+        String secondToken = new IotHubServiceSasToken(iotHubConnectionString).toString();
+
+        // Assert
+        assertEquals(firstToken, secondToken);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_21_009: [The constructor shall reuse the token cached for the same host name, key name and key, if it was created less than one hour ago.]
+    @Test
+    public void constructorDoesNotReuseTokenOfOtherKey() throws Exception
+    {
+        // Arrange
+        IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+        IotHubConnectionString otherConnectionString = IotHubConnectionStringBuilder.createConnectionString(
+                "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=0987654321abcdefghijklmnopqrstvwxyz=");
+        String firstToken = new IotHubServiceSasToken(iotHubConnectionString).toString();
+
+        // Act
+        String secondToken = new IotHubServiceSasToken(otherConnectionString).toString();
+
+        // Assert
+        assertNotEquals(firstToken, secondToken);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_21_009: [The constructor shall reuse the token cached for the same host name, key name and key, if it was created less than one hour ago.]
+    @Test
+    public void constructorRenewsExpiredCachedToken() throws Exception
+    {
+        // Arrange
+        IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+        new IotHubServiceSasToken(iotHubConnectionString);
+        Map<String, Object> tokenCache = Deencapsulation.getField(IotHubServiceSasToken.class, "tokenCache");
+        Object expiredToken = tokenCache.values().iterator().next();
+        Deencapsulation.setField(expiredToken, "refreshOn", 0L);
+
+        // Act
+        new IotHubServiceSasToken(iotHubConnectionString);
+
+        // Assert
+        assertEquals(1, tokenCache.size());
+        assertNotSame(expiredToken, tokenCache.values().iterator().next());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_21_011: [The caches shall be keyed by a SHA-256 hash of the shared access key, not by the key itself.]
+    @Test
+    public void constructorDoesNotKeepTheKeyInCacheKeys() throws Exception
+    {
+        // Arrange
+        IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+
+        // Act
+        new IotHubServiceSasToken(iotHubConnectionString);
+
+        // Assert
+        Map<String, Object> signers = Deencapsulation.getField(IotHubServiceSasToken.class, "signers");
+        Map<String, Object> tokenCache = Deencapsulation.getField(IotHubServiceSasToken.class, "tokenCache");
+        assertEquals(1, signers.size());
+        assertEquals(1, tokenCache.size());
+        assertFalse(signers.keySet().iterator().next().contains(iotHubConnectionString.getSharedAccessKey()));
+        assertFalse(tokenCache.keySet().iterator().next().contains(iotHubConnectionString.getSharedAccessKey()));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKEN_21_012: [The caches shall keep the signers and tokens of the 64 most recently used keys, and drop the pooled Mac instances of an evicted signer.]
+    @Test
+    public void constructorEvictsLeastRecentlyUsedKeys() throws Exception
+    {
+        // Arrange
+        IotHubConnectionString firstConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+        new IotHubServiceSasToken(firstConnectionString);
+        Map<String, Object> signers = Deencapsulation.getField(IotHubServiceSasToken.class, "signers");
+        Map<String, Object> tokenCache = Deencapsulation.getField(IotHubServiceSasToken.class, "tokenCache");
+        Object firstSigner = signers.values().iterator().next();
+
+        // Act
+        for (int i = 0; i < 64; i++)
+        {
+            String key = Base64.encodeBase64StringLocal(("shared access key " + i).getBytes(StandardCharsets.UTF_8));
+            new IotHubServiceSasToken(IotHubConnectionStringBuilder.createConnectionString(
+                    "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=" + key));
+        }
+
+        // Assert
+        assertEquals(64, signers.size());
+        assertEquals(64, tokenCache.size());
+        assertFalse(signers.containsValue(firstSigner));
+        assertTrue((boolean)Deencapsulation.getField(firstSigner, "closed"));
+        assertTrue(((Collection<?>)Deencapsulation.getField(firstSigner, "macs")).isEmpty());
+    }
 }
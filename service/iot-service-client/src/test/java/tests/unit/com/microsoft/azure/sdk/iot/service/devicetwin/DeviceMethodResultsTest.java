@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethodResults;
+import com.microsoft.azure.sdk.iot.service.devicetwin.MethodResult;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for device method results class
+ * 100% methods, 100% lines covered
+ */
+public class DeviceMethodResultsTest
+{
+    private static DeviceMethodResults createResults(Map<String, MethodResult> results, Map<String, Exception> failures)
+    {
+        return Deencapsulation.newInstance(DeviceMethodResults.class, new Class[] { Map.class, Map.class }, results, failures);
+    }
+
+    /* Tests_SRS_DEVICEMETHODRESULTS_21_001: [The constructor shall throw IllegalArgumentException if the results or the failures is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowOnNullResults()
+    {
+        //act
+        createResults(null, new HashMap<String, Exception>());
+    }
+
+    /* Tests_SRS_DEVICEMETHODRESULTS_21_001: [The constructor shall throw IllegalArgumentException if the results or the failures is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowOnNullFailures()
+    {
+        //act
+        createResults(new HashMap<String, MethodResult>(), null);
+    }
+
+    /* Tests_SRS_DEVICEMETHODRESULTS_21_002: [The constructor shall store a copy of the results and failures.] */
+    /* Tests_SRS_DEVICEMETHODRESULTS_21_003: [The getResults shall return an unmodifiable map with the results by deviceId.] */
+    /* Tests_SRS_DEVICEMETHODRESULTS_21_004: [The getFailures shall return an unmodifiable map with the failures by deviceId.] */
+    /* Tests_SRS_DEVICEMETHODRESULTS_21_005: [The isSuccessful shall return true if there is no failure, and false otherwise.] */
+    @Test
+    public void constructorStoresCopyOfResultsAndFailures()
+    {
+        //arrange
+        Map<String, MethodResult> results = new HashMap<>();
+        results.put("device1", new MethodResult(200, "payload"));
+        Map<String, Exception> failures = new HashMap<>();
+        failures.put("device2", new IOException());
+
+        //act
+        DeviceMethodResults deviceMethodResults = createResults(results, failures);
+        results.clear();
+        failures.clear();
+
+        //assert
+        assertFalse(deviceMethodResults.isSuccessful());
+        assertThat(deviceMethodResults.getResults().size(), is(1));
+        assertThat(deviceMethodResults.getResults().get("device1").getStatus(), is(200));
+        assertThat(deviceMethodResults.getFailures().size(), is(1));
+        assertTrue(deviceMethodResults.getFailures().get("device2") instanceof IOException);
+    }
+
+    /* Tests_SRS_DEVICEMETHODRESULTS_21_005: [The isSuccessful shall return true if there is no failure, and false otherwise.] */
+    @Test
+    public void isSuccessfulWithoutFailures()
+    {
+        //act
+        DeviceMethodResults deviceMethodResults = createResults(new HashMap<String, MethodResult>(), new HashMap<String, Exception>());
+
+        //assert
+        assertTrue(deviceMethodResults.isSuccessful());
+    }
+
+    /* Tests_SRS_DEVICEMETHODRESULTS_21_003: [The getResults shall return an unmodifiable map with the results by deviceId.] */
+    @Test (expected = UnsupportedOperationException.class)
+    public void getResultsIsUnmodifiable()
+    {
+        //arrange
+        DeviceMethodResults deviceMethodResults = createResults(new HashMap<String, MethodResult>(), new HashMap<String, Exception>());
+
+        //act
+        deviceMethodResults.getResults().put("device1", new MethodResult(200, null));
+    }
+}
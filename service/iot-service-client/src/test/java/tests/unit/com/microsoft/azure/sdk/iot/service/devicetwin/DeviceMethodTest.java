@@ -4,10 +4,12 @@
 package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
+import com.microsoft.azure.sdk.iot.service.AsyncExecutors;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethod;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethodResults;
 import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.service.devicetwin.Job;
 import com.microsoft.azure.sdk.iot.service.devicetwin.MethodResult;
@@ -19,13 +21,29 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -583,4 +601,452 @@ public class DeviceMethodTest
         testMethod.scheduleDeviceMethod(queryCondition, STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP, now, maxExecutionTimeInSeconds);
     }
 
+    private static final String FAILED_DEVICEID = "failedDeviceId";
+
+    private static void mockInvoke(final AtomicInteger invokeCount, final long delayInMs)
+    {
+        new MockUp<DeviceMethod>()
+        {
+            @Mock MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload)
+                    throws IOException, InterruptedException
+            {
+                invokeCount.incrementAndGet();
+                if (delayInMs > 0)
+                {
+                    Thread.sleep(delayInMs);
+                }
+                if (FAILED_DEVICEID.equals(deviceId))
+                {
+                    throw new IOException();
+                }
+                return new MethodResult(200, deviceId);
+            }
+        };
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_024: [The constructor shall throw IllegalArgumentException if the input executor is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowOnNullExecutor() throws Exception
+    {
+        //act
+        DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, null);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_026: [The invoke shall not block other invokes on the same instance, and shall use a different request id for each invoke.] */
+    @Test
+    public void invokeUsesDifferentRequestIds(
+            @Mocked final MethodParser methodParser,
+            @Mocked final HttpResponse mockedHttpResponse)
+            throws Exception
+    {
+        //arrange
+        final List<String> requestIds = new ArrayList<>();
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+        new NonStrictExpectations()
+        {
+            {
+                methodParser.toJson();
+                result = STANDARD_JSON;
+            }
+        };
+        new MockUp<DeviceOperations>()
+        {
+            @Mock HttpResponse request(
+                    IotHubConnectionString mockedIotHubConnectionString,
+                    URL url,
+                    HttpMethod method,
+                    byte[] payload,
+                    String requestId,
+                    long timeoutInMs)
+            {
+                requestIds.add(requestId);
+                return mockedHttpResponse;
+            }
+        };
+
+        //act
+        testMethod.invoke(STANDARD_DEVICEID, STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP);
+        testMethod.invoke(STANDARD_DEVICEID, STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP);
+
+        //assert
+        assertThat(requestIds.size(), is(2));
+        assertNotEquals(requestIds.get(0), requestIds.get(1));
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_025: [The constructor shall create a new DeviceMethod instance from the connection string, that runs its async operations in the provided executor.] */
+    /* Tests_SRS_DEVICEMETHOD_21_028: [The invokeAsync shall run the invoke in the executor, and complete the returned future with its result.] */
+    @Test
+    public void invokeAsyncRunsInvokeInExecutor() throws Exception
+    {
+        //arrange
+        final AtomicInteger invokeCount = new AtomicInteger(0);
+        final AtomicInteger executeCount = new AtomicInteger(0);
+        mockInvoke(invokeCount, 0);
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, runnable ->
+        {
+            executeCount.incrementAndGet();
+            runnable.run();
+        });
+
+        //act
+        CompletableFuture<MethodResult> future = testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP);
+
+        //assert
+        assertThat(future.get().getPayload().toString(), is(STANDARD_DEVICEID));
+        assertThat(invokeCount.get(), is(1));
+        assertThat(executeCount.get(), is(1));
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_029: [If the invoke failed, the invokeAsync shall complete the returned future exceptionally with the exception.] */
+    @Test
+    public void invokeAsyncCompletesExceptionallyOnInvokeFailure() throws Exception
+    {
+        //arrange
+        mockInvoke(new AtomicInteger(0), 0);
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, Runnable::run);
+
+        //act
+        CompletableFuture<MethodResult> future = testMethod.invokeAsync(FAILED_DEVICEID, STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP);
+
+        //assert
+        try
+        {
+            future.get();
+            assertTrue("invokeAsync shall complete exceptionally", false);
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_030: [If the executor rejects the invoke, the invokeAsync shall complete the returned future exceptionally with the RejectedExecutionException.] */
+    @Test
+    public void invokeAsyncCompletesExceptionallyOnRejection() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, runnable ->
+        {
+            throw new RejectedExecutionException();
+        });
+
+        //act
+        CompletableFuture<MethodResult> future = testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP);
+
+        //assert
+        try
+        {
+            future.get();
+            assertTrue("invokeAsync shall complete exceptionally", false);
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_027: [The invokeAsync shall throw IllegalArgumentException if the provided deviceId or methodName is null or empty.] */
+    @Test
+    public void invokeAsyncIllegalParametersThrows() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, Runnable::run);
+
+        //act
+        for (TestMethod testCase: illegalParameter)
+        {
+            try
+            {
+                testMethod.invokeAsync(testCase.deviceId, testCase.methodName, testCase.responseTimeoutInSeconds, testCase.connectTimeoutInSeconds, testCase.payload);
+                assertTrue("Negative case> DeviceId=" + testCase.deviceId + " MethodName=" + testCase.methodName, false);
+            }
+            catch (IllegalArgumentException expected)
+            {
+                //Don't do anything. Expected throw.
+            }
+        }
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_031: [The invokeOnDevices shall run the invokeOnDevicesAsync and wait for its results.] */
+    /* Tests_SRS_DEVICEMETHOD_21_036: [The invokeOnDevicesAsync shall run up to maxParallelism workers, each one invoking the method on the next pending device until there is no pending device.] */
+    /* Tests_SRS_DEVICEMETHOD_21_038: [The invokeOnDevicesAsync shall store the MethodResult of each invoke that succeed, and the exception of each invoke that failed, by deviceId.] */
+    /* Tests_SRS_DEVICEMETHOD_21_040: [When all devices are done, the invokeOnDevicesAsync shall complete the returned future with the DeviceMethodResults.] */
+    @Test
+    public void invokeOnDevicesAggregatesResultsAndFailures() throws Exception
+    {
+        //arrange
+        final AtomicInteger invokeCount = new AtomicInteger(0);
+        mockInvoke(invokeCount, 0);
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, Runnable::run);
+
+        //act
+        DeviceMethodResults results = testMethod.invokeOnDevices(
+                Arrays.asList("device1", FAILED_DEVICEID, "device2", "device1"),
+                STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP,
+                2, 0);
+
+        //assert
+        assertThat(invokeCount.get(), is(3));
+        assertFalse(results.isSuccessful());
+        assertThat(results.getResults().size(), is(2));
+        assertThat(results.getResults().get("device1").getPayload().toString(), is("device1"));
+        assertThat(results.getResults().get("device2").getPayload().toString(), is("device2"));
+        assertThat(results.getFailures().size(), is(1));
+        assertTrue(results.getFailures().get(FAILED_DEVICEID) instanceof IOException);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_036: [The invokeOnDevicesAsync shall run up to maxParallelism workers, each one invoking the method on the next pending device until there is no pending device.] */
+    /* Tests_SRS_DEVICEMETHOD_21_042: [If the instance was created with an executor, the invokeOnDevicesAsync shall run the workers in that executor.] */
+    @Test
+    public void invokeOnDevicesLimitsParallelism() throws Exception
+    {
+        //arrange
+        final int maxParallelism = 2;
+        final AtomicInteger running = new AtomicInteger(0);
+        final AtomicInteger maxRunning = new AtomicInteger(0);
+        new MockUp<DeviceMethod>()
+        {
+            @Mock MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload)
+                    throws InterruptedException
+            {
+                int current = running.incrementAndGet();
+                maxRunning.accumulateAndGet(current, Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return new MethodResult(200, null);
+            }
+        };
+        List<String> deviceIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            deviceIds.add("device" + i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, executor);
+
+        //act
+        DeviceMethodResults results;
+        try
+        {
+            results = testMethod.invokeOnDevicesAsync(deviceIds,
+                    STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP,
+                    maxParallelism, 0).get(10, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        //assert
+        assertTrue(results.isSuccessful());
+        assertThat(results.getResults().size(), is(10));
+        assertTrue(maxRunning.get() <= maxParallelism);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_041: [If the instance was created without an executor, the invokeOnDevicesAsync shall run the workers in a new executor with one thread per worker, and shut it down when all devices are done.] */
+    @Test
+    public void invokeOnDevicesWithoutExecutorRunsMaxParallelismInvokes() throws Exception
+    {
+        //arrange
+        final int maxParallelism = AsyncExecutors.DEFAULT_FAN_OUT_THREAD_COUNT + 5;
+        final CountDownLatch allRunning = new CountDownLatch(maxParallelism);
+        final Set<Thread> workerThreads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        new MockUp<DeviceMethod>()
+        {
+            @Mock MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload)
+                    throws InterruptedException, IOException
+            {
+                workerThreads.add(Thread.currentThread());
+                allRunning.countDown();
+                if (!allRunning.await(10, TimeUnit.SECONDS))
+                {
+                    throw new IOException("invokes did not run in parallel");
+                }
+                return new MethodResult(200, null);
+            }
+        };
+        List<String> deviceIds = new ArrayList<>();
+        for (int i = 0; i < maxParallelism; i++)
+        {
+            deviceIds.add("device" + i);
+        }
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+
+        //act
+        DeviceMethodResults results = testMethod.invokeOnDevicesAsync(deviceIds,
+                STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP,
+                maxParallelism, 0).get(20, TimeUnit.SECONDS);
+
+        //assert
+        assertTrue(results.isSuccessful());
+        assertThat(results.getResults().size(), is(maxParallelism));
+        for (Thread workerThread : workerThreads)
+        {
+            workerThread.join(10000);
+            assertFalse(workerThread.isAlive());
+        }
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_037: [After the maxExecutionTimeInSeconds, the invokeOnDevicesAsync shall not invoke the pending devices, and shall report them as failed with TimeoutException.] */
+    @Test
+    public void invokeOnDevicesStopsInvokingAfterDeadline() throws Exception
+    {
+        //arrange
+        final AtomicInteger invokeCount = new AtomicInteger(0);
+        mockInvoke(invokeCount, 1100);
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, Runnable::run);
+
+        //act
+        DeviceMethodResults results = testMethod.invokeOnDevices(
+                Arrays.asList("device1", "device2", "device3"),
+                STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP,
+                1, 1);
+
+        //assert
+        assertThat(invokeCount.get(), is(1));
+        assertThat(results.getResults().size(), is(1));
+        assertTrue(results.getFailures().get("device2") instanceof TimeoutException);
+        assertTrue(results.getFailures().get("device3") instanceof TimeoutException);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_039: [If the executor rejects all workers, the invokeOnDevicesAsync shall report the pending devices as failed with the RejectedExecutionException.] */
+    @Test
+    public void invokeOnDevicesReportsRejectedDevices() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, runnable ->
+        {
+            throw new RejectedExecutionException();
+        });
+
+        //act
+        DeviceMethodResults results = testMethod.invokeOnDevices(
+                Arrays.asList("device1", "device2"),
+                STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP,
+                4, 0);
+
+        //assert
+        assertThat(results.getResults().size(), is(0));
+        assertTrue(results.getFailures().get("device1") instanceof RejectedExecutionException);
+        assertTrue(results.getFailures().get("device2") instanceof RejectedExecutionException);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_043: [If a worker ended with an Error, the invokeOnDevicesAsync shall complete the returned future exceptionally with it.] */
+    @Test
+    public void invokeOnDevicesCompletesExceptionallyOnWorkerError() throws Exception
+    {
+        //arrange
+        new MockUp<DeviceMethod>()
+        {
+            @Mock MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload)
+            {
+                throw new AssertionError("worker failure");
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, executor);
+
+        //act
+        CompletableFuture<DeviceMethodResults> future;
+        try
+        {
+            future = testMethod.invokeOnDevicesAsync(Arrays.asList("device1", "device2"),
+                    STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP,
+                    1, 0);
+
+            //assert
+            try
+            {
+                future.get(10, TimeUnit.SECONDS);
+                assertTrue("invokeOnDevicesAsync shall complete exceptionally", false);
+            }
+            catch (ExecutionException e)
+            {
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_033: [The invokeOnDevicesAsync shall throw IllegalArgumentException if the deviceIds is null, empty, or contains a null or empty deviceId.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void invokeOnDevicesAsyncThrowOnNullDeviceIds() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, Runnable::run);
+
+        //act
+        testMethod.invokeOnDevicesAsync(null, STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP, 1, 0);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_033: [The invokeOnDevicesAsync shall throw IllegalArgumentException if the deviceIds is null, empty, or contains a null or empty deviceId.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void invokeOnDevicesAsyncThrowOnEmptyDeviceIds() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, Runnable::run);
+
+        //act
+        testMethod.invokeOnDevicesAsync(Collections.<String>emptyList(), STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP, 1, 0);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_033: [The invokeOnDevicesAsync shall throw IllegalArgumentException if the deviceIds is null, empty, or contains a null or empty deviceId.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void invokeOnDevicesAsyncThrowOnEmptyDeviceId() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, Runnable::run);
+
+        //act
+        testMethod.invokeOnDevicesAsync(Arrays.asList(STANDARD_DEVICEID, ""), STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP, 1, 0);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_034: [The invokeOnDevicesAsync shall throw IllegalArgumentException if the maxParallelism is less than 1, or the maxExecutionTimeInSeconds is negative.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void invokeOnDevicesAsyncThrowOnZeroParallelism() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, Runnable::run);
+
+        //act
+        testMethod.invokeOnDevicesAsync(Collections.singletonList(STANDARD_DEVICEID), STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP, 0, 0);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_034: [The invokeOnDevicesAsync shall throw IllegalArgumentException if the maxParallelism is less than 1, or the maxExecutionTimeInSeconds is negative.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void invokeOnDevicesAsyncThrowOnNegativeMaxExecutionTime() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, Runnable::run);
+
+        //act
+        testMethod.invokeOnDevicesAsync(Collections.singletonList(STANDARD_DEVICEID), STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP, 1, -1);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_21_035: [The invokeOnDevicesAsync shall validate the methodName, timeouts and payload with the `serializer.MethodParser` before any invoke.] */
+    @Test
+    public void invokeOnDevicesAsyncThrowOnInvalidMethodBeforeInvoke() throws Exception
+    {
+        //arrange
+        final AtomicInteger invokeCount = new AtomicInteger(0);
+        mockInvoke(invokeCount, 0);
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, Runnable::run);
+
+        //act
+        try
+        {
+            testMethod.invokeOnDevicesAsync(Collections.singletonList(STANDARD_DEVICEID), STANDARD_METHODNAME, -1L, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP, 1, 0);
+            assertTrue("invokeOnDevicesAsync shall throw on negative timeout", false);
+        }
+        catch (IllegalArgumentException expected)
+        {
+            //Don't do anything. Expected throw.
+        }
+
+        //assert
+        assertThat(invokeCount.get(), is(0));
+    }
 }
@@ -9,6 +9,9 @@ import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubBadFormatException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
+import com.microsoft.azure.sdk.iot.service.transport.OperationClass;
+import com.microsoft.azure.sdk.iot.service.transport.RequestThrottler;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
@@ -20,12 +23,15 @@ import org.junit.Test;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Unit tests for Http requester
@@ -138,7 +144,7 @@ public class DeviceOperationsTest
         //assert
     }
 
-    /* Tests_SRS_DEVICE_OPERATIONS_21_011: [If the requestId is not null or empty, the request shall add to the HTTP header a Request-Id key with a new unique string value for every request.] */
+    /* Tests_SRS_DEVICE_OPERATIONS_21_027: [If the requestId is null or empty, the request shall use a new random UUID as requestId.] */
     @Test
     public void requestNullRequestIdPass(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
                                            @Mocked HttpRequest httpRequest) throws Exception
@@ -155,13 +161,15 @@ public class DeviceOperationsTest
                 0);
 
         //assert
+        final List<String> requestIds = new ArrayList<>();
         new Verifications()
         {
             {
-                httpRequest.setHeaderField(REQUEST_ID, STANDARD_REQUEST_ID);
-                times = 0;
+                httpRequest.setHeaderField(REQUEST_ID, withCapture(requestIds));
+                times = 1;
             }
         };
+        assertEquals(requestIds.get(0), UUID.fromString(requestIds.get(0)).toString());
     }
     
     /* Tests_SRS_DEVICE_OPERATIONS_99_018: [The request shall throw IllegalArgumentException if the provided `timeoutInMs` plus DEFAULT_HTTP_TIMEOUT_MS exceed Integer.MAX_VALUE.] */
@@ -182,7 +190,7 @@ public class DeviceOperationsTest
         //assert
     }
 
-    /* Tests_SRS_DEVICE_OPERATIONS_21_011: [If the requestId is not null or empty, the request shall add to the HTTP header a Request-Id key with a new unique string value for every request.] */
+    /* Tests_SRS_DEVICE_OPERATIONS_21_027: [If the requestId is null or empty, the request shall use a new random UUID as requestId.] */
     @Test
     public void requestEmptyRequestIdPass(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
                                               @Mocked HttpRequest httpRequest) throws Exception
@@ -199,13 +207,15 @@ public class DeviceOperationsTest
                 0);
 
         //assert
+        final List<String> requestIds = new ArrayList<>();
         new Verifications()
         {
             {
-                httpRequest.setHeaderField(REQUEST_ID, STANDARD_REQUEST_ID);
-                times = 0;
+                httpRequest.setHeaderField(REQUEST_ID, withCapture(requestIds));
+                times = 1;
             }
         };
+        assertEquals(requestIds.get(0), UUID.fromString(requestIds.get(0)).toString());
     }
 
     /* Tests_SRS_DEVICE_OPERATIONS_21_006: [The request shall create a new SASToken with the ServiceConnect rights.] */
@@ -366,7 +376,7 @@ public class DeviceOperationsTest
                 0);
     }
 
-    /* Tests_SRS_DEVICE_OPERATIONS_21_011: [The request shall add to the HTTP header a `Request-Id` key with a new unique string value for every request.] */
+    /* Tests_SRS_DEVICE_OPERATIONS_21_011: [The request shall add to the HTTP header a `Request-Id` key with the requestId, and send the same one in all attempts.] */
     @Test (expected = IllegalArgumentException.class)
     public void invokeThrowOnRequestIDFailed(
             @Mocked IotHubServiceSasToken iotHubServiceSasToken,
@@ -731,6 +741,7 @@ public class DeviceOperationsTest
     }
 
     //Tests_SRS_DEVICE_OPERATIONS_25_020: [This method shall set the headers map to be used for next request only.]
+    //Tests_SRS_DEVICE_OPERATIONS_21_022: [The request shall use the custom headers set by setHeaders only once, and clear them.]
     @Test
     public void setCustomHeadersSucceed(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
                                         @Mocked HttpRequest httpRequest) throws Exception
@@ -810,4 +821,140 @@ public class DeviceOperationsTest
         //act/assert
         DeviceOperations.setHeaders(new HashMap<>());
     }
+
+    //Tests_SRS_DEVICE_OPERATIONS_21_023: [If the customHeaders is not null, the request shall add all of them to the HTTP header of this request only, without changing the headers set by setHeaders.]
+    @Test
+    public void requestWithCustomHeadersDoesNotUseSharedHeaders(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
+                                                                @Mocked HttpRequest httpRequest) throws Exception
+    {
+        //Arrange
+        Map<String, String> sharedHeaders = new HashMap<>();
+        sharedHeaders.put("SharedKey", "SharedValue");
+        Map<String, String> customHeaders = new HashMap<>();
+        customHeaders.put("TestKey", "TestValue");
+        DeviceOperations.setHeaders(sharedHeaders);
+
+        //act
+        DeviceOperations.request(
+                IOT_HUB_CONNECTION_STRING,
+                new URL(STANDARD_URL),
+                HttpMethod.POST,
+                STANDARD_PAYLOAD,
+                STANDARD_REQUEST_ID,
+                0,
+                customHeaders);
+
+        //assert
+        assertEquals(sharedHeaders, Deencapsulation.getField(DeviceOperations.class, "headers"));
+        Deencapsulation.setField(DeviceOperations.class, "headers", null);
+        new Verifications()
+        {
+            {
+                httpRequest.setHeaderField("TestKey", "TestValue");
+                times = 1;
+                httpRequest.setHeaderField("SharedKey", "SharedValue");
+                times = 0;
+            }
+        };
+    }
+
+    /* Tests_SRS_DEVICE_OPERATIONS_21_011: [The request shall add to the HTTP header a `Request-Id` key with the requestId, and send the same one in all attempts.] */
+    /* Tests_SRS_DEVICE_OPERATIONS_21_025: [If the IotHub throttles an idempotent request, the request shall create and send it again, as defined by the RequestThrottler.] */
+    @Test
+    public void requestSendsThrottledRequestAgain(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
+                                                  @Mocked HttpRequest httpRequest) throws Exception
+    {
+        //arrange
+        final HttpResponse throttledResponse = new HttpResponse(429, new byte[0], new HashMap<String, List<String>>(), new byte[0]);
+        final HttpResponse okResponse = new HttpResponse(200, new byte[0], new HashMap<String, List<String>>(), new byte[0]);
+        RequestThrottler.setForIotHub(STANDARD_HOSTNAME, new RequestThrottler(1, 0, 0));
+        new NonStrictExpectations()
+        {
+            {
+                iotHubServiceSasToken.toString();
+                result = STANDARD_SASTOKEN_STRING;
+                httpRequest.isIdempotent();
+                result = true;
+                httpRequest.send();
+                returns(throttledResponse, okResponse);
+            }
+        };
+
+        try
+        {
+            //act
+            HttpResponse response = DeviceOperations.request(
+                    IOT_HUB_CONNECTION_STRING,
+                    new URL(STANDARD_URL),
+                    HttpMethod.GET,
+                    new byte[0],
+                    null,
+                    0);
+
+            //assert
+            assertEquals(okResponse, response);
+            final List<String> requestIds = new ArrayList<>();
+            new Verifications()
+            {
+                {
+                    new HttpRequest((URL)any, HttpMethod.GET, (byte[])any);
+                    times = 2;
+                    httpRequest.send();
+                    times = 2;
+                    httpRequest.setHeaderField(REQUEST_ID, withCapture(requestIds));
+                    times = 2;
+                }
+            };
+            assertEquals(requestIds.get(0), requestIds.get(1));
+        }
+        finally
+        {
+            RequestThrottler.setForIotHub(STANDARD_HOSTNAME, null);
+        }
+    }
+
+    /* Tests_SRS_DEVICE_OPERATIONS_21_024: [The request shall send the request through the RequestThrottler of the IotHub, with the OperationClass JOBS for job urls, METHOD for method urls, and TWIN for the others.] */
+    @Test
+    public void requestThrottlesTheOperationClassOfTheUrl(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
+                                                          @Mocked HttpRequest httpRequest) throws Exception
+    {
+        //arrange
+        final HttpResponse throttledResponse = new HttpResponse(429, new byte[0], new HashMap<String, List<String>>(), new byte[0]);
+        RequestThrottler throttler = new RequestThrottler(0, 0, 0);
+        RequestThrottler.setForIotHub(STANDARD_HOSTNAME, throttler);
+        new NonStrictExpectations()
+        {
+            {
+                iotHubServiceSasToken.toString();
+                result = STANDARD_SASTOKEN_STRING;
+                httpRequest.send();
+                result = throttledResponse;
+            }
+        };
+
+        try
+        {
+            //act
+            try
+            {
+                DeviceOperations.request(IOT_HUB_CONNECTION_STRING, new URL("https://" + STANDARD_HOSTNAME + "/jobs/v2/job1?api-version=2016-11-14"),
+                        HttpMethod.GET, new byte[0], STANDARD_REQUEST_ID, 0);
+                throw new AssertionError("request shall throw IotHubTooManyRequestsException");
+            }
+            catch (IotHubTooManyRequestsException expected)
+            {
+                // Expected, the throttler does not retry.
+            }
+
+            //assert
+            assertTrue(throttler.getRatePerSecond(OperationClass.JOBS) > 0);
+            assertEquals(0, throttler.getRatePerSecond(OperationClass.METHOD), 0);
+            assertEquals(0, throttler.getRatePerSecond(OperationClass.TWIN), 0);
+            assertEquals(0, throttler.getRatePerSecond(OperationClass.REGISTRY), 0);
+        }
+        finally
+        {
+            RequestThrottler.setForIotHub(STANDARD_HOSTNAME, null);
+        }
+    }
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.TwinParser;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinDevice;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinIterator;
+import com.microsoft.azure.sdk.iot.service.devicetwin.Query;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the device twin iterator.
+ * 100% methods, 100% lines covered
+ */
+public class DeviceTwinIteratorTest
+{
+    private static final String TWIN_JSON = "{\"deviceId\":\"validDeviceId\"}";
+
+    @Mocked
+    Query mockedQuery;
+
+    @Mocked
+    TwinParser mockedTwinParser;
+
+    @Mocked
+    DeviceTwinDevice mockedDevice;
+
+    private DeviceTwinIterator createIterator(Query query)
+    {
+        return Deencapsulation.newInstance(DeviceTwinIterator.class, new Class[] { Query.class }, query);
+    }
+
+    /* Tests_SRS_DEVICETWINITERATOR_21_001: [The constructor shall throw IllegalArgumentException if the query is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNullQuery()
+    {
+        //act
+        createIterator(null);
+    }
+
+    /* Tests_SRS_DEVICETWINITERATOR_21_002: [The constructor shall store the query.] */
+    /* Tests_SRS_DEVICETWINITERATOR_21_003: [The hasNext shall return true if the query has a next element, and false otherwise.] */
+    @Test
+    public void hasNextReturnsQueryHasNext() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.hasNext();
+                result = true;
+                result = false;
+            }
+        };
+        DeviceTwinIterator iterator = createIterator(mockedQuery);
+
+        //act/assert
+        assertTrue(iterator.hasNext());
+        assertEquals(false, iterator.hasNext());
+    }
+
+    /* Tests_SRS_DEVICETWINITERATOR_21_004: [If the query failed, the hasNext and next shall throw UncheckedIOException with the IOException, or with an IOException caused by the IotHubException.] */
+    @Test
+    public void hasNextThrowsUncheckedOnIotHubException() throws IOException, IotHubException
+    {
+        //arrange
+        final IotHubException iotHubException = new IotHubException();
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.hasNext();
+                result = iotHubException;
+            }
+        };
+        DeviceTwinIterator iterator = createIterator(mockedQuery);
+
+        //act
+        try
+        {
+            iterator.hasNext();
+            assertTrue("hasNext shall throw", false);
+        }
+        catch (UncheckedIOException e)
+        {
+            //assert
+            assertEquals(iotHubException, e.getCause().getCause());
+        }
+    }
+
+    /* Tests_SRS_DEVICETWINITERATOR_21_004: [If the query failed, the hasNext and next shall throw UncheckedIOException with the IOException, or with an IOException caused by the IotHubException.] */
+    @Test (expected = UncheckedIOException.class)
+    public void nextThrowsUncheckedOnIOException() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.next();
+                result = new IOException();
+            }
+        };
+        DeviceTwinIterator iterator = createIterator(mockedQuery);
+
+        //act
+        iterator.next();
+    }
+
+    /* Tests_SRS_DEVICETWINITERATOR_21_005: [The next shall throw NoSuchElementException if the query has no next element.] */
+    @Test (expected = NoSuchElementException.class)
+    public void nextThrowsOnNoMoreElements() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.next();
+                result = new NoSuchElementException();
+            }
+        };
+        DeviceTwinIterator iterator = createIterator(mockedQuery);
+
+        //act
+        iterator.next();
+    }
+
+    /* Tests_SRS_DEVICETWINITERATOR_21_006: [The next shall throw UncheckedIOException if the next element is not a string.] */
+    @Test (expected = UncheckedIOException.class)
+    public void nextThrowsOnNonStringElement() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.next();
+                result = 10;
+            }
+        };
+        DeviceTwinIterator iterator = createIterator(mockedQuery);
+
+        //act
+        iterator.next();
+    }
+
+    /* Tests_SRS_DEVICETWINITERATOR_21_007: [The next shall parse the next element of the query as a twin, and return it as a DeviceTwinDevice.] */
+    @Test
+    public void nextParsesDeviceTwin() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.next();
+                result = TWIN_JSON;
+                mockedTwinParser.getDeviceId();
+                result = "validDeviceId";
+            }
+        };
+        DeviceTwinIterator iterator = createIterator(mockedQuery);
+
+        //act
+        DeviceTwinDevice device = iterator.next();
+
+        //assert
+        assertNotNull(device);
+        new Verifications()
+        {
+            {
+                mockedTwinParser.enableTags();
+                times = 1;
+                mockedTwinParser.updateTwin(TWIN_JSON);
+                times = 1;
+                new DeviceTwinDevice("validDeviceId");
+                times = 1;
+                Deencapsulation.invoke(mockedDevice, "setTags", new Class[] {java.util.Map.class}, (Object)any);
+                times = 1;
+                Deencapsulation.invoke(mockedDevice, "setDesiredProperties", new Class[] {java.util.Map.class}, (Object)any);
+                times = 1;
+                Deencapsulation.invoke(mockedDevice, "setReportedProperties", new Class[] {java.util.Map.class}, (Object)any);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_DEVICETWINITERATOR_21_007: [The next shall parse the next element of the query as a twin, and return it as a DeviceTwinDevice.] */
+    @Test (expected = UncheckedIOException.class)
+    public void nextThrowsUncheckedIfTwinCannotBeRead() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.next();
+                result = TWIN_JSON;
+                mockedTwinParser.getTagsMap();
+                result = new IOException();
+            }
+        };
+        DeviceTwinIterator iterator = createIterator(mockedQuery);
+
+        //act
+        iterator.next();
+    }
+}
@@ -6,16 +6,23 @@
 package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.TwinParser;
+import com.microsoft.azure.sdk.iot.service.AsyncExecutors;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import com.microsoft.azure.sdk.iot.service.devicetwin.*;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotModifiedException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubPreconditionFailedException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
 import mockit.Deencapsulation;
+import mockit.Delegate;
+import mockit.Mock;
+import mockit.MockUp;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import mockit.Verifications;
@@ -24,7 +31,17 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -1564,4 +1581,851 @@ public class DeviceTwinTest
         testTwin.scheduleUpdateTwin(queryCondition, mockedDevice, now, maxExecutionTimeInSeconds);
     }
 
+    private static final String CACHED_DEVICE_ID = "SomeDevID";
+    private static final String CACHED_ETAG = "AAAAAAAAAAE=";
+    private static final String CACHED_TWIN = "{\"deviceId\":\"SomeDevID\",\"etag\":\"AAAAAAAAAAE=\"}";
+
+    private TwinCache createCacheWithTwin(long timeToLiveInMs)
+    {
+        TwinCache twinCache = new TwinCache(10, timeToLiveInMs);
+        Deencapsulation.invoke(twinCache, "put", CACHED_DEVICE_ID, CACHED_ETAG, CACHED_TWIN, 0L);
+        return twinCache;
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_069: [** The constructor shall throw IllegalArgumentException if the input twinCache is null **]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNullTwinCache() throws Exception
+    {
+        //act
+        DeviceTwin.createFromConnectionString("testString", (TwinCache)null);
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_070: [** The constructor shall create a new DeviceTwin instance from the connection string, that reads the twins through the provided twinCache **]**
+    **Tests_SRS_DEVICETWIN_21_071: [** If the twin is cached and in its time to live, the function shall use the cached twin without sending any request **]**
+     */
+    @Test
+    public void getTwinUsesFreshCachedTwinWithoutRequest(@Mocked DeviceTwinDevice mockedDevice) throws Exception
+    {
+        //arrange
+        final TwinCache twinCache = createCacheWithTwin(60000);
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", twinCache);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDevice.getDeviceId();
+                result = CACHED_DEVICE_ID;
+                Deencapsulation.invoke(mockedDevice, "getTwinParser");
+                result = mockedTwinParser;
+            }
+        };
+
+        //act
+        testTwin.getTwin(mockedDevice);
+
+        //assert
+        assertEquals(1, twinCache.getHitCount());
+        assertEquals(1, twinCache.getMissCount());
+        new Verifications()
+        {
+            {
+                mockedHttpRequest.send();
+                times = 0;
+                mockedTwinParser.updateTwin(CACHED_TWIN);
+                times = 1;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_072: [** If the twin is cached but its time to live expired, the function shall send the request with the header If-None-Match with the cached etag **]**
+    **Tests_SRS_DEVICETWIN_21_073: [** If the IotHub answers that the twin was not modified, the function shall use the cached twin **]**
+     */
+    @Test
+    public void getTwinRevalidatesExpiredCachedTwin(@Mocked DeviceTwinDevice mockedDevice) throws Exception
+    {
+        //arrange
+        final TwinCache twinCache = createCacheWithTwin(0);
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", twinCache);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDevice.getDeviceId();
+                result = CACHED_DEVICE_ID;
+                Deencapsulation.invoke(mockedDevice, "getTwinParser");
+                result = mockedTwinParser;
+                IotHubExceptionManager.httpResponseVerification((HttpResponse)any);
+                result = new IotHubNotModifiedException();
+            }
+        };
+
+        //act
+        testTwin.getTwin(mockedDevice);
+
+        //assert
+        assertEquals(0, twinCache.getHitCount());
+        assertEquals(1, twinCache.getRevalidationCount());
+        assertEquals(1, twinCache.getMissCount());
+        new Verifications()
+        {
+            {
+                mockedHttpRequest.setHeaderField("If-None-Match", "\"" + CACHED_ETAG + "\"");
+                times = 1;
+                mockedHttpRequest.send();
+                times = 1;
+                mockedTwinParser.updateTwin(CACHED_TWIN);
+                times = 1;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_075: [** If the twin was received from the IotHub, the function shall store it with its etag in the twinCache **]**
+     */
+    @Test
+    public void getTwinStoresChangedTwinInCache(@Mocked DeviceTwinDevice mockedDevice) throws Exception
+    {
+        //arrange
+        final String newTwin = "{\"deviceId\":\"SomeDevID\",\"etag\":\"AAAAAAAAAAI=\"}";
+        final TwinCache twinCache = createCacheWithTwin(0);
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", twinCache);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDevice.getDeviceId();
+                result = CACHED_DEVICE_ID;
+                Deencapsulation.invoke(mockedDevice, "getTwinParser");
+                result = mockedTwinParser;
+                mockedDevice.getETag();
+                result = "AAAAAAAAAAI=";
+                mockedHttpResponse.getBody();
+                result = newTwin.getBytes(StandardCharsets.UTF_8);
+            }
+        };
+
+        //act
+        testTwin.getTwin(mockedDevice);
+
+        //assert
+        assertEquals(0, twinCache.getRevalidationCount());
+        assertEquals(2, twinCache.getMissCount());
+        assertEquals("AAAAAAAAAAI=", Deencapsulation.invoke(twinCache, "getETag", CACHED_DEVICE_ID));
+        new Verifications()
+        {
+            {
+                mockedHttpRequest.send();
+                times = 1;
+                mockedTwinParser.updateTwin(newTwin);
+                times = 1;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_075: [** If the twin was received from the IotHub, the function shall store it with its etag in the twinCache **]**
+     */
+    @Test
+    public void getTwinStoresNotCachedTwin(@Mocked DeviceTwinDevice mockedDevice) throws Exception
+    {
+        //arrange
+        final TwinCache twinCache = new TwinCache(10, 60000);
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", twinCache);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDevice.getDeviceId();
+                result = CACHED_DEVICE_ID;
+                Deencapsulation.invoke(mockedDevice, "getTwinParser");
+                result = mockedTwinParser;
+                mockedDevice.getETag();
+                result = CACHED_ETAG;
+                mockedHttpResponse.getBody();
+                result = CACHED_TWIN.getBytes(StandardCharsets.UTF_8);
+            }
+        };
+
+        //act
+        testTwin.getTwin(mockedDevice);
+        testTwin.getTwin(mockedDevice);
+
+        //assert
+        assertEquals(1, twinCache.getMissCount());
+        assertEquals(1, twinCache.getHitCount());
+        assertEquals(1, twinCache.size());
+        new Verifications()
+        {
+            {
+                mockedHttpRequest.send();
+                times = 1;
+                mockedHttpRequest.setHeaderField("If-None-Match", anyString);
+                times = 0;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_074: [** If the IotHub answers that the device was not found, the function shall discard the cached twin and throw the exception **]**
+     */
+    @Test
+    public void getTwinDiscardsCachedTwinOfDeletedDevice(@Mocked DeviceTwinDevice mockedDevice) throws Exception
+    {
+        //arrange
+        final TwinCache twinCache = createCacheWithTwin(0);
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", twinCache);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDevice.getDeviceId();
+                result = CACHED_DEVICE_ID;
+                IotHubExceptionManager.httpResponseVerification((HttpResponse)any);
+                result = new IotHubNotFoundException();
+            }
+        };
+
+        //act
+        try
+        {
+            testTwin.getTwin(mockedDevice);
+            fail("getTwin shall throw");
+        }
+        catch (IotHubNotFoundException e)
+        {
+            //assert
+            assertEquals(0, twinCache.size());
+        }
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_076: [** The function shall discard the twin of the device from the twinCache, if any, after the request **]**
+     */
+    @Test
+    public void updateTwinDiscardsCachedTwin(@Mocked DeviceTwinDevice mockedDevice) throws Exception
+    {
+        //arrange
+        final TwinCache twinCache = createCacheWithTwin(60000);
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", twinCache);
+        Map<String, Object> testMap = new HashMap<>();
+        testMap.put("TestKey", "TestValue");
+        new NonStrictExpectations()
+        {
+            {
+                mockedDevice.getDeviceId();
+                result = CACHED_DEVICE_ID;
+                Deencapsulation.invoke(mockedDevice, "getDesiredMap");
+                result = testMap;
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                result = "SomeJsonString";
+            }
+        };
+
+        //act
+        testTwin.updateTwin(mockedDevice);
+
+        //assert
+        assertEquals(0, twinCache.size());
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_076: [** The function shall discard the twin of the device from the twinCache, if any, after the request **]**
+     */
+    @Test
+    public void updateTwinDiscardsCachedTwinWhenRequestFails(@Mocked DeviceTwinDevice mockedDevice) throws Exception
+    {
+        //arrange
+        final TwinCache twinCache = createCacheWithTwin(60000);
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", twinCache);
+        Map<String, Object> testMap = new HashMap<>();
+        testMap.put("TestKey", "TestValue");
+        new NonStrictExpectations()
+        {
+            {
+                mockedDevice.getDeviceId();
+                result = CACHED_DEVICE_ID;
+                Deencapsulation.invoke(mockedDevice, "getDesiredMap");
+                result = testMap;
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                result = "SomeJsonString";
+                IotHubExceptionManager.httpResponseVerification((HttpResponse)any);
+                result = new IotHubException();
+            }
+        };
+
+        //act
+        try
+        {
+            testTwin.updateTwin(mockedDevice);
+            fail("updateTwin shall throw");
+        }
+        catch (IotHubException e)
+        {
+            //assert
+            assertEquals(0, twinCache.size());
+        }
+    }
+
+    private static final Executor SAME_THREAD_EXECUTOR = Runnable::run;
+
+    private static DeviceTwinDevice createDeviceToUpdate(String deviceId, String eTag)
+    {
+        DeviceTwinDevice device = new DeviceTwinDevice(deviceId);
+        Set<Pair> desired = new HashSet<>();
+        desired.add(new Pair("temp", 20));
+        device.setDesiredProperties(desired);
+        if (eTag != null)
+        {
+            device.setETag(eTag);
+        }
+        return device;
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_078: [** The constructor shall throw IllegalArgumentException if the input executor is null **]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNullExecutor() throws Exception
+    {
+        //act
+        DeviceTwin.createFromConnectionString("testString", (Executor)null);
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_081: [** The updateTwinsAsync shall throw IllegalArgumentException if the devices is null or empty, or contains a null device, a device with null or empty deviceId, or a repeated deviceId **]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void updateTwinsThrowsOnEmptyDevices() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+
+        //act
+        testTwin.updateTwinsAsync(new ArrayList<DeviceTwinDevice>(), 10, 0);
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_081: [** The updateTwinsAsync shall throw IllegalArgumentException if the devices is null or empty, or contains a null device, a device with null or empty deviceId, or a repeated deviceId **]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void updateTwinsThrowsOnRepeatedDeviceId() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+
+        //act
+        testTwin.updateTwinsAsync(Arrays.asList(createDeviceToUpdate("device1", null), createDeviceToUpdate("device1", null)), 10, 0);
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_082: [** The updateTwinsAsync shall serialize the tags and desired properties of each device before any update, and throw IllegalArgumentException if one of them is not valid, or both are empty or null **]**
+     */
+    @Test
+    public void updateTwinsThrowsOnDeviceWithoutPatchBeforeAnyUpdate() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+
+        //act
+        try
+        {
+            testTwin.updateTwinsAsync(Arrays.asList(createDeviceToUpdate("device1", null), new DeviceTwinDevice("device2")), 10, 0);
+            fail("updateTwinsAsync shall throw");
+        }
+        catch (IllegalArgumentException e)
+        {
+            //assert
+            new Verifications()
+            {
+                {
+                    mockedHttpRequest.send();
+                    times = 0;
+                }
+            };
+        }
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_085: [** The updateTwinsAsync shall throw IllegalArgumentException if the maxParallelism is less than 1, or the maxExecutionTimeInSeconds is negative **]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void updateTwinsThrowsOnZeroParallelism() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+
+        //act
+        testTwin.updateTwinsAsync(Collections.singletonList(createDeviceToUpdate("device1", null)), 0, 0);
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_085: [** The updateTwinsAsync shall throw IllegalArgumentException if the maxParallelism is less than 1, or the maxExecutionTimeInSeconds is negative **]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void updateTwinsThrowsOnNegativeExecutionTime() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+
+        //act
+        testTwin.updateTwinsAsync(Collections.singletonList(createDeviceToUpdate("device1", null)), 1, -1);
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_079: [** The constructor shall create a new DeviceTwin instance from the connection string, that runs its async operations in the provided executor **]**
+    **Tests_SRS_DEVICETWIN_21_080: [** The updateTwins shall run the updateTwinsAsync and wait for its results **]**
+    **Tests_SRS_DEVICETWIN_21_086: [** The updateTwinsAsync shall run up to maxParallelism workers, each one updating the next pending device until there is no pending device **]**
+    **Tests_SRS_DEVICETWIN_21_100: [** If the instance was created with an executor, the updateTwinsAsync shall run the workers in that executor **]**
+    **Tests_SRS_DEVICETWIN_21_088: [** The updateTwinsAsync shall send each patch with the header If-Match with the etag of the device, if it has one, using headers that belong to this request only **]**
+    **Tests_SRS_DEVICETWIN_21_092: [** The updateTwinsAsync shall store the id of each device updated, and the exception of each update that failed, by deviceId **]**
+    **Tests_SRS_DEVICETWIN_21_094: [** When all devices are done, the updateTwinsAsync shall complete the returned future with the DeviceTwinUpdateResults **]**
+     */
+    @Test
+    public void updateTwinsSendsPatchOfEachDevice() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+        new NonStrictExpectations()
+        {
+            {
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                result = "SomeJsonString";
+                mockedConnectionString.getUrlTwin(anyString);
+                result = new URL("https://test.azure-devices.net/twins/device");
+            }
+        };
+
+        //act
+        DeviceTwinUpdateResults results = testTwin.updateTwins(
+                Arrays.asList(createDeviceToUpdate("device1", "etag1"), createDeviceToUpdate("device2", null)), 10, 0);
+
+        //assert
+        assertTrue(results.isSuccessful());
+        assertEquals(new HashSet<>(Arrays.asList("device1", "device2")), results.getUpdatedDeviceIds());
+        new Verifications()
+        {
+            {
+                mockedConnectionString.getUrlTwin("device1");
+                times = 1;
+                mockedConnectionString.getUrlTwin("device2");
+                times = 1;
+                new HttpRequest((URL)any, HttpMethod.PATCH, (byte[])any);
+                times = 2;
+                mockedHttpRequest.setHeaderField("If-Match", "\"etag1\"");
+                times = 1;
+                mockedHttpRequest.send();
+                times = 2;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_092: [** The updateTwinsAsync shall store the id of each device updated, and the exception of each update that failed, by deviceId **]**
+     */
+    @Test
+    public void updateTwinsReportsFailedDevices() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+        new NonStrictExpectations()
+        {
+            {
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                result = "SomeJsonString";
+                IotHubExceptionManager.httpResponseVerification((HttpResponse)any);
+                result = new IotHubNotFoundException();
+            }
+        };
+
+        //act
+        DeviceTwinUpdateResults results = testTwin.updateTwins(Collections.singletonList(createDeviceToUpdate("device1", null)), 10, 0);
+
+        //assert
+        assertFalse(results.isSuccessful());
+        assertTrue(results.getUpdatedDeviceIds().isEmpty());
+        assertTrue(results.getFailures().get("device1") instanceof IotHubNotFoundException);
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_089: [** If the IotHub answers that the twin changed since the etag, the updateTwinsAsync shall read the twin again and send the patch with its new etag **]**
+     */
+    @Test
+    public void updateTwinsRetriesWithNewETagOnPreconditionFailed() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+        new NonStrictExpectations()
+        {
+            {
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                result = "SomeJsonString";
+                mockedTwinParser.getETag();
+                result = "etag2";
+                mockedHttpResponse.getBody();
+                result = "{}".getBytes(StandardCharsets.UTF_8);
+                IotHubExceptionManager.httpResponseVerification((HttpResponse)any);
+                result = new Delegate()
+                {
+                    int calls = 0;
+                    void httpResponseVerification(HttpResponse response) throws IotHubException
+                    {
+                        if (calls++ == 0)
+                        {
+                            throw new IotHubPreconditionFailedException();
+                        }
+                    }
+                };
+            }
+        };
+
+        //act
+        DeviceTwinUpdateResults results = testTwin.updateTwins(Collections.singletonList(createDeviceToUpdate("device1", "etag1")), 10, 0);
+
+        //assert
+        assertTrue(results.isSuccessful());
+        new Verifications()
+        {
+            {
+                mockedHttpRequest.setHeaderField("If-Match", "\"etag1\"");
+                times = 1;
+                new HttpRequest((URL)any, HttpMethod.GET, (byte[])any);
+                times = 1;
+                mockedHttpRequest.setHeaderField("If-Match", "\"etag2\"");
+                times = 1;
+                mockedHttpRequest.send();
+                times = 3;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_090: [** If the twin still changed after 3 retries, the updateTwinsAsync shall report the device as failed with the IotHubPreconditionFailedException **]**
+     */
+    @Test
+    public void updateTwinsFailsAfterPreconditionFailedRetries() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+        new NonStrictExpectations()
+        {
+            {
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                result = "SomeJsonString";
+                mockedTwinParser.getETag();
+                result = "etag2";
+                mockedHttpResponse.getBody();
+                result = "{}".getBytes(StandardCharsets.UTF_8);
+                IotHubExceptionManager.httpResponseVerification((HttpResponse)any);
+                result = new Delegate()
+                {
+                    int calls = 0;
+                    void httpResponseVerification(HttpResponse response) throws IotHubException
+                    {
+                        // The patches are the even calls, the twin reads are the odd ones.
+                        if ((calls++ % 2) == 0)
+                        {
+                            throw new IotHubPreconditionFailedException();
+                        }
+                    }
+                };
+            }
+        };
+
+        //act
+        DeviceTwinUpdateResults results = testTwin.updateTwins(Collections.singletonList(createDeviceToUpdate("device1", "etag1")), 10, 0);
+
+        //assert
+        assertTrue(results.getFailures().get("device1") instanceof IotHubPreconditionFailedException);
+        new Verifications()
+        {
+            {
+                new HttpRequest((URL)any, HttpMethod.PATCH, (byte[])any);
+                times = 4;
+                new HttpRequest((URL)any, HttpMethod.GET, (byte[])any);
+                times = 3;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_083: [** The updateTwinsAsync shall throw IllegalArgumentException if the deviceIds is null, empty, or contains a null or empty deviceId **]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void updateTwinsSharedPatchThrowsOnEmptyDeviceId() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+        Set<Pair> tags = new HashSet<>();
+        tags.add(new Pair("floor", 2));
+
+        //act
+        testTwin.updateTwinsAsync(Arrays.asList("device1", ""), tags, null, 10, 0);
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_084: [** The updateTwinsAsync shall serialize the tags and desired properties once before any update, and throw IllegalArgumentException if one of them is not valid, or both are empty or null **]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void updateTwinsSharedPatchThrowsOnEmptyPatch() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+
+        //act
+        testTwin.updateTwinsAsync(Arrays.asList("device1", "device2"), null, new HashSet<Pair>(), 10, 0);
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_084: [** The updateTwinsAsync shall serialize the tags and desired properties once before any update, and throw IllegalArgumentException if one of them is not valid, or both are empty or null **]**
+    **Tests_SRS_DEVICETWIN_21_088: [** The updateTwinsAsync shall send each patch with the header If-Match with the etag of the device, if it has one, using headers that belong to this request only **]**
+     */
+    @Test
+    public void updateTwinsSendsSharedPatchToEachDeviceOnce() throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+        Set<Pair> tags = new HashSet<>();
+        tags.add(new Pair("floor", 2));
+        new NonStrictExpectations()
+        {
+            {
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                result = "SomeJsonString";
+                mockedConnectionString.getUrlTwin(anyString);
+                result = new URL("https://test.azure-devices.net/twins/device");
+            }
+        };
+
+        //act
+        DeviceTwinUpdateResults results = testTwin.updateTwins(Arrays.asList("device1", "device2", "device1"), tags, null, 10, 0);
+
+        //assert
+        assertTrue(results.isSuccessful());
+        assertEquals(2, results.getUpdatedDeviceIds().size());
+        new Verifications()
+        {
+            {
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                times = 1;
+                mockedHttpRequest.send();
+                times = 2;
+                mockedHttpRequest.setHeaderField("If-Match", anyString);
+                times = 0;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_093: [** If the executor rejects all workers, the updateTwinsAsync shall report the pending devices as failed with the RejectedExecutionException **]**
+     */
+    @Test
+    public void updateTwinsReportsRejectedDevices() throws Exception
+    {
+        //arrange
+        final RejectedExecutionException rejection = new RejectedExecutionException();
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", (Executor)runnable ->
+        {
+            throw rejection;
+        });
+        new NonStrictExpectations()
+        {
+            {
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                result = "SomeJsonString";
+            }
+        };
+
+        //act
+        DeviceTwinUpdateResults results = testTwin.updateTwinsAsync(
+                Arrays.asList(createDeviceToUpdate("device1", null), createDeviceToUpdate("device2", null)), 10, 0).get();
+
+        //assert
+        assertEquals(rejection, results.getFailures().get("device1"));
+        assertEquals(rejection, results.getFailures().get("device2"));
+        new Verifications()
+        {
+            {
+                mockedHttpRequest.send();
+                times = 0;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_099: [** If the instance was created without an executor, the updateTwinsAsync shall run the workers in a new executor with one thread per worker, and shut it down when all devices are done **]**
+     */
+    @Test
+    public void updateTwinsWithoutExecutorRunsMaxParallelismUpdates() throws Exception
+    {
+        //arrange
+        final int maxParallelism = AsyncExecutors.DEFAULT_FAN_OUT_THREAD_COUNT + 5;
+        final CountDownLatch allRunning = new CountDownLatch(maxParallelism);
+        final Set<Thread> workerThreads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString");
+        new NonStrictExpectations()
+        {
+            {
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                result = "SomeJsonString";
+            }
+        };
+        new MockUp<DeviceOperations>()
+        {
+            @Mock HttpResponse request(IotHubConnectionString iotHubConnectionString, URL url, HttpMethod method, byte[] payload,
+                                       String requestId, long timeoutInMs, Map<String, String> customHeaders)
+                    throws IOException, InterruptedException
+            {
+                workerThreads.add(Thread.currentThread());
+                allRunning.countDown();
+                if (!allRunning.await(10, TimeUnit.SECONDS))
+                {
+                    throw new IOException("updates did not run in parallel");
+                }
+                return mockedHttpResponse;
+            }
+        };
+        List<DeviceTwinDevice> devices = new ArrayList<>();
+        for (int i = 0; i < maxParallelism; i++)
+        {
+            devices.add(createDeviceToUpdate("device" + i, null));
+        }
+
+        //act
+        DeviceTwinUpdateResults results = testTwin.updateTwinsAsync(devices, maxParallelism, 0).get(20, TimeUnit.SECONDS);
+
+        //assert
+        assertTrue(results.isSuccessful());
+        assertEquals(maxParallelism, results.getUpdatedDeviceIds().size());
+        for (Thread workerThread : workerThreads)
+        {
+            workerThread.join(10000);
+            assertFalse(workerThread.isAlive());
+        }
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_101: [** If a worker ended with an Error, the updateTwinsAsync shall complete the returned future exceptionally with it **]**
+     */
+    @Test
+    public void updateTwinsCompletesExceptionallyOnWorkerError() throws Exception
+    {
+        //arrange
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", executor);
+        new NonStrictExpectations()
+        {
+            {
+                mockedTwinParser.updateTwin((Map<String, Object>)any, null, (Map<String, Object>)any);
+                result = "SomeJsonString";
+                mockedHttpRequest.send();
+                result = new AssertionError("worker failure");
+            }
+        };
+
+        //act
+        try
+        {
+            CompletableFuture<DeviceTwinUpdateResults> future = testTwin.updateTwinsAsync(
+                    Arrays.asList(createDeviceToUpdate("device1", null), createDeviceToUpdate("device2", null)), 1, 0);
+
+            //assert
+            try
+            {
+                future.get(10, TimeUnit.SECONDS);
+                fail("updateTwinsAsync shall complete exceptionally");
+            }
+            catch (ExecutionException e)
+            {
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_095: [** The queryTwinDevices shall send the twin query as queryTwin, with the page prefetch enabled in the executor **]**
+    **Tests_SRS_DEVICETWIN_21_096: [** The queryTwinDevices shall enable the adaptive page size, between 10, or the pageSize if smaller, and the pageSize, with a target page latency of 2 seconds **]**
+    **Tests_SRS_DEVICETWIN_21_097: [** The queryTwinDevices shall return a DeviceTwinIterator over the twin query **]**
+    **Tests_SRS_DEVICETWIN_21_098: [** If the pageSize is not specified, default pageSize of 100 shall be used **]**
+     */
+    @Test
+    public void queryTwinDevicesEnablesPrefetchAndAdaptivePageSize() throws IotHubException, IOException
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString", SAME_THREAD_EXECUTOR);
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.newInstance(Query.class, new Class[] {String.class, Integer.class, QueryType.class}, anyString, 100, QueryType.TWIN);
+                result = mockedQuery;
+            }
+        };
+
+        //act
+        DeviceTwinIterator iterator = testTwin.queryTwinDevices(VALID_SQL_QUERY);
+
+        //assert
+        assertNotNull(iterator);
+        new Verifications()
+        {
+            {
+                mockedQuery.enablePrefetch(SAME_THREAD_EXECUTOR);
+                times = 1;
+                mockedQuery.enableAdaptivePageSize(10, 100, 2000);
+                times = 1;
+                Deencapsulation.invoke(mockedQuery, "sendQueryRequest", new Class[] {IotHubConnectionString.class, URL.class, HttpMethod.class, Long.class}, any, any, HttpMethod.POST, any);
+                times = 1;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_096: [** The queryTwinDevices shall enable the adaptive page size, between 10, or the pageSize if smaller, and the pageSize, with a target page latency of 2 seconds **]**
+     */
+    @Test
+    public void queryTwinDevicesWithSmallPageSizeDoesNotExceedIt() throws IotHubException, IOException
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString");
+
+        //act
+        testTwin.queryTwinDevices(VALID_SQL_QUERY, 5);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedQuery.enableAdaptivePageSize(5, 5, 2000);
+                times = 1;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_095: [** The queryTwinDevices shall send the twin query as queryTwin, with the page prefetch enabled in the executor **]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void queryTwinDevicesThrowsOnNullQuery() throws IotHubException, IOException
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString");
+
+        //act
+        testTwin.queryTwinDevices(null);
+    }
+
+    /*
+    **Tests_SRS_DEVICETWIN_21_095: [** The queryTwinDevices shall send the twin query as queryTwin, with the page prefetch enabled in the executor **]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void queryTwinDevicesThrowsOnZeroPageSize() throws IotHubException, IOException
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString");
+
+        //act
+        testTwin.queryTwinDevices(VALID_SQL_QUERY, 0);
+    }
 }
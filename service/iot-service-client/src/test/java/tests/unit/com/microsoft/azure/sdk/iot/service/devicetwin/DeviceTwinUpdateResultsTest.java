@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinUpdateResults;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for device twin update results class
+ * 100% methods, 100% lines covered
+ */
+public class DeviceTwinUpdateResultsTest
+{
+    private static DeviceTwinUpdateResults createResults(Set<String> updatedDeviceIds, Map<String, Exception> failures)
+    {
+        return Deencapsulation.newInstance(DeviceTwinUpdateResults.class, new Class[] { Set.class, Map.class }, updatedDeviceIds, failures);
+    }
+
+    /* Tests_SRS_DEVICETWINUPDATERESULTS_21_001: [The constructor shall throw IllegalArgumentException if the updatedDeviceIds or the failures is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowOnNullUpdatedDeviceIds()
+    {
+        //act
+        createResults(null, new HashMap<String, Exception>());
+    }
+
+    /* Tests_SRS_DEVICETWINUPDATERESULTS_21_001: [The constructor shall throw IllegalArgumentException if the updatedDeviceIds or the failures is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowOnNullFailures()
+    {
+        //act
+        createResults(new HashSet<String>(), null);
+    }
+
+    /* Tests_SRS_DEVICETWINUPDATERESULTS_21_002: [The constructor shall store a copy of the updatedDeviceIds and failures.] */
+    /* Tests_SRS_DEVICETWINUPDATERESULTS_21_003: [The getUpdatedDeviceIds shall return an unmodifiable set with the ids of the updated devices.] */
+    /* Tests_SRS_DEVICETWINUPDATERESULTS_21_004: [The getFailures shall return an unmodifiable map with the failures by deviceId.] */
+    /* Tests_SRS_DEVICETWINUPDATERESULTS_21_005: [The isSuccessful shall return true if there is no failure, and false otherwise.] */
+    @Test
+    public void constructorStoresCopyOfUpdatedDevicesAndFailures()
+    {
+        //arrange
+        Set<String> updatedDeviceIds = new HashSet<>();
+        updatedDeviceIds.add("device1");
+        Map<String, Exception> failures = new HashMap<>();
+        failures.put("device2", new IOException());
+
+        //act
+        DeviceTwinUpdateResults results = createResults(updatedDeviceIds, failures);
+        updatedDeviceIds.clear();
+        failures.clear();
+
+        //assert
+        assertFalse(results.isSuccessful());
+        assertThat(results.getUpdatedDeviceIds().size(), is(1));
+        assertTrue(results.getUpdatedDeviceIds().contains("device1"));
+        assertThat(results.getFailures().size(), is(1));
+        assertTrue(results.getFailures().get("device2") instanceof IOException);
+    }
+
+    /* Tests_SRS_DEVICETWINUPDATERESULTS_21_005: [The isSuccessful shall return true if there is no failure, and false otherwise.] */
+    @Test
+    public void isSuccessfulWithoutFailures()
+    {
+        //act
+        DeviceTwinUpdateResults results = createResults(new HashSet<String>(), new HashMap<String, Exception>());
+
+        //assert
+        assertTrue(results.isSuccessful());
+    }
+
+    /* Tests_SRS_DEVICETWINUPDATERESULTS_21_003: [The getUpdatedDeviceIds shall return an unmodifiable set with the ids of the updated devices.] */
+    @Test (expected = UnsupportedOperationException.class)
+    public void getUpdatedDeviceIdsIsUnmodifiable()
+    {
+        //arrange
+        DeviceTwinUpdateResults results = createResults(new HashSet<String>(), new HashMap<String, Exception>());
+
+        //act
+        results.getUpdatedDeviceIds().add("device1");
+    }
+}
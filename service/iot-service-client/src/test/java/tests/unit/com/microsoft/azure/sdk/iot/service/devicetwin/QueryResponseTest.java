@@ -10,9 +10,11 @@ import com.microsoft.azure.sdk.iot.service.devicetwin.QueryResponse;
 import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
+import mockit.Verifications;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -193,4 +195,53 @@ public class QueryResponseTest
         assertFalse(testResponse.hasNext());
         assertNull(testResponse.next());
     }
+
+    //Tests_SRS_QUERY_RESPONSE_21_005: [If the json is null or empty, the constructor shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNullBytes() throws IOException
+    {
+        //act
+        Deencapsulation.newInstance(QueryResponse.class, new Class[] {byte[].class}, (Object)null);
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_21_005: [If the json is null or empty, the constructor shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnEmptyBytes() throws IOException
+    {
+        //act
+        Deencapsulation.newInstance(QueryResponse.class, new Class[] {byte[].class}, (Object)new byte[0]);
+    }
+
+    //Tests_SRS_QUERY_RESPONSE_21_006: [The constructor shall stream the UTF-8 json response using QueryResponseParser, parsing each element only when it is returned by next, and set the iterator.]
+    @Test
+    public void constructorStreamsBytes() throws IOException
+    {
+        //arrange
+        final byte[] json = "[{}]".getBytes(StandardCharsets.UTF_8);
+        final List<String> testList = new LinkedList();
+        testList.add("testValue");
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedQueryResponseParser.getJsonItemsIterator();
+                result = testList.iterator();
+            }
+        };
+
+        //act
+        QueryResponse testResponse = Deencapsulation.newInstance(QueryResponse.class, new Class[] {byte[].class}, (Object)json);
+
+        //assert
+        assertEqualsIterator(testList.iterator(), testResponse);
+        new Verifications()
+        {
+            {
+                new QueryResponseParser(json);
+                times = 1;
+                mockedQueryResponseParser.getJsonItems();
+                times = 0;
+            }
+        };
+    }
 }
@@ -11,6 +11,9 @@ import com.microsoft.azure.sdk.iot.service.devicetwin.Query;
 import com.microsoft.azure.sdk.iot.service.devicetwin.QueryResponse;
 import com.microsoft.azure.sdk.iot.service.devicetwin.QueryType;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubServerBusyException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
@@ -20,9 +23,13 @@ import org.junit.Test;
 import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.Assert.*;
 
@@ -502,7 +509,7 @@ public class QueryTest
             {
                 mockHttpResponse.getHeaderFields();
                 result = testHeaderResponseMap;
-                Deencapsulation.newInstance(QueryResponse.class, anyString);
+                Deencapsulation.newInstance(QueryResponse.class, new Class[] {byte[].class}, (byte[]) any);
                 result = new IOException("test");
             }
         };
@@ -924,4 +931,405 @@ public class QueryTest
         //act
         Object next = Deencapsulation.invoke(testQuery, "next");
     }
+
+    private static final class DeferredExecutor implements Executor
+    {
+        private final List<Runnable> tasks = new LinkedList<>();
+
+        @Override
+        public void execute(Runnable task)
+        {
+            tasks.add(task);
+        }
+
+        private void runAll()
+        {
+            while (!tasks.isEmpty())
+            {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    //Tests_SRS_QUERY_21_023: [If the executor is null, the method shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void enablePrefetchThrowsOnNullExecutor()
+    {
+        //arrange
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+
+        //act
+        testQuery.enablePrefetch(null);
+    }
+
+    //Tests_SRS_QUERY_21_024: [The method shall save the executor, and use it to prefetch the next page after each page that has a continuation token.]
+    //Tests_SRS_QUERY_21_027: [If the next page was prefetched, the query shall use it instead of sending a new request, and throw the exception that the prefetch request threw.]
+    @Test
+    public void prefetchRequestsNextPageInExecutorAndContinueQueryUsesIt() throws IotHubException, IOException
+    {
+        //arrange
+        final String testToken = UUID.randomUUID().toString();
+        DeferredExecutor executor = new DeferredExecutor();
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+        testQuery.enablePrefetch(executor);
+        setupSendQuery(testQuery, testToken);
+
+        //act
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        Deencapsulation.invoke(testQuery, "continueQuery", testToken);
+
+        //assert
+        assertEquals(1, executor.tasks.size());
+        new Verifications()
+        {
+            {
+                new HttpRequest(mockUrl, mockHttpMethod, (byte[]) any);
+                times = 2;
+                mockHttpRequest.setHeaderField("x-ms-continuation", testToken);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_QUERY_21_027: [If the next page was prefetched, the query shall use it instead of sending a new request, and throw the exception that the prefetch request threw.]
+    @Test (expected = IOException.class)
+    public void continueQueryThrowsWhenPrefetchFailed() throws IotHubException, IOException
+    {
+        //arrange
+        final String testToken = UUID.randomUUID().toString();
+        final Map<String, String> firstPageHeaders = new HashMap<>();
+        firstPageHeaders.put("x-ms-continuation", testToken);
+        firstPageHeaders.put("x-ms-item-type", DEFAULT_QUERY_TYPE.getValue());
+        final Map<String, String> secondPageHeaders = new HashMap<>();
+        secondPageHeaders.put("x-ms-item-type", QueryType.DEVICE_JOB.getValue());
+        DeferredExecutor executor = new DeferredExecutor();
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+        testQuery.enablePrefetch(executor);
+        new NonStrictExpectations()
+        {
+            {
+                mockHttpResponse.getHeaderFields();
+                result = firstPageHeaders;
+                result = secondPageHeaders;
+            }
+        };
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+        executor.runAll();
+
+        //act
+        Deencapsulation.invoke(testQuery, "continueQuery", testToken);
+    }
+
+    //Tests_SRS_QUERY_21_025: [If the executor rejects the prefetch, the query shall request the next page when it is needed, as if the prefetch was not enabled.]
+    @Test
+    public void continueQuerySendsRequestWhenPrefetchRejected() throws IotHubException, IOException
+    {
+        //arrange
+        final String testToken = UUID.randomUUID().toString();
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+        testQuery.enablePrefetch(task ->
+        {
+            throw new RejectedExecutionException();
+        });
+        setupSendQuery(testQuery, testToken);
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+
+        //act
+        Deencapsulation.invoke(testQuery, "continueQuery", testToken);
+
+        //assert
+        new Verifications()
+        {
+            {
+                new HttpRequest(mockUrl, mockHttpMethod, (byte[]) any);
+                times = 2;
+            }
+        };
+    }
+
+    //Tests_SRS_QUERY_21_026: [The method shall discard any page prefetched before this request.]
+    @Test
+    public void continueQueryWithNewPageSizeDiscardsPrefetchedPage() throws IotHubException, IOException
+    {
+        //arrange
+        final String testToken = UUID.randomUUID().toString();
+        DeferredExecutor executor = new DeferredExecutor();
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+        testQuery.enablePrefetch(executor);
+        setupSendQuery(testQuery, testToken);
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+
+        //act
+        Deencapsulation.invoke(testQuery, "continueQuery", testToken, DEFAULT_PAGE_SIZE / 2);
+
+        //assert
+        executor.runAll();
+        new Verifications()
+        {
+            {
+                mockHttpRequest.setHeaderField("x-ms-max-item-count", String.valueOf(DEFAULT_PAGE_SIZE));
+                times = 1;
+                mockHttpRequest.setHeaderField("x-ms-max-item-count", String.valueOf(DEFAULT_PAGE_SIZE / 2));
+                times = 2;
+            }
+        };
+    }
+
+    //Tests_SRS_QUERY_21_022: [The method shall send the query headers with this request only, so concurrent queries do not share headers.]
+    @Test
+    public void sendQueryRequestDoesNotUseSharedHeaders() throws IotHubException, IOException
+    {
+        //arrange
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+        setupSendQuery(testQuery, UUID.randomUUID().toString());
+
+        //act
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+
+        //assert
+        assertNull(Deencapsulation.getField(com.microsoft.azure.sdk.iot.service.devicetwin.DeviceOperations.class, "headers"));
+    }
+
+    //Tests_SRS_QUERY_21_033: [The QueryResponse shall stream the items from the UTF-8 response body, without converting the body to a string.]
+    @Test
+    public void sendQueryRequestStreamsResponseBody() throws IotHubException, IOException
+    {
+        //arrange
+        final byte[] testBody = "[{\"deviceId\":\"d\u00e9v\"}]".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+        setupSendQuery(testQuery, null);
+        new NonStrictExpectations()
+        {
+            {
+                mockHttpResponse.getBody();
+                result = testBody;
+            }
+        };
+
+        //act
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+
+        //assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(QueryResponse.class, new Class[] {byte[].class}, testBody);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_QUERY_21_028: [If the minPageSize is less than 1, the maxPageSize is less than the minPageSize, or the targetPageLatencyInMs is less than 1, the method shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void enableAdaptivePageSizeThrowsOnZeroMinPageSize()
+    {
+        //arrange
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+
+        //act
+        testQuery.enableAdaptivePageSize(0, DEFAULT_PAGE_SIZE, 1000);
+    }
+
+    //Tests_SRS_QUERY_21_028: [If the minPageSize is less than 1, the maxPageSize is less than the minPageSize, or the targetPageLatencyInMs is less than 1, the method shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void enableAdaptivePageSizeThrowsOnMaxPageSizeLessThanMin()
+    {
+        //arrange
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+
+        //act
+        testQuery.enableAdaptivePageSize(10, 9, 1000);
+    }
+
+    //Tests_SRS_QUERY_21_028: [If the minPageSize is less than 1, the maxPageSize is less than the minPageSize, or the targetPageLatencyInMs is less than 1, the method shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void enableAdaptivePageSizeThrowsOnZeroTargetLatency()
+    {
+        //arrange
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+
+        //act
+        testQuery.enableAdaptivePageSize(10, DEFAULT_PAGE_SIZE, 0);
+    }
+
+    //Tests_SRS_QUERY_21_029: [The method shall limit the page size of the next requests to the range between minPageSize and maxPageSize.]
+    @Test
+    public void enableAdaptivePageSizeLimitsPageSize()
+    {
+        //arrange
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+
+        //act
+        testQuery.enableAdaptivePageSize(10, DEFAULT_PAGE_SIZE / 4, 1000);
+
+        //assert
+        assertEquals(DEFAULT_PAGE_SIZE / 4, (int)Deencapsulation.getField(testQuery, "pageSize"));
+    }
+
+    //Tests_SRS_QUERY_21_030: [If the adaptive page size is enabled and a page took longer than the target latency, the query shall halve the page size, but not below the minPageSize.]
+    @Test
+    public void slowPageHalvesPageSizeOfNextRequest() throws IotHubException, IOException
+    {
+        //arrange
+        final String testToken = UUID.randomUUID().toString();
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+        testQuery.enableAdaptivePageSize(30, DEFAULT_PAGE_SIZE, 1000);
+        Deencapsulation.setField(testQuery, "targetPageLatencyInNanos", -1L);
+        setupSendQuery(testQuery, testToken);
+
+        //act
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+        Deencapsulation.invoke(testQuery, "continueQuery", testToken);
+
+        //assert
+        assertEquals(30, (int)Deencapsulation.getField(testQuery, "pageSize"));
+        new Verifications()
+        {
+            {
+                mockHttpRequest.setHeaderField("x-ms-max-item-count", String.valueOf(DEFAULT_PAGE_SIZE));
+                times = 1;
+                mockHttpRequest.setHeaderField("x-ms-max-item-count", String.valueOf(DEFAULT_PAGE_SIZE / 2));
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_QUERY_21_031: [If the adaptive page size is enabled and a page with a continuation token took less than half the target latency, the query shall double the page size, but not above the maxPageSize.]
+    @Test
+    public void fastPageDoublesPageSizeOfNextRequest() throws IotHubException, IOException
+    {
+        //arrange
+        final String testToken = UUID.randomUUID().toString();
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE / 4, DEFAULT_QUERY_TYPE);
+        testQuery.enableAdaptivePageSize(1, DEFAULT_PAGE_SIZE / 3, 1000);
+        Deencapsulation.setField(testQuery, "targetPageLatencyInNanos", Long.MAX_VALUE);
+        setupSendQuery(testQuery, testToken);
+
+        //act
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+        Deencapsulation.invoke(testQuery, "continueQuery", testToken);
+
+        //assert
+        assertEquals(DEFAULT_PAGE_SIZE / 3, (int)Deencapsulation.getField(testQuery, "pageSize"));
+        new Verifications()
+        {
+            {
+                mockHttpRequest.setHeaderField("x-ms-max-item-count", String.valueOf(DEFAULT_PAGE_SIZE / 4));
+                times = 1;
+                mockHttpRequest.setHeaderField("x-ms-max-item-count", String.valueOf(DEFAULT_PAGE_SIZE / 3));
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_QUERY_21_031: [If the adaptive page size is enabled and a page with a continuation token took less than half the target latency, the query shall double the page size, but not above the maxPageSize.]
+    @Test
+    public void fastLastPageKeepsPageSize() throws IotHubException, IOException
+    {
+        //arrange
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE / 4, DEFAULT_QUERY_TYPE);
+        testQuery.enableAdaptivePageSize(1, DEFAULT_PAGE_SIZE, 1000);
+        Deencapsulation.setField(testQuery, "targetPageLatencyInNanos", Long.MAX_VALUE);
+        setupSendQuery(testQuery, null);
+
+        //act
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+
+        //assert
+        assertEquals(DEFAULT_PAGE_SIZE / 4, (int)Deencapsulation.getField(testQuery, "pageSize"));
+    }
+
+    //Tests_SRS_QUERY_21_030: [If the adaptive page size is enabled and a page took longer than the target latency, the query shall halve the page size, but not below the minPageSize.]
+    //Tests_SRS_QUERY_21_031: [If the adaptive page size is enabled and a page with a continuation token took less than half the target latency, the query shall double the page size, but not above the maxPageSize.]
+    @Test
+    public void pageSizeIsNotAdaptedIfNotEnabled() throws IotHubException, IOException
+    {
+        //arrange
+        final String testToken = UUID.randomUUID().toString();
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+        setupSendQuery(testQuery, testToken);
+
+        //act
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+        Deencapsulation.invoke(testQuery, "continueQuery", testToken);
+
+        //assert
+        assertEquals(DEFAULT_PAGE_SIZE, (int)Deencapsulation.getField(testQuery, "pageSize"));
+    }
+
+    //Tests_SRS_QUERY_21_032: [If the adaptive page size is enabled and the IotHub throttled the request, the query shall halve the page size, but not below the minPageSize, and throw the exception.]
+    @Test
+    public void throttledRequestHalvesPageSize(@Mocked IotHubExceptionManager mockedExceptionManager) throws IotHubException, IOException
+    {
+        //arrange
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+        testQuery.enableAdaptivePageSize(30, DEFAULT_PAGE_SIZE, 1000);
+        new NonStrictExpectations()
+        {
+            {
+                IotHubExceptionManager.httpResponseVerification((HttpResponse)any);
+                result = new IotHubTooManyRequestsException("throttled");
+                result = new IotHubServerBusyException("busy");
+            }
+        };
+
+        //act
+        try
+        {
+            testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+            fail("the throttled request shall throw");
+        }
+        catch (IotHubTooManyRequestsException expected)
+        {
+            assertEquals(DEFAULT_PAGE_SIZE / 2, (int)Deencapsulation.getField(testQuery, "pageSize"));
+        }
+        try
+        {
+            testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+            fail("the busy request shall throw");
+        }
+        catch (IotHubServerBusyException expected)
+        {
+            //assert
+            assertEquals(30, (int)Deencapsulation.getField(testQuery, "pageSize"));
+        }
+    }
+
+    //Tests_SRS_QUERY_21_032: [If the adaptive page size is enabled and the IotHub throttled the request, the query shall halve the page size, but not below the minPageSize, and throw the exception.]
+    @Test
+    public void throttledPrefetchHalvesPageSize(@Mocked IotHubExceptionManager mockedExceptionManager) throws IotHubException, IOException
+    {
+        //arrange
+        final String testToken = UUID.randomUUID().toString();
+        DeferredExecutor executor = new DeferredExecutor();
+        Query testQuery = Deencapsulation.newInstance(Query.class, DEFAULT_QUERY, DEFAULT_PAGE_SIZE, DEFAULT_QUERY_TYPE);
+        testQuery.enablePrefetch(executor);
+        testQuery.enableAdaptivePageSize(1, DEFAULT_PAGE_SIZE, 1000);
+        Deencapsulation.setField(testQuery, "targetPageLatencyInNanos", Long.MAX_VALUE);
+        setupSendQuery(testQuery, testToken);
+        new NonStrictExpectations()
+        {
+            {
+                IotHubExceptionManager.httpResponseVerification((HttpResponse)any);
+                result = null;
+                result = new IotHubTooManyRequestsException("throttled");
+            }
+        };
+        testQuery.sendQueryRequest(mockIotHubConnectionString, mockUrl, mockHttpMethod, DEFAULT_TIMEOUT);
+        executor.runAll();
+
+        //act
+        try
+        {
+            testQuery.hasNext();
+            fail("the throttled prefetch shall throw");
+        }
+        catch (IotHubTooManyRequestsException expected)
+        {
+            //assert
+            assertEquals(DEFAULT_PAGE_SIZE / 2, (int)Deencapsulation.getField(testQuery, "pageSize"));
+        }
+    }
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.TwinCache;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the twin cache.
+ * 100% methods, 100% lines covered
+ */
+public class TwinCacheTest
+{
+    private static final String DEVICE_ID = "validDeviceId";
+    private static final String ETAG = "AAAAAAAAAAE=";
+    private static final String TWIN_JSON = "{\"deviceId\":\"validDeviceId\",\"etag\":\"AAAAAAAAAAE=\"}";
+    private static final long LONG_TIME_TO_LIVE = 60000;
+
+    private static void put(TwinCache twinCache, String deviceId, String eTag, String twinJson, long generation)
+    {
+        Deencapsulation.invoke(twinCache, "put", deviceId, eTag, twinJson, generation);
+    }
+
+    private static String getFreshTwin(TwinCache twinCache, String deviceId)
+    {
+        return Deencapsulation.invoke(twinCache, "getFreshTwin", deviceId);
+    }
+
+    private static String revalidate(TwinCache twinCache, String deviceId, String eTag, long generation)
+    {
+        return Deencapsulation.invoke(twinCache, "revalidate", deviceId, eTag, generation);
+    }
+
+    private static long getGeneration(TwinCache twinCache)
+    {
+        return Deencapsulation.invoke(twinCache, "getGeneration");
+    }
+
+    /* Tests_SRS_TWINCACHE_21_001: [The constructor shall throw IllegalArgumentException if the maxSize is less than 1.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnZeroMaxSize()
+    {
+        //act
+        new TwinCache(0, LONG_TIME_TO_LIVE);
+    }
+
+    /* Tests_SRS_TWINCACHE_21_002: [The constructor shall throw IllegalArgumentException if the timeToLiveInMs is negative.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNegativeTimeToLive()
+    {
+        //act
+        new TwinCache(10, -1);
+    }
+
+    /* Tests_SRS_TWINCACHE_21_003: [The constructor shall create an empty cache that keeps up to maxSize twins, discarding the least recently read one.] */
+    /* Tests_SRS_TWINCACHE_21_004: [The getHitCount shall return the number of twins returned without a request.] */
+    /* Tests_SRS_TWINCACHE_21_005: [The getRevalidationCount shall return the number of twins returned after a conditional request that found no change.] */
+    /* Tests_SRS_TWINCACHE_21_006: [The getMissCount shall return the number of twins received in full from the IotHub.] */
+    /* Tests_SRS_TWINCACHE_21_007: [The size shall return the number of cached twins.] */
+    @Test
+    public void constructorCreatesEmptyCache()
+    {
+        //act
+        TwinCache twinCache = new TwinCache(10, 0);
+
+        //assert
+        assertEquals(0, twinCache.size());
+        assertEquals(0, twinCache.getHitCount());
+        assertEquals(0, twinCache.getRevalidationCount());
+        assertEquals(0, twinCache.getMissCount());
+    }
+
+    /* Tests_SRS_TWINCACHE_21_003: [The constructor shall create an empty cache that keeps up to maxSize twins, discarding the least recently read one.] */
+    /* Tests_SRS_TWINCACHE_21_017: [The put shall store the twin with its etag, and discard the least recently read twin if the cache is full.] */
+    @Test
+    public void putDiscardsLeastRecentlyReadTwin()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(2, LONG_TIME_TO_LIVE);
+        put(twinCache, "device1", ETAG, TWIN_JSON, 0);
+        put(twinCache, "device2", ETAG, TWIN_JSON, 0);
+        getFreshTwin(twinCache, "device1");
+
+        //act
+        put(twinCache, "device3", ETAG, TWIN_JSON, 0);
+
+        //assert
+        assertEquals(2, twinCache.size());
+        assertEquals(TWIN_JSON, getFreshTwin(twinCache, "device1"));
+        assertNull(getFreshTwin(twinCache, "device2"));
+        assertEquals(TWIN_JSON, getFreshTwin(twinCache, "device3"));
+    }
+
+    /* Tests_SRS_TWINCACHE_21_010: [If the twin is not cached or its time to live expired, the getFreshTwin shall return null.] */
+    @Test
+    public void getFreshTwinReturnsNullIfNotCached()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10, LONG_TIME_TO_LIVE);
+
+        //act/assert
+        assertNull(getFreshTwin(twinCache, DEVICE_ID));
+        assertEquals(0, twinCache.getHitCount());
+    }
+
+    /* Tests_SRS_TWINCACHE_21_010: [If the twin is not cached or its time to live expired, the getFreshTwin shall return null.] */
+    @Test
+    public void getFreshTwinReturnsNullIfExpired()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10, 0);
+        put(twinCache, DEVICE_ID, ETAG, TWIN_JSON, 0);
+
+        //act/assert
+        assertNull(getFreshTwin(twinCache, DEVICE_ID));
+        assertEquals(0, twinCache.getHitCount());
+        assertEquals(1, twinCache.size());
+    }
+
+    /* Tests_SRS_TWINCACHE_21_011: [If the twin is in its time to live, the getFreshTwin shall count a hit and return the cached twin.] */
+    /* Tests_SRS_TWINCACHE_21_015: [The put shall count a miss.] */
+    @Test
+    public void getFreshTwinReturnsCachedTwin()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10, LONG_TIME_TO_LIVE);
+        put(twinCache, DEVICE_ID, ETAG, TWIN_JSON, 0);
+
+        //act
+        String twin = getFreshTwin(twinCache, DEVICE_ID);
+
+        //assert
+        assertEquals(TWIN_JSON, twin);
+        assertEquals(1, twinCache.getHitCount());
+        assertEquals(1, twinCache.getMissCount());
+    }
+
+    /* Tests_SRS_TWINCACHE_21_012: [The getETag shall return the etag of the cached twin, or null if it is not cached.] */
+    @Test
+    public void getETagReturnsCachedETag()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10, 0);
+        put(twinCache, DEVICE_ID, ETAG, TWIN_JSON, 0);
+
+        //act/assert
+        assertEquals(ETAG, Deencapsulation.invoke(twinCache, "getETag", DEVICE_ID));
+        assertNull(Deencapsulation.invoke(twinCache, "getETag", "otherDevice"));
+    }
+
+    /* Tests_SRS_TWINCACHE_21_014: [The revalidate shall restart the time to live of the twin, count a revalidation, and return the cached twin.] */
+    @Test
+    public void revalidateReturnsCachedTwin()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10, 0);
+        put(twinCache, DEVICE_ID, ETAG, TWIN_JSON, 0);
+
+        //act
+        String twin = revalidate(twinCache, DEVICE_ID, ETAG, getGeneration(twinCache));
+
+        //assert
+        assertEquals(TWIN_JSON, twin);
+        assertEquals(1, twinCache.getRevalidationCount());
+    }
+
+    /* Tests_SRS_TWINCACHE_21_013: [If the twin was discarded or replaced during the request, the revalidate shall return null.] */
+    @Test
+    public void revalidateReturnsNullIfInvalidatedDuringRequest()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10, 0);
+        put(twinCache, DEVICE_ID, ETAG, TWIN_JSON, 0);
+        long generation = getGeneration(twinCache);
+        twinCache.invalidate("otherDevice");
+
+        //act/assert
+        assertNull(revalidate(twinCache, DEVICE_ID, ETAG, generation));
+        assertEquals(0, twinCache.getRevalidationCount());
+    }
+
+    /* Tests_SRS_TWINCACHE_21_013: [If the twin was discarded or replaced during the request, the revalidate shall return null.] */
+    @Test
+    public void revalidateReturnsNullIfReplacedDuringRequest()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10, 0);
+        put(twinCache, DEVICE_ID, ETAG, TWIN_JSON, 0);
+        put(twinCache, DEVICE_ID, "AAAAAAAAAAI=", TWIN_JSON, 0);
+
+        //act/assert
+        assertNull(revalidate(twinCache, DEVICE_ID, ETAG, 0));
+        assertNull(revalidate(twinCache, "otherDevice", ETAG, 0));
+    }
+
+    /* Tests_SRS_TWINCACHE_21_016: [If the etag is null or empty, or any twin was invalidated during the request, the put shall not store the twin.] */
+    @Test
+    public void putDoesNotStoreTwinWithoutETag()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10, LONG_TIME_TO_LIVE);
+
+        //act
+        put(twinCache, DEVICE_ID, "", TWIN_JSON, 0);
+
+        //assert
+        assertEquals(0, twinCache.size());
+        assertEquals(1, twinCache.getMissCount());
+    }
+
+    /* Tests_SRS_TWINCACHE_21_008: [The invalidate shall discard the twin of the deviceId, and not store any twin whose request started before.] */
+    /* Tests_SRS_TWINCACHE_21_016: [If the etag is null or empty, or any twin was invalidated during the request, the put shall not store the twin.] */
+    @Test
+    public void invalidateDiscardsTwinAndPendingPut()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10, LONG_TIME_TO_LIVE);
+        put(twinCache, DEVICE_ID, ETAG, TWIN_JSON, 0);
+        long generation = getGeneration(twinCache);
+
+        //act
+        twinCache.invalidate(DEVICE_ID);
+        put(twinCache, DEVICE_ID, ETAG, TWIN_JSON, generation);
+
+        //assert
+        assertEquals(0, twinCache.size());
+        assertNull(getFreshTwin(twinCache, DEVICE_ID));
+    }
+
+    /* Tests_SRS_TWINCACHE_21_009: [The clear shall discard all twins, and not store any twin whose request started before.] */
+    @Test
+    public void clearDiscardsAllTwins()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10, LONG_TIME_TO_LIVE);
+        put(twinCache, "device1", ETAG, TWIN_JSON, 0);
+        put(twinCache, "device2", ETAG, TWIN_JSON, 0);
+        long generation = getGeneration(twinCache);
+
+        //act
+        twinCache.clear();
+        put(twinCache, "device3", ETAG, TWIN_JSON, generation);
+
+        //assert
+        assertEquals(0, twinCache.size());
+    }
+}
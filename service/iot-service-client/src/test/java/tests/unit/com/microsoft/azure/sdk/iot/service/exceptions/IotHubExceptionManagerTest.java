@@ -176,6 +176,21 @@ public class IotHubExceptionManagerTest
         IotHubExceptionManager.httpResponseVerification(response);
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBEXCEPTIONMANAGER_21_014: [The function shall throw IotHubNotModifiedException if the Http response status equal 304]
+    // Assert
+    @Test (expected = IotHubNotModifiedException.class)
+    public void httpResponseVerification304() throws IotHubException
+    {
+        // Arrange
+        final int status = 304;
+        final byte[] body = { 1 };
+        final Map<String, List<String>> headerFields = new HashMap<>();
+        final byte[] errorReason = { 2, 3, 4, 5 };
+        HttpResponse response = new HttpResponse(status, body, headerFields, errorReason);
+        // Act
+        IotHubExceptionManager.httpResponseVerification(response);
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBEXCEPTIONMANAGER_12_011: [The function shall throw IotHubException if the Http response status none of them above and greater than 300 copying the error Http reason to the exception]
     // Assert
     @Test (expected = IotHubException.class)
@@ -14,6 +14,7 @@ import com.microsoft.azure.sdk.iot.service.devicetwin.*;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.jobs.JobClient;
 import com.microsoft.azure.sdk.iot.service.jobs.JobResult;
+import com.microsoft.azure.sdk.iot.service.jobs.JobResultIterator;
 import com.microsoft.azure.sdk.iot.service.jobs.JobStatus;
 import com.microsoft.azure.sdk.iot.service.jobs.JobType;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
@@ -32,6 +33,7 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -2268,4 +2270,119 @@ public class JobClientTest
         //act
         testJobClient.getNextJob(testQuery);
     }
+
+    /* Tests_SRS_JOBCLIENT_21_036: [The constructor shall throw IllegalArgumentException if the input executor is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNullExecutor() throws IOException
+    {
+        //act
+        JobClient.createFromConnectionString("testString", null);
+    }
+
+    /* Tests_SRS_JOBCLIENT_21_037: [The constructor shall create a new JobClient instance from the connection string, that prefetches query pages in the provided executor.] */
+    /* Tests_SRS_JOBCLIENT_21_038: [The queryDeviceJobResults shall send the device job query as queryDeviceJob, with the page prefetch enabled in the executor.] */
+    /* Tests_SRS_JOBCLIENT_21_039: [The queryDeviceJobResults shall return a JobResultIterator over the device job query.] */
+    /* Tests_SRS_JOBCLIENT_21_040: [If the pageSize is not specified, default pageSize of 100 shall be used.] */
+    @Test
+    public void queryDeviceJobResultsEnablesPrefetchAndReturnsIterator(@Mocked Query mockedQuery) throws IotHubException, IOException
+    {
+        //arrange
+        final Executor executor = Runnable::run;
+        JobClient testJobClient = JobClient.createFromConnectionString("testString", executor);
+
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.newInstance(Query.class, new Class[] {String.class, Integer.class, QueryType.class}, anyString, 100, QueryType.DEVICE_JOB);
+                result = mockedQuery;
+            }
+        };
+
+        //act
+        JobResultIterator iterator = testJobClient.queryDeviceJobResults(VALID_SQL_QUERY);
+
+        //assert
+        assertNotNull(iterator);
+        new Verifications()
+        {
+            {
+                mockedQuery.enablePrefetch(executor);
+                times = 1;
+                Deencapsulation.invoke(mockedQuery, "sendQueryRequest", new Class[] {IotHubConnectionString.class, URL.class, HttpMethod.class, Long.class}, any, any, HttpMethod.POST, any);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_JOBCLIENT_21_038: [The queryDeviceJobResults shall send the device job query as queryDeviceJob, with the page prefetch enabled in the executor.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void queryDeviceJobResultsThrowsOnNullQuery() throws IotHubException, IOException
+    {
+        //arrange
+        JobClient testJobClient = JobClient.createFromConnectionString("testString");
+
+        //act
+        testJobClient.queryDeviceJobResults(null);
+    }
+
+    /* Tests_SRS_JOBCLIENT_21_041: [The queryJobResponseResults shall send the job response query as queryJobResponse, with the page prefetch enabled in the executor.] */
+    /* Tests_SRS_JOBCLIENT_21_042: [The queryJobResponseResults shall return a JobResultIterator over the job response query.] */
+    @Test
+    public void queryJobResponseResultsEnablesPrefetchAndReturnsIterator(@Mocked Query mockedQuery) throws IotHubException, IOException
+    {
+        //arrange
+        final Executor executor = Runnable::run;
+        JobClient testJobClient = JobClient.createFromConnectionString("testString", executor);
+
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.newInstance(Query.class, new Class[] {Integer.class, QueryType.class}, anyInt, QueryType.JOB_RESPONSE);
+                result = mockedQuery;
+            }
+        };
+
+        //act
+        JobResultIterator iterator = testJobClient.queryJobResponseResults(JOB_TYPE_DEFAULT, JOB_STATUS_DEFAULT);
+
+        //assert
+        assertNotNull(iterator);
+        new Verifications()
+        {
+            {
+                mockedQuery.enablePrefetch(executor);
+                times = 1;
+                Deencapsulation.invoke(mockedQuery, "sendQueryRequest", new Class[] {IotHubConnectionString.class, URL.class, HttpMethod.class, Long.class}, any, any, HttpMethod.GET, any);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_JOBCLIENT_25_039: [The queryDeviceJob shall create a query object for the type DEVICE_JOB.] */
+    @Test
+    public void queryDeviceJobDoesNotEnablePrefetch(@Mocked Query mockedQuery) throws IotHubException, IOException
+    {
+        //arrange
+        JobClient testJobClient = JobClient.createFromConnectionString("testString");
+
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.newInstance(Query.class, new Class[] {String.class, Integer.class, QueryType.class}, anyString, anyInt, QueryType.DEVICE_JOB);
+                result = mockedQuery;
+            }
+        };
+
+        //act
+        testJobClient.queryDeviceJob(VALID_SQL_QUERY);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedQuery.enablePrefetch((Executor)any);
+                times = 0;
+            }
+        };
+    }
 }
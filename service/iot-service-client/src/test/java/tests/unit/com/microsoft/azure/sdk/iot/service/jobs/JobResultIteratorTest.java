@@ -0,0 +1,182 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.jobs;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.Query;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.jobs.JobResult;
+import com.microsoft.azure.sdk.iot.service.jobs.JobResultIterator;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the job result iterator.
+ * 100% methods, 100% lines covered
+ */
+public class JobResultIteratorTest
+{
+    private static final String JOB_JSON = "{\"jobId\":\"validJobId\"}";
+
+    @Mocked
+    Query mockedQuery;
+
+    @Mocked
+    JobResult mockedJobResult;
+
+    private JobResultIterator createIterator(Query query)
+    {
+        return Deencapsulation.newInstance(JobResultIterator.class, new Class[] { Query.class }, query);
+    }
+
+    /* Tests_SRS_JOBRESULTITERATOR_21_001: [The constructor shall throw IllegalArgumentException if the query is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNullQuery()
+    {
+        //act
+        createIterator(null);
+    }
+
+    /* Tests_SRS_JOBRESULTITERATOR_21_002: [The constructor shall store the query.] */
+    /* Tests_SRS_JOBRESULTITERATOR_21_003: [The hasNext shall return true if the query has a next element, and false otherwise.] */
+    @Test
+    public void hasNextReturnsQueryHasNext() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.hasNext();
+                result = true;
+                result = false;
+            }
+        };
+        JobResultIterator iterator = createIterator(mockedQuery);
+
+        //act/assert
+        assertTrue(iterator.hasNext());
+        assertEquals(false, iterator.hasNext());
+    }
+
+    /* Tests_SRS_JOBRESULTITERATOR_21_004: [If the query failed, the hasNext and next shall throw UncheckedIOException with the IOException, or with an IOException caused by the IotHubException.] */
+    @Test
+    public void hasNextThrowsUncheckedOnIotHubException() throws IOException, IotHubException
+    {
+        //arrange
+        final IotHubException iotHubException = new IotHubException();
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.hasNext();
+                result = iotHubException;
+            }
+        };
+        JobResultIterator iterator = createIterator(mockedQuery);
+
+        //act
+        try
+        {
+            iterator.hasNext();
+            assertTrue("hasNext shall throw", false);
+        }
+        catch (UncheckedIOException e)
+        {
+            //assert
+            assertEquals(iotHubException, e.getCause().getCause());
+        }
+    }
+
+    /* Tests_SRS_JOBRESULTITERATOR_21_004: [If the query failed, the hasNext and next shall throw UncheckedIOException with the IOException, or with an IOException caused by the IotHubException.] */
+    @Test (expected = UncheckedIOException.class)
+    public void nextThrowsUncheckedOnIOException() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.next();
+                result = new IOException();
+            }
+        };
+        JobResultIterator iterator = createIterator(mockedQuery);
+
+        //act
+        iterator.next();
+    }
+
+    /* Tests_SRS_JOBRESULTITERATOR_21_005: [The next shall throw NoSuchElementException if the query has no next element.] */
+    @Test (expected = NoSuchElementException.class)
+    public void nextThrowsOnNoMoreElements() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.next();
+                result = new NoSuchElementException();
+            }
+        };
+        JobResultIterator iterator = createIterator(mockedQuery);
+
+        //act
+        iterator.next();
+    }
+
+    /* Tests_SRS_JOBRESULTITERATOR_21_006: [The next shall throw UncheckedIOException if the next element is not a string.] */
+    @Test (expected = UncheckedIOException.class)
+    public void nextThrowsOnNonStringElement() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.next();
+                result = 10;
+            }
+        };
+        JobResultIterator iterator = createIterator(mockedQuery);
+
+        //act
+        iterator.next();
+    }
+
+    /* Tests_SRS_JOBRESULTITERATOR_21_007: [The next shall parse the next element of the query as a JobResult, and return it.] */
+    @Test
+    public void nextParsesJobResult() throws IOException, IotHubException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedQuery.next();
+                result = JOB_JSON;
+            }
+        };
+        JobResultIterator iterator = createIterator(mockedQuery);
+
+        //act
+        JobResult jobResult = iterator.next();
+
+        //assert
+        assertNotNull(jobResult);
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(JobResult.class, new Class[] { byte[].class }, (Object)JOB_JSON.getBytes(StandardCharsets.UTF_8));
+                times = 1;
+            }
+        };
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.transport;
+
+import com.microsoft.azure.sdk.iot.service.transport.AdaptiveRateLimiter;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the adaptive rate limiter.
+ * 100% methods, 100% lines covered
+ */
+public class AdaptiveRateLimiterTest
+{
+    private static final long ONE_SECOND_IN_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double DELTA = 0.0001;
+
+    private final AtomicLong clock = new AtomicLong(1000);
+
+    private AdaptiveRateLimiter createLimiter()
+    {
+        LongSupplier nanoClock = clock::get;
+        return Deencapsulation.newInstance(AdaptiveRateLimiter.class, new Class[] {LongSupplier.class}, nanoClock);
+    }
+
+    private static long reserve(AdaptiveRateLimiter limiter)
+    {
+        return Deencapsulation.invoke(limiter, "reserve");
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_001: [The constructor shall create a limiter that does not limit the rate.] */
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_002: [The getRatePerSecond shall return the current rate, or 0 if the rate is not limited.] */
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_008: [If the rate is not limited, or there is a token, the reserve shall count the request and return 0.] */
+    @Test
+    public void newLimiterDoesNotLimitTheRate()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = createLimiter();
+
+        //act
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(0, reserve(limiter));
+        }
+
+        //assert
+        assertEquals(0, limiter.getRatePerSecond(), DELTA);
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_009: [If the rate is limited, the onSuccess shall increase the rate by the inverse of the rate, about one request per second every second.] */
+    @Test
+    public void onSuccessDoesNotLimitTheRateBeforeThrottle()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = createLimiter();
+
+        //act
+        limiter.onSuccess();
+
+        //assert
+        assertEquals(0, limiter.getRatePerSecond(), DELTA);
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_010: [The onThrottled shall halve the current rate, or the rate of the last second if the rate was not limited, to no less than MIN_RATE_PER_SECOND.] */
+    @Test
+    public void onThrottledHalvesTheRateOfTheLastSecond()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = createLimiter();
+        for (int i = 0; i < 40; i++)
+        {
+            reserve(limiter);
+        }
+
+        //act
+        limiter.onThrottled(0);
+
+        //assert
+        assertEquals(20, limiter.getRatePerSecond(), DELTA);
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_010: [The onThrottled shall halve the current rate, or the rate of the last second if the rate was not limited, to no less than MIN_RATE_PER_SECOND.] */
+    @Test
+    public void onThrottledDoesNotReduceTheRateBelowMinimum()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = createLimiter();
+
+        //act
+        limiter.onThrottled(0);
+        clock.addAndGet(ONE_SECOND_IN_NANOS);
+        limiter.onThrottled(0);
+
+        //assert
+        assertEquals(AdaptiveRateLimiter.MIN_RATE_PER_SECOND, limiter.getRatePerSecond(), DELTA);
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_011: [The onThrottled shall not reduce the rate again in one second, so the concurrent requests throttled together reduce it only once.] */
+    @Test
+    public void onThrottledReducesTheRateOncePerSecond()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = createLimiter();
+        for (int i = 0; i < 40; i++)
+        {
+            reserve(limiter);
+        }
+
+        //act
+        limiter.onThrottled(0);
+        limiter.onThrottled(0);
+        limiter.onThrottled(0);
+        assertEquals(20, limiter.getRatePerSecond(), DELTA);
+        clock.addAndGet(ONE_SECOND_IN_NANOS);
+        limiter.onThrottled(0);
+
+        //assert
+        assertEquals(10, limiter.getRatePerSecond(), DELTA);
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_009: [If the rate is limited, the onSuccess shall increase the rate by the inverse of the rate, about one request per second every second.] */
+    @Test
+    public void onSuccessIncreasesTheLimitedRate()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = createLimiter();
+        for (int i = 0; i < 40; i++)
+        {
+            reserve(limiter);
+        }
+        limiter.onThrottled(0);
+
+        //act
+        for (int i = 0; i < 20; i++)
+        {
+            limiter.onSuccess();
+        }
+
+        //assert
+        assertTrue(limiter.getRatePerSecond() > 20.9);
+        assertTrue(limiter.getRatePerSecond() < 21.1);
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_006: [The reserve shall add tokens at the current rate, up to one second of tokens.] */
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_007: [If there is no token, the reserve shall return the time until the next token.] */
+    @Test
+    public void reservePacesRequestsAtTheLimitedRate()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = createLimiter();
+        for (int i = 0; i < 20; i++)
+        {
+            reserve(limiter);
+        }
+        limiter.onThrottled(0);
+
+        //act
+        long waitInNanos = reserve(limiter);
+        clock.addAndGet(waitInNanos);
+
+        //assert
+        assertEquals(ONE_SECOND_IN_NANOS / 10, waitInNanos);
+        assertEquals(0, reserve(limiter));
+        assertTrue(reserve(limiter) > 0);
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_006: [The reserve shall add tokens at the current rate, up to one second of tokens.] */
+    @Test
+    public void reserveKeepsUpToOneSecondOfTokens()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = createLimiter();
+        for (int i = 0; i < 20; i++)
+        {
+            reserve(limiter);
+        }
+        limiter.onThrottled(0);
+
+        //act
+        clock.addAndGet(60 * ONE_SECOND_IN_NANOS);
+        int sent = 0;
+        while (reserve(limiter) == 0)
+        {
+            sent++;
+        }
+
+        //assert
+        assertEquals(10, sent);
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_005: [If the limiter is paused by a Retry-After, the reserve shall return the time until the end of the pause.] */
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_012: [If the retryAfterInMs is positive, the onThrottled shall pause all requests until that time, and then accept one request.] */
+    @Test
+    public void onThrottledPausesUntilRetryAfter()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = createLimiter();
+        for (int i = 0; i < 20; i++)
+        {
+            reserve(limiter);
+        }
+
+        //act
+        limiter.onThrottled(2000);
+
+        //assert
+        assertEquals(2 * ONE_SECOND_IN_NANOS, reserve(limiter));
+        clock.addAndGet(ONE_SECOND_IN_NANOS);
+        assertEquals(ONE_SECOND_IN_NANOS, reserve(limiter));
+        clock.addAndGet(ONE_SECOND_IN_NANOS);
+        assertEquals(0, reserve(limiter));
+        assertEquals(ONE_SECOND_IN_NANOS / 10, reserve(limiter));
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_012: [If the retryAfterInMs is positive, the onThrottled shall pause all requests until that time, and then accept one request.] */
+    @Test
+    public void onThrottledDoesNotShortenThePause()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = createLimiter();
+        limiter.onThrottled(5000);
+
+        //act
+        limiter.onThrottled(1000);
+
+        //assert
+        assertEquals(5 * ONE_SECOND_IN_NANOS, reserve(limiter));
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_003: [The acquire shall wait until the limiter has a token for the request.] */
+    @Test
+    public void acquireReturnsWhenThereIsAToken() throws Exception
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter();
+        limiter.onThrottled(10);
+        long start = System.nanoTime();
+
+        //act
+        limiter.acquire();
+
+        //assert
+        assertTrue((System.nanoTime() - start) >= TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    /* Tests_SRS_ADAPTIVERATELIMITER_21_004: [If the thread is interrupted while it waits, the acquire shall restore the interrupt flag and throw InterruptedIOException.] */
+    @Test
+    public void acquireThrowsOnInterrupt()
+    {
+        //arrange
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter();
+        limiter.onThrottled(60000);
+        Thread.currentThread().interrupt();
+
+        //act
+        try
+        {
+            limiter.acquire();
+            throw new AssertionError("acquire shall throw InterruptedIOException");
+        }
+        catch (InterruptedIOException e)
+        {
+            //assert
+            assertTrue(Thread.interrupted());
+        }
+    }
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.transport;
+
+import com.microsoft.azure.sdk.iot.service.transport.OperationClass;
+import com.microsoft.azure.sdk.iot.service.transport.RequestThrottler;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceInstrumentation;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceOperation;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceOperationListener;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the request throttler.
+ * 100% methods, 100% lines covered
+ */
+public class RequestThrottlerTest
+{
+    private static final String HOST_NAME = "throttler-test.azure-devices.net";
+    private static final double DELTA = 0.0001;
+
+    private static HttpResponse createResponse(int status, String retryAfter)
+    {
+        Map<String, List<String>> headerFields = new HashMap<>();
+        if (retryAfter != null)
+        {
+            headerFields.put("Retry-After", Collections.singletonList(retryAfter));
+        }
+        return new HttpResponse(status, new byte[0], headerFields, new byte[0]);
+    }
+
+    private static RequestThrottler.HttpSender senderOf(final Deque<HttpResponse> responses, final AtomicInteger sendCount)
+    {
+        return () ->
+        {
+            sendCount.incrementAndGet();
+            return responses.poll();
+        };
+    }
+
+    private static long getRetryAfterInMs(HttpResponse response)
+    {
+        return Deencapsulation.invoke(RequestThrottler.class, "getRetryAfterInMs", response);
+    }
+
+    private static void expireIdleThrottlers(RequestThrottler idleThrottler)
+    {
+        long expiredNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(RequestThrottler.IDLE_THROTTLER_TIMEOUT_MS) - 1;
+        Deencapsulation.setField(idleThrottler, "lastUsedNanos", expiredNanos);
+        AtomicLong lastIdleCheckNanos = Deencapsulation.getField(RequestThrottler.class, "LAST_IDLE_CHECK_NANOS");
+        lastIdleCheckNanos.set(expiredNanos);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_001: [The constructor shall throw IllegalArgumentException if the maxRetries or the baseBackoffInMs is negative, or the maxBackoffInMs is less than the baseBackoffInMs.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNegativeMaxRetries()
+    {
+        //act
+        new RequestThrottler(-1, 100, 1000);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_001: [The constructor shall throw IllegalArgumentException if the maxRetries or the baseBackoffInMs is negative, or the maxBackoffInMs is less than the baseBackoffInMs.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNegativeBaseBackoff()
+    {
+        //act
+        new RequestThrottler(5, -1, 1000);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_001: [The constructor shall throw IllegalArgumentException if the maxRetries or the baseBackoffInMs is negative, or the maxBackoffInMs is less than the baseBackoffInMs.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnMaxBackoffLessThanBase()
+    {
+        //act
+        new RequestThrottler(5, 100, 99);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_002: [The constructor shall create one AdaptiveRateLimiter for each OperationClass.] */
+    /* Tests_SRS_REQUESTTHROTTLER_21_007: [The getRatePerSecond shall return the rate of the limiter of the operationClass, or 0 for a pass through throttler.] */
+    @Test
+    public void constructorCreatesUnlimitedLimiters()
+    {
+        //act
+        RequestThrottler throttler = new RequestThrottler();
+
+        //assert
+        for (OperationClass operationClass : OperationClass.values())
+        {
+            assertEquals(0, throttler.getRatePerSecond(operationClass), DELTA);
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void getRatePerSecondThrowsOnNullOperationClass()
+    {
+        //act
+        new RequestThrottler().getRatePerSecond(null);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_004: [The getForIotHub shall return the same throttler for all calls with the same hostName, and create it with the default configuration on the first call.] */
+    /* Tests_SRS_REQUESTTHROTTLER_21_005: [If the throttler is null, the setForIotHub shall discard the throttler of the hostName.] */
+    @Test
+    public void getForIotHubReturnsTheSameThrottlerForTheSameHost()
+    {
+        try
+        {
+            //act
+            RequestThrottler throttler = RequestThrottler.getForIotHub(HOST_NAME);
+
+            //assert
+            assertSame(throttler, RequestThrottler.getForIotHub(HOST_NAME.toUpperCase()));
+            assertNotSame(throttler, RequestThrottler.getForIotHub("other-" + HOST_NAME));
+            RequestThrottler.setForIotHub(HOST_NAME, null);
+            assertNotSame(throttler, RequestThrottler.getForIotHub(HOST_NAME));
+        }
+        finally
+        {
+            RequestThrottler.setForIotHub(HOST_NAME, null);
+            RequestThrottler.setForIotHub("other-" + HOST_NAME, null);
+        }
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_006: [The setForIotHub shall store the throttler as the one for the hostName, and keep it until it is set to null.] */
+    @Test
+    public void setForIotHubReplacesTheThrottler()
+    {
+        //arrange
+        RequestThrottler throttler = RequestThrottler.passThrough();
+
+        try
+        {
+            //act
+            RequestThrottler.setForIotHub(HOST_NAME, throttler);
+            expireIdleThrottlers(throttler);
+
+            //assert
+            assertSame(throttler, RequestThrottler.getForIotHub(HOST_NAME));
+        }
+        finally
+        {
+            RequestThrottler.setForIotHub(HOST_NAME, null);
+        }
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_022: [The getForIotHub shall discard the default throttlers that were not used for IDLE_THROTTLER_TIMEOUT_MS.] */
+    @Test
+    public void getForIotHubDiscardsIdleThrottlers()
+    {
+        try
+        {
+            //arrange
+            RequestThrottler idleThrottler = RequestThrottler.getForIotHub(HOST_NAME);
+            RequestThrottler activeThrottler = RequestThrottler.getForIotHub("other-" + HOST_NAME);
+            expireIdleThrottlers(idleThrottler);
+
+            //act
+            RequestThrottler newThrottler = RequestThrottler.getForIotHub("other-" + HOST_NAME);
+
+            //assert
+            assertSame(activeThrottler, newThrottler);
+            assertNotSame(idleThrottler, RequestThrottler.getForIotHub(HOST_NAME));
+        }
+        finally
+        {
+            RequestThrottler.setForIotHub(HOST_NAME, null);
+            RequestThrottler.setForIotHub("other-" + HOST_NAME, null);
+        }
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_008: [The send shall throw IllegalArgumentException if the operationClass or the sender is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void sendThrowsOnNullOperationClass() throws Exception
+    {
+        //act
+        new RequestThrottler().send(null, () -> createResponse(200, null));
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_008: [The send shall throw IllegalArgumentException if the operationClass or the sender is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void sendThrowsOnNullSender() throws Exception
+    {
+        //act
+        new RequestThrottler().send(OperationClass.TWIN, (RequestThrottler.HttpSender)null);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_003: [The passThrough shall create a throttler that only sends each request once.] */
+    /* Tests_SRS_REQUESTTHROTTLER_21_009: [A pass through throttler shall send the request once and return its response.] */
+    @Test
+    public void passThroughSendsThrottledRequestOnce() throws Exception
+    {
+        //arrange
+        RequestThrottler throttler = RequestThrottler.passThrough();
+        HttpResponse throttledResponse = createResponse(429, null);
+        Deque<HttpResponse> responses = new ArrayDeque<>();
+        responses.add(throttledResponse);
+        responses.add(createResponse(200, null));
+        AtomicInteger sendCount = new AtomicInteger(0);
+
+        //act
+        HttpResponse response = throttler.send(OperationClass.TWIN, true, senderOf(responses, sendCount));
+
+        //assert
+        assertSame(throttledResponse, response);
+        assertEquals(1, sendCount.get());
+        assertEquals(0, throttler.getRatePerSecond(OperationClass.TWIN), DELTA);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_010: [The send shall wait for the limiter of the operationClass before each attempt.] */
+    /* Tests_SRS_REQUESTTHROTTLER_21_011: [If the response is not throttled, the send shall report the success to the limiter and return the response.] */
+    @Test
+    public void sendReturnsSuccessfulResponse() throws Exception
+    {
+        //arrange
+        RequestThrottler throttler = new RequestThrottler(3, 0, 0);
+        HttpResponse okResponse = createResponse(200, null);
+        Deque<HttpResponse> responses = new ArrayDeque<>();
+        responses.add(okResponse);
+        AtomicInteger sendCount = new AtomicInteger(0);
+
+        //act
+        HttpResponse response = throttler.send(OperationClass.REGISTRY, senderOf(responses, sendCount));
+
+        //assert
+        assertSame(okResponse, response);
+        assertEquals(1, sendCount.get());
+        assertEquals(0, throttler.getRatePerSecond(OperationClass.REGISTRY), DELTA);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_011: [If the response is not throttled, the send shall report the success to the limiter and return the response.] */
+    @Test
+    public void sendReturnsOtherFailuresWithoutRetry() throws Exception
+    {
+        //arrange
+        RequestThrottler throttler = new RequestThrottler(3, 0, 0);
+        HttpResponse notFoundResponse = createResponse(404, null);
+        Deque<HttpResponse> responses = new ArrayDeque<>();
+        responses.add(notFoundResponse);
+        responses.add(createResponse(200, null));
+        AtomicInteger sendCount = new AtomicInteger(0);
+
+        //act
+        HttpResponse response = throttler.send(OperationClass.REGISTRY, senderOf(responses, sendCount));
+
+        //assert
+        assertSame(notFoundResponse, response);
+        assertEquals(1, sendCount.get());
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_012: [If the response status is 429 or 503, the send shall report it to the limiter with the Retry-After of the response.] */
+    /* Tests_SRS_REQUESTTHROTTLER_21_014: [Before each retry, the send shall wait a random time up to the backoff, that starts on baseBackoffInMs and doubles on each retry, up to maxBackoffInMs.] */
+    @Test
+    public void sendRetriesThrottledRequests() throws Exception
+    {
+        //arrange
+        RequestThrottler throttler = new RequestThrottler(3, 0, 0);
+        HttpResponse okResponse = createResponse(200, null);
+        Deque<HttpResponse> responses = new ArrayDeque<>();
+        responses.add(createResponse(429, null));
+        responses.add(createResponse(503, null));
+        responses.add(okResponse);
+        AtomicInteger sendCount = new AtomicInteger(0);
+
+        //act
+        HttpResponse response = throttler.send(OperationClass.METHOD, true, senderOf(responses, sendCount));
+
+        //assert
+        assertSame(okResponse, response);
+        assertEquals(3, sendCount.get());
+        assertTrue(throttler.getRatePerSecond(OperationClass.METHOD) > 0);
+        assertEquals(0, throttler.getRatePerSecond(OperationClass.JOBS), DELTA);
+        assertEquals(0, throttler.getRatePerSecond(OperationClass.TWIN), DELTA);
+        assertEquals(0, throttler.getRatePerSecond(OperationClass.REGISTRY), DELTA);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_013: [If the request was throttled more than maxRetries times, or it is not idempotent, the send shall return the throttled response.] */
+    @Test
+    public void sendReturnsThrottledResponseAfterMaxRetries() throws Exception
+    {
+        //arrange
+        RequestThrottler throttler = new RequestThrottler(2, 0, 0);
+        HttpResponse lastThrottledResponse = createResponse(429, null);
+        Deque<HttpResponse> responses = new ArrayDeque<>();
+        responses.add(createResponse(429, null));
+        responses.add(createResponse(429, null));
+        responses.add(lastThrottledResponse);
+        responses.add(createResponse(200, null));
+        AtomicInteger sendCount = new AtomicInteger(0);
+
+        //act
+        HttpResponse response = throttler.send(OperationClass.JOBS, true, senderOf(responses, sendCount));
+
+        //assert
+        assertSame(lastThrottledResponse, response);
+        assertEquals(3, sendCount.get());
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_012: [If the response status is 429 or 503, the send shall report it to the limiter with the Retry-After of the response.] */
+    /* Tests_SRS_REQUESTTHROTTLER_21_021: [If the request is not idempotent, the send shall not send it again when the IotHub throttles it.] */
+    @Test
+    public void sendDoesNotRetryNonIdempotentRequests() throws Exception
+    {
+        //arrange
+        RequestThrottler throttler = new RequestThrottler(3, 0, 0);
+        HttpResponse throttledResponse = createResponse(503, null);
+        Deque<HttpResponse> responses = new ArrayDeque<>();
+        responses.add(throttledResponse);
+        responses.add(createResponse(200, null));
+        AtomicInteger sendCount = new AtomicInteger(0);
+
+        //act
+        HttpResponse response = throttler.send(OperationClass.METHOD, senderOf(responses, sendCount));
+
+        //assert
+        assertSame(throttledResponse, response);
+        assertEquals(1, sendCount.get());
+        assertTrue(throttler.getRatePerSecond(OperationClass.METHOD) > 0);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_014: [Before each retry, the send shall wait a random time up to the backoff, that starts on baseBackoffInMs and doubles on each retry, up to maxBackoffInMs.] */
+    @Test
+    public void backoffDoublesUpToMax()
+    {
+        //arrange
+        RequestThrottler throttler = new RequestThrottler(10, 100, 500);
+
+        //act
+        long maxLateBackoff = 0;
+        for (int i = 0; i < 1000; i++)
+        {
+            long firstBackoff = Deencapsulation.invoke(throttler, "getBackoffInMs", 0);
+            long lateBackoff = Deencapsulation.invoke(throttler, "getBackoffInMs", 62);
+            assertTrue((firstBackoff >= 0) && (firstBackoff <= 100));
+            assertTrue((lateBackoff >= 0) && (lateBackoff <= 500));
+            maxLateBackoff = Math.max(maxLateBackoff, lateBackoff);
+        }
+
+        //assert
+        assertTrue(maxLateBackoff > 100);
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_015: [The Retry-After shall be parsed as a number of seconds, or as an http date.] */
+    @Test
+    public void retryAfterParsesSeconds()
+    {
+        //act - assert
+        assertEquals(2000, getRetryAfterInMs(createResponse(429, "2")));
+        assertEquals(0, getRetryAfterInMs(createResponse(429, null)));
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_015: [The Retry-After shall be parsed as a number of seconds, or as an http date.] */
+    @Test
+    public void retryAfterParsesHttpDate()
+    {
+        //arrange
+        String retryAfter = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusMinutes(1));
+
+        //act
+        long retryAfterInMs = getRetryAfterInMs(createResponse(503, retryAfter));
+
+        //assert
+        assertTrue((retryAfterInMs > 50000) && (retryAfterInMs <= 60000));
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_016: [An invalid Retry-After shall be ignored.] */
+    @Test
+    public void retryAfterIgnoresInvalidValue()
+    {
+        //act - assert
+        assertEquals(0, getRetryAfterInMs(createResponse(429, "soon")));
+        assertEquals(0, getRetryAfterInMs(createResponse(429, "-5")));
+    }
+
+    @Test (expected = IOException.class)
+    public void sendThrowsSenderFailure() throws Exception
+    {
+        //act
+        new RequestThrottler().send(OperationClass.TWIN, (RequestThrottler.HttpSender)() ->
+        {
+            throw new IOException("connection failed");
+        });
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_017: [If no listener is registered in the ServiceInstrumentation, the send shall send each request created by the requestFactory without recording it.] */
+    @Test
+    public void sendRequestFactoryWithoutListenersSendsRequest(@Mocked final HttpRequest mockRequest) throws Exception
+    {
+        //arrange
+        final HttpResponse okResponse = createResponse(200, null);
+        new NonStrictExpectations()
+        {
+            {
+                mockRequest.send();
+                result = okResponse;
+            }
+        };
+
+        //act
+        HttpResponse response = new RequestThrottler().send(OperationClass.TWIN, () -> mockRequest);
+
+        //assert
+        assertSame(okResponse, response);
+        new Verifications()
+        {
+            {
+                mockRequest.getUrl();
+                times = 0;
+            }
+        };
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_018: [The send shall record the url, method, Request-Id, body length, status, and response body length of each attempt.] */
+    /* Tests_SRS_REQUESTTHROTTLER_21_020: [The send shall report the operation, with the response of the last attempt, to the ServiceInstrumentation.] */
+    @Test
+    public void sendRequestFactoryReportsOperation(@Mocked final HttpRequest mockRequest) throws Exception
+    {
+        //arrange
+        final URL url = new URL("https://" + HOST_NAME + "/devices/device1?api-version=2016-11-14");
+        final HttpResponse throttledResponse = createResponse(429, null);
+        final HttpResponse okResponse = new HttpResponse(200, new byte[42], new HashMap<>(), new byte[0]);
+        new NonStrictExpectations()
+        {
+            {
+                mockRequest.getUrl();
+                result = url;
+                mockRequest.getMethod();
+                result = HttpMethod.PUT;
+                mockRequest.getRequestId();
+                result = "1001";
+                mockRequest.getBodyLength();
+                result = 7;
+                mockRequest.isIdempotent();
+                result = true;
+                mockRequest.send();
+                returns(throttledResponse, okResponse);
+            }
+        };
+        final List<ServiceOperation> operations = new ArrayList<>();
+        ServiceOperationListener listener = operations::add;
+        ServiceInstrumentation.addListener(listener);
+
+        try
+        {
+            //act
+            HttpResponse response = new RequestThrottler(1, 0, 0).send(OperationClass.REGISTRY, () -> mockRequest);
+
+            //assert
+            assertSame(okResponse, response);
+        }
+        finally
+        {
+            ServiceInstrumentation.removeListener(listener);
+        }
+        assertEquals(1, operations.size());
+        ServiceOperation operation = operations.get(0);
+        assertEquals(HOST_NAME, operation.getHostName());
+        assertEquals(OperationClass.REGISTRY, operation.getOperationClass());
+        assertEquals("PUT", operation.getMethod());
+        assertEquals("/devices/device1", operation.getPath());
+        assertEquals("1001", operation.getRequestId());
+        assertEquals(200, operation.getStatus());
+        assertEquals(2, operation.getAttempts());
+        assertEquals(1, operation.getThrottledAttempts());
+        assertEquals(7, operation.getRequestSize());
+        assertEquals(42, operation.getResponseSize());
+        assertTrue(operation.isSuccess());
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_023: [The send shall send the request again when the IotHub throttles it only if the request created by the requestFactory is idempotent.] */
+    @Test
+    public void sendRequestFactoryDoesNotRetryNonIdempotentRequests(@Mocked final HttpRequest mockRequest) throws Exception
+    {
+        //arrange
+        final HttpResponse throttledResponse = createResponse(429, null);
+        new NonStrictExpectations()
+        {
+            {
+                mockRequest.isIdempotent();
+                result = false;
+                mockRequest.send();
+                returns(throttledResponse, createResponse(200, null));
+            }
+        };
+
+        //act
+        HttpResponse response = new RequestThrottler(3, 0, 0).send(OperationClass.METHOD, () -> mockRequest);
+
+        //assert
+        assertSame(throttledResponse, response);
+        new Verifications()
+        {
+            {
+                mockRequest.send();
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_REQUESTTHROTTLER_21_019: [If the request fails, the send shall report the operation with its exception to the ServiceInstrumentation, and rethrow it.] */
+    @Test
+    public void sendRequestFactoryReportsFailure() throws Exception
+    {
+        //arrange
+        final IOException error = new IOException("connection failed");
+        final List<ServiceOperation> operations = new ArrayList<>();
+        ServiceOperationListener listener = operations::add;
+        ServiceInstrumentation.addListener(listener);
+
+        try
+        {
+            //act
+            new RequestThrottler().send(OperationClass.METHOD, (RequestThrottler.HttpRequestFactory)() ->
+            {
+                throw error;
+            });
+        }
+        catch (IOException e)
+        {
+            //assert
+            assertSame(error, e);
+        }
+        finally
+        {
+            ServiceInstrumentation.removeListener(listener);
+        }
+        assertEquals(1, operations.size());
+        assertSame(error, operations.get(0).getError());
+        assertEquals(OperationClass.METHOD, operations.get(0).getOperationClass());
+        assertEquals(0, operations.get(0).getAttempts());
+    }
+}
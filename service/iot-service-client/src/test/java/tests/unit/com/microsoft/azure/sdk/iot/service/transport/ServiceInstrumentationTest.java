@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.transport;
+
+import com.microsoft.azure.sdk.iot.service.transport.OperationClass;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceInstrumentation;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceOperation;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceOperationListener;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceOperationRecorder;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the service instrumentation and the service operation recorder.
+ * 100% methods, 100% lines covered
+ */
+public class ServiceInstrumentationTest
+{
+    private static final String HOST_NAME = "instrumentation-test.azure-devices.net";
+
+    private final List<ServiceOperation> operations = new ArrayList<>();
+    private final ServiceOperationListener listener = operations::add;
+
+    @After
+    public void removeListener()
+    {
+        ServiceInstrumentation.removeListener(listener);
+    }
+
+    /* Tests_SRS_SERVICEINSTRUMENTATION_21_001: [The addListener shall throw IllegalArgumentException if the listener is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void addListenerThrowsOnNull()
+    {
+        //act
+        ServiceInstrumentation.addListener(null);
+    }
+
+    /* Tests_SRS_SERVICEINSTRUMENTATION_21_002: [The addListener shall register the listener.] */
+    /* Tests_SRS_SERVICEINSTRUMENTATION_21_003: [The removeListener shall unregister the listener.] */
+    /* Tests_SRS_SERVICEINSTRUMENTATION_21_004: [The isEnabled shall return true if at least one listener is registered, and false otherwise.] */
+    @Test
+    public void isEnabledOnlyWithListeners()
+    {
+        //arrange
+        assertFalse(ServiceInstrumentation.isEnabled());
+
+        //act - assert
+        ServiceInstrumentation.addListener(listener);
+        assertTrue(ServiceInstrumentation.isEnabled());
+        ServiceInstrumentation.removeListener(listener);
+        assertFalse(ServiceInstrumentation.isEnabled());
+    }
+
+    /* Tests_SRS_SERVICEOPERATIONRECORDER_21_001: [The constructor shall throw IllegalArgumentException if the operationClass is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void recorderThrowsOnNullOperationClass()
+    {
+        //act
+        new ServiceOperationRecorder(null);
+    }
+
+    /* Tests_SRS_SERVICEOPERATIONRECORDER_21_002: [The constructor shall store the operationClass and the current time as the start of the operation.] */
+    /* Tests_SRS_SERVICEOPERATIONRECORDER_21_003: [The onRequest shall count one attempt, and store the provided request information, replacing the one of the previous attempt.] */
+    /* Tests_SRS_SERVICEOPERATIONRECORDER_21_004: [The onResponse shall store the status and response size of the last attempt.] */
+    /* Tests_SRS_SERVICEOPERATIONRECORDER_21_005: [If the status is 429 or 503, the onResponse shall count one throttled attempt.] */
+    /* Tests_SRS_SERVICEOPERATIONRECORDER_21_006: [The onCompleted shall report the operation, with the latency since the start and the provided error, to the ServiceInstrumentation.] */
+    /* Tests_SRS_SERVICEINSTRUMENTATION_21_005: [The report shall call all registered listeners with the operation.] */
+    @Test
+    public void recorderReportsAllAttempts()
+    {
+        //arrange
+        ServiceInstrumentation.addListener(listener);
+        ServiceOperationRecorder recorder = new ServiceOperationRecorder(OperationClass.TWIN);
+
+        //act
+        recorder.onRequest(HOST_NAME, "PATCH", "/twins/device1", "1", 10);
+        recorder.onResponse(429, 0);
+        recorder.onRequest(HOST_NAME, "PATCH", "/twins/device1", "2", 12);
+        recorder.onResponse(503, 0);
+        recorder.onRequest(HOST_NAME, "PATCH", "/twins/device1", "3", 14);
+        recorder.onResponse(200, 100);
+        recorder.onCompleted(null);
+
+        //assert
+        assertEquals(1, operations.size());
+        ServiceOperation operation = operations.get(0);
+        assertEquals(HOST_NAME, operation.getHostName());
+        assertEquals(OperationClass.TWIN, operation.getOperationClass());
+        assertEquals("PATCH", operation.getMethod());
+        assertEquals("/twins/device1", operation.getPath());
+        assertEquals("3", operation.getRequestId());
+        assertEquals(200, operation.getStatus());
+        assertEquals(3, operation.getAttempts());
+        assertEquals(2, operation.getThrottledAttempts());
+        assertEquals(14, operation.getRequestSize());
+        assertEquals(100, operation.getResponseSize());
+        assertTrue(operation.getLatencyNanos() >= 0);
+        assertNull(operation.getError());
+        assertTrue(operation.isSuccess());
+    }
+
+    /* Tests_SRS_SERVICEOPERATIONRECORDER_21_006: [The onCompleted shall report the operation, with the latency since the start and the provided error, to the ServiceInstrumentation.] */
+    @Test
+    public void recorderReportsFailures()
+    {
+        //arrange
+        ServiceInstrumentation.addListener(listener);
+        IOException error = new IOException("connection failed");
+        ServiceOperationRecorder failedRecorder = new ServiceOperationRecorder(OperationClass.MESSAGING);
+        ServiceOperationRecorder rejectedRecorder = new ServiceOperationRecorder(OperationClass.REGISTRY);
+
+        //act
+        failedRecorder.onRequest(HOST_NAME, "SEND", "/devices/device1/messages/devicebound", null, 5);
+        failedRecorder.onCompleted(error);
+        rejectedRecorder.onRequest(HOST_NAME, "GET", "/devices/device1", "1001", 0);
+        rejectedRecorder.onResponse(404, 50);
+        rejectedRecorder.onCompleted(null);
+
+        //assert
+        assertEquals(2, operations.size());
+        assertSame(error, operations.get(0).getError());
+        assertEquals(ServiceOperation.NO_STATUS, operations.get(0).getStatus());
+        assertFalse(operations.get(0).isSuccess());
+        assertEquals(404, operations.get(1).getStatus());
+        assertFalse(operations.get(1).isSuccess());
+    }
+
+    /* Tests_SRS_SERVICEINSTRUMENTATION_21_006: [The report shall ignore the exceptions of the listeners, so they do not fail the operation.] */
+    @Test
+    public void reportIgnoresListenerExceptions()
+    {
+        //arrange
+        ServiceOperationListener failingListener = operation ->
+        {
+            throw new IllegalStateException("listener failed");
+        };
+        ServiceInstrumentation.addListener(failingListener);
+        ServiceInstrumentation.addListener(listener);
+
+        try
+        {
+            //act
+            new ServiceOperationRecorder(OperationClass.JOBS).onCompleted(null);
+        }
+        finally
+        {
+            ServiceInstrumentation.removeListener(failingListener);
+        }
+
+        //assert
+        assertEquals(1, operations.size());
+        assertEquals(0, operations.get(0).getAttempts());
+    }
+}
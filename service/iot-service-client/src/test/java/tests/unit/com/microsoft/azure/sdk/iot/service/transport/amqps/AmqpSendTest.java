@@ -7,6 +7,10 @@ package tests.unit.com.microsoft.azure.sdk.iot.service.transport.amqps;
 
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.Message;
+import com.microsoft.azure.sdk.iot.service.transport.OperationClass;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceInstrumentation;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceOperation;
+import com.microsoft.azure.sdk.iot.service.transport.ServiceOperationListener;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSend;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSendHandler;
 import mockit.Deencapsulation;
@@ -22,8 +26,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.junit.Assert.assertNull;
 
 /** Unit tests for AmqpSend */
@@ -294,4 +304,82 @@ public class AmqpSendTest
         // Act
         amqpSend.send(deviceId, message);
     }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSEND_21_011: [If any listener is registered in the ServiceInstrumentation, the function shall record the send as a MESSAGING operation, with the device path, message id, and body size.]
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSEND_21_013: [The function shall report the completed send to the ServiceInstrumentation.]
+    @Test
+    public void send_reports_operation_to_instrumentation() throws Exception
+    {
+        // Arrange
+        String hostName = "aaa";
+        String userName = "bbb";
+        String sasToken = "ccc";
+        String deviceId = "deviceId";
+        String content = "abcdefghijklmnopqrst";
+        Message message = new Message(content);
+        message.setMessageId("message-1");
+        IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
+        AmqpSend amqpSend = new AmqpSend(hostName, userName, sasToken, iotHubServiceClientProtocol);
+        amqpSend.open();
+        List<ServiceOperation> operations = new ArrayList<>();
+        ServiceOperationListener listener = operations::add;
+        ServiceInstrumentation.addListener(listener);
+        try
+        {
+            // Act
+            amqpSend.send(deviceId, message);
+        }
+        finally
+        {
+            ServiceInstrumentation.removeListener(listener);
+        }
+        // Assert
+        assertEquals(1, operations.size());
+        ServiceOperation operation = operations.get(0);
+        assertEquals(OperationClass.MESSAGING, operation.getOperationClass());
+        assertEquals(hostName, operation.getHostName());
+        assertEquals("SEND", operation.getMethod());
+        assertEquals("/devices/deviceId/messages/devicebound", operation.getPath());
+        assertEquals("message-1", operation.getRequestId());
+        assertEquals(content.length(), operation.getRequestSize());
+        assertEquals(1, operation.getAttempts());
+        assertTrue(operation.isSuccess());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSEND_21_012: [If the send fails, the function shall report the operation with its exception to the ServiceInstrumentation.]
+    @Test
+    public void send_reports_failure_to_instrumentation() throws Exception
+    {
+        // Arrange
+        String hostName = "aaa";
+        String userName = "bbb";
+        String sasToken = "ccc";
+        String deviceId = "deviceId";
+        Message message = new Message("abcdefghijklmnopqrst");
+        IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
+        AmqpSend amqpSend = new AmqpSend(hostName, userName, sasToken, iotHubServiceClientProtocol);
+        amqpSend.open();
+        AmqpSendHandler handler = Deencapsulation.getField(amqpSend, "amqpSendHandler");
+        Deencapsulation.setField(handler, "isConnectionError", true);
+        List<ServiceOperation> operations = new ArrayList<>();
+        ServiceOperationListener listener = operations::add;
+        ServiceInstrumentation.addListener(listener);
+        try
+        {
+            // Act
+            amqpSend.send(deviceId, message);
+            fail("send shall throw IOException");
+        }
+        catch (IOException e)
+        {
+            // Assert
+            assertEquals(1, operations.size());
+            assertSame(e, operations.get(0).getError());
+            assertFalse(operations.get(0).isSuccess());
+        }
+        finally
+        {
+            ServiceInstrumentation.removeListener(listener);
+        }
+    }
 }
@@ -720,4 +720,66 @@ public class HttpConnectionTest
         // Act
         conn.getResponseHeaders();
     }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_21_024: [The function shall return the input stream (response stream) without reading it.]
+    @Test
+    public void getInputStreamReturnsStreamWithoutReadingIt(@Mocked final InputStream mockIs) throws IOException
+    {
+        // Arrange
+        final HttpMethod httpsMethod = HttpMethod.GET;
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+                mockUrlConn.getInputStream();
+                result = mockIs;
+            }
+        };
+        HttpConnection conn = new HttpConnection(mockUrl, httpsMethod);
+        conn.connect();
+        // Act
+        InputStream testStream = conn.getInputStream();
+        // Assert
+        assertThat(testStream, is(mockIs));
+        new Verifications()
+        {
+            {
+                mockIs.read();
+                times = 0;
+                mockIs.close();
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_21_025: [The function shall throw an IOException if the input stream could not be accessed.]
+    // Assert
+    @Test(expected = IOException.class)
+    public void getInputStreamFailsIfCannotAccessInputStream() throws IOException
+    {
+        // Arrange
+        final HttpMethod httpsMethod = HttpMethod.GET;
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+                mockUrlConn.getInputStream();
+                result = new IOException();
+            }
+        };
+        HttpConnection conn = new HttpConnection(mockUrl, httpsMethod);
+        conn.connect();
+        // Act
+        conn.getInputStream();
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.transport.http;
+
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpStreamingResponse;
+import mockit.Mocked;
+import mockit.Verifications;
+import mockit.integration.junit4.JMockit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/** Unit tests for HttpStreamingResponse. */
+@RunWith(JMockit.class)
+public class HttpStreamingResponseTest
+{
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPSTREAMINGRESPONSE_21_001: [The constructor shall store the input arguments so that the getters can return them later.]
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPSTREAMINGRESPONSE_21_003: [The function shall return the body stream given in the constructor.]
+    @Test
+    public void constructorStoresArguments(@Mocked final InputStream mockIs)
+    {
+        // Arrange
+        final Map<String, List<String>> headerFields = new HashMap<>();
+        final List<String> values = new LinkedList<>();
+        values.add("test-value");
+        headerFields.put("test-field", values);
+        final byte[] errorReason = { 1, 2 };
+        // Act
+        HttpStreamingResponse response = new HttpStreamingResponse(200, mockIs, headerFields, errorReason);
+        // Assert
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.getBodyStream(), is(mockIs));
+        assertThat(response.getHeaderField("test-field"), is("test-value"));
+        assertThat(response.getErrorReason(), is(errorReason));
+        assertThat(response.getBody().length, is(0));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPSTREAMINGRESPONSE_21_002: [If the body stream is null, the constructor shall use an empty body stream.]
+    @Test
+    public void constructorNullBodyStreamUsesEmptyStream() throws IOException
+    {
+        // Act
+        HttpStreamingResponse response = new HttpStreamingResponse(404, null, new HashMap<String, List<String>>(), new byte[0]);
+        // Assert
+        assertThat(response.getBodyStream().read(), is(-1));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPSTREAMINGRESPONSE_21_004: [The function shall close the body stream.]
+    @Test
+    public void closeClosesBodyStream(@Mocked final InputStream mockIs) throws IOException
+    {
+        // Arrange
+        HttpStreamingResponse response = new HttpStreamingResponse(200, mockIs, new HashMap<String, List<String>>(), new byte[0]);
+        // Act
+        response.close();
+        // Assert
+        new Verifications()
+        {
+            {
+                mockIs.close();
+                times = 1;
+            }
+        };
+    }
+}
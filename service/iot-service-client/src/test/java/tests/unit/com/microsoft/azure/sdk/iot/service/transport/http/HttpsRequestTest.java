@@ -10,12 +10,15 @@ import com.microsoft.azure.sdk.iot.service.transport.http.HttpConnection;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpStreamingResponse;
 import mockit.*;
 import mockit.integration.junit4.JMockit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -23,7 +26,10 @@ import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 /** Unit tests for HttpRequest. */
 @RunWith(JMockit.class)
@@ -638,4 +644,169 @@ public class HttpsRequestTest
             }
         };
     }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_011: [The function shall send an HTTPS request as formatted in the constructor.]
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_012: [The function shall not read the response body, and shall return it as a stream.]
+    @Test
+    public void sendStreamingReturnsBodyStreamWithoutReadingIt(@Mocked final HttpConnection mockConn) throws IOException
+    {
+        // Arrange
+        final HttpMethod httpsMethod = HttpMethod.GET;
+        final byte[] body = new byte[0];
+        final InputStream bodyStream = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "http";
+                mockConn.getResponseStatus();
+                result = 200;
+                mockConn.getInputStream();
+                result = bodyStream;
+            }
+        };
+        HttpRequest request = new HttpRequest(mockUrl, httpsMethod, body);
+        // Act
+        HttpStreamingResponse response = request.sendStreaming();
+        // Assert
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.getBodyStream(), is(bodyStream));
+        new Verifications()
+        {
+            {
+                mockConn.connect();
+                times = 1;
+                mockConn.readInput();
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_014: [If an I/O exception occurs because of a bad response status code, the function shall read the error stream, and return a response with an empty body stream.]
+    @Test
+    public void sendStreamingReturnsErrorOnBadStatusException(@Mocked final HttpConnection mockConn) throws IOException
+    {
+        // Arrange
+        final HttpMethod httpsMethod = HttpMethod.GET;
+        final byte[] body = new byte[0];
+        final byte[] error = { 5, 6, 7 };
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "http";
+                mockConn.connect();
+                result = new IOException();
+                mockConn.getResponseStatus();
+                result = 404;
+                mockConn.readError();
+                result = error;
+            }
+        };
+        HttpRequest request = new HttpRequest(mockUrl, httpsMethod, body);
+        // Act
+        HttpStreamingResponse response = request.sendStreaming();
+        // Assert
+        assertThat(response.getStatus(), is(404));
+        assertThat(response.getErrorReason(), is(error));
+        assertThat(response.getBodyStream().read(), is(-1));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_013: [If the client cannot connect to the server, the function shall throw an IOException.]
+    // Assert
+    @Test(expected = IOException.class)
+    public void sendStreamingThrowsIoExceptionIfCannotConnect(@Mocked final HttpConnection mockConn) throws IOException
+    {
+        // Arrange
+        final HttpMethod httpsMethod = HttpMethod.GET;
+        final byte[] body = new byte[0];
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "http";
+                mockConn.connect();
+                result = new IOException();
+                mockConn.getResponseStatus();
+                result = new IOException();
+            }
+        };
+        HttpRequest request = new HttpRequest(mockUrl, httpsMethod, body);
+        // Act
+        request.sendStreaming();
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_015: [The function shall return the URL given in the constructor.]
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_016: [The function shall return the method given in the constructor.]
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_017: [The function shall return the length of the body given in the constructor.]
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_018: [The function shall return the last value set for the Request-Id header field, or null if it was not set.]
+    @Test
+    public void gettersReturnRequestInformation(@Mocked final HttpConnection mockConn) throws IOException
+    {
+        // Arrange
+        final HttpMethod httpsMethod = HttpMethod.POST;
+        final byte[] body = { 1, 2, 3 };
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "http";
+            }
+        };
+        HttpRequest request = new HttpRequest(mockUrl, httpsMethod, body);
+        // Act - Assert
+        assertThat(request.getUrl(), is(mockUrl));
+        assertThat(request.getMethod(), is(HttpMethod.POST));
+        assertThat(request.getBodyLength(), is(3));
+        assertNull(request.getRequestId());
+        request.setHeaderField("Accept", "application/json");
+        request.setHeaderField("Request-Id", "1001");
+        assertThat(request.getRequestId(), is("1001"));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_019: [The function shall return true if the method is GET, or the If-Match header field is set to an etag other than `*`, and false otherwise.]
+    @Test
+    public void isIdempotentOnlyForGetOrIfMatchETag(@Mocked final HttpConnection mockConn) throws IOException
+    {
+        // Arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "http";
+            }
+        };
+        HttpRequest getRequest = new HttpRequest(mockUrl, HttpMethod.GET, new byte[0]);
+        HttpRequest postRequest = new HttpRequest(mockUrl, HttpMethod.POST, new byte[0]);
+        HttpRequest putRequest = new HttpRequest(mockUrl, HttpMethod.PUT, new byte[0]);
+        // Act
+        putRequest.setHeaderField("If-Match", "\"etag1\"");
+        // Assert
+        assertTrue(getRequest.isIdempotent());
+        assertFalse(postRequest.isIdempotent());
+        assertTrue(putRequest.isIdempotent());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_21_019: [The function shall return true if the method is GET, or the If-Match header field is set to an etag other than `*`, and false otherwise.]
+    @Test
+    public void isIdempotentFalseForIfMatchAny(@Mocked final HttpConnection mockConn) throws IOException
+    {
+        // Arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "http";
+            }
+        };
+        HttpRequest putRequest = new HttpRequest(mockUrl, HttpMethod.PUT, new byte[0]);
+        HttpRequest deleteRequest = new HttpRequest(mockUrl, HttpMethod.DELETE, new byte[0]);
+        // Act
+        putRequest.setHeaderField("If-Match", "*");
+        deleteRequest.setHeaderField("If-Match", "\"etag1\"");
+        deleteRequest.setHeaderField("If-Match", "*");
+        // Assert
+        assertFalse(putRequest.isIdempotent());
+        assertFalse(deleteRequest.isIdempotent());
+    }
 }